@@ -0,0 +1,181 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.xerces.benchmarks;
+
+import java.io.ByteArrayInputStream;
+import java.io.StringReader;
+import java.util.concurrent.TimeUnit;
+
+import javax.xml.transform.stream.StreamSource;
+import javax.xml.validation.Schema;
+import javax.xml.validation.SchemaFactory;
+import javax.xml.validation.Validator;
+
+import org.apache.xerces.impl.Constants;
+import org.apache.xerces.impl.xs.XMLSchemaLoader;
+import org.apache.xerces.impl.xs.assertion.XSAssertImpl;
+import org.apache.xerces.impl.xs.util.XSGrammarPool;
+import org.apache.xerces.xni.parser.XMLInputSource;
+import org.apache.xerces.xs.XSComplexTypeDefinition;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the XML Schema 1.1 validation of a large document against two
+ * schemas which only differ by the assertion of the type of the document
+ * element: in the <code>streamed</code> schema every assertion can be
+ * evaluated as the document is read, and in the <code>materialized</code>
+ * one the assertion of the document element needs the XDM tree of the
+ * whole document. Run with <code>-prof gc</code> to compare the memory
+ * allocated per document.
+ *
+ * @version $Id$
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AssertionStreamingBenchmark {
+
+    //
+    // Constants
+    //
+
+    /** Property identifier: grammar pool. */
+    private static final String XMLGRAMMAR_POOL =
+        Constants.XERCES_PROPERTY_PREFIX + Constants.XMLGRAMMAR_POOL_PROPERTY;
+
+    /** Property identifier: XML Schema version. */
+    private static final String XML_SCHEMA_VERSION =
+        Constants.XERCES_PROPERTY_PREFIX + Constants.XML_SCHEMA_VERSION_PROPERTY;
+
+    /** Streamed assertion of the document element. */
+    private static final String STREAMED_ASSERTION = "count(order) ge @min";
+
+    /** Materialized assertion of the document element. */
+    private static final String MATERIALIZED_ASSERTION = "every $o in order satisfies $o/@id ne ''";
+
+    //
+    // Data
+    //
+
+    /** How the assertion of the document element is evaluated. */
+    @Param({"streamed", "materialized"})
+    public String assertion;
+
+    /** The number of orders of the document. */
+    @Param({"5000"})
+    public int orders;
+
+    private byte[] fBytes;
+
+    private Validator fValidator;
+
+    //
+    // Setup
+    //
+
+    @Setup
+    public void setup() throws Exception {
+        fBytes = createDocument(orders);
+        boolean streamed = assertion.equals("streamed");
+        String schemaText = createSchemaText(streamed ? STREAMED_ASSERTION : MATERIALIZED_ASSERTION);
+        // fail early if the assertion isn't evaluated as the benchmark expects
+        if (isStreamable(schemaText) != streamed) {
+            throw new IllegalStateException("The assertion of the document element isn't " + assertion);
+        }
+        SchemaFactory factory = SchemaFactory.newInstance(Constants.W3C_XML_SCHEMA11_NS_URI);
+        Schema schema = factory.newSchema(new StreamSource(new StringReader(schemaText)));
+        fValidator = schema.newValidator();
+        fValidator.setErrorHandler(SchemaValidationBenchmark.FailingErrorHandler.INSTANCE);
+    } // setup()
+
+    //
+    // Benchmarks
+    //
+
+    @Benchmark
+    public void validate() throws Exception {
+        fValidator.validate(new StreamSource(new ByteArrayInputStream(fBytes)));
+    } // validate()
+
+    //
+    // Private static methods
+    //
+
+    /** Creates a schema whose document element has the given assertion. */
+    private static String createSchemaText(String assertion) {
+        StringBuffer str = new StringBuffer();
+        str.append("<xs:schema xmlns:xs='http://www.w3.org/2001/XMLSchema'>\n");
+        str.append("<xs:element name='orders'><xs:complexType><xs:sequence>");
+        str.append("<xs:element name='order' type='order' maxOccurs='unbounded'/>");
+        str.append("</xs:sequence><xs:attribute name='min' type='xs:int'/>");
+        str.append("<xs:assert test=\"").append(assertion).append("\"/></xs:complexType></xs:element>\n");
+        str.append("<xs:complexType name='order'><xs:sequence>");
+        str.append("<xs:element name='line' maxOccurs='unbounded'><xs:complexType><xs:simpleContent>");
+        str.append("<xs:extension base='xs:string'><xs:attribute name='qty' type='xs:int'/></xs:extension>");
+        str.append("</xs:simpleContent></xs:complexType></xs:element>");
+        str.append("<xs:element name='note' type='xs:string' minOccurs='0'/>");
+        str.append("</xs:sequence><xs:attribute name='id' type='xs:string'/>");
+        str.append("<xs:attribute name='lines' type='xs:int'/><xs:attribute name='total' type='xs:decimal'/>");
+        str.append("<xs:assert test='count(line) eq @lines'/>");
+        str.append("<xs:assert test='@total ge 0 and (@total lt 1000 or exists(note))'/>");
+        str.append("</xs:complexType>\n</xs:schema>\n");
+        return str.toString();
+    } // createSchemaText(String):String
+
+    /** Creates a document with the given number of orders. */
+    private static byte[] createDocument(int orders) throws Exception {
+        StringBuffer str = new StringBuffer();
+        str.append("<orders min='1'>\n");
+        for (int i = 0; i < orders; ++i) {
+            int lines = 1 + i % 5;
+            str.append("<order id='o").append(i).append("' lines='").append(lines);
+            str.append("' total='").append(i % 1000).append(".50'>");
+            for (int j = 0; j < lines; ++j) {
+                str.append("<line qty='").append(j + 1).append("'>item ").append(j).append("</line>");
+            }
+            str.append("</order>\n");
+        }
+        str.append("</orders>\n");
+        return str.toString().getBytes("UTF-8");
+    } // createDocument(int):byte[]
+
+    /** Returns whether the assertion of the document element is streamed. */
+    private static boolean isStreamable(String schemaText) throws Exception {
+        XSGrammarPool pool = new XSGrammarPool();
+        XMLSchemaLoader loader = new XMLSchemaLoader();
+        loader.setProperty(XMLGRAMMAR_POOL, pool);
+        loader.setProperty(XML_SCHEMA_VERSION, Constants.W3C_XML_SCHEMA11_NS_URI);
+        loader.loadGrammar(new XMLInputSource(null, "orders.xsd", null, new StringReader(schemaText), null));
+        XSComplexTypeDefinition type = (XSComplexTypeDefinition)
+            pool.toXSModel().getElementDeclaration("orders", null).getTypeDefinition();
+        return ((XSAssertImpl) type.getAssertions().item(0)).isStreamable();
+    } // isStreamable(String):boolean
+
+} // class AssertionStreamingBenchmark
@@ -0,0 +1,125 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.xerces.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.xerces.util.SymbolTable;
+import org.apache.xerces.util.XMLAttributesImpl;
+import org.apache.xerces.util.XMLSymbols;
+import org.apache.xerces.xni.QName;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the work done on the attributes of a start tag by the
+ * namespace scanner and a validator (<code>XMLAttributesImpl</code>)
+ * for elements with a growing number of attributes: the attributes are
+ * added, bound to their namespaces and checked for duplicates, and each
+ * one is then looked up by its namespace name and by its qualified name.
+ *
+ * @version $Id$
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AttributeLookupBenchmark {
+
+    //
+    // Data
+    //
+
+    /** The number of attributes of the element. */
+    @Param({"4", "10", "20", "40", "80"})
+    public int count;
+
+    private String fURI;
+
+    private QName[] fNames;
+
+    private String[] fURIs;
+
+    private XMLAttributesImpl fAttributes;
+
+    //
+    // Setup
+    //
+
+    @Setup
+    public void setup() throws Exception {
+        SymbolTable symbols = new SymbolTable();
+        fURI = symbols.addSymbol("http://www.w3.org/2000/svg");
+        String prefix = symbols.addSymbol("svg");
+        fNames = new QName[count];
+        fURIs = new String[count];
+        for (int i = 0; i < count; ++i) {
+            // half of the attributes are in a namespace
+            String localpart = symbols.addSymbol("attribute" + i);
+            if (i % 2 == 0) {
+                fNames[i] = new QName(XMLSymbols.EMPTY_STRING, localpart, localpart, null);
+            }
+            else {
+                fNames[i] = new QName(prefix, localpart, symbols.addSymbol(prefix + ':' + localpart), null);
+                fURIs[i] = fURI;
+            }
+        }
+        fAttributes = new XMLAttributesImpl();
+        // fail early if an attribute isn't found
+        if (element() != (long) count * (count - 1)) {
+            throw new IllegalStateException("attributes not found");
+        }
+    } // setup()
+
+    //
+    // Benchmarks
+    //
+
+    @Benchmark
+    public long element() {
+        // scanner
+        fAttributes.removeAllAttributes();
+        for (int i = 0; i < count; ++i) {
+            fAttributes.addAttributeNS(fNames[i], XMLSymbols.fCDATASymbol, "value");
+        }
+        for (int i = 1; i < count; i += 2) {
+            fAttributes.setURI(i, fURI);
+        }
+        if (fAttributes.checkDuplicatesNS() != null) {
+            throw new IllegalStateException("duplicate attribute");
+        }
+        // validator
+        long found = 0;
+        for (int i = 0; i < count; ++i) {
+            found += fAttributes.getIndexFast(fURIs[i], fNames[i].localpart);
+            found += fAttributes.getIndexFast(fNames[i].rawname);
+        }
+        return found;
+    } // element():long
+
+} // class AttributeLookupBenchmark
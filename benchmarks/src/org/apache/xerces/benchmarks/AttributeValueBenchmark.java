@@ -0,0 +1,166 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.xerces.benchmarks;
+
+import java.io.ByteArrayInputStream;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.xerces.impl.Constants;
+import org.apache.xerces.parsers.CharArrayAttributes;
+import org.apache.xerces.parsers.SAXParser;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.xml.sax.Attributes;
+import org.xml.sax.InputSource;
+import org.xml.sax.helpers.DefaultHandler;
+
+/**
+ * Measures the SAX parser for a document with many attributes, read by
+ * a handler which looks at the attribute values and character data as
+ * characters, with the defer attribute values feature disabled and
+ * enabled. Run with <code>-prof gc</code> to compare the memory
+ * allocated per document.
+ *
+ * @version $Id$
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AttributeValueBenchmark {
+
+    //
+    // Constants
+    //
+
+    /** Feature identifier: defer attribute values. */
+    private static final String DEFER_ATTRIBUTE_VALUES =
+        Constants.XERCES_FEATURE_PREFIX + Constants.DEFER_ATTRIBUTE_VALUES_FEATURE;
+
+    //
+    // Data
+    //
+
+    /** Whether the attribute values are deferred. */
+    @Param({"false", "true"})
+    public boolean deferred;
+
+    /** The number of elements of the document; each has four attributes. */
+    @Param({"50000"})
+    public int elements;
+
+    private byte[] fBytes;
+
+    private SAXParser fParser;
+
+    private ChecksumHandler fHandler;
+
+    //
+    // Setup
+    //
+
+    @Setup
+    public void setup() throws Exception {
+        fBytes = createDocument(elements);
+        fParser = new SAXParser();
+        fParser.setFeature(DEFER_ATTRIBUTE_VALUES, deferred);
+        fHandler = new ChecksumHandler();
+        fParser.setContentHandler(fHandler);
+        // fail early if the deferred values aren't the strings
+        SAXParser parser = new SAXParser();
+        parser.setFeature(DEFER_ATTRIBUTE_VALUES, false);
+        ChecksumHandler handler = new ChecksumHandler();
+        parser.setContentHandler(handler);
+        parser.parse(new InputSource(new ByteArrayInputStream(fBytes)));
+        if (parse() != handler.checksum) {
+            throw new IllegalStateException("The attribute values differ");
+        }
+    } // setup()
+
+    //
+    // Benchmarks
+    //
+
+    @Benchmark
+    public long parse() throws Exception {
+        fParser.parse(new InputSource(new ByteArrayInputStream(fBytes)));
+        return fHandler.checksum;
+    } // parse():long
+
+    //
+    // Private static methods
+    //
+
+    /** Creates a document with the given number of elements. */
+    private static byte[] createDocument(int elements) throws Exception {
+        StringBuffer str = new StringBuffer();
+        str.append("<orders xmlns='urn:orders'>\n");
+        for (int i = 0; i < elements; ++i) {
+            str.append("<order id='o").append(i).append("' customer='c").append(i % 997);
+            str.append("' amount='").append(i % 1000).append(".").append(i % 100);
+            str.append("' status='").append(i % 3 == 0 ? "open" : "closed").append("'>");
+            str.append("item ").append(i).append("</order>\n");
+        }
+        str.append("</orders>\n");
+        return str.toString().getBytes("UTF-8");
+    } // createDocument(int):byte[]
+
+    //
+    // Classes
+    //
+
+    /** Sums the characters of the attribute values and character data. */
+    static final class ChecksumHandler extends DefaultHandler {
+
+        long checksum;
+
+        public void startDocument() {
+            checksum = 0;
+        }
+
+        public void startElement(String uri, String localName, String qName,
+                Attributes attributes) {
+            CharArrayAttributes chars = (CharArrayAttributes) attributes;
+            for (int i = 0; i < chars.getLength(); ++i) {
+                char[] ch = chars.getValueChars(i);
+                int length = chars.getValueLength(i);
+                for (int j = 0; j < length; ++j) {
+                    checksum = 31 * checksum + ch[j];
+                }
+            }
+        }
+
+        public void characters(char[] ch, int start, int length) {
+            for (int i = start; i < start + length; ++i) {
+                checksum = 31 * checksum + ch[i];
+            }
+        }
+
+    } // class ChecksumHandler
+
+} // class AttributeValueBenchmark
@@ -0,0 +1,132 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.xerces.benchmarks;
+
+import java.io.ByteArrayInputStream;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.xerces.impl.Constants;
+import org.apache.xerces.parsers.DOMParser;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.w3c.dom.Document;
+import org.xml.sax.InputSource;
+
+/**
+ * Measures parsing a large document into a deferred DOM, with and
+ * without the compact deferred DOM, and with and without deferred
+ * attribute values. No node is expanded. Run with <code>-prof gc</code>
+ * to compare the memory allocated per document, most of which is
+ * retained by the deferred DOM.
+ *
+ * @version $Id$
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CompactDeferredDOMBenchmark {
+
+    //
+    // Constants
+    //
+
+    /** Feature identifier: compact deferred DOM. */
+    private static final String COMPACT_DEFERRED_DOM =
+        Constants.XERCES_FEATURE_PREFIX + Constants.COMPACT_DEFERRED_DOM_FEATURE;
+
+    /** Feature identifier: defer attribute values. */
+    private static final String DEFER_ATTRIBUTE_VALUES =
+        Constants.XERCES_FEATURE_PREFIX + Constants.DEFER_ATTRIBUTE_VALUES_FEATURE;
+
+    //
+    // Data
+    //
+
+    /** Whether the deferred DOM is compact. */
+    @Param({"false", "true"})
+    public boolean compact;
+
+    /** Whether the attribute values are deferred. */
+    @Param({"false", "true"})
+    public boolean deferAttributeValues;
+
+    /** The number of records of the document. */
+    @Param({"200000"})
+    public int records;
+
+    private byte[] fBytes;
+
+    private DOMParser fParser;
+
+    //
+    // Setup
+    //
+
+    @Setup
+    public void setup() throws Exception {
+        fBytes = createDocument(records);
+        fParser = new DOMParser();
+        fParser.setFeature(COMPACT_DEFERRED_DOM, compact);
+        fParser.setFeature(DEFER_ATTRIBUTE_VALUES, deferAttributeValues);
+    } // setup()
+
+    //
+    // Benchmarks
+    //
+
+    @Benchmark
+    public Document parse() throws Exception {
+        fParser.parse(new InputSource(new ByteArrayInputStream(fBytes)));
+        Document document = fParser.getDocument();
+        // the parser doesn't keep the DOM from being collected
+        fParser.reset();
+        return document;
+    } // parse():Document
+
+    //
+    // Private static methods
+    //
+
+    /** Creates a document with the given number of records. */
+    private static byte[] createDocument(int records) throws Exception {
+        StringBuffer str = new StringBuffer();
+        str.append("<records>\n");
+        for (int i = 0; i < records; ++i) {
+            str.append("<record id='r").append(i).append("' status='");
+            str.append(i % 3 == 0 ? "open" : "closed").append("'>\n");
+            str.append(" <name>Customer ").append(i).append("</name>\n");
+            str.append(" <city>City ").append(i % 1000).append("</city>\n");
+            str.append(" <amount currency='EUR'>").append(i % 10000).append(".25</amount>\n");
+            str.append("</record>\n");
+        }
+        str.append("</records>\n");
+        return str.toString().getBytes("UTF-8");
+    } // createDocument(int):byte[]
+
+} // class CompactDeferredDOMBenchmark
@@ -0,0 +1,153 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.xerces.benchmarks;
+
+import java.io.ByteArrayInputStream;
+import java.io.StringReader;
+import java.util.concurrent.TimeUnit;
+
+import javax.xml.transform.stream.StreamSource;
+import javax.xml.validation.Schema;
+import javax.xml.validation.Validator;
+
+import org.apache.xerces.jaxp.validation.XMLSchemaFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures schema validation of documents whose root element has a
+ * content model with a wide choice, so that the time spent finding
+ * the transition of the DFA content model for each child dominates.
+ * Three forms of the choice are measured: <code>local</code> element
+ * declarations, references to <code>global</code> element declarations,
+ * and a reference to the head of a <code>substitution</code> group whose
+ * members are the children.
+ *
+ * @version $Id$
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ContentModelBenchmark {
+
+    //
+    // Data
+    //
+
+    /** The form of the choice. */
+    @Param({"local", "global", "substitution"})
+    public String form;
+
+    /** The number of elements of the choice. */
+    @Param({"200"})
+    public int width;
+
+    /** The number of children of the root element. */
+    @Param({"5000"})
+    public int children;
+
+    private byte[] fBytes;
+
+    private Validator fValidator;
+
+    //
+    // Setup
+    //
+
+    @Setup
+    public void setup() throws Exception {
+        fBytes = createDocument(width, children).getBytes("UTF-8");
+        XMLSchemaFactory factory = new XMLSchemaFactory();
+        factory.setErrorHandler(SchemaValidationBenchmark.FailingErrorHandler.INSTANCE);
+        Schema schema = factory.newSchema(new StreamSource(new StringReader(createSchema(form, width))));
+        fValidator = schema.newValidator();
+        fValidator.setErrorHandler(SchemaValidationBenchmark.FailingErrorHandler.INSTANCE);
+    } // setup()
+
+    //
+    // Benchmarks
+    //
+
+    @Benchmark
+    public void validate() throws Exception {
+        fValidator.validate(new StreamSource(new ByteArrayInputStream(fBytes)));
+    } // validate()
+
+    //
+    // Private static methods
+    //
+
+    /** Builds a schema with a choice of the given width. */
+    private static String createSchema(String form, int width) {
+        StringBuffer str = new StringBuffer();
+        str.append("<xs:schema xmlns:xs='http://www.w3.org/2001/XMLSchema'");
+        str.append(" xmlns:w='urn:wide' targetNamespace='urn:wide' elementFormDefault='qualified'>\n");
+        str.append("<xs:element name='root'><xs:complexType>");
+        str.append("<xs:choice minOccurs='0' maxOccurs='unbounded'>\n");
+        if (form.equals("local")) {
+            for (int i = 0; i < width; ++i) {
+                str.append("<xs:element name='e").append(i).append("' type='xs:string'/>\n");
+            }
+            str.append("</xs:choice></xs:complexType></xs:element>\n");
+        }
+        else if (form.equals("global")) {
+            for (int i = 0; i < width; ++i) {
+                str.append("<xs:element ref='w:e").append(i).append("'/>\n");
+            }
+            str.append("</xs:choice></xs:complexType></xs:element>\n");
+            for (int i = 0; i < width; ++i) {
+                str.append("<xs:element name='e").append(i).append("' type='xs:string'/>\n");
+            }
+        }
+        else {
+            str.append("<xs:element ref='w:head'/>\n");
+            str.append("</xs:choice></xs:complexType></xs:element>\n");
+            str.append("<xs:element name='head' type='xs:string' abstract='true'/>\n");
+            for (int i = 0; i < width; ++i) {
+                str.append("<xs:element name='e").append(i);
+                str.append("' type='xs:string' substitutionGroup='w:head'/>\n");
+            }
+        }
+        str.append("</xs:schema>\n");
+        return str.toString();
+    } // createSchema(String,int):String
+
+    /** Builds a document whose children cycle through the choice. */
+    private static String createDocument(int width, int children) {
+        StringBuffer str = new StringBuffer();
+        str.append("<root xmlns='urn:wide'>\n");
+        for (int i = 0; i < children; ++i) {
+            int n = (i * 7) % width;
+            str.append("<e").append(n).append(">v</e").append(n).append(">\n");
+        }
+        str.append("</root>\n");
+        return str.toString();
+    } // createDocument(int,int):String
+
+} // class ContentModelBenchmark
@@ -0,0 +1,148 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.xerces.benchmarks;
+
+import java.io.ByteArrayInputStream;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.xerces.impl.dtd.models.ContentModelCache;
+import org.apache.xerces.parsers.SAXParser;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.xml.sax.InputSource;
+import org.xml.sax.helpers.DefaultHandler;
+
+/**
+ * Measures the validation of documents against an internal DTD whose
+ * elements have large content models, such as the content models of
+ * forms and records. Each document is validated by a new parser without
+ * a grammar pool, so its DTD grammar is built each time, with the content
+ * models compiled each time and with them taken from the content model
+ * cache shared by the grammars, which is cleared before each document
+ * or kept.
+ *
+ * @version $Id$
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ContentModelCacheBenchmark {
+
+    //
+    // Constants
+    //
+
+    /** Feature identifier: validation. */
+    private static final String VALIDATION = "http://xml.org/sax/features/validation";
+
+    //
+    // Data
+    //
+
+    /** Whether the content model cache is kept between the documents. */
+    @Param({"false", "true"})
+    public boolean cached;
+
+    /** The number of record elements declared. */
+    @Param({"20"})
+    public int elements;
+
+    private byte[] fBytes;
+
+    //
+    // Setup
+    //
+
+    @Setup
+    public void setup() throws Exception {
+        fBytes = createDocument(elements).getBytes("UTF-8");
+        ContentModelCache.clear();
+        // fail early if the content models aren't taken from the cache
+        long hits = ContentModelCache.getHitCount();
+        validate();
+        validate();
+        if (cached && ContentModelCache.getHitCount() == hits) {
+            throw new IllegalStateException("No content model was taken from the cache");
+        }
+    } // setup()
+
+    //
+    // Benchmarks
+    //
+
+    @Benchmark
+    public void validate() throws Exception {
+        if (!cached) {
+            ContentModelCache.clear();
+        }
+        SAXParser parser = new SAXParser();
+        parser.setFeature(VALIDATION, true);
+        parser.setContentHandler(new DefaultHandler());
+        parser.parse(new InputSource(new ByteArrayInputStream(fBytes)));
+    } // validate()
+
+    //
+    // Private static methods
+    //
+
+    /**
+     * Creates a document whose record elements each have a content model
+     * of sequences and choices of the field elements.
+     */
+    private static String createDocument(int elements) {
+        StringBuffer doc = new StringBuffer("<?xml version='1.0'?>\n<!DOCTYPE records [\n");
+        doc.append("<!ELEMENT records (");
+        for (int i = 0; i < elements; ++i) {
+            doc.append(i > 0 ? "|" : "").append("record").append(i);
+        }
+        doc.append(")*>\n");
+        for (int i = 0; i < elements; ++i) {
+            doc.append("<!ELEMENT record").append(i).append(" (");
+            for (int j = 0; j < 8; ++j) {
+                doc.append(j > 0 ? "," : "").append("(f").append(j).append(",(f")
+                    .append(j + 1).append("|f").append(j + 2).append(")*,f").append((j + i) % 10).append("?)+");
+            }
+            doc.append(")>\n");
+        }
+        for (int j = 0; j < 10; ++j) {
+            doc.append("<!ELEMENT f").append(j).append(" (#PCDATA)>\n");
+        }
+        doc.append("]>\n<records>\n");
+        for (int i = 0; i < elements; ++i) {
+            doc.append("<record").append(i).append('>');
+            for (int j = 0; j < 8; ++j) {
+                doc.append("<f").append(j).append(">v</f").append(j).append('>');
+            }
+            doc.append("</record").append(i).append(">\n");
+        }
+        doc.append("</records>\n");
+        return doc.toString();
+    } // createDocument(int):String
+
+} // class ContentModelCacheBenchmark
@@ -0,0 +1,151 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.xerces.benchmarks;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+
+/**
+ * The documents shared by the benchmarks. The corpus is a set of
+ * purchase orders in the namespace {@link #NAMESPACE}, described by the
+ * schema <code>orders.xsd</code> which is bundled with the documents.
+ * <ul>
+ *  <li><code>small</code> - two orders, about 2KB</li>
+ *  <li><code>medium</code> - sixty orders, about 45KB</li>
+ *  <li><code>large</code> - the orders of the medium document repeated
+ *      to about 4MB; generated when first requested so that it
+ *      doesn't have to be bundled</li>
+ * </ul>
+ * Every document is valid with respect to the schema.
+ *
+ * @version $Id$
+ */
+public final class Corpus {
+
+    //
+    // Constants
+    //
+
+    /** The target namespace of the corpus. */
+    public static final String NAMESPACE = "http://xerces.apache.org/benchmarks/orders";
+
+    /** Resource name of the schema. */
+    public static final String SCHEMA = "corpus/orders.xsd";
+
+    /** Approximate size of the large document. */
+    private static final int LARGE_SIZE = 4 * 1024 * 1024;
+
+    /** Marker of the last end tag of a document. */
+    private static final String ROOT_END_TAG = "</po:orders>";
+
+    //
+    // Data
+    //
+
+    /** Cached large document. */
+    private static byte[] fLarge;
+
+    //
+    // Constructors
+    //
+
+    /** This class cannot be instantiated. */
+    private Corpus() {}
+
+    //
+    // Public static methods
+    //
+
+    /**
+     * Returns the bytes of the named document, encoded in UTF-8.
+     *
+     * @param name <code>small</code>, <code>medium</code> or <code>large</code>
+     */
+    public static byte[] getDocument(String name) throws IOException {
+        if (name.equals("large")) {
+            return getLarge();
+        }
+        return getResource("corpus/" + name + ".xml");
+    } // getDocument(String):byte[]
+
+    /**
+     * Returns the system identifier of the named document. Relative
+     * references in the document, such as the schema location, are
+     * resolved against it.
+     */
+    public static String getSystemId(String name) {
+        String resource = name.equals("large") ? "medium" : name;
+        return getURL("corpus/" + resource + ".xml").toExternalForm();
+    } // getSystemId(String):String
+
+    /** Returns the system identifier of the schema of the corpus. */
+    public static String getSchemaSystemId() {
+        return getURL(SCHEMA).toExternalForm();
+    } // getSchemaSystemId():String
+
+    /** Returns the bytes of a resource of this package. */
+    public static byte[] getResource(String name) throws IOException {
+        InputStream in = getURL(name).openStream();
+        try {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            int count;
+            while ((count = in.read(buffer)) != -1) {
+                out.write(buffer, 0, count);
+            }
+            return out.toByteArray();
+        }
+        finally {
+            in.close();
+        }
+    } // getResource(String):byte[]
+
+    //
+    // Private static methods
+    //
+
+    private static URL getURL(String name) {
+        URL url = Corpus.class.getResource(name);
+        if (url == null) {
+            throw new IllegalArgumentException("Missing corpus resource: " + name);
+        }
+        return url;
+    } // getURL(String):URL
+
+    /** Builds the large document by repeating the orders of the medium one. */
+    private static synchronized byte[] getLarge() throws IOException {
+        if (fLarge == null) {
+            String medium = new String(getResource("corpus/medium.xml"), "UTF-8");
+            int start = medium.indexOf("<po:order ");
+            int end = medium.lastIndexOf(ROOT_END_TAG);
+            String prolog = medium.substring(0, start);
+            String orders = medium.substring(start, end);
+            StringBuffer large = new StringBuffer(LARGE_SIZE + medium.length());
+            large.append(prolog);
+            while (large.length() < LARGE_SIZE) {
+                large.append(orders);
+            }
+            large.append(medium.substring(end));
+            fLarge = large.toString().getBytes("UTF-8");
+        }
+        return fLarge;
+    } // getLarge():byte[]
+
+} // class Corpus
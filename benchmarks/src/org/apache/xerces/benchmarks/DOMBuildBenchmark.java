@@ -0,0 +1,125 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.xerces.benchmarks;
+
+import java.io.ByteArrayInputStream;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.xerces.parsers.DOMParser;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.w3c.dom.Document;
+import org.w3c.dom.NamedNodeMap;
+import org.w3c.dom.Node;
+import org.xml.sax.InputSource;
+
+/**
+ * Measures building a DOM with <code>DOMParser</code>. With deferred
+ * node expansion on, the parser builds a <code>DeferredDocumentImpl</code>
+ * and nodes are only created when they are first visited; the
+ * <code>parseAndTraverse</code> benchmark visits every node and attribute
+ * so that the cost of expansion is included.
+ *
+ * @version $Id$
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DOMBuildBenchmark {
+
+    //
+    // Data
+    //
+
+    /** The document to parse. */
+    @Param({"small", "medium", "large"})
+    public String document;
+
+    /** Whether node expansion is deferred. */
+    @Param({"true", "false"})
+    public boolean deferred;
+
+    private byte[] fBytes;
+
+    private DOMParser fParser;
+
+    //
+    // Setup
+    //
+
+    @Setup
+    public void setup() throws Exception {
+        fBytes = Corpus.getDocument(document);
+        fParser = new DOMParser();
+        fParser.setFeature("http://xml.org/sax/features/namespaces", true);
+        fParser.setFeature("http://apache.org/xml/features/dom/defer-node-expansion", deferred);
+    } // setup()
+
+    //
+    // Benchmarks
+    //
+
+    @Benchmark
+    public Document parse() throws Exception {
+        fParser.parse(new InputSource(new ByteArrayInputStream(fBytes)));
+        return fParser.getDocument();
+    } // parse():Document
+
+    @Benchmark
+    public long parseAndTraverse() throws Exception {
+        fParser.parse(new InputSource(new ByteArrayInputStream(fBytes)));
+        return traverse(fParser.getDocument());
+    } // parseAndTraverse():long
+
+    //
+    // Private static methods
+    //
+
+    /** Visits every node of the tree, expanding deferred nodes. */
+    private static long traverse(Node node) {
+        long count = 0;
+        for (Node child = node.getFirstChild(); child != null; child = child.getNextSibling()) {
+            if (child.getNodeType() == Node.TEXT_NODE) {
+                count += child.getNodeValue().length();
+            }
+            else {
+                NamedNodeMap attributes = child.getAttributes();
+                if (attributes != null) {
+                    for (int i = 0; i < attributes.getLength(); ++i) {
+                        count += attributes.item(i).getNodeValue().length();
+                    }
+                }
+                count += 1 + traverse(child);
+            }
+        }
+        return count;
+    } // traverse(Node):long
+
+} // class DOMBuildBenchmark
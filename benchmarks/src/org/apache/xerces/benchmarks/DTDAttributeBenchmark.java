@@ -0,0 +1,176 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.xerces.benchmarks;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.xerces.impl.Constants;
+import org.apache.xerces.parsers.SAXParser;
+import org.apache.xerces.util.XMLGrammarPoolImpl;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.xml.sax.InputSource;
+import org.xml.sax.helpers.DefaultHandler;
+
+/**
+ * Measures the validation of documents against DTDs which declare a
+ * growing number of attributes for each element, as DocBook and TEI do
+ * with their common attributes. Every tenth attribute has a default
+ * value, and the elements of the documents specify a few attributes.
+ * The external DTD is parsed once and its grammar is taken from a
+ * grammar pool afterwards, so mostly the defaulting and the validation
+ * of the attributes are measured.
+ *
+ * @version $Id$
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DTDAttributeBenchmark {
+
+    //
+    // Constants
+    //
+
+    /** Feature identifier: validation. */
+    private static final String VALIDATION = "http://xml.org/sax/features/validation";
+
+    /** Property identifier: grammar pool. */
+    private static final String GRAMMAR_POOL =
+        Constants.XERCES_PROPERTY_PREFIX + Constants.XMLGRAMMAR_POOL_PROPERTY;
+
+    /** The number of elements of a document. */
+    private static final int ELEMENTS = 200;
+
+    //
+    // Data
+    //
+
+    /** The number of attributes declared for each element. */
+    @Param({"10", "50", "100", "200", "400"})
+    public int attributes;
+
+    private File fDTD;
+
+    private byte[] fBytes;
+
+    private XMLGrammarPoolImpl fPool;
+
+    private DefaultHandler fHandler;
+
+    //
+    // Setup
+    //
+
+    @Setup
+    public void setup() throws Exception {
+        fDTD = File.createTempFile("book", ".dtd");
+        Writer out = new OutputStreamWriter(new FileOutputStream(fDTD), "UTF-8");
+        out.write(createDTD(attributes));
+        out.close();
+        fBytes = createDocument(attributes, fDTD.toURI().toString()).getBytes("UTF-8");
+        fPool = new XMLGrammarPoolImpl();
+        fHandler = new DefaultHandler();
+    } // setup()
+
+    @TearDown
+    public void tearDown() {
+        fDTD.delete();
+    } // tearDown()
+
+    //
+    // Benchmarks
+    //
+
+    @Benchmark
+    public void validate() throws Exception {
+        SAXParser parser = new SAXParser();
+        parser.setFeature(VALIDATION, true);
+        parser.setProperty(GRAMMAR_POOL, fPool);
+        parser.setContentHandler(fHandler);
+        parser.setErrorHandler(fHandler);
+        parser.parse(new InputSource(new ByteArrayInputStream(fBytes)));
+    } // validate()
+
+    //
+    // Private static methods
+    //
+
+    /**
+     * Creates a DTD whose elements are declared with the given number of
+     * attributes.
+     */
+    private static String createDTD(int attributes) {
+        StringBuffer doc = new StringBuffer();
+        doc.append("<!ELEMENT book (para)*>\n<!ELEMENT para (#PCDATA)>\n");
+        String[] elements = { "book", "para" };
+        for (int e = 0; e < elements.length; ++e) {
+            doc.append("<!ATTLIST ").append(elements[e]);
+            for (int i = 0; i < attributes; ++i) {
+                doc.append("\n  att").append(i);
+                if (i % 3 == 0) {
+                    doc.append(" (yes|no|maybe)");
+                }
+                else {
+                    doc.append(" CDATA");
+                }
+                if (i % 10 == 0) {
+                    doc.append(i % 3 == 0 ? " 'no'" : " 'default'");
+                }
+                else {
+                    doc.append(" #IMPLIED");
+                }
+            }
+            doc.append(">\n");
+        }
+        return doc.toString();
+    } // createDTD(int):String
+
+    /**
+     * Creates a document, whose elements are declared with the given
+     * number of attributes in the given DTD.
+     */
+    private static String createDocument(int attributes, String dtd) {
+        StringBuffer doc = new StringBuffer("<?xml version='1.0'?>\n<!DOCTYPE book SYSTEM '");
+        doc.append(dtd).append("'>\n<book>\n");
+        for (int i = 0; i < ELEMENTS; ++i) {
+            doc.append("<para att1='yes' att2='no' att").append(attributes - 1)
+                .append("='yes' att").append(attributes - 4).append("='maybe'>Paragraph.</para>\n");
+        }
+        doc.append("</book>\n");
+        return doc.toString();
+    } // createDocument(int,String):String
+
+} // class DTDAttributeBenchmark
@@ -0,0 +1,133 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.xerces.benchmarks;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.Hashtable;
+
+/**
+ * An HTTP server on the loopback interface for the benchmarks of the
+ * resources published on a remote server. Each request for a document
+ * is answered on its own thread after a fixed latency; documents whose
+ * path ends with <code>.txt</code> are served as UTF-8 text and the
+ * others as XML.
+ *
+ * @version $Id$
+ */
+final class DocumentServer extends Thread {
+
+    //
+    // Data
+    //
+
+    /** The documents served, by path. */
+    private final Hashtable<String, String> fDocuments;
+
+    /** The latency of each request, in milliseconds. */
+    private final int fLatency;
+
+    private final ServerSocket fSocket;
+
+    //
+    // Constructors
+    //
+
+    /** Starts serving the documents. */
+    DocumentServer(Hashtable<String, String> documents, int latency) throws IOException {
+        super("DocumentServer");
+        fDocuments = documents;
+        fLatency = latency;
+        fSocket = new ServerSocket(0, 50, InetAddress.getByName("localhost"));
+        setDaemon(true);
+        start();
+    } // <init>(Hashtable,int)
+
+    //
+    // Public methods
+    //
+
+    /** Returns the URI of the document with the given path. */
+    public String getURI(String path) {
+        return "http://localhost:" + fSocket.getLocalPort() + path;
+    } // getURI(String):String
+
+    /** Stops serving the documents. */
+    public void close() throws IOException {
+        fSocket.close();
+    } // close()
+
+    public void run() {
+        while (!fSocket.isClosed()) {
+            try {
+                final Socket socket = fSocket.accept();
+                Thread handler = new Thread() {
+                    public void run() {
+                        serve(socket);
+                    }
+                };
+                handler.setDaemon(true);
+                handler.start();
+            }
+            catch (IOException e) {
+                // the server is closed
+            }
+        }
+    } // run()
+
+    //
+    // Private methods
+    //
+
+    /** Answers a single request, after the latency has elapsed. */
+    private void serve(Socket socket) {
+        try {
+            BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), "ISO-8859-1"));
+            String request = in.readLine();
+            String line;
+            while ((line = in.readLine()) != null && line.length() > 0) {
+                // skip the headers
+            }
+            Thread.sleep(fLatency);
+            String path = request != null && request.startsWith("GET ")
+                ? request.substring(4, request.indexOf(' ', 4)) : "";
+            String document = fDocuments.get(path);
+            OutputStream out = socket.getOutputStream();
+            if (document == null) {
+                out.write("HTTP/1.0 404 Not Found\r\nContent-Length: 0\r\n\r\n".getBytes("ISO-8859-1"));
+            }
+            else {
+                byte[] body = document.getBytes("UTF-8");
+                String type = path.endsWith(".txt") ? "text/plain; charset=UTF-8" : "application/xml";
+                out.write(("HTTP/1.0 200 OK\r\nContent-Type: " + type + "\r\nContent-Length: "
+                        + body.length + "\r\n\r\n").getBytes("ISO-8859-1"));
+                out.write(body);
+            }
+            out.flush();
+            socket.close();
+        }
+        catch (Exception e) {
+            e.printStackTrace();
+        }
+    } // serve(Socket)
+
+} // class DocumentServer
@@ -0,0 +1,162 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.xerces.benchmarks;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.xerces.impl.Constants;
+import org.apache.xerces.parsers.SAXParser;
+import org.apache.xerces.util.EntityContentCache;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.xml.sax.InputSource;
+import org.xml.sax.helpers.DefaultHandler;
+
+/**
+ * Measures the parsing of small messages which reference the same
+ * external DTD, made of modules of about 300 KB included as external
+ * parameter entities, as DocBook-style documents do. Each message is
+ * parsed by a new parser, with the DTD and its modules read from their
+ * files and with them read from an entity content cache shared by the
+ * parsers.
+ *
+ * @version $Id$
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EntityContentCacheBenchmark {
+
+    //
+    // Constants
+    //
+
+    /** Property identifier: entity content cache. */
+    private static final String ENTITY_CONTENT_CACHE =
+        Constants.XERCES_PROPERTY_PREFIX + Constants.ENTITY_CONTENT_CACHE_PROPERTY;
+
+    /** The number of modules of the DTD. */
+    private static final int MODULES = 3;
+
+    //
+    // Data
+    //
+
+    /** Whether the entities are read from the cache. */
+    @Param({"false", "true"})
+    public boolean cached;
+
+    private File fDirectory;
+
+    private byte[] fBytes;
+
+    private EntityContentCache fCache;
+
+    private DefaultHandler fHandler;
+
+    //
+    // Setup
+    //
+
+    @Setup
+    public void setup() throws Exception {
+        fDirectory = createDTD();
+        String dtd = new File(fDirectory, "message.dtd").toURI().toString();
+        fBytes = ("<?xml version='1.0'?>\n<!DOCTYPE message SYSTEM '" + dtd + "'>\n"
+                + "<message id='m1'><para>A message of the feed.</para></message>\n").getBytes("UTF-8");
+        fCache = cached ? new EntityContentCache() : null;
+        fHandler = new DefaultHandler();
+    } // setup()
+
+    @TearDown
+    public void tearDown() {
+        File[] files = fDirectory.listFiles();
+        for (int i = 0; i < files.length; ++i) {
+            files[i].delete();
+        }
+        fDirectory.delete();
+    } // tearDown()
+
+    //
+    // Benchmarks
+    //
+
+    @Benchmark
+    public void parse() throws Exception {
+        SAXParser parser = new SAXParser();
+        if (fCache != null) {
+            parser.setProperty(ENTITY_CONTENT_CACHE, fCache);
+        }
+        parser.setContentHandler(fHandler);
+        parser.parse(new InputSource(new ByteArrayInputStream(fBytes)));
+    } // parse()
+
+    //
+    // Private static methods
+    //
+
+    /** Creates the DTD and its modules in a temporary directory. */
+    private static File createDTD() throws Exception {
+        File dir = File.createTempFile("dtd", "");
+        dir.delete();
+        dir.mkdir();
+        StringBuffer dtd = new StringBuffer();
+        for (int m = 0; m < MODULES; ++m) {
+            dtd.append("<!ENTITY % module").append(m).append(" SYSTEM 'module").append(m).append(".mod'>\n");
+            dtd.append("%module").append(m).append(";\n");
+            StringBuffer module = new StringBuffer();
+            module.append("<!-- Module ").append(m).append(" of the message DTD. -->\n");
+            for (int i = 0; module.length() < 300 * 1024; ++i) {
+                String name = "m" + m + "e" + i;
+                module.append("<!--\n  The ").append(name).append(" element, with a description of its\n")
+                    .append("  content and attributes as found in the modules of large DTDs.\n-->\n");
+                module.append("<!ELEMENT ").append(name).append(" (#PCDATA|para)*>\n");
+                module.append("<!ATTLIST ").append(name).append(" id ID #IMPLIED role CDATA #IMPLIED>\n");
+            }
+            write(new File(dir, "module" + m + ".mod"), module.toString());
+        }
+        dtd.append("<!ELEMENT message (para)*>\n<!ATTLIST message id ID #REQUIRED>\n");
+        dtd.append("<!ELEMENT para (#PCDATA)>\n");
+        write(new File(dir, "message.dtd"), dtd.toString());
+        return dir;
+    } // createDTD():File
+
+    private static void write(File file, String content) throws Exception {
+        Writer out = new OutputStreamWriter(new FileOutputStream(file), "UTF-8");
+        out.write(content);
+        out.close();
+    } // write(File,String)
+
+} // class EntityContentCacheBenchmark
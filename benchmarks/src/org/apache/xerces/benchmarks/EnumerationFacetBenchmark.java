@@ -0,0 +1,136 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.xerces.benchmarks;
+
+import java.io.StringReader;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.xerces.impl.Constants;
+import org.apache.xerces.impl.dv.ValidatedInfo;
+import org.apache.xerces.impl.dv.XSSimpleType;
+import org.apache.xerces.impl.dv.xs.TypeValidatorHelper;
+import org.apache.xerces.impl.validation.ValidationState;
+import org.apache.xerces.impl.xs.XMLSchemaLoader;
+import org.apache.xerces.xni.grammars.XSGrammar;
+import org.apache.xerces.xni.parser.XMLInputSource;
+import org.apache.xerces.xs.XSModel;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measures the validation of values against the enumeration facet of a
+ * code list type, for code lists of 10, 1,000 and 50,000 values. The
+ * values validated are spread over the code list. Values which are not
+ * in the code list are not measured: the message of their error lists
+ * the whole code list.
+ *
+ * @version $Id$
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EnumerationFacetBenchmark {
+
+    //
+    // Constants
+    //
+
+    /** The number of values validated by each operation. */
+    private static final int VALUES = 64;
+
+    //
+    // Data
+    //
+
+    /** The number of codes of the code list. */
+    @Param({"10", "1000", "50000"})
+    public int size;
+
+    private XSSimpleType fType;
+
+    private String[] fValues;
+
+    private ValidationState fContext;
+
+    private ValidatedInfo fInfo;
+
+    //
+    // Setup
+    //
+
+    @Setup
+    public void setup() throws Exception {
+        fType = createType(size);
+        fValues = new String[VALUES];
+        for (int i = 0; i < fValues.length; ++i) {
+            fValues[i] = code((int) ((long) i * size / fValues.length));
+        }
+        fContext = new ValidationState();
+        fContext.setExtraChecking(false);
+        fContext.setTypeValidatorHelper(TypeValidatorHelper.getInstance(Constants.SCHEMA_VERSION_1_0));
+        fInfo = new ValidatedInfo();
+    } // setup()
+
+    //
+    // Benchmarks
+    //
+
+    @Benchmark
+    public void validate(Blackhole blackhole) throws Exception {
+        for (int i = 0; i < fValues.length; ++i) {
+            blackhole.consume(fType.validate(fValues[i], fContext, fInfo));
+        }
+    } // validate(Blackhole)
+
+    //
+    // Private static methods
+    //
+
+    /** Returns the code of the given number. */
+    private static String code(int i) {
+        return "C" + (100000 + i);
+    } // code(int):String
+
+    /** Creates a type whose enumeration has the given number of codes. */
+    private static XSSimpleType createType(int size) throws Exception {
+        StringBuffer str = new StringBuffer();
+        str.append("<xs:schema xmlns:xs='http://www.w3.org/2001/XMLSchema'>\n");
+        str.append("<xs:simpleType name='code'><xs:restriction base='xs:token'>\n");
+        for (int i = 0; i < size; ++i) {
+            str.append("<xs:enumeration value='").append(code(i)).append("'/>\n");
+        }
+        str.append("</xs:restriction></xs:simpleType>\n</xs:schema>\n");
+        XMLSchemaLoader loader = new XMLSchemaLoader();
+        XSModel model = ((XSGrammar) loader.loadGrammar(new XMLInputSource(null, "codes.xsd", null,
+                new StringReader(str.toString()), null))).toXSModel();
+        return (XSSimpleType) model.getTypeDefinition("code", null);
+    } // createType(int):XSSimpleType
+
+} // class EnumerationFacetBenchmark
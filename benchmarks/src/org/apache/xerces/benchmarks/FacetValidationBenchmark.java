@@ -0,0 +1,128 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.xerces.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.xerces.impl.Constants;
+import org.apache.xerces.impl.dv.ValidatedInfo;
+import org.apache.xerces.impl.dv.XSSimpleType;
+import org.apache.xerces.impl.dv.xs.TypeValidatorHelper;
+import org.apache.xerces.impl.validation.ValidationState;
+import org.apache.xerces.impl.xs.XMLSchemaLoader;
+import org.apache.xerces.xs.XSModel;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measures the validation of values against the simple types of the
+ * corpus schema (<code>XSSimpleTypeDecl</code>), in isolation from the
+ * scanner and the validator. Each type restricts a built-in type with
+ * a different kind of facet: pattern, enumeration, bounds and digits,
+ * and length.
+ *
+ * @version $Id$
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FacetValidationBenchmark {
+
+    //
+    // Constants
+    //
+
+    /** Valid values of each simple type of the corpus schema. */
+    private static final String[][] VALUES = {
+        { "SKU", "ABC-1234", "XYZ-0000", "QPT-9260", "HYQ-9136" },
+        { "Email", "anna.schmidt@example.com", "j.smith@mail.example.co.uk" },
+        { "CountryCode", "US", "GB", "JP", "CA", "AT" },
+        { "Status", "pending", "shipped", "delivered", "cancelled" },
+        { "Price", "9.99", "1234.50", "0.01", "250" },
+        { "Quantity", "1", "42", "1000" },
+        { "OrderId", "o1", "o42", "o12345" },
+        { "Description", "Stainless steel widget, pack of twelve" },
+    };
+
+    //
+    // Data
+    //
+
+    /** The name of the simple type. */
+    @Param({"SKU", "Email", "CountryCode", "Status", "Price", "Quantity", "OrderId", "Description"})
+    public String type;
+
+    private XSSimpleType fType;
+
+    private String[] fValues;
+
+    private ValidationState fContext;
+
+    private ValidatedInfo fInfo;
+
+    //
+    // Setup
+    //
+
+    @Setup
+    public void setup() throws Exception {
+        XMLSchemaLoader loader = new XMLSchemaLoader();
+        XSModel model = loader.loadURI(Corpus.getSchemaSystemId());
+        fType = (XSSimpleType) model.getTypeDefinition(type, Corpus.NAMESPACE);
+        for (int i = 0; i < VALUES.length; ++i) {
+            if (VALUES[i][0].equals(type)) {
+                fValues = new String[VALUES[i].length - 1];
+                System.arraycopy(VALUES[i], 1, fValues, 0, fValues.length);
+            }
+        }
+        fContext = new ValidationState();
+        fContext.setExtraChecking(false);
+        fContext.setFacetChecking(true);
+        fContext.setTypeValidatorHelper(TypeValidatorHelper.getInstance(Constants.SCHEMA_VERSION_1_0));
+        fInfo = new ValidatedInfo();
+        // fail early if the values aren't valid
+        for (int i = 0; i < fValues.length; ++i) {
+            fType.validate(fValues[i], fContext, fInfo);
+        }
+    } // setup()
+
+    //
+    // Benchmarks
+    //
+
+    @Benchmark
+    public void validate(Blackhole blackhole) throws Exception {
+        for (int i = 0; i < fValues.length; ++i) {
+            blackhole.consume(fType.validate(fValues[i], fContext, fInfo));
+        }
+    } // validate(Blackhole)
+
+} // class FacetValidationBenchmark
@@ -0,0 +1,152 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.xerces.benchmarks;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStreamWriter;
+import java.io.StringReader;
+import java.io.Writer;
+import java.util.concurrent.TimeUnit;
+
+import javax.xml.transform.stream.StreamSource;
+import javax.xml.validation.Schema;
+import javax.xml.validation.Validator;
+
+import org.apache.xerces.jaxp.validation.XMLSchemaFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures schema validation of a data feed whose rows are constrained
+ * by an <code>xs:key</code> on two fields, one of them a decimal, and
+ * by an <code>xs:keyref</code> from a second list of rows, for feeds of
+ * 10,000, 100,000 and 1,000,000 rows.
+ *
+ * @version $Id$
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class IdentityConstraintBenchmark {
+
+    //
+    // Constants
+    //
+
+    /** The schema. */
+    private static final String SCHEMA =
+        "<xs:schema xmlns:xs='http://www.w3.org/2001/XMLSchema'>\n" +
+        " <xs:element name='feed'>\n" +
+        "  <xs:complexType><xs:sequence>\n" +
+        "   <xs:element name='row' minOccurs='0' maxOccurs='unbounded'>\n" +
+        "    <xs:complexType>\n" +
+        "     <xs:attribute name='region' type='xs:string'/>\n" +
+        "     <xs:attribute name='id' type='xs:decimal'/>\n" +
+        "    </xs:complexType>\n" +
+        "   </xs:element>\n" +
+        "   <xs:element name='ref' minOccurs='0' maxOccurs='unbounded'>\n" +
+        "    <xs:complexType>\n" +
+        "     <xs:attribute name='region' type='xs:string'/>\n" +
+        "     <xs:attribute name='id' type='xs:decimal'/>\n" +
+        "    </xs:complexType>\n" +
+        "   </xs:element>\n" +
+        "  </xs:sequence></xs:complexType>\n" +
+        "  <xs:key name='rowKey'>\n" +
+        "   <xs:selector xpath='row'/>\n" +
+        "   <xs:field xpath='@region'/><xs:field xpath='@id'/>\n" +
+        "  </xs:key>\n" +
+        "  <xs:keyref name='rowRef' refer='rowKey'>\n" +
+        "   <xs:selector xpath='ref'/>\n" +
+        "   <xs:field xpath='@region'/><xs:field xpath='@id'/>\n" +
+        "  </xs:keyref>\n" +
+        " </xs:element>\n" +
+        "</xs:schema>\n";
+
+    //
+    // Data
+    //
+
+    /** The number of rows of the feed. */
+    @Param({"10000", "100000", "1000000"})
+    public int rows;
+
+    private byte[] fBytes;
+
+    private Validator fValidator;
+
+    //
+    // Setup
+    //
+
+    @Setup
+    public void setup() throws Exception {
+        fBytes = createDocument(rows);
+        XMLSchemaFactory factory = new XMLSchemaFactory();
+        factory.setErrorHandler(SchemaValidationBenchmark.FailingErrorHandler.INSTANCE);
+        Schema schema = factory.newSchema(new StreamSource(new StringReader(SCHEMA)));
+        fValidator = schema.newValidator();
+        fValidator.setErrorHandler(SchemaValidationBenchmark.FailingErrorHandler.INSTANCE);
+    } // setup()
+
+    //
+    // Benchmarks
+    //
+
+    @Benchmark
+    public void validate() throws Exception {
+        fValidator.validate(new StreamSource(new ByteArrayInputStream(fBytes)));
+    } // validate()
+
+    //
+    // Private static methods
+    //
+
+    /**
+     * Builds a feed with the given number of rows and a reference to every
+     * tenth row. The identifiers of the references are written with
+     * trailing zeros so that they are only equal to the keys in the value
+     * space.
+     */
+    private static byte[] createDocument(int rows) throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(rows * 40);
+        Writer out = new OutputStreamWriter(bytes, "UTF-8");
+        out.write("<feed>\n");
+        for (int i = 0; i < rows; ++i) {
+            out.write("<row region='r" + (i % 16) + "' id='" + i + "'/>\n");
+        }
+        for (int i = 0; i < rows; i += 10) {
+            out.write("<ref region='r" + (i % 16) + "' id='" + i + ".00'/>\n");
+        }
+        out.write("</feed>\n");
+        out.close();
+        return bytes.toByteArray();
+    } // createDocument(int):byte[]
+
+} // class IdentityConstraintBenchmark
@@ -0,0 +1,143 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.xerces.benchmarks;
+
+import java.io.ByteArrayInputStream;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.xerces.parsers.CachingParserPool;
+import org.apache.xerces.parsers.ParserPool;
+import org.apache.xerces.parsers.SAXParser;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.xml.sax.Attributes;
+import org.xml.sax.InputSource;
+import org.xml.sax.helpers.DefaultHandler;
+
+/**
+ * Measures parsing small messages with SAX on four threads, when a
+ * parser is created for every message by a <code>CachingParserPool</code>
+ * (<code>create</code>) and when it is borrowed from and returned to a
+ * <code>ParserPool</code> shared by the threads (<code>pooled</code>).
+ * The <code>obtain</code> benchmark measures obtaining a parser alone:
+ * creating it, or borrowing it and returning it, which resets it.
+ *
+ * @version $Id$
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(4)
+public class ParserPoolBenchmark {
+
+    //
+    // Constants
+    //
+
+    /** The message parsed. */
+    private static final String MESSAGE =
+        "<?xml version='1.0' encoding='UTF-8'?>\n" +
+        "<order xmlns='urn:orders' id='o42'>" +
+        "<customer>Anna Schmidt</customer>" +
+        "<item sku='ABC-1234' quantity='2' price='9.99'/>" +
+        "<item sku='XYZ-0000' quantity='1' price='120.00'/>" +
+        "</order>";
+
+    //
+    // Data
+    //
+
+    /** How the parsers are obtained. */
+    @Param({"create", "pooled"})
+    public String pool;
+
+    private byte[] fBytes;
+
+    private CachingParserPool fPool;
+
+    //
+    // Setup
+    //
+
+    @Setup
+    public void setup() throws Exception {
+        fBytes = MESSAGE.getBytes("UTF-8");
+        fPool = pool.equals("pooled") ? new ParserPool() : new CachingParserPool(true);
+    } // setup()
+
+    //
+    // Benchmarks
+    //
+
+    @Benchmark
+    public int parse(ElementCounter counter) throws Exception {
+        SAXParser parser = (fPool instanceof ParserPool)
+            ? ((ParserPool) fPool).borrowSAXParser()
+            : fPool.createSAXParser();
+        parser.setContentHandler(counter);
+        counter.elements = 0;
+        parser.parse(new InputSource(new ByteArrayInputStream(fBytes)));
+        if (counter.elements != 4) {
+            throw new IllegalStateException("unexpected element count: " + counter.elements);
+        }
+        if (fPool instanceof ParserPool) {
+            ((ParserPool) fPool).returnParser(parser);
+        }
+        return counter.elements;
+    } // parse(ElementCounter):int
+
+    @Benchmark
+    public SAXParser obtain() throws Exception {
+        if (fPool instanceof ParserPool) {
+            SAXParser parser = ((ParserPool) fPool).borrowSAXParser();
+            ((ParserPool) fPool).returnParser(parser);
+            return parser;
+        }
+        return fPool.createSAXParser();
+    } // obtain():SAXParser
+
+    //
+    // Classes
+    //
+
+    /** Counts the elements of a message; one for each thread. */
+    @State(Scope.Thread)
+    public static class ElementCounter extends DefaultHandler {
+
+        int elements;
+
+        public void startElement(String uri, String localName, String qName,
+                Attributes attributes) {
+            ++elements;
+        }
+
+    } // class ElementCounter
+
+} // class ParserPoolBenchmark
@@ -0,0 +1,114 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.xerces.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.xerces.impl.xpath.regex.RegularExpression;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measures matching values against regular expressions in the XML Schema
+ * mode, as pattern facets do, when each expression is shared between
+ * all the threads. The <code>oneThread</code> and <code>fourThreads</code>
+ * benchmarks only differ by the number of threads matching.
+ *
+ * @version $Id$
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PatternFacetBenchmark {
+
+    //
+    // Constants
+    //
+
+    /** The patterns and a valid and an invalid value of each. */
+    private static final String[][] PATTERNS = {
+        { "[A-Z]{1,2}[0-9R][0-9A-Z]? [0-9][ABD-HJLNP-UW-Z]{2}", "SW1A 1AA", "SW1A 1CA" },
+        { "[0-9]{5}(-[0-9]{4})?", "12345-6789", "1234-56789" },
+        { "[A-Z]{3}-[0-9]{4}", "ABC-1234", "ABC-12345" },
+        { "[^@\\s]+@[^@\\s]+\\.[a-z]{2,}", "anna.schmidt@example.com", "anna.schmidt@example" },
+        { "[\\i-[:]][\\c-[:]]*", "order-item.1", "1order" },
+    };
+
+    //
+    // Data
+    //
+
+    private RegularExpression[] fExpressions;
+
+    //
+    // Setup
+    //
+
+    @Setup
+    public void setup() throws Exception {
+        fExpressions = new RegularExpression[PATTERNS.length];
+        for (int i = 0; i < PATTERNS.length; ++i) {
+            fExpressions[i] = new RegularExpression(PATTERNS[i][0], "X");
+            // fail early if a pattern doesn't do what the benchmark expects
+            if (!fExpressions[i].matches(PATTERNS[i][1]) || fExpressions[i].matches(PATTERNS[i][2])) {
+                throw new IllegalStateException("wrong result for " + PATTERNS[i][0]);
+            }
+        }
+    } // setup()
+
+    //
+    // Benchmarks
+    //
+
+    @Benchmark
+    @Threads(1)
+    public void oneThread(Blackhole blackhole) {
+        match(blackhole);
+    } // oneThread(Blackhole)
+
+    @Benchmark
+    @Threads(4)
+    public void fourThreads(Blackhole blackhole) {
+        match(blackhole);
+    } // fourThreads(Blackhole)
+
+    //
+    // Private methods
+    //
+
+    /** Matches the valid and the invalid value of each pattern. */
+    private void match(Blackhole blackhole) {
+        for (int i = 0; i < fExpressions.length; ++i) {
+            blackhole.consume(fExpressions[i].matches(PATTERNS[i][1]));
+            blackhole.consume(fExpressions[i].matches(PATTERNS[i][2]));
+        }
+    } // match(Blackhole)
+
+} // class PatternFacetBenchmark
@@ -0,0 +1,138 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.xerces.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.xerces.impl.xpath.regex.RegularExpression;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measures matching with the schema regular expression engine,
+ * <code>RegularExpression</code>, compiled with the <code>X</code>
+ * option as it is for the pattern facet. Each pattern is matched
+ * against a set of values which match and a set which don't; the
+ * latter are often the more expensive because every alternative
+ * has to be tried.
+ *
+ * @version $Id$
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RegularExpressionBenchmark {
+
+    //
+    // Constants
+    //
+
+    /** The patterns with values which match and values which don't. */
+    private static final String[][][] PATTERNS = {
+        // sku: fixed length character classes
+        { { "[A-Z]{3}-\\d{4}" },
+          { "ABC-1234", "XYZ-0000", "QPT-9260" },
+          { "ABC_1234", "abc-1234", "ABCD-123" } },
+        // email: unbounded repetitions of negated classes
+        { { "[^@\\s]+@[^@\\s]+\\.[a-z]{2,}" },
+          { "anna.schmidt@example.com", "j.smith@mail.example.co.uk", "x@y.io" },
+          { "anna.schmidt@example", "no at sign here", "two@@example.com" } },
+        // alternation
+        { { "(pending|shipped|delivered|cancelled)" },
+          { "pending", "delivered", "cancelled" },
+          { "returned", "shipping", "Pending" } },
+        // qualified names: character class subtraction
+        { { "[\\i-[:]][\\c-[:]]*(:[\\i-[:]][\\c-[:]]*)?" },
+          { "xs:complexType", "purchaseOrder", "a.very-long_element.name:with.a.local-part" },
+          { "1abc", "a b", "a:b:c" } },
+    };
+
+    //
+    // Data
+    //
+
+    /** The pattern to match. */
+    @Param({"sku", "email", "alternation", "qname"})
+    public String pattern;
+
+    private RegularExpression fRegex;
+
+    private String[] fMatching;
+
+    private String[] fNonMatching;
+
+    //
+    // Setup
+    //
+
+    @Setup
+    public void setup() {
+        String[] names = { "sku", "email", "alternation", "qname" };
+        for (int i = 0; i < names.length; ++i) {
+            if (names[i].equals(pattern)) {
+                fRegex = new RegularExpression(PATTERNS[i][0][0], "X");
+                fMatching = PATTERNS[i][1];
+                fNonMatching = PATTERNS[i][2];
+                for (int j = 0; j < fMatching.length; ++j) {
+                    if (!fRegex.matches(fMatching[j]) || fRegex.matches(fNonMatching[j])) {
+                        throw new IllegalStateException("Unexpected result for " + pattern);
+                    }
+                }
+                return;
+            }
+        }
+        throw new IllegalArgumentException(pattern);
+    } // setup()
+
+    //
+    // Benchmarks
+    //
+
+    @Benchmark
+    public void match(Blackhole blackhole) {
+        for (int i = 0; i < fMatching.length; ++i) {
+            blackhole.consume(fRegex.matches(fMatching[i]));
+        }
+    } // match(Blackhole)
+
+    @Benchmark
+    public void mismatch(Blackhole blackhole) {
+        for (int i = 0; i < fNonMatching.length; ++i) {
+            blackhole.consume(fRegex.matches(fNonMatching[i]));
+        }
+    } // mismatch(Blackhole)
+
+    @Benchmark
+    public RegularExpression compile() {
+        return new RegularExpression(PATTERNS[0][0][0], "X");
+    } // compile():RegularExpression
+
+} // class RegularExpressionBenchmark
@@ -0,0 +1,119 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.xerces.benchmarks;
+
+import java.io.ByteArrayInputStream;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.xerces.parsers.SAXParser;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.xml.sax.Attributes;
+import org.xml.sax.InputSource;
+import org.xml.sax.helpers.DefaultHandler;
+
+/**
+ * Measures the throughput of the namespace aware document scanner
+ * (<code>XMLNSDocumentScannerImpl</code>) through SAX, without
+ * validation. The content handler touches every event so that none
+ * of the scanning work can be optimized away.
+ *
+ * @version $Id$
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ScannerBenchmark {
+
+    //
+    // Data
+    //
+
+    /** The document to parse. */
+    @Param({"small", "medium", "large"})
+    public String document;
+
+    private byte[] fBytes;
+
+    private SAXParser fParser;
+
+    private CountingHandler fHandler;
+
+    //
+    // Setup
+    //
+
+    @Setup
+    public void setup() throws Exception {
+        fBytes = Corpus.getDocument(document);
+        fParser = new SAXParser();
+        fParser.setFeature("http://xml.org/sax/features/namespaces", true);
+        fParser.setFeature("http://xml.org/sax/features/validation", false);
+        fHandler = new CountingHandler();
+        fParser.setContentHandler(fHandler);
+    } // setup()
+
+    //
+    // Benchmarks
+    //
+
+    @Benchmark
+    public void parse(Blackhole blackhole) throws Exception {
+        fHandler.reset();
+        fParser.parse(new InputSource(new ByteArrayInputStream(fBytes)));
+        blackhole.consume(fHandler.count);
+    } // parse(Blackhole)
+
+    //
+    // Classes
+    //
+
+    /** Counts the elements, attributes and characters reported. */
+    static final class CountingHandler extends DefaultHandler {
+
+        long count;
+
+        void reset() {
+            count = 0;
+        }
+
+        public void startElement(String uri, String localName, String qName,
+                Attributes attributes) {
+            count += localName.length() + attributes.getLength();
+        }
+
+        public void characters(char[] ch, int start, int length) {
+            count += length;
+        }
+
+    } // class CountingHandler
+
+} // class ScannerBenchmark
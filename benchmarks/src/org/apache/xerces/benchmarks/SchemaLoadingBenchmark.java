@@ -0,0 +1,153 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.xerces.benchmarks;
+
+import java.util.Hashtable;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.xerces.impl.Constants;
+import org.apache.xerces.impl.xs.XMLSchemaLoader;
+import org.apache.xerces.xni.grammars.XSGrammar;
+import org.apache.xerces.xni.parser.XMLInputSource;
+import org.apache.xerces.xs.XSConstants;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the loading of a schema made of many documents served over
+ * HTTP with a fixed latency, as when the documents of a schema are
+ * published on a remote server. The root document includes a number of
+ * documents, each of which includes another one, and the schema is
+ * loaded with the documents fetched as needed (no threads) and with the
+ * documents fetched ahead by the given number of threads.
+ *
+ * @version $Id$
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SchemaLoadingBenchmark {
+
+    //
+    // Constants
+    //
+
+    /** Property identifier: schema loading threads. */
+    private static final String SCHEMA_LOADING_THREADS =
+        Constants.XERCES_PROPERTY_PREFIX + Constants.SCHEMA_LOADING_THREADS_PROPERTY;
+
+    //
+    // Data
+    //
+
+    /** The number of threads fetching the documents ahead. */
+    @Param({"0", "8"})
+    public int threads;
+
+    /** The number of documents included by the root document. */
+    @Param({"40"})
+    public int documents;
+
+    /** The latency of each request, in milliseconds. */
+    @Param({"20"})
+    public int latency;
+
+    private DocumentServer fServer;
+
+    private String fRoot;
+
+    //
+    // Setup
+    //
+
+    @Setup
+    public void setup() throws Exception {
+        fServer = new DocumentServer(createDocuments(documents), latency);
+        fRoot = fServer.getURI("/root.xsd");
+        // fail early if the schema isn't loaded whole
+        int elements = load().toXSModel().getComponents(XSConstants.ELEMENT_DECLARATION).getLength();
+        if (elements != documents) {
+            throw new IllegalStateException(elements + " element declarations instead of " + documents);
+        }
+    } // setup()
+
+    @TearDown
+    public void tearDown() throws Exception {
+        fServer.close();
+    } // tearDown()
+
+    //
+    // Benchmarks
+    //
+
+    @Benchmark
+    public XSGrammar load() throws Exception {
+        XMLSchemaLoader loader = new XMLSchemaLoader();
+        if (threads > 0) {
+            loader.setProperty(SCHEMA_LOADING_THREADS, new Integer(threads));
+        }
+        return (XSGrammar) loader.loadGrammar(new XMLInputSource(null, fRoot, null));
+    } // load():XSGrammar
+
+    //
+    // Private static methods
+    //
+
+    /** Creates the root document and the documents it includes, by path. */
+    private static Hashtable<String, String> createDocuments(int documents) {
+        Hashtable<String, String> paths = new Hashtable<String, String>();
+        String header = "<xs:schema xmlns:xs='http://www.w3.org/2001/XMLSchema'" +
+            " xmlns:lib='urn:library' targetNamespace='urn:library'" +
+            " elementFormDefault='qualified'>\n";
+        StringBuffer root = new StringBuffer(header);
+        for (int i = 0; i < documents; ++i) {
+            root.append("<xs:include schemaLocation='part").append(i).append(".xsd'/>\n");
+            StringBuffer part = new StringBuffer(header);
+            part.append("<xs:include schemaLocation='leaf").append(i).append(".xsd'/>\n");
+            part.append("<xs:complexType name='item").append(i).append("'><xs:sequence>\n");
+            part.append(" <xs:element name='code' type='lib:code").append(i).append("'/>\n");
+            part.append(" <xs:element name='text' type='xs:string' minOccurs='0'/>\n");
+            part.append("</xs:sequence><xs:attribute name='id' type='xs:ID'/></xs:complexType>\n");
+            part.append("<xs:element name='item").append(i).append("' type='lib:item").append(i).append("'/>\n");
+            part.append("</xs:schema>\n");
+            paths.put("/part" + i + ".xsd", part.toString());
+            StringBuffer leaf = new StringBuffer(header);
+            leaf.append("<xs:simpleType name='code").append(i).append("'>");
+            leaf.append("<xs:restriction base='xs:string'><xs:pattern value='[A-Z]{3}-[0-9]{4}'/>");
+            leaf.append("</xs:restriction></xs:simpleType>\n");
+            leaf.append("</xs:schema>\n");
+            paths.put("/leaf" + i + ".xsd", leaf.toString());
+        }
+        root.append("</xs:schema>\n");
+        paths.put("/root.xsd", root.toString());
+        return paths;
+    } // createDocuments(int):Hashtable
+
+} // class SchemaLoadingBenchmark
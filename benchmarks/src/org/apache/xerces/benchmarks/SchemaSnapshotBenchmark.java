@@ -0,0 +1,162 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.xerces.benchmarks;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.StringReader;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.xerces.impl.Constants;
+import org.apache.xerces.impl.xs.SchemaGrammarSnapshot;
+import org.apache.xerces.impl.xs.XMLSchemaLoader;
+import org.apache.xerces.impl.xs.util.XSGrammarPool;
+import org.apache.xerces.xni.parser.XMLInputSource;
+import org.apache.xerces.xs.XSConstants;
+import org.apache.xerces.xs.XSModel;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the startup of an application which loads a large schema:
+ * the schema is compiled from its source (<code>compile</code>) and its
+ * grammar is read from a snapshot written by
+ * <code>SchemaGrammarSnapshot</code> (<code>importSnapshot</code>).
+ *
+ * @version $Id$
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SchemaSnapshotBenchmark {
+
+    //
+    // Constants
+    //
+
+    /** Property identifier: grammar pool. */
+    private static final String XMLGRAMMAR_POOL =
+        Constants.XERCES_PROPERTY_PREFIX + Constants.XMLGRAMMAR_POOL_PROPERTY;
+
+    //
+    // Data
+    //
+
+    /** The number of complex types of the schema. */
+    @Param({"2000"})
+    public int types;
+
+    private String fSchema;
+
+    private byte[] fSnapshot;
+
+    //
+    // Setup
+    //
+
+    @Setup
+    public void setup() throws Exception {
+        fSchema = createSchema(types);
+        XSGrammarPool pool = compile();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        SchemaGrammarSnapshot.exportGrammars(pool, out);
+        fSnapshot = out.toByteArray();
+        // fail early if the snapshot doesn't hold the whole schema
+        int components = count(pool);
+        int imported = count(importSnapshot());
+        if (imported != components) {
+            throw new IllegalStateException("snapshot holds " + imported
+                    + " components instead of " + components);
+        }
+    } // setup()
+
+    //
+    // Benchmarks
+    //
+
+    @Benchmark
+    public XSGrammarPool compile() throws Exception {
+        XSGrammarPool pool = new XSGrammarPool();
+        XMLSchemaLoader loader = new XMLSchemaLoader();
+        loader.setProperty(XMLGRAMMAR_POOL, pool);
+        loader.loadGrammar(new XMLInputSource(null, "urn:types.xsd", null, new StringReader(fSchema), null));
+        return pool;
+    } // compile():XSGrammarPool
+
+    @Benchmark
+    public XSGrammarPool importSnapshot() throws Exception {
+        XSGrammarPool pool = new XSGrammarPool();
+        SchemaGrammarSnapshot.importGrammars(new ByteArrayInputStream(fSnapshot), pool);
+        return pool;
+    } // importSnapshot():XSGrammarPool
+
+    //
+    // Private static methods
+    //
+
+    /**
+     * Creates a schema with the given number of complex types, each with
+     * its own restricted simple types and a global element.
+     */
+    private static String createSchema(int types) {
+        StringBuffer str = new StringBuffer();
+        str.append("<xs:schema xmlns:xs='http://www.w3.org/2001/XMLSchema'");
+        str.append(" xmlns:t='urn:types' targetNamespace='urn:types' elementFormDefault='qualified'>\n");
+        for (int i = 0; i < types; ++i) {
+            str.append("<xs:simpleType name='code").append(i).append("'><xs:restriction base='xs:string'>");
+            str.append("<xs:pattern value='[A-Z]{3}-[0-9]{").append(1 + i % 8).append("}'/>");
+            str.append("</xs:restriction></xs:simpleType>\n");
+            str.append("<xs:simpleType name='status").append(i).append("'><xs:restriction base='xs:token'>");
+            str.append("<xs:enumeration value='new'/><xs:enumeration value='open'/>");
+            str.append("<xs:enumeration value='closed'/></xs:restriction></xs:simpleType>\n");
+            str.append("<xs:complexType name='record").append(i).append("'><xs:sequence>");
+            str.append("<xs:element name='code' type='t:code").append(i).append("'/>");
+            str.append("<xs:element name='status' type='t:status").append(i).append("' minOccurs='0'/>");
+            str.append("<xs:element name='amount' minOccurs='0' maxOccurs='10'><xs:simpleType>");
+            str.append("<xs:restriction base='xs:decimal'><xs:minInclusive value='0'/>");
+            str.append("<xs:fractionDigits value='2'/></xs:restriction></xs:simpleType></xs:element>");
+            if (i > 0) {
+                str.append("<xs:element ref='t:record").append(i - 1).append("' minOccurs='0'/>");
+            }
+            str.append("</xs:sequence><xs:attribute name='id' type='xs:ID' use='required'/>");
+            str.append("<xs:attribute name='date' type='xs:date'/></xs:complexType>\n");
+            str.append("<xs:element name='record").append(i).append("' type='t:record").append(i).append("'/>\n");
+        }
+        str.append("</xs:schema>\n");
+        return str.toString();
+    } // createSchema(int):String
+
+    /** Returns the number of type definitions and element declarations. */
+    private static int count(XSGrammarPool pool) {
+        XSModel model = pool.toXSModel();
+        return model.getComponents(XSConstants.TYPE_DEFINITION).getLength()
+            + model.getComponents(XSConstants.ELEMENT_DECLARATION).getLength();
+    } // count(XSGrammarPool):int
+
+} // class SchemaSnapshotBenchmark
@@ -0,0 +1,131 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.xerces.benchmarks;
+
+import java.io.ByteArrayInputStream;
+import java.util.concurrent.TimeUnit;
+
+import javax.xml.XMLConstants;
+import javax.xml.transform.stream.StreamSource;
+import javax.xml.validation.Schema;
+import javax.xml.validation.Validator;
+
+import org.apache.xerces.jaxp.validation.XMLSchemaFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.xml.sax.ErrorHandler;
+import org.xml.sax.SAXParseException;
+
+/**
+ * Measures <code>XMLSchemaValidator</code>: the documents of the corpus
+ * are validated through the JAXP validation API against a schema which
+ * is compiled once, during setup. A second benchmark includes the
+ * compilation of the schema in each operation.
+ *
+ * @version $Id$
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SchemaValidationBenchmark {
+
+    //
+    // Data
+    //
+
+    /** The document to validate. */
+    @Param({"small", "medium", "large"})
+    public String document;
+
+    private byte[] fBytes;
+
+    private String fSystemId;
+
+    private XMLSchemaFactory fFactory;
+
+    private Validator fValidator;
+
+    //
+    // Setup
+    //
+
+    @Setup
+    public void setup() throws Exception {
+        fBytes = Corpus.getDocument(document);
+        fSystemId = Corpus.getSystemId(document);
+        fFactory = new XMLSchemaFactory();
+        fFactory.setErrorHandler(FailingErrorHandler.INSTANCE);
+        Schema schema = fFactory.newSchema(new StreamSource(Corpus.getSchemaSystemId()));
+        fValidator = schema.newValidator();
+        fValidator.setErrorHandler(FailingErrorHandler.INSTANCE);
+    } // setup()
+
+    //
+    // Benchmarks
+    //
+
+    @Benchmark
+    public void validate() throws Exception {
+        fValidator.validate(new StreamSource(new ByteArrayInputStream(fBytes), fSystemId));
+    } // validate()
+
+    @Benchmark
+    public void compileAndValidate() throws Exception {
+        Schema schema = fFactory.newSchema(new StreamSource(Corpus.getSchemaSystemId()));
+        Validator validator = schema.newValidator();
+        validator.setErrorHandler(FailingErrorHandler.INSTANCE);
+        validator.validate(new StreamSource(new ByteArrayInputStream(fBytes), fSystemId));
+    } // compileAndValidate()
+
+    //
+    // Classes
+    //
+
+    /**
+     * Fails the benchmark on any error; the corpus is valid so an error
+     * means that the validator, rather than the document, is broken.
+     */
+    static final class FailingErrorHandler implements ErrorHandler {
+
+        static final FailingErrorHandler INSTANCE = new FailingErrorHandler();
+
+        public void warning(SAXParseException e) {}
+
+        public void error(SAXParseException e) throws SAXParseException {
+            throw e;
+        }
+
+        public void fatalError(SAXParseException e) throws SAXParseException {
+            throw e;
+        }
+
+    } // class FailingErrorHandler
+
+} // class SchemaValidationBenchmark
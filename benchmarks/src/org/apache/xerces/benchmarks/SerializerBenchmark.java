@@ -0,0 +1,128 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.xerces.benchmarks;
+
+import java.io.ByteArrayInputStream;
+import java.io.OutputStream;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.xerces.dom.DOMOutputImpl;
+import org.apache.xerces.parsers.DOMParser;
+import org.apache.xml.serialize.DOMSerializerImpl;
+import org.apache.xml.serialize.OutputFormat;
+import org.apache.xml.serialize.XMLSerializer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.w3c.dom.Document;
+import org.w3c.dom.ls.LSOutput;
+import org.xml.sax.InputSource;
+
+/**
+ * Measures serializing a fully expanded DOM with the deprecated
+ * <code>XMLSerializer</code> and with the DOM Level 3
+ * <code>LSSerializer</code> implementation, <code>DOMSerializerImpl</code>.
+ * The output is written to a stream which only counts the bytes.
+ *
+ * @version $Id$
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SerializerBenchmark {
+
+    //
+    // Data
+    //
+
+    /** The document to serialize. */
+    @Param({"small", "medium", "large"})
+    public String document;
+
+    private Document fDocument;
+
+    private DOMSerializerImpl fLSSerializer;
+
+    //
+    // Setup
+    //
+
+    @Setup
+    public void setup() throws Exception {
+        DOMParser parser = new DOMParser();
+        parser.setFeature("http://apache.org/xml/features/dom/defer-node-expansion", false);
+        parser.parse(new InputSource(new ByteArrayInputStream(Corpus.getDocument(document))));
+        fDocument = parser.getDocument();
+        fLSSerializer = new DOMSerializerImpl();
+    } // setup()
+
+    //
+    // Benchmarks
+    //
+
+    @Benchmark
+    public long xmlSerializer() throws Exception {
+        CountingOutputStream out = new CountingOutputStream();
+        OutputFormat format = new OutputFormat(fDocument, "UTF-8", false);
+        XMLSerializer serializer = new XMLSerializer(out, format);
+        serializer.setNamespaces(true);
+        serializer.serialize(fDocument);
+        return out.count;
+    } // xmlSerializer():long
+
+    @Benchmark
+    public long lsSerializer() throws Exception {
+        CountingOutputStream out = new CountingOutputStream();
+        LSOutput output = new DOMOutputImpl();
+        output.setByteStream(out);
+        output.setEncoding("UTF-8");
+        fLSSerializer.write(fDocument, output);
+        return out.count;
+    } // lsSerializer():long
+
+    //
+    // Classes
+    //
+
+    /** An output stream which discards its output but counts the bytes. */
+    static final class CountingOutputStream extends OutputStream {
+
+        long count;
+
+        public void write(int b) {
+            ++count;
+        }
+
+        public void write(byte[] b, int off, int len) {
+            count += len;
+        }
+
+    } // class CountingOutputStream
+
+} // class SerializerBenchmark
@@ -0,0 +1,130 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.xerces.benchmarks;
+
+import java.io.StringReader;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.xerces.impl.Constants;
+import org.apache.xerces.impl.dv.ValidatedInfo;
+import org.apache.xerces.impl.dv.XSSimpleType;
+import org.apache.xerces.impl.dv.xs.TypeValidatorHelper;
+import org.apache.xerces.impl.validation.ValidationState;
+import org.apache.xerces.impl.xs.XMLSchemaLoader;
+import org.apache.xerces.xni.grammars.XSGrammar;
+import org.apache.xerces.xni.parser.XMLInputSource;
+import org.apache.xerces.xs.XSModel;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the validation of attribute values against simple types with
+ * no facets, with bounds, with length facets and patterns, and with
+ * digits facets, as the schema validator validates them: each value is
+ * normalized, converted to its actual value and checked against the
+ * facets of its type.
+ *
+ * @version $Id$
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SimpleTypeValidationBenchmark {
+
+    //
+    // Constants
+    //
+
+    /** The simple types of the schema. */
+    private static final String SCHEMA =
+        "<xs:schema xmlns:xs='http://www.w3.org/2001/XMLSchema'>\n" +
+        "<xs:simpleType name='plain'><xs:restriction base='xs:string'/></xs:simpleType>\n" +
+        "<xs:simpleType name='quantity'><xs:restriction base='xs:int'>" +
+        "<xs:minInclusive value='1'/><xs:maxExclusive value='10000'/></xs:restriction></xs:simpleType>\n" +
+        "<xs:simpleType name='code'><xs:restriction base='xs:token'><xs:minLength value='4'/>" +
+        "<xs:maxLength value='12'/><xs:pattern value='[A-Z]{3}-[0-9]+'/></xs:restriction></xs:simpleType>\n" +
+        "<xs:simpleType name='price'><xs:restriction base='xs:decimal'><xs:totalDigits value='9'/>" +
+        "<xs:fractionDigits value='2'/><xs:minInclusive value='0'/></xs:restriction></xs:simpleType>\n" +
+        "</xs:schema>\n";
+
+    /** The types and a valid value of each. */
+    private static final String[][] VALUES = {
+        { "plain", "order-4711" },
+        { "quantity", "250" },
+        { "code", " ABC-1234 " },
+        { "price", "1299.95" },
+    };
+
+    //
+    // Data
+    //
+
+    /** The name of the simple type. */
+    @Param({"plain", "quantity", "code", "price"})
+    public String type;
+
+    private XSSimpleType fType;
+
+    private String fValue;
+
+    private ValidationState fContext;
+
+    private ValidatedInfo fInfo;
+
+    //
+    // Setup
+    //
+
+    @Setup
+    public void setup() throws Exception {
+        XMLSchemaLoader loader = new XMLSchemaLoader();
+        XSModel model = ((XSGrammar) loader.loadGrammar(new XMLInputSource(null, "types.xsd", null,
+                new StringReader(SCHEMA), null))).toXSModel();
+        fType = (XSSimpleType) model.getTypeDefinition(type, null);
+        for (int i = 0; i < VALUES.length; ++i) {
+            if (VALUES[i][0].equals(type)) {
+                fValue = VALUES[i][1];
+            }
+        }
+        fContext = new ValidationState();
+        fContext.setExtraChecking(false);
+        fContext.setTypeValidatorHelper(TypeValidatorHelper.getInstance(Constants.SCHEMA_VERSION_1_0));
+        fInfo = new ValidatedInfo();
+    } // setup()
+
+    //
+    // Benchmarks
+    //
+
+    @Benchmark
+    public Object validate() throws Exception {
+        return fType.validate(fValue, fContext, fInfo);
+    } // validate():Object
+
+} // class SimpleTypeValidationBenchmark
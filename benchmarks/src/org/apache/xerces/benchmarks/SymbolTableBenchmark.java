@@ -0,0 +1,162 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.xerces.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.xerces.util.ConcurrentSymbolTable;
+import org.apache.xerces.util.ShadowedSymbolTable;
+import org.apache.xerces.util.SymbolTable;
+import org.apache.xerces.util.SynchronizedSymbolTable;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures <code>addSymbol(char[],int,int)</code> when a single symbol
+ * table is shared by 32 threads, comparing the synchronized, shadowed
+ * (over a synchronized table) and concurrent symbol tables.
+ * <p>
+ * The workload mimics a scanner: a small vocabulary of names which is
+ * looked up over and over, with an occasional new symbol.
+ *
+ * @version $Id$
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(32)
+public class SymbolTableBenchmark {
+
+    //
+    // Constants
+    //
+
+    /** Number of distinct names in the vocabulary. */
+    private static final int VOCABULARY = 512;
+
+    /** One in this many lookups is for a symbol not seen before. */
+    private static final int NEW_SYMBOL_RATE = 1024;
+
+    //
+    // Data
+    //
+
+    /** The symbol table shared by the threads. */
+    @Param({"synchronized", "shadowed", "concurrent"})
+    public String table;
+
+    private SymbolTable fTable;
+
+    private char[][] fNames;
+
+    private String[] fSymbols;
+
+    //
+    // Setup
+    //
+
+    @Setup
+    public void setup() throws Exception {
+        fTable = table.equals("concurrent") ? (SymbolTable) new ConcurrentSymbolTable()
+            : new SynchronizedSymbolTable();
+        fNames = new char[VOCABULARY][];
+        fSymbols = new String[VOCABULARY];
+        for (int i = 0; i < VOCABULARY; ++i) {
+            fNames[i] = ("ns" + (i % 7) + ":element" + i).toCharArray();
+            fSymbols[i] = new String(fNames[i]).intern();
+        }
+    } // setup()
+
+    //
+    // Benchmarks
+    //
+
+    @Benchmark
+    @OperationsPerInvocation(VOCABULARY)
+    public void addSymbol(Lookup lookup) {
+        for (int i = 0; i < fNames.length; ++i) {
+            char[] name = fNames[i];
+            // symbols are interned, so every thread must get the very same
+            // reference back for each name
+            if (lookup.fTable.addSymbol(name, 0, name.length) != fSymbols[i]) {
+                throw new IllegalStateException("symbol not unique: " + fSymbols[i]);
+            }
+            if (++lookup.fCount % NEW_SYMBOL_RATE == 0) {
+                lookup.addNewSymbol();
+            }
+        }
+    } // addSymbol(Lookup)
+
+    //
+    // Classes
+    //
+
+    /** The table and the new symbols of a thread. */
+    @State(Scope.Thread)
+    public static class Lookup {
+
+        /** The number of threads which have set up their lookup. */
+        private static int fThreads;
+
+        SymbolTable fTable;
+
+        long fCount;
+
+        private char[] fBuffer;
+
+        private int fPrefixLength;
+
+        private int fFresh;
+
+        @Setup
+        public void setup(SymbolTableBenchmark benchmark) {
+            fTable = benchmark.table.equals("shadowed")
+                ? new ShadowedSymbolTable(benchmark.fTable) : benchmark.fTable;
+            char[] prefix = ("t" + nextThread() + "-").toCharArray();
+            fPrefixLength = prefix.length;
+            fBuffer = new char[fPrefixLength + 10];
+            System.arraycopy(prefix, 0, fBuffer, 0, fPrefixLength);
+        } // setup(SymbolTableBenchmark)
+
+        /** Adds a symbol which no thread has added before. */
+        void addNewSymbol() {
+            String digits = Integer.toString(fFresh++);
+            digits.getChars(0, digits.length(), fBuffer, fPrefixLength);
+            fTable.addSymbol(fBuffer, 0, fPrefixLength + digits.length());
+        } // addNewSymbol()
+
+        private static synchronized int nextThread() {
+            return fThreads++;
+        } // nextThread():int
+
+    } // class Lookup
+
+} // class SymbolTableBenchmark
@@ -0,0 +1,135 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.xerces.benchmarks;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.xerces.impl.io.UTF8Reader;
+import org.apache.xerces.impl.msg.XMLMessageFormatter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures decoding with <code>UTF8Reader</code> over generated corpora:
+ * ASCII markup, ASCII markup with the occasional accented character,
+ * Latin text with frequent accented characters and CJK text. The JDK's
+ * UTF-8 <code>InputStreamReader</code> is measured as a reference.
+ *
+ * @version $Id$
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UTF8ReaderBenchmark {
+
+    //
+    // Constants
+    //
+
+    /** The corpora and the sample repeated in each. */
+    private static final String[][] CORPORA = {
+        { "ascii", "<item id=\"42\" type=\"plain\"><name>Widget</name><price>9.99</price></item>\n" },
+        { "mostly-ascii", "<item id=\"42\" type=\"plain\"><name>Caf\u00e9 Widget</name><price>9.99</price></item>\n" },
+        { "mixed", "<p>Caf\u00e9 cr\u00e8me, na\u00efve fa\u00e7ade \u2013 \u00fcber Stra\u00dfe</p>\n" },
+        { "cjk", "<p>\u65e5\u672c\u8a9e\u306e\u6587\u66f8\u3092\u89e3\u6790\u3057\u307e\u3059\u3002\u4e2d\u6587\u6587\u672c\u3002</p>\n" },
+    };
+
+    //
+    // Data
+    //
+
+    /** The corpus to decode. */
+    @Param({"ascii", "mostly-ascii", "mixed", "cjk"})
+    public String corpus;
+
+    /** The reader decoding the corpus. */
+    @Param({"UTF8Reader", "InputStreamReader"})
+    public String reader;
+
+    /** The size of the corpus, in kilobytes. */
+    @Param({"1024"})
+    public int size;
+
+    private byte[] fBytes;
+
+    private char[] fChars;
+
+    private XMLMessageFormatter fFormatter;
+
+    //
+    // Setup
+    //
+
+    @Setup
+    public void setup() throws Exception {
+        for (int i = 0; i < CORPORA.length; ++i) {
+            if (CORPORA[i][0].equals(corpus)) {
+                fBytes = createCorpus(CORPORA[i][1], size * 1024);
+            }
+        }
+        fChars = new char[UTF8Reader.DEFAULT_BUFFER_SIZE];
+        fFormatter = new XMLMessageFormatter();
+    } // setup()
+
+    //
+    // Benchmarks
+    //
+
+    @Benchmark
+    public long decode() throws Exception {
+        ByteArrayInputStream stream = new ByteArrayInputStream(fBytes);
+        Reader in = reader.equals("UTF8Reader")
+            ? (Reader) new UTF8Reader(stream, fFormatter, Locale.getDefault())
+            : new InputStreamReader(stream, "UTF-8");
+        long checksum = 0;
+        int count;
+        while ((count = in.read(fChars, 0, fChars.length)) != -1) {
+            checksum += fChars[count - 1];
+        }
+        return checksum;
+    } // decode():long
+
+    //
+    // Private static methods
+    //
+
+    /** Repeats the sample until the corpus is at least the given size. */
+    private static byte[] createCorpus(String sample, int size) throws Exception {
+        StringBuffer str = new StringBuffer(size);
+        while (str.length() < size) {
+            str.append(sample);
+        }
+        return str.toString().getBytes("UTF-8");
+    } // createCorpus(String,int):byte[]
+
+} // class UTF8ReaderBenchmark
@@ -0,0 +1,193 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.xerces.benchmarks;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.xerces.impl.Constants;
+import org.apache.xerces.parsers.SAXParser;
+import org.apache.xerces.xinclude.XIncludeHandler;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.xml.sax.helpers.DefaultHandler;
+
+/**
+ * Measures the parsing of documents which include the same boilerplate:
+ * each document includes a legal notice and a glossary as XML and a
+ * license as text, several times. The documents are parsed one after the
+ * other with a parser whose included resources are parsed each time, and
+ * with a parser which replays them from its cache of parsed includes.
+ *
+ * @version $Id$
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class XIncludeCacheBenchmark {
+
+    //
+    // Constants
+    //
+
+    /** Feature identifier: XInclude processing. */
+    private static final String XINCLUDE =
+        Constants.XERCES_FEATURE_PREFIX + Constants.XINCLUDE_FEATURE;
+
+    /** Property identifier: XInclude cache size. */
+    private static final String XINCLUDE_CACHE_SIZE =
+        Constants.XERCES_PROPERTY_PREFIX + Constants.XINCLUDE_CACHE_SIZE_PROPERTY;
+
+    /** Property identifier: XInclude handler. */
+    private static final String XINCLUDE_HANDLER =
+        Constants.XERCES_PROPERTY_PREFIX + Constants.XINCLUDE_HANDLER_PROPERTY;
+
+    /** The size of the cache of parsed includes. */
+    private static final int CACHE_SIZE = 4 << 20;
+
+    //
+    // Data
+    //
+
+    /** Whether the included resources are replayed from the cache. */
+    @Param({"false", "true"})
+    public boolean cached;
+
+    /** The number of documents parsed in turn. */
+    @Param({"20"})
+    public int documents;
+
+    private File fDirectory;
+
+    private String[] fURIs;
+
+    private SAXParser fParser;
+
+    private int fNext;
+
+    //
+    // Setup
+    //
+
+    @Setup
+    public void setup() throws Exception {
+        fDirectory = createDocuments(documents);
+        fURIs = new String[documents];
+        for (int i = 0; i < documents; ++i) {
+            fURIs[i] = new File(fDirectory, "report" + i + ".xml").toURI().toString();
+        }
+        fParser = new SAXParser();
+        fParser.setFeature(XINCLUDE, true);
+        if (cached) {
+            fParser.setProperty(XINCLUDE_CACHE_SIZE, new Integer(CACHE_SIZE));
+        }
+        fParser.setContentHandler(new DefaultHandler());
+        // fail early if the includes aren't replayed
+        parse();
+        parse();
+        XIncludeHandler handler = (XIncludeHandler) fParser.getProperty(XINCLUDE_HANDLER);
+        if (cached && handler.getIncludeCacheHitCount() == 0) {
+            throw new IllegalStateException("No include was replayed from the cache");
+        }
+    } // setup()
+
+    @TearDown
+    public void tearDown() {
+        File[] files = fDirectory.listFiles();
+        for (int i = 0; i < files.length; ++i) {
+            files[i].delete();
+        }
+        fDirectory.delete();
+    } // tearDown()
+
+    //
+    // Benchmarks
+    //
+
+    @Benchmark
+    public void parse() throws Exception {
+        fParser.parse(fURIs[fNext]);
+        fNext = (fNext + 1) % fURIs.length;
+    } // parse()
+
+    //
+    // Private static methods
+    //
+
+    /** Creates the documents and the boilerplate they include in a temporary directory. */
+    private static File createDocuments(int documents) throws Exception {
+        File dir = File.createTempFile("xinclude", "");
+        dir.delete();
+        dir.mkdir();
+        String ns = " xmlns:xi='http://www.w3.org/2001/XInclude'";
+        for (int i = 0; i < documents; ++i) {
+            StringBuffer doc = new StringBuffer("<report").append(ns).append(" n='").append(i).append("'>\n");
+            for (int j = 0; j < 5; ++j) {
+                doc.append("<chapter><title>Chapter ").append(j).append("</title>\n");
+                doc.append("<para>The findings of chapter ").append(j).append(".</para>\n");
+                doc.append("<xi:include href='legal.xml'/>\n");
+                doc.append("<license><xi:include href='license.txt' parse='text'/></license>\n");
+                doc.append("</chapter>\n");
+            }
+            doc.append("<xi:include href='glossary.xml'/>\n</report>\n");
+            write(new File(dir, "report" + i + ".xml"), doc.toString());
+        }
+        StringBuffer legal = new StringBuffer("<legal xmlns='urn:legal' xml:lang='en'>\n");
+        for (int j = 0; j < 30; ++j) {
+            legal.append("<clause id='c").append(j).append("'>Clause ").append(j)
+                .append(" of the terms &amp; conditions which apply to this report.</clause>\n");
+        }
+        legal.append("</legal>\n");
+        write(new File(dir, "legal.xml"), legal.toString());
+        StringBuffer glossary = new StringBuffer("<glossary>\n");
+        for (int j = 0; j < 200; ++j) {
+            glossary.append("<entry term='term").append(j).append("'><def>The definition of term ")
+                .append(j).append(".</def></entry>\n");
+        }
+        glossary.append("</glossary>\n");
+        write(new File(dir, "glossary.xml"), glossary.toString());
+        StringBuffer license = new StringBuffer();
+        for (int j = 0; j < 40; ++j) {
+            license.append("Line ").append(j).append(" of the license, with <markup> & text.\n");
+        }
+        write(new File(dir, "license.txt"), license.toString());
+        return dir;
+    } // createDocuments(int):File
+
+    private static void write(File file, String content) throws Exception {
+        Writer out = new OutputStreamWriter(new FileOutputStream(file), "UTF-8");
+        out.write(content);
+        out.close();
+    } // write(File,String)
+
+} // class XIncludeCacheBenchmark
@@ -0,0 +1,180 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.xerces.benchmarks;
+
+import java.util.Hashtable;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.xerces.impl.Constants;
+import org.apache.xerces.parsers.SAXParser;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.xml.sax.Attributes;
+import org.xml.sax.helpers.DefaultHandler;
+
+/**
+ * Measures the parsing of a document which includes many resources served
+ * over HTTP with a fixed latency, as when the parts of a document are
+ * published on a remote server. The root document includes a number of
+ * parts, each of which includes a section as XML and a note as text, and
+ * the document is parsed with the included resources read as needed (no
+ * threads) and with the resources read ahead by the given number of
+ * threads.
+ *
+ * @version $Id$
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class XIncludePrefetchBenchmark {
+
+    //
+    // Constants
+    //
+
+    /** Feature identifier: XInclude processing. */
+    private static final String XINCLUDE =
+        Constants.XERCES_FEATURE_PREFIX + Constants.XINCLUDE_FEATURE;
+
+    /** Property identifier: XInclude prefetch threads. */
+    private static final String XINCLUDE_PREFETCH_THREADS =
+        Constants.XERCES_PROPERTY_PREFIX + Constants.XINCLUDE_PREFETCH_THREADS_PROPERTY;
+
+    //
+    // Data
+    //
+
+    /** The number of threads reading the included resources ahead. */
+    @Param({"0", "8"})
+    public int threads;
+
+    /** The number of parts included by the root document. */
+    @Param({"40"})
+    public int documents;
+
+    /** The latency of each request, in milliseconds. */
+    @Param({"20"})
+    public int latency;
+
+    private DocumentServer fServer;
+
+    private String fRoot;
+
+    private SAXParser fParser;
+
+    private SectionCounter fCounter;
+
+    //
+    // Setup
+    //
+
+    @Setup
+    public void setup() throws Exception {
+        fServer = new DocumentServer(createDocuments(documents), latency);
+        fRoot = fServer.getURI("/root.xml");
+        fParser = new SAXParser();
+        fParser.setFeature(XINCLUDE, true);
+        if (threads > 0) {
+            fParser.setProperty(XINCLUDE_PREFETCH_THREADS, new Integer(threads));
+        }
+        fCounter = new SectionCounter();
+        fParser.setContentHandler(fCounter);
+        // fail early if a part isn't included
+        int sections = parse();
+        if (sections != documents) {
+            throw new IllegalStateException(sections + " sections instead of " + documents);
+        }
+    } // setup()
+
+    @TearDown
+    public void tearDown() throws Exception {
+        fServer.close();
+    } // tearDown()
+
+    //
+    // Benchmarks
+    //
+
+    @Benchmark
+    public int parse() throws Exception {
+        fCounter.sections = 0;
+        fParser.parse(fRoot);
+        return fCounter.sections;
+    } // parse():int
+
+    //
+    // Private static methods
+    //
+
+    /** Creates the root document and the resources it includes, by path. */
+    private static Hashtable<String, String> createDocuments(int documents) {
+        Hashtable<String, String> paths = new Hashtable<String, String>();
+        String ns = " xmlns:xi='http://www.w3.org/2001/XInclude'";
+        StringBuffer root = new StringBuffer("<book").append(ns).append(">\n");
+        for (int i = 0; i < documents; ++i) {
+            root.append("<xi:include href='part").append(i).append(".xml'/>\n");
+            StringBuffer part = new StringBuffer("<part").append(ns).append(" n='").append(i).append("'>\n");
+            part.append("<title>Part ").append(i).append("</title>\n");
+            part.append("<xi:include href='section").append(i).append(".xml'/>\n");
+            part.append("<note><xi:include href='note").append(i).append(".txt' parse='text'/></note>\n");
+            part.append("</part>\n");
+            paths.put("/part" + i + ".xml", part.toString());
+            StringBuffer section = new StringBuffer("<section>\n");
+            for (int j = 0; j < 20; ++j) {
+                section.append("<para>Paragraph ").append(j).append(" of section ").append(i).append(".</para>\n");
+            }
+            section.append("</section>\n");
+            paths.put("/section" + i + ".xml", section.toString());
+            paths.put("/note" + i + ".txt", "A note on part " + i + " with <markup> & text.\n");
+        }
+        root.append("</book>\n");
+        paths.put("/root.xml", root.toString());
+        return paths;
+    } // createDocuments(int):Hashtable
+
+    //
+    // Classes
+    //
+
+    /** Counts the sections included. */
+    static final class SectionCounter extends DefaultHandler {
+
+        int sections;
+
+        public void startElement(String uri, String localName, String qName,
+                Attributes attributes) {
+            if (localName.equals("section")) {
+                ++sections;
+            }
+        }
+
+    } // class SectionCounter
+
+} // class XIncludePrefetchBenchmark
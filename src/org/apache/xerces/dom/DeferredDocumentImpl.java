@@ -76,6 +76,12 @@ public class DeferredDocumentImpl
     /** Initial chunk size. */
     protected static final int INITIAL_CHUNK_COUNT = (1 << (16 - CHUNK_SHIFT));   // 2^16 = 64k
 
+    /** Character slab size. */
+    protected static final int CHAR_SLAB_SIZE = (1 << 16);    // 2^16 = 64k
+
+    /** Maximum length of a value stored in a character slab. */
+    protected static final int MAX_SLAB_VALUE_LENGTH = (1 << 12);   // 2^12 = 4k
+
     //
     // Data
     //
@@ -111,6 +117,13 @@ public class DeferredDocumentImpl
     /** Extra data. */
     protected transient int fNodeExtra[][];
 
+    /**
+     * Node value spans. When the value of a node is a character slab
+     * the span holds the offset of the value in the slab in its high 16
+     * bits and the length of the value in its low 16 bits.
+     */
+    protected transient int fNodeValueSpan[][];
+
     /** Identifier count. */
     protected transient int fIdCount;
 
@@ -132,6 +145,10 @@ public class DeferredDocumentImpl
     private transient final StringBuffer fBufferStr = new StringBuffer();
     private transient final ArrayList fStrChunks = new ArrayList();
 
+    /** The character slab values are copied to, and its used length. */
+    private transient char[] fCharSlab;
+    private transient int fCharSlabLength;
+
     //
     // Constructors
     //
@@ -468,6 +485,35 @@ public class DeferredDocumentImpl
 		return attrNodeIndex;
 	}
     
+    /**
+     * This method is used by the DOMParser to create attributes whose
+     * values are kept in character slabs. The string of the value is
+     * only created when the attribute is synchronized.
+     */
+    public int setDeferredAttribute(int elementNodeIndex,
+                                    String attrName,
+                                    String attrURI,
+                                    char[] ch, int offset, int length,
+                                    boolean specified,
+                                    boolean id,
+                                    Object type) {
+
+        // create attribute
+        int attrNodeIndex = setDeferredAttribute(elementNodeIndex, attrName,
+                                                 attrURI, null, specified,
+                                                 false, type);
+        int attrChunk = attrNodeIndex >> CHUNK_SHIFT;
+        int attrIndex = attrNodeIndex & CHUNK_MASK;
+        setChunkChars(ch, offset, length, attrChunk, attrIndex);
+        if (id) {
+            setIdAttributeNode(elementNodeIndex, attrNodeIndex);
+        }
+
+        // return node index
+        return attrNodeIndex;
+
+    } // setDeferredAttribute(int,String,String,char[],int,int,boolean,boolean,Object):int
+
     /**  
      * Sets an attribute on an element node.
      * @deprecated
@@ -559,6 +605,24 @@ public class DeferredDocumentImpl
 
     } // createDeferredTextNode(String,boolean):int
 
+    /**
+     * Creates a text node in the table, whose data is kept in a
+     * character slab until the node is synchronized.
+     */
+    public int createDeferredTextNode(char[] ch, int offset, int length,
+                                      boolean ignorableWhitespace) {
+
+        // create node
+        int nodeIndex = createDeferredTextNode(null, ignorableWhitespace);
+        int chunk = nodeIndex >> CHUNK_SHIFT;
+        int index = nodeIndex & CHUNK_MASK;
+        setChunkChars(ch, offset, length, chunk, index);
+
+        // return node index
+        return nodeIndex;
+
+    } // createDeferredTextNode(char[],int,int,boolean):int
+
     /** Creates a CDATA section node in the table. */
     public int createDeferredCDATASection(String data) {
 
@@ -573,6 +637,23 @@ public class DeferredDocumentImpl
 
     } // createDeferredCDATASection(String):int
 
+    /**
+     * Creates a CDATA section node in the table, whose data is kept in a
+     * character slab until the node is synchronized.
+     */
+    public int createDeferredCDATASection(char[] ch, int offset, int length) {
+
+        // create node
+        int nodeIndex = createDeferredCDATASection(null);
+        int chunk = nodeIndex >> CHUNK_SHIFT;
+        int index = nodeIndex & CHUNK_MASK;
+        setChunkChars(ch, offset, length, chunk, index);
+
+        // return node index
+        return nodeIndex;
+
+    } // createDeferredCDATASection(char[],int,int):int
+
     /** Creates a processing instruction node in the table. */
     public int createDeferredProcessingInstruction(String target,
                                                    String data) {
@@ -614,6 +695,10 @@ public class DeferredDocumentImpl
         int cindex = cloneIndex & CHUNK_MASK;
         setChunkValue(fNodeName, fNodeName[nchunk][nindex], cchunk, cindex);
         setChunkValue(fNodeValue, fNodeValue[nchunk][nindex], cchunk, cindex);
+        if (fNodeValue[nchunk][nindex] instanceof char[]) {
+            setValueSpan(getChunkIndex(fNodeValueSpan, nchunk, nindex),
+                         cchunk, cindex);
+        }
         setChunkValue(fNodeURI, fNodeURI[nchunk][nindex], cchunk, cindex);
         int extraIndex = fNodeExtra[nchunk][nindex];
         if (extraIndex != -1) {
@@ -1976,13 +2061,51 @@ public class DeferredDocumentImpl
             createChunk(data, chunk);
             dataChunk = data[chunk];
         }
-        String ovalue = (String) dataChunk[index];
+        Object ovalue = dataChunk[index];
         if (ovalue == null) {
             RefCount c = (RefCount) dataChunk[CHUNK_SIZE];
             c.fCount++;
         }
+        else if (ovalue instanceof char[]) {
+            ovalue = getSlabValue((char[]) ovalue, chunk, index);
+            clearChunkIndex(fNodeValueSpan, chunk, index);
+        }
         dataChunk[index] = value;
-        return ovalue;
+        return ovalue instanceof String ? (String) ovalue : null;
+    }
+
+    /**
+     * Sets the given characters as the value at the chunk and index. Values
+     * that fit are copied to the current character slab, the others are
+     * stored as strings.
+     */
+    private final void setChunkChars(char[] ch, int offset, int length,
+                                     int chunk, int index) {
+        if (length == 0 || length > MAX_SLAB_VALUE_LENGTH) {
+            setChunkValue(fNodeValue, new String(ch, offset, length), chunk, index);
+            return;
+        }
+        if (fCharSlab == null || CHAR_SLAB_SIZE - fCharSlabLength < length) {
+            fCharSlab = new char[CHAR_SLAB_SIZE];
+            fCharSlabLength = 0;
+        }
+        System.arraycopy(ch, offset, fCharSlab, fCharSlabLength, length);
+        setChunkValue(fNodeValue, fCharSlab, chunk, index);
+        setValueSpan((fCharSlabLength << 16) | length, chunk, index);
+        fCharSlabLength += length;
+    }
+
+    /** Sets the span of the slab value at the chunk and index. */
+    private final void setValueSpan(int span, int chunk, int index) {
+        if (fNodeValueSpan == null || fNodeValueSpan.length <= chunk) {
+            int[][] newArray = new int[fNodeType.length][];
+            if (fNodeValueSpan != null) {
+                System.arraycopy(fNodeValueSpan, 0, newArray, 0,
+                                 fNodeValueSpan.length);
+            }
+            fNodeValueSpan = newArray;
+        }
+        setChunkIndex(fNodeValueSpan, span, chunk, index);
     }
 
     /**
@@ -1992,7 +2115,17 @@ public class DeferredDocumentImpl
         return data[chunk] != null ? data[chunk][index] : -1;
     }
     private final String getChunkValue(Object data[][], int chunk, int index) {
-        return data[chunk] != null ? (String) data[chunk][index] : null;
+        if (data[chunk] == null) {
+            return null;
+        }
+        // only node values are ever held in character slabs
+        Object value = data[chunk][index];
+        return value instanceof char[]
+             ? getSlabValue((char[]) value, chunk, index) : (String) value;
+    }
+    private final String getSlabValue(char[] slab, int chunk, int index) {
+        int span = getChunkIndex(fNodeValueSpan, chunk, index);
+        return new String(slab, span >>> 16, span & 0xFFFF);
     }
     private final String getNodeValue(int chunk, int index) {
         Object data = fNodeValue[chunk][index];
@@ -2002,6 +2135,9 @@ public class DeferredDocumentImpl
         else if (data instanceof String){
             return (String)data;
         }
+        else if (data instanceof char[]) {
+            return getChunkValue(fNodeValue, chunk, index);
+        }
         else {
             // type information
             return data.toString();
@@ -2029,8 +2165,12 @@ public class DeferredDocumentImpl
     }
     private final String clearChunkValue(Object data[][],
                                          int chunk, int index) {
-        String value = data[chunk] != null ? (String)data[chunk][index] : null;
+        Object value = data[chunk] != null ? data[chunk][index] : null;
         if (value != null) {
+            if (value instanceof char[]) {
+                value = getSlabValue((char[]) value, chunk, index);
+                clearChunkIndex(fNodeValueSpan, chunk, index);
+            }
             data[chunk][index] = null;
             RefCount c = (RefCount) data[chunk][CHUNK_SIZE];
             c.fCount--;
@@ -2038,7 +2178,7 @@ public class DeferredDocumentImpl
                 data[chunk] = null;
             }
         }
-        return value;
+        return (String) value;
     }
 
     /**
@@ -246,6 +246,9 @@ public final class Constants {
     /** Defer node expansion feature ("dom/defer-node-expansion"). */
     public static final String DEFER_NODE_EXPANSION_FEATURE = "dom/defer-node-expansion";
     
+    /** Compact deferred DOM feature ("dom/compact-deferred-dom"). */
+    public static final String COMPACT_DEFERRED_DOM_FEATURE = "dom/compact-deferred-dom";
+    
     /** Create entity reference nodes feature ("dom/create-entity-ref-nodes"). */
     public static final String CREATE_ENTITY_REF_NODES_FEATURE = "dom/create-entity-ref-nodes";
     
@@ -270,9 +273,15 @@ public final class Constants {
     /** Notify built-in (&amp;amp;, etc.) references feature (scanner/notify-builtin-refs"). */
     public static final String NOTIFY_BUILTIN_REFS_FEATURE = "scanner/notify-builtin-refs";
     
+    /** Defer attribute values feature ("scanner/defer-attribute-values"). */
+    public static final String DEFER_ATTRIBUTE_VALUES_FEATURE = "scanner/defer-attribute-values";
+    
     /** Standard URI conformant feature ("standard-uri-conformant"). */
     public static final String STANDARD_URI_CONFORMANT_FEATURE = "standard-uri-conformant";
     
+    /** Adaptive input buffer size feature ("adaptive-input-buffer-size"). */
+    public static final String ADAPTIVE_BUFFER_SIZE_FEATURE = "adaptive-input-buffer-size";
+    
     /** Generate synthetic annotations feature ("generate-synthetic-annotations"). */
     public static final String GENERATE_SYNTHETIC_ANNOTATIONS_FEATURE = "generate-synthetic-annotations";
     
@@ -300,6 +309,9 @@ public final class Constants {
     /** XInclude fixup language feature ("xinclude/fixup-language"). */
     public static final String XINCLUDE_FIXUP_LANGUAGE_FEATURE = "xinclude/fixup-language";
     
+    /** XInclude cache check timestamps feature ("xinclude/cache-check-timestamps"). */
+    public static final String XINCLUDE_CACHE_CHECK_TIMESTAMPS_FEATURE = "xinclude/cache-check-timestamps";
+    
     /**
      * Feature to ignore xsi:type attributes on elements during validation,
      * until a global element declaration is found. ("validation/schema/ignore-xsi-type-until-elemdecl")
@@ -391,6 +403,9 @@ public final class Constants {
     /** Security manager property ("security-manager"). */
     public static final String SECURITY_MANAGER_PROPERTY = "security-manager";
     
+    /** Entity content cache property ("entity-content-cache"). */
+    public static final String ENTITY_CONTENT_CACHE_PROPERTY = "entity-content-cache";
+    
     /** Locale property ("locale"). */
     public static final String LOCALE_PROPERTY = "locale";
     
@@ -451,6 +466,15 @@ public final class Constants {
     /** Datatype XML version property ("validation/schema/datatype-xml-version"). */
     public static final String DATATYPE_XML_VERSION_PROPERTY = "validation/schema/datatype-xml-version";
     
+    /** Schema loading threads property ("validation/schema/loading-threads"). */
+    public static final String SCHEMA_LOADING_THREADS_PROPERTY = "validation/schema/loading-threads";
+    
+    /** XInclude prefetch threads property ("xinclude/prefetch-threads"). */
+    public static final String XINCLUDE_PREFETCH_THREADS_PROPERTY = "xinclude/prefetch-threads";
+    
+    /** XInclude cache size property ("xinclude/cache-size"). */
+    public static final String XINCLUDE_CACHE_SIZE_PROPERTY = "xinclude/cache-size";
+    
     // general constants
     
     /** Element PSVI is stored in augmentations using string "ELEMENT_PSVI" */
@@ -503,6 +527,7 @@ public final class Constants {
     // Constants to support PsychoPath XPath engine uses
     public final static String XPATH2_NAMESPACE_CONTEXT = "XPATH2_NS_CONTEXT";
     public final static String IS_CTA_EVALUATOR = "CTA-EVALUATOR";
+    public final static String XPATH2_DEFAULT_NAMESPACE = "XPATH2_DEFAULT_NS";
     
     // private
     
@@ -536,6 +561,7 @@ public final class Constants {
             LOAD_DTD_GRAMMAR_FEATURE,
             LOAD_EXTERNAL_DTD_FEATURE,
             //DEFER_NODE_EXPANSION_FEATURE,
+            COMPACT_DEFERRED_DOM_FEATURE,
             CREATE_ENTITY_REF_NODES_FEATURE,
             INCLUDE_IGNORABLE_WHITESPACE,
             //GRAMMAR_ACCESS_FEATURE,
@@ -545,14 +571,17 @@ public final class Constants {
             BALANCE_SYNTAX_TREES,
             NOTIFY_CHAR_REFS_FEATURE,
             NOTIFY_BUILTIN_REFS_FEATURE,
+            DEFER_ATTRIBUTE_VALUES_FEATURE,
             DISALLOW_DOCTYPE_DECL_FEATURE,
             STANDARD_URI_CONFORMANT_FEATURE,
+            ADAPTIVE_BUFFER_SIZE_FEATURE,
             GENERATE_SYNTHETIC_ANNOTATIONS_FEATURE,
             VALIDATE_ANNOTATIONS_FEATURE,
             HONOUR_ALL_SCHEMALOCATIONS_FEATURE,
             XINCLUDE_FEATURE,
             XINCLUDE_FIXUP_BASE_URIS_FEATURE,
             XINCLUDE_FIXUP_LANGUAGE_FEATURE,
+            XINCLUDE_CACHE_CHECK_TIMESTAMPS_FEATURE,
             IGNORE_XSI_TYPE_FEATURE,
             ID_IDREF_CHECKING_FEATURE,
             IDC_CHECKING_FEATURE,
@@ -584,12 +613,16 @@ public final class Constants {
             VALIDATION_MANAGER_PROPERTY,
             BUFFER_SIZE_PROPERTY,
             SECURITY_MANAGER_PROPERTY,
+            ENTITY_CONTENT_CACHE_PROPERTY,
             LOCALE_PROPERTY,
             ROOT_TYPE_DEFINITION_PROPERTY,
             ROOT_ELEMENT_DECLARATION_PROPERTY,
             SCHEMA_DV_FACTORY_PROPERTY,
             XML_SCHEMA_VERSION_PROPERTY,
-            DATATYPE_XML_VERSION_PROPERTY
+            DATATYPE_XML_VERSION_PROPERTY,
+            SCHEMA_LOADING_THREADS_PROPERTY,
+            XINCLUDE_PREFETCH_THREADS_PROPERTY,
+            XINCLUDE_CACHE_SIZE_PROPERTY
     };
     
     /** Empty enumeration. */
@@ -118,6 +118,10 @@ public class XMLDocumentFragmentScannerImpl
     /** Feature identifier: notify built-in refereces. */
     protected static final String NOTIFY_BUILTIN_REFS =
         Constants.XERCES_FEATURE_PREFIX + Constants.NOTIFY_BUILTIN_REFS_FEATURE;
+
+    /** Feature identifier: defer attribute values. */
+    protected static final String DEFER_ATTRIBUTE_VALUES =
+        Constants.XERCES_FEATURE_PREFIX + Constants.DEFER_ATTRIBUTE_VALUES_FEATURE;
         
     // property identifiers
     
@@ -133,6 +137,7 @@ public class XMLDocumentFragmentScannerImpl
         VALIDATION, 
         NOTIFY_BUILTIN_REFS,
         NOTIFY_CHAR_REFS, 
+        DEFER_ATTRIBUTE_VALUES,
     };
 
     /** Feature defaults. */
@@ -141,6 +146,7 @@ public class XMLDocumentFragmentScannerImpl
         null,
         Boolean.FALSE,
         Boolean.FALSE,
+        Boolean.FALSE,
     };
 
     /** Recognized properties. */
@@ -223,6 +229,9 @@ public class XMLDocumentFragmentScannerImpl
     /** Notify built-in references. */
     protected boolean fNotifyBuiltInRefs = false;
 
+    /** Defer the creation of attribute value strings. */
+    protected boolean fDeferAttributeValues = false;
+
     // dispatchers
 
     /** Active dispatcher. */
@@ -383,6 +392,11 @@ public class XMLDocumentFragmentScannerImpl
             } catch (XMLConfigurationException e) {
                 fNotifyBuiltInRefs = false;
             }
+            try {
+                fDeferAttributeValues = componentManager.getFeature(DEFER_ATTRIBUTE_VALUES);
+            } catch (XMLConfigurationException e) {
+                fDeferAttributeValues = false;
+            }
             
             // xerces properties
             try {
@@ -433,6 +447,10 @@ public class XMLDocumentFragmentScannerImpl
                 featureId.endsWith(Constants.NOTIFY_BUILTIN_REFS_FEATURE)) {
                 fNotifyBuiltInRefs = state;
             }
+            else if (suffixLength == Constants.DEFER_ATTRIBUTE_VALUES_FEATURE.length() && 
+                featureId.endsWith(Constants.DEFER_ATTRIBUTE_VALUES_FEATURE)) {
+                fDeferAttributeValues = state;
+            }
         }
 
     } // setFeature(String,boolean)
@@ -982,7 +1000,12 @@ public class XMLDocumentFragmentScannerImpl
         boolean isSameNormalizedAttr =  scanAttributeValue(fTempString, fTempString2,
                 fAttributeQName.rawname, fIsEntityDeclaredVC, fCurrentElement.rawname);
         
-        attributes.setValue(attrIndex, fTempString.toString());
+        if (fDeferAttributeValues && attributes == fAttributes) {
+            fAttributes.setDeferredValue(attrIndex, fTempString);
+        }
+        else {
+            attributes.setValue(attrIndex, fTempString.toString());
+        }
         // If the non-normalized and normalized value are the same, avoid creating a new string.
         if (!isSameNormalizedAttr) {
             attributes.setNonNormalizedValue(attrIndex, fTempString2.toString());
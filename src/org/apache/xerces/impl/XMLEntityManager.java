@@ -17,6 +17,7 @@
 
 package org.apache.xerces.impl;
 
+import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
@@ -24,10 +25,13 @@ import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.OutputStream;
 import java.io.Reader;
+import java.io.SequenceInputStream;
 import java.io.StringReader;
 import java.net.HttpURLConnection;
 import java.net.URL;
 import java.net.URLConnection;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
 import java.security.AccessController;
 import java.security.PrivilegedAction;
 import java.util.Hashtable;
@@ -38,6 +42,7 @@ import java.util.Stack;
 import java.util.StringTokenizer;
 
 import org.apache.xerces.impl.io.ASCIIReader;
+import org.apache.xerces.impl.io.ByteBufferReader;
 import org.apache.xerces.impl.io.Latin1Reader;
 import org.apache.xerces.impl.io.UCSReader;
 import org.apache.xerces.impl.io.UTF16Reader;
@@ -45,7 +50,9 @@ import org.apache.xerces.impl.io.UTF8Reader;
 import org.apache.xerces.impl.msg.XMLMessageFormatter;
 import org.apache.xerces.impl.validation.ValidationManager;
 import org.apache.xerces.util.AugmentationsImpl;
+import org.apache.xerces.util.ByteBufferInputSource;
 import org.apache.xerces.util.EncodingMap;
+import org.apache.xerces.util.EntityContentCache;
 import org.apache.xerces.util.HTTPInputSource;
 import org.apache.xerces.util.SecurityManager;
 import org.apache.xerces.util.SymbolTable;
@@ -104,6 +111,21 @@ public class XMLEntityManager
     /** Default internal entity buffer size (512). */
     public static final int DEFAULT_INTERNAL_BUFFER_SIZE = 512;
 
+    /** 
+     * Number of buffer size classes. The buffers in each class are
+     * twice the size of those in the previous class.
+     */
+    private static final int SIZE_CLASS_COUNT = 7;
+
+    /** Size class of buffers of the input buffer size. */
+    private static final int DEFAULT_SIZE_CLASS = 2;
+
+    /** 
+     * Number of loads after which the buffers of an entity are
+     * moved to the next size class, if buffer sizes are adaptive.
+     */
+    private static final int BUFFER_GROWTH_THRESHOLD = 4;
+
     // feature identifiers
 
     /** Feature identifier: validation. */
@@ -129,6 +151,10 @@ public class XMLEntityManager
     /** Feature identifier: standard uri conformant */
     protected static final String STANDARD_URI_CONFORMANT =
     Constants.XERCES_FEATURE_PREFIX +Constants.STANDARD_URI_CONFORMANT_FEATURE;
+
+    /** Feature identifier: adaptive input buffer size */
+    protected static final String ADAPTIVE_BUFFER_SIZE =
+    Constants.XERCES_FEATURE_PREFIX + Constants.ADAPTIVE_BUFFER_SIZE_FEATURE;
     
 	protected static final String PARSER_SETTINGS = 
 		Constants.XERCES_FEATURE_PREFIX + Constants.PARSER_SETTINGS;	
@@ -159,6 +185,10 @@ public class XMLEntityManager
     protected static final String SECURITY_MANAGER =
         Constants.XERCES_PROPERTY_PREFIX + Constants.SECURITY_MANAGER_PROPERTY;
 
+    /** property identifier: entity content cache. */
+    protected static final String ENTITY_CONTENT_CACHE =
+        Constants.XERCES_PROPERTY_PREFIX + Constants.ENTITY_CONTENT_CACHE_PROPERTY;
+
     // recognized features and properties
 
     /** Recognized features. */
@@ -168,7 +198,8 @@ public class XMLEntityManager
         EXTERNAL_PARAMETER_ENTITIES,
         ALLOW_JAVA_ENCODINGS,
         WARN_ON_DUPLICATE_ENTITYDEF,
-        STANDARD_URI_CONFORMANT
+        STANDARD_URI_CONFORMANT,
+        ADAPTIVE_BUFFER_SIZE
     };
 
     /** Feature defaults. */
@@ -178,6 +209,7 @@ public class XMLEntityManager
         Boolean.TRUE,
         Boolean.FALSE,
         Boolean.FALSE,
+        Boolean.FALSE,
         Boolean.FALSE
     };
 
@@ -189,6 +221,7 @@ public class XMLEntityManager
         VALIDATION_MANAGER,
         BUFFER_SIZE,
         SECURITY_MANAGER,
+        ENTITY_CONTENT_CACHE,
     };
 
     /** Property defaults. */
@@ -199,6 +232,7 @@ public class XMLEntityManager
         null,
         new Integer(DEFAULT_BUFFER_SIZE),
         null,
+        null,
     };
 
     private static final String XMLEntity = "[xml]".intern();
@@ -263,6 +297,12 @@ public class XMLEntityManager
      */
     protected boolean fStrictURI;
 
+    /**
+     * adaptive input buffer size.
+     * http://apache.org/xml/features/adaptive-input-buffer-size
+     */
+    protected boolean fAdaptiveBufferSize;
+
     // properties
 
     /**
@@ -302,6 +342,12 @@ public class XMLEntityManager
     // been set on the configuration.
     protected SecurityManager fSecurityManager = null;
 
+    /**
+     * Cache of the bytes of external entities. This property identifier is:
+     * http://apache.org/xml/properties/entity-content-cache
+     */
+    protected EntityContentCache fEntityContentCache = null;
+
     /**
      * True if the document entity is standalone. This should really
      * only be set by the document source (e.g. XMLDocumentScanner).
@@ -333,6 +379,14 @@ public class XMLEntityManager
     /** XML 1.1 entity scanner. */
     protected XMLEntityScanner fXML11EntityScanner;
 
+    // statistics
+
+    /** Number of times characters were loaded into an entity's buffer. */
+    protected int fLoadCount;
+
+    /** Number of times the buffers of an entity were grown. */
+    protected int fBufferGrowthCount;
+
     // entity expansion limit (contains useful data if and only if
     // fSecurityManager is non-null)
     protected int fEntityExpansionLimit = 0;
@@ -363,15 +417,19 @@ public class XMLEntityManager
     /** Augmentations for entities. */
     private final Augmentations fEntityAugs = new AugmentationsImpl();
     
-    /** Pool of byte buffers for single byte and variable width encodings, such as US-ASCII and UTF-8. */
-    private final ByteBufferPool fSmallByteBufferPool = new ByteBufferPool(fBufferSize);
-    
-    /** Pool of byte buffers for 2-byte encodings, such as UTF-16. **/
-    private final ByteBufferPool fLargeByteBufferPool = new ByteBufferPool(fBufferSize << 1);
+    /** 
+     * Pool of byte buffers. Single byte and variable width encodings, 
+     * such as US-ASCII and UTF-8, use buffers of an entity's size class;
+     * 2-byte encodings, such as UTF-16, use buffers of the next class.
+     */
+    private final ByteBufferPool fByteBufferPool = new ByteBufferPool(fBufferSize);
     
     /** Temporary storage for the current entity's byte buffer. */
     private byte[] fTempByteBuffer = null;
     
+    /** Size class of the current entity's buffers. */
+    private int fTempSizeClass = DEFAULT_SIZE_CLASS;
+    
     /** Pool of character buffers. */
     private final CharacterBufferPool fCharacterBufferPool = new CharacterBufferPool(fBufferSize, DEFAULT_INTERNAL_BUFFER_SIZE);
 
@@ -949,6 +1007,7 @@ public class XMLEntityManager
         final boolean encodingExternallySpecified = (encoding != null);
         Boolean isBigEndian = null;
         fTempByteBuffer = null;
+        fTempSizeClass = DEFAULT_SIZE_CLASS;
 
         // create reader
         InputStream stream = null;
@@ -958,9 +1017,31 @@ public class XMLEntityManager
         if (baseSystemId == null) {
             baseSystemId = expandedSystemId;
         }
+        // bytes held in a (possibly memory mapped) byte buffer are
+        // decoded directly from the buffer, without an InputStream
+        ByteBuffer byteBuffer = null;
+        if (reader == null && xmlInputSource.getByteStream() == null 
+                && xmlInputSource instanceof ByteBufferInputSource) {
+            byteBuffer = ((ByteBufferInputSource) xmlInputSource).getByteBuffer();
+        }
+        // the bytes of external entities and of the external subset
+        // are kept in the content cache, if there is one
+        boolean cacheContent = fEntityContentCache != null && name != XMLEntity &&
+            reader == null && byteBuffer == null && xmlInputSource.getByteStream() == null &&
+            !(xmlInputSource instanceof HTTPInputSource);
+        byte[] content = cacheContent ? fEntityContentCache.getContent(expandedSystemId) : null;
         if (reader == null) {
             stream = xmlInputSource.getByteStream();
-            if (stream == null) {
+            if (byteBuffer != null) {
+                // read through a view of the buffer so that the
+                // input source can be parsed more than once
+                stream = new ByteBufferInputStream(byteBuffer.duplicate());
+            }
+            else if (content != null) {
+                stream = new ByteArrayInputStream(content);
+            }
+            else if (stream == null) {
+                final String requestedSystemId = expandedSystemId;
                 URL location = new URL(expandedSystemId);
                 URLConnection connect = location.openConnection();
                 if (!(connect instanceof HttpURLConnection)) {
@@ -1004,9 +1085,32 @@ public class XMLEntityManager
                         }
                     }
                 }
+                // the bytes of a redirected resource are not cached, since
+                // its system identifiers would be lost
+                if (cacheContent && expandedSystemId == requestedSystemId) {
+                    stream = readContent(requestedSystemId, stream);
+                }
+            }
+            // estimate the size of the entity from the number of bytes 
+            // which are available before anything has been read
+            if (fAdaptiveBufferSize && isExternal) {
+                int available = 0;
+                if (byteBuffer != null) {
+                    available = byteBuffer.remaining();
+                }
+                else {
+                    try {
+                        available = stream.available();
+                    }
+                    catch (IOException e) {
+                        // size unknown
+                    }
+                }
+                fTempSizeClass = getSizeClass(available);
             }
             // wrap this stream in RewindableInputStream
-            RewindableInputStream rewindableStream = new RewindableInputStream(stream);
+            RewindableInputStream rewindableStream = (byteBuffer != null) 
+                    ? (RewindableInputStream) stream : new RewindableInputStream(stream);
             stream = rewindableStream;
 
             // perform auto-detect of encoding if necessary
@@ -1183,7 +1287,7 @@ public class XMLEntityManager
         // create entity
         fCurrentEntity = new ScannedEntity(name,
                 new XMLResourceIdentifierImpl(publicId, literalSystemId, baseSystemId, expandedSystemId),
-                stream, reader, fTempByteBuffer, encoding, literal, false, isExternal);
+                stream, reader, fTempByteBuffer, fTempSizeClass, encoding, literal, false, isExternal);
 		fCurrentEntity.setEncodingExternallySpecified(encodingExternallySpecified);
         fEntityScanner.setCurrentEntity(fCurrentEntity);
         fResourceIdentifier.setValues(publicId, literalSystemId, baseSystemId, expandedSystemId);
@@ -1239,6 +1343,25 @@ public class XMLEntityManager
         }
     }
 
+    /**
+     * Returns the number of times the entity scanner has loaded 
+     * characters into the buffer of an entity since the entity 
+     * manager was last reset.
+     */
+    public int getLoadCount() {
+        return fLoadCount;
+    } // getLoadCount():int
+
+    /**
+     * Returns the number of times the buffers of a large entity were
+     * replaced by bigger ones since the entity manager was last reset.
+     * This is always zero unless the adaptive input buffer size 
+     * feature is enabled.
+     */
+    public int getBufferGrowthCount() {
+        return fBufferGrowthCount;
+    } // getBufferGrowthCount():int
+
     //
     // XMLComponent methods
     //
@@ -1315,6 +1438,13 @@ public class XMLEntityManager
             fStrictURI = false;
         }
 
+        try {
+            fAdaptiveBufferSize = componentManager.getFeature(ADAPTIVE_BUFFER_SIZE);
+        }
+        catch (XMLConfigurationException e) {
+            fAdaptiveBufferSize = false;
+        }
+
         // xerces properties
         fSymbolTable = (SymbolTable)componentManager.getProperty(SYMBOL_TABLE);
         fErrorReporter = (XMLErrorReporter)componentManager.getProperty(ERROR_REPORTER);
@@ -1336,6 +1466,12 @@ public class XMLEntityManager
         catch (XMLConfigurationException e) {
             fSecurityManager = null;
         }
+        try {
+            fEntityContentCache = (EntityContentCache)componentManager.getProperty(ENTITY_CONTENT_CACHE);
+        }
+        catch (XMLConfigurationException e) {
+            fEntityContentCache = null;
+        }
 
         // reset general state
         reset();
@@ -1354,6 +1490,8 @@ public class XMLEntityManager
         fEntities.clear();
         fEntityStack.removeAllElements();
         fEntityExpansionCount = 0;
+        fLoadCount = 0;
+        fBufferGrowthCount = 0;
 
         fCurrentEntity = null;
         // reset scanner
@@ -1434,6 +1572,10 @@ public class XMLEntityManager
                 featureId.endsWith(Constants.ALLOW_JAVA_ENCODINGS_FEATURE)) {
                 fAllowJavaEncodings = state;
             }
+            else if (suffixLength == Constants.ADAPTIVE_BUFFER_SIZE_FEATURE.length() && 
+                featureId.endsWith(Constants.ADAPTIVE_BUFFER_SIZE_FEATURE)) {
+                fAdaptiveBufferSize = state;
+            }
         }
 
     } // setFeature(String,boolean)
@@ -1491,8 +1633,7 @@ public class XMLEntityManager
                     bufferSize.intValue() > DEFAULT_XMLDECL_BUFFER_SIZE) {
                     fBufferSize = bufferSize.intValue();
                     fEntityScanner.setBufferSize(fBufferSize);
-                    fSmallByteBufferPool.setBufferSize(fBufferSize);
-                    fLargeByteBufferPool.setBufferSize(fBufferSize << 1);
+                    fByteBufferPool.setBufferSize(fBufferSize);
                     fCharacterBufferPool.setExternalBufferSize(fBufferSize);
                 }
             }
@@ -1501,6 +1642,10 @@ public class XMLEntityManager
                 fSecurityManager = (SecurityManager)value; 
                 fEntityExpansionLimit = (fSecurityManager != null)?fSecurityManager.getEntityExpansionLimit():0;
             }
+            if (suffixLength == Constants.ENTITY_CONTENT_CACHE_PROPERTY.length() && 
+                propertyId.endsWith(Constants.ENTITY_CONTENT_CACHE_PROPERTY)) {
+                fEntityContentCache = (EntityContentCache)value;
+            }
         }
 
     } // setProperty(String,Object)
@@ -1961,12 +2106,7 @@ public class XMLEntityManager
         
         // Release the byte buffer back to the pool for reuse
         if (fCurrentEntity.fByteBuffer != null) {
-            if (fCurrentEntity.fByteBuffer.length == fBufferSize) {
-                fSmallByteBufferPool.returnBuffer(fCurrentEntity.fByteBuffer);
-            }
-            else {
-                fLargeByteBufferPool.returnBuffer(fCurrentEntity.fByteBuffer);
-            }
+            fByteBufferPool.returnBuffer(fCurrentEntity.fByteBuffer);
         }
         
         // Pop entity stack.
@@ -2185,6 +2325,19 @@ public class XMLEntityManager
             }
             System.out.println();
         }
+        if (inputStream instanceof ByteBufferInputStream) {
+            // decode directly from the buffer if the
+            // Java platform supports this encoding
+            try {
+                if (Charset.isSupported(javaEncoding)) {
+                    return createByteBufferReader((ByteBufferInputStream) inputStream, javaEncoding);
+                }
+            }
+            catch (IllegalArgumentException e) {
+                // fall back to an InputStreamReader which
+                // reports the unsupported encoding
+            }
+        }
         return new InputStreamReader(inputStream, javaEncoding);
 
     } // createReader(InputStream,String, Boolean): Reader
@@ -2194,8 +2347,11 @@ public class XMLEntityManager
         if (DEBUG_ENCODINGS) {
             System.out.println("$$$ creating UTF8Reader");
         }
+        if (stream instanceof ByteBufferInputStream) {
+            return createByteBufferReader((ByteBufferInputStream) stream, "UTF-8");
+        }
         if (fTempByteBuffer == null) {
-            fTempByteBuffer = fSmallByteBufferPool.getBuffer();
+            fTempByteBuffer = fByteBufferPool.getBuffer(fTempSizeClass);
         }
         return new UTF8Reader(stream,
                 fTempByteBuffer, 
@@ -2208,13 +2364,17 @@ public class XMLEntityManager
         if (DEBUG_ENCODINGS) {
             System.out.println("$$$ creating UTF16Reader");
         }
+        if (stream instanceof ByteBufferInputStream) {
+            return createByteBufferReader((ByteBufferInputStream) stream, 
+                    isBigEndian ? "UTF-16BE" : "UTF-16LE");
+        }
         if (fTempByteBuffer == null) {
-            fTempByteBuffer = fLargeByteBufferPool.getBuffer();
+            fTempByteBuffer = fByteBufferPool.getBuffer(fTempSizeClass + 1);
         }
         // The cached buffer is too small, we need a larger one.
-        else if (fTempByteBuffer.length == fBufferSize) {
-            fSmallByteBufferPool.returnBuffer(fTempByteBuffer);
-            fTempByteBuffer = fLargeByteBufferPool.getBuffer();
+        else if (fTempByteBuffer.length < getBufferSize(fBufferSize, fTempSizeClass + 1)) {
+            fByteBufferPool.returnBuffer(fTempByteBuffer);
+            fTempByteBuffer = fByteBufferPool.getBuffer(fTempSizeClass + 1);
         }
         return new UTF16Reader(stream,
                 fTempByteBuffer, 
@@ -2228,8 +2388,11 @@ public class XMLEntityManager
         if (DEBUG_ENCODINGS) {
             System.out.println("$$$ creating ASCIIReader");
         }
+        if (stream instanceof ByteBufferInputStream) {
+            return createByteBufferReader((ByteBufferInputStream) stream, "US-ASCII");
+        }
         if (fTempByteBuffer == null) {
-            fTempByteBuffer = fSmallByteBufferPool.getBuffer();
+            fTempByteBuffer = fByteBufferPool.getBuffer(fTempSizeClass);
         }
         return new ASCIIReader(stream, 
                 fTempByteBuffer, 
@@ -2242,11 +2405,142 @@ public class XMLEntityManager
         if (DEBUG_ENCODINGS) {
             System.out.println("$$$ creating Latin1Reader");
         }
+        if (stream instanceof ByteBufferInputStream) {
+            return createByteBufferReader((ByteBufferInputStream) stream, "ISO-8859-1");
+        }
         if (fTempByteBuffer == null) {
-            fTempByteBuffer = fSmallByteBufferPool.getBuffer();
+            fTempByteBuffer = fByteBufferPool.getBuffer(fTempSizeClass);
         }
         return new Latin1Reader(stream, fTempByteBuffer);
     } // createLatin1Reader(InputStream):Reader
+    
+    /** Create a new reader decoding directly from the stream's byte buffer. **/
+    private Reader createByteBufferReader(ByteBufferInputStream stream, String charsetName) {
+        if (DEBUG_ENCODINGS) {
+            System.out.println("$$$ creating ByteBufferReader: charset="+charsetName);
+        }
+        return new ByteBufferReader(stream.getByteBuffer(), 
+                Charset.forName(charsetName),
+                fErrorReporter.getMessageFormatter(XMLMessageFormatter.XML_DOMAIN), 
+                fErrorReporter.getLocale()) {
+            protected boolean mayReadChunks() {
+                return fCurrentEntity.mayReadChunks;
+            }
+        };
+    } // createByteBufferReader(ByteBufferInputStream,String):Reader
+    
+    /** 
+     * Returns the size class of buffers which can hold an entity of
+     * the given size in bytes, or the default size class if the size
+     * isn't known.
+     */
+    private int getSizeClass(int entitySize) {
+        if (entitySize <= 0) {
+            return DEFAULT_SIZE_CLASS;
+        }
+        int sizeClass = 0;
+        while (sizeClass < SIZE_CLASS_COUNT - 1 && 
+                getBufferSize(fBufferSize, sizeClass) < entitySize) {
+            ++sizeClass;
+        }
+        return sizeClass;
+    } // getSizeClass(int):int
+    
+    /**
+     * Reads the bytes of an external entity into the content cache and
+     * returns a stream of the bytes. If the entity is too big to be cached 
+     * the stream returns the bytes read and then the rest of the entity.
+     */
+    private InputStream readContent(String expandedSystemId, InputStream stream) 
+        throws IOException {
+        byte[] content = new byte[fBufferSize];
+        int length = 0;
+        int count;
+        while ((count = stream.read(content, length, content.length - length)) != -1) {
+            length += count;
+            if (length == content.length) {
+                if (!fEntityContentCache.isCacheable(expandedSystemId, length + 1)) {
+                    return new SequenceInputStream(
+                            new ByteArrayInputStream(content, 0, length), stream);
+                }
+                byte[] newContent = new byte[length << 1];
+                System.arraycopy(content, 0, newContent, 0, length);
+                content = newContent;
+            }
+        }
+        stream.close();
+        if (length != content.length) {
+            byte[] newContent = new byte[length];
+            System.arraycopy(content, 0, newContent, 0, length);
+            content = newContent;
+        }
+        fEntityContentCache.putContent(expandedSystemId, content);
+        return new ByteArrayInputStream(content);
+    } // readContent(String,InputStream):InputStream
+    
+    /**
+     * Moves the given entity to buffers of a bigger size class, keeping
+     * the first <code>offset</code> characters of its character buffer.
+     * The byte buffer is only replaced if the entity's reader doesn't
+     * hold on to anything it has already read, otherwise the entity 
+     * keeps reading as many bytes at a time as before.
+     */
+    private void growBuffers(ScannedEntity entity, int offset) throws IOException {
+        // the scanner may have enlarged the character buffer itself
+        int sizeClass = entity.fSizeClass + 1;
+        while (sizeClass < SIZE_CLASS_COUNT && 
+                getBufferSize(fBufferSize, sizeClass) <= entity.ch.length) {
+            ++sizeClass;
+        }
+        if (sizeClass == SIZE_CLASS_COUNT) {
+            return;
+        }
+        if (DEBUG_BUFFER) {
+            System.out.println("$$$ growing buffers: size class "+entity.fSizeClass+" -> "+sizeClass);
+        }
+        final CharacterBuffer buffer = fCharacterBufferPool.getBuffer(true, sizeClass);
+        System.arraycopy(entity.ch, 0, buffer.ch, 0, offset);
+        fCharacterBufferPool.returnBuffer(entity.fCharacterBuffer);
+        entity.fCharacterBuffer = buffer;
+        entity.ch = buffer.ch;
+        entity.fSizeClass = sizeClass;
+        ++fBufferGrowthCount;
+        
+        final Reader reader = entity.reader;
+        if (entity.fByteBuffer != null && !reader.ready()) {
+            final byte[] byteBuffer;
+            final Reader newReader;
+            if (reader instanceof UTF8Reader) {
+                byteBuffer = fByteBufferPool.getBuffer(sizeClass);
+                newReader = new UTF8Reader(entity.stream, byteBuffer, 
+                        fErrorReporter.getMessageFormatter(XMLMessageFormatter.XML_DOMAIN), 
+                        fErrorReporter.getLocale());
+            }
+            else if (reader instanceof UTF16Reader) {
+                byteBuffer = fByteBufferPool.getBuffer(sizeClass + 1);
+                newReader = new UTF16Reader(entity.stream, byteBuffer, 
+                        ((UTF16Reader) reader).isBigEndian(),
+                        fErrorReporter.getMessageFormatter(XMLMessageFormatter.XML_DOMAIN), 
+                        fErrorReporter.getLocale());
+            }
+            else if (reader instanceof ASCIIReader) {
+                byteBuffer = fByteBufferPool.getBuffer(sizeClass);
+                newReader = new ASCIIReader(entity.stream, byteBuffer, 
+                        fErrorReporter.getMessageFormatter(XMLMessageFormatter.XML_DOMAIN), 
+                        fErrorReporter.getLocale());
+            }
+            else if (reader instanceof Latin1Reader) {
+                byteBuffer = fByteBufferPool.getBuffer(sizeClass);
+                newReader = new Latin1Reader(entity.stream, byteBuffer);
+            }
+            else {
+                return;
+            }
+            fByteBufferPool.returnBuffer(entity.fByteBuffer);
+            entity.fByteBuffer = byteBuffer;
+            entity.reader = newReader;
+        }
+    } // growBuffers(ScannedEntity,int)
 
     //
     // Protected static methods
@@ -2318,6 +2612,17 @@ public class XMLEntityManager
         return str;
 
     } // fixURI(String):String
+    
+    /** 
+     * Returns the size of the buffers in the given size class, 
+     * where the default size class holds buffers of the given size.
+     */
+    private static int getBufferSize(int bufferSize, int sizeClass) {
+        final int size = (sizeClass >= DEFAULT_SIZE_CLASS) 
+            ? bufferSize << (sizeClass - DEFAULT_SIZE_CLASS)
+            : bufferSize >> (DEFAULT_SIZE_CLASS - sizeClass);
+        return (size > DEFAULT_XMLDECL_BUFFER_SIZE) ? size : DEFAULT_XMLDECL_BUFFER_SIZE;
+    } // getBufferSize(int,int):int
 
     //
     // Package visible methods
@@ -2335,6 +2640,22 @@ public class XMLEntityManager
         return fEntities;
     } // getDeclaredEntities():Hashtable
 
+    /**
+     * Called by the entity scanner before it loads characters into 
+     * the buffer of the current entity at the given offset. If buffer 
+     * sizes are adaptive, the buffers of an external entity which has 
+     * needed several loads are grown.
+     */
+    final void prepareLoad(int offset) throws IOException {
+        ++fLoadCount;
+        final ScannedEntity entity = fCurrentEntity;
+        if (fAdaptiveBufferSize && entity.isExternal && entity.mayReadChunks &&
+                ++entity.fLoadsSinceGrowth > BUFFER_GROWTH_THRESHOLD) {
+            entity.fLoadsSinceGrowth = 0;
+            growBuffers(entity, offset);
+        }
+    } // prepareLoad(int)
+
     /** Prints the contents of the buffer. */
     static final void print(ScannedEntity currentEntity) {
         if (DEBUG_BUFFER) {
@@ -2680,6 +3001,12 @@ public class XMLEntityManager
         /** Byte buffer. */
         private byte [] fByteBuffer;
         
+        /** Size class of the buffers. */
+        private int fSizeClass;
+        
+        /** Number of loads since the buffers were last grown. */
+        private int fLoadsSinceGrowth;
+        
         //
         // Constructors
         //
@@ -2689,6 +3016,15 @@ public class XMLEntityManager
                              XMLResourceIdentifier entityLocation,
                              InputStream stream, Reader reader, byte [] byteBuffer,
                              String encoding, boolean literal, boolean mayReadChunks, boolean isExternal) {
+            this(name, entityLocation, stream, reader, byteBuffer, DEFAULT_SIZE_CLASS, 
+                    encoding, literal, mayReadChunks, isExternal);
+        } // <init>(StringXMLResourceIdentifier,InputStream,Reader,String,boolean, boolean)
+
+        /** Constructs a scanned entity whose buffers are of the given size class. */
+        public ScannedEntity(String name,
+                             XMLResourceIdentifier entityLocation,
+                             InputStream stream, Reader reader, byte [] byteBuffer, int sizeClass,
+                             String encoding, boolean literal, boolean mayReadChunks, boolean isExternal) {
             super(name,XMLEntityManager.this.fInExternalSubset);
             this.entityLocation = entityLocation;
             this.stream = stream;
@@ -2697,10 +3033,11 @@ public class XMLEntityManager
             this.literal = literal;
             this.mayReadChunks = mayReadChunks;
             this.isExternal = isExternal;
-            this.fCharacterBuffer = fCharacterBufferPool.getBuffer(isExternal);
+            this.fCharacterBuffer = fCharacterBufferPool.getBuffer(isExternal, sizeClass);
             this.ch = fCharacterBuffer.ch;
             this.fByteBuffer = byteBuffer;
-        } // <init>(StringXMLResourceIdentifier,InputStream,Reader,String,boolean, boolean)
+            this.fSizeClass = sizeClass;
+        } // <init>(StringXMLResourceIdentifier,InputStream,Reader,int,String,boolean, boolean)
 
         //
         // Entity methods
@@ -2718,6 +3055,7 @@ public class XMLEntityManager
 
         public void setReader(InputStream stream, String encoding, Boolean isBigEndian) throws IOException {
             fTempByteBuffer = fByteBuffer;
+            fTempSizeClass = fSizeClass;
             reader = createReader(stream, encoding, isBigEndian);
             fByteBuffer = fTempByteBuffer;
         }
@@ -2915,7 +3253,9 @@ public class XMLEntityManager
     } // class EncodingInfo
     
     /**
-     * Pool of byte buffers for the java.io.Readers.
+     * Pool of byte buffers for the java.io.Readers. The pool keeps
+     * buffers of each size class, including the class above the
+     * largest character buffers for 2-byte encodings.
      * 
      * @xerces.internal
      * 
@@ -2927,8 +3267,8 @@ public class XMLEntityManager
         
         private int fPoolSize;
         private int fBufferSize;
-        private byte[][] fByteBufferPool;
-        private int fDepth;
+        private byte[][][] fByteBufferPool;
+        private int[] fDepth;
         
         public ByteBufferPool(int bufferSize) {
             this(DEFAULT_POOL_SIZE, bufferSize);
@@ -2937,27 +3277,37 @@ public class XMLEntityManager
         public ByteBufferPool(int poolSize, int bufferSize) {
             fPoolSize = poolSize;
             fBufferSize = bufferSize;
-            fByteBufferPool = new byte[fPoolSize][];
-            fDepth = 0;
+            init();
         }
         
-        /** Retrieves a byte buffer from the pool. **/
-        public byte[] getBuffer() {
-            return (fDepth > 0) ? fByteBufferPool[--fDepth] : new byte[fBufferSize];
+        /** Initializes buffer pool. **/
+        private void init() {
+            fByteBufferPool = new byte[SIZE_CLASS_COUNT + 1][fPoolSize][];
+            fDepth = new int[SIZE_CLASS_COUNT + 1];
+        }
+        
+        /** Retrieves a byte buffer of the given size class from the pool. **/
+        public byte[] getBuffer(int sizeClass) {
+            return (fDepth[sizeClass] > 0) ? fByteBufferPool[sizeClass][--fDepth[sizeClass]] 
+                    : new byte[getBufferSize(fBufferSize, sizeClass)];
         }
         
         /** Returns byte buffer to pool. **/
         public void returnBuffer(byte[] buffer) {
-            if (fDepth < fByteBufferPool.length) {
-                fByteBufferPool[fDepth++] = buffer;
+            for (int sizeClass = 0; sizeClass < fDepth.length; ++sizeClass) {
+                if (buffer.length == getBufferSize(fBufferSize, sizeClass)) {
+                    if (fDepth[sizeClass] < fPoolSize) {
+                        fByteBufferPool[sizeClass][fDepth[sizeClass]++] = buffer;
+                    }
+                    return;
+                }
             }
         }
 
         /** Sets the size of the buffers and dumps the old pool. **/
         public void setBufferSize(int bufferSize) {
             fBufferSize = bufferSize;
-            fByteBufferPool = new byte[fPoolSize][];
-            fDepth = 0;
+            init();
         } 
     }
     
@@ -2977,8 +3327,16 @@ public class XMLEntityManager
         /** whether the buffer is for an external or internal scanned entity */
         private final boolean isExternal;
         
+        /** size class of an external buffer */
+        private final int sizeClass;
+        
         public CharacterBuffer(boolean isExternal, int size) {
+            this(isExternal, DEFAULT_SIZE_CLASS, size);
+        }
+        
+        public CharacterBuffer(boolean isExternal, int sizeClass, int size) {
             this.isExternal = isExternal;
+            this.sizeClass = sizeClass;
             ch = new char[size];
         }
     }
@@ -2996,14 +3354,14 @@ public class XMLEntityManager
         private static final int DEFAULT_POOL_SIZE = 3;
         
         private CharacterBuffer[] fInternalBufferPool;
-        private CharacterBuffer[] fExternalBufferPool;
+        private CharacterBuffer[][] fExternalBufferPool;
 
         private int fExternalBufferSize;
         private int fInternalBufferSize;
         private int fPoolSize;
         
         private int fInternalTop;
-        private int fExternalTop;
+        private int[] fExternalTop;
 
         public CharacterBufferPool(int externalBufferSize, int internalBufferSize) {
             this(DEFAULT_POOL_SIZE, externalBufferSize, internalBufferSize);
@@ -3019,19 +3377,33 @@ public class XMLEntityManager
         /** Initializes buffer pool. **/
         private void init() {
             fInternalBufferPool = new CharacterBuffer[fPoolSize];
-            fExternalBufferPool = new CharacterBuffer[fPoolSize];
             fInternalTop = -1;
-            fExternalTop = -1;
+            initExternal();
+        }
+        
+        /** Initializes pool of external buffers. **/
+        private void initExternal() {
+            fExternalBufferPool = new CharacterBuffer[SIZE_CLASS_COUNT][fPoolSize];
+            fExternalTop = new int[SIZE_CLASS_COUNT];
+            for (int i = 0; i < SIZE_CLASS_COUNT; ++i) {
+                fExternalTop[i] = -1;
+            }
         }
 
         /** Retrieves buffer from pool. **/
         public CharacterBuffer getBuffer(boolean external) {
+            return getBuffer(external, DEFAULT_SIZE_CLASS);
+        }
+        
+        /** Retrieves buffer from pool; external buffers are of the given size class. **/
+        public CharacterBuffer getBuffer(boolean external, int sizeClass) {
             if (external) {
-                if (fExternalTop > -1) {
-                    return (CharacterBuffer)fExternalBufferPool[fExternalTop--];
+                if (fExternalTop[sizeClass] > -1) {
+                    return (CharacterBuffer)fExternalBufferPool[sizeClass][fExternalTop[sizeClass]--];
                 }
                 else {
-                    return new CharacterBuffer(true, fExternalBufferSize);
+                    return new CharacterBuffer(true, sizeClass, 
+                            getBufferSize(fExternalBufferSize, sizeClass));
                 }
             }
             else {
@@ -3047,8 +3419,9 @@ public class XMLEntityManager
         /** Returns buffer to pool. **/
         public void returnBuffer(CharacterBuffer buffer) {
             if (buffer.isExternal) {
-                if (fExternalTop < fExternalBufferPool.length - 1) {
-                    fExternalBufferPool[++fExternalTop] = buffer;
+                final int sizeClass = buffer.sizeClass;
+                if (fExternalTop[sizeClass] < fPoolSize - 1) {
+                    fExternalBufferPool[sizeClass][++fExternalTop[sizeClass]] = buffer;
                 }
             }
             else if (fInternalTop < fInternalBufferPool.length - 1) {
@@ -3059,8 +3432,7 @@ public class XMLEntityManager
         /** Sets the size of external buffers and dumps the old pool. **/
         public void setExternalBufferSize(int bufferSize) {
             fExternalBufferSize = bufferSize;
-            fExternalBufferPool = new CharacterBuffer[fPoolSize];
-            fExternalTop = -1;
+            initExternal();
         }
     }
 
@@ -3086,7 +3458,7 @@ public class XMLEntityManager
      * @author Neil Graham, IBM
      * @author Glenn Marcy, IBM
      */
-    protected final class RewindableInputStream extends InputStream {
+    protected class RewindableInputStream extends InputStream {
 
         private InputStream fInputStream;
         private byte[] fData;
@@ -3242,4 +3614,101 @@ public class XMLEntityManager
         }
     } // end of RewindableInputStream class
 
+    /**
+     * A rewindable input stream over the bytes of a
+     * <code>java.nio.ByteBuffer</code>. Since the whole entity is
+     * available in the buffer, rewinding just moves the buffer's
+     * position. Readers for the common encodings decode straight
+     * from the buffer (see <code>ByteBufferReader</code>) and only
+     * use this stream to locate it; other readers read through it.
+     * Like its parent it only hands out one byte at a time until
+     * the entity may be read in chunks.
+     *
+     * @xerces.internal
+     */
+    protected final class ByteBufferInputStream extends RewindableInputStream {
+
+        private final ByteBuffer fBuffer;
+        private final int fBase;
+        private int fStart;
+        private int fMark;
+
+        public ByteBufferInputStream(ByteBuffer buffer) {
+            super(null);
+            fBuffer = buffer;
+            fBase = buffer.position();
+            fStart = fBase;
+            fMark = fBase;
+        }
+
+        public ByteBuffer getByteBuffer() {
+            return fBuffer;
+        }
+
+        public void setStartOffset(int offset) {
+            fStart = fBase + offset;
+        }
+
+        public void rewind() {
+            fBuffer.position(fStart);
+        }
+
+        public int readAndBuffer() throws IOException {
+            return fBuffer.hasRemaining() ? fBuffer.get() & 0xff : -1;
+        }
+
+        public int read() throws IOException {
+            return fBuffer.hasRemaining() ? fBuffer.get() & 0xff : -1;
+        }
+
+        public int read(byte[] b, int off, int len) throws IOException {
+            final int bytesLeft = fBuffer.remaining();
+            if (bytesLeft == 0) {
+                return -1;
+            }
+            if (len <= 0) {
+                return 0;
+            }
+            if (!fCurrentEntity.mayReadChunks) {
+                len = 1;
+            }
+            else if (len > bytesLeft) {
+                len = bytesLeft;
+            }
+            fBuffer.get(b, off, len);
+            return len;
+        }
+
+        public long skip(long n) throws IOException {
+            if (n <= 0) {
+                return 0;
+            }
+            final int bytesLeft = fBuffer.remaining();
+            if (n > bytesLeft) {
+                n = bytesLeft;
+            }
+            fBuffer.position(fBuffer.position() + (int) n);
+            return n;
+        }
+
+        public int available() throws IOException {
+            final int bytesLeft = fBuffer.remaining();
+            if (bytesLeft == 0) {
+                return -1;
+            }
+            return fCurrentEntity.mayReadChunks ? bytesLeft : 0;
+        }
+
+        public void mark(int howMuch) {
+            fMark = fBuffer.position();
+        }
+
+        public void reset() {
+            fBuffer.position(fMark);
+        }
+
+        public void close() throws IOException {
+        }
+    } // end of ByteBufferInputStream class
+
 } // class XMLEntityManager
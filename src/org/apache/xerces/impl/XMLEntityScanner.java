@@ -1744,6 +1744,8 @@ public class XMLEntityScanner implements XMLLocator {
         }
 
         fCurrentEntity.baseCharOffset += (fCurrentEntity.position - fCurrentEntity.startPosition);
+        // the entity manager may give a large entity bigger buffers
+        fEntityManager.prepareLoad(offset);
         // read characters
         int length = fCurrentEntity.ch.length - offset;
         if (!fCurrentEntity.mayReadChunks && length > XMLEntityManager.DEFAULT_XMLDECL_BUFFER_SIZE) {
@@ -529,8 +529,12 @@ extends XMLDocumentScannerImpl {
         boolean isSameNormalizedAttr = scanAttributeValue(this.fTempString, fTempString2,
                 fAttributeQName.rawname, fIsEntityDeclaredVC, fCurrentElement.rawname);
         
-        String value = fTempString.toString();
-        attributes.setValue(attrIndex, value);
+        if (fDeferAttributeValues) {
+            attributes.setDeferredValue(attrIndex, fTempString);
+        }
+        else {
+            attributes.setValue(attrIndex, fTempString.toString());
+        }
         // If the non-normalized and normalized value are the same, avoid creating a new string.
         if (!isSameNormalizedAttr) {
             attributes.setNonNormalizedValue(attrIndex, fTempString2.toString());
@@ -549,7 +553,7 @@ extends XMLDocumentScannerImpl {
                 prefix == XMLSymbols.EMPTY_STRING && localpart == XMLSymbols.PREFIX_XMLNS) {
 
                 // get the internalized value of this attribute
-                String uri = fSymbolTable.addSymbol(value);
+                String uri = fSymbolTable.addSymbol(fTempString.ch, fTempString.offset, fTempString.length);
 
                 // 1. "xmlns" can't be bound to any namespace
                 if (prefix == XMLSymbols.PREFIX_XMLNS && localpart == XMLSymbols.PREFIX_XMLNS) {
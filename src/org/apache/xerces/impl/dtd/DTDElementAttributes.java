@@ -0,0 +1,280 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.xerces.impl.dtd;
+
+import org.apache.xerces.util.SymbolTable;
+import org.apache.xerces.util.XMLSymbols;
+
+/**
+ * The attribute declarations of an element declaration, compiled from a
+ * complete DTD grammar into dense arrays. The declarations are indexed by
+ * position, in the order they were declared, and the position of an
+ * attribute is looked up by the identity of its qualified name, which is
+ * a symbol, in an open addressing hash table. The attributes which are
+ * required or have a default value are listed separately, so that the
+ * attributes defaulted for an element are found without walking all its
+ * declarations.
+ * <p>
+ * A compiled attribute list is immutable, and may be shared by all the
+ * validators using its grammar. The attribute declarations it returns
+ * must not be modified.
+ *
+ * @xerces.internal
+ *
+ * @version $Id$
+ */
+public final class DTDElementAttributes {
+
+    //
+    // Data
+    //
+
+    /** The attribute declarations. */
+    private final XMLAttributeDecl[] fAttributeDecls;
+
+    /** The indexes of the attribute declarations in their grammar. */
+    private final int[] fAttributeDeclIndexes;
+
+    /** The type names of the attributes. */
+    private final String[] fTypeNames;
+
+    /** Whether the attributes were declared in the external subset. */
+    private final boolean[] fExternal;
+
+    /** The positions of the attributes which are required or have a default value. */
+    private final int[] fDefaulted;
+
+    /** The prefixes of the qualified names of the attributes, or null. */
+    private final String[] fPrefixes;
+
+    /** The local parts of the qualified names of the attributes. */
+    private final String[] fLocalparts;
+
+    /** The qualified names hashed, and their positions. */
+    private final String[] fKeys;
+    private final int[] fPositions;
+
+    //
+    // Constructors
+    //
+
+    /**
+     * Compiles the attribute declarations of an element declaration of
+     * the given grammar.
+     */
+    DTDElementAttributes(DTDGrammar grammar, int elementDeclIndex, SymbolTable symbolTable) {
+
+        int length = 0;
+        int attributeDeclIndex = grammar.getFirstAttributeDeclIndex(elementDeclIndex);
+        while (attributeDeclIndex != -1) {
+            ++length;
+            attributeDeclIndex = grammar.getNextAttributeDeclIndex(attributeDeclIndex);
+        }
+
+        fAttributeDecls = new XMLAttributeDecl[length];
+        fAttributeDeclIndexes = new int[length];
+        fTypeNames = new String[length];
+        fExternal = new boolean[length];
+        fPrefixes = new String[length];
+        fLocalparts = new String[length];
+
+        int capacity = 4;
+        while (capacity < length << 1) {
+            capacity <<= 1;
+        }
+        fKeys = new String[capacity];
+        fPositions = new int[capacity];
+
+        int defaultedCount = 0;
+        int[] defaulted = new int[length];
+        attributeDeclIndex = grammar.getFirstAttributeDeclIndex(elementDeclIndex);
+        for (int i = 0; i < length; ++i) {
+            XMLAttributeDecl attributeDecl = new XMLAttributeDecl();
+            grammar.getAttributeDecl(attributeDeclIndex, attributeDecl);
+            fAttributeDecls[i] = attributeDecl;
+            fAttributeDeclIndexes[i] = attributeDeclIndex;
+            fTypeNames[i] = getAttributeTypeName(attributeDecl, symbolTable);
+            fExternal[i] = grammar.getAttributeDeclIsExternal(attributeDeclIndex);
+
+            // split the qualified name for namespace processing
+            String rawname = attributeDecl.name.rawname;
+            int colon = rawname.indexOf(':');
+            if (colon != -1) {
+                fPrefixes[i] = addSymbol(symbolTable, rawname.substring(0, colon));
+                fLocalparts[i] = addSymbol(symbolTable, rawname.substring(colon + 1));
+            }
+            else {
+                fLocalparts[i] = rawname;
+            }
+
+            if (attributeDecl.simpleType.defaultType == XMLSimpleType.DEFAULT_TYPE_REQUIRED ||
+                attributeDecl.simpleType.defaultValue != null) {
+                defaulted[defaultedCount++] = i;
+            }
+
+            // the grammar declares an attribute once, keep the first
+            // position in case it did not
+            int slot = rawname.hashCode() & (capacity - 1);
+            while (fKeys[slot] != null && fKeys[slot] != rawname) {
+                slot = (slot + 1) & (capacity - 1);
+            }
+            if (fKeys[slot] == null) {
+                fKeys[slot] = rawname;
+                fPositions[slot] = i;
+            }
+            attributeDeclIndex = grammar.getNextAttributeDeclIndex(attributeDeclIndex);
+        }
+        fDefaulted = new int[defaultedCount];
+        System.arraycopy(defaulted, 0, fDefaulted, 0, defaultedCount);
+
+    } // <init>(DTDGrammar,int,SymbolTable)
+
+    //
+    // Public methods
+    //
+
+    /** Returns the number of attributes declared. */
+    public int getLength() {
+        return fAttributeDecls.length;
+    } // getLength():int
+
+    /**
+     * Returns the position of the attribute with the given qualified name,
+     * or -1 if it is not declared. The name must be a symbol.
+     */
+    public int getPosition(String rawname) {
+        if (rawname == null) {
+            return -1;
+        }
+        final int mask = fKeys.length - 1;
+        int slot = rawname.hashCode() & mask;
+        String key;
+        while ((key = fKeys[slot]) != null) {
+            if (key == rawname) {
+                return fPositions[slot];
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    } // getPosition(String):int
+
+    /** Returns the declaration of the attribute at the given position. */
+    public XMLAttributeDecl getAttributeDecl(int position) {
+        return fAttributeDecls[position];
+    } // getAttributeDecl(int):XMLAttributeDecl
+
+    /**
+     * Returns the index in its grammar of the declaration of the attribute
+     * at the given position.
+     */
+    public int getAttributeDeclIndex(int position) {
+        return fAttributeDeclIndexes[position];
+    } // getAttributeDeclIndex(int):int
+
+    /** Returns the type name of the attribute at the given position. */
+    public String getTypeName(int position) {
+        return fTypeNames[position];
+    } // getTypeName(int):String
+
+    /**
+     * Returns true if the attribute at the given position was declared
+     * in the external subset.
+     */
+    public boolean isExternal(int position) {
+        return fExternal[position];
+    } // isExternal(int):boolean
+
+    /**
+     * Returns the prefix of the qualified name of the attribute at the
+     * given position, or null if it has none.
+     */
+    public String getPrefix(int position) {
+        return fPrefixes[position];
+    } // getPrefix(int):String
+
+    /**
+     * Returns the local part of the qualified name of the attribute at
+     * the given position.
+     */
+    public String getLocalpart(int position) {
+        return fLocalparts[position];
+    } // getLocalpart(int):String
+
+    /** Returns the number of attributes which are required or have a default value. */
+    public int getDefaultedLength() {
+        return fDefaulted.length;
+    } // getDefaultedLength():int
+
+    /**
+     * Returns the position of the given attribute of the attributes which
+     * are required or have a default value.
+     */
+    public int getDefaulted(int index) {
+        return fDefaulted[index];
+    } // getDefaulted(int):int
+
+    //
+    // Package static methods
+    //
+
+    /** Returns the type name of an attribute declaration. */
+    static String getAttributeTypeName(XMLAttributeDecl attrDecl, SymbolTable symbolTable) {
+
+        switch (attrDecl.simpleType.type) {
+        case XMLSimpleType.TYPE_ENTITY: {
+                return attrDecl.simpleType.list ? XMLSymbols.fENTITIESSymbol : XMLSymbols.fENTITYSymbol;
+            }
+        case XMLSimpleType.TYPE_ENUMERATION: {
+                StringBuffer buffer = new StringBuffer();
+                buffer.append('(');
+                for (int i=0; i<attrDecl.simpleType.enumeration.length ; i++) {
+                    if (i > 0) {
+                        buffer.append('|');
+                    }
+                    buffer.append(attrDecl.simpleType.enumeration[i]);
+                }
+                buffer.append(')');
+                return addSymbol(symbolTable, buffer.toString());
+            }
+        case XMLSimpleType.TYPE_ID: {
+                return XMLSymbols.fIDSymbol;
+            }
+        case XMLSimpleType.TYPE_IDREF: {
+                return attrDecl.simpleType.list ? XMLSymbols.fIDREFSSymbol : XMLSymbols.fIDREFSymbol;
+            }
+        case XMLSimpleType.TYPE_NMTOKEN: {
+                return attrDecl.simpleType.list ? XMLSymbols.fNMTOKENSSymbol : XMLSymbols.fNMTOKENSymbol;
+            }
+        case XMLSimpleType.TYPE_NOTATION: {
+                return XMLSymbols.fNOTATIONSymbol;
+            }
+        }
+        return XMLSymbols.fCDATASymbol;
+
+    } // getAttributeTypeName(XMLAttributeDecl,SymbolTable):String
+
+    //
+    // Private static methods
+    //
+
+    /** Adds a symbol to the symbol table, if any. */
+    private static String addSymbol(SymbolTable symbolTable, String symbol) {
+        return symbolTable != null ? symbolTable.addSymbol(symbol) : symbol.intern();
+    } // addSymbol(SymbolTable,String):String
+
+} // class DTDElementAttributes
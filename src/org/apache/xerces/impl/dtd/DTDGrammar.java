@@ -26,6 +26,7 @@ import org.apache.xerces.impl.dtd.models.CMBinOp;
 import org.apache.xerces.impl.dtd.models.CMLeaf;
 import org.apache.xerces.impl.dtd.models.CMNode;
 import org.apache.xerces.impl.dtd.models.CMUniOp;
+import org.apache.xerces.impl.dtd.models.ContentModelCache;
 import org.apache.xerces.impl.dtd.models.ContentModelValidator;
 import org.apache.xerces.impl.dtd.models.DFAContentModel;
 import org.apache.xerces.impl.dtd.models.MixedContentModel;
@@ -149,6 +150,12 @@ public class DTDGrammar
     /** Last attribute declaration of an element declaration. */
     private int fElementDeclLastAttributeDeclIndex[][] = new int[INITIAL_CHUNK_COUNT][];
 
+    /** 
+     * Compiled attribute declarations of an element declaration. The
+     * attribute declarations are compiled once the grammar is complete.
+     */
+    private DTDElementAttributes fElementDeclAttributes[][] = new DTDElementAttributes[INITIAL_CHUNK_COUNT][];
+
     // attribute declarations
 
     /** Number of attribute declarations. */
@@ -1286,6 +1293,29 @@ public class DTDGrammar
         return fAttributeDeclNextAttributeDeclIndex[chunk][index];
     } // getNextAttributeDeclIndex
 
+    /**
+     * Returns the compiled attribute declarations of an element
+     * declaration. Once the grammar is complete, the attribute 
+     * declarations of an element declaration are compiled the first
+     * time they are requested, and shared afterwards.
+     * 
+     * @param elementDeclIndex The element declaration index.
+     */
+    public DTDElementAttributes getElementAttributes(int elementDeclIndex) {
+        int chunk = elementDeclIndex >> CHUNK_SHIFT;
+        int index = elementDeclIndex &  CHUNK_MASK;
+
+        DTDElementAttributes attributes = fElementDeclAttributes[chunk][index];
+        if (attributes == null) {
+            attributes = new DTDElementAttributes(this, elementDeclIndex, fSymbolTable);
+            // attribute declarations may still be added to an incomplete grammar
+            if (fIsImmutable) {
+                fElementDeclAttributes[chunk][index] = attributes;
+            }
+        }
+        return attributes;
+    } // getElementAttributes(int):DTDElementAttributes
+
     /**
      * getAttributeDecl
      * 
@@ -1713,6 +1743,35 @@ public class DTDGrammar
         /***/
 
         XMLContentSpec  contentSpec = new XMLContentSpec();
+
+        // Take the content model from the cache if a structurally
+        // identical content spec has been compiled before
+        StringBuffer key = new StringBuffer();
+        key.append(contentType == XMLElementDecl.TYPE_MIXED ? 'M' : 'C');
+        appendContentSpecKey(contentSpecIndex, contentSpec, key);
+        String contentSpecKey = key.toString();
+        contentModel = ContentModelCache.getContentModel(contentSpecKey);
+        if (contentModel == null) {
+            contentSpec.clear();
+            contentModel = createContentModel(contentType, contentSpecIndex, contentSpec);
+            contentModel = ContentModelCache.putContentModel(contentSpecKey, contentModel);
+        }
+
+        // Add the new model to the content model for this element
+        fElementDeclContentModelValidator[chunk][index] = contentModel;
+
+        return contentModel;
+
+    } // getElementContentModelValidator(int):ContentModelValidator
+
+    /**
+     * Creates the content model of an element of the given content type
+     * from its content spec.
+     */
+    private ContentModelValidator createContentModel(int contentType, 
+            int contentSpecIndex, XMLContentSpec contentSpec) {
+
+        ContentModelValidator contentModel = null;
         getContentSpec( contentSpecIndex, contentSpec );
 
         // And create the content model according to the spec type
@@ -1739,13 +1798,55 @@ public class DTDGrammar
             throw new RuntimeException("Unknown content type for a element decl "
                                      + "in getElementContentModelValidator() in AbstractDTDGrammar class");
         }
-
-        // Add the new model to the content model for this element
-        fElementDeclContentModelValidator[chunk][index] = contentModel;
-
         return contentModel;
 
-    } // getElementContentModelValidator(int):ContentModelValidator
+    } // createContentModel(int,int,XMLContentSpec):ContentModelValidator
+
+    /**
+     * Appends the canonical form of a content spec to a key. Content 
+     * specs with the same canonical form have identical content models.
+     */
+    private void appendContentSpecKey(int contentSpecIndex, 
+            XMLContentSpec contentSpec, StringBuffer key) {
+        if (!getContentSpec(contentSpecIndex, contentSpec)) {
+            key.append('!');
+            return;
+        }
+        final int type = contentSpec.type;
+        if (type == XMLContentSpec.CONTENTSPECNODE_LEAF) {
+            key.append(contentSpec.value != null ? (String)contentSpec.value : "#PCDATA");
+            if (contentSpec.otherValue != null) {
+                key.append('{').append((String)contentSpec.otherValue).append('}');
+            }
+            return;
+        }
+        if ((type & 0x0f) == XMLContentSpec.CONTENTSPECNODE_ANY ||
+            (type & 0x0f) == XMLContentSpec.CONTENTSPECNODE_ANY_OTHER ||
+            (type & 0x0f) == XMLContentSpec.CONTENTSPECNODE_ANY_LOCAL) {
+            key.append('#').append(type);
+            if (contentSpec.otherValue != null) {
+                key.append('{').append((String)contentSpec.otherValue).append('}');
+            }
+            return;
+        }
+        if (contentSpec.value == null || contentSpec.otherValue == null) {
+            key.append('!').append(type);
+            return;
+        }
+        final int leftNode = ((int[])contentSpec.value)[0];
+        final int rightNode = ((int[])contentSpec.otherValue)[0];
+        key.append('(');
+        appendContentSpecKey(leftNode, contentSpec, key);
+        if (type == XMLContentSpec.CONTENTSPECNODE_CHOICE ||
+            type == XMLContentSpec.CONTENTSPECNODE_SEQ) {
+            key.append(type == XMLContentSpec.CONTENTSPECNODE_CHOICE ? '|' : ',');
+            appendContentSpecKey(rightNode, contentSpec, key);
+            key.append(')');
+        }
+        else {
+            key.append(')').append(type);
+        }
+    } // appendContentSpecKey(int,XMLContentSpec,StringBuffer)
 
    protected int createElementDecl() {
       int chunk = fElementDeclCount >> CHUNK_SHIFT;
@@ -1754,6 +1855,7 @@ public class DTDGrammar
       fElementDeclName[chunk][index]                    = new QName(); 
       fElementDeclType[chunk][index]                    = -1;  
       fElementDeclContentModelValidator[chunk][index]   = null;
+      fElementDeclAttributes[chunk][index]              = null;
       fElementDeclFirstAttributeDeclIndex[chunk][index] = -1;
       fElementDeclLastAttributeDeclIndex[chunk][index]  = -1;
       return fElementDeclCount++;
@@ -2423,6 +2525,7 @@ public class DTDGrammar
             fElementDeclContentSpecIndex = resize(fElementDeclContentSpecIndex,fElementDeclContentSpecIndex.length * 2);
             fElementDeclFirstAttributeDeclIndex = resize(fElementDeclFirstAttributeDeclIndex, fElementDeclFirstAttributeDeclIndex.length * 2);
             fElementDeclLastAttributeDeclIndex = resize(fElementDeclLastAttributeDeclIndex, fElementDeclLastAttributeDeclIndex.length * 2);
+            fElementDeclAttributes = resize(fElementDeclAttributes, fElementDeclAttributes.length * 2);
         }
         else if (fElementDeclName[chunk] != null) {
             return;
@@ -2435,6 +2538,7 @@ public class DTDGrammar
         fElementDeclContentSpecIndex[chunk] = new int[CHUNK_SIZE];
         fElementDeclFirstAttributeDeclIndex[chunk] = new int[CHUNK_SIZE];
         fElementDeclLastAttributeDeclIndex[chunk] = new int[CHUNK_SIZE];
+        fElementDeclAttributes[chunk] = new DTDElementAttributes[CHUNK_SIZE];
         return;
     }
 
@@ -2564,6 +2668,12 @@ public class DTDGrammar
         return newarray;
     }
 
+    private static DTDElementAttributes[][] resize(DTDElementAttributes array[][], int newsize) {
+        DTDElementAttributes newarray[][] = new DTDElementAttributes[newsize][];
+        System.arraycopy(array, 0, newarray, 0, array.length);
+        return newarray;
+    }
+
     private static Object[][] resize(Object array[][], int newsize) {
         Object newarray[][] = new Object[newsize][];
         System.arraycopy(array, 0, newarray, 0, array.length);
@@ -17,6 +17,7 @@
 
 package org.apache.xerces.impl.dtd;
 
+import java.util.Arrays;
 import java.util.Iterator;
 
 import org.apache.xerces.impl.Constants;
@@ -336,8 +337,15 @@ public class XMLDTDValidator
     /** Temporary element declaration. */
     private final XMLElementDecl fTempElementDecl = new XMLElementDecl();
 
-    /** Temporary atribute declaration. */
-    private final XMLAttributeDecl fTempAttDecl = new XMLAttributeDecl();
+    /** 
+     * The stamps of the attribute declarations of the current element,
+     * by position, which are equal to the current stamp for the 
+     * attributes which are specified.
+     */
+    private int[] fSpecifiedStamps = new int[8];
+
+    /** The current stamp of the specified attributes. */
+    private int fSpecifiedStamp = 0;
 
     /** Temporary entity declaration. */
     private final XMLEntityDecl fEntityDecl = new XMLEntityDecl();
@@ -1161,58 +1169,50 @@ public class XMLDTDValidator
             return;
         }
 
+        DTDElementAttributes attributeDecls = fDTDGrammar.getElementAttributes(elementIndex);
+
         //
         // Check after all specified attrs are scanned
         // (1) report error for REQUIRED attrs that are missing (V_TAGc)
         // (2) add default attrs (FIXED and NOT_FIXED)
         //
-        int attlistIndex = fDTDGrammar.getFirstAttributeDeclIndex(elementIndex);
-
-        while (attlistIndex != -1) {
+        int defaultedLength = attributeDecls.getDefaultedLength();
+        if (defaultedLength > 0) {
+
+            // mark the declared attributes which are specified
+            int stamp = nextSpecifiedStamp(attributeDecls.getLength());
+            int attrCount = attributes.getLength();
+            for (int i = 0; i < attrCount; i++) {
+                int position = attributeDecls.getPosition(attributes.getQName(i));
+                if (position != -1) {
+                    fSpecifiedStamps[position] = stamp;
+                }
+            }
 
-            fDTDGrammar.getAttributeDecl(attlistIndex, fTempAttDecl);
+            for (int j = 0; j < defaultedLength; j++) {
+                int position = attributeDecls.getDefaulted(j);
+                if (fSpecifiedStamps[position] == stamp) {
+                    continue;
+                }
+                XMLAttributeDecl attDecl = attributeDecls.getAttributeDecl(position);
 
-            if (DEBUG_ATTRIBUTES) {
-                if (fTempAttDecl != null) {
+                if (DEBUG_ATTRIBUTES) {
                     XMLElementDecl elementDecl = new XMLElementDecl();
                     fDTDGrammar.getElementDecl(elementIndex, elementDecl);
                     System.out.println("element: "+(elementDecl.name.localpart));
-                    System.out.println("attlistIndex " + attlistIndex + "\n"+
-                                       "attName : '"+(fTempAttDecl.name.localpart) + "'\n"
-                                       + "attType : "+fTempAttDecl.simpleType.type + "\n"
-                                       + "attDefaultType : "+fTempAttDecl.simpleType.defaultType + "\n"
-                                       + "attDefaultValue : '"+fTempAttDecl.simpleType.defaultValue + "'\n"
+                    System.out.println("attlistIndex " + attributeDecls.getAttributeDeclIndex(position) + "\n"+
+                                       "attName : '"+(attDecl.name.localpart) + "'\n"
+                                       + "attType : "+attDecl.simpleType.type + "\n"
+                                       + "attDefaultType : "+attDecl.simpleType.defaultType + "\n"
+                                       + "attDefaultValue : '"+attDecl.simpleType.defaultValue + "'\n"
                                        + attributes.getLength() +"\n"
                                       );
                 }
-            }
-            String attPrefix = fTempAttDecl.name.prefix;
-            String attLocalpart = fTempAttDecl.name.localpart;
-            String attRawName = fTempAttDecl.name.rawname;
-            String attType = getAttributeTypeName(fTempAttDecl);
-            int attDefaultType =fTempAttDecl.simpleType.defaultType;
-            String attValue = null;
-                            
-            if (fTempAttDecl.simpleType.defaultValue != null) {
-                attValue = fTempAttDecl.simpleType.defaultValue;
-            }
-            
-            boolean specified = false;
-            boolean required = attDefaultType == XMLSimpleType.DEFAULT_TYPE_REQUIRED;
-            boolean cdata = attType == XMLSymbols.fCDATASymbol;
-
-            if (!cdata || required || attValue != null) {
-                int attrCount = attributes.getLength();
-                for (int i = 0; i < attrCount; i++) {
-                    if (attributes.getQName(i) == attRawName) {
-                        specified = true;
-                        break;
-                    }
-                }
-            }
+                String attPrefix = attDecl.name.prefix;
+                String attLocalpart = attDecl.name.localpart;
+                String attRawName = attDecl.name.rawname;
 
-            if (!specified) {
-                if (required) {
+                if (attDecl.simpleType.defaultType == XMLSimpleType.DEFAULT_TYPE_REQUIRED) {
                     if (fPerformValidation) {
                         Object[] args = {elementName.localpart, attRawName};
                         fErrorReporter.reportError(XMLMessageFormatter.XML_DOMAIN,
@@ -1220,9 +1220,9 @@ public class XMLDTDValidator
                                                    XMLErrorReporter.SEVERITY_ERROR);
                     }
                 }
-                else if (attValue != null) {
+                else {
                     if (fPerformValidation && fGrammarBucket.getStandalone()) {
-                        if (fDTDGrammar.getAttributeDeclIsExternal(attlistIndex)) {
+                        if (attributeDecls.isExternal(position)) {
 
                             Object[] args = { elementName.localpart, attRawName};
                             fErrorReporter.reportError(XMLMessageFormatter.XML_DOMAIN,
@@ -1232,23 +1232,17 @@ public class XMLDTDValidator
                     }
 
                     // add namespace information
-                    if (fNamespaces) {
-                        int index = attRawName.indexOf(':');
-                        if (index != -1) {
-                            attPrefix = attRawName.substring(0, index);
-                            attPrefix = fSymbolTable.addSymbol(attPrefix);
-                            attLocalpart = attRawName.substring(index + 1);
-                            attLocalpart = fSymbolTable.addSymbol(attLocalpart);
-                        }
+                    if (fNamespaces && attributeDecls.getPrefix(position) != null) {
+                        attPrefix = attributeDecls.getPrefix(position);
+                        attLocalpart = attributeDecls.getLocalpart(position);
                     }
 
                     // add attribute
-                    fTempQName.setValues(attPrefix, attLocalpart, attRawName, fTempAttDecl.name.uri);
-                    int newAttr = attributes.addAttribute(fTempQName, attType, attValue);
+                    fTempQName.setValues(attPrefix, attLocalpart, attRawName, attDecl.name.uri);
+                    attributes.addAttribute(fTempQName, attributeDecls.getTypeName(position), 
+                                            attDecl.simpleType.defaultValue);
                 }
             }
-            // get next att decl in the Grammar for this element
-            attlistIndex = fDTDGrammar.getNextAttributeDeclIndex(attlistIndex);
         }
 
         // now iterate through the expanded attributes for
@@ -1258,7 +1252,6 @@ public class XMLDTDValidator
         int attrCount = attributes.getLength();
         for (int i = 0; i < attrCount; i++) {
             String attrRawName = attributes.getQName(i);
-            boolean declared = false;
             if (fPerformValidation) {
                 if (fGrammarBucket.getStandalone()) {
                     // check VC: Standalone Document Declaration, entities
@@ -1278,20 +1271,8 @@ public class XMLDTDValidator
                     }
                 }
             }
-            int attDefIndex = -1;
-            int position =
-            fDTDGrammar.getFirstAttributeDeclIndex(elementIndex);
-            while (position != -1) {
-                fDTDGrammar.getAttributeDecl(position, fTempAttDecl);
-                if (fTempAttDecl.name.rawname == attrRawName) {
-                    // found the match att decl, 
-                    attDefIndex = position;
-                    declared = true;
-                    break;
-                }
-                position = fDTDGrammar.getNextAttributeDeclIndex(position);
-            }
-            if (!declared) {
+            int position = attributeDecls.getPosition(attrRawName);
+            if (position == -1) {
                 if (fPerformValidation) {
                     // REVISIT - cache the elem/attr tuple so that we only
                     // give this error once for each unique occurrence
@@ -1304,12 +1285,9 @@ public class XMLDTDValidator
                 continue;
             }
             // attribute is declared
+            XMLAttributeDecl attDecl = attributeDecls.getAttributeDecl(position);
 
-            // fTempAttDecl should have the right value set now, so
-            // the following is not needed
-            // fGrammar.getAttributeDecl(attDefIndex,fTempAttDecl);
-
-            String type = getAttributeTypeName(fTempAttDecl);
+            String type = attributeDecls.getTypeName(position);
             attributes.setType(i, type);
             attributes.getAugmentations(i).putItem(Constants.ATTRIBUTE_DECLARED, Boolean.TRUE);
 
@@ -1321,7 +1299,7 @@ public class XMLDTDValidator
                 attrValue = attributes.getValue(i);
                 if (fPerformValidation && fGrammarBucket.getStandalone()
                     && changedByNormalization 
-                    && fDTDGrammar.getAttributeDeclIsExternal(position)
+                    && attributeDecls.isExternal(position)
                    ) {
                     // check VC: Standalone Document Declaration
                     fErrorReporter.reportError(XMLMessageFormatter.XML_DOMAIN,
@@ -1333,9 +1311,9 @@ public class XMLDTDValidator
             if (!fPerformValidation) {
                 continue;
             }
-            if (fTempAttDecl.simpleType.defaultType ==
+            if (attDecl.simpleType.defaultType ==
                 XMLSimpleType.DEFAULT_TYPE_FIXED) {
-                String defaultValue = fTempAttDecl.simpleType.defaultValue;
+                String defaultValue = attDecl.simpleType.defaultValue;
 
                 if (!attrValue.equals(defaultValue)) {
                     Object[] args = {elementName.localpart,
@@ -1348,19 +1326,34 @@ public class XMLDTDValidator
                 }
             }
 
-            if (fTempAttDecl.simpleType.type == XMLSimpleType.TYPE_ENTITY ||
-                fTempAttDecl.simpleType.type == XMLSimpleType.TYPE_ENUMERATION ||
-                fTempAttDecl.simpleType.type == XMLSimpleType.TYPE_ID ||
-                fTempAttDecl.simpleType.type == XMLSimpleType.TYPE_IDREF ||
-                fTempAttDecl.simpleType.type == XMLSimpleType.TYPE_NMTOKEN ||
-                fTempAttDecl.simpleType.type == XMLSimpleType.TYPE_NOTATION
+            if (attDecl.simpleType.type == XMLSimpleType.TYPE_ENTITY ||
+                attDecl.simpleType.type == XMLSimpleType.TYPE_ENUMERATION ||
+                attDecl.simpleType.type == XMLSimpleType.TYPE_ID ||
+                attDecl.simpleType.type == XMLSimpleType.TYPE_IDREF ||
+                attDecl.simpleType.type == XMLSimpleType.TYPE_NMTOKEN ||
+                attDecl.simpleType.type == XMLSimpleType.TYPE_NOTATION
                ) {
-                validateDTDattribute(elementName, attrValue, fTempAttDecl);
+                validateDTDattribute(elementName, attrValue, attDecl);
             }
         } // for all attributes
 
     } // addDTDDefaultAttrsAndValidate(int,XMLAttrList)
 
+    /**
+     * Returns a new stamp for the specified attributes of an element with
+     * the given number of attribute declarations.
+     */
+    private int nextSpecifiedStamp(int length) {
+        if (fSpecifiedStamps.length < length) {
+            fSpecifiedStamps = new int[Math.max(length, fSpecifiedStamps.length << 1)];
+        }
+        if (++fSpecifiedStamp == 0) {
+            Arrays.fill(fSpecifiedStamps, 0);
+            fSpecifiedStamp = 1;
+        }
+        return fSpecifiedStamp;
+    } // nextSpecifiedStamp(int):int
+
     /** Checks entities in attribute values for standalone VC. */
     protected String getExternalEntityRefInAttrValue(String nonNormalizedValue) {
         int valLength = nonNormalizedValue.length();
@@ -1792,42 +1785,6 @@ public class XMLDTDValidator
 
     } // charDataInCount()
 
-    /** convert attribute type from ints to strings */
-    private String getAttributeTypeName(XMLAttributeDecl attrDecl) {
-
-        switch (attrDecl.simpleType.type) {
-        case XMLSimpleType.TYPE_ENTITY: {
-                return attrDecl.simpleType.list ? XMLSymbols.fENTITIESSymbol : XMLSymbols.fENTITYSymbol;
-            }
-        case XMLSimpleType.TYPE_ENUMERATION: {
-                StringBuffer buffer = new StringBuffer();
-                buffer.append('(');
-                for (int i=0; i<attrDecl.simpleType.enumeration.length ; i++) {
-                    if (i > 0) {
-                        buffer.append('|');
-                    }
-                    buffer.append(attrDecl.simpleType.enumeration[i]);
-                }
-                buffer.append(')');
-                return fSymbolTable.addSymbol(buffer.toString());
-            }
-        case XMLSimpleType.TYPE_ID: {
-                return XMLSymbols.fIDSymbol;
-            }
-        case XMLSimpleType.TYPE_IDREF: {
-                return attrDecl.simpleType.list ? XMLSymbols.fIDREFSSymbol : XMLSymbols.fIDREFSymbol;
-            }
-        case XMLSimpleType.TYPE_NMTOKEN: {
-                return attrDecl.simpleType.list ? XMLSymbols.fNMTOKENSSymbol : XMLSymbols.fNMTOKENSymbol;
-            }
-        case XMLSimpleType.TYPE_NOTATION: {
-                return XMLSymbols.fNOTATIONSymbol;
-            }
-        }
-        return XMLSymbols.fCDATASymbol;
-
-    } // getAttributeTypeName(XMLAttributeDecl):String
-
     /** initialization */
     protected void init() {
 
@@ -0,0 +1,129 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.xerces.impl.dtd.models;
+
+import java.util.Hashtable;
+
+/**
+ * The content models of the DTD grammars of a JVM, keyed by the canonical
+ * form of their content specs. A DTD grammar takes the content model of
+ * an element from this cache if a grammar with a structurally identical
+ * content spec has built it before, so that identical content models are
+ * compiled once for all the grammars, whether or not the grammars are
+ * pooled.
+ * <p>
+ * Content models are immutable once built, and compare the names of
+ * elements by the identity of their interned strings, so a content model
+ * may be shared by any grammars and validators. The cache is cleared when
+ * it holds <code>MAX_SIZE</code> content models.
+ * <p>
+ * The cache counts content models rather than timing them: a miss is a
+ * content model which was compiled, and a hit is a compile saved. The
+ * cost of a compile is measured by <code>ContentModelCacheBenchmark</code>.
+ *
+ * @xerces.internal
+ *
+ * @version $Id$
+ */
+public final class ContentModelCache {
+
+    //
+    // Constants
+    //
+
+    /** The number of content models held before the cache is cleared. */
+    public static final int MAX_SIZE = 4096;
+
+    //
+    // Static data
+    //
+
+    /** The content models, by the canonical form of their content specs. */
+    private static final Hashtable fModels = new Hashtable();
+
+    /** The number of content models taken from the cache. */
+    private static long fHitCount = 0;
+
+    /** The number of content models which were compiled. */
+    private static long fMissCount = 0;
+
+    //
+    // Constructors
+    //
+
+    private ContentModelCache() {}
+
+    //
+    // Public static methods
+    //
+
+    /**
+     * Returns the content model of the given canonical content spec, or
+     * null if it has not been compiled.
+     */
+    public static synchronized ContentModelValidator getContentModel(String key) {
+        ContentModelValidator model = (ContentModelValidator) fModels.get(key);
+        if (model != null) {
+            ++fHitCount;
+        }
+        return model;
+    } // getContentModel(String):ContentModelValidator
+
+    /**
+     * Adds the content model compiled for the given canonical content spec,
+     * and returns the content model to use. If another thread has added a
+     * content model for the same content spec since it was looked up, that
+     * content model is returned.
+     */
+    public static synchronized ContentModelValidator putContentModel(String key,
+            ContentModelValidator model) {
+        ++fMissCount;
+        ContentModelValidator cached = (ContentModelValidator) fModels.get(key);
+        if (cached != null) {
+            return cached;
+        }
+        if (fModels.size() >= MAX_SIZE) {
+            fModels.clear();
+        }
+        fModels.put(key, model);
+        return model;
+    } // putContentModel(String,ContentModelValidator):ContentModelValidator
+
+    /** Removes all the content models. */
+    public static synchronized void clear() {
+        fModels.clear();
+    } // clear()
+
+    // statistics
+
+    /** Returns the number of content models held. */
+    public static synchronized int getSize() {
+        return fModels.size();
+    } // getSize():int
+
+    /** Returns the number of content models taken from the cache. */
+    public static synchronized long getHitCount() {
+        return fHitCount;
+    } // getHitCount():long
+
+    /** Returns the number of content models which were compiled. */
+    public static synchronized long getMissCount() {
+        return fMissCount;
+    } // getMissCount():long
+
+} // class ContentModelCache
@@ -17,6 +17,8 @@
 
 package org.apache.xerces.impl.dv;
 
+import java.io.Serializable;
+
 import org.apache.xerces.impl.xs.util.ShortListImpl;
 import org.apache.xerces.impl.xs.util.XSObjectListImpl;
 import org.apache.xerces.xs.ShortList;
@@ -35,7 +37,9 @@ import org.apache.xerces.xs.XSValue;
  *
  * @version $Id$
  */
-public class ValidatedInfo implements XSValue {
+public class ValidatedInfo implements XSValue, Serializable {
+
+    private static final long serialVersionUID = 2958486064169408781L;
 
     /**
      * The normalized value of a string value
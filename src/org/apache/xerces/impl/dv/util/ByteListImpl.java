@@ -17,6 +17,7 @@
 
 package org.apache.xerces.impl.dv.util;
 
+import java.io.Serializable;
 import java.util.AbstractList;
 
 import org.apache.xerces.xs.XSException;
@@ -31,7 +32,9 @@ import org.apache.xerces.xs.datatypes.ByteList;
  * 
  * @version $Id$
  */
-public class ByteListImpl extends AbstractList implements ByteList {
+public class ByteListImpl extends AbstractList implements ByteList, Serializable {
+
+    private static final long serialVersionUID = -2010369945488360874L;
 
     // actually data stored in a byte array
     protected final byte[] data;
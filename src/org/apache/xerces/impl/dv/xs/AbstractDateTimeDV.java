@@ -17,6 +17,7 @@
 
 package org.apache.xerces.impl.dv.xs;
 
+import java.io.Serializable;
 import java.math.BigDecimal;
 
 import javax.xml.datatype.DatatypeFactory;
@@ -47,6 +48,8 @@ import org.apache.xerces.xs.datatypes.XSDateTime;
  * @version $Id$
  */
 public abstract class AbstractDateTimeDV extends TypeValidator {
+
+	private static final long serialVersionUID = 3818657588983553759L;
 	
 	//debugging
 	private static final boolean DEBUG=false;
@@ -907,7 +910,10 @@ public abstract class AbstractDateTimeDV extends TypeValidator {
 	/**
 	 * Represents date time data
 	 */
-	static final class DateTimeData implements XSDateTime {
+	static final class DateTimeData implements XSDateTime, Serializable {
+
+		private static final long serialVersionUID = -5257530514300007296L;
+
 		int year, month, day, hour, minute, utc;
 		double second;
 		int timezoneHr, timezoneMin;
@@ -928,7 +934,7 @@ public abstract class AbstractDateTimeDV extends TypeValidator {
 		// note that this is not the actual simple type, but one of the
 		// statically created XXXDV objects, so this won't cause any GC problem.
 		final AbstractDateTimeDV type;
-		private String canonical;
+		private transient String canonical;
 		public DateTimeData(String originalValue, AbstractDateTimeDV type) {
             this.originalValue = originalValue;
 			this.type = type;
@@ -950,6 +956,23 @@ public abstract class AbstractDateTimeDV extends TypeValidator {
 				return false;
 			return type.compareDates(this, (DateTimeData)obj, true)==0;
 		}
+		public int hashCode() {
+			if (type instanceof DurationDV) {
+				// durations of the same months and seconds are equal
+				// whatever the fields they are written with
+				int months = year*12 + month;
+				double seconds = ((day*24 + hour)*60 + minute)*60 + second;
+				return months*31 + (int)Math.floor(seconds);
+			}
+			// equal dates have the same fields compared by compareOrder()
+			int hash = utc;
+			if (position < 1)
+				hash = hash*31 + year;
+			if (position < 2)
+				hash = hash*31 + month;
+			hash = ((hash*31 + day)*31 + hour)*31 + minute;
+			return hash*31 + (int)second;
+		}
 		public synchronized String toString() {
 			if (canonical == null) {
 				canonical = type.dateToString(this);
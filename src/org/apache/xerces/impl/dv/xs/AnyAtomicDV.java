@@ -31,6 +31,8 @@ import org.apache.xerces.impl.dv.ValidationContext;
  */
 class AnyAtomicDV extends TypeValidator {
 
+    private static final long serialVersionUID = -2788304172553077565L;
+
     public Object getActualValue(String content, ValidationContext context) throws InvalidDatatypeValueException {
         return content;
     }
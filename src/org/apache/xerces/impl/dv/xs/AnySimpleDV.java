@@ -32,6 +32,8 @@ import org.apache.xerces.impl.dv.ValidationContext;
  */
 public class AnySimpleDV extends TypeValidator {
 
+    private static final long serialVersionUID = -3508889607075574954L;
+
     public Object getActualValue(String content, ValidationContext context) throws InvalidDatatypeValueException {
         return content;
     }
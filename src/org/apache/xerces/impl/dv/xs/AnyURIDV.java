@@ -33,6 +33,8 @@ import org.apache.xerces.util.URI;
  */
 public class AnyURIDV extends TypeValidator {
 
+    private static final long serialVersionUID = -6300213501324226516L;
+
     private static final URI BASE_URI;
     static {
         URI uri = null;
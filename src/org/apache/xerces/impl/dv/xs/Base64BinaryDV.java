@@ -34,6 +34,8 @@ import org.apache.xerces.impl.dv.util.ByteListImpl;
  */
 public class Base64BinaryDV extends TypeValidator {
 
+    private static final long serialVersionUID = 6764676707158694791L;
+
     public Object getActualValue(String content, ValidationContext context) throws InvalidDatatypeValueException {
         byte[] decoded = Base64.decode(content);
         if (decoded == null)
@@ -52,6 +54,8 @@ public class Base64BinaryDV extends TypeValidator {
      */
     private static final class XBase64 extends ByteListImpl {
 
+        private static final long serialVersionUID = -8735852076922340188L;
+
         public XBase64(byte[] data) {
             super(data);
         }
@@ -32,6 +32,8 @@ import org.apache.xerces.impl.dv.ValidationContext;
  */
 public class BooleanDV extends TypeValidator {
 
+    private static final long serialVersionUID = 2701476266062302795L;
+
     public Object getActualValue(String content, ValidationContext context) throws InvalidDatatypeValueException {
         if ("false".equals(content) || "0".equals(content)) {
             return Boolean.FALSE;
@@ -35,6 +35,8 @@ import org.apache.xerces.impl.dv.ValidationContext;
  */
 public class DateDV extends DateTimeDV {
 
+    private static final long serialVersionUID = -5542783900244722679L;
+
     public Object getActualValue(String content, ValidationContext context) throws InvalidDatatypeValueException {
         try{
             return parse(content, context.getTypeValidatorHelper().isXMLSchema11());
@@ -37,6 +37,8 @@ import org.apache.xerces.impl.dv.ValidationContext;
  */
 public class DateTimeDV extends AbstractDateTimeDV {
 
+    private static final long serialVersionUID = 943881176107876231L;
+
     public Object getActualValue(String content, ValidationContext context) throws InvalidDatatypeValueException {
         try{
             return parse(content, context.getTypeValidatorHelper().isXMLSchema11());
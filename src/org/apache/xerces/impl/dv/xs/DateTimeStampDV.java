@@ -29,6 +29,8 @@ import org.apache.xerces.impl.dv.ValidationContext;
  */
 public class DateTimeStampDV extends DateTimeDV {
 
+    private static final long serialVersionUID = -1707534719512540366L;
+
     public Object getActualValue(String content, ValidationContext context) throws InvalidDatatypeValueException {
         try{
             return parse(content, context.getTypeValidatorHelper().isXMLSchema11());
@@ -17,6 +17,7 @@
 
 package org.apache.xerces.impl.dv.xs;
 
+import java.io.Serializable;
 import java.math.BigDecimal;
 import java.math.BigInteger;
 
@@ -36,6 +37,8 @@ import org.apache.xerces.xs.datatypes.XSDecimal;
  */
 public class DecimalDV extends TypeValidator {
 
+    private static final long serialVersionUID = -8501756903923687972L;
+
     public Object getActualValue(String content, ValidationContext context) throws InvalidDatatypeValueException {
         try {
             return new XDecimal(content);
@@ -57,7 +60,10 @@ public class DecimalDV extends TypeValidator {
     }
     
     // Avoid using the heavy-weight java.math.BigDecimal
-    static class XDecimal implements XSDecimal {
+    static class XDecimal implements XSDecimal, Serializable {
+
+        private static final long serialVersionUID = -5742908199114016406L;
+
         // sign: 0 for vlaue 0; 1 for positive values; -1 for negative values
         int sign = 1;
         // total digits. >= 1
@@ -226,6 +232,11 @@ public class DecimalDV extends TypeValidator {
             return intDigits == oval.intDigits && fracDigits == oval.fracDigits &&
                    ivalue.equals(oval.ivalue) && fvalue.equals(oval.fvalue);
         }
+        public int hashCode() {
+            if (sign == 0)
+                return 0;
+            return sign * (ivalue.hashCode() * 31 + fvalue.hashCode());
+        }
         public int compareTo(XDecimal val) {
             if (sign != val.sign)
                 return sign > val.sign ? 1 : -1;
@@ -242,7 +253,7 @@ public class DecimalDV extends TypeValidator {
             ret = fvalue.compareTo(val.fvalue);
             return ret == 0 ? 0 : (ret > 0 ? 1 : -1);
         }
-        private String canonical;
+        private transient String canonical;
         public synchronized String toString() {
             if (canonical == null) {
                 makeCanonical();
@@ -17,6 +17,8 @@
 
 package org.apache.xerces.impl.dv.xs;
 
+import java.io.Serializable;
+
 import org.apache.xerces.impl.dv.InvalidDatatypeValueException;
 import org.apache.xerces.impl.dv.ValidationContext;
 import org.apache.xerces.impl.dv.xs.TypeValidatorHelper.TypeValidatorHelper1_1;
@@ -34,6 +36,8 @@ import org.apache.xerces.xs.datatypes.XSDouble;
  */
 public class DoubleDV extends TypeValidator {
 
+    private static final long serialVersionUID = -55315907793715459L;
+
     //convert a String to Double form, we have to take care of cases specified in spec like INF, -INF and NaN
     public Object getActualValue(String content, ValidationContext context) throws InvalidDatatypeValueException {
         try {
@@ -74,7 +78,10 @@ public class DoubleDV extends TypeValidator {
         return true;
     }
 
-    private static final class XDouble implements XSDouble {
+    private static final class XDouble implements XSDouble, Serializable {
+
+        private static final long serialVersionUID = 2664683520217423717L;
+
         private final double value;
         public XDouble(String s, boolean isSchema11) throws NumberFormatException {
             if (isPossibleFP(s)) {
@@ -166,7 +173,7 @@ public class DoubleDV extends TypeValidator {
             return INDETERMINATE;
         }
 
-        private String canonical;
+        private transient String canonical;
         public synchronized String toString() {
             if (canonical == null) {
                 if (value == Double.POSITIVE_INFINITY)
@@ -35,6 +35,8 @@ import org.apache.xerces.util.XMLChar;
  */
 public class EntityDV extends TypeValidator {
 
+    private static final long serialVersionUID = 3754923446860504692L;
+
     public Object getActualValue(String content, ValidationContext context) throws InvalidDatatypeValueException {
         final boolean valid = (context.getDatatypeXMLVersion() == Constants.XML_VERSION_1_0)
             ? XMLChar.isValidNCName(content) : XML11Char.isXML11ValidNCName(content);
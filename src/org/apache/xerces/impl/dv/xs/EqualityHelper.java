@@ -61,6 +61,25 @@ public class EqualityHelper {
                 value1.itemValueTypes, value2.itemValueTypes);
     }
 
+    /**
+     * Returns a hash code of an actual value which is consistent with
+     * isEqual(): values which are equal have the same hash code, whatever
+     * their types and the schema version.
+     */
+    public static int hashCode(Object value) {
+        if (value == null) {
+            return 0;
+        }
+        if (value instanceof ListData) {
+            // In XML Schema 1.1 a list of one item is equal to the item.
+            final ListData listData = (ListData) value;
+            if (listData.getLength() == 1) {
+                return hashCode(listData.get(0));
+            }
+        }
+        return value.hashCode();
+    }
+
     // private XML Schema 1.0 methods
     private static boolean isEqual(Object value1, Object value2,
             short value1Type, short value2Type,
@@ -31,6 +31,8 @@ import org.apache.xerces.impl.dv.ValidationContext;
  */
 public class ErrorDV extends TypeValidator {
 
+    private static final long serialVersionUID = 1807229465451625428L;
+
     public Object getActualValue(String content, ValidationContext context) throws InvalidDatatypeValueException {
         throw new InvalidDatatypeValueException("cvc-datatype-valid.1.2.1", new Object[]{content, "error"});
     }
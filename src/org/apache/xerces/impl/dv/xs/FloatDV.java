@@ -17,6 +17,8 @@
 
 package org.apache.xerces.impl.dv.xs;
 
+import java.io.Serializable;
+
 import org.apache.xerces.impl.dv.InvalidDatatypeValueException;
 import org.apache.xerces.impl.dv.ValidationContext;
 import org.apache.xerces.impl.dv.xs.TypeValidatorHelper.TypeValidatorHelper1_1;
@@ -34,6 +36,8 @@ import org.apache.xerces.xs.datatypes.XSFloat;
  */
 public class FloatDV extends TypeValidator {
 
+    private static final long serialVersionUID = -8116592827403802240L;
+
     //convert a String to Float form, we have to take care of cases specified in spec like INF, -INF and NaN
     public Object getActualValue(String content, ValidationContext context) throws InvalidDatatypeValueException {
         try {
@@ -57,7 +61,9 @@ public class FloatDV extends TypeValidator {
         return false;
     }//isIdentical()
 
-    private static final class XFloat implements XSFloat {
+    private static final class XFloat implements XSFloat, Serializable {
+
+        private static final long serialVersionUID = 4135629944948016180L;
 
         private final float value;
         public XFloat(String s, boolean isSchema11) throws NumberFormatException {
@@ -146,7 +152,7 @@ public class FloatDV extends TypeValidator {
             return INDETERMINATE;
         }
 
-        private String canonical;
+        private transient String canonical;
         public synchronized String toString() {
             if (canonical == null) {
                 if (value == Float.POSITIVE_INFINITY)
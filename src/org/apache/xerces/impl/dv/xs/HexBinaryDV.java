@@ -34,6 +34,8 @@ import org.apache.xerces.impl.dv.util.HexBin;
  */
 public class HexBinaryDV extends TypeValidator {
 
+    private static final long serialVersionUID = 495708247042890518L;
+
     public Object getActualValue(String content, ValidationContext context) throws InvalidDatatypeValueException {
         byte[] decoded = HexBin.decode(content);
         if (decoded == null)
@@ -49,6 +51,8 @@ public class HexBinaryDV extends TypeValidator {
 
     private static final class XHex extends ByteListImpl {
 
+        private static final long serialVersionUID = -187800593266817059L;
+
         public XHex(byte[] data) {
             super(data);
         }
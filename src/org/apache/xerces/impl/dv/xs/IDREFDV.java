@@ -35,6 +35,8 @@ import org.apache.xerces.util.XMLChar;
  */
 public class IDREFDV extends TypeValidator{
 
+    private static final long serialVersionUID = 6217490416874248530L;
+
     public Object getActualValue(String content, ValidationContext context) throws InvalidDatatypeValueException {
         final boolean valid = (context.getDatatypeXMLVersion() == Constants.XML_VERSION_1_0)
             ? XMLChar.isValidNCName(content) : XML11Char.isXML11ValidNCName(content);
@@ -31,6 +31,8 @@ import org.apache.xerces.impl.dv.ValidationContext;
  */
 public class IntegerDV extends DecimalDV {
 
+    private static final long serialVersionUID = 3651666407208976275L;
+
     public Object getActualValue(String content, ValidationContext context) throws InvalidDatatypeValueException {
         try {
             return new XDecimal(content, true);
@@ -17,6 +17,7 @@
 
 package org.apache.xerces.impl.dv.xs;
 
+import java.io.Serializable;
 import java.util.AbstractList;
 
 import org.apache.xerces.impl.dv.InvalidDatatypeValueException;
@@ -35,6 +36,8 @@ import org.apache.xerces.xs.datatypes.ObjectList;
  */
 public class ListDV extends TypeValidator{
 
+    private static final long serialVersionUID = 8554028910523300222L;
+
     // this method should never be called: XSSimpleTypeDecl is responsible for
     // calling the item type for the convertion
     public Object getActualValue(String content, ValidationContext context) throws InvalidDatatypeValueException{
@@ -46,9 +49,12 @@ public class ListDV extends TypeValidator{
         return ((ListData)value).getLength();
     }
 
-    final static class ListData extends AbstractList implements ObjectList {
+    final static class ListData extends AbstractList implements ObjectList, Serializable {
+
+        private static final long serialVersionUID = 564264906378881959L;
+
         final Object[] data;
-        private String canonical;
+        private transient String canonical;
         public ListData(Object[] data) {
             this.data = data;
         }
@@ -36,6 +36,8 @@ import org.apache.xerces.impl.dv.ValidationContext;
 
 public class MonthDayDV extends AbstractDateTimeDV {
 
+    private static final long serialVersionUID = 7662555323628242699L;
+
     //size without time zone: --MM-DD
     private final static int MONTHDAY_SIZE = 7;
 
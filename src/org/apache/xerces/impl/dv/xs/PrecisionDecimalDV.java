@@ -17,6 +17,8 @@
 
 package org.apache.xerces.impl.dv.xs;
 
+import java.io.Serializable;
+
 import org.apache.xerces.impl.dv.InvalidDatatypeValueException;
 import org.apache.xerces.impl.dv.ValidationContext;
 
@@ -31,7 +33,11 @@ import org.apache.xerces.impl.dv.ValidationContext;
  */
 class PrecisionDecimalDV extends TypeValidator {
 
-    private static class XPrecisionDecimal {
+    private static final long serialVersionUID = -4618187165829116053L;
+
+    private static class XPrecisionDecimal implements Serializable {
+
+        private static final long serialVersionUID = -3373994837374415371L;
 
         // sign: 0 for absent; 1 for positive values; -1 for negative values (except in case of INF, -INF)
         int sign = 1;
@@ -175,6 +181,54 @@ class PrecisionDecimalDV extends TypeValidator {
             return this.compareTo(oval) == EQUAL;
         }
 
+        public int hashCode() {
+            // equal values may have different digits and exponents
+            // (e.g. 1.0 and 10E-1), so hash the significant digits and
+            // the exponent of the first of them
+            if (sign == 0) {
+                return 0x7fc00000;
+            }
+            if (ivalue.equals("INF")) {
+                return 0x7f800000;
+            }
+            if (ivalue.equals("-INF")) {
+                return 0xff800000;
+            }
+            // ivalue has no leading zeros; skip those of fvalue when
+            // there is no integer part
+            int start = 0;
+            if (intDigits == 0) {
+                while (start < fracDigits && fvalue.charAt(start) == '0') {
+                    start++;
+                }
+            }
+            int end = fracDigits;
+            while (end > start && fvalue.charAt(end - 1) == '0') {
+                end--;
+            }
+            if (intDigits == 0 && start == end) {
+                // 0 and -0 are equal
+                return 0;
+            }
+            // the trailing zeros of the integer part are significant
+            // only if the fraction has digits left
+            int intEnd = intDigits;
+            if (start == end) {
+                while (intEnd > 0 && ivalue.charAt(intEnd - 1) == '0') {
+                    intEnd--;
+                }
+            }
+            int hash = 0;
+            for (int i = 0; i < intEnd; i++) {
+                hash = hash * 31 + ivalue.charAt(i);
+            }
+            for (int i = start; i < end; i++) {
+                hash = hash * 31 + fvalue.charAt(i);
+            }
+            final int exponent = intDigits - start + pvalue;
+            return (hash * 31 + exponent) * sign;
+        }
+
         /**
          * @return
          */
@@ -333,7 +387,7 @@ class PrecisionDecimalDV extends TypeValidator {
             return ret == 0 ? EQUAL : (ret > 0 ? GREATER_THAN : LESS_THAN);
         }
 
-        private String canonical;
+        private transient String canonical;
         public synchronized String toString() {
             if (canonical == null) {
                 makeCanonical();
@@ -37,6 +37,8 @@ import org.apache.xerces.xs.datatypes.XSQName;
  */
 public class QNameDV extends TypeValidator {
 
+    private static final long serialVersionUID = -1537434530569767160L;
+
     private static final String EMPTY_STRING = "".intern();
 
     public Object getActualValue(String content, ValidationContext context)
@@ -85,6 +87,9 @@ public class QNameDV extends TypeValidator {
      * represent QName data
      */
     private static final class XQName extends QName implements XSQName {
+
+        private static final long serialVersionUID = -3217476352873630609L;
+
         /** Constructs a QName with the specified values. */
         public XQName(String prefix, String localpart, String rawname, String uri) {
             setValues(prefix, localpart, rawname, uri);
@@ -99,6 +104,12 @@ public class QNameDV extends TypeValidator {
             return false;
         } // equals(Object):boolean
 
+        /** Returns a hash code consistent with equals(Object). */
+        public int hashCode() {
+            return (uri != null ? uri.hashCode() * 31 : 0) +
+                ((localpart != null) ? localpart.hashCode() : 0);
+        } // hashCode():int
+
         public String toString() {
             return rawname;
         }
@@ -32,6 +32,8 @@ import org.apache.xerces.impl.dv.ValidationContext;
  */
 public class StringDV extends TypeValidator {
 
+    private static final long serialVersionUID = -5590099113459206288L;
+
     public Object getActualValue(String content, ValidationContext context)
         throws InvalidDatatypeValueException {
         return content;
@@ -17,6 +17,7 @@
 
 package org.apache.xerces.impl.dv.xs;
 
+import java.io.Serializable;
 import java.security.AccessController;
 import java.security.PrivilegedAction;
 
@@ -37,7 +38,9 @@ import org.apache.xerces.util.XMLChar;
  *
  * @version $Id$
  */
-public abstract class TypeValidator {
+public abstract class TypeValidator implements Serializable {
+
+    private static final long serialVersionUID = -1414482577298500971L;
     
     private static final boolean USE_CODE_POINT_COUNT_FOR_STRING_LENGTH = AccessController.doPrivileged(new PrivilegedAction() {
         public Object run() {
@@ -32,6 +32,8 @@ import org.apache.xerces.impl.dv.ValidationContext;
  */
 public class UnionDV extends TypeValidator{
 
+    private static final long serialVersionUID = 2671882548134641494L;
+
     // this method should never be called: XSSimpleTypeDecl is responsible for
     // calling the member types for the convertion
     public Object getActualValue(String content, ValidationContext context) throws InvalidDatatypeValueException{
@@ -17,6 +17,9 @@
 
 package org.apache.xerces.impl.dv.xs;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.Serializable;
 import java.math.BigInteger;
 import java.util.AbstractList;
 import java.util.Locale;
@@ -62,7 +65,9 @@ import org.w3c.dom.TypeInfo;
  *
  * @version $Id$
  */
-public class XSSimpleTypeDecl implements XSSimpleType, TypeInfo {
+public class XSSimpleTypeDecl implements XSSimpleType, TypeInfo, Serializable {
+
+    private static final long serialVersionUID = -1814045878222894762L;
 
     protected static final short DV_STRING            = PRIMITIVE_STRING;
     protected static final short DV_BOOLEAN           = PRIMITIVE_BOOLEAN;
@@ -252,7 +257,7 @@ public class XSSimpleTypeDecl implements XSSimpleType, TypeInfo {
     protected static TypeValidator[] getGDVs() {
         return (TypeValidator[])gDVs.clone();
     }
-    private TypeValidator[] fDVs = gDVs;
+    private transient TypeValidator[] fDVs = gDVs;
     protected void setDVs(TypeValidator[] dvs) {
         fDVs = dvs;
     }
@@ -295,11 +300,11 @@ public class XSSimpleTypeDecl implements XSSimpleType, TypeInfo {
     private Vector fPatternStr;
     private ValidatedInfo[] fEnumeration;
     private int fEnumerationSize;
-    private ShortList fEnumerationTypeList;
-    private ObjectList fEnumerationItemTypeList;
-    private StringList fLexicalPattern;
-    private StringList fLexicalEnumeration;
-    private ObjectList fActualEnumeration;
+    private transient ShortList fEnumerationTypeList;
+    private transient ObjectList fEnumerationItemTypeList;
+    private transient StringList fLexicalPattern;
+    private transient StringList fLexicalEnumeration;
+    private transient ObjectList fActualEnumeration;
     private Object fMaxInclusive;
     private Object fMaxExclusive;
     private Object fMinExclusive;
@@ -324,10 +329,10 @@ public class XSSimpleTypeDecl implements XSSimpleType, TypeInfo {
     public XSAnnotation explicitTimezoneAnnotation;
 
     // facets as objects
-    private XSObjectListImpl fFacets;
+    private transient XSObjectListImpl fFacets;
 
     // enumeration and pattern facets
-    private XSObjectListImpl fMultiValueFacets;
+    private transient XSObjectListImpl fMultiValueFacets;
 
     // simpleType annotations
     private XSObjectList fAnnotations = null;
@@ -346,6 +351,9 @@ public class XSSimpleTypeDecl implements XSSimpleType, TypeInfo {
     
     // context
     XSObject fContext = null;
+    
+    // the checks of the facets, compiled when the type is built
+    private transient ValidationPlan fValidationPlan;
 
     // default constructor
     public XSSimpleTypeDecl(){}
@@ -379,6 +387,7 @@ public class XSSimpleTypeDecl implements XSSimpleType, TypeInfo {
 
         // Specify the build in kind for this primitive type
         fBuiltInKind = builtInKind;
+        compileValidationPlan();
     }
 
     //Create a new simple type for restriction for built-in types
@@ -454,6 +463,7 @@ public class XSSimpleTypeDecl implements XSSimpleType, TypeInfo {
 
         //we also set fundamental facets information in case applyFacets is not called.
         calcFundamentalFacets();
+        compileValidationPlan();
         fIsImmutable = isImmutable;
 
         // Inherit from the base type
@@ -477,6 +487,7 @@ public class XSSimpleTypeDecl implements XSSimpleType, TypeInfo {
 
         //setting fundamental facets
         calcFundamentalFacets();
+        compileValidationPlan();
         fIsImmutable = isImmutable;
 
         // Values of this type are lists
@@ -504,6 +515,7 @@ public class XSSimpleTypeDecl implements XSSimpleType, TypeInfo {
 
         //setting fundamental facets
         calcFundamentalFacets();
+        compileValidationPlan();
         // none of the schema-defined types are unions, so just set
         // fIsImmutable to false.
         fIsImmutable = false;
@@ -562,6 +574,7 @@ public class XSSimpleTypeDecl implements XSSimpleType, TypeInfo {
 
         //we also set fundamental facets information in case applyFacets is not called.
         calcFundamentalFacets();
+        compileValidationPlan();
 
         // Inherit from the base type
         fBuiltInKind = base.fBuiltInKind;
@@ -589,6 +602,7 @@ public class XSSimpleTypeDecl implements XSSimpleType, TypeInfo {
 
         //setting fundamental facets
         calcFundamentalFacets();
+        compileValidationPlan();
 
         // Values of this type are lists
         fBuiltInKind = XSConstants.LIST_DT;
@@ -620,6 +634,7 @@ public class XSSimpleTypeDecl implements XSSimpleType, TypeInfo {
 
         //setting fundamental facets
         calcFundamentalFacets();
+        compileValidationPlan();
 
         // No value can be of this type, so it's unavailable.
         fBuiltInKind = XSConstants.UNAVAILABLE_DT;
@@ -1726,6 +1741,7 @@ public class XSSimpleTypeDecl implements XSSimpleType, TypeInfo {
 
         //step 6: setting fundamental facets
         calcFundamentalFacets();
+        compileValidationPlan();
 
     } //applyFacets()
 
@@ -1821,8 +1837,7 @@ public class XSSimpleTypeDecl implements XSSimpleType, TypeInfo {
             context = fEmptyContext;
 
         // then validate the actual value against the facets
-        if (context.needFacetChecking() &&
-                (fFacetsDefined != 0 && fFacetsDefined != FACET_WHITESPACE)) {
+        if (context.needFacetChecking() && fValidationPlan.fCheckFacets) {
             checkFacets(validatedInfo, context);
         }
 
@@ -1837,146 +1852,127 @@ public class XSSimpleTypeDecl implements XSSimpleType, TypeInfo {
 
         Object ob = validatedInfo.actualValue;
         String content = validatedInfo.normalizedValue;
-        final short schemaVersion = (context.getTypeValidatorHelper().isXMLSchema11()) ? Constants.SCHEMA_VERSION_1_1 : Constants.SCHEMA_VERSION_1_0;
 
         // For QName and NOTATION types, we don't check length facets
-        if (fValidationDV != DV_QNAME && fValidationDV != DV_NOTATION) {
-            int length = fDVs[fValidationDV].getDataLength(ob);
+        int length = fValidationPlan.fCheckLength ? fDVs[fValidationDV].getDataLength(ob) : 0;
+        int compare;
 
-            // maxLength
-            if ( (fFacetsDefined & FACET_MAXLENGTH) != 0 ) {
+        // the facets are checked in the order of the plan, which skips the facets not defined
+        final short[] facetChecks = fValidationPlan.fFacetChecks;
+        for (int check = 0; check < facetChecks.length; check++) {
+            switch (facetChecks[check]) {
+
+            case FACET_MAXLENGTH:
                 if ( length > fMaxLength ) {
                     throw new InvalidDatatypeValueException("cvc-maxLength-valid",
                             new Object[]{content, Integer.toString(length), Integer.toString(fMaxLength), fTypeName});
                 }
-            }
+                break;
 
-            //minLength
-            if ( (fFacetsDefined & FACET_MINLENGTH) != 0 ) {
+            case FACET_MINLENGTH:
                 if ( length < fMinLength ) {
                     throw new InvalidDatatypeValueException("cvc-minLength-valid",
                             new Object[]{content, Integer.toString(length), Integer.toString(fMinLength), fTypeName});
                 }
-            }
+                break;
 
-            //length
-            if ( (fFacetsDefined & FACET_LENGTH) != 0 ) {
+            case FACET_LENGTH:
                 if ( length != fLength ) {
                     throw new InvalidDatatypeValueException("cvc-length-valid",
                             new Object[]{content, Integer.toString(length), Integer.toString(fLength), fTypeName});
                 }
-            }
-        }
+                break;
 
-        //enumeration
-        if ( ((fFacetsDefined & FACET_ENUMERATION) != 0 ) ) {
-            boolean present = false;
-            final int enumSize = fEnumerationSize;
-            for (int i = 0; i < enumSize; i++) {
-                if (EqualityHelper.isEqual(validatedInfo, fEnumeration[i], schemaVersion)) {
-                    present = true;
-                    break;
+            case FACET_ENUMERATION:
+                if(!fValidationPlan.isEnumerated(validatedInfo, fEnumeration, context)){
+                    StringBuffer sb = new StringBuffer();
+                    appendEnumString(sb);
+                    throw new InvalidDatatypeValueException("cvc-enumeration-valid",
+                            new Object [] {content, sb.toString()});
                 }
-            }
+                break;
 
-            if(!present){
-                StringBuffer sb = new StringBuffer();
-                appendEnumString(sb);
-                throw new InvalidDatatypeValueException("cvc-enumeration-valid",
-                        new Object [] {content, sb.toString()});
-            }
-        }
+            case FACET_FRACTIONDIGITS:
+                int fracDigits = fDVs[fValidationDV].getFractionDigits(ob);
+                if (fracDigits > fFractionDigits) {
+                    throw new InvalidDatatypeValueException("cvc-fractionDigits-valid",
+                            new Object[] {content, Integer.toString(fracDigits), Integer.toString(fFractionDigits)});
+                }
+                break;
 
-        //fractionDigits
-        if ((fFacetsDefined & FACET_FRACTIONDIGITS) != 0) {
-            int fracDigits = fDVs[fValidationDV].getFractionDigits(ob);
-            if (fracDigits > fFractionDigits) {
-                throw new InvalidDatatypeValueException("cvc-fractionDigits-valid",
-                        new Object[] {content, Integer.toString(fracDigits), Integer.toString(fFractionDigits)});
-            }
-        }
+            case FACET_TOTALDIGITS:
+                int totalDigits = fDVs[fValidationDV].getTotalDigits(ob);
+                if (totalDigits > fTotalDigits) {
+                    throw new InvalidDatatypeValueException("cvc-totalDigits-valid",
+                            new Object[] {content, Integer.toString(totalDigits), Integer.toString(fTotalDigits)});
+                }
+                break;
 
-        //totalDigits
-        if ((fFacetsDefined & FACET_TOTALDIGITS)!=0) {
-            int totalDigits = fDVs[fValidationDV].getTotalDigits(ob);
-            if (totalDigits > fTotalDigits) {
-                throw new InvalidDatatypeValueException("cvc-totalDigits-valid",
-                        new Object[] {content, Integer.toString(totalDigits), Integer.toString(fTotalDigits)});
-            }
-        }
-        
-        //maxScale      
-        if ((fFacetsDefined & FACET_MAXSCALE) != 0) {
-            if (fDVs[fValidationDV].hasPrecision(ob)) {
-                int precision = fDVs[fValidationDV].getPrecision(ob);
-                if (precision > fMaxScale){
-                    throw new InvalidDatatypeValueException("cvc-maxScale-valid",
-                            new Object[] {content, Integer.toString(fMaxScale), fTypeName, Integer.toString(precision)});
+            case FACET_MAXSCALE:
+                if (fDVs[fValidationDV].hasPrecision(ob)) {
+                    int precision = fDVs[fValidationDV].getPrecision(ob);
+                    if (precision > fMaxScale){
+                        throw new InvalidDatatypeValueException("cvc-maxScale-valid",
+                                new Object[] {content, Integer.toString(fMaxScale), fTypeName, Integer.toString(precision)});
+                    }
                 }
-            }
-        } 
-        
-        //minScale      
-        if ((fFacetsDefined & FACET_MINSCALE) != 0) {            
-            if (fDVs[fValidationDV].hasPrecision(ob)) {
-                int precision = fDVs[fValidationDV].getPrecision(ob);
-                if (precision < fMinScale){
-                    throw new InvalidDatatypeValueException("cvc-minScale-valid",
-                            new Object[] {content, Integer.toString(fMinScale), fTypeName, Integer.toString(precision)} );
+                break;
+
+            case FACET_MINSCALE:
+                if (fDVs[fValidationDV].hasPrecision(ob)) {
+                    int precision = fDVs[fValidationDV].getPrecision(ob);
+                    if (precision < fMinScale){
+                        throw new InvalidDatatypeValueException("cvc-minScale-valid",
+                                new Object[] {content, Integer.toString(fMinScale), fTypeName, Integer.toString(precision)} );
+                    }
                 }
-            }
-        }
-        
-        //explicitTimezone
-        if ( ( fFacetsDefined & FACET_EXPLICITTIMEZONE) !=0 ) {
-            boolean hasTimezone = fDVs[fValidationDV].hasTimeZone(ob);
-            if (hasTimezone) {
-                if (fExplicitTimezone == ET_PROHIBITED ) {
+                break;
+
+            case FACET_EXPLICITTIMEZONE:
+                boolean hasTimezone = fDVs[fValidationDV].hasTimeZone(ob);
+                if (hasTimezone) {
+                    if (fExplicitTimezone == ET_PROHIBITED ) {
+                        throw new InvalidDatatypeValueException("cvc-explicitTimezone-valid",
+                            new Object[] {content, "prohibited", fTypeName});
+                    }
+                }
+                else if (fExplicitTimezone == ET_REQUIRED) {
                     throw new InvalidDatatypeValueException("cvc-explicitTimezone-valid",
-                        new Object[] {content, "prohibited", fTypeName});
+                            new Object[] {content, "required", fTypeName});
                 }
-            }
-            else if (fExplicitTimezone == ET_REQUIRED) {
-                throw new InvalidDatatypeValueException("cvc-explicitTimezone-valid",
-                        new Object[] {content, "required", fTypeName});
-            }
-        }
-        
-        int compare;
+                break;
 
-        //maxinclusive
-        if ( (fFacetsDefined & FACET_MAXINCLUSIVE) != 0 ) {
-            compare = fDVs[fValidationDV].compare(ob, fMaxInclusive);
-            if (compare != -1 && compare != 0) {
-                throw new InvalidDatatypeValueException("cvc-maxInclusive-valid",
-                        new Object[] {content, fMaxInclusive, fTypeName});
-            }
-        }
+            case FACET_MAXINCLUSIVE:
+                compare = fDVs[fValidationDV].compare(ob, fMaxInclusive);
+                if (compare != -1 && compare != 0) {
+                    throw new InvalidDatatypeValueException("cvc-maxInclusive-valid",
+                            new Object[] {content, fMaxInclusive, fTypeName});
+                }
+                break;
 
-        //maxExclusive
-        if ( (fFacetsDefined & FACET_MAXEXCLUSIVE) != 0 ) {
-            compare = fDVs[fValidationDV].compare(ob, fMaxExclusive );
-            if (compare != -1) {
-                throw new InvalidDatatypeValueException("cvc-maxExclusive-valid",
-                        new Object[] {content, fMaxExclusive, fTypeName});
-            }
-        }
+            case FACET_MAXEXCLUSIVE:
+                compare = fDVs[fValidationDV].compare(ob, fMaxExclusive );
+                if (compare != -1) {
+                    throw new InvalidDatatypeValueException("cvc-maxExclusive-valid",
+                            new Object[] {content, fMaxExclusive, fTypeName});
+                }
+                break;
 
-        //minInclusive
-        if ( (fFacetsDefined & FACET_MININCLUSIVE) != 0 ) {
-            compare = fDVs[fValidationDV].compare(ob, fMinInclusive);
-            if (compare != 1 && compare != 0) {
-                throw new InvalidDatatypeValueException("cvc-minInclusive-valid",
-                        new Object[] {content, fMinInclusive, fTypeName});
-            }
-        }
+            case FACET_MININCLUSIVE:
+                compare = fDVs[fValidationDV].compare(ob, fMinInclusive);
+                if (compare != 1 && compare != 0) {
+                    throw new InvalidDatatypeValueException("cvc-minInclusive-valid",
+                            new Object[] {content, fMinInclusive, fTypeName});
+                }
+                break;
 
-        //minExclusive
-        if ( (fFacetsDefined & FACET_MINEXCLUSIVE) != 0 ) {
-            compare = fDVs[fValidationDV].compare(ob, fMinExclusive);
-            if (compare != 1) {
-                throw new InvalidDatatypeValueException("cvc-minExclusive-valid",
-                        new Object[] {content, fMinExclusive, fTypeName});
+            case FACET_MINEXCLUSIVE:
+                compare = fDVs[fValidationDV].compare(ob, fMinExclusive);
+                if (compare != 1) {
+                    throw new InvalidDatatypeValueException("cvc-minExclusive-valid",
+                            new Object[] {content, fMinExclusive, fTypeName});
+                }
+                break;
             }
         }
 
@@ -2034,17 +2030,14 @@ public class XSSimpleTypeDecl implements XSSimpleType, TypeInfo {
         } else {
             nvalue = content.toString();
         }
-        if ( (fFacetsDefined & FACET_PATTERN ) != 0 ) {
-            RegularExpression regex;
-            for (int idx = fPattern.size()-1; idx >= 0; idx--) {
-                regex = (RegularExpression)fPattern.elementAt(idx);
-                if (!regex.matches(nvalue)){
-                    throw new InvalidDatatypeValueException("cvc-pattern-valid",
-                            new Object[]{content,
-                            fPatternStr.elementAt(idx),
+        final RegularExpression[] patterns = fValidationPlan.fPatterns;
+        for (int idx = 0; idx < patterns.length; idx++) {
+            if (!patterns[idx].matches(nvalue)){
+                throw new InvalidDatatypeValueException("cvc-pattern-valid",
+                        new Object[]{content,
+                        fValidationPlan.fPatternStrs[idx],
 
-                            fTypeName});
-                }
+                        fTypeName});
             }
         }
 
@@ -2112,8 +2105,7 @@ public class XSSimpleTypeDecl implements XSSimpleType, TypeInfo {
                 // 1. fItemType.getActualValue()
                 // 2. fItemType.chekcFacets()
                 avalue[i] = fItemType.getActualValue(parsedList.nextToken(), context, validatedInfo, false, enumerationValidation);
-                if (context.needFacetChecking() &&
-                        (fItemType.fFacetsDefined != 0 && fItemType.fFacetsDefined != FACET_WHITESPACE)) {
+                if (context.needFacetChecking() && fItemType.fValidationPlan.fCheckFacets) {
                     fItemType.checkFacets(validatedInfo, context);
                 }
                 memberTypes[i] = (XSSimpleTypeDecl)validatedInfo.memberType;
@@ -2144,8 +2136,7 @@ public class XSSimpleTypeDecl implements XSSimpleType, TypeInfo {
                     // 1. fMemberType[i].getActualValue()
                     // 2. fMemberType[i].chekcFacets()
                     Object aValue = fMemberTypes[i].getActualValue(_content, context, validatedInfo, true, enumerationValidation);
-                    if (context.needFacetChecking() &&
-                            (fMemberTypes[i].fFacetsDefined != 0 && fMemberTypes[i].fFacetsDefined != FACET_WHITESPACE)) {
+                    if (context.needFacetChecking() && fMemberTypes[i].fValidationPlan.fCheckFacets) {
                         fMemberTypes[i].checkFacets(validatedInfo, context);
                     }
 
@@ -2614,6 +2605,11 @@ public class XSSimpleTypeDecl implements XSSimpleType, TypeInfo {
         setCardinality();
     }
 
+    // compile the checks of the facets, once they are all set
+    private void compileValidationPlan() {
+        fValidationPlan = new ValidationPlan(this);
+    }
+
     private void setOrdered(){
 
         // When {variety} is atomic, {value} is inherited from {value} of {base type definition}. For all "primitive" types {value} is as specified in the table in Fundamental Facets (C.1).
@@ -3263,6 +3259,7 @@ public class XSSimpleTypeDecl implements XSSimpleType, TypeInfo {
         fPattern = null;
         fPatternStr = null;
         fEnumeration = null;
+        fValidationPlan = null;
         fLexicalPattern = null;
         fLexicalEnumeration = null;
         fActualEnumeration = null;
@@ -3587,6 +3584,136 @@ public class XSSimpleTypeDecl implements XSSimpleType, TypeInfo {
         fAnonymous = anon;
     }
 
+    /**
+     * The validators are shared by all the simple types and are not
+     * written with them: the type reads the built-in validators back.
+     */
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        fDVs = gDVs;
+        compileValidationPlan();
+    }
+
+    /**
+     * The checks done by the validation of a value, compiled from the facets
+     * of a simple type once the type is built. The facets to check are listed
+     * in the order in which they are checked, the patterns are held in
+     * arrays rather than in vectors, and the enumeration values are indexed
+     * by the hash codes of their actual values.
+     */
+    private static final class ValidationPlan {
+
+        /** The facets checked on the actual value, in the order of the checks. */
+        private static final short[] FACET_CHECK_ORDER = {
+            FACET_MAXLENGTH, FACET_MINLENGTH, FACET_LENGTH, FACET_ENUMERATION,
+            FACET_FRACTIONDIGITS, FACET_TOTALDIGITS, FACET_MAXSCALE, FACET_MINSCALE,
+            FACET_EXPLICITTIMEZONE, FACET_MAXINCLUSIVE, FACET_MAXEXCLUSIVE,
+            FACET_MININCLUSIVE, FACET_MINEXCLUSIVE
+        };
+
+        private static final short LENGTH_FACETS = FACET_LENGTH | FACET_MINLENGTH | FACET_MAXLENGTH;
+
+        private static final RegularExpression[] NO_PATTERNS = new RegularExpression[0];
+
+        /** Whether the actual value is checked against facets. */
+        final boolean fCheckFacets;
+
+        /** Whether the length of the actual value is checked. */
+        final boolean fCheckLength;
+
+        /** The facets checked on the actual value. */
+        final short[] fFacetChecks;
+
+        /** The patterns matched by the normalized value, and their strings. */
+        final RegularExpression[] fPatterns;
+        final Object[] fPatternStrs;
+
+        /**
+         * Hash index of the enumeration values. Each bucket holds the index + 1
+         * of the last value added to it, or 0, and fEnumerationNext the index + 1
+         * of the previous value of the same bucket.
+         */
+        final int[] fEnumerationBuckets;
+        final int[] fEnumerationNext;
+        final int[] fEnumerationHashCodes;
+
+        ValidationPlan(XSSimpleTypeDecl type) {
+            final short facetsDefined = type.fFacetsDefined;
+            fCheckFacets = facetsDefined != 0 && facetsDefined != FACET_WHITESPACE;
+            
+            // For QName and NOTATION types, we don't check length facets
+            final boolean checkLength = (facetsDefined & LENGTH_FACETS) != 0 &&
+                type.fValidationDV != DV_QNAME && type.fValidationDV != DV_NOTATION;
+            int count = 0;
+            short[] facetChecks = new short[FACET_CHECK_ORDER.length];
+            for (int i = 0; i < FACET_CHECK_ORDER.length; i++) {
+                final short facet = FACET_CHECK_ORDER[i];
+                if ((facetsDefined & facet) != 0 && (checkLength || (facet & LENGTH_FACETS) == 0)) {
+                    facetChecks[count++] = facet;
+                }
+            }
+            fCheckLength = checkLength;
+            fFacetChecks = new short[count];
+            System.arraycopy(facetChecks, 0, fFacetChecks, 0, count);
+            
+            // the patterns are matched from the last one to the first one
+            if ((facetsDefined & FACET_PATTERN) != 0 && type.fPattern != null) {
+                final int size = type.fPattern.size();
+                fPatterns = new RegularExpression[size];
+                fPatternStrs = new Object[size];
+                for (int i = 0; i < size; i++) {
+                    fPatterns[i] = (RegularExpression) type.fPattern.elementAt(size - 1 - i);
+                    fPatternStrs[i] = type.fPatternStr.elementAt(size - 1 - i);
+                }
+            }
+            else {
+                fPatterns = NO_PATTERNS;
+                fPatternStrs = NO_PATTERNS;
+            }
+            
+            // the hash codes of equal values are the same, whatever their types and the schema version
+            if ((facetsDefined & FACET_ENUMERATION) != 0 && type.fEnumeration != null) {
+                final int size = type.fEnumerationSize;
+                int buckets = 16;
+                while (buckets < 2 * size) {
+                    buckets <<= 1;
+                }
+                fEnumerationBuckets = new int[buckets];
+                fEnumerationNext = new int[size];
+                fEnumerationHashCodes = new int[size];
+                for (int i = 0; i < size; i++) {
+                    final int hash = EqualityHelper.hashCode(type.fEnumeration[i].actualValue);
+                    final int bucket = hash & (buckets - 1);
+                    fEnumerationHashCodes[i] = hash;
+                    fEnumerationNext[i] = fEnumerationBuckets[bucket];
+                    fEnumerationBuckets[bucket] = i + 1;
+                }
+            }
+            else {
+                fEnumerationBuckets = null;
+                fEnumerationNext = null;
+                fEnumerationHashCodes = null;
+            }
+        }
+
+        /**
+         * Returns true if a value is equal to one of the enumeration values.
+         * Only the values with the same hash code are compared to it.
+         */
+        boolean isEnumerated(ValidatedInfo validatedInfo, ValidatedInfo[] enumeration, ValidationContext context) {
+            final short schemaVersion = (context.getTypeValidatorHelper().isXMLSchema11()) ? Constants.SCHEMA_VERSION_1_1 : Constants.SCHEMA_VERSION_1_0;
+            final int hash = EqualityHelper.hashCode(validatedInfo.actualValue);
+            int entry = fEnumerationBuckets[hash & (fEnumerationBuckets.length - 1)];
+            for (; entry != 0; entry = fEnumerationNext[entry - 1]) {
+                if (fEnumerationHashCodes[entry - 1] == hash &&
+                        EqualityHelper.isEqual(validatedInfo, enumeration[entry - 1], schemaVersion)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
     private static final class XSFacetImpl implements XSFacet {
         final short kind;
         final String svalue;
@@ -0,0 +1,393 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.xerces.impl.io;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.util.Locale;
+
+import org.apache.xerces.impl.msg.XMLMessageFormatter;
+import org.apache.xerces.util.MessageFormatter;
+
+/**
+ * A reader which decodes characters directly from a
+ * <code>java.nio.ByteBuffer</code> (for instance a memory mapped file)
+ * into the caller's character array. Unlike the stream based readers
+ * there is no intermediate byte array: the bytes are read where they
+ * are and copied exactly once, as characters.
+ * <p>
+ * The byte buffer is shared with the entity manager: its position is
+ * always just past the last byte which was decoded, so that another
+ * reader may continue from there if the encoding changes.
+ * <p>
+ * Subclasses may override <code>mayReadChunks()</code> to restrict
+ * reads to a single character at a time, which is needed while the
+ * XML or text declaration is scanned and the encoding isn't yet known
+ * for certain.
+ *
+ * @xerces.internal
+ *
+ * @version $Id$
+ */
+public class ByteBufferReader
+    extends Reader {
+
+    //
+    // Data
+    //
+
+    /** The bytes to decode. */
+    protected final ByteBuffer fBuffer;
+
+    /** The decoder. */
+    private final CharsetDecoder fDecoder;
+
+    /** Whether the encoding is US-ASCII. */
+    private final boolean fASCII;
+
+    /** Whether the encoding is UTF-8. */
+    private final boolean fUTF8;
+
+    /** Wrapper around the last character array read into. */
+    private CharBuffer fOut;
+
+    /** Low surrogate decoded but not yet returned, or -1. */
+    private int fSurrogate = -1;
+
+    /** Scratch buffer for single character reads. */
+    private final char[] fSingleChar = new char[2];
+
+    // message formatter; used to produce localized
+    // exception messages
+    private final MessageFormatter fFormatter;
+
+    //Locale to use for messages
+    private final Locale fLocale;
+
+    //
+    // Constructors
+    //
+
+    /**
+     * Constructs a reader which decodes the bytes remaining in the
+     * given buffer using the given character set.
+     *
+     * @param buffer           The byte buffer.
+     * @param charset          The character set of the bytes.
+     * @param messageFormatter The MessageFormatter to use to message reporting.
+     * @param locale           The Locale for which messages are to be reported.
+     */
+    public ByteBufferReader(ByteBuffer buffer, Charset charset,
+            MessageFormatter messageFormatter, Locale locale) {
+        fBuffer = buffer;
+        fDecoder = charset.newDecoder();
+        fDecoder.onMalformedInput(CodingErrorAction.REPORT);
+        fDecoder.onUnmappableCharacter(CodingErrorAction.REPORT);
+        fASCII = charset.name().equals("US-ASCII");
+        fUTF8 = charset.name().equals("UTF-8");
+        fFormatter = messageFormatter;
+        fLocale = locale;
+    } // <init>(ByteBuffer, Charset, MessageFormatter, Locale)
+
+    //
+    // Reader methods
+    //
+
+    /**
+     * Read a single character.  This method will block until a character is
+     * available, an I/O error occurs, or the end of the stream is reached.
+     *
+     * @return     The character read, as an integer in the range 0 to 65535
+     *             (<tt>0x00-0xffff</tt>), or -1 if the end of the stream has
+     *             been reached
+     *
+     * @exception  IOException  If an I/O error occurs
+     */
+    public int read() throws IOException {
+        int count = read(fSingleChar, 0, 1);
+        return (count == -1) ? -1 : fSingleChar[0];
+    } // read():int
+
+    /**
+     * Read characters into a portion of an array.  This method will block
+     * until some input is available, an I/O error occurs, or the end of the
+     * stream is reached.
+     *
+     * @param      ch     Destination buffer
+     * @param      offset Offset at which to start storing characters
+     * @param      length Maximum number of characters to read
+     *
+     * @return     The number of characters read, or -1 if the end of the
+     *             stream has been reached
+     *
+     * @exception  IOException  If an I/O error occurs
+     */
+    public int read(char ch[], int offset, int length) throws IOException {
+        if (length <= 0) {
+            return 0;
+        }
+        // return the second half of a surrogate pair
+        // which didn't fit into the previous read
+        if (fSurrogate != -1) {
+            ch[offset] = (char) fSurrogate;
+            fSurrogate = -1;
+            return 1;
+        }
+        if (!mayReadChunks()) {
+            length = 1;
+        }
+        if (!fBuffer.hasRemaining()) {
+            return -1;
+        }
+
+        CharBuffer out = fOut;
+        if (out == null || out.array() != ch) {
+            fOut = out = CharBuffer.wrap(ch);
+        }
+        out.limit(offset + length);
+        out.position(offset);
+        CoderResult result = fDecoder.decode(fBuffer, out, true);
+        int count = out.position() - offset;
+        if (count == 0) {
+            if (result.isOverflow()) {
+                // a surrogate pair doesn't fit; decode it separately
+                // and keep the low surrogate for the next read
+                CharBuffer pair = CharBuffer.wrap(fSingleChar);
+                result = fDecoder.decode(fBuffer, pair, true);
+                if (pair.position() == 2) {
+                    ch[offset] = fSingleChar[0];
+                    fSurrogate = fSingleChar[1];
+                    return 1;
+                }
+            }
+            if (result.isError()) {
+                reportError();
+            }
+            if (!fBuffer.hasRemaining()) {
+                return -1;
+            }
+        }
+        // any error is reported on the next read, after the
+        // characters preceding it have been returned
+        return count;
+    } // read(char[],int,int)
+
+    /**
+     * Skip characters.  This method will block until some characters are
+     * available, an I/O error occurs, or the end of the stream is reached.
+     *
+     * @param  n  The number of characters to skip
+     *
+     * @return    The number of characters actually skipped
+     *
+     * @exception  IOException  If an I/O error occurs
+     */
+    public long skip(long n) throws IOException {
+        long skipped = 0;
+        char[] scratch = new char[(int) Math.min(n, 256)];
+        while (skipped < n) {
+            int count = read(scratch, 0, (int) Math.min(n - skipped, scratch.length));
+            if (count == -1) {
+                break;
+            }
+            skipped += count;
+        }
+        return skipped;
+    } // skip(long):long
+
+    /**
+     * Tell whether this stream is ready to be read.
+     *
+     * @return True if the next read() is guaranteed not to block for input,
+     * false otherwise.  Note that returning false does not guarantee that the
+     * next read will block.
+     *
+     * @exception  IOException  If an I/O error occurs
+     */
+    public boolean ready() throws IOException {
+        return fSurrogate != -1 || fBuffer.hasRemaining();
+    } // ready()
+
+    /**
+     * Tell whether this stream supports the mark() operation.
+     */
+    public boolean markSupported() {
+        return false;
+    } // markSupported()
+
+    /**
+     * Close the stream. The byte buffer belongs to the input
+     * source so nothing is released here.
+     *
+     * @exception  IOException  If an I/O error occurs
+     */
+    public void close() throws IOException {
+        fOut = null;
+    } // close()
+
+    //
+    // Protected methods
+    //
+
+    /**
+     * Returns true if a read may decode as many characters as requested.
+     * If false, at most one character is returned by each read.
+     */
+    protected boolean mayReadChunks() {
+        return true;
+    } // mayReadChunks():boolean
+
+    //
+    // Private methods
+    //
+
+    /** Throws an exception for a malformed or unmappable byte sequence. */
+    private void reportError() throws MalformedByteSequenceException {
+        if (fASCII) {
+            throw new MalformedByteSequenceException(fFormatter,
+                fLocale,
+                XMLMessageFormatter.XML_DOMAIN,
+                "InvalidASCII",
+                new Object [] {Integer.toString(fBuffer.get(fBuffer.position()) & 0xFF)});
+        }
+        if (fUTF8) {
+            checkUTF8Sequence();
+        }
+        throw new MalformedByteSequenceException(fFormatter,
+            fLocale,
+            XMLMessageFormatter.XML_DOMAIN,
+            "CharConversionFailure",
+            null);
+    } // reportError()
+
+    /**
+     * Throws the exception the UTF-8 stream reader would throw for the
+     * malformed byte sequence at the position of the buffer, so that the
+     * errors reported don't depend on the type of the input source.
+     * Returns if the bytes are not malformed as far as that reader is
+     * concerned.
+     */
+    private void checkUTF8Sequence() throws MalformedByteSequenceException {
+        final int position = fBuffer.position();
+        final int limit = fBuffer.limit();
+        int b0 = fBuffer.get(position) & 0xFF;
+
+        // UTF-8:   [110y yyyy] [10xx xxxx]
+        if ((b0 & 0xE0) == 0xC0 && (b0 & 0x1E) != 0) {
+            if (position + 1 >= limit) {
+                expectedByte(2, 2);
+            }
+            int b1 = fBuffer.get(position + 1) & 0xFF;
+            if ((b1 & 0xC0) != 0x80) {
+                invalidByte(2, 2);
+            }
+            return;
+        }
+
+        // UTF-8:   [1110 zzzz] [10yy yyyy] [10xx xxxx]
+        if ((b0 & 0xF0) == 0xE0) {
+            if (position + 1 >= limit) {
+                expectedByte(2, 3);
+            }
+            int b1 = fBuffer.get(position + 1) & 0xFF;
+            if ((b1 & 0xC0) != 0x80
+                || (b0 == 0xED && b1 >= 0xA0)
+                || ((b0 & 0x0F) == 0 && (b1 & 0x20) == 0)) {
+                invalidByte(2, 3);
+            }
+            if (position + 2 >= limit) {
+                expectedByte(3, 3);
+            }
+            int b2 = fBuffer.get(position + 2) & 0xFF;
+            if ((b2 & 0xC0) != 0x80) {
+                invalidByte(3, 3);
+            }
+            return;
+        }
+
+        // UTF-8:   [1111 0uuu] [10uu zzzz] [10yy yyyy] [10xx xxxx]
+        if ((b0 & 0xF8) == 0xF0) {
+            if (position + 1 >= limit) {
+                expectedByte(2, 4);
+            }
+            int b1 = fBuffer.get(position + 1) & 0xFF;
+            if ((b1 & 0xC0) != 0x80
+                || ((b1 & 0x30) == 0 && (b0 & 0x07) == 0)) {
+                invalidByte(2, 4);
+            }
+            if (position + 2 >= limit) {
+                expectedByte(3, 4);
+            }
+            int b2 = fBuffer.get(position + 2) & 0xFF;
+            if ((b2 & 0xC0) != 0x80) {
+                invalidByte(3, 4);
+            }
+            if (position + 3 >= limit) {
+                expectedByte(4, 4);
+            }
+            int b3 = fBuffer.get(position + 3) & 0xFF;
+            if ((b3 & 0xC0) != 0x80) {
+                invalidByte(4, 4);
+            }
+            int uuuuu = ((b0 << 2) & 0x001C) | ((b1 >> 4) & 0x0003);
+            if (uuuuu > 0x10) {
+                throw new MalformedByteSequenceException(fFormatter,
+                    fLocale,
+                    XMLMessageFormatter.XML_DOMAIN,
+                    "InvalidHighSurrogate",
+                    new Object[] {Integer.toHexString(uuuuu)});
+            }
+            return;
+        }
+
+        if (b0 >= 0x80) {
+            invalidByte(1, 1);
+        }
+    } // checkUTF8Sequence()
+
+    /** Throws an exception for expected byte. */
+    private void expectedByte(int position, int count)
+        throws MalformedByteSequenceException {
+
+        throw new MalformedByteSequenceException(fFormatter,
+            fLocale,
+            XMLMessageFormatter.XML_DOMAIN,
+            "ExpectedByte",
+            new Object[] {Integer.toString(position), Integer.toString(count)});
+
+    } // expectedByte(int,int)
+
+    /** Throws an exception for invalid byte. */
+    private void invalidByte(int position, int count)
+        throws MalformedByteSequenceException {
+
+        throw new MalformedByteSequenceException(fFormatter,
+            fLocale,
+            XMLMessageFormatter.XML_DOMAIN,
+            "InvalidByte",
+            new Object [] {Integer.toString(position), Integer.toString(count)});
+
+    } // invalidByte(int,int)
+
+} // class ByteBufferReader
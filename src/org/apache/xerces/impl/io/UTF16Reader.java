@@ -125,6 +125,15 @@ public final class UTF16Reader
         fLocale = locale;
     } // <init>(InputStream, byte[], boolean, MessageFormatter, Locale)
     
+    //
+    // Public methods
+    //
+    
+    /** Returns true if the bytes are read in big endian order. */
+    public boolean isBigEndian() {
+        return fIsBigEndian;
+    } // isBigEndian():boolean
+    
     //
     // Reader methods
     //
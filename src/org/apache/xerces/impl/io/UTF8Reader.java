@@ -289,6 +289,7 @@ public final class UTF8Reader
         // read bytes
         int out = offset;
         int count = 0;
+        int total;
         if (fOffset == 0) {
             // adjust length to read
             if (length > fBuffer.length) {
@@ -303,11 +304,12 @@ public final class UTF8Reader
             }
 
             // perform read operation
-            count = fInputStream.read(fBuffer, 0, length);
-            if (count == -1) {
-                return -1;
+            total = fInputStream.read(fBuffer, 0, length);
+            if (total == -1) {
+                // the low surrogate saved by the last read is all that's left
+                return out > offset ? 1 : -1;
             }
-            count += out - offset;
+            count = total + out - offset;
         }
 
         // skip read; last character was in error
@@ -318,24 +320,15 @@ public final class UTF8Reader
         //       allow the method to return the most valid characters that
         //       it can on the previous block read. -Ac
         else {
-            count = fOffset;
+            count = total = fOffset;
             fOffset = 0;
         }
 
         // convert bytes to characters
-        final int total = count;
-        int in;
+        int in = widenASCII(fBuffer, 0, total, ch, out);
+        out += in;
         byte byte1;
         final byte byte0 = 0;
-        for (in = 0; in < total; in++) {
-            byte1 = fBuffer[in];
-            if (byte1 >= byte0) {
-                ch[out++] = (char)byte1;
-            }
-            else   {
-                break;
-            }
-        }
         for ( ; in < total; in++) {
             byte1 = fBuffer[in];
 
@@ -343,6 +336,12 @@ public final class UTF8Reader
             // Unicode: [0000 0000] [0xxx xxxx]
             if (byte1 >= byte0) {
                 ch[out++] = (char)byte1;
+                // back on the fast path for the rest of a run of ASCII
+                if (in + 1 < total && fBuffer[in + 1] >= byte0) {
+                    final int ascii = widenASCII(fBuffer, in + 1, total, ch, out);
+                    in += ascii;
+                    out += ascii;
+                }
                 continue;
             }
 
@@ -615,7 +614,9 @@ public final class UTF8Reader
      * @exception  IOException  If an I/O error occurs
      */
     public boolean ready() throws IOException {
-        return false;
+        // characters are pending if the low half of a surrogate pair
+        // or the bytes preceding an error are still to be returned
+        return fSurrogate != -1 || fOffset != 0;
     } // ready()
 
     /**
@@ -675,6 +676,24 @@ public final class UTF8Reader
     // Private methods
     //
 
+    /**
+     * Widens the run of ASCII bytes starting at the given index into
+     * the character buffer, stopping at the first byte which is not
+     * ASCII. This loop is kept as small as possible so that the
+     * compiler can unroll it. The character buffer must have room
+     * for <code>end - start</code> characters.
+     *
+     * @return the number of bytes (and characters) converted
+     */
+    private static int widenASCII(byte[] b, int start, int end,
+            char[] ch, int out) {
+        int in = start;
+        while (in < end && b[in] >= 0) {
+            ch[out++] = (char) b[in++];
+        }
+        return in - start;
+    } // widenASCII(byte[],int,int,char[],int):int
+
     /** Throws an exception for expected byte. */
     private void expectedByte(int position, int count)
         throws MalformedByteSequenceException {
@@ -17,6 +17,7 @@
 
 package org.apache.xerces.impl.xpath;
 
+import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Vector;
 
@@ -34,7 +35,9 @@ import org.apache.xerces.xni.QName;
  * @author Andy Clark, IBM
  * @version $Id$
  */
-public class XPath {
+public class XPath implements Serializable {
+
+    private static final long serialVersionUID = 4086643080511843704L;
 
     //
     // Constants
@@ -54,7 +57,7 @@ public class XPath {
     protected final String fExpression;
 
     /** Symbol table. */
-    protected final SymbolTable fSymbolTable;
+    protected final transient SymbolTable fSymbolTable;
 
     /** Location paths. */
     protected final LocationPath[] fLocationPaths;
@@ -367,7 +370,9 @@ public class XPath {
      * @author Andy Clark, IBM
      */
     public static class LocationPath
-        implements Cloneable {
+        implements Cloneable, Serializable {
+
+        private static final long serialVersionUID = -8729848172106041269L;
 
         //
         // Data
@@ -434,7 +439,9 @@ public class XPath {
      * @author Andy Clark, IBM
      */
     public static class Step
-        implements Cloneable {
+        implements Cloneable, Serializable {
+
+        private static final long serialVersionUID = -8659122786056100344L;
 
         //
         // Data
@@ -498,7 +505,9 @@ public class XPath {
      * @author Andy Clark, IBM
      */
     public static class Axis
-        implements Cloneable {
+        implements Cloneable, Serializable {
+
+        private static final long serialVersionUID = -2181909168841050925L;
 
         //
         // Constants
@@ -567,7 +576,9 @@ public class XPath {
      * @author Andy Clark, IBM
      */
     public static class NodeTest
-        implements Cloneable {
+        implements Cloneable, Serializable {
+
+        private static final long serialVersionUID = -7471722421297528072L;
 
         //
         // Constants
@@ -17,6 +17,7 @@
 
 package org.apache.xerces.impl.xpath;
 
+import java.io.Serializable;
 import java.io.StringReader;
 
 import javax.xml.XMLConstants;
@@ -38,7 +39,9 @@ import org.apache.xerces.xs.XSConstants;
  * @author Hiranya Jayathilaka, University of Moratuwa
  * @version $Id$
  */
-public class XPath20 {
+public class XPath20 implements Serializable {
+
+    private static final long serialVersionUID = 5338830973103976892L;
 
     protected final String fExpression;
     protected final NamespaceContext fNsContext;
@@ -76,7 +79,9 @@ public class XPath20 {
 
 }
 
-abstract class XPathSyntaxTreeNode {
+abstract class XPathSyntaxTreeNode implements Serializable {
+
+    private static final long serialVersionUID = 3208114411180083368L;
 
     public static final int TYPE_UNDEFINED  = -1;
     public static final int TYPE_DOUBLE     = 0;    //for all numerics (double, integer, float, decimal etc)
@@ -111,6 +116,9 @@ abstract class XPathSyntaxTreeNode {
 }
 
 class LiteralNode extends XPathSyntaxTreeNode {
+
+    private static final long serialVersionUID = 6918275394548913184L;
+
     private String value;
     private boolean isNumeric;
 
@@ -149,6 +157,9 @@ class LiteralNode extends XPathSyntaxTreeNode {
 }
 
 class ConjunctionNode extends XPathSyntaxTreeNode {
+
+    private static final long serialVersionUID = 3097568291377285678L;
+
     private int conjunction;
     private XPathSyntaxTreeNode child1;
     private XPathSyntaxTreeNode child2;
@@ -174,6 +185,9 @@ class ConjunctionNode extends XPathSyntaxTreeNode {
 }
 
 class AttrNode extends XPathSyntaxTreeNode {
+
+    private static final long serialVersionUID = 8763517868821507205L;
+
     private QName name;
 
     public AttrNode(QName name) {
@@ -202,6 +216,9 @@ class AttrNode extends XPathSyntaxTreeNode {
 }
 
 class CompNode extends XPathSyntaxTreeNode {
+
+    private static final long serialVersionUID = -7816044592345401502L;
+
     private int comp;
     private XPathSyntaxTreeNode child1;
     private XPathSyntaxTreeNode child2;
@@ -343,6 +360,9 @@ class CompNode extends XPathSyntaxTreeNode {
 }
 
 class CastNode extends XPathSyntaxTreeNode {
+
+    private static final long serialVersionUID = -7961231220641754017L;
+
     private XSSimpleType castedType;
     private XPathSyntaxTreeNode child;
 
@@ -421,6 +441,9 @@ class CastNode extends XPathSyntaxTreeNode {
 }
 
 class FunctionNode extends XPathSyntaxTreeNode {
+
+    private static final long serialVersionUID = 4135868529145413162L;
+
     private QName name;
     private XPathSyntaxTreeNode child;
 
@@ -0,0 +1,525 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.xerces.impl.xpath.regex;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Hashtable;
+import java.util.Vector;
+
+/**
+ * A deterministic finite automaton which checks whether a whole text
+ * matches a regular expression in the XML Schema mode. It is used in
+ * place of the backtracking interpreter of <code>RegularExpression</code>
+ * so that the time taken is linear in the length of the text, whatever
+ * the expression.
+ * <p>
+ * The automaton is built from the token tree with the subset construction.
+ * The characters are partitioned into classes which no character range of
+ * the expression divides, and the transition table is indexed by the class.
+ * Expressions with tokens which are not regular (back references, anchors,
+ * look-ahead and the like) or case insensitive ones are not compiled, nor
+ * ones whose automaton would be too large; <code>compile()</code> returns
+ * <code>null</code> for these.
+ * <p>
+ * Characters are read the way the interpreter reads them: a high surrogate
+ * followed by another character is matched as a single code point by the
+ * character classes and the dot, whereas a character token only matches a
+ * single char.
+ *
+ * @xerces.internal
+ *
+ * @version $Id$
+ */
+final class DFAPattern {
+
+    //
+    // Constants
+    //
+
+    /** The maximum number of states of the NFA built from the token tree. */
+    private static final int MAX_NFA_STATES = 4096;
+
+    /** The maximum number of states of the DFA. */
+    private static final int MAX_DFA_STATES = 1024;
+
+    /** The maximum size of the transition table. */
+    private static final int MAX_TABLE_SIZE = 1 << 18;
+
+    /** The number of characters whose class is looked up in a table. */
+    private static final int CLASS_TABLE_SIZE = 256;
+
+    /** The predicate of the dot which doesn't match line terminators. */
+    private static final Object DOT = new Object();
+
+    /** The predicate of the dot which matches any character. */
+    private static final Object DOT_ALL = new Object();
+
+    //
+    // Data
+    //
+
+    /** The first character of each character class, in ascending order. */
+    private final int[] fClassStart;
+
+    /** The character classes of the characters below CLASS_TABLE_SIZE. */
+    private final int[] fClassTable;
+
+    /** The number of character classes. */
+    private final int fClassCount;
+
+    /**
+     * The transitions, indexed by <code>state * fClassCount + class</code>.
+     * The initial state is 0 and -1 denotes that the text doesn't match.
+     */
+    private final int[] fTransitions;
+
+    /** Whether each state is accepting. */
+    private final boolean[] fAccepting;
+
+    //
+    // Constructors
+    //
+
+    private DFAPattern(int[] classStart, int[] transitions, boolean[] accepting) {
+        fClassStart = classStart;
+        fClassCount = classStart.length;
+        fTransitions = transitions;
+        fAccepting = accepting;
+        fClassTable = new int[CLASS_TABLE_SIZE];
+        for (int ch = 0; ch < CLASS_TABLE_SIZE; ++ch) {
+            fClassTable[ch] = classOf(ch);
+        }
+    }
+
+    //
+    // Public methods
+    //
+
+    /**
+     * Compiles the token tree of an expression in the XML Schema mode.
+     *
+     * @param tokentree The token tree.
+     * @param options The options of the expression.
+     * @return The automaton, or <code>null</code> if the expression can't
+     *         be matched by one.
+     */
+    static DFAPattern compile(Token tokentree, int options) {
+        if ((options & RegularExpression.XMLSCHEMA_MODE) == 0
+            || (options & RegularExpression.IGNORE_CASE) != 0) {
+            return null;
+        }
+        NFA nfa = new NFA((options & RegularExpression.SINGLE_LINE) != 0);
+        int initial;
+        try {
+            int accept = nfa.newState();
+            initial = nfa.build(tokentree, accept);
+            nfa.fAccept = accept;
+        }
+        catch (UnsupportedPattern e) {
+            return null;
+        }
+        return nfa.toDFA(initial);
+    } // compile(Token,int):DFAPattern
+
+    /** Returns whether the text in the range matches the whole expression. */
+    boolean matches(String target, int start, int end) {
+        final int[] transitions = fTransitions;
+        final int classCount = fClassCount;
+        int state = 0;
+        for (int i = start; i < end; ++i) {
+            int ch = target.charAt(i);
+            int cls;
+            if (ch < CLASS_TABLE_SIZE) {
+                cls = fClassTable[ch];
+            }
+            else {
+                if (REUtil.isHighSurrogate(ch) && i + 1 < end) {
+                    ch = REUtil.composeFromSurrogates(ch, target.charAt(++i));
+                }
+                cls = classOf(ch);
+            }
+            state = transitions[state * classCount + cls];
+            if (state < 0) {
+                return false;
+            }
+        }
+        return fAccepting[state];
+    } // matches(String,int,int):boolean
+
+    /** Returns whether the text in the range matches the whole expression. */
+    boolean matches(char[] target, int start, int end) {
+        final int[] transitions = fTransitions;
+        final int classCount = fClassCount;
+        int state = 0;
+        for (int i = start; i < end; ++i) {
+            int ch = target[i];
+            int cls;
+            if (ch < CLASS_TABLE_SIZE) {
+                cls = fClassTable[ch];
+            }
+            else {
+                if (REUtil.isHighSurrogate(ch) && i + 1 < end) {
+                    ch = REUtil.composeFromSurrogates(ch, target[++i]);
+                }
+                cls = classOf(ch);
+            }
+            state = transitions[state * classCount + cls];
+            if (state < 0) {
+                return false;
+            }
+        }
+        return fAccepting[state];
+    } // matches(char[],int,int):boolean
+
+    //
+    // Private methods
+    //
+
+    /** Returns the class of a character. */
+    private int classOf(int ch) {
+        final int[] classStart = fClassStart;
+        int low = 0;
+        int high = classStart.length - 1;
+        while (low < high) {
+            int mid = (low + high + 1) >>> 1;
+            if (classStart[mid] <= ch) {
+                low = mid;
+            }
+            else {
+                high = mid - 1;
+            }
+        }
+        return low;
+    } // classOf(int):int
+
+    /** Returns whether a predicate of the NFA matches a character. */
+    private static boolean accepts(Object predicate, int ch) {
+        if (predicate instanceof Integer) {
+            return ((Integer) predicate).intValue() == ch;
+        }
+        if (predicate == DOT_ALL) {
+            return true;
+        }
+        if (predicate == DOT) {
+            return ch != 0x0a && ch != 0x0d && ch != 0x2028 && ch != 0x2029;
+        }
+        return ((RangeToken) predicate).match(ch);
+    } // accepts(Object,int):boolean
+
+    //
+    // Classes
+    //
+
+    /** Thrown when the expression can't be compiled to an automaton. */
+    private static final class UnsupportedPattern extends Exception {
+
+        private static final long serialVersionUID = -5012315408263357327L;
+
+    } // class UnsupportedPattern
+
+    /**
+     * A nondeterministic finite automaton with epsilon transitions. Each
+     * state has at most one transition on a predicate, which matches a
+     * character, and at most two epsilon transitions.
+     */
+    private static final class NFA {
+
+        /** Whether the dot matches line terminators. */
+        private final boolean fSingleLine;
+
+        /** The predicates: an Integer, a RangeToken, DOT or DOT_ALL. */
+        private final Vector fPredicates = new Vector();
+
+        /** The predicate of each state, or -1. */
+        private int[] fPredicate = new int[64];
+
+        /** The state reached on the predicate. */
+        private int[] fPredicateNext = new int[64];
+
+        /** The epsilon transitions of each state, or -1. */
+        private int[] fEpsilon1 = new int[64];
+        private int[] fEpsilon2 = new int[64];
+
+        /** The number of states. */
+        private int fStateCount;
+
+        /** The accepting state. */
+        int fAccept;
+
+        NFA(boolean singleLine) {
+            fSingleLine = singleLine;
+        }
+
+        int newState() throws UnsupportedPattern {
+            if (fStateCount == MAX_NFA_STATES) {
+                throw new UnsupportedPattern();
+            }
+            if (fStateCount == fPredicate.length) {
+                int size = fStateCount * 2;
+                fPredicate = resize(fPredicate, size);
+                fPredicateNext = resize(fPredicateNext, size);
+                fEpsilon1 = resize(fEpsilon1, size);
+                fEpsilon2 = resize(fEpsilon2, size);
+            }
+            int state = fStateCount++;
+            fPredicate[state] = -1;
+            fPredicateNext[state] = -1;
+            fEpsilon1[state] = -1;
+            fEpsilon2[state] = -1;
+            return state;
+        } // newState():int
+
+        /** Adds a state matching a predicate and continuing with next. */
+        private int newState(Object predicate, int next) throws UnsupportedPattern {
+            int state = newState();
+            fPredicate[state] = fPredicates.size();
+            fPredicateNext[state] = next;
+            fPredicates.addElement(predicate);
+            return state;
+        } // newState(Object,int):int
+
+        /** Adds a state with epsilon transitions. */
+        private int newEpsilonState(int next1, int next2) throws UnsupportedPattern {
+            int state = newState();
+            fEpsilon1[state] = next1;
+            fEpsilon2[state] = next2;
+            return state;
+        } // newEpsilonState(int,int):int
+
+        /**
+         * Builds the states matching a token and continuing with next, in
+         * the way <code>RegularExpression.compile()</code> builds operations.
+         *
+         * @return The first state.
+         */
+        int build(Token tok, int next) throws UnsupportedPattern {
+            switch (tok.type) {
+            case Token.CHAR:
+                return newState(character(tok.getChar()), next);
+
+            case Token.STRING: {
+                String str = tok.getString();
+                for (int i = str.length() - 1; i >= 0; --i) {
+                    next = newState(character(str.charAt(i)), next);
+                }
+                return next;
+            }
+
+            case Token.DOT:
+                return newState(fSingleLine ? DOT_ALL : DOT, next);
+
+            case Token.RANGE:
+            case Token.NRANGE:
+                if (((RangeToken) tok).ranges == null) {
+                    throw new UnsupportedPattern();
+                }
+                return newState(tok, next);
+
+            case Token.EMPTY:
+                return next;
+
+            case Token.CONCAT:
+                for (int i = tok.size() - 1; i >= 0; --i) {
+                    next = build(tok.getChild(i), next);
+                }
+                return next;
+
+            case Token.UNION: {
+                if (tok.size() == 0) {
+                    throw new UnsupportedPattern();
+                }
+                int ret = build(tok.getChild(tok.size() - 1), next);
+                for (int i = tok.size() - 2; i >= 0; --i) {
+                    ret = newEpsilonState(build(tok.getChild(i), next), ret);
+                }
+                return ret;
+            }
+
+            case Token.PAREN:
+                return build(tok.getChild(0), next);
+
+            case Token.CLOSURE:
+            case Token.NONGREEDYCLOSURE: {
+                Token child = tok.getChild(0);
+                int min = tok.getMin();
+                int max = tok.getMax();
+                int ret;
+                if (min >= 0 && min == max) {
+                    ret = next;
+                    for (int i = 0; i < min; ++i) {
+                        ret = build(child, ret);
+                    }
+                    return ret;
+                }
+                if (min > 0 && max > 0) {
+                    max -= min;
+                }
+                if (max > 0) {
+                    ret = next;
+                    for (int i = 0; i < max; ++i) {
+                        ret = newEpsilonState(build(child, ret), next);
+                    }
+                }
+                else {
+                    ret = newEpsilonState(-1, next);
+                    // build() may grow the arrays
+                    int body = build(child, ret);
+                    fEpsilon1[ret] = body;
+                }
+                for (int i = 0; i < min; ++i) {
+                    ret = build(child, ret);
+                }
+                return ret;
+            }
+
+            default:
+                throw new UnsupportedPattern();
+            }
+        } // build(Token,int):int
+
+        /** Returns the predicate of a character token. */
+        private Object character(int ch) throws UnsupportedPattern {
+            // a character token matches a single char, so that characters
+            // which are read as a surrogate pair are not supported
+            if (ch > 0xffff || (ch & 0xf800) == 0xd800) {
+                throw new UnsupportedPattern();
+            }
+            return new Integer(ch);
+        } // character(int):Object
+
+        /** Builds the DFA with the subset construction. */
+        DFAPattern toDFA(int initial) {
+
+            // partition the characters into classes
+            int[] bounds = new int[16];
+            int count = 0;
+            bounds[count++] = 0;
+            for (int p = 0; p < fPredicates.size(); ++p) {
+                Object predicate = fPredicates.elementAt(p);
+                int[] ranges;
+                if (predicate instanceof Integer) {
+                    int ch = ((Integer) predicate).intValue();
+                    ranges = new int[] { ch, ch };
+                }
+                else if (predicate == DOT) {
+                    ranges = new int[] { 0x0a, 0x0a, 0x0d, 0x0d, 0x2028, 0x2029 };
+                }
+                else if (predicate == DOT_ALL) {
+                    continue;
+                }
+                else {
+                    ranges = ((RangeToken) predicate).ranges;
+                }
+                if (count + ranges.length > bounds.length) {
+                    bounds = resize(bounds, Math.max(bounds.length * 2, count + ranges.length));
+                }
+                for (int i = 0; i < ranges.length; i += 2) {
+                    bounds[count++] = ranges[i];
+                    bounds[count++] = ranges[i + 1] + 1;
+                }
+            }
+            Arrays.sort(bounds, 0, count);
+            int classCount = 0;
+            for (int i = 0; i < count; ++i) {
+                if (i == 0 || bounds[i] != bounds[i - 1]) {
+                    bounds[classCount++] = bounds[i];
+                }
+            }
+            int[] classStart = resize(bounds, classCount);
+
+            // the classes matched by each predicate
+            BitSet[] matched = new BitSet[fPredicates.size()];
+            for (int p = 0; p < matched.length; ++p) {
+                Object predicate = fPredicates.elementAt(p);
+                matched[p] = new BitSet(classCount);
+                for (int c = 0; c < classCount; ++c) {
+                    if (accepts(predicate, classStart[c])) {
+                        matched[p].set(c);
+                    }
+                }
+            }
+
+            // subset construction
+            Vector sets = new Vector();
+            Hashtable states = new Hashtable();
+            BitSet start = new BitSet(fStateCount);
+            addClosure(start, initial);
+            sets.addElement(start);
+            states.put(start, new Integer(0));
+            int[] transitions = new int[classCount * 16];
+            for (int s = 0; s < sets.size(); ++s) {
+                BitSet set = (BitSet) sets.elementAt(s);
+                if ((s + 1) * classCount > transitions.length) {
+                    transitions = resize(transitions, Math.max(transitions.length * 2, (s + 1) * classCount));
+                }
+                for (int c = 0; c < classCount; ++c) {
+                    BitSet target = null;
+                    for (int n = set.nextSetBit(0); n >= 0; n = set.nextSetBit(n + 1)) {
+                        int p = fPredicate[n];
+                        if (p >= 0 && matched[p].get(c)) {
+                            if (target == null) {
+                                target = new BitSet(fStateCount);
+                            }
+                            addClosure(target, fPredicateNext[n]);
+                        }
+                    }
+                    int next = -1;
+                    if (target != null) {
+                        Integer state = (Integer) states.get(target);
+                        if (state == null) {
+                            if (sets.size() == MAX_DFA_STATES
+                                || (sets.size() + 1) * classCount > MAX_TABLE_SIZE) {
+                                return null;
+                            }
+                            state = new Integer(sets.size());
+                            sets.addElement(target);
+                            states.put(target, state);
+                        }
+                        next = state.intValue();
+                    }
+                    transitions[s * classCount + c] = next;
+                }
+            }
+            boolean[] accepting = new boolean[sets.size()];
+            for (int s = 0; s < accepting.length; ++s) {
+                accepting[s] = ((BitSet) sets.elementAt(s)).get(fAccept);
+            }
+            return new DFAPattern(classStart, resize(transitions, sets.size() * classCount), accepting);
+        } // toDFA(int):DFAPattern
+
+        /** Adds a state and the states reached from it by epsilon transitions. */
+        private void addClosure(BitSet set, int state) {
+            while (state >= 0 && !set.get(state)) {
+                set.set(state);
+                if (fEpsilon2[state] >= 0) {
+                    addClosure(set, fEpsilon2[state]);
+                }
+                state = fEpsilon1[state];
+            }
+        } // addClosure(BitSet,int)
+
+        private static int[] resize(int[] array, int size) {
+            int[] newarray = new int[size];
+            System.arraycopy(array, 0, newarray, 0, Math.min(array.length, size));
+            return newarray;
+        } // resize(int[],int):int[]
+
+    } // class NFA
+
+} // class DFAPattern
@@ -703,17 +703,12 @@ public class RegularExpression implements java.io.Serializable {
      */
     public boolean matches(char[] target, int start, int end, Match match) {
 
-        synchronized (this) {
-            if (this.operations == null)
-                this.prepare();
-            if (this.context == null)
-                this.context = new Context();
-        }
-        Context con = null;
-        synchronized (this.context) {
-            con = this.context.inuse ? new Context() : this.context;
-            con.reset(target, start, end, this.numberOfClosures);
-        }
+        if (!this.prepared)
+            this.prepareIfNeeded();
+        if (this.dfa != null && match == null)
+            return this.dfa.matches(target, start, end);
+        Context con = this.getContext();
+        con.reset(target, start, end, this.numberOfClosures);
         if (match != null) {
             match.setNumberOfGroups(this.nofparen);
             match.setSource(target);
@@ -736,6 +731,7 @@ public class RegularExpression implements java.io.Serializable {
                 con.setInUse(false);
                 return true;
             }
+            con.setInUse(false);
             return false;
         }
 
@@ -888,17 +884,12 @@ public class RegularExpression implements java.io.Serializable {
      */
     public boolean matches(String  target, int start, int end, Match match) {
 
-        synchronized (this) {
-            if (this.operations == null)
-                this.prepare();
-            if (this.context == null)
-                this.context = new Context();
-        }
-        Context con = null;
-        synchronized (this.context) {
-            con = this.context.inuse ? new Context() : this.context;
-            con.reset(target, start, end, this.numberOfClosures);
-        }
+        if (!this.prepared)
+            this.prepareIfNeeded();
+        if (this.dfa != null && match == null)
+            return this.dfa.matches(target, start, end);
+        Context con = this.getContext();
+        con.reset(target, start, end, this.numberOfClosures);
         if (match != null) {
             match.setNumberOfGroups(this.nofparen);
             match.setSource(target);
@@ -927,6 +918,7 @@ public class RegularExpression implements java.io.Serializable {
                 con.setInUse(false);
                 return true;
             }
+            con.setInUse(false);
             return false;
         }
 
@@ -1567,17 +1559,10 @@ public class RegularExpression implements java.io.Serializable {
 
 
 
-        synchronized (this) {
-            if (this.operations == null)
-                this.prepare();
-            if (this.context == null)
-                this.context = new Context();
-        }
-        Context con = null;
-        synchronized (this.context) {
-            con = this.context.inuse ? new Context() : this.context;
-            con.reset(target, start, end, this.numberOfClosures);
-        }
+        if (!this.prepared)
+            this.prepareIfNeeded();
+        Context con = this.getContext();
+        con.reset(target, start, end, this.numberOfClosures);
         if (match != null) {
             match.setNumberOfGroups(this.nofparen);
             match.setSource(target);
@@ -1600,6 +1585,7 @@ public class RegularExpression implements java.io.Serializable {
                 con.setInUse(false);
                 return true;
             }
+            con.setInUse(false);
             return false;
         }
 
@@ -1738,7 +1724,8 @@ public class RegularExpression implements java.io.Serializable {
     transient int minlength;
     transient Op operations = null;
     transient int numberOfClosures;
-    transient Context context = null;
+    transient ThreadLocal context = null;
+    transient volatile boolean prepared = false;
     transient RangeToken firstChar = null;
 
     transient String fixedString = null;
@@ -1746,6 +1733,8 @@ public class RegularExpression implements java.io.Serializable {
     transient BMPattern fixedStringTable = null;
     transient boolean fixedStringOnly = false;
 
+    transient DFAPattern dfa = null;
+
     static abstract class ExpressionTarget {
         abstract char charAt(int index);
         abstract boolean regionMatches(boolean ignoreCase, int offset, int limit, String part, int partlen);
@@ -2080,15 +2069,58 @@ public class RegularExpression implements java.io.Serializable {
             this.limit = limit;
             this.resetCommon(nofclosures);
         }
-        synchronized void setInUse(boolean inUse) {
+        void setInUse(boolean inUse) {
             this.inuse = inUse;
+            if (!inUse) {
+                // the context outlives the match in its thread, so it
+                // must not keep the target and the match alive
+                this.match = null;
+                this.target = null;
+                if (stringTarget != null) {
+                    stringTarget.resetTarget(null);
+                }
+                if (charArrayTarget != null) {
+                    charArrayTarget.resetTarget(null);
+                }
+                if (characterIteratorTarget != null) {
+                    characterIteratorTarget.resetTarget(null);
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the matching context of the current thread. A new context
+     * is returned if the one of the current thread is in use, e.g. when
+     * this method is reentered from a CharacterIterator.
+     */
+    private Context getContext() {
+        Context con = (Context) this.context.get();
+        if (con == null) {
+            con = new Context();
+            this.context.set(con);
         }
+        else if (con.inuse) {
+            con = new Context();
+        }
+        return con;
+    }
+
+    /**
+     * Prepares for matching if this has not been done when the pattern was
+     * set, e.g. after this expression was deserialized.
+     */
+    private synchronized void prepareIfNeeded() {
+        if (!this.prepared)
+            this.prepare();
     }
 
     /**
-     * Prepares for matching.  This method is called just before starting matching.
+     * Prepares for matching.  This method is called when the pattern is set,
+     * so that an expression shared between threads is matched without locking.
      */
     void prepare() {
+        this.prepared = false;
         if (Op.COUNT)  Op.nofinstances = 0;
         this.compile(this.tokentree);
         /*
@@ -2103,6 +2135,15 @@ public class RegularExpression implements java.io.Serializable {
         this.minlength = this.tokentree.getMinLength();
 
         this.firstChar = null;
+        this.fixedString = null;
+        this.fixedStringTable = null;
+        this.fixedStringOnly = false;
+        this.dfa = null;
+        if (!this.hasBackReferences && isSet(this.options, XMLSCHEMA_MODE)) {
+            // Expressions in the XML Schema mode match whole texts, so that
+            // most of them can be matched by an automaton without backtracking.
+            this.dfa = DFAPattern.compile(this.tokentree, this.options);
+        }
         if (!isSet(this.options, PROHIBIT_HEAD_CHARACTER_OPTIMIZATION)
             && !isSet(this.options, XMLSCHEMA_MODE)) {
             RangeToken firstChar = Token.createRange();
@@ -2154,6 +2195,9 @@ public class RegularExpression implements java.io.Serializable {
                 }
             }
         }
+        this.context = new ThreadLocal();
+        // publishes the state above to the threads checking the flag
+        this.prepared = true;
     }
 
     /**
@@ -2305,7 +2349,7 @@ public class RegularExpression implements java.io.Serializable {
         this.hasBackReferences = rp.hasBackReferences;
 
         this.operations = null;
-        this.context = null;
+        this.prepare();
     }
     /**
      *
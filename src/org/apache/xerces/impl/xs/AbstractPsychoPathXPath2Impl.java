@@ -19,6 +19,7 @@ package org.apache.xerces.impl.xs;
 
 import java.util.ArrayList;
 import java.util.Enumeration;
+import java.util.Hashtable;
 import java.util.List;
 import java.util.Map;
 
@@ -62,7 +63,17 @@ import org.w3c.dom.Element;
 public class AbstractPsychoPathXPath2Impl {
     
     private DynamicContext fXpath2DynamicContext = null;
-    private Document fDomDoc = null;
+    
+    // the XSModel of the dynamic context, and its namespace bindings as a string
+    private XSModel fSchemaModel = null;
+    private String fNamespaceBindings = null;
+    
+    // whether a namespace binding was added to the dynamic context after it was initialized, or an evaluation failed
+    private boolean fIsDynamicContextModified = false;
+    
+    // copies of the shared compiled expressions, when their names were resolved with other namespace bindings or with
+    // an XSModel of other grammars. the names of a copy are resolved once, for the namespace bindings of the dynamic context.
+    private Hashtable fXPathCopies = null;
     
     
     /*
@@ -72,6 +83,9 @@ public class AbstractPsychoPathXPath2Impl {
     public DynamicContext initXPath2DynamicContext(XSModel schema, Document document, Map psychoPathParams) {
         
         fXpath2DynamicContext = new DefaultDynamicContext(schema, document);        
+        fSchemaModel = schema;
+        fNamespaceBindings = "";
+        fXPathCopies = null;
         
         // populate the 'PsychoPath XPath 2' static context, with namespace bindings derived from the XML Schema document
         NamespaceSupport xpath2NamespaceContext = (NamespaceSupport) psychoPathParams.get(Constants.XPATH2_NAMESPACE_CONTEXT);
@@ -93,9 +107,13 @@ public class AbstractPsychoPathXPath2Impl {
             }
             addNamespaceBindingToXPath2DynamicContext(XMLConstants.XML_NS_PREFIX, XMLConstants.XML_NS_URI);
         }
+        String xpathDefaultNamespace = (String) psychoPathParams.get(Constants.XPATH2_DEFAULT_NAMESPACE);
+        if (xpathDefaultNamespace != null) {
+            addNamespaceBindingToXPath2DynamicContext(null, xpathDefaultNamespace);
+        }
         fXpath2DynamicContext.add_function_library(new FnFunctionLibrary());
         fXpath2DynamicContext.add_function_library(new XSCtrLibrary());        
-        fDomDoc = document;
+        fIsDynamicContextModified = false;
         
         return fXpath2DynamicContext;
         
@@ -107,9 +125,59 @@ public class AbstractPsychoPathXPath2Impl {
      */
     protected void addNamespaceBindingToXPath2DynamicContext(String prefix, String uri) {
         fXpath2DynamicContext.add_namespace(prefix, uri);
+        // the characters \u0000 and \u0001 do not occur in the prefixes and in the namespace names of an XML 1.0 document
+        fNamespaceBindings = fNamespaceBindings + (prefix == null ? "\u0001" : prefix) + '=' + (uri == null ? "\u0001" : uri) + '\u0000';
+        fIsDynamicContextModified = true;
+        // the copies were resolved with the previous namespace bindings
+        if (fXPathCopies != null) {
+            fXPathCopies.clear();
+        }
     } // addNamespaceBindingToXPath2DynamicContext
     
     
+    /*
+     * Check if the dynamic context can be used again for the given XSModel. The dynamic context is used again until a
+     * namespace binding is added to it or an evaluation fails, since only the variables and the focus of the dynamic
+     * context are set again for each evaluation.
+     */
+    public boolean isDynamicContextReusable(XSModel schema) {
+        return fXpath2DynamicContext != null && fSchemaModel == schema && !fIsDynamicContextModified;
+    } // isDynamicContextReusable
+    
+    
+    /*
+     * Evaluate a compiled XPath expression of a schema component with PsychoPath XPath2 engine. The names of the
+     * shared expression are only resolved once for the namespace bindings of the dynamic context.
+     */
+    public boolean evaluateXPathExpr(CompiledXPath2Expr compiledExpr, Element contextNode) throws Exception {
+        
+        try {
+            if (compiledExpr.resolveNames(fXpath2DynamicContext, fNamespaceBindings, fSchemaModel)) {
+                return evaluateResolvedXPathExpr(compiledExpr.getXPath(), contextNode);
+            }
+            
+            // the shared expression was resolved with other namespace bindings or another XSModel, and is not modified
+            // again. a copy of it is resolved for this dynamic context.
+            if (fXPathCopies == null) {
+                fXPathCopies = new Hashtable();
+            }
+            XPath xpathObject = (XPath) fXPathCopies.get(compiledExpr);
+            if (xpathObject == null) {
+                xpathObject = compiledExpr.newXPath();
+                new StaticNameResolver(fXpath2DynamicContext).check(xpathObject);
+                fXPathCopies.put(compiledExpr, xpathObject);
+            }
+            return evaluateResolvedXPathExpr(xpathObject, contextNode);
+        }
+        catch (Exception ex) {
+            // a failed evaluation may leave variable scopes in the dynamic context
+            fIsDynamicContextModified = true;
+            throw ex;
+        }
+        
+    } // evaluateXPathExpr(CompiledXPath2Expr, Element)
+    
+    
     /*
      * Evaluate XPath expression with PsychoPath XPath2 engine.
      */
@@ -117,9 +185,20 @@ public class AbstractPsychoPathXPath2Impl {
         
         StaticChecker sc = new StaticNameResolver(fXpath2DynamicContext);
         sc.check(xpathObject);       
+        return evaluateResolvedXPathExpr(xpathObject, contextNode);
+        
+    } // evaluateXPathExpr
+    
+    
+    /*
+     * Evaluate an XPath expression whose names are resolved, with PsychoPath XPath2 engine.
+     */
+    private boolean evaluateResolvedXPathExpr(XPath xpathObject, Element contextNode) throws Exception {
+        
         Evaluator xpath2Evaluator = null;
         if (contextNode != null) {            
-            xpath2Evaluator = new DefaultEvaluator(fXpath2DynamicContext, fDomDoc, fDomDoc.getDocumentElement()); // for assertions and CTA, root node of XDM tree is the initial context element           
+            Document document = contextNode.getOwnerDocument();
+            xpath2Evaluator = new DefaultEvaluator(fXpath2DynamicContext, document, document.getDocumentElement()); // for assertions and CTA, root node of XDM tree is the initial context element           
             // change focus to the top most element
             ResultSequence contextNodeResultSet = ResultSequenceFactory.create_new();
             contextNodeResultSet.add(new ElementType(contextNode, fXpath2DynamicContext.node_position(contextNode)));           
@@ -148,7 +227,7 @@ public class AbstractPsychoPathXPath2Impl {
         
         return result;
         
-    } // evaluateXPathExpr
+    } // evaluateResolvedXPathExpr
     
     
     /*
@@ -0,0 +1,135 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.xerces.impl.xs;
+
+import org.apache.xerces.xs.XSModel;
+import org.apache.xerces.xs.XSNamespaceItemList;
+import org.eclipse.wst.xml.xpath2.processor.JFlexCupParser;
+import org.eclipse.wst.xml.xpath2.processor.StaticContext;
+import org.eclipse.wst.xml.xpath2.processor.StaticError;
+import org.eclipse.wst.xml.xpath2.processor.StaticNameResolver;
+import org.eclipse.wst.xml.xpath2.processor.XPathParserException;
+import org.eclipse.wst.xml.xpath2.processor.ast.XPath;
+
+/**
+ * An XPath 2.0 expression of a schema component (the "test" of an assertion or of a type alternative),
+ * compiled once by the PsychoPath XPath 2.0 engine, and shared by all of the validations with the
+ * grammar of the component.
+ * <p>
+ * The PsychoPath engine resolves the names of an expression by modifying it. The names are resolved
+ * once, for the namespace bindings and the XSModel of the first evaluation, and the expression is never
+ * modified afterwards, since it may be evaluated by other threads meanwhile. The evaluations with other
+ * namespace bindings, or with an XSModel of other schema grammars, use a copy of the expression. The
+ * XSModels of the same grammars, which each validator builds, share the expression.
+ *
+ * @xerces.internal
+ *
+ * @version $Id$
+ */
+public class CompiledXPath2Expr {
+
+    // the compiled expression
+    private final XPath fXPath;
+
+    // the "test" string of the expression
+    private final String fExpression;
+
+    // the namespace bindings and the XSModel with which the names of the expression were resolved
+    private String fNamespaceBindings = null;
+    private XSModel fSchemaModel = null;
+
+
+    /*
+     * Class constructor.
+     */
+    public CompiledXPath2Expr(XPath xpath, String expression) {
+        fXPath = xpath;
+        fExpression = expression;
+    }
+
+
+    /*
+     * Get the compiled expression. It is only evaluated once its names are resolved.
+     */
+    public XPath getXPath() {
+        return fXPath;
+    }
+
+
+    /*
+     * Get the "test" string of the expression.
+     */
+    public String getExpression() {
+        return fExpression;
+    }
+
+
+    /*
+     * Resolve the names of the expression with a static context, whose namespace bindings are given as a string.
+     * Returns false if the names were resolved with other namespace bindings or with an XSModel of other grammars,
+     * in which case the expression must not be evaluated with this static context.
+     */
+    public synchronized boolean resolveNames(StaticContext staticContext, String namespaceBindings, XSModel schema) throws StaticError {
+
+        if (fNamespaceBindings == null) {
+            new StaticNameResolver(staticContext).check(fXPath);
+            fNamespaceBindings = namespaceBindings;
+            fSchemaModel = schema;
+        }
+        else if (!fNamespaceBindings.equals(namespaceBindings)) {
+            return false;
+        }
+        else if (fSchemaModel != schema && !isSameGrammars(fSchemaModel, schema)) {
+            // the names of types and of declarations depend on the grammars of the XSModel
+            return false;
+        }
+
+        return true;
+
+    } // resolveNames
+
+
+    /*
+     * Compile a copy of the expression, for an evaluation with other namespace bindings.
+     */
+    public XPath newXPath() throws XPathParserException {
+        return new JFlexCupParser().parse("boolean(" + fExpression + ")", true);
+    } // newXPath
+
+
+    /*
+     * Check if two XSModels are built from the same schema grammars.
+     */
+    private static boolean isSameGrammars(XSModel schema1, XSModel schema2) {
+        if (schema1 == null || schema2 == null) {
+            return false;
+        }
+        XSNamespaceItemList grammars1 = schema1.getNamespaceItems();
+        XSNamespaceItemList grammars2 = schema2.getNamespaceItems();
+        if (grammars1.getLength() != grammars2.getLength()) {
+            return false;
+        }
+        for (int grammarIdx = 0; grammarIdx < grammars1.getLength(); grammarIdx++) {
+            if (grammars1.item(grammarIdx) != grammars2.item(grammarIdx)) {
+                return false;
+            }
+        }
+        return true;
+    } // isSameGrammars
+
+} // class CompiledXPath2Expr
@@ -17,6 +17,7 @@
 
 package org.apache.xerces.impl.xs;
 
+import java.io.Serializable;
 import java.lang.ref.SoftReference;
 import java.util.Vector;
 
@@ -76,7 +77,9 @@ import org.xml.sax.SAXException;
  * @version $Id$
  */
 
-public class SchemaGrammar implements XSGrammar, XSNamespaceItem {
+public class SchemaGrammar implements XSGrammar, XSNamespaceItem, Serializable {
+
+    private static final long serialVersionUID = -3809184760116023806L;
 
     // the target namespace of grammar
     String fTargetNamespace;
@@ -115,10 +118,10 @@ public class SchemaGrammar implements XSGrammar, XSNamespaceItem {
     int fNumAnnotations;
 
     // symbol table for constructing parsers (annotation support)
-    private SymbolTable fSymbolTable = null;
+    private transient SymbolTable fSymbolTable = null;
     // parsers for annotation support
-    private SoftReference fSAXParser = null;
-    private SoftReference fDOMParser = null;
+    private transient SoftReference fSAXParser = null;
+    private transient SoftReference fDOMParser = null;
     
     // is this grammar immutable?  (fully constructed and not changeable)
     private boolean fIsImmutable = false;
@@ -281,6 +284,8 @@ public class SchemaGrammar implements XSGrammar, XSNamespaceItem {
     // are immutable.
     public static class BuiltinSchemaGrammar extends SchemaGrammar {
 
+        private static final long serialVersionUID = -8446774917285055814L;
+
         private static final String EXTENDED_SCHEMA_FACTORY_CLASS = "org.apache.xerces.impl.dv.xs.ExtendedSchemaDVFactoryImpl";
         private static final String SCHEMA11_FACTORY_CLASS = "org.apache.xerces.impl.dv.xs.Schema11DVFactoryImpl";
 
@@ -504,6 +509,8 @@ public class SchemaGrammar implements XSGrammar, XSNamespaceItem {
      * @author Michael Glavassevich, IBM
      */
     public static final class Schema4Annotations extends SchemaGrammar {
+
+        private static final long serialVersionUID = -7528720390988773199L;
         
         /**
          * Singleton instance.
@@ -1229,6 +1236,9 @@ public class SchemaGrammar implements XSGrammar, XSNamespaceItem {
     }
 
     public static class XSAnyType extends XSComplexTypeDecl {
+
+        private static final long serialVersionUID = 6367854458013875877L;
+
         public XSAnyType () {
             fName = SchemaSymbols.ATTVAL_ANYTYPE;
             super.fTargetNamespace = SchemaSymbols.URI_SCHEMAFORSCHEMA;
@@ -1312,12 +1322,18 @@ public class SchemaGrammar implements XSGrammar, XSNamespaceItem {
     }
     
     private static class XS11AnyType extends XSAnyType {
+
+        private static final long serialVersionUID = 1605342615827779980L;
+
         public XSNamespaceItem getNamespaceItem() {
             return SG_Schema11NS;
         }
     }
     
     private static class XSAnyTypeExtended extends XSAnyType {
+
+        private static final long serialVersionUID = 6763980173225355288L;
+
         public XSNamespaceItem getNamespaceItem() {
             return SG_SchemaNSExtended;
         }
@@ -1325,6 +1341,9 @@ public class SchemaGrammar implements XSGrammar, XSNamespaceItem {
 
 
     private static class BuiltinAttrDecl extends XSAttributeDecl {
+
+        private static final long serialVersionUID = 1219178853528301119L;
+
         public BuiltinAttrDecl(String name, String tns, 
                 XSSimpleType type, short scope) {
             fName = name;
@@ -1432,8 +1451,8 @@ public class SchemaGrammar implements XSGrammar, XSNamespaceItem {
                                                  };
                                                  
     // store a certain kind of components from all namespaces
-    private XSNamedMap[] fComponents = null;
-    private ObjectList[] fComponentsExt = null;
+    private transient XSNamedMap[] fComponents = null;
+    private transient ObjectList[] fComponentsExt = null;
 
     // store the documents and their locations contributing to this namespace
     // REVISIT: use StringList and XSObjectList for there fields.
@@ -0,0 +1,469 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.xerces.impl.xs;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InvalidClassException;
+import java.io.InvalidObjectException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamClass;
+import java.io.OutputStream;
+import java.io.Serializable;
+import java.io.StreamCorruptedException;
+import java.util.Hashtable;
+import java.util.IdentityHashMap;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+import org.apache.xerces.impl.Constants;
+import org.apache.xerces.impl.Version;
+import org.apache.xerces.util.SymbolHash;
+import org.apache.xerces.xni.grammars.Grammar;
+import org.apache.xerces.xni.grammars.XMLGrammarDescription;
+import org.apache.xerces.xni.grammars.XMLGrammarPool;
+
+/**
+ * Writes fully built schema grammars to a compact binary snapshot and
+ * reads them back, so that an application which always loads the same
+ * schemas can fill its grammar pool at startup without parsing and
+ * traversing any schema document.
+ * <p>
+ * A snapshot holds the grammars given and every grammar they import,
+ * with all their components: type definitions with their facets,
+ * declarations, model groups, identity constraints, substitution groups
+ * and any content model already compiled. The components of the
+ * built-in grammars for the schema and schema-instance namespaces are
+ * written as references, and all names are interned when a snapshot is
+ * read, so the grammars read behave as the grammars written.
+ * <p>
+ * A snapshot starts with a header recording the version of the format
+ * and the version of Xerces which wrote it; it can only be read by the
+ * same version of Xerces.
+ *
+ * @xerces.internal
+ *
+ * @version $Id$
+ */
+public final class SchemaGrammarSnapshot {
+
+    //
+    // Constants
+    //
+
+    /** The first four bytes of a snapshot: "XSGS". */
+    private static final int MAGIC = 0x58534753;
+
+    /** The version of the snapshot format. */
+    private static final int FORMAT_VERSION = 1;
+
+    /** The built-in grammars whose components are written as references. */
+    private static final SchemaGrammar[] BUILTIN_GRAMMARS = {
+        SchemaGrammar.getS4SGrammar(Constants.SCHEMA_VERSION_1_0),
+        SchemaGrammar.getS4SGrammar(Constants.SCHEMA_VERSION_1_0_EXTENDED),
+        SchemaGrammar.getS4SGrammar(Constants.SCHEMA_VERSION_1_1),
+        SchemaGrammar.getXSIGrammar(Constants.SCHEMA_VERSION_1_0),
+        SchemaGrammar.getXSIGrammar(Constants.SCHEMA_VERSION_1_1),
+        SchemaGrammar.Schema4Annotations.getSchema4Annotations(Constants.SCHEMA_VERSION_1_0),
+        SchemaGrammar.Schema4Annotations.getSchema4Annotations(Constants.SCHEMA_VERSION_1_0_EXTENDED),
+        SchemaGrammar.Schema4Annotations.getSchema4Annotations(Constants.SCHEMA_VERSION_1_1)
+    };
+
+    /**
+     * The classes outside of the packages of the schema components which
+     * may be read from a snapshot.
+     */
+    private static final String[] ALLOWED_CLASSES = {
+        "java.lang.Object",
+        "java.lang.String",
+        "java.lang.Boolean",
+        "java.util.Vector",
+        "org.apache.xerces.util.SymbolHash",
+        "org.apache.xerces.xni.QName"
+    };
+
+    /** The stack size of the threads writing and reading snapshots. */
+    private static final long STACK_SIZE = 64L * 1024 * 1024;
+
+    //
+    // Data
+    //
+
+    /** The keys of the built-in components, by component. */
+    private static IdentityHashMap fBuiltinKeys = null;
+
+    /** The built-in components, by key. */
+    private static Hashtable fBuiltinComponents = null;
+
+    //
+    // Constructors
+    //
+
+    /** This class cannot be instantiated. */
+    private SchemaGrammarSnapshot() {}
+
+    //
+    // Public static methods
+    //
+
+    /**
+     * Writes a snapshot of the given schema grammars, and of every
+     * grammar they import, to the given stream. The stream is not closed.
+     *
+     * @param grammars the schema grammars
+     * @param out      the stream to write the snapshot to
+     * @throws IOException if the stream cannot be written, or if one of
+     *                     the grammars is not a schema grammar or holds an
+     *                     object that cannot be written
+     */
+    public static void writeGrammars(Grammar[] grammars, OutputStream out) throws IOException {
+        SchemaGrammar[] schemaGrammars = new SchemaGrammar[grammars.length];
+        for (int i = 0; i < grammars.length; ++i) {
+            if (!(grammars[i] instanceof SchemaGrammar)) {
+                throw new InvalidObjectException("not a schema grammar: " + grammars[i]);
+            }
+            schemaGrammars[i] = (SchemaGrammar) grammars[i];
+        }
+        DataOutputStream header = new DataOutputStream(out);
+        header.writeInt(MAGIC);
+        header.writeInt(FORMAT_VERSION);
+        header.writeUTF(Version.getVersion());
+        header.flush();
+        final Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        final DeflaterOutputStream body = new DeflaterOutputStream(out, deflater);
+        final SchemaGrammar[] objects = schemaGrammars;
+        run(new SnapshotTask() {
+            void execute() throws IOException {
+                ObjectOutputStream objectStream = new SnapshotOutputStream(new BufferedOutputStream(body));
+                objectStream.writeObject(objects);
+                objectStream.flush();
+            }
+        });
+        body.finish();
+        deflater.end();
+    } // writeGrammars(Grammar[],OutputStream)
+
+    /**
+     * Reads the schema grammars written to a snapshot. The stream is
+     * not closed.
+     *
+     * @param in the stream to read the snapshot from
+     * @return the schema grammars given when the snapshot was written
+     * @throws IOException if the stream cannot be read or does not hold
+     *                     a snapshot written by this version of Xerces,
+     *                     or if it holds an object of a class which is
+     *                     not part of a schema grammar
+     */
+    public static SchemaGrammar[] readGrammars(InputStream in) throws IOException {
+        DataInputStream header = new DataInputStream(in);
+        if (header.readInt() != MAGIC) {
+            throw new StreamCorruptedException("not a schema grammar snapshot");
+        }
+        int formatVersion = header.readInt();
+        String version = header.readUTF();
+        if (formatVersion != FORMAT_VERSION || !version.equals(Version.getVersion())) {
+            throw new InvalidObjectException("schema grammar snapshot written by " + version
+                    + " (format " + formatVersion + ") cannot be read by " + Version.getVersion());
+        }
+        final InputStream body = new BufferedInputStream(new InflaterInputStream(in));
+        final SchemaGrammar[][] grammars = new SchemaGrammar[1][];
+        run(new SnapshotTask() {
+            void execute() throws IOException {
+                ObjectInputStream objectStream = new SnapshotInputStream(body);
+                try {
+                    grammars[0] = (SchemaGrammar[]) objectStream.readObject();
+                }
+                catch (ClassNotFoundException e) {
+                    throw new InvalidObjectException("schema grammar snapshot holds an unknown class: " + e.getMessage());
+                }
+                catch (ClassCastException e) {
+                    throw new StreamCorruptedException("not a schema grammar snapshot");
+                }
+            }
+        });
+        return grammars[0];
+    } // readGrammars(InputStream):SchemaGrammar[]
+
+    /**
+     * Writes a snapshot of the schema grammars cached in the given
+     * grammar pool to the given stream.
+     *
+     * @param grammarPool the grammar pool
+     * @param out         the stream to write the snapshot to
+     * @throws IOException if the snapshot cannot be written
+     */
+    public static void exportGrammars(XMLGrammarPool grammarPool, OutputStream out) throws IOException {
+        Grammar[] grammars = grammarPool.retrieveInitialGrammarSet(XMLGrammarDescription.XML_SCHEMA);
+        writeGrammars(grammars != null ? grammars : new Grammar[0], out);
+    } // exportGrammars(XMLGrammarPool,OutputStream)
+
+    /**
+     * Reads a snapshot and caches the schema grammars it holds in the
+     * given grammar pool.
+     *
+     * @param in          the stream to read the snapshot from
+     * @param grammarPool the grammar pool
+     * @return the number of grammars cached
+     * @throws IOException if the snapshot cannot be read
+     */
+    public static int importGrammars(InputStream in, XMLGrammarPool grammarPool) throws IOException {
+        SchemaGrammar[] grammars = readGrammars(in);
+        grammarPool.cacheGrammars(XMLGrammarDescription.XML_SCHEMA, grammars);
+        return grammars.length;
+    } // importGrammars(InputStream,XMLGrammarPool):int
+
+    //
+    // Private static methods
+    //
+
+    /**
+     * Builds the tables of the built-in grammars and of their global
+     * components. The keys only depend on the names of the components,
+     * so they are the same when a snapshot is written and when it is read.
+     */
+    private static synchronized void initBuiltinComponents() {
+        if (fBuiltinKeys != null) {
+            return;
+        }
+        IdentityHashMap keys = new IdentityHashMap();
+        Hashtable components = new Hashtable();
+        for (int i = 0; i < BUILTIN_GRAMMARS.length; ++i) {
+            SchemaGrammar grammar = BUILTIN_GRAMMARS[i];
+            addBuiltinComponent(keys, components, String.valueOf(i), grammar);
+            addBuiltinComponents(keys, components, i + "/type/", grammar.fGlobalTypeDecls);
+            addBuiltinComponents(keys, components, i + "/attribute/", grammar.fGlobalAttrDecls);
+            addBuiltinComponents(keys, components, i + "/element/", grammar.fGlobalElemDecls);
+            addBuiltinComponents(keys, components, i + "/attributeGroup/", grammar.fGlobalAttrGrpDecls);
+            addBuiltinComponents(keys, components, i + "/group/", grammar.fGlobalGroupDecls);
+            addBuiltinComponents(keys, components, i + "/notation/", grammar.fGlobalNotationDecls);
+        }
+        fBuiltinComponents = components;
+        fBuiltinKeys = keys;
+    } // initBuiltinComponents()
+
+    /**
+     * Runs a task writing or reading the objects of a snapshot in a thread
+     * with a large stack, since objects are written and read recursively
+     * and the components of a large schema refer to each other deeply.
+     */
+    private static void run(SnapshotTask task) throws IOException {
+        Thread thread = new Thread(null, task, "SchemaGrammarSnapshot", STACK_SIZE);
+        thread.start();
+        boolean interrupted = false;
+        while (thread.isAlive()) {
+            try {
+                thread.join();
+            }
+            catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        if (task.fException != null) {
+            throw task.fException;
+        }
+        if (task.fRuntimeException != null) {
+            throw task.fRuntimeException;
+        }
+        if (task.fError != null) {
+            throw task.fError;
+        }
+    } // run(SnapshotTask)
+
+    private static void addBuiltinComponents(IdentityHashMap keys, Hashtable components,
+            String prefix, SymbolHash table) {
+        Object[] entries = table.getEntries();
+        for (int i = 0; i < entries.length; i += 2) {
+            if (entries[i] instanceof String) {
+                addBuiltinComponent(keys, components, prefix + entries[i], entries[i + 1]);
+            }
+        }
+    } // addBuiltinComponents(IdentityHashMap,Hashtable,String,SymbolHash)
+
+    private static void addBuiltinComponent(IdentityHashMap keys, Hashtable components,
+            String key, Object component) {
+        if (!keys.containsKey(component)) {
+            keys.put(component, key);
+            components.put(key, component);
+        }
+    } // addBuiltinComponent(IdentityHashMap,Hashtable,String,Object)
+
+    //
+    // Classes
+    //
+
+    /**
+     * Stands for a component of a built-in grammar in a snapshot.
+     */
+    static final class BuiltinComponent implements Serializable {
+
+        private static final long serialVersionUID = 4309165497291361358L;
+
+        /** The key of the component. */
+        final String fKey;
+
+        BuiltinComponent(String key) {
+            fKey = key;
+        }
+
+    } // class BuiltinComponent
+
+    /**
+     * Writes or reads the objects of a snapshot, keeping what it throws
+     * for the calling thread.
+     */
+    abstract static class SnapshotTask implements Runnable {
+
+        IOException fException;
+        RuntimeException fRuntimeException;
+        Error fError;
+
+        abstract void execute() throws IOException;
+
+        public void run() {
+            try {
+                execute();
+            }
+            catch (IOException e) {
+                fException = e;
+            }
+            catch (RuntimeException e) {
+                fRuntimeException = e;
+            }
+            catch (Error e) {
+                fError = e;
+            }
+        }
+
+    } // class SnapshotTask
+
+    /**
+     * Writes the components of the built-in grammars as references, and
+     * each string value once.
+     */
+    static final class SnapshotOutputStream extends ObjectOutputStream {
+
+        /** The strings written, by value. */
+        private final Hashtable fStrings = new Hashtable();
+
+        SnapshotOutputStream(OutputStream out) throws IOException {
+            super(out);
+            initBuiltinComponents();
+            enableReplaceObject(true);
+        }
+
+        protected Object replaceObject(Object obj) throws IOException {
+            if (obj instanceof String) {
+                Object str = fStrings.get(obj);
+                if (str == null) {
+                    fStrings.put(obj, obj);
+                    return obj;
+                }
+                return str;
+            }
+            String key = (String) fBuiltinKeys.get(obj);
+            return (key != null) ? new BuiltinComponent(key) : obj;
+        }
+
+    } // class SnapshotOutputStream
+
+    /**
+     * Resolves the references to the components of the built-in grammars
+     * and interns all strings, since names are compared by identity.
+     */
+    static final class SnapshotInputStream extends ObjectInputStream {
+
+        SnapshotInputStream(InputStream in) throws IOException {
+            super(in);
+            initBuiltinComponents();
+            enableResolveObject(true);
+        }
+
+        /**
+         * Resolves only the classes of the schema components and of the
+         * few java.lang and java.util types they hold, so that a snapshot
+         * cannot make any other class be loaded or instantiated.
+         */
+        protected Class resolveClass(ObjectStreamClass desc) throws IOException, ClassNotFoundException {
+            String name = desc.getName();
+            int dimensions = 0;
+            while (name.charAt(dimensions) == '[') {
+                ++dimensions;
+            }
+            if (dimensions > 0) {
+                // arrays of primitive types are allowed
+                if (name.charAt(dimensions) != 'L') {
+                    return super.resolveClass(desc);
+                }
+                name = name.substring(dimensions + 1, name.length() - 1);
+            }
+            if (!isAllowedClass(name)) {
+                throw new InvalidClassException(name, "class not allowed in a schema grammar snapshot");
+            }
+            return super.resolveClass(desc);
+        }
+
+        protected Class resolveProxyClass(String[] interfaces) throws IOException, ClassNotFoundException {
+            throw new InvalidClassException("proxy classes not allowed in a schema grammar snapshot");
+        }
+
+        protected Object resolveObject(Object obj) throws IOException {
+            if (obj instanceof String) {
+                return ((String) obj).intern();
+            }
+            if (obj instanceof BuiltinComponent) {
+                Object component = fBuiltinComponents.get(((BuiltinComponent) obj).fKey);
+                if (component == null) {
+                    throw new InvalidObjectException("unknown built-in component: " + ((BuiltinComponent) obj).fKey);
+                }
+                return component;
+            }
+            return obj;
+        }
+
+        /**
+         * Returns true if a class may be read from a snapshot. Classes of
+         * the xs, dv and xpath packages are checked to be serializable by
+         * the stream itself.
+         */
+        private static boolean isAllowedClass(String name) {
+            if (name.startsWith("org.apache.xerces.impl.xs.") ||
+                name.startsWith("org.apache.xerces.impl.dv.") ||
+                name.startsWith("org.apache.xerces.impl.xpath.") ||
+                name.startsWith("org.apache.xerces.xs.")) {
+                return true;
+            }
+            for (int i = 0; i < ALLOWED_CLASSES.length; ++i) {
+                if (ALLOWED_CLASSES[i].equals(name)) {
+                    return true;
+                }
+            }
+            return false;
+        } // isAllowedClass(String):boolean
+
+    } // class SnapshotInputStream
+
+} // class SchemaGrammarSnapshot
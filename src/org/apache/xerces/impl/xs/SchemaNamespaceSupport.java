@@ -42,6 +42,8 @@ import org.w3c.dom.Node;
  */
 public class SchemaNamespaceSupport 
     extends NamespaceSupport {
+
+    private static final long serialVersionUID = -6347910348560935656L;
     
     private SchemaRootContext fSchemaRootContext = null;
 
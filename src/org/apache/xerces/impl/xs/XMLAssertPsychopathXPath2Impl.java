@@ -36,6 +36,7 @@ import org.apache.xerces.impl.xs.assertion.XMLAssertAdapter;
 import org.apache.xerces.impl.xs.assertion.XSAssert;
 import org.apache.xerces.impl.xs.assertion.XSAssertConstants;
 import org.apache.xerces.impl.xs.assertion.XSAssertImpl;
+import org.apache.xerces.impl.xs.assertion.XSAssertStreamingPlan;
 import org.apache.xerces.impl.xs.util.ObjectListImpl;
 import org.apache.xerces.impl.xs.util.XS11TypeHelper;
 import org.apache.xerces.xni.Augmentations;
@@ -67,6 +68,15 @@ import org.w3c.dom.Element;
  * representation for PsychoPath XPath 2.0 engine) from XNI event calls. XSD assertions 
  * are evaluated on these PSVI XDM instances in a bottom up fashion.
  * 
+ * When all of the assertions of an element's complex type can be streamed (see
+ * XSAssertStreamingPlan), the content of the element is not added to a DOM tree. The
+ * assertions are then evaluated on the element and its attributes, with the results of
+ * their tests on the child elements computed from the XNI events.
+ * 
+ * The assertions of an element are always evaluated on a tree rooted at the element,
+ * whether the enclosing elements are added to a DOM tree or streamed, so that their
+ * results do not depend on the assertions of the enclosing elements.
+ * 
  * @xerces.internal
  * 
  * @author Mukul Gandhi, IBM
@@ -81,12 +91,20 @@ public class XMLAssertPsychopathXPath2Impl extends XMLAssertAdapter {
     // XSModel instance representing the schema information needed by PsychoPath XPath 2.0 engine 
     private XSModel fSchemaXSmodel = null;
     
+    // the grammars of the XSModel 'fSchemaXSmodel'. the XSModel is only built again when the grammars change.
+    private SchemaGrammar[] fSchemaGrammars = null;
+    
     // XPath 2.0 dynamic context reference
     private DynamicContext fXpath2DynamicContext;
     
     // reference to the PsychoPath XPath evaluator
     private AbstractPsychoPathXPath2Impl fAbstrPsychopathImpl = null;
     
+    // the XPath evaluator and dynamic context for the assertions DOM trees. they are used again for all of the trees of a
+    // document, until the dynamic context is modified.
+    private AbstractPsychoPathXPath2Impl fAssertPsychopathImpl = null;
+    private DynamicContext fAssertDynamicContext = null;
+    
     // the DOM root of assertions tree
     private Document fAssertDocument = null;
 
@@ -111,6 +129,19 @@ public class XMLAssertPsychopathXPath2Impl extends XMLAssertAdapter {
     // state to save the <assert> root type information, of the current assertion evaluation 
     private XSTypeDefinition fAssertRootTypeDef = null;
     
+    // depth of the current element
+    private int fElementDepth = 0;
+    
+    // a stack holding the elements whose assertions are streamed
+    private Stack fStreamedRootStack = null;
+    
+    // the DOM document of the streamed elements. it only holds the streamed elements on the stack, without their content.
+    private Document fStreamedDocument = null;
+    
+    // the XPath evaluator and dynamic context for the streamed elements
+    private AbstractPsychoPathXPath2Impl fStreamingPsychopathImpl = null;
+    private DynamicContext fStreamingDynamicContext = null;
+    
     
     /*
      * Class constructor.
@@ -120,19 +151,40 @@ public class XMLAssertPsychopathXPath2Impl extends XMLAssertAdapter {
         this.fAssertDocument = new PSVIDocumentImpl();        
         this.fAssertRootStack = new Stack();
         this.fAssertListStack = new Stack();
+        this.fStreamedRootStack = new Stack();
+        this.fStreamedDocument = new PSVIDocumentImpl();
         this.fAssertParams = assertParams;
     }
     
 
     /*
-     * Initialize the PsychoPath XPath processor.
+     * Initialize the PsychoPath XPath processor. The dynamic context of the previous assertions DOM tree is used again
+     * when it was not modified, and the XSModel is the same.
      */
     private void initXPathProcessor() throws Exception {        
         fXmlSchemaValidator = (XMLSchemaValidator) getProperty("http://apache.org/xml/properties/assert/validator");        
-        fAbstrPsychopathImpl = new AbstractPsychoPathXPath2Impl();
-        fXpath2DynamicContext = fAbstrPsychopathImpl.initXPath2DynamicContext(fSchemaXSmodel, fAssertDocument, fAssertParams);        
+        if (fAssertPsychopathImpl == null || !fAssertPsychopathImpl.isDynamicContextReusable(fSchemaXSmodel)) {
+            fAssertPsychopathImpl = new AbstractPsychoPathXPath2Impl();
+            fAssertDynamicContext = fAssertPsychopathImpl.initXPath2DynamicContext(fSchemaXSmodel, fAssertDocument, fAssertParams);
+        }
+        fAbstrPsychopathImpl = fAssertPsychopathImpl;
+        fXpath2DynamicContext = fAssertDynamicContext;
     } // initXPathProcessor
     
+    
+    /*
+     * Initialize the PsychoPath XPath processor for the streamed elements. The dynamic context of the previous
+     * streamed element is used again when it was not modified, and the XSModel is the same.
+     */
+    private void initStreamingXPathProcessor() {
+        if (fStreamingPsychopathImpl == null || !fStreamingPsychopathImpl.isDynamicContextReusable(fSchemaXSmodel)) {
+            fStreamingPsychopathImpl = new AbstractPsychoPathXPath2Impl();
+            fStreamingDynamicContext = fStreamingPsychopathImpl.initXPath2DynamicContext(fSchemaXSmodel, fStreamedDocument, fAssertParams);
+        }
+        fAbstrPsychopathImpl = fStreamingPsychopathImpl;
+        fXpath2DynamicContext = fStreamingDynamicContext;
+    } // initStreamingXPathProcessor
+    
 
     /*
      * (non-Javadoc)
@@ -142,42 +194,137 @@ public class XMLAssertPsychopathXPath2Impl extends XMLAssertAdapter {
      */
     public void startElement(QName element, XMLAttributes attributes, Augmentations augs) throws Exception {
         
+        fElementDepth++;
+        List assertionList = (List) augs.getItem(XSAssertConstants.assertList);
+        
         if (fCurrentAssertDomNode == null) {
-            fCurrentAssertDomNode = new PSVIElementNSImpl((CoreDocumentImpl) fAssertDocument, element.uri, element.rawname);
-            fAssertDocument.appendChild(fCurrentAssertDomNode);
-        } else {
-            Element elem = new PSVIElementNSImpl((CoreDocumentImpl) fAssertDocument, element.uri, element.rawname);
+            // the element is not within an assertions DOM tree. it may be a child of an element whose assertions are streamed.
+            if (!fStreamedRootStack.empty()) {
+                StreamedAssertRoot streamedRoot = (StreamedAssertRoot) fStreamedRootStack.peek();
+                if (streamedRoot.fDepth == fElementDepth - 1) {
+                    streamedRoot.addChildElement(element);
+                }
+            }
+            if (assertionList != null) {
+                StreamedAssertRoot streamedRoot = newStreamedAssertRoot(element, attributes, assertionList);
+                if (streamedRoot != null) {
+                    fStreamedRootStack.push(streamedRoot);
+                    if (((Boolean)augs.getItem(XSAssertConstants.isAttrHaveAsserts)).booleanValue()) {
+                        initXPathProcessor();
+                    }
+                }
+                else {
+                    // the assertions are evaluated on a DOM tree rooted at this element
+                    fCurrentAssertDomNode = createAssertDomNode(fAssertDocument, element, attributes);
+                    fAssertDocument.appendChild(fCurrentAssertDomNode);
+                    fAssertRootStack.push(fCurrentAssertDomNode);
+                    fAssertListStack.push(assertionList);
+                    initXPathProcessor();
+                }
+            }
+        }
+        else {
+            Element elem = createAssertDomNode(fAssertDocument, element, attributes);
             fCurrentAssertDomNode.appendChild(elem);
             fCurrentAssertDomNode = elem;
+            // if we have assertions applicable to this element, store the element reference and the assertions on it on the runtime stacks
+            if (assertionList != null) {
+                fAssertRootStack.push(fCurrentAssertDomNode);
+                fAssertListStack.push(assertionList);
+                initXPathProcessor();
+            }
         }
 
+        // evaluate assertions from attributes. evaluation of assertions on attributes in startElement call, helps us setting the PSVI results
+        // for attributes appropriately.
+        if (((Boolean)augs.getItem(XSAssertConstants.isAttrHaveAsserts)).booleanValue()) {
+            evaluateAssertsFromAttributes(element, attributes);
+        }
+        
+    } // startElement
+    
+    
+    /*
+     * Create a DOM element node, with attribute nodes for the attributes of the element.
+     */
+    private Element createAssertDomNode(Document document, QName element, XMLAttributes attributes) {
+        
+        Element elem = new PSVIElementNSImpl((CoreDocumentImpl) document, element.uri, element.rawname);
+        
         // add attribute nodes to DOM element node
         for (int attIndex = 0; attIndex < attributes.getLength(); attIndex++) {
-            PSVIAttrNSImpl attrNode = new PSVIAttrNSImpl((PSVIDocumentImpl)fAssertDocument, attributes.getURI(attIndex), attributes.getQName(attIndex), attributes.getLocalName(attIndex));
+            PSVIAttrNSImpl attrNode = new PSVIAttrNSImpl((PSVIDocumentImpl)document, attributes.getURI(attIndex), attributes.getQName(attIndex), attributes.getLocalName(attIndex));
             attrNode.setNodeValue(attributes.getValue(attIndex));
             // set PSVI information for the attribute
             AttributePSVImpl attrPSVI = (AttributePSVImpl) (attributes.getAugmentations(attIndex)).getItem(Constants.ATTRIBUTE_PSVI);
             if (attrPSVI != null) {
                attrNode.setPSVI(attrPSVI);
             }
-            fCurrentAssertDomNode.setAttributeNode(attrNode);
+            elem.setAttributeNode(attrNode);
         }
-
-        // if we have assertions applicable to this element, store the element reference and the assertions on it on the runtime stacks
-        List assertionList = (List) augs.getItem(XSAssertConstants.assertList);
-        if (assertionList != null) {
-            fAssertRootStack.push(fCurrentAssertDomNode);
-            fAssertListStack.push(assertionList);
-            initXPathProcessor();
+        
+        return elem;
+        
+    } // createAssertDomNode
+    
+    
+    /*
+     * Prepare the streamed evaluation of the assertions of an element. Returns null if the assertions must be
+     * evaluated on a DOM tree of the element.
+     */
+    private StreamedAssertRoot newStreamedAssertRoot(QName element, XMLAttributes attributes, List assertions) throws Exception {
+        
+        // only the assertions from a complex type with complex content are streamed, since $value is empty for them
+        if (fXmlSchemaValidator == null) {
+            fXmlSchemaValidator = (XMLSchemaValidator) getProperty("http://apache.org/xml/properties/assert/validator");
         }
-
-        // evaluate assertions from attributes. evaluation of assertions on attributes in startElement call, helps us setting the PSVI results
-        // for attributes appropriately.
-        if (((Boolean)augs.getItem(XSAssertConstants.isAttrHaveAsserts)).booleanValue()) {
-            evaluateAssertsFromAttributes(element, attributes);
+        XSTypeDefinition typeDefn = fXmlSchemaValidator.fCurrentPSVI.getTypeDefinition();
+        if (!(assertions instanceof XSObjectList) || !(typeDefn instanceof XSComplexTypeDefinition) ||
+             ((XSComplexTypeDefinition) typeDefn).getContentType() == XSComplexTypeDefinition.CONTENTTYPE_SIMPLE) {
+            return null;
         }
         
-    } // startElement
+        XSObjectList assertList = (XSObjectList) assertions;
+        XSAssertStreamingPlan[] plans = new XSAssertStreamingPlan[assertList.getLength()];
+        String[][] childTestNamespaces = new String[assertList.getLength()][];
+        for (int assertIdx = 0; assertIdx < assertList.getLength(); assertIdx++) {
+            XSAssertImpl assertImpl = (XSAssertImpl) assertList.item(assertIdx);
+            if (assertImpl.getType() == XSConstants.ASSERTION) {
+                plans[assertIdx] = assertImpl.getStreamingPlan();
+                if (plans[assertIdx] == null) {
+                    return null;
+                }
+            }
+        }
+        
+        // the names of the child element tests are resolved with the namespace bindings used for the evaluation
+        initStreamingXPathProcessor();
+        for (int assertIdx = 0; assertIdx < assertList.getLength(); assertIdx++) {
+            XSAssertImpl assertImpl = (XSAssertImpl) assertList.item(assertIdx);
+            String xPathDefaultNamespace = assertImpl.getXPathDefaultNamespace();             
+            if (xPathDefaultNamespace != null) {
+                fAbstrPsychopathImpl.addNamespaceBindingToXPath2DynamicContext(null, xPathDefaultNamespace);  
+            }
+            if (plans[assertIdx] != null) {
+                childTestNamespaces[assertIdx] = new String[plans[assertIdx].getChildTestCount()];
+                if (!plans[assertIdx].resolveChildTests(fXpath2DynamicContext, childTestNamespaces[assertIdx])) {
+                    return null;
+                }
+            }
+        }
+        
+        // the element is added to the enclosing streamed element, so that the document only holds the elements of the stack
+        Element elem = createAssertDomNode(fStreamedDocument, element, attributes);
+        if (fStreamedRootStack.empty()) {
+            fStreamedDocument.appendChild(elem);
+        }
+        else {
+            ((StreamedAssertRoot) fStreamedRootStack.peek()).fElement.appendChild(elem);
+        }
+        
+        return new StreamedAssertRoot(elem, assertList, plans, childTestNamespaces, fElementDepth);
+        
+    } // newStreamedAssertRoot
     
     
     /*
@@ -224,6 +371,7 @@ public class XMLAssertPsychopathXPath2Impl extends XMLAssertAdapter {
         if (fCurrentAssertDomNode != null) {            
             // set PSVI information on the element
             ElementPSVI elemPSVI = (ElementPSVI) augs.getItem(Constants.ELEMENT_PSVI);
+            setSchemaInformation(elemPSVI);
             ((PSVIElementNSImpl) fCurrentAssertDomNode).setPSVI(elemPSVI);
             
             // handling default values of elements (adding them as 'text' node in the assertion XDM tree)
@@ -237,8 +385,26 @@ public class XMLAssertPsychopathXPath2Impl extends XMLAssertAdapter {
                  fSchemaXSmodel =  ((PSVIElementNSImpl) fCurrentAssertDomNode).getSchemaInformation();                 
                  // pop the assertion root stack to go one level up
                  fAssertRootStack.pop();
-                 // get assertions from the stack, and pass on to the assertions evaluator
-                 processAllAssertionsOnElement(element, (List) fAssertListStack.pop(), augs);
+                 // the assertions are evaluated on a tree rooted at this element, as they are when the enclosing element
+                 // is streamed. an element nested in the tree is moved in place of the outermost element meanwhile.
+                 Element parentNode = null;
+                 Element outermostNode = null;
+                 if (fCurrentAssertDomNode.getParentNode() instanceof Element) {
+                     parentNode = (Element) fCurrentAssertDomNode.getParentNode();
+                     outermostNode = fAssertDocument.getDocumentElement();
+                     parentNode.removeChild(fCurrentAssertDomNode);
+                     fAssertDocument.replaceChild(fCurrentAssertDomNode, outermostNode);
+                 }
+                 try {
+                     // get assertions from the stack, and pass on to the assertions evaluator
+                     processAllAssertionsOnElement(element, (List) fAssertListStack.pop(), augs);
+                 }
+                 finally {
+                     if (parentNode != null) {
+                         fAssertDocument.replaceChild(outermostNode, fCurrentAssertDomNode);
+                         parentNode.appendChild(fCurrentAssertDomNode);
+                     }
+                 }
                  // set value of [failed assertions] PSVI property
                  if (fFailedAssertions != null && elemPSVI != null) {
                      setFailedAssertionsPSVIResult(elemPSVI);
@@ -249,11 +415,100 @@ public class XMLAssertPsychopathXPath2Impl extends XMLAssertAdapter {
             if (fCurrentAssertDomNode.getParentNode() instanceof Element) {
                 fCurrentAssertDomNode = (Element) fCurrentAssertDomNode.getParentNode();
             }
+            else {
+                // the end of the outermost assertions DOM tree. the following elements are not added to it.
+                fAssertDocument.removeChild(fCurrentAssertDomNode);
+                fCurrentAssertDomNode = null;
+            }
         }
+        else if (!fStreamedRootStack.empty() && ((StreamedAssertRoot) fStreamedRootStack.peek()).fDepth == fElementDepth) {
+            StreamedAssertRoot streamedRoot = (StreamedAssertRoot) fStreamedRootStack.pop();
+            ElementPSVI elemPSVI = (ElementPSVI) augs.getItem(Constants.ELEMENT_PSVI);
+            processStreamedAssertions(element, streamedRoot, elemPSVI);
+            if (fFailedAssertions != null && elemPSVI != null) {
+                setFailedAssertionsPSVIResult(elemPSVI);
+                fFailedAssertions = null;
+            }
+        }
+        
+        fElementDepth--;
         
     } // endElement
     
     
+    /*
+     * Evaluate the streamed assertions of an element, on the element and its attributes.
+     */
+    private void processStreamedAssertions(QName element, StreamedAssertRoot streamedRoot, ElementPSVI elemPSVI) throws Exception {
+        
+        PSVIElementNSImpl rootNode = (PSVIElementNSImpl) streamedRoot.fElement;
+        setSchemaInformation(elemPSVI);
+        rootNode.setPSVI(elemPSVI);
+        fSchemaXSmodel = rootNode.getSchemaInformation();
+        initStreamingXPathProcessor();
+        
+        // set xpath context variable $value to an empty sequence, for a complex type with complex content
+        fXpath2DynamicContext.set_variable(new org.eclipse.wst.xml.xpath2.processor.internal.types.QName("value"), XS11TypeHelper.getXPath2ResultSequence(new ArrayList()));
+        
+        XSObjectList assertList = streamedRoot.fAssertions;
+        for (int assertIdx = 0; assertIdx < assertList.getLength(); assertIdx++) {
+            XSAssertImpl assertImpl = (XSAssertImpl) assertList.item(assertIdx);
+            String xPathDefaultNamespace = assertImpl.getXPathDefaultNamespace();             
+            if (xPathDefaultNamespace != null) {
+                fAbstrPsychopathImpl.addNamespaceBindingToXPath2DynamicContext(null, xPathDefaultNamespace);  
+            }
+            // NOTE: asserts from attributes are evaluated in method startElement -> evaluateAssertsFromAttributes.
+            XSAssertStreamingPlan plan = streamedRoot.fPlans[assertIdx];
+            if (plan != null) {
+                plan.setChildTestVariables(fXpath2DynamicContext, streamedRoot.fChildCounts[assertIdx]);
+                AssertionError assertError = evaluateOneAssertion(element, assertImpl, plan.getCompiledExpr(), rootNode, null, true, false);
+                if (assertError != null) {
+                    reportAssertionsError(assertError);    
+                }
+            }
+        }
+        
+        rootNode.getParentNode().removeChild(rootNode);
+        
+    } // processStreamedAssertions
+    
+    
+    /*
+     * Set the XSModel of the PSVI of an element to the XSModel of the previous element, when their grammars are the
+     * same. An XSModel is otherwise built for the PSVI of each element added to an assertions DOM tree.
+     */
+    private void setSchemaInformation(ElementPSVI elemPSVI) {
+        if (elemPSVI instanceof ElementPSVImpl) {
+            ElementPSVImpl elemPSVIImpl = (ElementPSVImpl) elemPSVI;
+            if (elemPSVIImpl.fSchemaInformation == null && elemPSVIImpl.fGrammars != null) {
+                if (isSameGrammars(elemPSVIImpl.fGrammars, fSchemaGrammars)) {
+                    elemPSVIImpl.fSchemaInformation = fSchemaXSmodel;
+                }
+                else {
+                    fSchemaGrammars = elemPSVIImpl.fGrammars;
+                    fSchemaXSmodel = elemPSVIImpl.getSchemaInformation();
+                }
+            }
+        }
+    } // setSchemaInformation
+    
+    
+    /*
+     * Check if two arrays hold the same schema grammars.
+     */
+    private boolean isSameGrammars(SchemaGrammar[] grammars1, SchemaGrammar[] grammars2) {
+        if (grammars1 == null || grammars2 == null || grammars1.length != grammars2.length) {
+            return false;
+        }
+        for (int grammarIdx = 0; grammarIdx < grammars1.length; grammarIdx++) {
+            if (grammars1[grammarIdx] != grammars2[grammarIdx]) {
+                return false;
+            }
+        }
+        return true;
+    } // isSameGrammars
+    
+    
     /* (non-Javadoc)
      * @see org.apache.xerces.impl.xs.assertion.XMLAssertAdapter#comment(org.apache.xerces.xni.XMLString)
      */
@@ -354,7 +609,7 @@ public class XMLAssertPsychopathXPath2Impl extends XMLAssertAdapter {
             XSAssertImpl assertImpl = (XSAssertImpl) assertList.get(assertIdx);
             String xPathDefaultNamespace = assertImpl.getXPathDefaultNamespace(); 
             if (xPathDefaultNamespace != null) {
-                fXpath2DynamicContext.add_namespace(null, xPathDefaultNamespace);  
+                fAbstrPsychopathImpl.addNamespaceBindingToXPath2DynamicContext(null, xPathDefaultNamespace);  
             }
             evaluateOneAssertionFromSimpleType(element, value, augs, simpleTypeDefn, isTypeDerivedFromList, isTypeDerivedFromUnion, assertImpl, false, null);
         }
@@ -522,7 +777,7 @@ public class XMLAssertPsychopathXPath2Impl extends XMLAssertAdapter {
             XSAssertImpl assertImpl = (XSAssertImpl) assertList.get(assertIdx);
             String xPathDefaultNamespace = assertImpl.getXPathDefaultNamespace();             
             if (xPathDefaultNamespace != null) {
-                fXpath2DynamicContext.add_namespace(null, xPathDefaultNamespace);  
+                fAbstrPsychopathImpl.addNamespaceBindingToXPath2DynamicContext(null, xPathDefaultNamespace);  
             }
             // NOTE: asserts from attributes are not evaluated here. they are evaluated in method startElement -> evaluateAssertsFromAttributes.  
             if (assertImpl.getType() == XSConstants.ASSERTION) {
@@ -569,19 +824,25 @@ public class XMLAssertPsychopathXPath2Impl extends XMLAssertAdapter {
      * Method to evaluate an assertion. Returns the evaluation error details in an AssertionError object.
      */
     private AssertionError evaluateOneAssertion(QName element, XSAssertImpl assertImpl, String value, boolean xPathContextExists, boolean isList) {
+        return evaluateOneAssertion(element, assertImpl, assertImpl.getCompiledExpr(), fCurrentAssertDomNode, value, xPathContextExists, isList);
+    } // evaluateOneAssertion
+    
+    
+    /*
+     * Method to evaluate an XPath expression of an assertion, with the given context node.
+     */
+    private AssertionError evaluateOneAssertion(QName element, XSAssertImpl assertImpl, CompiledXPath2Expr compiledExpr, Element contextNode, String value, boolean xPathContextExists, boolean isList) {
         
         AssertionError assertionError = null;
         
         try {  
-            XPath xpathObject = assertImpl.getCompiledXPathExpr();
-            
             boolean result;            
             if (value == null || xPathContextExists == true) {
-                result = fAbstrPsychopathImpl.evaluateXPathExpr(xpathObject, fCurrentAssertDomNode);  
+                result = fAbstrPsychopathImpl.evaluateXPathExpr(compiledExpr, contextNode);  
             } 
             else {
                 // XPath context is "undefined"
-                result = fAbstrPsychopathImpl.evaluateXPathExpr(xpathObject, null); 
+                result = fAbstrPsychopathImpl.evaluateXPathExpr(compiledExpr, null); 
             }
             
             if (!result) {
@@ -609,7 +870,7 @@ public class XMLAssertPsychopathXPath2Impl extends XMLAssertAdapter {
         
         return assertionError;
         
-    } // evaluateOneAssertion
+    } // evaluateOneAssertion(QName, XSAssertImpl, CompiledXPath2Expr, Element, String, boolean, boolean)
     
     
     /*
@@ -818,6 +1079,54 @@ public class XMLAssertPsychopathXPath2Impl extends XMLAssertAdapter {
     } // class AssertionError
     
 
+    /*
+     * Class to store the state of an element whose assertions are streamed.
+     */
+    static final class StreamedAssertRoot {
+        
+        // the element and its attributes, without content
+        final Element fElement;
+        // the assertions of the element, and their streaming plans (null for the assertions which are not xs:assert)
+        final XSObjectList fAssertions;
+        final XSAssertStreamingPlan[] fPlans;
+        // the resolved namespaces of the child element tests of each plan, and the number of child elements matching them
+        final String[][] fChildTestNamespaces;
+        final int[][] fChildCounts;
+        // depth of the element
+        final int fDepth;
+        
+        // class constructor
+        StreamedAssertRoot(Element element, XSObjectList assertions, XSAssertStreamingPlan[] plans, String[][] childTestNamespaces, int depth) {
+            fElement = element;
+            fAssertions = assertions;
+            fPlans = plans;
+            fChildTestNamespaces = childTestNamespaces;
+            fChildCounts = new int[plans.length][];
+            for (int planIdx = 0; planIdx < plans.length; planIdx++) {
+                if (plans[planIdx] != null) {
+                    fChildCounts[planIdx] = new int[plans[planIdx].getChildTestCount()];
+                }
+            }
+            fDepth = depth;
+        }
+        
+        // count a child element for the tests which it matches
+        void addChildElement(QName child) {
+            for (int planIdx = 0; planIdx < fPlans.length; planIdx++) {
+                XSAssertStreamingPlan plan = fPlans[planIdx];
+                if (plan != null) {
+                    for (int testIdx = 0; testIdx < fChildCounts[planIdx].length; testIdx++) {
+                        if (plan.isChildTestMatched(testIdx, fChildTestNamespaces[planIdx][testIdx], child.uri, child.localpart)) {
+                            fChildCounts[planIdx][testIdx]++;
+                        }
+                    }
+                }
+            }
+        }
+        
+    } // class StreamedAssertRoot
+    
+
     /*
      * Check if a simple type definition has a base type whose variety is simpleType->list.
      */
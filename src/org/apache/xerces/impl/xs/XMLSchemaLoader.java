@@ -225,6 +225,10 @@ XSLoader, DOMConfiguration {
     protected static final String DATATYPE_XML_VERSION =
         Constants.XERCES_PROPERTY_PREFIX + Constants.DATATYPE_XML_VERSION_PROPERTY;
     
+    /** Property identifier: schema loading threads. */
+    protected static final String SCHEMA_LOADING_THREADS =
+        Constants.XERCES_PROPERTY_PREFIX + Constants.SCHEMA_LOADING_THREADS_PROPERTY;
+    
     // recognized properties
     private static final String [] RECOGNIZED_PROPERTIES = {
         ENTITY_MANAGER,
@@ -240,7 +244,8 @@ XSLoader, DOMConfiguration {
         LOCALE,
         SCHEMA_DV_FACTORY,
         XML_SCHEMA_VERSION,
-        DATATYPE_XML_VERSION
+        DATATYPE_XML_VERSION,
+        SCHEMA_LOADING_THREADS
     };
     
     private static final String EXTENDED_SCHEMA_FACTORY_CLASS = "org.apache.xerces.impl.dv.xs.ExtendedSchemaDVFactoryImpl";
@@ -1300,7 +1305,8 @@ XSLoader, DOMConfiguration {
             name.equals(SCHEMA_LOCATION) ||
             name.equals(SCHEMA_NONS_LOCATION) ||
             name.equals(JAXP_SCHEMA_SOURCE) ||
-            name.equals(SCHEMA_DV_FACTORY)) {
+            name.equals(SCHEMA_DV_FACTORY) ||
+            name.equals(SCHEMA_LOADING_THREADS)) {
             return true;
         }
         return false;
@@ -1363,6 +1369,7 @@ XSLoader, DOMConfiguration {
             v.add(HONOUR_ALL_SCHEMALOCATIONS);
             v.add(NAMESPACE_GROWTH);
             v.add(TOLERATE_DUPLICATES);
+            v.add(SCHEMA_LOADING_THREADS);
             fRecognizedParameters = new DOMStringListImpl(v);      	
         }
         return fRecognizedParameters;
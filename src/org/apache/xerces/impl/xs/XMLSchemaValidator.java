@@ -282,6 +282,10 @@ public class XMLSchemaValidator
     /** Property identifier: datatype xml version. */
     protected static final String DATATYPE_XML_VERSION = 
         Constants.XERCES_PROPERTY_PREFIX + Constants.DATATYPE_XML_VERSION_PROPERTY;
+    
+    /** Property identifier: schema loading threads. */
+    protected static final String SCHEMA_LOADING_THREADS =
+        Constants.XERCES_PROPERTY_PREFIX + Constants.SCHEMA_LOADING_THREADS_PROPERTY;
 
     // recognized features and properties
 
@@ -357,12 +361,13 @@ public class XMLSchemaValidator
             ROOT_ELEMENT_DECL,
             SCHEMA_DV_FACTORY,
             XML_SCHEMA_VERSION,
-            DATATYPE_XML_VERSION
+            DATATYPE_XML_VERSION,
+            SCHEMA_LOADING_THREADS
         };
 
     /** Property defaults. */
     private static final Object[] PROPERTY_DEFAULTS =
-        { null, null, null, null, null, null, null, null, null, null, null, null, null};
+        { null, null, null, null, null, null, null, null, null, null, null, null, null, null};
 
     // this is the number of valuestores of each kind
     // we expect an element to have.  It's almost
@@ -788,6 +793,7 @@ public class XMLSchemaValidator
         
         fNamespaceContext = namespaceContext;        
         fAssertionValidator = new XSDAssertionValidator(this);
+        fTypeAlternativeValidator.reset();
 
     } // startDocument(XMLLocator,String)
 
@@ -4247,6 +4253,16 @@ public class XMLSchemaValidator
         private int fItemValueTypesLength = 0;
         private ShortList fItemValueType = null;
 
+        /**
+         * Hash index of the tuples of values in fValues. Each bucket holds
+         * the number + 1 of the last tuple added to it, or 0, and fHashNext
+         * the number + 1 of the previous tuple of the same bucket.
+         */
+        private int[] fHashBuckets = null;
+        private int[] fHashNext = null;
+        private int[] fHashCodes = null;
+        private int fTupleCount = 0;
+
         /** buffer for error messages */
         final StringBuffer fTempBuffer = new StringBuffer();
 
@@ -4289,6 +4305,12 @@ public class XMLSchemaValidator
             if (fItemValueTypes != null) {
                 fItemValueTypes.setSize(0);
             }
+            if (fHashBuckets != null) {
+                for (int i = 0; i < fHashBuckets.length; i++) {
+                    fHashBuckets[i] = 0;
+                }
+            }
+            fTupleCount = 0;
         } // end clear():void
 
         // appends the contents of one ValueStore to those of us.
@@ -4300,6 +4322,9 @@ public class XMLSchemaValidator
                 addValueType(newVal.getValueTypeAt(i));
                 addItemValueType(newVal.getItemValueTypeAt(i));
             }
+            for (int i = 0; i < newVal.fTupleCount; i++) {
+                addTupleHashCode(newVal.fHashCodes[i]);
+            }
         } // append(ValueStoreBase)
 
         /** Start scope for value store. */
@@ -4414,6 +4439,7 @@ public class XMLSchemaValidator
                     addValueType(fLocalValueTypes[i]);
                     addItemValueType(fLocalItemValueTypes[i]);
                 }
+                addTupleHashCode(hashCode(fLocalValues));
             }
         } // addValue(String,Field)
 
@@ -4437,24 +4463,27 @@ public class XMLSchemaValidator
          * Returns true if this value store contains the locally scoped value stores
          */
         public boolean contains() {
-            // REVISIT: we can improve performance by using hash codes, instead of
-            // traversing global vector that could be quite large.
-            int next = 0;
-            final int size = fValues.size();
-            LOOP : for (int i = 0; i < size; i = next) {
-                next = i + fFieldCount;
+            if (fTupleCount == 0) {
+                return false;
+            }
+            final int hash = hashCode(fLocalValues);
+            int tuple = fHashBuckets[hash & (fHashBuckets.length - 1)];
+            LOOP : for (; tuple != 0; tuple = fHashNext[tuple - 1]) {
+                if (fHashCodes[tuple - 1] != hash) {
+                    continue;
+                }
+                final int i = (tuple - 1) * fFieldCount;
                 for (int j = 0; j < fFieldCount; j++) {
                     final Object value1 = fLocalValues[j];
-                    final Object value2 = fValues.elementAt(i);
+                    final Object value2 = fValues.elementAt(i + j);
                     final short valueType1 = fLocalValueTypes[j];
-                    final short valueType2 = getValueTypeAt(i);
+                    final short valueType2 = getValueTypeAt(i + j);
                     final ShortList typeList1 = isListType(valueType1) ? fLocalItemValueTypes[j] : null;
-                    final ShortList typeList2 = isListType(valueType2) ? getItemValueTypeAt(i) : null;
+                    final ShortList typeList2 = isListType(valueType2) ? getItemValueTypeAt(i + j) : null;
 
                     if (!EqualityHelper.isEqual(value1, value2, valueType1, valueType2, typeList1, typeList2, fSchemaVersion)) {
                         continue LOOP;
                     }
-                    i++;
                 }
                 // found it
                 return true;
@@ -4472,45 +4501,34 @@ public class XMLSchemaValidator
             
             final Vector values = vsb.fValues;         
             final int size1 = values.size();
-            if (fFieldCount <= 1) {
-                LOOP: for (int i = 0; i < size1; ++i) {
-                    final Object value1 = values.elementAt(i);
-                    final short valueType1 = vsb.getValueTypeAt(i);
-                    final ShortList typeList1 = isListType(valueType1) ? vsb.getItemValueTypeAt(i) : null;
-                    for (int j=0; j < fValues.size(); ++j) {
-                        final Object value2 = fValues.elementAt(j);
-                        final short valueType2 = getValueTypeAt(j);
-                        final ShortList typeList2 = isListType(valueType2) ? getItemValueTypeAt(j) : null;
-                        if (EqualityHelper.isEqual(value1, value2, valueType1, valueType2, typeList1, typeList2, fSchemaVersion)) {
-                            continue LOOP;
-                        }
-                    }
+            /** Iterate over each set of fields. **/
+            OUTER: for (int i = 0; i < size1; i += fFieldCount) {
+                if (fTupleCount == 0) {
                     return i;
                 }
-            }
-            /** Handle n-tuples. **/
-            else {
-                final int size2 = fValues.size();
-                /** Iterate over each set of fields. **/
-                OUTER: for (int i = 0; i < size1; i += fFieldCount) {
-                    /** Check whether this set is contained in the value store. **/
-                    INNER: for (int j = 0; j < size2; j += fFieldCount) {
-                        for (int k = 0; k < fFieldCount; ++k) {
-                            final Object value1 = values.elementAt(i+k);
-                            final Object value2 = fValues.elementAt(j+k);
-                            final short valueType1 = vsb.getValueTypeAt(i+k);
-                            final short valueType2 = getValueTypeAt(j+k);
-                            final ShortList typeList1 = isListType(valueType1) ? vsb.getItemValueTypeAt(i+k) : null;
-                            final ShortList typeList2 = isListType(valueType2) ? getItemValueTypeAt(j+k) : null;
-                            
-                            if (!EqualityHelper.isEqual(value1, value2, valueType1, valueType2, typeList1, typeList2, fSchemaVersion)) {
-                                continue INNER;
-                            }
+                /** Check whether this set is contained in the value store. **/
+                final int hash = vsb.fHashCodes[i / fFieldCount];
+                int tuple = fHashBuckets[hash & (fHashBuckets.length - 1)];
+                INNER: for (; tuple != 0; tuple = fHashNext[tuple - 1]) {
+                    if (fHashCodes[tuple - 1] != hash) {
+                        continue;
+                    }
+                    final int j = (tuple - 1) * fFieldCount;
+                    for (int k = 0; k < fFieldCount; ++k) {
+                        final Object value1 = values.elementAt(i+k);
+                        final Object value2 = fValues.elementAt(j+k);
+                        final short valueType1 = vsb.getValueTypeAt(i+k);
+                        final short valueType2 = getValueTypeAt(j+k);
+                        final ShortList typeList1 = isListType(valueType1) ? vsb.getItemValueTypeAt(i+k) : null;
+                        final ShortList typeList2 = isListType(valueType2) ? getItemValueTypeAt(j+k) : null;
+                        
+                        if (!EqualityHelper.isEqual(value1, value2, valueType1, valueType2, typeList1, typeList2, fSchemaVersion)) {
+                            continue INNER;
                         }
-                        continue OUTER;
                     }
-                    return i;
+                    continue OUTER;
                 }
+                return i;
             }
             return -1;
             
@@ -4595,6 +4613,44 @@ public class XMLSchemaValidator
         private boolean isListType(short type) {
             return type == XSConstants.LIST_DT || type == XSConstants.LISTOFUNION_DT;
         }
+
+        /** Returns the hash code of a tuple of values. */
+        private int hashCode(Object[] values) {
+            int hash = 0;
+            for (int i = 0; i < fFieldCount; i++) {
+                hash = hash * 31 + EqualityHelper.hashCode(values[i]);
+            }
+            // spread the bits, the buckets are indexed by the low ones
+            return hash ^ (hash >>> 16);
+        }
+
+        /** Adds the last tuple of values to the hash index. */
+        private void addTupleHashCode(int hash) {
+            if (fHashBuckets == null) {
+                fHashBuckets = new int[16];
+                fHashNext = new int[8];
+                fHashCodes = new int[8];
+            }
+            else if (fTupleCount == fHashNext.length) {
+                int[] newNext = new int[fTupleCount * 2];
+                int[] newCodes = new int[fTupleCount * 2];
+                System.arraycopy(fHashCodes, 0, newCodes, 0, fTupleCount);
+                fHashNext = newNext;
+                fHashCodes = newCodes;
+                // rehash, keeping the load factor at most 1/2
+                fHashBuckets = new int[fTupleCount * 4];
+                final int mask = fHashBuckets.length - 1;
+                for (int t = 0; t < fTupleCount; t++) {
+                    final int bucket = fHashCodes[t] & mask;
+                    fHashNext[t] = fHashBuckets[bucket];
+                    fHashBuckets[bucket] = t + 1;
+                }
+            }
+            final int bucket = hash & (fHashBuckets.length - 1);
+            fHashCodes[fTupleCount] = hash;
+            fHashNext[fTupleCount] = fHashBuckets[bucket];
+            fHashBuckets[bucket] = ++fTupleCount;
+        }
         
         private void addValueType(short type) {
             if (fUseValueTypeVector) {
@@ -17,6 +17,7 @@
 package org.apache.xerces.impl.xs;
 
 import java.io.IOException;
+import java.io.Serializable;
 import java.io.StringReader;
 
 import org.apache.xerces.dom.CoreDocumentImpl;
@@ -39,7 +40,9 @@ import org.xml.sax.SAXException;
  * 
  * @version $Id$
  */
-public class XSAnnotationImpl implements XSAnnotation {
+public class XSAnnotationImpl implements XSAnnotation, Serializable {
+
+    private static final long serialVersionUID = 2703666350340170728L;
 
     // Data
 
@@ -17,6 +17,8 @@
 
 package org.apache.xerces.impl.xs;
 
+import java.io.Serializable;
+
 import org.apache.xerces.impl.dv.ValidatedInfo;
 import org.apache.xerces.impl.dv.XSSimpleType;
 import org.apache.xerces.impl.xs.util.XSObjectListImpl;
@@ -42,7 +44,9 @@ import org.apache.xerces.xs.XSValue;
  * @author Sandy Gao, IBM
  * @version $Id$
  */
-public class XSAttributeDecl implements XSAttributeDeclaration {
+public class XSAttributeDecl implements XSAttributeDeclaration, Serializable {
+
+    private static final long serialVersionUID = 7834206207257893061L;
 
     // scopes
     public final static short     SCOPE_ABSENT        = 0;
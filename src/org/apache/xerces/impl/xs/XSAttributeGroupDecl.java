@@ -17,6 +17,8 @@
 
 package org.apache.xerces.impl.xs;
 
+import java.io.Serializable;
+
 import org.apache.xerces.impl.dv.ValidatedInfo;
 import org.apache.xerces.impl.dv.xs.EqualityHelper;
 import org.apache.xerces.impl.xs.util.XSObjectListImpl;
@@ -39,7 +41,9 @@ import org.apache.xerces.xs.XSWildcard;
  *
  * @version $Id$
  */
-public class XSAttributeGroupDecl implements XSAttributeGroupDefinition {
+public class XSAttributeGroupDecl implements XSAttributeGroupDefinition, Serializable {
+
+    private static final long serialVersionUID = -5535133645150776744L;
 
     // name of the attribute group
     public String fName = null;
@@ -17,6 +17,8 @@
 
 package org.apache.xerces.impl.xs;
 
+import java.io.Serializable;
+
 import org.apache.xerces.impl.dv.ValidatedInfo;
 import org.apache.xerces.impl.xs.util.XSObjectListImpl;
 import org.apache.xerces.xs.ShortList;
@@ -36,7 +38,9 @@ import org.apache.xerces.xs.XSValue;
  * @author Sandy Gao, IBM
  * @version $Id$
  */
-public class XSAttributeUseImpl implements XSAttributeUse {
+public class XSAttributeUseImpl implements XSAttributeUse, Serializable {
+
+    private static final long serialVersionUID = 3399045371188227816L;
 
     // the referred attribute decl
     public XSAttributeDecl fAttrDecl = null;
@@ -17,6 +17,8 @@
 
 package org.apache.xerces.impl.xs;
 
+import java.io.Serializable;
+
 import org.apache.xerces.impl.dv.XSSimpleType;
 import org.apache.xerces.impl.dv.xs.XSSimpleTypeDecl;
 import org.apache.xerces.impl.xs.models.CMBuilder;
@@ -45,7 +47,9 @@ import org.w3c.dom.TypeInfo;
  * @author Sandy Gao, IBM
  * @version $Id$
  */
-public class XSComplexTypeDecl implements XSComplexTypeDefinition, TypeInfo {
+public class XSComplexTypeDecl implements XSComplexTypeDefinition, TypeInfo, Serializable {
+
+    private static final long serialVersionUID = -3354369227729806679L;
 
     // name of the complexType
     String fName = null;
@@ -82,10 +86,10 @@ public class XSComplexTypeDecl implements XSComplexTypeDefinition, TypeInfo {
     XSParticleDecl fParticle = null;
 
     // if there is a particle, the content model corresponding to that particle
-    XSCMValidator fCMValidator = null;
+    transient XSCMValidator fCMValidator = null;
 
     // the content model that's sufficient for computing UPA
-    XSCMValidator fUPACMValidator = null;
+    transient XSCMValidator fUPACMValidator = null;
 
     // list of annotations affiliated with this type
     XSObjectListImpl fAnnotations = null;
@@ -17,6 +17,11 @@
 
 package org.apache.xerces.impl.xs;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+
 import org.apache.xerces.util.XMLResourceIdentifierImpl;
 import org.apache.xerces.xni.QName;
 import org.apache.xerces.xni.XMLAttributes;
@@ -34,7 +39,10 @@ import org.apache.xerces.xni.grammars.XMLSchemaDescription;
  * @version $Id$
  */
 public class XSDDescription extends XMLResourceIdentifierImpl 
-                implements XMLSchemaDescription {
+                implements XMLSchemaDescription, Serializable {
+
+    private static final long serialVersionUID = 1795390245138540564L;
+
     // used to indicate what triggered the call
     /**
      * Indicate that this description was just initialized. 
@@ -101,9 +109,9 @@ public class XSDDescription extends XMLResourceIdentifierImpl
     // REVISIT: write description of these fields	
     protected short fContextType;
     protected String [] fLocationHints ;
-    protected QName fTriggeringComponent;
-    protected QName fEnclosedElementName;
-    protected XMLAttributes  fAttributes;
+    protected transient QName fTriggeringComponent;
+    protected transient QName fEnclosedElementName;
+    protected transient XMLAttributes  fAttributes;
         
     /**
      * the type of the grammar (e.g., DTD or XSD);
@@ -264,4 +272,32 @@ public class XSDDescription extends XMLResourceIdentifierImpl
         return desc;
     }
     
+    //
+    // Serialization methods
+    //
+    
+    /**
+     * Writes the identifiers of the resource along with the fields of this
+     * description. The triggering component, enclosing element and attributes
+     * are only meaningful while a grammar is being loaded and aren't written.
+     */
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        out.defaultWriteObject();
+        out.writeObject(fPublicId);
+        out.writeObject(fLiteralSystemId);
+        out.writeObject(fBaseSystemId);
+        out.writeObject(fExpandedSystemId);
+        out.writeObject(fNamespace);
+    } // writeObject(ObjectOutputStream)
+    
+    private void readObject(ObjectInputStream in) 
+        throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        fPublicId = (String) in.readObject();
+        fLiteralSystemId = (String) in.readObject();
+        fBaseSystemId = (String) in.readObject();
+        fExpandedSystemId = (String) in.readObject();
+        fNamespace = (String) in.readObject();
+    } // readObject(ObjectInputStream)
+    
 } // XSDDescription
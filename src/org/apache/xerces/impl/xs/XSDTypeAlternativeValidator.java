@@ -17,6 +17,7 @@
 
 package org.apache.xerces.impl.xs;
 
+import java.util.Hashtable;
 import java.util.Vector;
 
 import org.apache.xerces.impl.xs.alternative.Test;
@@ -41,6 +42,10 @@ import org.apache.xerces.xs.XSTypeAlternative;
  */
 public class XSDTypeAlternativeValidator {          
     
+    // the PsychoPath XPath processors of the type alternative tests, used again for the evaluations of a test
+    // while their dynamic contexts are reusable
+    private final Hashtable fXPathProcessors = new Hashtable();
+    
     
     /*
      * Class constructor.
@@ -50,6 +55,14 @@ public class XSDTypeAlternativeValidator {
     }
     
     
+    /*
+     * Reset the validator, at the start of a validation episode.
+     */
+    public void reset() {
+        fXPathProcessors.clear();
+    } // reset
+    
+    
     /*
      * Determine the schema type applicable (represented as XSTypeAlternative component) for an element declaration, using type alternative information.
      */
@@ -63,7 +76,7 @@ public class XSDTypeAlternativeValidator {
             XMLAttributes ctaAttributes = getAttributesForCTA(attributes, inheritableAttrList);
             for (int typeAltIdx = 0; typeAltIdx < typeAlternatives.length; typeAltIdx++) {
                 Test ctaTest = typeAlternatives[typeAltIdx].getTest();
-                if (ctaTest != null && ctaTest.evaluateTest(element, ctaAttributes, instanceNamespaceContext, expandedSystemId)) {
+                if (ctaTest != null && ctaTest.evaluateTest(element, ctaAttributes, instanceNamespaceContext, expandedSystemId, getXPathProcessor(ctaTest))) {
                     selectedTypeAlternative = typeAlternatives[typeAltIdx]; 
                     break;
                 }
@@ -79,6 +92,22 @@ public class XSDTypeAlternativeValidator {
     } // getTypeAlternative
     
 
+    /*
+     * Get the PsychoPath XPath processor for the evaluation of a type alternative test. Returns null if the test is
+     * not evaluated by the PsychoPath XPath 2.0 engine.
+     */
+    private AbstractPsychoPathXPath2Impl getXPathProcessor(Test ctaTest) {
+        AbstractPsychoPathXPath2Impl xpathProcessor = (AbstractPsychoPathXPath2Impl) fXPathProcessors.get(ctaTest);
+        if (xpathProcessor == null || !xpathProcessor.isDynamicContextReusable(null)) {
+            xpathProcessor = ctaTest.newXPathProcessor();
+            if (xpathProcessor != null) {
+                fXPathProcessors.put(ctaTest, xpathProcessor);
+            }
+        }
+        return xpathProcessor;
+    } // getXPathProcessor
+    
+
     /*
      * Construct a list of attributes, needed for CTA processing. This includes inherited attributes as well.  
      */
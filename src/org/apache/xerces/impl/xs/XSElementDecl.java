@@ -17,6 +17,8 @@
 
 package org.apache.xerces.impl.xs;
 
+import java.io.Serializable;
+
 import org.apache.xerces.impl.dv.ValidatedInfo;
 import org.apache.xerces.impl.xs.alternative.XSTypeAlternativeImpl;
 import org.apache.xerces.impl.xs.identity.IdentityConstraint;
@@ -45,7 +47,9 @@ import org.apache.xerces.xs.XSValue;
  * @author Sandy Gao, IBM
  * @version $Id$
  */
-public class XSElementDecl implements XSElementDeclaration {
+public class XSElementDecl implements XSElementDeclaration, Serializable {
+
+    private static final long serialVersionUID = 5377986761646330157L;
 
     // scopes
     public final static short     SCOPE_ABSENT        = 0;
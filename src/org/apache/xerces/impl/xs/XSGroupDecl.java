@@ -17,6 +17,8 @@
 
 package org.apache.xerces.impl.xs;
 
+import java.io.Serializable;
+
 import org.apache.xerces.impl.xs.util.XSObjectListImpl;
 import org.apache.xerces.xs.XSAnnotation;
 import org.apache.xerces.xs.XSConstants;
@@ -34,7 +36,9 @@ import org.apache.xerces.xs.XSObjectList;
  * @author Sandy Gao, IBM
  * @version $Id$
  */
-public class XSGroupDecl implements XSModelGroupDefinition {
+public class XSGroupDecl implements XSModelGroupDefinition, Serializable {
+
+    private static final long serialVersionUID = 6029575835011731347L;
 
     // name of the group
     public String fName = null;
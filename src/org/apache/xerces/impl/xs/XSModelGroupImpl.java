@@ -17,6 +17,8 @@
 
 package org.apache.xerces.impl.xs;
 
+import java.io.Serializable;
+
 import org.apache.xerces.impl.xs.util.XSObjectListImpl;
 import org.apache.xerces.xs.XSAnnotation;
 import org.apache.xerces.xs.XSConstants;
@@ -33,7 +35,9 @@ import org.apache.xerces.xs.XSObjectList;
  *
  * @version $Id$
  */
-public class XSModelGroupImpl implements XSModelGroup {
+public class XSModelGroupImpl implements XSModelGroup, Serializable {
+
+    private static final long serialVersionUID = -1160646772928116932L;
 
     // types of model groups
     // REVISIT: can't use same constants as those for particles, because
@@ -17,6 +17,8 @@
 
 package org.apache.xerces.impl.xs;
 
+import java.io.Serializable;
+
 import org.apache.xerces.impl.xs.util.XSObjectListImpl;
 import org.apache.xerces.xs.XSAnnotation;
 import org.apache.xerces.xs.XSConstants;
@@ -33,7 +35,9 @@ import org.apache.xerces.xs.XSObjectList;
  * @author Rahul Srivastava, Sun Microsystems Inc.
  * @version $Id$
  */
-public class XSNotationDecl implements XSNotationDeclaration {
+public class XSNotationDecl implements XSNotationDeclaration, Serializable {
+
+    private static final long serialVersionUID = 3936878100305269352L;
 
     // name of the group
     public String fName = null;
@@ -17,6 +17,8 @@
 
 package org.apache.xerces.impl.xs;
 
+import java.io.Serializable;
+
 import org.apache.xerces.xs.XSConstants;
 import org.apache.xerces.xs.XSNamespaceItem;
 import org.apache.xerces.xs.XSOpenContent;
@@ -31,7 +33,9 @@ import org.apache.xerces.xs.XSWildcard;
  * @author Khaled Noaman, IBM
  * @version $Id$
  */
-public class XSOpenContentDecl implements XSOpenContent {
+public class XSOpenContentDecl implements XSOpenContent, Serializable {
+
+    private static final long serialVersionUID = -1661098269431800438L;
 
 	 // the mode of the openContent
     public short fMode = MODE_NONE;
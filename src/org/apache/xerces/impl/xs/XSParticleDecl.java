@@ -17,6 +17,8 @@
 
 package org.apache.xerces.impl.xs;
 
+import java.io.Serializable;
+
 import org.apache.xerces.impl.xs.util.XSObjectListImpl;
 import org.apache.xerces.xs.XSConstants;
 import org.apache.xerces.xs.XSNamespaceItem;
@@ -33,7 +35,9 @@ import org.apache.xerces.xs.XSTerm;
  *
  * @version $Id$
  */
-public class XSParticleDecl implements XSParticle {
+public class XSParticleDecl implements XSParticle, Serializable {
+
+    private static final long serialVersionUID = -4519421799629741525L;
 
     // types of particles
     public static final short PARTICLE_EMPTY        = 0;
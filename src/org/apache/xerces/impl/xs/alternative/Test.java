@@ -17,6 +17,10 @@
 
 package org.apache.xerces.impl.xs.alternative;
 
+import java.io.IOException;
+import java.io.InvalidObjectException;
+import java.io.ObjectInputStream;
+import java.io.Serializable;
 import java.util.Enumeration;
 import java.util.HashMap;
 import java.util.Map;
@@ -30,12 +34,14 @@ import org.apache.xerces.dom.PSVIElementNSImpl;
 import org.apache.xerces.impl.Constants;
 import org.apache.xerces.impl.xpath.XPath20;
 import org.apache.xerces.impl.xs.AbstractPsychoPathXPath2Impl;
+import org.apache.xerces.impl.xs.CompiledXPath2Expr;
 import org.apache.xerces.impl.xs.SchemaSymbols;
 import org.apache.xerces.util.NamespaceSupport;
 import org.apache.xerces.xni.NamespaceContext;
 import org.apache.xerces.xni.QName;
 import org.apache.xerces.xni.XMLAttributes;
-import org.eclipse.wst.xml.xpath2.processor.DynamicContext;
+import org.eclipse.wst.xml.xpath2.processor.JFlexCupParser;
+import org.eclipse.wst.xml.xpath2.processor.XPathParserException;
 import org.eclipse.wst.xml.xpath2.processor.ast.XPath;
 import org.w3c.dom.Document;
 import org.w3c.dom.Element;
@@ -49,7 +55,9 @@ import org.w3c.dom.Element;
  * @author Mukul Gandhi IBM
  * @version $Id$
  */
-public class Test extends AbstractPsychoPathXPath2Impl {
+public class Test implements Serializable {
+
+    private static final long serialVersionUID = 3191421532395956675L;
 
 	/** The type alternative to which the test belongs */
     protected final XSTypeAlternativeImpl fTypeAlternative;
@@ -60,8 +68,8 @@ public class Test extends AbstractPsychoPathXPath2Impl {
     /** XPath 2.0 expression. Xerces-J native XPath 2.0 subset. */
     protected final XPath20 fXPath;
     
-    /** XPath 2.0 expression. PsychoPath XPath 2.0 expression object. */
-    protected final XPath fXPathPsychoPath;
+    /** XPath 2.0 expression. PsychoPath XPath 2.0 expression object, shared by all of the evaluations of the test. */
+    protected transient CompiledXPath2Expr fXPathPsychoPath;
         
     /** XPath 2.0 namespace context. Derived from XSDocumentInfo in XSD traversers. */
     protected final NamespaceSupport fXPath2NamespaceContext;
@@ -81,7 +89,7 @@ public class Test extends AbstractPsychoPathXPath2Impl {
     public Test(XPath xpath, String expression, XSTypeAlternativeImpl typeAlternative, NamespaceSupport namespaceContext) {
         fXPath = null;
         fExpression = expression == null ? "" : expression;
-        fXPathPsychoPath = xpath;
+        fXPathPsychoPath = xpath == null ? null : new CompiledXPath2Expr(xpath, fExpression);
         fTypeAlternative = typeAlternative;
         fXPath2NamespaceContext = namespaceContext;
     }
@@ -104,7 +112,7 @@ public class Test extends AbstractPsychoPathXPath2Impl {
         if (fXPath != null) {
             xpath = fXPath;    
         } else if (fXPathPsychoPath != null) {
-            xpath = fXPathPsychoPath;    
+            xpath = fXPathPsychoPath.getXPath();    
         }
         
         return xpath;
@@ -112,24 +120,77 @@ public class Test extends AbstractPsychoPathXPath2Impl {
     
     /** Evaluate the test expression with respect to the specified element and its attributes */
     public boolean evaluateTest(QName element, XMLAttributes attributes, NamespaceContext instanceNamespaceContext, String expandedSystemId) {        
+        return evaluateTest(element, attributes, instanceNamespaceContext, expandedSystemId, null);
+    }
+    
+    /*
+     * Evaluate the test expression with respect to the specified element and its attributes, with an XPath processor
+     * returned by the method newXPathProcessor of this test. A new XPath processor is used if it is null.
+     */
+    public boolean evaluateTest(QName element, XMLAttributes attributes, NamespaceContext instanceNamespaceContext, String expandedSystemId,
+                                AbstractPsychoPathXPath2Impl xpathProcessor) {        
         if (fXPath != null) {
             return fXPath.evaluateTest(element, attributes);
         } else if (fXPathPsychoPath != null) {
-            return evaluateTestWithPsychoPathXPathEngine(element, attributes, instanceNamespaceContext, expandedSystemId);  
+            if (xpathProcessor == null) {
+                xpathProcessor = newXPathProcessor();
+            }
+            return evaluateTestWithPsychoPathXPathEngine(element, attributes, instanceNamespaceContext, expandedSystemId, xpathProcessor);  
         }
         else {
             return false;
         }        
     }
+    
+    /*
+     * Create a PsychoPath XPath processor for the evaluations of this test, whose dynamic context has the namespace
+     * bindings and the base URI of the type alternative. Returns null if the test is not evaluated by the PsychoPath
+     * XPath 2.0 engine. The processor may be used for more than one evaluation of the test, while its dynamic context
+     * is reusable.
+     */
+    public AbstractPsychoPathXPath2Impl newXPathProcessor() {
+        if (fXPath != null || fXPathPsychoPath == null) {
+            return null;
+        }
+        
+        // construct parameter values for psychopath xpath processor
+        Map psychoPathParams = new HashMap();
+        psychoPathParams.put(Constants.XPATH2_NAMESPACE_CONTEXT, fXPath2NamespaceContext);
+        psychoPathParams.put(Constants.IS_CTA_EVALUATOR, Boolean.TRUE);
+        if (fTypeAlternative.fXPathDefaultNamespace != null) {
+            psychoPathParams.put(Constants.XPATH2_DEFAULT_NAMESPACE, fTypeAlternative.fXPathDefaultNamespace);
+        }
+        AbstractPsychoPathXPath2Impl xpathProcessor = new AbstractPsychoPathXPath2Impl();
+        xpathProcessor.initXPath2DynamicContext(null, null, psychoPathParams).set_base_uri(fTypeAlternative.getBaseURI()); // set base-uri property in XPath2 static context, to the URI of XSD document
+        return xpathProcessor;
+    }
 
     public String toString() {
         return fExpression;
     }
     
+    /*
+     * The PsychoPath XPath expression object is not serializable. It is compiled again from the expression string
+     * when the test is read.
+     */
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        if (fXPath == null && fExpression.length() > 0) {
+            try {
+                XPath xpath = new JFlexCupParser().parse("boolean(" + fExpression + ")", true);
+                fXPathPsychoPath = new CompiledXPath2Expr(xpath, fExpression);
+            }
+            catch (XPathParserException e) {
+                throw new InvalidObjectException(e.getMessage());
+            }
+        }
+    }
+    
     /*
      * Evaluate the XPath "test" expression on an XDM instance, for CTA evaluation. Uses PsychoPath XPath 2.0 engine for the evaluation. 
      */
-    private boolean evaluateTestWithPsychoPathXPathEngine(QName element, XMLAttributes attributes, NamespaceContext instanceNamespaceContext, String expandedSystemId) {
+    private boolean evaluateTestWithPsychoPathXPathEngine(QName element, XMLAttributes attributes, NamespaceContext instanceNamespaceContext, String expandedSystemId,
+                                                          AbstractPsychoPathXPath2Impl xpathProcessor) {
         
         boolean evaluationResult = false;
 
@@ -158,16 +219,7 @@ public class Test extends AbstractPsychoPathXPath2Impl {
             
             document.appendChild(elem);
 
-            // construct parameter values for psychopath xpath processor
-            Map psychoPathParams = new HashMap();
-            psychoPathParams.put(Constants.XPATH2_NAMESPACE_CONTEXT, fXPath2NamespaceContext);
-            psychoPathParams.put(Constants.IS_CTA_EVALUATOR, Boolean.TRUE);
-            DynamicContext xpath2DynamicContext = initXPath2DynamicContext(null, document, psychoPathParams);
-            xpath2DynamicContext.set_base_uri(fTypeAlternative.getBaseURI()); // set base-uri property in XPath2 static context, to the URI of XSD document
-            if (fTypeAlternative.fXPathDefaultNamespace != null) {
-                addNamespaceBindingToXPath2DynamicContext(null, fTypeAlternative.fXPathDefaultNamespace);
-            }
-            evaluationResult = evaluateXPathExpr(fXPathPsychoPath, elem);
+            evaluationResult = xpathProcessor.evaluateXPathExpr(fXPathPsychoPath, elem);
         } 
         catch(Exception ex) {
             evaluationResult = false;  
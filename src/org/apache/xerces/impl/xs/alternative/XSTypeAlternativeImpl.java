@@ -17,6 +17,8 @@
 
 package org.apache.xerces.impl.xs.alternative;
 
+import java.io.Serializable;
+
 import org.apache.xerces.util.NamespaceSupport;
 import org.apache.xerces.xs.XSConstants;
 import org.apache.xerces.xs.XSNamespaceItem;
@@ -32,7 +34,9 @@ import org.apache.xerces.xs.XSTypeDefinition;
  * @author Hiranya Jayathilaka, University of Moratuwa
  * @version $Id$
  */
-public class XSTypeAlternativeImpl implements XSTypeAlternative {
+public class XSTypeAlternativeImpl implements XSTypeAlternative, Serializable {
+
+    private static final long serialVersionUID = 5771392922173815051L;
 
 	/** Name of the owning element */
     protected final String fElementName;
@@ -17,6 +17,8 @@
 
 package org.apache.xerces.impl.xs.assertion;
 
+import java.io.Serializable;
+
 import org.apache.xerces.xni.NamespaceContext;
 
 /**
@@ -27,7 +29,9 @@ import org.apache.xerces.xni.NamespaceContext;
  * @author Mukul Gandhi, IBM
  * @version $Id$
  */
-public class Test {
+public class Test implements Serializable {
+
+    private static final long serialVersionUID = -5108504532730446408L;
 
     /** The XPath expression string for the assertion component */
     protected final String fExpressionStr;
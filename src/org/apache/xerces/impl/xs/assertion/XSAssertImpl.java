@@ -17,7 +17,12 @@
 
 package org.apache.xerces.impl.xs.assertion;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.Serializable;
+
 import org.apache.xerces.impl.xs.AbstractPsychoPathXPath2Impl;
+import org.apache.xerces.impl.xs.CompiledXPath2Expr;
 import org.apache.xerces.impl.xs.traversers.XSDHandler;
 import org.apache.xerces.impl.xs.util.XS11TypeHelper;
 import org.apache.xerces.util.NamespaceSupport;
@@ -25,6 +30,8 @@ import org.apache.xerces.xs.XSConstants;
 import org.apache.xerces.xs.XSNamespaceItem;
 import org.apache.xerces.xs.XSObjectList;
 import org.apache.xerces.xs.XSTypeDefinition;
+import org.eclipse.wst.xml.xpath2.processor.JFlexCupParser;
+import org.eclipse.wst.xml.xpath2.processor.XPathParserException;
 import org.eclipse.wst.xml.xpath2.processor.ast.XPath;
 import org.w3c.dom.Element;
 
@@ -36,7 +43,9 @@ import org.w3c.dom.Element;
  * @author Mukul Gandhi, IBM
  * @version $Id$
  */
-public class XSAssertImpl extends AbstractPsychoPathXPath2Impl implements XSAssert {
+public class XSAssertImpl extends AbstractPsychoPathXPath2Impl implements XSAssert, Serializable {
+
+    private static final long serialVersionUID = -4719425975387033852L;
 
     // The kind of assertion this is
     private short fAssertKind = XSConstants.ASSERTION;
@@ -48,7 +57,14 @@ public class XSAssertImpl extends AbstractPsychoPathXPath2Impl implements XSAsse
     private Test fTestExpr = null;
     
     // Compiled XPath 2.0 expression
-    private XPath fCompiledXPathExpr = null;
+    private transient XPath fCompiledXPathExpr = null;
+    
+    // Compiled XPath 2.0 expression, shared by the validations with the grammar of the assertion
+    private transient CompiledXPath2Expr fCompiledExpr = null;
+    
+    // Plan to evaluate the assertion without building the XDM tree of an element's content, and whether it was computed
+    private transient XSAssertStreamingPlan fStreamingPlan = null;
+    private transient boolean fIsStreamingPlanComputed = false;
     
     // Optional annotations
     private XSObjectList fAnnotations = null;
@@ -68,7 +84,7 @@ public class XSAssertImpl extends AbstractPsychoPathXPath2Impl implements XSAsse
     private String fAttrValue = null;
     
     // XSDHandler object passed on from the Xerces XSModel traversers. 
-    private XSDHandler fSchemaHandler = null;
+    private transient XSDHandler fSchemaHandler = null;
     
     // an user-defined message to provide to the user context, during assertion failures.
     private String fMessage = null;
@@ -96,6 +112,9 @@ public class XSAssertImpl extends AbstractPsychoPathXPath2Impl implements XSAsse
     
     public void setCompiledExpr(XPath compiledXPathExpr) {
         fCompiledXPathExpr = compiledXPathExpr;  
+        fCompiledExpr = compiledXPathExpr != null ? new CompiledXPath2Expr(compiledXPathExpr, fTestExpr.getXPathStr()) : null;
+        fStreamingPlan = null;
+        fIsStreamingPlanComputed = false;
     }
 
     public void setAnnotations(XSObjectList annotations) {
@@ -152,6 +171,10 @@ public class XSAssertImpl extends AbstractPsychoPathXPath2Impl implements XSAsse
     public XPath getCompiledXPathExpr() {
         return fCompiledXPathExpr;
     }
+    
+    public CompiledXPath2Expr getCompiledExpr() {
+        return fCompiledExpr;
+    }
 
     public Test getTest() {
         return fTestExpr;
@@ -218,6 +241,29 @@ public class XSAssertImpl extends AbstractPsychoPathXPath2Impl implements XSAsse
        return fAssertKind;  
     }
     
+    /*
+     * Get the plan to evaluate this assertion while the content of an element is being validated, without building
+     * an XDM tree. Returns null if the assertion is not an xs:assert whose expression can be streamed.
+     */
+    public synchronized XSAssertStreamingPlan getStreamingPlan() {
+        if (!fIsStreamingPlanComputed) {
+            if (fAssertKind == XSConstants.ASSERTION && fTestExpr != null && fCompiledXPathExpr != null) {
+                fStreamingPlan = XSAssertStreamingPlan.newPlan(fTestExpr.getXPathStr());
+            }
+            fIsStreamingPlanComputed = true;
+        }
+        return fStreamingPlan;
+    } // getStreamingPlan
+    
+    /*
+     * Tests if this assertion is evaluated on the XNI events of an element, instead of on an XDM tree of the element.
+     * An assertion is only streamed when all of the assertions of the element's type can be streamed, and when the
+     * element is not within the XDM tree of another element.
+     */
+    public boolean isStreamable() {
+        return getStreamingPlan() != null;
+    }
+    
     /*
      * Tests if two assertion components are equal. Xerces has a specific notion of assertions equality, 
      * as described by the algorithm in this method.
@@ -239,4 +285,21 @@ public class XSAssertImpl extends AbstractPsychoPathXPath2Impl implements XSAsse
         
     } // equals
     
+    /*
+     * The compiled XPath 2.0 expression is not serializable. It is compiled again from the "test" string when the
+     * assertion is read. An expression which did not compile was reported when the schema was loaded.
+     */
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        if (fTestExpr != null) {
+            try {
+                fCompiledXPathExpr = new JFlexCupParser().parse("boolean(" + fTestExpr.getXPathStr() + ")", true);
+                fCompiledExpr = new CompiledXPath2Expr(fCompiledXPathExpr, fTestExpr.getXPathStr());
+            }
+            catch (XPathParserException ex) {
+                fCompiledXPathExpr = null;
+            }
+        }
+    } // readObject
+    
 } // class XSAssertImpl
@@ -0,0 +1,336 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.xerces.impl.xs.assertion;
+
+import java.math.BigInteger;
+import java.util.Iterator;
+import java.util.Vector;
+
+import org.apache.xerces.impl.xs.CompiledXPath2Expr;
+import org.eclipse.wst.xml.xpath2.processor.DynamicContext;
+import org.eclipse.wst.xml.xpath2.processor.JFlexCupParser;
+import org.eclipse.wst.xml.xpath2.processor.StaticContext;
+import org.eclipse.wst.xml.xpath2.processor.XPathParserException;
+import org.eclipse.wst.xml.xpath2.processor.ast.XPath;
+import org.eclipse.wst.xml.xpath2.processor.internal.ast.AxisStep;
+import org.eclipse.wst.xml.xpath2.processor.internal.ast.BinExpr;
+import org.eclipse.wst.xml.xpath2.processor.internal.ast.Expr;
+import org.eclipse.wst.xml.xpath2.processor.internal.ast.FilterExpr;
+import org.eclipse.wst.xml.xpath2.processor.internal.ast.ForwardStep;
+import org.eclipse.wst.xml.xpath2.processor.internal.ast.FunctionCall;
+import org.eclipse.wst.xml.xpath2.processor.internal.ast.IfExpr;
+import org.eclipse.wst.xml.xpath2.processor.internal.ast.Literal;
+import org.eclipse.wst.xml.xpath2.processor.internal.ast.NameTest;
+import org.eclipse.wst.xml.xpath2.processor.internal.ast.ParExpr;
+import org.eclipse.wst.xml.xpath2.processor.internal.ast.SequenceType;
+import org.eclipse.wst.xml.xpath2.processor.internal.ast.SingleType;
+import org.eclipse.wst.xml.xpath2.processor.internal.ast.Step;
+import org.eclipse.wst.xml.xpath2.processor.internal.ast.UnExpr;
+import org.eclipse.wst.xml.xpath2.processor.internal.ast.VarRef;
+import org.eclipse.wst.xml.xpath2.processor.internal.ast.XPathExpr;
+import org.eclipse.wst.xml.xpath2.processor.internal.ast.XPathNode;
+import org.eclipse.wst.xml.xpath2.processor.internal.types.QName;
+import org.eclipse.wst.xml.xpath2.processor.internal.types.XSBoolean;
+import org.eclipse.wst.xml.xpath2.processor.internal.types.XSInteger;
+
+/**
+ * A plan to evaluate an XML Schema 1.1 assertion of a complex type without building the
+ * XDM tree of the content of an element. An assertion can be streamed when its XPath 2.0
+ * expression only reads the attributes of the element, and counts its child elements
+ * with the functions fn:count, fn:exists and fn:empty applied to a single child step. The
+ * calls of these functions are replaced with variables, whose values are computed from
+ * the child elements as they are validated, and the expression is then evaluated on the
+ * element and its attributes alone.
+ *
+ * @xerces.internal
+ *
+ * @version $Id$
+ */
+public final class XSAssertStreamingPlan {
+
+    // kinds of tests on the child elements
+    public static final short COUNT = 0;
+    public static final short EXISTS = 1;
+    public static final short EMPTY = 2;
+
+    // namespace of a child element test matching the elements in all namespaces
+    public static final String ANY_NAMESPACE = "*";
+
+    // functions which depend on the document or on the context of the expression, with any arity
+    private static final String[] CONTEXT_FUNCTIONS = {"base-uri", "collection", "doc", "doc-available", "document-uri",
+                                                       "element-with-id", "id", "idref", "lang", "root"};
+
+    // the rewritten XPath 2.0 expression
+    private final CompiledXPath2Expr fCompiledExpr;
+
+    // the tests on the child elements, and the variables holding their results
+    private final short[] fKinds;
+    private final QName[] fNames;
+    private final QName[] fVariables;
+
+
+    /*
+     * Class constructor.
+     */
+    private XSAssertStreamingPlan(XPath xpath, String test, Vector childTests) {
+        fCompiledExpr = new StreamedXPath2Expr(xpath, test);
+        int count = childTests.size();
+        fKinds = new short[count];
+        fNames = new QName[count];
+        fVariables = new QName[count];
+        for (int testIdx = 0; testIdx < count; testIdx++) {
+            Object[] childTest = (Object[]) childTests.get(testIdx);
+            FunctionCall function = (FunctionCall) childTest[0];
+            String name = function.name().local();
+            fKinds[testIdx] = "count".equals(name) ? COUNT : ("exists".equals(name) ? EXISTS : EMPTY);
+            fNames[testIdx] = getChildName(function);
+            fVariables[testIdx] = (QName) childTest[1];
+        }
+    }
+
+
+    /*
+     * Return a plan to stream the evaluation of an assertion with the given "test" expression, or null if the
+     * expression cannot be evaluated without the XDM tree of the element's content.
+     */
+    public static XSAssertStreamingPlan newPlan(String test) {
+        XPath xpath = null;
+        try {
+            // the expression is compiled again since the plan modifies it
+            xpath = new JFlexCupParser().parse("boolean(" + test + ")", true);
+        }
+        catch (XPathParserException ex) {
+            return null;
+        }
+
+        Vector childTests = new Vector();
+        if (!isStreamable(xpath, childTests)) {
+            return null;
+        }
+        return new XSAssertStreamingPlan(xpath, test, childTests);
+
+    } // newPlan
+
+
+    /*
+     * Get the rewritten XPath 2.0 expression, which only reads the attributes of the element.
+     */
+    public CompiledXPath2Expr getCompiledExpr() {
+        return fCompiledExpr;
+    }
+
+
+    /*
+     * Get the number of tests on the child elements.
+     */
+    public int getChildTestCount() {
+        return fKinds.length;
+    }
+
+
+    /*
+     * Resolve the namespaces of the names of the child element tests, the same way as the PsychoPath engine does.
+     * Returns false if a prefix is not bound in the static context.
+     */
+    public boolean resolveChildTests(StaticContext staticContext, String[] namespaces) {
+        for (int testIdx = 0; testIdx < fNames.length; testIdx++) {
+            QName name = fNames[testIdx];
+            if (name.prefix() == null) {
+                namespaces[testIdx] = staticContext.default_namespace();
+            }
+            else {
+                // a copy is expanded, since the same plan may be used by several validators
+                QName expandedName = new QName(name.prefix(), name.local());
+                if (!staticContext.expand_qname(expandedName) || expandedName.namespace() == null) {
+                    return false;
+                }
+                namespaces[testIdx] = expandedName.namespace();
+            }
+        }
+        return true;
+    } // resolveChildTests
+
+
+    /*
+     * Check if a child element matches a test, given the namespace to which the test was resolved.
+     */
+    public boolean isChildTestMatched(int testIdx, String namespace, String uri, String localpart) {
+        String testLocalpart = fNames[testIdx].local();
+        if (!ANY_NAMESPACE.equals(testLocalpart) && !testLocalpart.equals(localpart)) {
+            return false;
+        }
+        if (uri != null && uri.length() == 0) {
+            uri = null;
+        }
+        if (namespace == null) {
+            return uri == null;
+        }
+        return ANY_NAMESPACE.equals(namespace) || namespace.equals(uri);
+    } // isChildTestMatched
+
+
+    /*
+     * Set the variables replacing the child element tests, from the number of child elements matching each test.
+     */
+    public void setChildTestVariables(DynamicContext dynamicContext, int[] childCounts) {
+        for (int testIdx = 0; testIdx < fKinds.length; testIdx++) {
+            int count = childCounts[testIdx];
+            if (fKinds[testIdx] == COUNT) {
+                dynamicContext.set_variable(fVariables[testIdx], new XSInteger(BigInteger.valueOf(count)));
+            }
+            else {
+                dynamicContext.set_variable(fVariables[testIdx], new XSBoolean((fKinds[testIdx] == EXISTS) == (count > 0)));
+            }
+        }
+    } // setChildTestVariables
+
+
+    /*
+     * Check if an expression only reads the attributes of the context element, once the child element tests have been
+     * replaced with variables. The replaced function calls are added to the vector of child tests, with their variables.
+     */
+    private static boolean isStreamable(XPathNode node, Vector childTests) {
+
+        if (node instanceof XPath) {
+            return isStreamable(((XPath) node).iterator(), childTests);
+        }
+        else if (node instanceof XPathExpr) {
+            // a relative path of a single step
+            XPathExpr pathExpr = (XPathExpr) node;
+            return pathExpr.slashes() == 0 && pathExpr.next() == null && isStreamable(pathExpr.expr(), childTests);
+        }
+        else if (node instanceof FilterExpr) {
+            FilterExpr filterExpr = (FilterExpr) node;
+            if (filterExpr.predicate_count() != 0) {
+                return false;
+            }
+            if (filterExpr.primary() instanceof FunctionCall && getChildName((FunctionCall) filterExpr.primary()) != null) {
+                QName variable = new QName("xerces-child-test-" + childTests.size());
+                childTests.add(new Object[] {filterExpr.primary(), variable});
+                filterExpr.set_primary(new VarRef(variable));
+                return true;
+            }
+            return isStreamable(filterExpr.primary(), childTests);
+        }
+        else if (node instanceof AxisStep) {
+            // an attribute of the context element
+            AxisStep axisStep = (AxisStep) node;
+            Step step = axisStep.step();
+            return axisStep.predicate_count() == 0 && step instanceof ForwardStep && step.node_test() instanceof NameTest
+                   && (((ForwardStep) step).axis() == ForwardStep.ATTRIBUTE || ((ForwardStep) step).axis() == ForwardStep.AT_SYM);
+        }
+        else if (node instanceof BinExpr) {
+            return isStreamable(((BinExpr) node).left(), childTests) && isStreamable(((BinExpr) node).right(), childTests);
+        }
+        else if (node instanceof UnExpr) {
+            return isStreamable(((UnExpr) node).arg(), childTests);
+        }
+        else if (node instanceof ParExpr) {
+            return isStreamable(((ParExpr) node).iterator(), childTests);
+        }
+        else if (node instanceof IfExpr) {
+            IfExpr ifExpr = (IfExpr) node;
+            return isStreamable(ifExpr.iterator(), childTests) && isStreamable(ifExpr.then_clause(), childTests)
+                   && isStreamable(ifExpr.else_clause(), childTests);
+        }
+        else if (node instanceof FunctionCall) {
+            FunctionCall function = (FunctionCall) node;
+            String name = function.name().local();
+            for (int fnIdx = 0; fnIdx < CONTEXT_FUNCTIONS.length; fnIdx++) {
+                if (CONTEXT_FUNCTIONS[fnIdx].equals(name)) {
+                    return false;
+                }
+            }
+            if (function.arity() == 0) {
+                // functions without arguments use the context item, except for fn:true and fn:false
+                return function.name().prefix() == null && ("true".equals(name) || "false".equals(name));
+            }
+            return isStreamable(function.iterator(), childTests);
+        }
+        else if (node instanceof VarRef) {
+            QName name = ((VarRef) node).name();
+            return name.prefix() == null && "value".equals(name.local());
+        }
+
+        return node instanceof Literal || node instanceof SingleType || node instanceof SequenceType;
+
+    } // isStreamable(XPathNode, Vector)
+
+
+    /*
+     * Check if all of the expressions of an iteration are streamable.
+     */
+    private static boolean isStreamable(Iterator exprs, Vector childTests) {
+        while (exprs.hasNext()) {
+            if (!isStreamable((XPathNode) exprs.next(), childTests)) {
+                return false;
+            }
+        }
+        return true;
+    } // isStreamable(Iterator, Vector)
+
+
+    /*
+     * Get the name of the child elements tested by a call of fn:count, fn:exists or fn:empty on a single child step,
+     * or null if the function call is not such a test.
+     */
+    private static QName getChildName(FunctionCall function) {
+        QName name = function.name();
+        if (name.prefix() != null || function.arity() != 1 ||
+            !("count".equals(name.local()) || "exists".equals(name.local()) || "empty".equals(name.local()))) {
+            return null;
+        }
+        Expr arg = (Expr) function.iterator().next();
+        if (!(arg instanceof XPathExpr)) {
+            return null;
+        }
+        XPathExpr pathExpr = (XPathExpr) arg;
+        if (pathExpr.slashes() != 0 || pathExpr.next() != null || !(pathExpr.expr() instanceof AxisStep)) {
+            return null;
+        }
+        AxisStep axisStep = (AxisStep) pathExpr.expr();
+        Step step = axisStep.step();
+        if (axisStep.predicate_count() != 0 || !(step instanceof ForwardStep) || !(step.node_test() instanceof NameTest)) {
+            return null;
+        }
+        int axis = ((ForwardStep) step).axis();
+        if (axis != ForwardStep.NONE && axis != ForwardStep.CHILD) {
+            return null;
+        }
+        return ((NameTest) step.node_test()).name();
+    } // getChildName
+
+
+    /*
+     * The rewritten expression of a plan. Its copies are rewritten the same way, so that they use the same variables.
+     */
+    private static final class StreamedXPath2Expr extends CompiledXPath2Expr {
+
+        StreamedXPath2Expr(XPath xpath, String test) {
+            super(xpath, test);
+        }
+
+        public XPath newXPath() throws XPathParserException {
+            XPath xpath = super.newXPath();
+            isStreamable(xpath, new Vector());
+            return xpath;
+        }
+
+    } // class StreamedXPath2Expr
+
+} // class XSAssertStreamingPlan
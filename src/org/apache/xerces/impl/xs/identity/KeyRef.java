@@ -30,6 +30,8 @@ import org.apache.xerces.xs.XSIDCDefinition;
 public class KeyRef
     extends IdentityConstraint {
 
+    private static final long serialVersionUID = 6930071626393094194L;
+
     //
     // Data
     //
@@ -31,6 +31,8 @@ package org.apache.xerces.impl.xs.identity;
 public class UniqueOrKey 
     extends IdentityConstraint {
 
+    private static final long serialVersionUID = 6685994548372120088L;
+
     //
     // Constructors
     //
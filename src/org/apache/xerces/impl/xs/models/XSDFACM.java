@@ -36,6 +36,7 @@ import org.apache.xerces.impl.xs.XSOpenContentDecl;
 import org.apache.xerces.impl.xs.XSParticleDecl;
 import org.apache.xerces.impl.xs.XSWildcardDecl;
 import org.apache.xerces.xni.QName;
+import org.apache.xerces.xs.XSConstants;
 
 /**
  * DFAContentModel is the implementation of XSCMValidator that does
@@ -63,6 +64,9 @@ public class XSDFACM
     /** Set to true to debug content model validation. */
     private static final boolean DEBUG_VALIDATE_CONTENT = false;
 
+    /** Minimum number of element declarations indexed by name. */
+    private static final int MIN_INDEXED_ELEMENTS = 8;
+
     //
     // Data
     //
@@ -128,6 +132,22 @@ public class XSDFACM
      * positions in the second dimension of the transition table.
      */
     private int fTransTable[][] = null;
+
+    /**
+     * Hash index of the element declarations by name, so that the
+     * declaration a child element matches is found without scanning
+     * fElements. Each slot holds an index into fElements plus one, or
+     * 0 if the slot is empty. Declarations with the same name are found
+     * in the order of their indices when probing linearly.
+     */
+    private int fElementIndex[] = null;
+
+    /**
+     * Whether an element declaration of this content model could be
+     * matched through its substitution group, which the index by name
+     * doesn't capture.
+     */
+    private boolean fHasSubstitutableElements = false;
     
     /**
      * The open content model
@@ -280,13 +300,35 @@ public class XSDFACM
         int elemIndex = 0;
         Object matchingDecl = null;
 
-        for (; elemIndex < fNumElements; elemIndex++) {
-            nextState = fTransTable[curState][elemIndex];
-            if (nextState == -1)
-                continue;
-            matchingDecl = subGroupHandler.getMatchingElemDecl(curElem, fElements[elemIndex], fSchemaVersion);
-            if (matchingDecl != null) {
-                break;
+        if (fElementIndex != null && !maySubstitute(curElem, eDeclHelper)) {
+            // only a declaration with the same name can match;
+            // find the first one with a transition from this state
+            final int[] transitions = fTransTable[curState];
+            final int mask = fElementIndex.length - 1;
+            elemIndex = fNumElements;
+            for (int slot = hash(curElem.localpart, curElem.uri) & mask;
+                    fElementIndex[slot] != 0; slot = (slot + 1) & mask) {
+                final int index = fElementIndex[slot] - 1;
+                final XSElementDecl decl = fElements[index];
+                if (decl.fName == curElem.localpart &&
+                        decl.fTargetNamespace == curElem.uri &&
+                        transitions[index] != -1) {
+                    elemIndex = index;
+                    nextState = transitions[index];
+                    matchingDecl = decl;
+                    break;
+                }
+            }
+        }
+        else {
+            for (; elemIndex < fNumElements; elemIndex++) {
+                nextState = fTransTable[curState][elemIndex];
+                if (nextState == -1)
+                    continue;
+                matchingDecl = subGroupHandler.getMatchingElemDecl(curElem, fElements[elemIndex], fSchemaVersion);
+                if (matchingDecl != null) {
+                    break;
+                }
             }
         }
         if (matchingDecl == null) {
@@ -971,6 +1013,64 @@ public class XSDFACM
         for (int i = numElem; i < fNumTotal; i++) {
             fWildcards[i] = (XSWildcardDecl)fElemMap[i];
         }
+        // a short list of declarations is scanned as fast as it is hashed
+        if (numElem >= MIN_INDEXED_ELEMENTS) {
+            buildElementIndex();
+        }
+    }
+
+    /**
+     * Builds the hash index of the element declarations by name.
+     */
+    private void buildElementIndex() {
+        int size = 4;
+        while (size < fNumElements * 2) {
+            size <<= 1;
+        }
+        fElementIndex = new int[size];
+        final int mask = size - 1;
+        for (int i = 0; i < fNumElements; i++) {
+            final XSElementDecl decl = fElements[i];
+            int slot = hash(decl.fName, decl.fTargetNamespace) & mask;
+            while (fElementIndex[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            fElementIndex[slot] = i + 1;
+            // a global declaration may be substituted by
+            // another element unless it blocks substitution
+            if (decl.fScope == XSConstants.SCOPE_GLOBAL &&
+                    (decl.fBlock & XSConstants.DERIVATION_SUBSTITUTION) == 0) {
+                fHasSubstitutableElements = true;
+            }
+        }
+    }
+
+    /**
+     * Returns the hash code of an element name for the index.
+     */
+    private static int hash(String localpart, String uri) {
+        int hash = localpart.hashCode();
+        if (uri != null) {
+            hash = hash * 31 + uri.hashCode();
+        }
+        return hash ^ (hash >>> 16);
+    }
+
+    /**
+     * Returns whether the given element could match an element
+     * declaration of this content model with another name, through
+     * a substitution group. This is only possible if the element has
+     * a global declaration with a substitution group affiliation.
+     */
+    private boolean maySubstitute(QName curElem, XSElementDeclHelper eDeclHelper) {
+        if (!fHasSubstitutableElements) {
+            return false;
+        }
+        if (eDeclHelper == null) {
+            return true;
+        }
+        final XSElementDecl decl = eDeclHelper.getGlobalElementDecl(curElem);
+        return decl != null && decl.fSubGroup != null;
     }
 
     /**
@@ -0,0 +1,525 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.xerces.impl.xs.traversers;
+
+import java.io.IOException;
+import java.util.Enumeration;
+import java.util.Hashtable;
+import java.util.Vector;
+
+import org.apache.xerces.impl.XMLEntityManager;
+import org.apache.xerces.impl.xs.SchemaSymbols;
+import org.apache.xerces.impl.xs.opti.SchemaDOMParser;
+import org.apache.xerces.impl.xs.opti.SchemaParsingConfig;
+import org.apache.xerces.util.DOMUtil;
+import org.apache.xerces.util.URI.MalformedURIException;
+import org.apache.xerces.xni.XNIException;
+import org.apache.xerces.xni.parser.XMLConfigurationException;
+import org.apache.xerces.xni.parser.XMLErrorHandler;
+import org.apache.xerces.xni.parser.XMLInputSource;
+import org.apache.xerces.xni.parser.XMLParseException;
+import org.apache.xerces.xs.datatypes.XSDecimal;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+
+/**
+ * Fetches and parses the schema documents referred to by the include,
+ * import, redefine and override elements of a schema document ahead of
+ * the XSDHandler, on a bounded number of worker threads. Each worker
+ * has its own schema parser, configured like the one of the XSDHandler.
+ * The references of the documents parsed by the workers are requested in
+ * turn, so the whole set of documents of a schema is fetched concurrently.
+ * <p>
+ * Only the documents the XSDHandler will load are requested. References
+ * are examined on the thread of the XSDHandler, which skips the imports
+ * of namespaces whose grammar is already in the grammar bucket or the
+ * grammar pool, and the documents it has parsed itself are never requested.
+ * Unless the XSDHandler loads every import of a namespace, the imports of
+ * a namespace imported from more than one location are not requested,
+ * since which of them is loaded depends on the order of the traversal.
+ * <p>
+ * The XSDHandler still constructs the trees in document order: when
+ * it needs a document it takes the one parsed by a worker, waiting for
+ * it if necessary, and parses the document itself if it was never
+ * requested, has not been started yet or reported any warning or error,
+ * so that the grammars built and the errors reported are the same as
+ * without prefetching.
+ *
+ * @xerces.internal
+ *
+ * @version $Id$
+ */
+final class SchemaDocumentPrefetcher {
+
+    //
+    // Constants
+    //
+
+    /** Features copied from the schema parser of the XSDHandler. */
+    private static final String[] FEATURES = {
+        XSDHandler.CONTINUE_AFTER_FATAL_ERROR,
+        XSDHandler.ALLOW_JAVA_ENCODINGS,
+        XSDHandler.STANDARD_URI_CONFORMANT_FEATURE,
+        XSDHandler.DISALLOW_DOCTYPE,
+        XSDHandler.GENERATE_SYNTHETIC_ANNOTATIONS
+    };
+
+    /** Properties copied from the schema parser of the XSDHandler. */
+    private static final String[] PROPERTIES = {
+        XSDHandler.SECURITY_MANAGER,
+        XSDHandler.LOCALE
+    };
+
+    /** The namespaces imported from more than one location. */
+    private static final Object AMBIGUOUS = new Object();
+
+    //
+    // Data
+    //
+
+    /** The XSDHandler the documents are fetched for. */
+    private final XSDHandler fSchemaHandler;
+
+    /** The maximum number of worker threads. */
+    private final int fMaxThreads;
+
+    /** The features of the worker parsers. */
+    private final Hashtable fFeatures = new Hashtable();
+
+    /** The properties of the worker parsers. */
+    private final Hashtable fProperties = new Hashtable();
+
+    /** The schema version supported by the worker parsers. */
+    private final XSDecimal fSupportedVersion;
+
+    /** The documents requested, by expanded system id. */
+    private final Hashtable fDocuments = new Hashtable();
+
+    /** The documents waiting for a worker. */
+    private final Vector fQueue = new Vector();
+
+    /** The documents parsed by a worker whose references were not requested yet. */
+    private final Vector fParsed = new Vector();
+
+    /**
+     * The expanded system id of the document requested for each imported
+     * namespace, or AMBIGUOUS. The namespace of an import without a
+     * namespace is the empty string.
+     */
+    private final Hashtable fImports = new Hashtable();
+
+    /** The number of worker threads started. */
+    private int fThreadCount = 0;
+
+    /** The number of worker threads waiting for a document. */
+    private int fIdleCount = 0;
+
+    /** True once the XSDHandler no longer needs any document. */
+    private boolean fShutdown = false;
+
+    //
+    // Constructors
+    //
+
+    /**
+     * Constructs a prefetcher whose workers are configured like the
+     * given schema parser of the given XSDHandler. No thread is started
+     * until a document is requested.
+     */
+    SchemaDocumentPrefetcher(XSDHandler schemaHandler, int maxThreads,
+            SchemaDOMParser schemaParser, XSDecimal supportedVersion) {
+        fSchemaHandler = schemaHandler;
+        fMaxThreads = maxThreads;
+        fSupportedVersion = supportedVersion;
+        for (int i = 0; i < FEATURES.length; ++i) {
+            try {
+                fFeatures.put(FEATURES[i], schemaParser.getFeature(FEATURES[i]) ? Boolean.TRUE : Boolean.FALSE);
+            }
+            catch (XMLConfigurationException e) {
+            }
+        }
+        for (int i = 0; i < PROPERTIES.length; ++i) {
+            try {
+                Object value = schemaParser.getProperty(PROPERTIES[i]);
+                if (value != null) {
+                    fProperties.put(PROPERTIES[i], value);
+                }
+            }
+            catch (XMLConfigurationException e) {
+            }
+        }
+    } // <init>(XSDHandler,int,SchemaDOMParser,XSDecimal)
+
+    //
+    // Public methods
+    //
+
+    /**
+     * Requests the documents referred to by the given schema document,
+     * which the XSDHandler has parsed itself from the given system id,
+     * and by the documents the workers have parsed since. Must be called
+     * on the thread of the XSDHandler.
+     */
+    public synchronized void prefetchReferences(Element schemaRoot, String schemaId) {
+        if (fShutdown) {
+            return;
+        }
+        if (schemaId != null && !fDocuments.containsKey(schemaId)) {
+            PrefetchedDocument document = new PrefetchedDocument(schemaId);
+            document.fTaken = true;
+            fDocuments.put(schemaId, document);
+        }
+        prefetchParsedReferences();
+        prefetchReferences0(schemaRoot, schemaId);
+    } // prefetchReferences(Element,String)
+
+    /** Requests the document with the given expanded system id. */
+    public synchronized void prefetch(String schemaId) {
+        if (fShutdown || schemaId == null || fDocuments.containsKey(schemaId)) {
+            return;
+        }
+        PrefetchedDocument document = new PrefetchedDocument(schemaId);
+        fDocuments.put(schemaId, document);
+        fQueue.addElement(document);
+        if (fIdleCount == 0 && fThreadCount < fMaxThreads) {
+            Worker worker = new Worker(fThreadCount++);
+            worker.start();
+        }
+        else {
+            notifyAll();
+        }
+    } // prefetch(String)
+
+    /**
+     * Returns the document with the given expanded system id once it
+     * has been parsed, or null if the caller should parse it itself:
+     * when the document was never requested, has already been taken,
+     * has not been started by a worker yet or could not be parsed
+     * without warnings or errors. A document which could not be read is
+     * returned with the exception thrown.
+     */
+    public synchronized PrefetchedDocument take(String schemaId) {
+        prefetchParsedReferences();
+        PrefetchedDocument document = (PrefetchedDocument) fDocuments.get(schemaId);
+        if (document == null) {
+            // the XSDHandler parses the document itself
+            document = new PrefetchedDocument(schemaId);
+            document.fTaken = true;
+            fDocuments.put(schemaId, document);
+            return null;
+        }
+        if (document.fTaken) {
+            return null;
+        }
+        document.fTaken = true;
+        if (!document.fStarted) {
+            fQueue.removeElement(document);
+            return null;
+        }
+        while (!document.fDone) {
+            try {
+                wait();
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return null;
+            }
+            prefetchParsedReferences();
+        }
+        if (document.fSchemaElement == null) {
+            return document.fException != null ? document : null;
+        }
+        if (document.fDeferred) {
+            prefetchReferences0(document.fSchemaElement, document.fSchemaId);
+        }
+        return document;
+    } // take(String):PrefetchedDocument
+
+    /**
+     * Discards the documents not taken yet and lets the workers terminate
+     * once they have finished the document they are parsing.
+     */
+    public synchronized void shutdown() {
+        fShutdown = true;
+        fQueue.removeAllElements();
+        fParsed.removeAllElements();
+        fImports.clear();
+        Enumeration documents = fDocuments.elements();
+        while (documents.hasMoreElements()) {
+            ((PrefetchedDocument) documents.nextElement()).fSchemaElement = null;
+        }
+        fDocuments.clear();
+        notifyAll();
+    } // shutdown()
+
+    //
+    // Private methods
+    //
+
+    /**
+     * Requests the documents referred to by the documents the workers
+     * have parsed. Called on the thread of the XSDHandler, with the
+     * lock held.
+     */
+    private void prefetchParsedReferences() {
+        while (!fParsed.isEmpty()) {
+            PrefetchedDocument document = (PrefetchedDocument) fParsed.remove(0);
+            if (document.fSchemaElement != null && !document.fDeferred) {
+                prefetchReferences0(document.fSchemaElement, document.fSchemaId);
+            }
+        }
+    } // prefetchParsedReferences()
+
+    /**
+     * Requests the documents referred to by the given schema document
+     * which the XSDHandler will load. Called on the thread of the
+     * XSDHandler, with the lock held.
+     */
+    private void prefetchReferences0(Element schemaRoot, String baseSystemId) {
+        String targetNamespace = DOMUtil.getAttrValueTrimmed(schemaRoot, SchemaSymbols.ATT_TARGETNAMESPACE);
+        for (Element child = DOMUtil.getFirstChildElement(schemaRoot);
+        child != null;
+        child = DOMUtil.getNextSiblingElement(child)) {
+            String localName = DOMUtil.getLocalName(child);
+            if (localName.equals(SchemaSymbols.ELT_INCLUDE) ||
+                    localName.equals(SchemaSymbols.ELT_IMPORT) ||
+                    localName.equals(SchemaSymbols.ELT_REDEFINE) ||
+                    localName.equals(SchemaSymbols.ELT_OVERRIDE)) {
+                String location = DOMUtil.getAttrValueTrimmed(child, SchemaSymbols.ATT_SCHEMALOCATION);
+                if (location.length() == 0) {
+                    continue;
+                }
+                String schemaId;
+                try {
+                    schemaId = XMLEntityManager.expandSystemId(location, baseSystemId, false);
+                }
+                catch (MalformedURIException e) {
+                    // the XSDHandler reports the error
+                    continue;
+                }
+                if (localName.equals(SchemaSymbols.ELT_IMPORT)) {
+                    String namespace = DOMUtil.getAttr(child, SchemaSymbols.ATT_NAMESPACE) != null
+                        ? DOMUtil.getAttrValueTrimmed(child, SchemaSymbols.ATT_NAMESPACE) : "";
+                    if (namespace.equals(targetNamespace) ||
+                            fSchemaHandler.isImportedGrammarLoaded(namespace.length() > 0 ? namespace : null,
+                                    location, baseSystemId)) {
+                        continue;
+                    }
+                    if (fSchemaHandler.isNamespaceImportedOnce()) {
+                        Object imported = fImports.get(namespace);
+                        if (imported == null) {
+                            fImports.put(namespace, schemaId);
+                        }
+                        else {
+                            if (imported != AMBIGUOUS && !imported.equals(schemaId)) {
+                                // which of the documents is loaded depends on
+                                // the traversal; fetch neither if still possible
+                                fImports.put(namespace, AMBIGUOUS);
+                                PrefetchedDocument document = (PrefetchedDocument) fDocuments.get(imported);
+                                if (document != null && !document.fStarted && !document.fTaken) {
+                                    fQueue.removeElement(document);
+                                    fDocuments.remove(imported);
+                                }
+                                else if (document != null) {
+                                    document.fDeferred = true;
+                                }
+                            }
+                            continue;
+                        }
+                    }
+                }
+                prefetch(schemaId);
+            }
+            else if (!localName.equals(SchemaSymbols.ELT_ANNOTATION)) {
+                // references precede the other children of a schema
+                break;
+            }
+        }
+    } // prefetchReferences0(Element,String)
+
+    /** Creates a schema parser configured like the one of the XSDHandler. */
+    private SchemaDOMParser createSchemaParser(XMLErrorHandler errorHandler) {
+        SchemaDOMParser parser = new SchemaDOMParser(new SchemaParsingConfig());
+        parser.setSupportedVersion(fSupportedVersion);
+        Enumeration ids = fFeatures.keys();
+        while (ids.hasMoreElements()) {
+            String id = (String) ids.nextElement();
+            try {
+                parser.setFeature(id, ((Boolean) fFeatures.get(id)).booleanValue());
+            }
+            catch (XMLConfigurationException e) {
+            }
+        }
+        ids = fProperties.keys();
+        while (ids.hasMoreElements()) {
+            String id = (String) ids.nextElement();
+            try {
+                parser.setProperty(id, fProperties.get(id));
+            }
+            catch (XMLConfigurationException e) {
+            }
+        }
+        parser.setProperty(XSDHandler.ERROR_HANDLER, errorHandler);
+        return parser;
+    } // createSchemaParser(XMLErrorHandler):SchemaDOMParser
+
+    //
+    // Classes
+    //
+
+    /**
+     * A schema document requested from the prefetcher.
+     */
+    static final class PrefetchedDocument {
+
+        /** The expanded system id of the document. */
+        final String fSchemaId;
+
+        /** The root of the document, or null if it could not be parsed. */
+        Element fSchemaElement;
+
+        /** The datatype XML version reported by the parser. */
+        Object fDatatypeXMLVersion;
+
+        /** True if the parser reported a warning or an error. */
+        boolean fFailed;
+
+        /** The exception thrown if the document could not be read, or null. */
+        IOException fException;
+
+        /**
+         * True if the references of the document are requested only
+         * once the XSDHandler takes it, as it may not be loaded.
+         */
+        boolean fDeferred;
+
+        boolean fStarted;
+        boolean fDone;
+        boolean fTaken;
+
+        PrefetchedDocument(String schemaId) {
+            fSchemaId = schemaId;
+        }
+
+    } // class PrefetchedDocument
+
+    /**
+     * A worker thread, which parses the documents requested one at a time.
+     * Any warning or error reported while parsing a document only marks it
+     * as failed; the XSDHandler will parse it again and report them.
+     */
+    final class Worker extends Thread implements XMLErrorHandler {
+
+        /** The schema parser of this worker. */
+        private final SchemaDOMParser fSchemaParser;
+
+        /** The document being parsed. */
+        private PrefetchedDocument fDocument;
+
+        Worker(int index) {
+            super("SchemaDocumentPrefetcher-" + index);
+            setDaemon(true);
+            fSchemaParser = createSchemaParser(this);
+        }
+
+        public void run() {
+            while (true) {
+                PrefetchedDocument document;
+                synchronized (SchemaDocumentPrefetcher.this) {
+                    while (fQueue.isEmpty() && !fShutdown) {
+                        ++fIdleCount;
+                        try {
+                            SchemaDocumentPrefetcher.this.wait();
+                        }
+                        catch (InterruptedException e) {
+                            fShutdown = true;
+                        }
+                        --fIdleCount;
+                    }
+                    if (fShutdown) {
+                        --fThreadCount;
+                        return;
+                    }
+                    document = (PrefetchedDocument) fQueue.remove(0);
+                    document.fStarted = true;
+                }
+
+                fDocument = document;
+                Element schemaElement = null;
+                Object datatypeXMLVersion = null;
+                IOException exception = null;
+                try {
+                    fSchemaParser.parse(new XMLInputSource(null, document.fSchemaId, null));
+                    Document schemaDocument = fSchemaParser.getDocument();
+                    schemaElement = schemaDocument != null ? DOMUtil.getRoot(schemaDocument) : null;
+                    datatypeXMLVersion = fSchemaParser.getProperty(XSDHandler.DATATYPE_XML_VERSION);
+                }
+                catch (IOException e) {
+                    // unless a warning was reported first, the XSDHandler
+                    // reports the same exception without reading the
+                    // document again
+                    if (!document.fFailed) {
+                        exception = e;
+                    }
+                    document.fFailed = true;
+                }
+                catch (Exception e) {
+                    document.fFailed = true;
+                }
+                if (document.fFailed) {
+                    schemaElement = null;
+                }
+                fDocument = null;
+
+                synchronized (SchemaDocumentPrefetcher.this) {
+                    if (!fShutdown) {
+                        document.fSchemaElement = schemaElement;
+                        document.fDatatypeXMLVersion = datatypeXMLVersion;
+                        document.fException = exception;
+                        if (schemaElement != null) {
+                            fParsed.addElement(document);
+                        }
+                    }
+                    document.fDone = true;
+                    SchemaDocumentPrefetcher.this.notifyAll();
+                }
+            }
+        } // run()
+
+        //
+        // XMLErrorHandler methods
+        //
+
+        public void warning(String domain, String key, XMLParseException exception)
+            throws XNIException {
+            fDocument.fFailed = true;
+        } // warning(String,String,XMLParseException)
+
+        public void error(String domain, String key, XMLParseException exception)
+            throws XNIException {
+            fDocument.fFailed = true;
+        } // error(String,String,XMLParseException)
+
+        public void fatalError(String domain, String key, XMLParseException exception)
+            throws XNIException {
+            fDocument.fFailed = true;
+        } // fatalError(String,String,XMLParseException)
+
+    } // class Worker
+
+} // class SchemaDocumentPrefetcher
@@ -67,6 +67,7 @@ import org.apache.xerces.impl.xs.util.SimpleLocator;
 import org.apache.xerces.impl.xs.util.XSInputSource;
 import org.apache.xerces.parsers.SAXParser;
 import org.apache.xerces.parsers.XML11Configuration;
+import org.apache.xerces.util.DOMEntityResolverWrapper;
 import org.apache.xerces.util.DOMInputSource;
 import org.apache.xerces.util.DOMUtil;
 import org.apache.xerces.util.DefaultErrorHandler;
@@ -233,6 +234,10 @@ public class XSDHandler {
     protected static final String DATATYPE_XML_VERSION = 
         Constants.XERCES_PROPERTY_PREFIX + Constants.DATATYPE_XML_VERSION_PROPERTY;
     
+    /** Property identifier: schema loading threads. */
+    protected static final String SCHEMA_LOADING_THREADS =
+        Constants.XERCES_PROPERTY_PREFIX + Constants.SCHEMA_LOADING_THREADS_PROPERTY;
+    
     protected static final boolean DEBUG_NODE_POOL = false;
     
     // Data
@@ -427,6 +432,17 @@ public class XSDHandler {
     
     // handle comments and PIs with <assert>
     boolean fCommentsAndPIsForAssert = false;
+    
+    // the number of threads fetching schema documents ahead of
+    // the traversal; 0 if the documents are fetched as needed
+    private int fLoadingThreads = 0;
+    
+    // whether the application resolves entities itself, in which
+    // case the schema documents are never fetched ahead
+    private boolean fHasEntityResolver = false;
+    
+    // fetches schema documents ahead of the traversal, if enabled
+    private SchemaDocumentPrefetcher fPrefetcher = null;
 
     // the XMLErrorReporter
     private XMLErrorReporter fErrorReporter;
@@ -573,6 +589,23 @@ public class XSDHandler {
      */
     public SchemaGrammar parseSchema(XMLInputSource is, XSDDescription desc,
             Hashtable locationPairs)
+    throws IOException {
+        if (fLoadingThreads > 0 && !fHasEntityResolver) {
+            fPrefetcher = new SchemaDocumentPrefetcher(this, fLoadingThreads, fSchemaParser, fSupportedVersion);
+        }
+        try {
+            return parseSchema0(is, desc, locationPairs);
+        }
+        finally {
+            if (fPrefetcher != null) {
+                fPrefetcher.shutdown();
+                fPrefetcher = null;
+            }
+        }
+    } // parseSchema(XMLInputSource,XSDDescription,Hashtable):SchemaGrammar
+    
+    private SchemaGrammar parseSchema0(XMLInputSource is, XSDDescription desc,
+            Hashtable locationPairs)
     throws IOException {
         fLocationPairs = locationPairs;
         fSchemaParser.resetNodePool();   
@@ -700,6 +733,10 @@ public class XSDHandler {
             	fDoc2SystemId.put(schemaRoot, schemaId);
             }
         }
+        
+        if (fPrefetcher != null) {
+            fPrefetcher.prefetchReferences(schemaRoot, doc2SystemId(schemaRoot));
+        }
 
         // before constructing trees and traversing a schema, need to reset
         // all traversers and clear all registries
@@ -843,6 +880,47 @@ public class XSDHandler {
         return sg;
     }
     
+    /**
+     * Returns true if the document referred to by an import of the given
+     * namespace won't be loaded, because the grammar of the namespace is
+     * already in the grammar bucket or the grammar pool. Unlike findGrammar,
+     * no grammar is added to the bucket.
+     */
+    boolean isImportedGrammarLoaded(String namespace, String schemaHint, String baseSystemId) {
+        SchemaGrammar sg = fGrammarBucket.getGrammar(namespace);
+        boolean inBucket = sg != null;
+        if (sg == null && fGrammarPool != null) {
+            XSDDescription desc = new XSDDescription();
+            desc.setContextType(XSDDescription.CONTEXT_IMPORT);
+            desc.setBaseSystemId(baseSystemId);
+            desc.setLiteralSystemId(schemaHint);
+            desc.setLocationHints(new String[]{schemaHint});
+            desc.setTargetNamespace(namespace);
+            sg = (SchemaGrammar)fGrammarPool.retrieveGrammar(desc);
+        }
+        if (sg == null) {
+            return false;
+        }
+        if (!fNamespaceGrowth &&
+                (!fHonourAllSchemaLocations || !inBucket || sg.isImmutable())) {
+            return true;
+        }
+        try {
+            return sg.getDocumentLocations().contains(XMLEntityManager.expandSystemId(schemaHint, baseSystemId, false));
+        } 
+        catch (MalformedURIException e) {
+            return false;
+        }
+    }
+    
+    /**
+     * Returns true if only the document referred to by the first import
+     * of a namespace is loaded, and the other imports are skipped.
+     */
+    boolean isNamespaceImportedOnce() {
+        return !fHonourAllSchemaLocations && !fNamespaceGrowth;
+    }
+    
     // may wish to have setter methods for ErrorHandler,
     // EntityResolver...
     
@@ -2443,9 +2521,29 @@ public class XSDHandler {
                     }
                 }
                 
+                // Take the document from the prefetcher if a worker has
+                // parsed it from the same system id without any warning,
+                // or could not read it.
+                if (fPrefetcher != null && key != null &&
+                        schemaSource.getByteStream() == null &&
+                        schemaSource.getCharacterStream() == null) {
+                    SchemaDocumentPrefetcher.PrefetchedDocument prefetched = fPrefetcher.take(schemaId);
+                    if (prefetched != null) {
+                        if (prefetched.fException != null) {
+                            throw prefetched.fException;
+                        }
+                        return getSchemaDocument0(key, schemaId, prefetched.fSchemaElement,
+                                fSchemaVersion == Constants.SCHEMA_VERSION_1_1
+                                    ? prefetched.fDatatypeXMLVersion : null);
+                    }
+                }
+                
                 fSchemaParser.parse(schemaSource);
                 Document schemaDocument = fSchemaParser.getDocument();
                 schemaElement = schemaDocument != null ? DOMUtil.getRoot(schemaDocument) : null;
+                if (fPrefetcher != null && schemaElement != null) {
+                    fPrefetcher.prefetchReferences(schemaElement, doc2SystemId(schemaElement));
+                }
                 return getSchemaDocument0(key, schemaId, schemaElement,
                         fSchemaVersion == Constants.SCHEMA_VERSION_1_1
                             ? fSchemaParser.getProperty(DATATYPE_XML_VERSION) : null);
@@ -3834,6 +3932,9 @@ public class XSDHandler {
         XMLEntityResolver er = (XMLEntityResolver)componentManager.getProperty(ENTITY_RESOLVER);
         if (er != null)
             fSchemaParser.setEntityResolver(er);
+        // a DOM wrapper without an LSResourceResolver resolves nothing
+        fHasEntityResolver = er != null && !(er instanceof DOMEntityResolverWrapper &&
+                ((DOMEntityResolverWrapper) er).getEntityResolver() == null);
         
         // set error reporter
         fErrorReporter =
@@ -3894,6 +3995,13 @@ public class XSDHandler {
         } catch (XMLConfigurationException e) {
             fCommentsAndPIsForAssert = false;
         }
+        
+        try {
+            Object threads = componentManager.getProperty(SCHEMA_LOADING_THREADS);
+            fLoadingThreads = (threads instanceof Integer) ? ((Integer) threads).intValue() : 0;
+        } catch (XMLConfigurationException e) {
+            fLoadingThreads = 0;
+        }
 
         try {
             fSchemaParser.setFeature(
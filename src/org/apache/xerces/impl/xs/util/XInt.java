@@ -17,6 +17,8 @@
 
 package org.apache.xerces.impl.xs.util;
 
+import java.io.Serializable;
+
 /**
  * @xerces.internal  
  * 
@@ -24,7 +26,9 @@ package org.apache.xerces.impl.xs.util;
  * @version $Id$
  */
 
-public final class XInt {
+public final class XInt implements Serializable {
+
+    private static final long serialVersionUID = -8363922495669363076L;
 
     private final int fValue;
 
@@ -17,6 +17,7 @@
 
 package org.apache.xerces.impl.xs.util;
 
+import java.io.Serializable;
 import java.lang.reflect.Array;
 import java.util.AbstractList;
 import java.util.Iterator;
@@ -35,7 +36,9 @@ import org.apache.xerces.xs.XSObjectList;
  *
  * @version $Id$
  */
-public class XSObjectListImpl extends AbstractList implements XSObjectList {
+public class XSObjectListImpl extends AbstractList implements XSObjectList, Serializable {
+
+    private static final long serialVersionUID = 1739464030120236284L;
 
     /**
      * An immutable empty list.
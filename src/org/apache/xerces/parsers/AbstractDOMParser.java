@@ -41,6 +41,7 @@ import org.apache.xerces.dom.TextImpl;
 import org.apache.xerces.impl.Constants;
 import org.apache.xerces.impl.dv.XSSimpleType;
 import org.apache.xerces.util.DOMErrorHandlerWrapper;
+import org.apache.xerces.util.XMLAttributesImpl;
 import org.apache.xerces.xni.Augmentations;
 import org.apache.xerces.xni.NamespaceContext;
 import org.apache.xerces.xni.QName;
@@ -115,6 +116,9 @@ public class AbstractDOMParser extends AbstractXMLDocumentParser {
     protected static final String DEFER_NODE_EXPANSION =
     Constants.XERCES_FEATURE_PREFIX + Constants.DEFER_NODE_EXPANSION_FEATURE;
 
+    /** Feature id: compact deferred DOM. */
+    protected static final String COMPACT_DEFERRED_DOM =
+    Constants.XERCES_FEATURE_PREFIX + Constants.COMPACT_DEFERRED_DOM_FEATURE;
 
     /** Recognized features. */
     private static final String[] RECOGNIZED_FEATURES = {
@@ -123,7 +127,8 @@ public class AbstractDOMParser extends AbstractXMLDocumentParser {
         INCLUDE_COMMENTS_FEATURE,
         CREATE_CDATA_NODES_FEATURE,
         INCLUDE_IGNORABLE_WHITESPACE,
-        DEFER_NODE_EXPANSION
+        DEFER_NODE_EXPANSION,
+        COMPACT_DEFERRED_DOM
     };
 
     // property ids
@@ -231,6 +236,7 @@ public class AbstractDOMParser extends AbstractXMLDocumentParser {
     // deferred expansion data
 
     protected boolean              fDeferNodeExpansion;
+    protected boolean              fCompactDeferredDOM;
     protected boolean              fNamespaceAware;
     protected DeferredDocumentImpl fDeferredDocumentImpl;
     protected int                  fDocumentIndex;
@@ -298,6 +304,7 @@ public class AbstractDOMParser extends AbstractXMLDocumentParser {
         fConfiguration.setFeature (CREATE_ENTITY_REF_NODES, true);
         fConfiguration.setFeature (INCLUDE_IGNORABLE_WHITESPACE, true);
         fConfiguration.setFeature (DEFER_NODE_EXPANSION, true);
+        fConfiguration.setFeature (COMPACT_DEFERRED_DOM, false);
         fConfiguration.setFeature (INCLUDE_COMMENTS_FEATURE, true);
         fConfiguration.setFeature (CREATE_CDATA_NODES_FEATURE, true);
 
@@ -414,6 +421,8 @@ public class AbstractDOMParser extends AbstractXMLDocumentParser {
         fDeferNodeExpansion =
         fConfiguration.getFeature (DEFER_NODE_EXPANSION);
 
+        fCompactDeferredDOM = fConfiguration.getFeature (COMPACT_DEFERRED_DOM);
+
         fNamespaceAware = fConfiguration.getFeature (NAMESPACES);
 
         fIncludeComments = fConfiguration.getFeature (INCLUDE_COMMENTS_FEATURE);
@@ -1108,14 +1117,28 @@ public class AbstractDOMParser extends AbstractXMLDocumentParser {
                 }
 
                 // create attribute
-                fDeferredDocumentImpl.setDeferredAttribute (
-                el,
-                attributes.getQName (i),
-                attributes.getURI (i),
-                attributes.getValue (i),
-                attributes.isSpecified (i),
-                id,
-                type);
+                if (fCompactDeferredDOM && attributes instanceof XMLAttributesImpl) {
+                    XMLAttributesImpl attrs = (XMLAttributesImpl) attributes;
+                    int length = attrs.getValueLength (i);
+                    fDeferredDocumentImpl.setDeferredAttribute (
+                    el,
+                    attributes.getQName (i),
+                    attributes.getURI (i),
+                    attrs.getValueChars (i), 0, length,
+                    attributes.isSpecified (i),
+                    id,
+                    type);
+                }
+                else {
+                    fDeferredDocumentImpl.setDeferredAttribute (
+                    el,
+                    attributes.getQName (i),
+                    attributes.getURI (i),
+                    attributes.getValue (i),
+                    attributes.isSpecified (i),
+                    id,
+                    type);
+                }
             }
 
             fDeferredDocumentImpl.appendChild (fCurrentNodeIndex, el);
@@ -1207,16 +1230,18 @@ public class AbstractDOMParser extends AbstractXMLDocumentParser {
             // the DOM in the deferred case.
             if (fInCDATASection && fCreateCDATANodes) {
                 if (fCurrentCDATASectionIndex == -1) {
-                    int cs = fDeferredDocumentImpl.
-                    createDeferredCDATASection (text.toString ());
+                    int cs = fCompactDeferredDOM
+                    ? fDeferredDocumentImpl.createDeferredCDATASection (
+                      text.ch, text.offset, text.length)
+                    : fDeferredDocumentImpl.createDeferredCDATASection (
+                      text.toString ());
 
                     fDeferredDocumentImpl.appendChild (fCurrentNodeIndex, cs);
                     fCurrentCDATASectionIndex = cs;
                     fCurrentNodeIndex = cs;
                 }
                 else {
-                    int txt = fDeferredDocumentImpl.
-                    createDeferredTextNode (text.toString (), false);
+                    int txt = createDeferredTextNode (text, false);
                     fDeferredDocumentImpl.appendChild (fCurrentNodeIndex, txt);
                 }
             } else if (!fInDTD) {
@@ -1226,9 +1251,7 @@ public class AbstractDOMParser extends AbstractXMLDocumentParser {
                     return;
                 }
 
-                String value = text.toString ();
-                int txt = fDeferredDocumentImpl.
-                createDeferredTextNode (value, false);
+                int txt = createDeferredTextNode (text, false);
                 fDeferredDocumentImpl.appendChild (fCurrentNodeIndex, txt);
 
             }
@@ -1271,13 +1294,25 @@ public class AbstractDOMParser extends AbstractXMLDocumentParser {
         else {
             // The Text normalization is taken care of within the DOM in the
             // deferred case.
-            int txt = fDeferredDocumentImpl.
-            createDeferredTextNode (text.toString (), true);
+            int txt = createDeferredTextNode (text, true);
             fDeferredDocumentImpl.appendChild (fCurrentNodeIndex, txt);
         }
 
     } // ignorableWhitespace(XMLString)
 
+    /**
+     * Creates a deferred text node. In the compact deferred DOM the
+     * characters are copied without creating a string.
+     */
+    private int createDeferredTextNode (XMLString text, boolean ignorableWhitespace) {
+        if (fCompactDeferredDOM) {
+            return fDeferredDocumentImpl.createDeferredTextNode (
+            text.ch, text.offset, text.length, ignorableWhitespace);
+        }
+        return fDeferredDocumentImpl.createDeferredTextNode (
+        text.toString (), ignorableWhitespace);
+    } // createDeferredTextNode(XMLString,boolean):int
+
     /**
      * The end of an element.
      *
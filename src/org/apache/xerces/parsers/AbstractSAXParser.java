@@ -27,6 +27,7 @@ import org.apache.xerces.util.EntityResolverWrapper;
 import org.apache.xerces.util.ErrorHandlerWrapper;
 import org.apache.xerces.util.SAXMessageFormatter;
 import org.apache.xerces.util.SymbolHash;
+import org.apache.xerces.util.XMLAttributesImpl;
 import org.apache.xerces.util.XMLSymbols;
 import org.apache.xerces.xni.Augmentations;
 import org.apache.xerces.xni.NamespaceContext;
@@ -58,7 +59,6 @@ import org.xml.sax.SAXNotRecognizedException;
 import org.xml.sax.SAXNotSupportedException;
 import org.xml.sax.SAXParseException;
 import org.xml.sax.XMLReader;
-import org.xml.sax.ext.Attributes2;
 import org.xml.sax.ext.DeclHandler;
 import org.xml.sax.ext.EntityResolver2;
 import org.xml.sax.ext.LexicalHandler;
@@ -2246,7 +2246,7 @@ public abstract class AbstractSAXParser
     } // class LocatorProxy
 
     protected static final class AttributesProxy
-        implements AttributeList, Attributes2 {
+        implements AttributeList, CharArrayAttributes {
 
         //
         // Data
@@ -2377,6 +2377,43 @@ public abstract class AbstractSAXParser
             return fAttributes.isSpecified(index);
         }
 
+        // CharArrayAttributes methods
+
+        public int getValueLength(int index) {
+            if (index < 0 || index >= fAttributes.getLength()) {
+                throw new ArrayIndexOutOfBoundsException(index);
+            }
+            if (fAttributes instanceof XMLAttributesImpl) {
+                return ((XMLAttributesImpl) fAttributes).getValueLength(index);
+            }
+            return fAttributes.getValue(index).length();
+        }
+
+        public char[] getValueChars(int index) {
+            if (index < 0 || index >= fAttributes.getLength()) {
+                throw new ArrayIndexOutOfBoundsException(index);
+            }
+            if (fAttributes instanceof XMLAttributesImpl) {
+                return ((XMLAttributesImpl) fAttributes).getValueChars(index);
+            }
+            return fAttributes.getValue(index).toCharArray();
+        }
+
+        public int getValueChars(int index, char[] buffer, int offset) {
+            if (index < 0 || index >= fAttributes.getLength()) {
+                throw new ArrayIndexOutOfBoundsException(index);
+            }
+            if (fAttributes instanceof XMLAttributesImpl) {
+                XMLAttributesImpl attributes = (XMLAttributesImpl) fAttributes;
+                int length = attributes.getValueLength(index);
+                System.arraycopy(attributes.getValueChars(index), 0, buffer, offset, length);
+                return length;
+            }
+            String value = fAttributes.getValue(index);
+            value.getChars(0, value.length(), buffer, offset);
+            return value.length();
+        }
+
     } // class AttributesProxy
 
 
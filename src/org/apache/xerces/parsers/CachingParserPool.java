@@ -17,6 +17,8 @@
 
 package org.apache.xerces.parsers;
 
+import org.apache.xerces.util.ConcurrentSymbolTable;
+import org.apache.xerces.util.ConcurrentXMLGrammarPool;
 import org.apache.xerces.util.ShadowedSymbolTable;
 import org.apache.xerces.util.SymbolTable;
 import org.apache.xerces.util.SynchronizedSymbolTable;
@@ -51,6 +53,13 @@ import org.apache.xerces.xni.grammars.XMLGrammarPool;
  * memory leak due to new symbols being added to the symbol table
  * over time. In other words, always take caution to make sure
  * that your application is thread-safe and avoids leaking memory.
+ * <p>
+ * <strong>Note:</strong> The synchronization cost of the symbol
+ * table can be avoided by constructing the pool with a
+ * <code>ConcurrentSymbolTable</code>, which is thread-safe on its
+ * own and is therefore used as is instead of being wrapped. The same
+ * applies to a <code>ConcurrentXMLGrammarPool</code>, whose lookups
+ * never lock.
  *
  * @author Andy Clark, IBM
  *
@@ -75,14 +84,16 @@ public class CachingParserPool {
     /** 
      * Symbol table. The symbol table that the caching parser pool is
      * constructed with is automatically wrapped in a synchronized
-     * version for thread-safety.
+     * version for thread-safety, unless it is a concurrent symbol
+     * table which is already thread-safe.
      */
     protected SymbolTable fSynchronizedSymbolTable;
 
     /** 
      * Grammar pool. The grammar pool that the caching parser pool is
      * constructed with is automatically wrapped in a synchronized
-     * version for thread-safety.
+     * version for thread-safety, unless it is a concurrent grammar
+     * pool which is already thread-safe.
      */
     protected XMLGrammarPool fSynchronizedGrammarPool;
 
@@ -110,19 +121,41 @@ public class CachingParserPool {
 
     /** Default constructor. */
     public CachingParserPool() {
-        this(new SymbolTable(), new XMLGrammarPoolImpl());
+        this(new SymbolTable(), new ConcurrentXMLGrammarPool());
     } // <init>()
 
+    /**
+     * Constructs a caching parser pool with a new symbol table and
+     * grammar pool.
+     *
+     * @param concurrentSymbolTable If true, the parsers created by this
+     *                              pool share a lock-free concurrent
+     *                              symbol table instead of a synchronized
+     *                              one.
+     */
+    public CachingParserPool(boolean concurrentSymbolTable) {
+        this(concurrentSymbolTable ? new ConcurrentSymbolTable() : new SymbolTable(), 
+                new ConcurrentXMLGrammarPool());
+    } // <init>(boolean)
+
     /**
      * Constructs a caching parser pool with the specified symbol table
      * and grammar pool.
      * 
-     * @param symbolTable The symbol table.
-     * @param grammarPool The grammar pool.
+     * @param symbolTable The symbol table. A concurrent symbol table
+     *                    is used as is; any other symbol table is 
+     *                    wrapped in a synchronized symbol table.
+     * @param grammarPool The grammar pool. A concurrent grammar pool
+     *                    is used as is; any other grammar pool is
+     *                    wrapped in a synchronized grammar pool.
      */
     public CachingParserPool(SymbolTable symbolTable, XMLGrammarPool grammarPool) {
-        fSynchronizedSymbolTable = new SynchronizedSymbolTable(symbolTable);
-        fSynchronizedGrammarPool = new SynchronizedGrammarPool(grammarPool);
+        fSynchronizedSymbolTable = (symbolTable instanceof ConcurrentSymbolTable)
+                                 ? symbolTable
+                                 : new SynchronizedSymbolTable(symbolTable);
+        fSynchronizedGrammarPool = (grammarPool instanceof ConcurrentXMLGrammarPool)
+                                 ? grammarPool
+                                 : new SynchronizedGrammarPool(grammarPool);
     } // <init>(SymbolTable,XMLGrammarPool)
 
     //
@@ -0,0 +1,80 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.xerces.parsers;
+
+import org.xml.sax.ext.Attributes2;
+
+/**
+ * An extension of <code>Attributes2</code> which gives access to the
+ * values of attributes as characters. The <code>Attributes</code>
+ * passed to <code>ContentHandler.startElement</code> by the SAX parsers
+ * implement this interface.
+ * <p>
+ * When the <code>http://apache.org/xml/features/scanner/defer-attribute-values</code>
+ * feature is enabled, the characters of the attribute values are kept
+ * by the parser and no <code>String</code> is created for a value
+ * unless the application asks for it with one of the
+ * <code>getValue</code> methods. When the feature is disabled, these
+ * methods copy the characters of the <code>String</code> values.
+ * <p>
+ * The characters returned are only valid within the scope of the
+ * <code>startElement</code> call.
+ *
+ * @version $Id$
+ */
+public interface CharArrayAttributes extends Attributes2 {
+
+    /**
+     * Returns the number of characters in the value of the attribute at
+     * the specified index.
+     *
+     * @param index The attribute index (zero-based).
+     * @return The length of the attribute value.
+     * @exception java.lang.ArrayIndexOutOfBoundsException When the
+     *            supplied index does not identify an attribute.
+     */
+    public int getValueLength(int index);
+
+    /**
+     * Returns the characters of the value of the attribute at the
+     * specified index. The value is held in the first
+     * <code>getValueLength(index)</code> characters of the array. The
+     * array belongs to the parser and must not be modified.
+     *
+     * @param index The attribute index (zero-based).
+     * @return The characters of the attribute value.
+     * @exception java.lang.ArrayIndexOutOfBoundsException When the
+     *            supplied index does not identify an attribute.
+     */
+    public char[] getValueChars(int index);
+
+    /**
+     * Copies the characters of the value of the attribute at the
+     * specified index into the given array.
+     *
+     * @param index The attribute index (zero-based).
+     * @param buffer The array to copy the characters into.
+     * @param offset The offset in the array of the first character.
+     * @return The number of characters copied.
+     * @exception java.lang.ArrayIndexOutOfBoundsException When the
+     *            supplied index does not identify an attribute or the
+     *            array is too small to hold the value.
+     */
+    public int getValueChars(int index, char[] buffer, int offset);
+
+} // interface CharArrayAttributes
@@ -0,0 +1,724 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.xerces.parsers;
+
+import java.io.IOException;
+import java.util.Hashtable;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.Map;
+
+import javax.xml.transform.Result;
+import javax.xml.transform.Source;
+import javax.xml.validation.Schema;
+import javax.xml.validation.Validator;
+
+import org.apache.xerces.util.ShadowedSymbolTable;
+import org.apache.xerces.util.SymbolTable;
+import org.apache.xerces.xni.grammars.XMLGrammarPool;
+import org.apache.xerces.xs.AttributePSVI;
+import org.apache.xerces.xs.ElementPSVI;
+import org.apache.xerces.xs.PSVIProvider;
+import org.w3c.dom.ls.LSResourceResolver;
+import org.xml.sax.ErrorHandler;
+import org.xml.sax.SAXException;
+import org.xml.sax.SAXNotRecognizedException;
+import org.xml.sax.SAXNotSupportedException;
+
+/**
+ * A thread-safe pool of reusable parser and validator instances.
+ * <p>
+ * Creating a parser builds its whole configuration: the scanners, the
+ * validators, the entity manager and so on. For small documents this
+ * can cost more than the parse itself. A parser pool keeps parsers
+ * which are no longer in use so that they can be borrowed again
+ * instead of being created. Like the parsers created by a
+ * <code>CachingParserPool</code>, the pooled parsers share the symbol
+ * table and grammar pool of the pool.
+ * <p>
+ * A parser is borrowed with <code>borrowSAXParser()</code> or
+ * <code>borrowDOMParser()</code> and must be given back with
+ * <code>returnParser()</code> once the application is done with it,
+ * and in the case of a DOM parser with the document it built. A
+ * returned parser is reset before it is made available again:
+ * <ul>
+ *  <li>features and properties changed by the borrower are restored
+ *      to the values they had when the parser was created;</li>
+ *  <li>the handlers, entity resolver and locale are restored;</li>
+ *  <li>every component of the parser configuration is reset, as it is
+ *      at the start of a parse; this releases the entity manager's
+ *      entities and readers, and the state of the error reporter,
+ *      the validators and the namespace context.</li>
+ * </ul>
+ * A DOM parser also drops its reference to the last document. If the
+ * reset fails the parser is discarded rather than pooled.
+ * <p>
+ * Validators for the schema set with <code>setSchema()</code> are
+ * pooled the same way with <code>borrowValidator()</code> and
+ * <code>returnValidator()</code>; a returned validator is reset with
+ * <code>Validator.reset()</code>.
+ * <p>
+ * Borrowing never blocks: when no idle instance is available a new
+ * one is created. The pool is bounded by the number of idle instances
+ * of each kind that it keeps; instances returned to a full pool are
+ * discarded. Instances which have been idle for longer than the
+ * maximum idle time are evicted. The pool counts hits, misses,
+ * evictions and the returned instances it resets. The cost of a reset
+ * is measured by <code>ParserPoolBenchmark</code> in the benchmarks.
+ * <p>
+ * <strong>Note:</strong> A parser must not be used after it has been
+ * returned to the pool, and must not be returned while it is parsing.
+ *
+ * @see CachingParserPool
+ *
+ * @version $Id$
+ */
+public class ParserPool extends CachingParserPool {
+
+    //
+    // Constants
+    //
+
+    /** Default maximum number of idle instances of each kind (16). */
+    public static final int DEFAULT_MAX_IDLE = 16;
+
+    /** Default maximum idle time in milliseconds (60 seconds). */
+    public static final long DEFAULT_MAX_IDLE_TIME = 60000L;
+
+    //
+    // Data
+    //
+
+    /** Idle SAX parsers. */
+    private final IdleList fSAXParsers;
+
+    /** Idle DOM parsers. */
+    private final IdleList fDOMParsers;
+
+    /** Idle validators. */
+    private final IdleList fValidators;
+
+    /** Maximum time an instance may stay idle, or 0 for no limit. */
+    private final long fMaxIdleTime;
+
+    /** The schema validators are created from. */
+    private Schema fSchema;
+
+    // statistics
+
+    private long fHitCount;
+    private long fMissCount;
+    private long fReturnCount;
+    private long fDiscardCount;
+    private long fEvictionCount;
+    private long fResetCount;
+
+    //
+    // Constructors
+    //
+
+    /** Constructs a parser pool with a new symbol table and grammar pool. */
+    public ParserPool() {
+        this(DEFAULT_MAX_IDLE, DEFAULT_MAX_IDLE_TIME);
+    } // <init>()
+
+    /**
+     * Constructs a parser pool with a new symbol table and grammar pool.
+     *
+     * @param maxIdle     The maximum number of idle instances of each
+     *                    kind kept by the pool.
+     * @param maxIdleTime The time in milliseconds after which an idle
+     *                    instance is evicted, or 0 to keep idle
+     *                    instances indefinitely.
+     */
+    public ParserPool(int maxIdle, long maxIdleTime) {
+        super();
+        fSAXParsers = new IdleList(maxIdle);
+        fDOMParsers = new IdleList(maxIdle);
+        fValidators = new IdleList(maxIdle);
+        fMaxIdleTime = maxIdleTime;
+    } // <init>(int,long)
+
+    /**
+     * Constructs a parser pool with the specified symbol table and
+     * grammar pool.
+     *
+     * @param symbolTable The symbol table. A concurrent symbol table
+     *                    is used as is; any other symbol table is
+     *                    wrapped in a synchronized symbol table.
+     * @param grammarPool The grammar pool. A concurrent grammar pool
+     *                    is used as is; any other grammar pool is
+     *                    wrapped in a synchronized grammar pool.
+     * @param maxIdle     The maximum number of idle instances of each
+     *                    kind kept by the pool.
+     * @param maxIdleTime The time in milliseconds after which an idle
+     *                    instance is evicted, or 0 to keep idle
+     *                    instances indefinitely.
+     */
+    public ParserPool(SymbolTable symbolTable, XMLGrammarPool grammarPool,
+            int maxIdle, long maxIdleTime) {
+        super(symbolTable, grammarPool);
+        fSAXParsers = new IdleList(maxIdle);
+        fDOMParsers = new IdleList(maxIdle);
+        fValidators = new IdleList(maxIdle);
+        fMaxIdleTime = maxIdleTime;
+    } // <init>(SymbolTable,XMLGrammarPool,int,long)
+
+    //
+    // Public methods
+    //
+
+    /**
+     * Borrows a SAX parser from the pool, creating one if no idle
+     * parser is available.
+     */
+    public SAXParser borrowSAXParser() {
+        PooledSAXParser parser = (PooledSAXParser) borrow(fSAXParsers);
+        if (parser == null) {
+            parser = new PooledSAXParser(this, getParserSymbolTable(), getParserGrammarPool());
+        }
+        return parser;
+    } // borrowSAXParser():SAXParser
+
+    /**
+     * Borrows a DOM parser from the pool, creating one if no idle
+     * parser is available.
+     */
+    public DOMParser borrowDOMParser() {
+        PooledDOMParser parser = (PooledDOMParser) borrow(fDOMParsers);
+        if (parser == null) {
+            parser = new PooledDOMParser(this, getParserSymbolTable(), getParserGrammarPool());
+        }
+        return parser;
+    } // borrowDOMParser():DOMParser
+
+    /**
+     * Returns a parser borrowed from this pool. The parser is reset
+     * and kept for reuse unless the pool already holds the maximum
+     * number of idle parsers.
+     *
+     * @param parser A parser obtained from <code>borrowSAXParser()</code>
+     *               or <code>borrowDOMParser()</code> on this pool.
+     *
+     * @throws IllegalArgumentException If the parser was not borrowed
+     *                                  from this pool.
+     */
+    public void returnParser(XMLParser parser) {
+        final IdleList idle;
+        if (parser instanceof PooledSAXParser && ((PooledSAXParser) parser).fPool == this) {
+            idle = fSAXParsers;
+        }
+        else if (parser instanceof PooledDOMParser && ((PooledDOMParser) parser).fPool == this) {
+            idle = fDOMParsers;
+        }
+        else {
+            throw new IllegalArgumentException("The parser was not borrowed from this pool.");
+        }
+        boolean reset;
+        try {
+            if (idle == fSAXParsers) {
+                ((PooledSAXParser) parser).restoreInitState();
+            }
+            else {
+                ((PooledDOMParser) parser).restoreInitState();
+            }
+            // otherwise the components are only reset by the next parse
+            if (parser.fConfiguration instanceof XML11Configuration) {
+                ((XML11Configuration) parser.fConfiguration).resetComponents();
+            }
+            reset = true;
+        }
+        catch (Exception e) {
+            // the parser was left in a state it can't
+            // be reset from; don't pool it
+            reset = false;
+        }
+        giveBack(idle, parser, reset);
+    } // returnParser(XMLParser)
+
+    /**
+     * Sets the schema from which the validators of this pool are
+     * created. Idle validators for the previous schema are discarded.
+     *
+     * @param schema The schema.
+     */
+    public synchronized void setSchema(Schema schema) {
+        if (schema != fSchema) {
+            fSchema = schema;
+            fEvictionCount += fValidators.clear();
+        }
+    } // setSchema(Schema)
+
+    /** Returns the schema from which validators are created. */
+    public synchronized Schema getSchema() {
+        return fSchema;
+    } // getSchema():Schema
+
+    /**
+     * Borrows a validator for the schema of this pool, creating one if
+     * no idle validator is available.
+     *
+     * @throws IllegalStateException If no schema has been set.
+     */
+    public Validator borrowValidator() {
+        final Schema schema;
+        synchronized (this) {
+            schema = fSchema;
+            if (schema == null) {
+                throw new IllegalStateException("No schema has been set on this pool.");
+            }
+        }
+        PooledValidator validator = (PooledValidator) borrow(fValidators);
+        if (validator == null) {
+            validator = new PooledValidator(this, schema);
+        }
+        return validator;
+    } // borrowValidator():Validator
+
+    /**
+     * Returns a validator borrowed from this pool. The validator is
+     * reset and kept for reuse unless the pool already holds the
+     * maximum number of idle validators, or the schema of the pool has
+     * changed since the validator was borrowed.
+     *
+     * @param validator A validator obtained from <code>borrowValidator()</code>
+     *                  on this pool.
+     *
+     * @throws IllegalArgumentException If the validator was not borrowed
+     *                                  from this pool.
+     */
+    public void returnValidator(Validator validator) {
+        if (!(validator instanceof PooledValidator) || ((PooledValidator) validator).fPool != this) {
+            throw new IllegalArgumentException("The validator was not borrowed from this pool.");
+        }
+        boolean reset;
+        try {
+            validator.reset();
+            reset = ((PooledValidator) validator).fSchema == getSchema();
+        }
+        catch (RuntimeException e) {
+            reset = false;
+        }
+        giveBack(fValidators, validator, reset);
+    } // returnValidator(Validator)
+
+    /**
+     * Evicts the instances which have been idle for longer than the
+     * maximum idle time. Eviction also happens as a side effect of
+     * borrowing and returning instances; this method only needs to be
+     * called to release memory held by a pool which isn't used.
+     */
+    public synchronized void evictIdle() {
+        if (fMaxIdleTime > 0) {
+            final long oldest = System.currentTimeMillis() - fMaxIdleTime;
+            fEvictionCount += fSAXParsers.evict(oldest);
+            fEvictionCount += fDOMParsers.evict(oldest);
+            fEvictionCount += fValidators.evict(oldest);
+        }
+    } // evictIdle()
+
+    /** Discards all idle instances. */
+    public synchronized void clear() {
+        fEvictionCount += fSAXParsers.clear();
+        fEvictionCount += fDOMParsers.clear();
+        fEvictionCount += fValidators.clear();
+    } // clear()
+
+    // statistics
+
+    /** Returns the number of borrowed instances which were reused. */
+    public synchronized long getHitCount() {
+        return fHitCount;
+    } // getHitCount():long
+
+    /** Returns the number of borrowed instances which had to be created. */
+    public synchronized long getMissCount() {
+        return fMissCount;
+    } // getMissCount():long
+
+    /** Returns the number of instances returned to the pool. */
+    public synchronized long getReturnCount() {
+        return fReturnCount;
+    } // getReturnCount():long
+
+    /**
+     * Returns the number of returned instances which were discarded,
+     * because the pool was full or because they couldn't be reset.
+     */
+    public synchronized long getDiscardCount() {
+        return fDiscardCount;
+    } // getDiscardCount():long
+
+    /** Returns the number of idle instances evicted or cleared. */
+    public synchronized long getEvictionCount() {
+        return fEvictionCount;
+    } // getEvictionCount():long
+
+    /** Returns the number of instances reset on return. */
+    public synchronized long getResetCount() {
+        return fResetCount;
+    } // getResetCount():long
+
+    /** Returns the number of idle instances currently held by the pool. */
+    public synchronized int getIdleCount() {
+        return fSAXParsers.size() + fDOMParsers.size() + fValidators.size();
+    } // getIdleCount():int
+
+    //
+    // Private methods
+    //
+
+    /** Returns the symbol table for a new parser. */
+    private SymbolTable getParserSymbolTable() {
+        return fShadowSymbolTable
+             ? new ShadowedSymbolTable(fSynchronizedSymbolTable)
+             : fSynchronizedSymbolTable;
+    } // getParserSymbolTable():SymbolTable
+
+    /** Returns the grammar pool for a new parser. */
+    private XMLGrammarPool getParserGrammarPool() {
+        return fShadowGrammarPool
+             ? new ShadowedGrammarPool(fSynchronizedGrammarPool)
+             : fSynchronizedGrammarPool;
+    } // getParserGrammarPool():XMLGrammarPool
+
+    /** Takes the most recently returned instance from the list, if any. */
+    private synchronized Object borrow(IdleList idle) {
+        if (fMaxIdleTime > 0) {
+            fEvictionCount += idle.evict(System.currentTimeMillis() - fMaxIdleTime);
+        }
+        Object instance = idle.pop();
+        if (instance != null) {
+            ++fHitCount;
+        }
+        else {
+            ++fMissCount;
+        }
+        return instance;
+    } // borrow(IdleList):Object
+
+    /** Puts a returned instance back into the list and updates the statistics. */
+    private synchronized void giveBack(IdleList idle, Object instance, boolean reset) {
+        ++fReturnCount;
+        ++fResetCount;
+        final long now = System.currentTimeMillis();
+        if (fMaxIdleTime > 0) {
+            fEvictionCount += idle.evict(now - fMaxIdleTime);
+        }
+        if (!reset || !idle.push(instance, now)) {
+            ++fDiscardCount;
+        }
+    } // giveBack(IdleList,Object,boolean)
+
+    //
+    // Classes
+    //
+
+    /**
+     * A bounded stack of idle instances. The most recently returned
+     * instance is borrowed first, since it is the most likely to still
+     * be in the processor caches; the least recently returned instances
+     * are at the bottom of the stack and are evicted first. Instances of
+     * this class are guarded by the lock of the parser pool.
+     */
+    private static final class IdleList {
+
+        private final Object[] fInstances;
+        private final long[] fReturnTimes;
+        private int fSize;
+
+        IdleList(int capacity) {
+            fInstances = new Object[capacity > 0 ? capacity : 0];
+            fReturnTimes = new long[fInstances.length];
+        }
+
+        int size() {
+            return fSize;
+        }
+
+        Object pop() {
+            if (fSize == 0) {
+                return null;
+            }
+            Object instance = fInstances[--fSize];
+            fInstances[fSize] = null;
+            return instance;
+        }
+
+        boolean push(Object instance, long time) {
+            if (fSize == fInstances.length) {
+                return false;
+            }
+            fInstances[fSize] = instance;
+            fReturnTimes[fSize++] = time;
+            return true;
+        }
+
+        /** Removes the instances returned before the given time. */
+        int evict(long oldest) {
+            int count = 0;
+            while (count < fSize && fReturnTimes[count] < oldest) {
+                ++count;
+            }
+            if (count > 0) {
+                System.arraycopy(fInstances, count, fInstances, 0, fSize - count);
+                System.arraycopy(fReturnTimes, count, fReturnTimes, 0, fSize - count);
+                for (int i = fSize - count; i < fSize; ++i) {
+                    fInstances[i] = null;
+                }
+                fSize -= count;
+            }
+            return count;
+        }
+
+        int clear() {
+            int count = fSize;
+            for (int i = 0; i < fSize; ++i) {
+                fInstances[i] = null;
+            }
+            fSize = 0;
+            return count;
+        }
+
+    } // class IdleList
+
+    /**
+     * The initial values of the features and properties changed on
+     * a pooled parser, recorded when they are first changed.
+     */
+    private static final class InitialState {
+
+        final Hashtable fFeatures = new Hashtable();
+        final Hashtable fProperties = new Hashtable();
+
+        void recordFeature(String featureId, boolean current) {
+            if (!fFeatures.containsKey(featureId)) {
+                fFeatures.put(featureId, current ? Boolean.TRUE : Boolean.FALSE);
+            }
+        }
+
+        void recordProperty(String propertyId, Object current) {
+            // Hashtable doesn't accept null values
+            if (!fProperties.containsKey(propertyId)) {
+                fProperties.put(propertyId, current != null ? current : NULL_VALUE);
+            }
+        }
+
+        static final Object NULL_VALUE = new Object();
+
+    } // class InitialState
+
+    /**
+     * A SAX parser which belongs to a parser pool. It records the
+     * initial values of the features and properties changed by its
+     * borrower so that they can be restored when it is returned.
+     */
+    static final class PooledSAXParser extends SAXParser {
+
+        final ParserPool fPool;
+        private final InitialState fInitState = new InitialState();
+        private final Locale fInitLocale;
+
+        PooledSAXParser(ParserPool pool, SymbolTable symbolTable, XMLGrammarPool grammarPool) {
+            super(symbolTable, grammarPool);
+            fPool = pool;
+            fInitLocale = fConfiguration.getLocale();
+        }
+
+        public void setFeature(String featureId, boolean state)
+            throws SAXNotRecognizedException, SAXNotSupportedException {
+            fInitState.recordFeature(featureId, getFeature(featureId));
+            super.setFeature(featureId, state);
+        }
+
+        public void setProperty(String propertyId, Object value)
+            throws SAXNotRecognizedException, SAXNotSupportedException {
+            fInitState.recordProperty(propertyId, getProperty(propertyId));
+            super.setProperty(propertyId, value);
+        }
+
+        /** Restores the handlers, features and properties of the parser. */
+        void restoreInitState() throws SAXException {
+            Iterator entries = fInitState.fFeatures.entrySet().iterator();
+            while (entries.hasNext()) {
+                Map.Entry entry = (Map.Entry) entries.next();
+                super.setFeature((String) entry.getKey(), ((Boolean) entry.getValue()).booleanValue());
+            }
+            fInitState.fFeatures.clear();
+            entries = fInitState.fProperties.entrySet().iterator();
+            while (entries.hasNext()) {
+                Map.Entry entry = (Map.Entry) entries.next();
+                Object value = entry.getValue();
+                super.setProperty((String) entry.getKey(), value != InitialState.NULL_VALUE ? value : null);
+            }
+            fInitState.fProperties.clear();
+            if (fContentHandler != null) {
+                setContentHandler(null);
+            }
+            if (fDTDHandler != null) {
+                setDTDHandler(null);
+            }
+            if (fDocumentHandler != null) {
+                setDocumentHandler(null);
+            }
+            if (getErrorHandler() != null) {
+                setErrorHandler(null);
+            }
+            if (getEntityResolver() != null) {
+                setEntityResolver(null);
+            }
+            setLocale(fInitLocale);
+        }
+
+    } // class PooledSAXParser
+
+    /**
+     * A DOM parser which belongs to a parser pool. It records the
+     * initial values of the features and properties changed by its
+     * borrower so that they can be restored when it is returned.
+     */
+    static final class PooledDOMParser extends DOMParser {
+
+        final ParserPool fPool;
+        private final InitialState fInitState = new InitialState();
+        private final Locale fInitLocale;
+
+        PooledDOMParser(ParserPool pool, SymbolTable symbolTable, XMLGrammarPool grammarPool) {
+            super(symbolTable, grammarPool);
+            fPool = pool;
+            fInitLocale = fConfiguration.getLocale();
+        }
+
+        public void setFeature(String featureId, boolean state)
+            throws SAXNotRecognizedException, SAXNotSupportedException {
+            fInitState.recordFeature(featureId, getFeature(featureId));
+            super.setFeature(featureId, state);
+        }
+
+        public void setProperty(String propertyId, Object value)
+            throws SAXNotRecognizedException, SAXNotSupportedException {
+            fInitState.recordProperty(propertyId, getProperty(propertyId));
+            super.setProperty(propertyId, value);
+        }
+
+        /** Restores the handlers, features and properties of the parser. */
+        void restoreInitState() throws SAXException {
+            Iterator entries = fInitState.fFeatures.entrySet().iterator();
+            while (entries.hasNext()) {
+                Map.Entry entry = (Map.Entry) entries.next();
+                super.setFeature((String) entry.getKey(), ((Boolean) entry.getValue()).booleanValue());
+            }
+            fInitState.fFeatures.clear();
+            entries = fInitState.fProperties.entrySet().iterator();
+            while (entries.hasNext()) {
+                Map.Entry entry = (Map.Entry) entries.next();
+                Object value = entry.getValue();
+                super.setProperty((String) entry.getKey(), value != InitialState.NULL_VALUE ? value : null);
+            }
+            fInitState.fProperties.clear();
+            if (getErrorHandler() != null) {
+                setErrorHandler(null);
+            }
+            if (getEntityResolver() != null) {
+                setEntityResolver(null);
+            }
+            setLocale(fInitLocale);
+            dropDocumentReferences();
+        }
+
+    } // class PooledDOMParser
+
+    /**
+     * A validator which belongs to a parser pool. It delegates to a
+     * validator created from the schema of the pool at the time it
+     * was borrowed.
+     */
+    static final class PooledValidator extends Validator implements PSVIProvider {
+
+        final ParserPool fPool;
+        final Schema fSchema;
+        private final Validator fValidator;
+
+        PooledValidator(ParserPool pool, Schema schema) {
+            fPool = pool;
+            fSchema = schema;
+            fValidator = schema.newValidator();
+        }
+
+        public void reset() {
+            fValidator.reset();
+        }
+
+        public void validate(Source source, Result result) throws SAXException, IOException {
+            fValidator.validate(source, result);
+        }
+
+        public void setErrorHandler(ErrorHandler errorHandler) {
+            fValidator.setErrorHandler(errorHandler);
+        }
+
+        public ErrorHandler getErrorHandler() {
+            return fValidator.getErrorHandler();
+        }
+
+        public void setResourceResolver(LSResourceResolver resourceResolver) {
+            fValidator.setResourceResolver(resourceResolver);
+        }
+
+        public LSResourceResolver getResourceResolver() {
+            return fValidator.getResourceResolver();
+        }
+
+        public boolean getFeature(String name)
+            throws SAXNotRecognizedException, SAXNotSupportedException {
+            return fValidator.getFeature(name);
+        }
+
+        public void setFeature(String name, boolean value)
+            throws SAXNotRecognizedException, SAXNotSupportedException {
+            fValidator.setFeature(name, value);
+        }
+
+        public Object getProperty(String name)
+            throws SAXNotRecognizedException, SAXNotSupportedException {
+            return fValidator.getProperty(name);
+        }
+
+        public void setProperty(String name, Object object)
+            throws SAXNotRecognizedException, SAXNotSupportedException {
+            fValidator.setProperty(name, object);
+        }
+
+        public ElementPSVI getElementPSVI() {
+            return (fValidator instanceof PSVIProvider)
+                ? ((PSVIProvider) fValidator).getElementPSVI() : null;
+        }
+
+        public AttributePSVI getAttributePSVI(int index) {
+            return (fValidator instanceof PSVIProvider)
+                ? ((PSVIProvider) fValidator).getAttributePSVI(index) : null;
+        }
+
+        public AttributePSVI getAttributePSVIByName(String uri, String localname) {
+            return (fValidator instanceof PSVIProvider)
+                ? ((PSVIProvider) fValidator).getAttributePSVIByName(uri, localname) : null;
+        }
+
+    } // class PooledValidator
+
+} // class ParserPool
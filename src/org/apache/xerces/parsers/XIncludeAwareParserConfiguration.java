@@ -17,6 +17,8 @@
 
 package org.apache.xerces.parsers;
 
+import java.io.IOException;
+
 import org.apache.xerces.impl.Constants;
 import org.apache.xerces.util.NamespaceSupport;
 import org.apache.xerces.util.SymbolTable;
@@ -24,10 +26,12 @@ import org.apache.xerces.xinclude.XIncludeHandler;
 import org.apache.xerces.xinclude.XIncludeNamespaceSupport;
 import org.apache.xerces.xni.NamespaceContext;
 import org.apache.xerces.xni.XMLDocumentHandler;
+import org.apache.xerces.xni.XNIException;
 import org.apache.xerces.xni.grammars.XMLGrammarPool;
 import org.apache.xerces.xni.parser.XMLComponentManager;
 import org.apache.xerces.xni.parser.XMLConfigurationException;
 import org.apache.xerces.xni.parser.XMLDocumentSource;
+import org.apache.xerces.xni.parser.XMLInputSource;
 
 /**
  * This class is the configuration used to parse XML 1.0 and XML 1.1 documents
@@ -51,6 +55,10 @@ public class XIncludeAwareParserConfiguration extends XML11Configuration {
     protected static final String XINCLUDE_FIXUP_LANGUAGE =
         Constants.XERCES_FEATURE_PREFIX + Constants.XINCLUDE_FIXUP_LANGUAGE_FEATURE;
     
+    /** Feature identifier: check the timestamps of cached includes. */
+    protected static final String XINCLUDE_CACHE_CHECK_TIMESTAMPS =
+        Constants.XERCES_FEATURE_PREFIX + Constants.XINCLUDE_CACHE_CHECK_TIMESTAMPS_FEATURE;
+    
     /** Feature identifier: XInclude processing */
     protected static final String XINCLUDE_FEATURE = 
         Constants.XERCES_FEATURE_PREFIX + Constants.XINCLUDE_FEATURE;
@@ -59,6 +67,14 @@ public class XIncludeAwareParserConfiguration extends XML11Configuration {
     protected static final String XINCLUDE_HANDLER =
         Constants.XERCES_PROPERTY_PREFIX + Constants.XINCLUDE_HANDLER_PROPERTY;
     
+    /** Property identifier: XInclude prefetch threads. */
+    protected static final String XINCLUDE_PREFETCH_THREADS =
+        Constants.XERCES_PROPERTY_PREFIX + Constants.XINCLUDE_PREFETCH_THREADS_PROPERTY;
+    
+    /** Property identifier: XInclude cache size. */
+    protected static final String XINCLUDE_CACHE_SIZE =
+        Constants.XERCES_PROPERTY_PREFIX + Constants.XINCLUDE_CACHE_SIZE_PROPERTY;
+    
     /** Property identifier: error reporter. */
     protected static final String NAMESPACE_CONTEXT =
         Constants.XERCES_PROPERTY_PREFIX + Constants.NAMESPACE_CONTEXT_PROPERTY;
@@ -128,18 +144,20 @@ public class XIncludeAwareParserConfiguration extends XML11Configuration {
         final String[] recognizedFeatures = {
                 ALLOW_UE_AND_NOTATION_EVENTS,
                 XINCLUDE_FIXUP_BASE_URIS,
-                XINCLUDE_FIXUP_LANGUAGE
+                XINCLUDE_FIXUP_LANGUAGE,
+                XINCLUDE_CACHE_CHECK_TIMESTAMPS
         };
         addRecognizedFeatures(recognizedFeatures);
         
         // add default recognized properties
         final String[] recognizedProperties =
-        { XINCLUDE_HANDLER, NAMESPACE_CONTEXT };
+        { XINCLUDE_HANDLER, XINCLUDE_PREFETCH_THREADS, XINCLUDE_CACHE_SIZE, NAMESPACE_CONTEXT };
         addRecognizedProperties(recognizedProperties);
         
         setFeature(ALLOW_UE_AND_NOTATION_EVENTS, true);
         setFeature(XINCLUDE_FIXUP_BASE_URIS, true);
         setFeature(XINCLUDE_FIXUP_LANGUAGE, true);
+        setFeature(XINCLUDE_CACHE_CHECK_TIMESTAMPS, false);
         
         fNonXIncludeNSContext = new NamespaceSupport();
         fCurrentNSContext = fNonXIncludeNSContext;
@@ -147,6 +165,27 @@ public class XIncludeAwareParserConfiguration extends XML11Configuration {
     }
     
     
+    /**
+     * Parses the specified input source. The resources included by the
+     * document are no longer read ahead once the parse is over, even if
+     * it failed before the end of the document.
+     *
+     * @param source The input source.
+     *
+     * @exception XNIException Throws exception on XNI error.
+     * @exception java.io.IOException Throws exception on i/o error.
+     */
+    public void parse(XMLInputSource source) throws XNIException, IOException {
+        try {
+            super.parse(source);
+        }
+        finally {
+            if (fXIncludeHandler != null) {
+                fXIncludeHandler.shutdownPrefetcher();
+            }
+        }
+    } // parse(XMLInputSource)
+    
     /** Configures the pipeline. */
     protected void configurePipeline() {
         super.configurePipeline();
@@ -159,6 +198,7 @@ public class XIncludeAwareParserConfiguration extends XML11Configuration {
                 addCommonComponent(fXIncludeHandler);
                 fXIncludeHandler.reset(this);
             }
+            fXIncludeHandler.setRootInputSource(fInputSource);
             // Setup NamespaceContext
             if (fCurrentNSContext != fXIncludeNSContext) {
                 if (fXIncludeNSContext == null) {
@@ -219,6 +259,7 @@ public class XIncludeAwareParserConfiguration extends XML11Configuration {
                 addCommonComponent(fXIncludeHandler);
                 fXIncludeHandler.reset(this);
             }
+            fXIncludeHandler.setRootInputSource(fInputSource);
             // Setup NamespaceContext
             if (fCurrentNSContext != fXIncludeNSContext) {
                 if (fXIncludeNSContext == null) {
@@ -16,15 +16,19 @@
  */
 package org.apache.xerces.parsers;
 
+import java.io.IOException;
+
 import org.apache.xerces.impl.Constants;
 import org.apache.xerces.util.SymbolTable;
 import org.apache.xerces.xinclude.XIncludeHandler;
 import org.apache.xerces.xinclude.XIncludeNamespaceSupport;
 import org.apache.xerces.xni.XMLDocumentHandler;
+import org.apache.xerces.xni.XNIException;
 import org.apache.xerces.xni.grammars.XMLGrammarPool;
 import org.apache.xerces.xni.parser.XMLComponentManager;
 import org.apache.xerces.xni.parser.XMLConfigurationException;
 import org.apache.xerces.xni.parser.XMLDocumentSource;
+import org.apache.xerces.xni.parser.XMLInputSource;
 
 /**
  * This parser configuration includes an <code>XIncludeHandler</code> in the pipeline
@@ -127,9 +131,29 @@ public class XIncludeParserConfiguration extends XML11Configuration {
     } // <init>(SymbolTable,XMLGrammarPool)}
     
     
+    /**
+     * Parses the specified input source. The resources included by the
+     * document are no longer read ahead once the parse is over, even if
+     * it failed before the end of the document.
+     *
+     * @param source The input source.
+     *
+     * @exception XNIException Throws exception on XNI error.
+     * @exception java.io.IOException Throws exception on i/o error.
+     */
+    public void parse(XMLInputSource source) throws XNIException, IOException {
+        try {
+            super.parse(source);
+        }
+        finally {
+            fXIncludeHandler.shutdownPrefetcher();
+        }
+    } // parse(XMLInputSource)
+    
 	/** Configures the pipeline. */
     protected void configurePipeline() {
         super.configurePipeline();
+        fXIncludeHandler.setRootInputSource(fInputSource);
 
         //configure DTD pipeline
         fDTDScanner.setDTDHandler(fDTDProcessor);
@@ -167,6 +191,7 @@ public class XIncludeParserConfiguration extends XML11Configuration {
 
 	protected void configureXML11Pipeline() {
 		super.configureXML11Pipeline();
+		fXIncludeHandler.setRootInputSource(fInputSource);
 		
         // configure XML 1.1. DTD pipeline
 		fXML11DTDScanner.setDTDHandler(fXML11DTDProcessor);
@@ -792,6 +792,21 @@ public class XML11Configuration extends ParserConfigurationSettings
         fEntityManager.closeReaders();
     }
 
+    /**
+     * Closes the streams of the last parse and resets every component,
+     * as is done at the start of a parse, so that the configuration
+     * keeps no state of the last document while it is idle. This is
+     * used by the parser pool when a parser is returned to it.
+     */
+    void resetComponents() throws XNIException {
+        cleanup();
+        fInputSource = null;
+        fValidationManager.reset();
+        resetCommon();
+        reset();
+        resetXML11();
+    } // resetComponents()
+
     /**
      * Parses the specified input source.
      *
@@ -25,6 +25,8 @@ import org.apache.xerces.impl.dtd.XMLDTDLoader;
 import org.apache.xerces.impl.xs.SchemaGrammar;
 import org.apache.xerces.impl.xs.XMLSchemaLoader;
 import org.apache.xerces.impl.xs.XSMessageFormatter;
+import org.apache.xerces.util.ConcurrentSymbolTable;
+import org.apache.xerces.util.ConcurrentXMLGrammarPool;
 import org.apache.xerces.util.SymbolTable;
 import org.apache.xerces.util.SynchronizedSymbolTable;
 import org.apache.xerces.util.XMLGrammarPoolImpl;
@@ -51,6 +53,13 @@ import org.apache.xerces.xni.parser.XMLInputSource;
  * specific facilities, the user will need to reference it
  * directly.</p>
  * <p>
+ * <p> The symbol table shared by default constructed instances is
+ * synchronized. Setting the system property
+ * <code>org.apache.xerces.parsers.XMLGrammarCachingConfiguration.concurrentSymbolTable</code>
+ * to <code>true</code> selects a lock-free concurrent symbol table
+ * instead, which scales better when many threads parse at the same
+ * time.</p>
+ * <p>
  * In addition to the features and properties recognized by the base
  * parser configuration, this class recognizes these additional 
  * features and properties:
@@ -78,9 +87,20 @@ public class XMLGrammarCachingConfiguration
     protected static final SynchronizedSymbolTable fStaticSymbolTable = 
             new SynchronizedSymbolTable(BIG_PRIME);
 
-    // the Grammar Pool to be shared similarly
+    // system property selecting the concurrent symbol table for
+    // default constructed configurations
+    protected static final String CONCURRENT_SYMBOL_TABLE_PROPERTY =
+            "org.apache.xerces.parsers.XMLGrammarCachingConfiguration.concurrentSymbolTable";
+
+    // the lock-free symbol table to be shared amongst parsers, if
+    // selected through CONCURRENT_SYMBOL_TABLE_PROPERTY
+    protected static final ConcurrentSymbolTable fStaticConcurrentSymbolTable =
+            useConcurrentSymbolTable() ? new ConcurrentSymbolTable(BIG_PRIME) : null;
+
+    // the Grammar Pool to be shared similarly; lookups in it
+    // don't lock so that parsers sharing it don't contend
     protected static final XMLGrammarPoolImpl fStaticGrammarPool =
-            new XMLGrammarPoolImpl();
+            new ConcurrentXMLGrammarPool();
 
     // schema full checking constant
     protected static final String SCHEMA_FULL_CHECKING =
@@ -100,7 +120,8 @@ public class XMLGrammarCachingConfiguration
 
     /** Default constructor. */
     public XMLGrammarCachingConfiguration() {
-        this(fStaticSymbolTable, fStaticGrammarPool, null);
+        this(fStaticConcurrentSymbolTable != null ? (SymbolTable) fStaticConcurrentSymbolTable 
+                : fStaticSymbolTable, fStaticGrammarPool, null);
     } // <init>()
 
     /** 
@@ -345,5 +366,19 @@ public class XMLGrammarCachingConfiguration
 
     } // parseXMLDTD(XMLInputSource) :  DTDGrammar
 
+    //
+    // Private static methods
+    //
+
+    /** Returns true if the concurrent symbol table has been selected. */
+    private static boolean useConcurrentSymbolTable() {
+        try {
+            String value = SecuritySupport.getSystemProperty(CONCURRENT_SYMBOL_TABLE_PROPERTY);
+            return value != null && value.equalsIgnoreCase("true");
+        }
+        catch (SecurityException se) {
+            return false;
+        }
+    } // useConcurrentSymbolTable():boolean
 
 } // class XMLGrammarCachingConfiguration
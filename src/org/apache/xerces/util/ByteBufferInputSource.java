@@ -0,0 +1,123 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.xerces.util;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+import org.apache.xerces.xni.parser.XMLInputSource;
+
+/**
+ * This class represents an input source for an XML resource whose
+ * bytes are held in a <code>java.nio.ByteBuffer</code>, typically a
+ * <code>MappedByteBuffer</code> obtained by mapping a file into memory.
+ * <p>
+ * When the entity manager reads from a byte buffer input source it
+ * decodes the bytes directly from the buffer into the scanner's
+ * character buffer for the common encodings, without the intermediate
+ * byte array and read system calls used for an <code>InputStream</code>.
+ * This is most useful for large documents on local disk.
+ * <p>
+ * The bytes between the buffer's position and its limit are parsed.
+ * The buffer itself is never modified; each parse reads through its
+ * own view of the buffer, so a byte buffer input source may be parsed
+ * more than once. If a byte stream or character stream is also set on
+ * this input source it takes precedence over the byte buffer.
+ *
+ * @version $Id$
+ */
+public final class ByteBufferInputSource extends XMLInputSource {
+
+    //
+    // Data
+    //
+
+    /** The bytes of the resource. **/
+    protected ByteBuffer fByteBuffer;
+
+    //
+    // Constructors
+    //
+
+    /**
+     * Constructs an input source from a byte buffer.
+     *
+     * @param publicId     The public identifier, if known.
+     * @param systemId     The system identifier. This value should
+     *                     always be set, if possible, and can be
+     *                     relative or absolute. If the system identifier
+     *                     is relative, then the base system identifier
+     *                     should be set.
+     * @param baseSystemId The base system identifier. This value should
+     *                     always be set to the fully expanded URI of the
+     *                     base system identifier, if possible.
+     * @param byteBuffer   The byte buffer.
+     * @param encoding     The encoding of the bytes, if known.
+     */
+    public ByteBufferInputSource(String publicId, String systemId,
+            String baseSystemId, ByteBuffer byteBuffer, String encoding) {
+        super(publicId, systemId, baseSystemId);
+        fByteBuffer = byteBuffer;
+        setEncoding(encoding);
+    } // <init>(String,String,String,ByteBuffer,String)
+
+    /**
+     * Constructs an input source from the contents of a file channel.
+     * The whole file is mapped read-only into memory; the mapping stays
+     * valid after the channel has been closed.
+     *
+     * @param publicId     The public identifier, if known.
+     * @param systemId     The system identifier. This value should
+     *                     always be set, if possible, and can be
+     *                     relative or absolute. If the system identifier
+     *                     is relative, then the base system identifier
+     *                     should be set.
+     * @param baseSystemId The base system identifier. This value should
+     *                     always be set to the fully expanded URI of the
+     *                     base system identifier, if possible.
+     * @param channel      The file channel to map.
+     * @param encoding     The encoding of the file, if known.
+     *
+     * @throws IOException Thrown if the file could not be mapped.
+     */
+    public ByteBufferInputSource(String publicId, String systemId,
+            String baseSystemId, FileChannel channel, String encoding) throws IOException {
+        this(publicId, systemId, baseSystemId,
+                channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()), encoding);
+    } // <init>(String,String,String,FileChannel,String)
+
+    //
+    // Public methods
+    //
+
+    /**
+     * Sets the byte buffer holding the resource.
+     *
+     * @param byteBuffer The byte buffer.
+     */
+    public void setByteBuffer(ByteBuffer byteBuffer) {
+        fByteBuffer = byteBuffer;
+    } // setByteBuffer(ByteBuffer)
+
+    /** Returns the byte buffer holding the resource. */
+    public ByteBuffer getByteBuffer() {
+        return fByteBuffer;
+    } // getByteBuffer():ByteBuffer
+
+} // class ByteBufferInputSource
@@ -0,0 +1,496 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.xerces.util;
+
+/**
+ * A thread-safe symbol table which can be shared by many parsers
+ * running concurrently without serializing them on a single monitor.
+ * <p>
+ * The table is split into a fixed number of segments, each of which
+ * is an independent hash table guarded by its own lock. Lookups of
+ * symbols which are already in the table never acquire a lock: entries
+ * are immutable once they have been linked into a bucket and the bucket
+ * array of each segment is published through a volatile field. Only a
+ * lookup which misses takes the segment lock, checks again and then
+ * adds the new symbol. Since most symbols in a document (element and
+ * attribute names, namespace URIs and prefixes) are seen many times,
+ * almost all calls to <code>addSymbol</code> complete without locking.
+ * <p>
+ * Like <code>SymbolTable</code>, every symbol returned by this table is
+ * the result of <code>String.intern()</code>, so symbols may be compared
+ * by reference regardless of which thread added them.
+ * <p>
+ * The value returned by <code>hash</code> is stable for the lifetime of
+ * the table so that a <code>ShadowedSymbolTable</code> can be layered on
+ * top of it. Protection against hash collision attacks is provided per
+ * segment: when the number of entries in one bucket exceeds the collision
+ * threshold that segment selects a new randomized hash function for its
+ * own buckets.
+ *
+ * @see SymbolTable
+ * @see SynchronizedSymbolTable
+ *
+ * @version $Id$
+ */
+public class ConcurrentSymbolTable extends SymbolTable {
+
+    //
+    // Constants
+    //
+
+    /** Default number of segments. */
+    protected static final int DEFAULT_CONCURRENCY_LEVEL = 16;
+
+    /** Maximum number of segments. */
+    protected static final int MAX_SEGMENTS = 1 << 16;
+
+    //
+    // Data
+    //
+
+    /** The segments, each of which is a hash table on its own. */
+    private final Segment[] fSegments;
+
+    /** Mask applied to the spread hash code to select a segment. */
+    private final int fSegmentMask;
+
+    //
+    // Constructors
+    //
+
+    /**
+     * Constructs a new, empty ConcurrentSymbolTable with the specified
+     * initial capacity, load factor and number of segments.
+     *
+     * @param initialCapacity  the initial capacity of the table.
+     * @param loadFactor       the load factor of the table.
+     * @param concurrencyLevel the estimated number of threads adding
+     *                         new symbols concurrently.
+     * @throws IllegalArgumentException if the initial capacity is less
+     *         than zero, or if the load factor or concurrency level is
+     *         nonpositive.
+     */
+    public ConcurrentSymbolTable(int initialCapacity, float loadFactor, int concurrencyLevel) {
+        /*
+         * The Entry buckets in the base class are not used by this class.
+         * We call super() with 1 as the initial capacity to minimize the
+         * memory used by the field in the base class.
+         */
+        super(1, loadFactor);
+
+        if (initialCapacity < 0) {
+            throw new IllegalArgumentException("Illegal Capacity: " + initialCapacity);
+        }
+        if (concurrencyLevel <= 0) {
+            throw new IllegalArgumentException("Illegal Concurrency Level: " + concurrencyLevel);
+        }
+        if (concurrencyLevel > MAX_SEGMENTS) {
+            concurrencyLevel = MAX_SEGMENTS;
+        }
+
+        // round the number of segments up to a power of two
+        int segmentCount = 1;
+        while (segmentCount < concurrencyLevel) {
+            segmentCount <<= 1;
+        }
+        fSegmentMask = segmentCount - 1;
+
+        int segmentCapacity = initialCapacity / segmentCount;
+        if (segmentCapacity * segmentCount < initialCapacity) {
+            ++segmentCapacity;
+        }
+        // keep bucket counts odd as the base class does
+        segmentCapacity |= 1;
+
+        fSegments = new Segment[segmentCount];
+        for (int i = 0; i < segmentCount; ++i) {
+            fSegments[i] = new Segment(segmentCapacity, loadFactor, fCollisionThreshold);
+        }
+    }
+
+    /**
+     * Constructs a new, empty ConcurrentSymbolTable with the specified
+     * initial capacity and load factor.
+     *
+     * @param initialCapacity the initial capacity of the table.
+     * @param loadFactor      the load factor of the table.
+     * @throws IllegalArgumentException if the initial capacity is less
+     *         than zero, or if the load factor is nonpositive.
+     */
+    public ConcurrentSymbolTable(int initialCapacity, float loadFactor) {
+        this(initialCapacity, loadFactor, DEFAULT_CONCURRENCY_LEVEL);
+    }
+
+    /**
+     * Constructs a new, empty ConcurrentSymbolTable with the specified
+     * initial capacity and default load factor, which is <tt>0.75</tt>.
+     *
+     * @param initialCapacity the initial capacity of the table.
+     * @throws IllegalArgumentException if the initial capacity is less
+     *         than zero.
+     */
+    public ConcurrentSymbolTable(int initialCapacity) {
+        this(initialCapacity, 0.75f, DEFAULT_CONCURRENCY_LEVEL);
+    }
+
+    /**
+     * Constructs a new, empty ConcurrentSymbolTable with a default initial
+     * capacity (101), load factor (<tt>0.75</tt>) and number of segments (16).
+     */
+    public ConcurrentSymbolTable() {
+        this(TABLE_SIZE, 0.75f, DEFAULT_CONCURRENCY_LEVEL);
+    }
+
+    //
+    // SymbolTable methods
+    //
+
+    /**
+     * Adds the specified symbol to the symbol table and returns a
+     * reference to the unique symbol. If the symbol already exists,
+     * the previous symbol reference is returned instead, in order
+     * guarantee that symbol references remain unique.
+     *
+     * @param symbol The new symbol.
+     */
+    public String addSymbol(String symbol) {
+        final int code = hash(symbol);
+        return segmentFor(code).addSymbol(symbol, code);
+    } // addSymbol(String):String
+
+    /**
+     * Adds the specified symbol to the symbol table and returns a
+     * reference to the unique symbol. If the symbol already exists,
+     * the previous symbol reference is returned instead, in order
+     * guarantee that symbol references remain unique.
+     *
+     * @param buffer The buffer containing the new symbol.
+     * @param offset The offset into the buffer of the new symbol.
+     * @param length The length of the new symbol in the buffer.
+     */
+    public String addSymbol(char[] buffer, int offset, int length) {
+        final int code = hash(buffer, offset, length);
+        return segmentFor(code).addSymbol(buffer, offset, length, code);
+    } // addSymbol(char[],int,int):String
+
+    /**
+     * Returns a hashcode value for the specified symbol. The value
+     * returned by this method must be identical to the value returned
+     * by the <code>hash(char[],int,int)</code> method when called
+     * with the character array that comprises the symbol string.
+     * <p>
+     * Unlike <code>SymbolTable</code> the value returned by this
+     * method never changes over the lifetime of the table.
+     *
+     * @param symbol The symbol to hash.
+     */
+    public int hash(String symbol) {
+        return symbol.hashCode() & 0x7FFFFFFF;
+    } // hash(String):int
+
+    /**
+     * Returns a hashcode value for the specified symbol information.
+     * The value returned by this method must be identical to the value
+     * returned by the <code>hash(String)</code> method when called
+     * with the string object created from the symbol information.
+     *
+     * @param buffer The character buffer containing the symbol.
+     * @param offset The offset into the character buffer of the start
+     *               of the symbol.
+     * @param length The length of the symbol.
+     */
+    public int hash(char[] buffer, int offset, int length) {
+        int code = 0;
+        for (int i = 0; i < length; ++i) {
+            code = code * 31 + buffer[offset + i];
+        }
+        return code & 0x7FFFFFFF;
+    } // hash(char[],int,int):int
+
+    /**
+     * Returns true if the symbol table already contains the specified
+     * symbol.
+     *
+     * @param symbol The symbol to look for.
+     */
+    public boolean containsSymbol(String symbol) {
+        final int code = hash(symbol);
+        return segmentFor(code).find(symbol, code) != null;
+    } // containsSymbol(String):boolean
+
+    /**
+     * Returns true if the symbol table already contains the specified
+     * symbol.
+     *
+     * @param buffer The buffer containing the symbol to look for.
+     * @param offset The offset into the buffer.
+     * @param length The length of the symbol in the buffer.
+     */
+    public boolean containsSymbol(char[] buffer, int offset, int length) {
+        final int code = hash(buffer, offset, length);
+        return segmentFor(code).find(buffer, offset, length, code) != null;
+    } // containsSymbol(char[],int,int):boolean
+
+    /**
+     * The segments rehash themselves independently under their
+     * own locks. This method does nothing.
+     */
+    protected void rehash() {}
+
+    /**
+     * The segments rebalance themselves independently under their
+     * own locks. This method does nothing.
+     */
+    protected void rebalance() {}
+
+    //
+    // Private methods
+    //
+
+    /** Returns the segment responsible for the given hash code. */
+    private Segment segmentFor(int code) {
+        // fold the high bits in so that the low bits used for
+        // segment selection depend on the whole hash code
+        return fSegments[(code ^ (code >>> 16)) & fSegmentMask];
+    } // segmentFor(int):Segment
+
+    //
+    // Classes
+    //
+
+    /**
+     * An immutable symbol table entry. Since all of its fields are
+     * final an entry is safely visible to threads which read it
+     * from a bucket without holding the segment lock.
+     */
+    private static final class Entry {
+
+        /** Symbol. */
+        final String symbol;
+
+        /** Symbol characters, duplicated for comparison performance. */
+        final char[] characters;
+
+        /** The next entry. */
+        final Entry next;
+
+        Entry(String symbol, char[] characters, Entry next) {
+            this.symbol = symbol;
+            this.characters = characters;
+            this.next = next;
+        }
+
+    } // class Entry
+
+    /**
+     * The buckets of a segment together with the hash function used
+     * to index them. A new instance is published whenever the segment
+     * is rehashed or rebalanced.
+     */
+    private static final class Table {
+
+        /** Buckets. */
+        final Entry[] buckets;
+
+        /**
+         * Randomly selected hash function multipliers or <code>null</code>
+         * if the default hash code is used to index the buckets.
+         */
+        final int[] multipliers;
+
+        Table(Entry[] buckets, int[] multipliers) {
+            this.buckets = buckets;
+            this.multipliers = multipliers;
+        }
+
+        int index(String symbol, int code) {
+            if (multipliers == null) {
+                return code % buckets.length;
+            }
+            int h = 0;
+            final int length = symbol.length();
+            for (int i = 0; i < length; ++i) {
+                h = h * multipliers[i & MULTIPLIERS_MASK] + symbol.charAt(i);
+            }
+            return (h & 0x7FFFFFFF) % buckets.length;
+        }
+
+        int index(char[] buffer, int offset, int length, int code) {
+            if (multipliers == null) {
+                return code % buckets.length;
+            }
+            int h = 0;
+            for (int i = 0; i < length; ++i) {
+                h = h * multipliers[i & MULTIPLIERS_MASK] + buffer[offset + i];
+            }
+            return (h & 0x7FFFFFFF) % buckets.length;
+        }
+
+    } // class Table
+
+    /**
+     * A segment of the table. Reads go through the volatile
+     * <code>fTable</code> reference without locking; all structural
+     * changes are made while holding the segment's monitor.
+     */
+    private static final class Segment {
+
+        //
+        // Data
+        //
+
+        /** The current table. */
+        private volatile Table fTable;
+
+        /** The number of entries in this segment. Guarded by this. */
+        private int fCount;
+
+        /** The size at which the table is rehashed. Guarded by this. */
+        private int fThreshold;
+
+        /** The load factor for this segment. */
+        private final float fLoadFactor;
+
+        /** Maximum chain length before a new hash function is selected. */
+        private final int fCollisionThreshold;
+
+        //
+        // Constructors
+        //
+
+        Segment(int capacity, float loadFactor, int collisionThreshold) {
+            fLoadFactor = loadFactor;
+            fCollisionThreshold = collisionThreshold;
+            fThreshold = (int) (capacity * loadFactor);
+            fTable = new Table(new Entry[capacity], null);
+        }
+
+        //
+        // Methods
+        //
+
+        Entry find(String symbol, int code) {
+            final Table table = fTable;
+            final int length = symbol.length();
+            OUTER: for (Entry entry = table.buckets[table.index(symbol, code)]; entry != null; entry = entry.next) {
+                if (length == entry.characters.length) {
+                    for (int i = 0; i < length; i++) {
+                        if (symbol.charAt(i) != entry.characters[i]) {
+                            continue OUTER;
+                        }
+                    }
+                    return entry;
+                }
+            }
+            return null;
+        }
+
+        Entry find(char[] buffer, int offset, int length, int code) {
+            final Table table = fTable;
+            OUTER: for (Entry entry = table.buckets[table.index(buffer, offset, length, code)]; entry != null; entry = entry.next) {
+                if (length == entry.characters.length) {
+                    for (int i = 0; i < length; i++) {
+                        if (buffer[offset + i] != entry.characters[i]) {
+                            continue OUTER;
+                        }
+                    }
+                    return entry;
+                }
+            }
+            return null;
+        }
+
+        String addSymbol(String symbol, int code) {
+            Entry entry = find(symbol, code);
+            if (entry != null) {
+                return entry.symbol;
+            }
+            synchronized (this) {
+                // another thread may have added the symbol, or the
+                // unlocked read may have missed a recent update
+                entry = find(symbol, code);
+                if (entry != null) {
+                    return entry.symbol;
+                }
+                char[] characters = new char[symbol.length()];
+                symbol.getChars(0, characters.length, characters, 0);
+                return add(symbol.intern(), characters, code);
+            }
+        }
+
+        String addSymbol(char[] buffer, int offset, int length, int code) {
+            Entry entry = find(buffer, offset, length, code);
+            if (entry != null) {
+                return entry.symbol;
+            }
+            synchronized (this) {
+                entry = find(buffer, offset, length, code);
+                if (entry != null) {
+                    return entry.symbol;
+                }
+                char[] characters = new char[length];
+                System.arraycopy(buffer, offset, characters, 0, length);
+                return add(new String(characters).intern(), characters, code);
+            }
+        }
+
+        /** Adds a new entry. Must be called while holding the lock. */
+        private String add(String symbol, char[] characters, int code) {
+            Table table = fTable;
+            if (fCount >= fThreshold) {
+                table = rehash(table, table.buckets.length * 2 + 1, table.multipliers);
+            }
+            int bucket = table.index(symbol, code);
+            int collisionCount = 0;
+            for (Entry e = table.buckets[bucket]; e != null; e = e.next) {
+                ++collisionCount;
+            }
+            if (collisionCount >= fCollisionThreshold) {
+                int[] multipliers = new int[MULTIPLIERS_SIZE];
+                PrimeNumberSequenceGenerator.generateSequence(multipliers);
+                table = rehash(table, table.buckets.length, multipliers);
+                bucket = table.index(symbol, code);
+            }
+            table.buckets[bucket] = new Entry(symbol, characters, table.buckets[bucket]);
+            ++fCount;
+            return symbol;
+        }
+
+        /**
+         * Builds and publishes a new table. Entries are immutable so the
+         * chains are copied; readers still traversing the old table keep
+         * seeing a consistent (if slightly stale) view.
+         */
+        private Table rehash(Table oldTable, int newCapacity, int[] multipliers) {
+            final Entry[] oldBuckets = oldTable.buckets;
+            final Table newTable = new Table(new Entry[newCapacity], multipliers);
+            final Entry[] newBuckets = newTable.buckets;
+            for (int i = oldBuckets.length; i-- > 0;) {
+                for (Entry e = oldBuckets[i]; e != null; e = e.next) {
+                    int index = newTable.index(e.symbol, e.symbol.hashCode() & 0x7FFFFFFF);
+                    newBuckets[index] = new Entry(e.symbol, e.characters, newBuckets[index]);
+                }
+            }
+            fThreshold = (int) (newCapacity * fLoadFactor);
+            fTable = newTable;
+            return newTable;
+        }
+
+    } // class Segment
+
+} // class ConcurrentSymbolTable
@@ -0,0 +1,334 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.xerces.util;
+
+import org.apache.xerces.xni.grammars.Grammar;
+import org.apache.xerces.xni.grammars.XMLGrammarDescription;
+
+/**
+ * A thread-safe grammar pool optimized for the common case where the
+ * pool is populated once and then read by many validating parsers.
+ * <p>
+ * The contents of the pool are held in an immutable snapshot which is
+ * replaced as a whole (copy-on-write) whenever a grammar is added or
+ * removed. <code>retrieveGrammar</code> and
+ * <code>retrieveInitialGrammarSet</code> only read the current snapshot
+ * through a volatile reference and never take a lock, so concurrent
+ * validations don't contend with each other. Once the pool has been
+ * locked with <code>lockPool()</code> no more snapshots are published
+ * and the pool is effectively immutable.
+ * <p>
+ * Updates are serialized on a private lock and cost time proportional
+ * to the number of grammars in the pool, which is small in practice.
+ * This pool is already thread-safe and so does not need to be wrapped
+ * in a synchronized grammar pool.
+ *
+ * @see XMLGrammarPoolImpl
+ *
+ * @version $Id$
+ */
+public class ConcurrentXMLGrammarPool extends XMLGrammarPoolImpl {
+
+    //
+    // Data
+    //
+
+    /** The current contents of the pool. */
+    private volatile Snapshot fSnapshot;
+
+    /** Whether this pool is locked. */
+    private volatile boolean fLocked;
+
+    /** Lock serializing updates of the pool. */
+    private final Object fUpdateLock = new Object();
+
+    //
+    // Constructors
+    //
+
+    /** Constructs a grammar pool with a default number of buckets. */
+    public ConcurrentXMLGrammarPool() {
+        this(TABLE_SIZE);
+    } // <init>()
+
+    /** Constructs a grammar pool with a specified number of buckets. */
+    public ConcurrentXMLGrammarPool(int initialCapacity) {
+        /*
+         * The Entry buckets in the base class are not used by this class.
+         * We call super() with 1 as the initial capacity to minimize the
+         * memory used by the field in the base class.
+         */
+        super(1);
+        fSnapshot = new Snapshot(new SnapshotEntry[initialCapacity > 0 ? initialCapacity : 1],
+                new SnapshotEntry[0]);
+    } // <init>(int)
+
+    //
+    // XMLGrammarPool methods
+    //
+
+    /* <p> Retrieve the initial known set of grammars. This method is
+     * called by a validator before the validation starts. The application
+     * can provide an initial set of grammars available to the current
+     * validation attempt. </p>
+     *
+     * @param grammarType The type of the grammar, from the
+     *                    <code>org.apache.xerces.xni.grammars.XMLGrammarDescription</code>
+     *                    interface.
+     * @return            The set of grammars the validator may put in its "bucket"
+     */
+    public Grammar [] retrieveInitialGrammarSet (String grammarType) {
+        final SnapshotEntry[] entries = fSnapshot.entries;
+        int count = 0;
+        for (int i = 0; i < entries.length; ++i) {
+            if (entries[i].desc.getGrammarType().equals(grammarType)) {
+                ++count;
+            }
+        }
+        Grammar[] toReturn = new Grammar[count];
+        int pos = 0;
+        for (int i = 0; pos < count; ++i) {
+            if (entries[i].desc.getGrammarType().equals(grammarType)) {
+                toReturn[pos++] = entries[i].grammar;
+            }
+        }
+        return toReturn;
+    } // retrieveInitialGrammarSet (String): Grammar[]
+
+    /* <p> Return the final set of grammars that the validator ended up
+     * with. This method is called after the validation finishes. The
+     * application may then choose to cache some of the returned grammars.</p>
+     * <p>In this implementation, we make our choice based on whether this object
+     * is "locked"--that is, whether the application has instructed
+     * us not to accept any new grammars.</p>
+     *
+     * @param grammarType The type of the grammars being returned;
+     * @param grammars    An array containing the set of grammars being
+     *                    returned; order is not significant.
+     */
+    public void cacheGrammars(String grammarType, Grammar[] grammars) {
+        if (!fLocked) {
+            for (int i = 0; i < grammars.length; i++) {
+                putGrammar(grammars[i]);
+            }
+        }
+    } // cacheGrammars(String, Grammar[]);
+
+    //
+    // Public methods
+    //
+
+    /**
+     * Puts the specified grammar into the grammar pool and associates it to
+     * its root element name or its target namespace.
+     *
+     * @param grammar The Grammar.
+     */
+    public void putGrammar(Grammar grammar) {
+        if (fLocked) {
+            return;
+        }
+        synchronized (fUpdateLock) {
+            if (fLocked) {
+                return;
+            }
+            final XMLGrammarDescription desc = grammar.getGrammarDescription();
+            final int hash = hashCode(desc);
+            final SnapshotEntry[] entries = fSnapshot.entries;
+            SnapshotEntry[] newEntries = null;
+            for (int i = 0; i < entries.length; ++i) {
+                if (entries[i].hash == hash && equals(entries[i].desc, desc)) {
+                    newEntries = new SnapshotEntry[entries.length];
+                    System.arraycopy(entries, 0, newEntries, 0, entries.length);
+                    newEntries[i] = new SnapshotEntry(hash, entries[i].desc, grammar);
+                    break;
+                }
+            }
+            if (newEntries == null) {
+                newEntries = new SnapshotEntry[entries.length + 1];
+                System.arraycopy(entries, 0, newEntries, 0, entries.length);
+                newEntries[entries.length] = new SnapshotEntry(hash, desc, grammar);
+            }
+            publish(newEntries);
+        }
+    } // putGrammar(Grammar)
+
+    /**
+     * Returns the grammar associated to the specified grammar description.
+     * Currently, the root element name is used as the key for DTD grammars
+     * and the target namespace  is used as the key for Schema grammars.
+     *
+     * @param desc The Grammar Description.
+     */
+    public Grammar getGrammar(XMLGrammarDescription desc) {
+        final SnapshotEntry entry = fSnapshot.find(this, desc);
+        return (entry != null) ? entry.grammar : null;
+    } // getGrammar(XMLGrammarDescription):Grammar
+
+    /**
+     * Removes the grammar associated to the specified grammar description from the
+     * grammar pool and returns the removed grammar. Currently, the root element name
+     * is used as the key for DTD grammars and the target namespace  is used
+     * as the key for Schema grammars.
+     *
+     * @param desc The Grammar Description.
+     * @return     The removed grammar.
+     */
+    public Grammar removeGrammar(XMLGrammarDescription desc) {
+        synchronized (fUpdateLock) {
+            final int hash = hashCode(desc);
+            final SnapshotEntry[] entries = fSnapshot.entries;
+            for (int i = 0; i < entries.length; ++i) {
+                if (entries[i].hash == hash && equals(entries[i].desc, desc)) {
+                    SnapshotEntry[] newEntries = new SnapshotEntry[entries.length - 1];
+                    System.arraycopy(entries, 0, newEntries, 0, i);
+                    System.arraycopy(entries, i + 1, newEntries, i, newEntries.length - i);
+                    publish(newEntries);
+                    return entries[i].grammar;
+                }
+            }
+            return null;
+        }
+    } // removeGrammar(XMLGrammarDescription):Grammar
+
+    /**
+     * Returns true if the grammar pool contains a grammar associated
+     * to the specified grammar description. Currently, the root element name
+     * is used as the key for DTD grammars and the target namespace  is used
+     * as the key for Schema grammars.
+     *
+     * @param desc The Grammar Description.
+     */
+    public boolean containsGrammar(XMLGrammarDescription desc) {
+        return fSnapshot.find(this, desc) != null;
+    } // containsGrammar(XMLGrammarDescription):boolean
+
+    /* <p> Sets this grammar pool to a "locked" state--i.e.,
+     * no new grammars will be added until it is "unlocked".
+     */
+    public void lockPool() {
+        synchronized (fUpdateLock) {
+            fLocked = true;
+            fPoolIsLocked = true;
+        }
+    } // lockPool()
+
+    /* <p> Sets this grammar pool to an "unlocked" state--i.e.,
+     * new grammars will be added when putGrammar or cacheGrammars
+     * are called.
+     */
+    public void unlockPool() {
+        synchronized (fUpdateLock) {
+            fLocked = false;
+            fPoolIsLocked = false;
+        }
+    } // unlockPool()
+
+    /*
+     * <p>This method clears the pool-i.e., removes references
+     * to all the grammars in it.</p>
+     */
+    public void clear() {
+        synchronized (fUpdateLock) {
+            fSnapshot = new Snapshot(new SnapshotEntry[fSnapshot.buckets.length], new SnapshotEntry[0]);
+            fGrammarCount = 0;
+        }
+    } // clear()
+
+    //
+    // Private methods
+    //
+
+    /** Builds and publishes a new snapshot. Must hold the update lock. */
+    private void publish(SnapshotEntry[] entries) {
+        int capacity = fSnapshot.buckets.length;
+        // keep the load factor of the snapshot at or below 0.75
+        while (entries.length * 4 > capacity * 3) {
+            capacity = capacity * 2 + 1;
+        }
+        final SnapshotEntry[] buckets = new SnapshotEntry[capacity];
+        for (int i = 0; i < entries.length; ++i) {
+            final SnapshotEntry entry = entries[i];
+            final int index = (entry.hash & 0x7FFFFFFF) % capacity;
+            buckets[index] = new SnapshotEntry(entry, buckets[index]);
+        }
+        fSnapshot = new Snapshot(buckets, entries);
+        fGrammarCount = entries.length;
+    } // publish(SnapshotEntry[])
+
+    //
+    // Classes
+    //
+
+    /**
+     * An immutable grammar pool entry. Since all of its fields are
+     * final an entry is safely visible to threads reading the
+     * snapshot without synchronization.
+     */
+    private static final class SnapshotEntry {
+
+        final int hash;
+        final XMLGrammarDescription desc;
+        final Grammar grammar;
+        final SnapshotEntry next;
+
+        SnapshotEntry(int hash, XMLGrammarDescription desc, Grammar grammar) {
+            this.hash = hash;
+            this.desc = desc;
+            this.grammar = grammar;
+            this.next = null;
+        }
+
+        SnapshotEntry(SnapshotEntry entry, SnapshotEntry next) {
+            this.hash = entry.hash;
+            this.desc = entry.desc;
+            this.grammar = entry.grammar;
+            this.next = next;
+        }
+
+    } // class SnapshotEntry
+
+    /**
+     * The contents of the pool at one point in time: a hash table for
+     * lookups and a flat list, in insertion order, for enumeration.
+     * Neither array is modified after the snapshot has been published.
+     */
+    private static final class Snapshot {
+
+        final SnapshotEntry[] buckets;
+        final SnapshotEntry[] entries;
+
+        Snapshot(SnapshotEntry[] buckets, SnapshotEntry[] entries) {
+            this.buckets = buckets;
+            this.entries = entries;
+        }
+
+        SnapshotEntry find(XMLGrammarPoolImpl pool, XMLGrammarDescription desc) {
+            final int hash = pool.hashCode(desc);
+            final int index = (hash & 0x7FFFFFFF) % buckets.length;
+            for (SnapshotEntry entry = buckets[index]; entry != null; entry = entry.next) {
+                if (entry.hash == hash && pool.equals(entry.desc, desc)) {
+                    return entry;
+                }
+            }
+            return null;
+        }
+
+    } // class Snapshot
+
+} // class ConcurrentXMLGrammarPool
@@ -0,0 +1,146 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.xerces.util;
+
+/**
+ * A cache of the bytes of external entities and external DTD subsets,
+ * keyed by their expanded system identifiers. When the cache is set on
+ * the entity manager of a parser, an external entity whose bytes are in
+ * the cache is read from the cache instead of being opened, and the bytes
+ * of an external entity which is opened are added to the cache. The
+ * bytes are decoded as if they were read from their resource, so an
+ * entity is scanned the same way whether it is cached or not.
+ * <p>
+ * A cache may be shared by all the parsers of an application, and is
+ * thread-safe. The number of bytes held is bounded: when it is exceeded
+ * the entities read least recently are evicted. Cached entities are not
+ * checked against their resources, so a changed resource is only read
+ * again once it has been evicted or removed from the cache.
+ * <p>
+ * The cache is set with the property
+ * <code>http://apache.org/xml/properties/entity-content-cache</code>.
+ * Applications may extend this class to decide which entities are kept.
+ *
+ * @version $Id$
+ */
+public class EntityContentCache {
+
+    //
+    // Constants
+    //
+
+    /** Default maximum number of bytes held (16 MB). */
+    public static final int DEFAULT_MAX_SIZE = 16 << 20;
+
+    /** The approximate number of bytes used by an entry besides its content. */
+    private static final int ENTRY_SIZE = 96;
+
+    //
+    // Data
+    //
+
+    /** The bytes of the entities, by expanded system identifier. */
+    private final LRUCache fContents;
+
+    /** The number of entities read from the cache. */
+    private int fHitCount = 0;
+
+    /** The number of entities which were not in the cache. */
+    private int fMissCount = 0;
+
+    //
+    // Constructors
+    //
+
+    /** Constructs a cache of the default size. */
+    public EntityContentCache() {
+        this(DEFAULT_MAX_SIZE);
+    } // <init>()
+
+    /** Constructs a cache holding at most the given number of bytes. */
+    public EntityContentCache(int maxSize) {
+        fContents = new LRUCache(maxSize);
+    } // <init>(int)
+
+    //
+    // Public methods
+    //
+
+    /**
+     * Returns the bytes of the entity with the given expanded system
+     * identifier, or null if they are not in the cache. The array
+     * returned must not be modified.
+     */
+    public synchronized byte[] getContent(String expandedSystemId) {
+        byte[] content = (byte[]) fContents.get(expandedSystemId);
+        if (content == null) {
+            ++fMissCount;
+            return null;
+        }
+        ++fHitCount;
+        return content;
+    } // getContent(String):byte[]
+
+    /**
+     * Adds the bytes of the entity with the given expanded system
+     * identifier, and evicts the entities read least recently to make
+     * room for them. The array must not be modified afterwards.
+     */
+    public synchronized void putContent(String expandedSystemId, byte[] content) {
+        if (isCacheable(expandedSystemId, content.length)) {
+            fContents.put(expandedSystemId, content,
+                    content.length + (expandedSystemId.length() << 1) + ENTRY_SIZE);
+        }
+    } // putContent(String,byte[])
+
+    /**
+     * Returns true if the bytes of the entity with the given expanded
+     * system identifier and length are kept by the cache. The bytes of
+     * an entity are only read ahead into the cache while this method
+     * returns true for their number.
+     */
+    public boolean isCacheable(String expandedSystemId, int length) {
+        return expandedSystemId != null && length + ENTRY_SIZE <= fContents.getMaxSize();
+    } // isCacheable(String,int):boolean
+
+    /** Removes the entity with the given expanded system identifier. */
+    public synchronized void removeContent(String expandedSystemId) {
+        fContents.remove(expandedSystemId);
+    } // removeContent(String)
+
+    /** Removes all the entities. */
+    public synchronized void clear() {
+        fContents.clear();
+    } // clear()
+
+    /** Returns the number of bytes held. */
+    public synchronized int getSize() {
+        return fContents.getSize();
+    } // getSize():int
+
+    /** Returns the number of entities read from the cache. */
+    public synchronized int getHitCount() {
+        return fHitCount;
+    } // getHitCount():int
+
+    /** Returns the number of entities which were not in the cache. */
+    public synchronized int getMissCount() {
+        return fMissCount;
+    } // getMissCount():int
+
+} // class EntityContentCache
@@ -0,0 +1,204 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.xerces.util;
+
+import java.util.Hashtable;
+
+/**
+ * A map of values of a given size whose total size is bounded: when it
+ * is exceeded the values used least recently are evicted. The values
+ * are kept in a list ordered from the value used most recently to the
+ * value used least recently.
+ * <p>
+ * The map is not synchronized.
+ *
+ * @xerces.internal
+ *
+ * @version $Id$
+ */
+public final class LRUCache {
+
+    //
+    // Data
+    //
+
+    /** The maximum size of the values. */
+    private final int fMaxSize;
+
+    /** The entries of the map, by key. */
+    private final Hashtable fEntries = new Hashtable();
+
+    /** The entries used most and least recently. */
+    private Entry fHead;
+    private Entry fTail;
+
+    /** The size of the values. */
+    private int fSize = 0;
+
+    /** The number of values evicted. */
+    private int fEvictionCount = 0;
+
+    //
+    // Constructors
+    //
+
+    /** Constructs a map of values of at most the given total size. */
+    public LRUCache(int maxSize) {
+        fMaxSize = maxSize;
+    } // <init>(int)
+
+    //
+    // Public methods
+    //
+
+    /**
+     * Returns the value with the given key, which becomes the value
+     * used most recently, or null if there is none.
+     */
+    public Object get(Object key) {
+        Entry entry = (Entry) fEntries.get(key);
+        if (entry == null) {
+            return null;
+        }
+        if (entry != fHead) {
+            unlink(entry);
+            link(entry);
+        }
+        return entry.fValue;
+    } // get(Object):Object
+
+    /**
+     * Adds a value of the given size under the given key, replacing
+     * the value it had, and evicts the values used least recently to
+     * make room for it. Returns false if the value is bigger than the
+     * map, and so is not added.
+     */
+    public boolean put(Object key, Object value, int size) {
+        if (size > fMaxSize) {
+            return false;
+        }
+        remove(key);
+        Entry entry = new Entry(key, value, size);
+        fEntries.put(key, entry);
+        link(entry);
+        fSize += size;
+        while (fSize > fMaxSize) {
+            removeEntry(fTail);
+            ++fEvictionCount;
+        }
+        return true;
+    } // put(Object,Object,int):boolean
+
+    /** Removes the value with the given key, and returns it. */
+    public Object remove(Object key) {
+        Entry entry = (Entry) fEntries.get(key);
+        if (entry == null) {
+            return null;
+        }
+        removeEntry(entry);
+        return entry.fValue;
+    } // remove(Object):Object
+
+    /** Removes all the values. */
+    public void clear() {
+        fEntries.clear();
+        fHead = null;
+        fTail = null;
+        fSize = 0;
+    } // clear()
+
+    /** Returns the maximum size of the values. */
+    public int getMaxSize() {
+        return fMaxSize;
+    } // getMaxSize():int
+
+    /** Returns the size of the values. */
+    public int getSize() {
+        return fSize;
+    } // getSize():int
+
+    /** Returns the number of values evicted. */
+    public int getEvictionCount() {
+        return fEvictionCount;
+    } // getEvictionCount():int
+
+    //
+    // Private methods
+    //
+
+    /** Removes an entry. */
+    private void removeEntry(Entry entry) {
+        fEntries.remove(entry.fKey);
+        unlink(entry);
+        fSize -= entry.fSize;
+    } // removeEntry(Entry)
+
+    /** Makes an entry the entry used most recently. */
+    private void link(Entry entry) {
+        entry.fPrevious = null;
+        entry.fNext = fHead;
+        if (fHead != null) {
+            fHead.fPrevious = entry;
+        }
+        else {
+            fTail = entry;
+        }
+        fHead = entry;
+    } // link(Entry)
+
+    /** Removes an entry from the list of entries. */
+    private void unlink(Entry entry) {
+        if (entry.fPrevious != null) {
+            entry.fPrevious.fNext = entry.fNext;
+        }
+        else {
+            fHead = entry.fNext;
+        }
+        if (entry.fNext != null) {
+            entry.fNext.fPrevious = entry.fPrevious;
+        }
+        else {
+            fTail = entry.fPrevious;
+        }
+    } // unlink(Entry)
+
+    //
+    // Classes
+    //
+
+    /**
+     * An entry of the map, in the list of entries ordered from the
+     * entry used most recently to the entry used least recently.
+     */
+    private static final class Entry {
+
+        final Object fKey;
+        final Object fValue;
+        final int fSize;
+        Entry fPrevious;
+        Entry fNext;
+
+        Entry(Object key, Object value, int size) {
+            fKey = key;
+            fValue = value;
+            fSize = size;
+        }
+
+    } // class Entry
+
+} // class LRUCache
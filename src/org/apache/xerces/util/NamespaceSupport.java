@@ -17,6 +17,7 @@
 
 package org.apache.xerces.util;
 
+import java.io.Serializable;
 import java.util.Enumeration;
 import java.util.NoSuchElementException;
 
@@ -32,7 +33,9 @@ import org.apache.xerces.xni.NamespaceContext;
  *
  * @version $Id$
  */
-public class NamespaceSupport implements NamespaceContext {
+public class NamespaceSupport implements NamespaceContext, Serializable {
+
+    private static final long serialVersionUID = -33108835048215408L;
 
     //
     // Data
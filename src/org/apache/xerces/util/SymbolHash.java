@@ -17,6 +17,13 @@
 
 package org.apache.xerces.util;
 
+import java.io.IOException;
+import java.io.InvalidObjectException;
+import java.io.ObjectInputStream;
+import java.io.ObjectInputValidation;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+
 /**
  * This class is an unsynchronized hash table primary used for String
  * to Object mapping.
@@ -26,7 +33,9 @@ package org.apache.xerces.util;
  * @author Elena Litani
  * @version $Id$
  */
-public class SymbolHash {
+public class SymbolHash implements Serializable {
+
+    private static final long serialVersionUID = -2453792871429127187L;
 
     //
     // Constants
@@ -49,7 +58,7 @@ public class SymbolHash {
     protected int fTableSize;
 
     /** Buckets. */
-    protected Entry[] fBuckets; 
+    protected transient Entry[] fBuckets; 
 
     /** Number of elements. */
     protected int fNum = 0;
@@ -58,7 +67,7 @@ public class SymbolHash {
      * Array of randomly selected hash function multipliers or <code>null</code>
      * if the default String.hashCode() function should be used.
      */
-    protected int[] fHashMultipliers;
+    protected transient int[] fHashMultipliers;
 
     //
     // Constructors
@@ -285,6 +294,40 @@ public class SymbolHash {
         }
     }
     
+    //
+    // Serialization methods
+    //
+
+    /**
+     * Writes the key/value pairs. The buckets are not written, since the
+     * hash code of a key which isn't a string may change from a run to
+     * the next.
+     */
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        out.defaultWriteObject();
+        out.writeObject(getEntries());
+    } // writeObject(ObjectOutputStream)
+
+    /**
+     * Reads the key/value pairs. They are put back in new buckets once
+     * the whole graph has been read, since the hash code of a key may
+     * depend on fields which haven't been read yet.
+     */
+    private void readObject(ObjectInputStream in) 
+        throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        final Object[] entries = (Object[]) in.readObject();
+        fBuckets = new Entry[fTableSize];
+        fNum = 0;
+        in.registerValidation(new ObjectInputValidation() {
+            public void validateObject() throws InvalidObjectException {
+                for (int i = 0; i < entries.length; i += 2) {
+                    put(entries[i], entries[i + 1]);
+                }
+            }
+        }, 0);
+    } // readObject(ObjectInputStream)
+    
     //
     // Classes
     //
@@ -20,6 +20,7 @@ package org.apache.xerces.util;
 import org.apache.xerces.xni.Augmentations;
 import org.apache.xerces.xni.QName;
 import org.apache.xerces.xni.XMLAttributes;
+import org.apache.xerces.xni.XMLString;
 
 /**
  * The XMLAttributesImpl class is an implementation of the XMLAttributes
@@ -50,7 +51,7 @@ public class XMLAttributesImpl
     /** Default table size. */
     protected static final int TABLE_SIZE = 101;
     
-    /** Maximum hash collisions per bucket. */
+    /** Maximum hash collisions per attribute. */
     protected static final int MAX_HASH_COLLISIONS = 40;
     
     protected static final int MULTIPLIERS_SIZE = 1 << 5;
@@ -58,7 +59,8 @@ public class XMLAttributesImpl
     
     /** 
      * Threshold at which an instance is treated
-     * as a large attribute list.
+     * as a large attribute list, whose attributes
+     * are looked up through the attribute indexes.
      */
     protected static final int SIZE_LIMIT = 20;
     
@@ -73,13 +75,6 @@ public class XMLAttributesImpl
 
     // data
 
-    /** 
-     * Usage count for the attribute table view. 
-     * Incremented each time all attributes are removed
-     * when the attribute table view is in use.
-     */
-    protected int fLargeCount = 1;
-    
     /** Attribute count. */
     protected int fLength;
 
@@ -87,28 +82,16 @@ public class XMLAttributesImpl
     protected Attribute[] fAttributes = new Attribute[4];
     
     /** 
-     * Hashtable of attribute information. 
-     * Provides an alternate view of the attribute specification. 
-     */
-    protected Attribute[] fAttributeTableView;
-    
-    /**
-     * Tracks whether each chain in the hash table is stale
-     * with respect to the current state of this object.
-     * A chain is stale if its state is not the same as the number
-     * of times the attribute table view has been used.
-     */
-    protected int[] fAttributeTableViewChainState;
-    
-    /**
-     * Actual number of buckets in the table view.
+     * Index of the attributes by qualified name. 
+     * Used for lookups once the list is large.
      */
-    protected int fTableViewBuckets;
+    protected final AttributeIndex fQNameIndex;
     
-    /**
-     * Indicates whether the table view contains consistent data.
+    /** 
+     * Index of the attributes by namespace name and local part.
+     * Used for lookups and duplicate checks once the list is large.
      */
-    protected boolean fIsTableViewConsistent;
+    protected final AttributeIndex fNameIndex;
     
     /**
      * Array of randomly selected hash function multipliers or <code>null</code>
@@ -126,10 +109,11 @@ public class XMLAttributesImpl
     }
     
     /**
-     * @param tableSize initial size of table view
+     * @param tableSize initial size of the attribute indexes
      */
     public XMLAttributesImpl(int tableSize) {
-        fTableViewBuckets = tableSize;
+        fQNameIndex = new AttributeIndex(tableSize);
+        fNameIndex = new AttributeIndex(tableSize);
         for (int i = 0; i < fAttributes.length; i++) {
             fAttributes[i] = new Attribute();
         }
@@ -185,106 +169,23 @@ public class XMLAttributesImpl
      */
     public int addAttribute(QName name, String type, String value) {
 
-        int index;
-        if (fLength < SIZE_LIMIT) {
-            index = name.uri != null && name.uri.length() != 0
-                ? getIndexFast(name.uri, name.localpart)
-                : getIndexFast(name.rawname);
-
-            if (index == -1) {
-                index = fLength;
-                if (fLength++ == fAttributes.length) {
-                    Attribute[] attributes = new Attribute[fAttributes.length + 4];
-                    System.arraycopy(fAttributes, 0, attributes, 0, fAttributes.length);
-                    for (int i = fAttributes.length; i < attributes.length; i++) {
-                        attributes[i] = new Attribute();
-                    }
-                    fAttributes = attributes;
-                }
-            }
+        int index = name.uri != null && name.uri.length() != 0
+            ? getIndexFast(name.uri, name.localpart)
+            : getIndexFast(name.rawname);
+        if (index == -1) {
+            index = appendAttribute();
         }
-        else if (name.uri == null || 
-            name.uri.length() == 0 || 
-            (index = getIndexFast(name.uri, name.localpart)) == -1) {
-            
-            /**
-             * If attributes were removed from the list after the table
-             * becomes in use this isn't reflected in the table view. It's
-             * assumed that once a user starts removing attributes they're 
-             * not likely to add more. We only make the view consistent if
-             * the user of this class adds attributes, removes them, and
-             * then adds more.
-             */
-            if (!fIsTableViewConsistent || fLength == SIZE_LIMIT || 
-                (fLength > SIZE_LIMIT && fLength > fTableViewBuckets)) {
-                prepareAndPopulateTableView();
-                fIsTableViewConsistent = true;
-            }
-
-            int bucket = getTableViewBucket(name.rawname); 
-		
-            // The chain is stale. 
-            // This must be a unique attribute.
-            if (fAttributeTableViewChainState[bucket] != fLargeCount) {
-                index = fLength;
-                if (fLength++ == fAttributes.length) {
-                    Attribute[] attributes = new Attribute[fAttributes.length << 1];
-                    System.arraycopy(fAttributes, 0, attributes, 0, fAttributes.length);
-                    for (int i = fAttributes.length; i < attributes.length; i++) {
-                        attributes[i] = new Attribute();
-                    }
-                    fAttributes = attributes;
-                }
-			
-                // Update table view.
-                fAttributeTableViewChainState[bucket] = fLargeCount;
-                fAttributes[index].next = null;
-                fAttributeTableView[bucket] = fAttributes[index];
+        else {
+            // the replaced attribute may have been indexed under
+            // another qualified name or namespace name
+            QName oldName = fAttributes[index].name;
+            if (oldName.rawname != name.rawname) {
+                fQNameIndex.clear();
             }
-            // This chain is active. 
-            // We need to check if any of the attributes has the same rawname.
-            else {
-                // Search the table.
-                int collisionCount = 0;
-                Attribute found = fAttributeTableView[bucket];
-                while (found != null) {
-                    if (found.name.rawname == name.rawname) {
-                        break;
-                    }
-                    found = found.next;
-                    ++collisionCount;
-                }
-                // This attribute is unique.
-                if (found == null) {
-                    index = fLength;
-                    if (fLength++ == fAttributes.length) {
-                        Attribute[] attributes = new Attribute[fAttributes.length << 1];
-                        System.arraycopy(fAttributes, 0, attributes, 0, fAttributes.length);
-                        for (int i = fAttributes.length; i < attributes.length; i++) {
-                            attributes[i] = new Attribute();
-                        }
-                        fAttributes = attributes;
-                    }
-                    // Select a new hash function and rehash the table view
-                    // if the collision threshold is exceeded.
-                    if (collisionCount >= MAX_HASH_COLLISIONS) {
-                        // The current attribute will be processed in the rehash.
-                        // Need to set its name first.
-                        fAttributes[index].name.setValues(name);
-                        rebalanceTableView(fLength);
-                    }
-                    else {
-                        // Update table view
-                        fAttributes[index].next = fAttributeTableView[bucket];
-                        fAttributeTableView[bucket] = fAttributes[index];
-                    }
-                }
-                // Duplicate. We still need to find the index.
-                else {
-                    index = getIndexFast(name.rawname);
-                }
+            if (oldName.localpart != name.localpart || oldName.uri != name.uri) {
+                fNameIndex.clear();
             }
-        }          
+        }
         
         // set values
         Attribute attribute = fAttributes[index];
@@ -292,6 +193,7 @@ public class XMLAttributesImpl
         attribute.type = type;
         attribute.value = value;
         attribute.nonNormalizedValue = value;
+        attribute.valueLength = -1;
         attribute.specified = false;
             
         // clear augmentations
@@ -307,6 +209,8 @@ public class XMLAttributesImpl
      */
     public void removeAllAttributes() {
         fLength = 0;
+        fQNameIndex.clear();
+        fNameIndex.clear();
     } // removeAllAttributes()
 
     /**
@@ -318,7 +222,8 @@ public class XMLAttributesImpl
      * @param attrIndex The attribute index.
      */
     public void removeAttributeAt(int attrIndex) {
-        fIsTableViewConsistent = false;
+        fQNameIndex.clear();
+        fNameIndex.clear();
         if (attrIndex < fLength - 1) {
             Attribute removedAttr = fAttributes[attrIndex];
             System.arraycopy(fAttributes, attrIndex + 1,
@@ -339,6 +244,8 @@ public class XMLAttributesImpl
      */
     public void setName(int attrIndex, QName attrName) {
         fAttributes[attrIndex].name.setValues(attrName);
+        fQNameIndex.clear();
+        fNameIndex.clear();
     } // setName(int,QName)
 
     /**
@@ -382,8 +289,30 @@ public class XMLAttributesImpl
         Attribute attribute = fAttributes[attrIndex];
         attribute.value = attrValue;
         attribute.nonNormalizedValue = attrValue;
+        attribute.valueLength = -1;
     } // setValue(int,String)
 
+    /**
+     * Sets the value of the attribute at the specified index from the
+     * given characters. The characters are copied and the string value
+     * of the attribute is only created if it is asked for. This method
+     * will overwrite the non-normalized value of the attribute.
+     * 
+     * @param attrIndex The attribute index.
+     * @param attrValue The new attribute value.
+     *
+     * @see #getValueChars
+     */
+    public void setDeferredValue(int attrIndex, XMLString attrValue) {
+        Attribute attribute = fAttributes[attrIndex];
+        int length = attrValue.length;
+        ensureValueCapacity(attribute, length);
+        System.arraycopy(attrValue.ch, attrValue.offset, attribute.valueChars, 0, length);
+        attribute.value = null;
+        attribute.nonNormalizedValue = null;
+        attribute.valueLength = length;
+    } // setDeferredValue(int,XMLString)
+
     /**
      * Sets the non-normalized value of the attribute at the specified
      * index.
@@ -392,9 +321,6 @@ public class XMLAttributesImpl
      * @param attrValue The new non-normalized attribute value.
      */
     public void setNonNormalizedValue(int attrIndex, String attrValue) {
-        if (attrValue == null) {
-            attrValue = fAttributes[attrIndex].value;
-        }
         fAttributes[attrIndex].nonNormalizedValue = attrValue;
     } // setNonNormalizedValue(int,String)
 
@@ -407,7 +333,7 @@ public class XMLAttributesImpl
      */
     public String getNonNormalizedValue(int attrIndex) {
         String value = fAttributes[attrIndex].nonNormalizedValue;
-        return value;
+        return value != null ? value : getValue(attrIndex);
     } // getNonNormalizedValue(int):String
 
     /**
@@ -507,9 +433,55 @@ public class XMLAttributesImpl
         if (index < 0 || index >= fLength) {
             return null;
         }
-        return fAttributes[index].value;
+        Attribute attribute = fAttributes[index];
+        if (attribute.value == null && attribute.valueLength >= 0) {
+            attribute.value = new String(attribute.valueChars, 0, attribute.valueLength);
+        }
+        return attribute.value;
     } // getValue(int):String
 
+    /**
+     * Returns the number of characters in the value of the attribute
+     * at the specified index, or -1 if the index is out of range.
+     * 
+     * @param index The attribute index (zero-based).
+     *
+     * @see #getValueChars
+     */
+    public int getValueLength(int index) {
+        if (index < 0 || index >= fLength) {
+            return -1;
+        }
+        Attribute attribute = fAttributes[index];
+        if (attribute.valueLength < 0) {
+            copyValueChars(attribute);
+        }
+        return attribute.valueLength;
+    } // getValueLength(int):int
+
+    /**
+     * Returns the characters of the value of the attribute at the
+     * specified index, or null if the index is out of range. The value
+     * is held in the first <code>getValueLength(index)</code> characters
+     * of the array. The array is owned by this object: it must not be
+     * modified and its contents are only valid until the attributes are
+     * next modified.
+     * 
+     * @param index The attribute index (zero-based).
+     *
+     * @see #getValueLength
+     */
+    public char[] getValueChars(int index) {
+        if (index < 0 || index >= fLength) {
+            return null;
+        }
+        Attribute attribute = fAttributes[index];
+        if (attribute.valueLength < 0) {
+            copyValueChars(attribute);
+        }
+        return attribute.valueChars;
+    } // getValueChars(int):char[]
+
     /**
      * Look up an attribute's value by XML 1.0 qualified name.
      *
@@ -523,7 +495,7 @@ public class XMLAttributesImpl
      */
     public String getValue(String qname) {
         int index = getIndex(qname);
-        return index != -1 ? fAttributes[index].value : null;
+        return index != -1 ? getValue(index) : null;
     } // getValue(String):String
 
     //
@@ -565,6 +537,9 @@ public class XMLAttributesImpl
      *         appear in the list.
      */
     public int getIndex(String qName) {
+        if (fLength > SIZE_LIMIT && qName != null) {
+            return lookupQName(qName, false);
+        }
         for (int i = 0; i < fLength; i++) {
             Attribute attribute = fAttributes[i];
             if (attribute.name.rawname != null &&
@@ -585,6 +560,9 @@ public class XMLAttributesImpl
      *         appear in the list.
      */
     public int getIndex(String uri, String localPart) {
+        if (fLength > SIZE_LIMIT && localPart != null) {
+            return lookupName(uri, localPart, false);
+        }
         for (int i = 0; i < fLength; i++) {
             Attribute attribute = fAttributes[i];
             if (attribute.name.localpart != null &&
@@ -758,6 +736,7 @@ public class XMLAttributesImpl
      */
     public void setURI(int attrIndex, String uri) {
         fAttributes[attrIndex].name.uri = uri;
+        fNameIndex.clear();
     } // getURI(int,QName)
 
     // Implementation methods
@@ -775,6 +754,9 @@ public class XMLAttributesImpl
      *         appear in the list.
      */
     public int getIndexFast(String qName) {
+        if (fLength > SIZE_LIMIT) {
+            return lookupQName(qName, true);
+        }
         for (int i = 0; i < fLength; ++i) {
             Attribute attribute = fAttributes[i];
             if (attribute.name.rawname == qName) {
@@ -812,21 +794,7 @@ public class XMLAttributesImpl
      * @see #checkDuplicatesNS
      */
     public void addAttributeNS(QName name, String type, String value) {
-        int index = fLength;
-        if (fLength++ == fAttributes.length) {
-            Attribute[] attributes;
-            if (fLength < SIZE_LIMIT) {
-                attributes = new Attribute[fAttributes.length + 4];
-            }
-            else {
-                attributes = new Attribute[fAttributes.length << 1];
-            }
-            System.arraycopy(fAttributes, 0, attributes, 0, fAttributes.length);
-            for (int i = fAttributes.length; i < attributes.length; i++) {
-                attributes[i] = new Attribute();
-            }
-            fAttributes = attributes;
-        }
+        int index = appendAttribute();
         
         // set values
         Attribute attribute = fAttributes[index];
@@ -834,6 +802,7 @@ public class XMLAttributesImpl
         attribute.type = type;
         attribute.value = value;
         attribute.nonNormalizedValue = value;
+        attribute.valueLength = -1;
         attribute.specified = false;
             
         // clear augmentations
@@ -869,71 +838,13 @@ public class XMLAttributesImpl
             }
             return null;
     	}
-    	// If the list is large check duplicates using a hash table.
+    	// If the list is large check duplicates using the index.
     	else {
-    	    return checkManyDuplicatesNS();
+    	    fNameIndex.clear();
+    	    return updateNameIndex();
     	}
     }
     
-    private QName checkManyDuplicatesNS() {
-        // We don't want this table view to be read if someone calls 
-        // addAttribute so we invalidate it up front.
-        fIsTableViewConsistent = false;
-
-        prepareTableView();
-
-        Attribute attr;
-        int bucket;
-        
-        final int length = fLength;
-        final Attribute[] attributes = fAttributes;
-        final Attribute[] attributeTableView = fAttributeTableView;
-        final int[] attributeTableViewChainState = fAttributeTableViewChainState;
-        int largeCount = fLargeCount;
-
-        for (int i = 0; i < length; ++i) {
-            attr = attributes[i];
-            bucket = getTableViewBucket(attr.name.localpart, attr.name.uri);
-            
-            // The chain is stale. 
-            // This must be a unique attribute.
-            if (attributeTableViewChainState[bucket] != largeCount) {
-                attributeTableViewChainState[bucket] = largeCount;
-                attr.next = null;
-                attributeTableView[bucket] = attr;
-            } 
-            // This chain is active. 
-            // We need to check if any of the attributes has the same name.
-            else {
-                // Search the table.
-                int collisionCount = 0;
-                Attribute found = attributeTableView[bucket];
-                while (found != null) {
-                    if (found.name.localpart == attr.name.localpart &&
-                        found.name.uri == attr.name.uri) {
-                        return attr.name;
-                    }
-                    found = found.next;
-                    ++collisionCount;
-                }
-                
-                // Select a new hash function and rehash the table view
-                // if the collision threshold is exceeded.
-                if (collisionCount >= MAX_HASH_COLLISIONS) {
-                    // The current attribute will be processed in the rehash.
-                    rebalanceTableViewNS(i+1);
-                    largeCount = fLargeCount;
-                }
-                else {
-                    // Update table view
-                    attr.next = attributeTableView[bucket];
-                    attributeTableView[bucket] = attr;
-                }
-            }
-        }
-        return null;
-    }
-    
     /**
      * Look up the index of an attribute by Namespace name.
      * <p>
@@ -949,6 +860,9 @@ public class XMLAttributesImpl
      *         appear in the list.
      */
     public int getIndexFast(String uri, String localPart) {
+        if (fLength > SIZE_LIMIT) {
+            return lookupName(uri, localPart, true);
+        }
         for (int i = 0; i < fLength; ++i) {
             Attribute attribute = fAttributes[i];
             if (attribute.name.localpart == localPart && 
@@ -973,37 +887,10 @@ public class XMLAttributesImpl
         return type;
     }
 	
-    /**
-     * Returns the position in the table view 
-     * where the given attribute name would be hashed.
-     * 
-     * @param qname the attribute name
-     * @return the position in the table view where the given attribute
-     * would be hashed
-     */
-    protected int getTableViewBucket(String qname) {
-        return (hash(qname) & 0x7FFFFFFF) % fTableViewBuckets;
-    }
-    
-    /**
-     * Returns the position in the table view
-     * where the given attribute name would be hashed.
-     * 
-     * @param localpart the local part of the attribute
-     * @param uri the namespace name of the attribute
-     * @return the position in the table view where the given attribute
-     * would be hashed
-     */
-    protected int getTableViewBucket(String localpart, String uri) {
-        if (uri == null) {
-            return (hash(localpart) & 0x7FFFFFFF) % fTableViewBuckets;
-        }
-        else {
-            return (hash(localpart, uri) & 0x7FFFFFFF) % fTableViewBuckets;
-        }
-    }
-    
     private int hash(String localpart) {
+        if (localpart == null) {
+            return 0;
+        }
         if (fHashMultipliers == null) {
             return localpart.hashCode();
         }
@@ -1011,6 +898,9 @@ public class XMLAttributesImpl
     } // hash(String):int
     
     private int hash(String localpart, String uri) {
+        if (uri == null) {
+            return hash(localpart);
+        }
         if (fHashMultipliers == null) {
             return localpart.hashCode() + uri.hashCode() * 31;
         }
@@ -1027,134 +917,193 @@ public class XMLAttributesImpl
         return code;
     } // hash0(String):int
 	
+    /** Makes room for one more attribute and returns its index. */
+    private int appendAttribute() {
+        int index = fLength;
+        if (fLength++ == fAttributes.length) {
+            Attribute[] attributes;
+            if (fLength < SIZE_LIMIT) {
+                attributes = new Attribute[fAttributes.length + 4];
+            }
+            else {
+                attributes = new Attribute[fAttributes.length << 1];
+            }
+            System.arraycopy(fAttributes, 0, attributes, 0, fAttributes.length);
+            for (int i = fAttributes.length; i < attributes.length; i++) {
+                attributes[i] = new Attribute();
+            }
+            fAttributes = attributes;
+        }
+        return index;
+    } // appendAttribute():int
+
     /**
-     * Purges all elements from the table view.
+     * Returns the index of the attribute with the given qualified name,
+     * comparing names by reference if <code>fast</code> is true.
      */
-    protected void cleanTableView() {
-        if (++fLargeCount < 0) {
-            // Overflow. We actually need to visit the chain state array.
-            if (fAttributeTableViewChainState != null) {
-                for (int i = fTableViewBuckets - 1; i >= 0; --i) {
-                    fAttributeTableViewChainState[i] = 0;
-                } 
+    private int lookupQName(String qName, boolean fast) {
+        updateQNameIndex();
+        final AttributeIndex index = fQNameIndex;
+        final int[] slots = index.slots;
+        final int[] stamps = index.stamps;
+        final int stamp = index.stamp;
+        final int mask = index.mask;
+        int slot = spread(hash(qName)) & mask;
+        while (stamps[slot] == stamp) {
+            final int i = slots[slot];
+            final String rawname = fAttributes[i].name.rawname;
+            if (rawname == qName || !fast && qName.equals(rawname)) {
+                return i;
             }
-            fLargeCount = 1;
+            slot = (slot + 1) & mask;
         }
-    }
-    
+        return -1;
+    } // lookupQName(String,boolean):int
+
     /**
-     * Increases the capacity of the table view.
+     * Returns the index of the attribute with the given namespace name
+     * and local part, comparing names by reference if <code>fast</code>
+     * is true.
      */
-    private void growTableView() {
-        final int length = fLength;
-        int tableViewBuckets = fTableViewBuckets;
-        do {
-            tableViewBuckets = (tableViewBuckets << 1) + 1;
-            if (tableViewBuckets < 0) {
-                tableViewBuckets = Integer.MAX_VALUE;
-                break;
-            } 
+    private int lookupName(String uri, String localPart, boolean fast) {
+        updateNameIndex();
+        final AttributeIndex index = fNameIndex;
+        final int[] slots = index.slots;
+        final int[] stamps = index.stamps;
+        final int stamp = index.stamp;
+        final int mask = index.mask;
+        int slot = spread(hash(localPart, uri)) & mask;
+        while (stamps[slot] == stamp) {
+            final int i = slots[slot];
+            final QName name = fAttributes[i].name;
+            if (name.localpart == localPart && name.uri == uri) {
+                return i;
+            }
+            if (!fast && localPart.equals(name.localpart) && 
+                (uri == name.uri || uri != null && uri.equals(name.uri))) {
+                return i;
+            }
+            slot = (slot + 1) & mask;
         }
-        while (length > tableViewBuckets);
-        fTableViewBuckets = tableViewBuckets;
-        fAttributeTableView = null;
-        fLargeCount = 1;
-    }
-    
+        return -1;
+    } // lookupName(String,String,boolean):int
+
     /**
-     * Prepares the table view of the attributes list for use.
+     * Adds the attributes added since the qualified name index was
+     * last used to the index. Only the first of the attributes with
+     * the same name is held by the index.
      */
-    protected void prepareTableView() {
-        if (fLength > fTableViewBuckets) {
-            growTableView();
-        }
-        if (fAttributeTableView == null) {
-            fAttributeTableView = new Attribute[fTableViewBuckets];
-            fAttributeTableViewChainState = new int[fTableViewBuckets];
-        }
-        else {
-            cleanTableView();
+    private void updateQNameIndex() {
+        final AttributeIndex index = fQNameIndex;
+        index.ensureCapacity(fLength);
+        while (index.count < fLength) {
+            final String rawname = fAttributes[index.count].name.rawname;
+            final int mask = index.mask;
+            int slot = spread(hash(rawname)) & mask;
+            int collisionCount = 0;
+            while (index.stamps[slot] == index.stamp && 
+                fAttributes[index.slots[slot]].name.rawname != rawname) {
+                slot = (slot + 1) & mask;
+                ++collisionCount;
+            }
+            // Select a new hash function and rebuild the index
+            // if the collision threshold is exceeded.
+            if (collisionCount >= MAX_HASH_COLLISIONS) {
+                rebalanceIndexes();
+                continue;
+            }
+            if (index.stamps[slot] != index.stamp) {
+                index.stamps[slot] = index.stamp;
+                index.slots[slot] = index.count;
+            }
+            ++index.count;
         }
-    }
-    
+    } // updateQNameIndex()
+
     /**
-     * Prepares the table view of the attributes list for use,
-     * and populates it with the attributes which have been
-     * previously read.
+     * Adds the attributes added since the namespace name index was
+     * last used to the index. Only the first of the attributes with
+     * the same name is held by the index.
+     * 
+     * @return the name of a duplicate attribute found while adding
+     * the attributes, otherwise null.
      */
-    protected void prepareAndPopulateTableView() {
-        prepareAndPopulateTableView(fLength);
-    }
-    
-    private void prepareAndPopulateTableView(final int count) {
-        prepareTableView();
-        // Need to populate the hash table with the attributes we've processed so far.
-        Attribute attr;
-        int bucket;
-        for (int i = 0; i < count; ++i) {
-            attr = fAttributes[i];
-            bucket = getTableViewBucket(attr.name.rawname);
-            if (fAttributeTableViewChainState[bucket] != fLargeCount) {
-                fAttributeTableViewChainState[bucket] = fLargeCount;
-                attr.next = null;
-                fAttributeTableView[bucket] = attr;
-            } 
-            else {
-                // Update table view
-                attr.next = fAttributeTableView[bucket];
-                fAttributeTableView[bucket] = attr;
+    private QName updateNameIndex() {
+        final AttributeIndex index = fNameIndex;
+        index.ensureCapacity(fLength);
+        QName duplicate = null;
+        while (index.count < fLength) {
+            final QName name = fAttributes[index.count].name;
+            final int mask = index.mask;
+            int slot = spread(hash(name.localpart, name.uri)) & mask;
+            int collisionCount = 0;
+            while (index.stamps[slot] == index.stamp) {
+                final QName found = fAttributes[index.slots[slot]].name;
+                if (found.localpart == name.localpart && found.uri == name.uri) {
+                    if (duplicate == null) {
+                        duplicate = name;
+                    }
+                    break;
+                }
+                slot = (slot + 1) & mask;
+                ++collisionCount;
             }
-        }
-    }
-    
-    private void prepareAndPopulateTableViewNS(final int count) {
-        prepareTableView();
-        // Need to populate the hash table with the attributes we've processed so far.
-        Attribute attr;
-        int bucket;
-        for (int i = 0; i < count; ++i) {
-            attr = fAttributes[i];
-            bucket = getTableViewBucket(attr.name.localpart, attr.name.uri);
-            if (fAttributeTableViewChainState[bucket] != fLargeCount) {
-                fAttributeTableViewChainState[bucket] = fLargeCount;
-                attr.next = null;
-                fAttributeTableView[bucket] = attr;
-            } 
-            else {
-                // Update table view
-                attr.next = fAttributeTableView[bucket];
-                fAttributeTableView[bucket] = attr;
+            // Select a new hash function and rebuild the index
+            // if the collision threshold is exceeded.
+            if (collisionCount >= MAX_HASH_COLLISIONS) {
+                rebalanceIndexes();
+                continue;
             }
+            if (index.stamps[slot] != index.stamp) {
+                index.stamps[slot] = index.stamp;
+                index.slots[slot] = index.count;
+            }
+            ++index.count;
         }
-    }
-    
+        return duplicate;
+    } // updateNameIndex():QName
+
     /**
-     * Randomly selects a new hash function and reorganizes the table view
-     * in order to more evenly distribute its entries. This method is called
-     * automatically when the number of attributes in one bucket exceeds
-     * MAX_HASH_COLLISIONS.
+     * Randomly selects a new hash function and empties the indexes
+     * so that they are rebuilt with it. This method is called
+     * automatically when the number of collisions for one attribute
+     * exceeds MAX_HASH_COLLISIONS.
      */
-    private void rebalanceTableView(final int count) {
+    private void rebalanceIndexes() {
         if (fHashMultipliers == null) {
             fHashMultipliers = new int[MULTIPLIERS_SIZE + 1];
         }
         PrimeNumberSequenceGenerator.generateSequence(fHashMultipliers);
-        prepareAndPopulateTableView(count);
-    }
-    
+        fQNameIndex.clear();
+        fNameIndex.clear();
+    } // rebalanceIndexes()
+
+    /** Mixes the high bits of a hash code into its low bits. */
+    private static int spread(int code) {
+        return code ^ (code >>> 16);
+    } // spread(int):int
+
     /**
-     * Randomly selects a new hash function and reorganizes the table view
-     * in order to more evenly distribute its entries. This method is called
-     * automatically when the number of attributes in one bucket exceeds
-     * MAX_HASH_COLLISIONS.
+     * Copies the string value of the attribute into its character
+     * array, so that the array holds its value too.
      */
-    private void rebalanceTableViewNS(final int count) {
-        if (fHashMultipliers == null) {
-            fHashMultipliers = new int[MULTIPLIERS_SIZE + 1];
+    private void copyValueChars(Attribute attribute) {
+        String value = attribute.value;
+        int length = value != null ? value.length() : 0;
+        ensureValueCapacity(attribute, length);
+        if (value != null) {
+            value.getChars(0, length, attribute.valueChars, 0);
         }
-        PrimeNumberSequenceGenerator.generateSequence(fHashMultipliers);
-        prepareAndPopulateTableViewNS(count);
-    }
+        attribute.valueLength = length;
+    } // copyValueChars(Attribute)
+
+    /** Ensures the character array of the attribute holds the given length. */
+    private void ensureValueCapacity(Attribute attribute, int length) {
+        char[] chars = attribute.valueChars;
+        if (chars == null || chars.length < length) {
+            attribute.valueChars = new char[Math.max(length, chars != null ? chars.length << 1 : 32)];
+        }
+    } // ensureValueCapacity(Attribute,int)
 
     //
     // Classes
@@ -1185,6 +1134,20 @@ public class XMLAttributesImpl
         /** Non-normalized value. */
         public String nonNormalizedValue;
 
+        /** 
+         * Characters of the value, valid in the first 
+         * <code>valueLength</code> characters. 
+         */
+        public char[] valueChars;
+
+        /** 
+         * Number of characters of the value held in 
+         * <code>valueChars</code>, or -1 if they do not hold the value. 
+         * The string value is created on demand when it is null and 
+         * this is not -1.
+         */
+        public int valueLength = -1;
+
         /** Specified. */
         public boolean specified;
         
@@ -1195,11 +1158,82 @@ public class XMLAttributesImpl
          */
         public Augmentations augs = new AugmentationsImpl();
         
-        // Additional data for attribute table view
-        
-        /** Pointer to the next attribute in the chain. **/
-        public Attribute next;
-        
     } // class Attribute
 
+    /**
+     * An open addressing index of the positions of the first
+     * <code>count</code> attributes in the list. A slot is in use
+     * if its stamp is the stamp of the index, so that the index is
+     * emptied in constant time by changing its stamp.
+     */
+    static final class AttributeIndex {
+
+        //
+        // Data
+        //
+
+        /** Positions of the attributes. */
+        public int[] slots;
+
+        /** Stamps of the slots. */
+        public int[] stamps;
+
+        /** Stamp of the slots in use. */
+        public int stamp = 1;
+
+        /** Number of slots minus one. */
+        public int mask;
+
+        /** Number of attributes held by the index. */
+        public int count;
+
+        /** Initial number of slots. */
+        private final int initialSize;
+
+        //
+        // Constructors
+        //
+
+        public AttributeIndex(int initialSize) {
+            this.initialSize = initialSize;
+        } // <init>(int)
+
+        //
+        // Public methods
+        //
+
+        /** Removes all the attributes from the index. */
+        public void clear() {
+            if (count != 0) {
+                count = 0;
+                if (++stamp == 0) {
+                    // Overflow. We actually need to visit the stamps.
+                    for (int i = stamps.length - 1; i >= 0; --i) {
+                        stamps[i] = 0;
+                    }
+                    stamp = 1;
+                }
+            }
+        } // clear()
+
+        /** 
+         * Ensures the index has room for the given number of attributes,
+         * emptying it if it needs to grow.
+         */
+        public void ensureCapacity(int length) {
+            if (slots == null || (length << 1) > slots.length) {
+                int size = 16;
+                while (size < initialSize || size < (length << 1)) {
+                    size <<= 1;
+                }
+                slots = new int[size];
+                stamps = new int[size];
+                stamp = 1;
+                mask = size - 1;
+                count = 0;
+            }
+        } // ensureCapacity(int)
+
+    } // class AttributeIndex
+
 } // class XMLAttributesImpl
@@ -39,6 +39,8 @@ import org.apache.xerces.xni.NamespaceContext;
  */
 public class MultipleScopeNamespaceSupport extends NamespaceSupport {
 
+    private static final long serialVersionUID = 5293282394905449117L;
+
     protected int[] fScope = new int[8];
     protected int fCurrentScope;
 
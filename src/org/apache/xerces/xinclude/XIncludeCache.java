@@ -0,0 +1,142 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.xerces.xinclude;
+
+import java.io.File;
+import java.net.URI;
+
+import org.apache.xerces.util.LRUCache;
+
+/**
+ * The recordings of the resources included by the documents parsed by
+ * a parser, kept by the XIncludeHandler of the root document across
+ * documents. The size of the recordings is bounded: when it is exceeded
+ * the recordings used least recently are evicted. A recording is keyed by
+ * the parse mode and the expanded system id of its resource. If timestamps
+ * are checked, the recording of a file is only used if the file has not
+ * been modified since it was recorded.
+ * <p>
+ * A cache is only used by the thread parsing with its handler, and is not
+ * synchronized.
+ *
+ * @xerces.internal
+ *
+ * @version $Id$
+ */
+final class XIncludeCache {
+
+    //
+    // Data
+    //
+
+    /** True if the recordings of files are checked against the files. */
+    private final boolean fCheckTimestamps;
+
+    /** The recordings, by key, with their sizes in bytes. */
+    private final LRUCache fRecordings;
+
+    /** The number of recordings replayed. */
+    private int fHitCount = 0;
+
+    //
+    // Constructors
+    //
+
+    /** Constructs a cache of the given size in bytes. */
+    XIncludeCache(int maxSize, boolean checkTimestamps) {
+        fRecordings = new LRUCache(maxSize);
+        fCheckTimestamps = checkTimestamps;
+    } // <init>(int,boolean)
+
+    //
+    // Public methods
+    //
+
+    /**
+     * Returns the recording with the given key, or null if there is none
+     * or if the file it was recorded from has been modified since.
+     */
+    public XIncludeRecording get(String key, String systemId) {
+        XIncludeRecording recording = (XIncludeRecording) fRecordings.get(key);
+        if (recording == null) {
+            return null;
+        }
+        if (fCheckTimestamps &&
+            recording.getLastModified() != getLastModified(systemId)) {
+            fRecordings.remove(key);
+            return null;
+        }
+        ++fHitCount;
+        return recording;
+    } // get(String,String):XIncludeRecording
+
+    /**
+     * Creates a recording of the resource with the given expanded system
+     * id, which is not kept once it exceeds the size of the cache.
+     */
+    public XIncludeRecording newRecording(String systemId, boolean bindNamespaces) {
+        long lastModified = fCheckTimestamps ? getLastModified(systemId) : 0;
+        return new XIncludeRecording(fRecordings.getMaxSize(), bindNamespaces, lastModified);
+    } // newRecording(String,boolean):XIncludeRecording
+
+    /**
+     * Adds a recording under the given key if it is complete, and evicts
+     * the recordings used least recently to make room for it.
+     */
+    public void put(String key, XIncludeRecording recording) {
+        if (recording.isComplete()) {
+            fRecordings.put(key, recording, recording.getSize());
+        }
+    } // put(String,XIncludeRecording)
+
+    /** Returns the number of recordings replayed. */
+    public int getHitCount() {
+        return fHitCount;
+    } // getHitCount():int
+
+    /** Returns the number of recordings evicted. */
+    public int getEvictionCount() {
+        return fRecordings.getEvictionCount();
+    } // getEvictionCount():int
+
+    /** Returns the size of the recordings, in bytes. */
+    public int getSize() {
+        return fRecordings.getSize();
+    } // getSize():int
+
+    //
+    // Private methods
+    //
+
+    /**
+     * Returns the last modification time of the file with the given
+     * expanded system id, or 0 if it is not a file or does not exist.
+     */
+    private static long getLastModified(String systemId) {
+        if (systemId == null || !systemId.startsWith("file:")) {
+            return 0;
+        }
+        try {
+            return new File(new URI(systemId)).lastModified();
+        }
+        catch (Exception e) {
+            return 0;
+        }
+    } // getLastModified(String):long
+
+} // class XIncludeCache
@@ -31,6 +31,10 @@ import org.apache.xerces.impl.XMLErrorReporter;
 import org.apache.xerces.impl.io.MalformedByteSequenceException;
 import org.apache.xerces.impl.msg.XMLMessageFormatter;
 import org.apache.xerces.util.AugmentationsImpl;
+import org.apache.xerces.util.DOMEntityResolverWrapper;
+import org.apache.xerces.util.EntityContentCache;
+import org.apache.xerces.util.EntityResolver2Wrapper;
+import org.apache.xerces.util.EntityResolverWrapper;
 import org.apache.xerces.util.HTTPInputSource;
 import org.apache.xerces.util.IntStack;
 import org.apache.xerces.util.ParserConfigurationSettings;
@@ -179,6 +183,10 @@ public class XIncludeHandler
 
     // recognized features and properties
     
+    /** Feature identifier: namespaces. */
+    protected static final String NAMESPACES =
+        Constants.SAX_FEATURE_PREFIX + Constants.NAMESPACES_FEATURE;
+    
     /** Feature identifier: validation. */
     protected static final String VALIDATION =
         Constants.SAX_FEATURE_PREFIX + Constants.VALIDATION_FEATURE;
@@ -204,6 +212,10 @@ public class XIncludeHandler
     protected static final String XINCLUDE_FIXUP_LANGUAGE =
         Constants.XERCES_FEATURE_PREFIX + Constants.XINCLUDE_FIXUP_LANGUAGE_FEATURE;
     
+    /** Feature identifier: check the timestamps of cached includes. */
+    protected static final String XINCLUDE_CACHE_CHECK_TIMESTAMPS =
+        Constants.XERCES_FEATURE_PREFIX + Constants.XINCLUDE_CACHE_CHECK_TIMESTAMPS_FEATURE;
+    
     /** Property identifier: JAXP schema language. */
     protected static final String JAXP_SCHEMA_LANGUAGE =
         Constants.JAXP_PROPERTY_PREFIX + Constants.SCHEMA_LANGUAGE;
@@ -216,6 +228,10 @@ public class XIncludeHandler
     protected static final String ERROR_REPORTER =
         Constants.XERCES_PROPERTY_PREFIX + Constants.ERROR_REPORTER_PROPERTY;
 
+    /** Property identifier: error handler. */
+    protected static final String ERROR_HANDLER =
+        Constants.XERCES_PROPERTY_PREFIX + Constants.ERROR_HANDLER_PROPERTY;
+
     /** Property identifier: entity resolver. */
     protected static final String ENTITY_RESOLVER =
         Constants.XERCES_PROPERTY_PREFIX + Constants.ENTITY_RESOLVER_PROPERTY;
@@ -228,22 +244,36 @@ public class XIncludeHandler
     protected static final String BUFFER_SIZE =
         Constants.XERCES_PROPERTY_PREFIX + Constants.BUFFER_SIZE_PROPERTY;
     
+    /** property identifier: entity content cache. */
+    protected static final String ENTITY_CONTENT_CACHE =
+        Constants.XERCES_PROPERTY_PREFIX + Constants.ENTITY_CONTENT_CACHE_PROPERTY;
+    
+    /** property identifier: prefetch threads. */
+    protected static final String XINCLUDE_PREFETCH_THREADS =
+        Constants.XERCES_PROPERTY_PREFIX + Constants.XINCLUDE_PREFETCH_THREADS_PROPERTY;
+    
+    /** property identifier: cache size. */
+    protected static final String XINCLUDE_CACHE_SIZE =
+        Constants.XERCES_PROPERTY_PREFIX + Constants.XINCLUDE_CACHE_SIZE_PROPERTY;
+    
     protected static final String PARSER_SETTINGS = 
         Constants.XERCES_FEATURE_PREFIX + Constants.PARSER_SETTINGS;
 
     /** Recognized features. */
     private static final String[] RECOGNIZED_FEATURES =
-        { ALLOW_UE_AND_NOTATION_EVENTS, XINCLUDE_FIXUP_BASE_URIS, XINCLUDE_FIXUP_LANGUAGE };
+        { ALLOW_UE_AND_NOTATION_EVENTS, XINCLUDE_FIXUP_BASE_URIS, XINCLUDE_FIXUP_LANGUAGE,
+          XINCLUDE_CACHE_CHECK_TIMESTAMPS };
 
     /** Feature defaults. */
-    private static final Boolean[] FEATURE_DEFAULTS = { Boolean.TRUE, Boolean.TRUE, Boolean.TRUE };
+    private static final Boolean[] FEATURE_DEFAULTS = { Boolean.TRUE, Boolean.TRUE, Boolean.TRUE, Boolean.FALSE };
 
     /** Recognized properties. */
     private static final String[] RECOGNIZED_PROPERTIES =
-        { ERROR_REPORTER, ENTITY_RESOLVER, SECURITY_MANAGER, BUFFER_SIZE };
+        { ERROR_REPORTER, ENTITY_RESOLVER, SECURITY_MANAGER, BUFFER_SIZE, XINCLUDE_PREFETCH_THREADS,
+          XINCLUDE_CACHE_SIZE, ENTITY_CONTENT_CACHE };
 
     /** Property defaults. */
-    private static final Object[] PROPERTY_DEFAULTS = { null, null, null, new Integer(XMLEntityManager.DEFAULT_BUFFER_SIZE) };
+    private static final Object[] PROPERTY_DEFAULTS = { null, null, null, new Integer(XMLEntityManager.DEFAULT_BUFFER_SIZE), null, null, null };
 
     // instance variables
 
@@ -286,6 +316,7 @@ public class XIncludeHandler
     protected XMLErrorReporter fErrorReporter;
     protected XMLEntityResolver fEntityResolver;
     protected SecurityManager fSecurityManager;
+    protected EntityContentCache fEntityContentCache;
     
     // these are needed for text include processing
     protected XIncludeTextReader fXInclude10TextReader;
@@ -358,6 +389,36 @@ public class XIncludeHandler
     
     // track whether the child config needs its features refreshed
     private boolean fNeedCopyFeatures = true;
+    
+    // the number of threads reading included resources ahead of
+    // the root document; 0 if the resources are read as needed
+    private int fPrefetchThreads = 0;
+    
+    // reads included resources ahead of the root document, if enabled
+    private XIncludePrefetcher fPrefetcher;
+    
+    // whether the root document is read from a stream of the application,
+    // which can't be read again to find the resources to read ahead
+    private boolean fRootDocumentStreamed = false;
+    
+    // the counters of the last prefetcher of the root document
+    private int fPrefetchHitCount = 0;
+    private long fPrefetchedByteCount = 0;
+    
+    // the maximum size in bytes of the recordings of included
+    // resources kept by the root document; 0 if they are not kept
+    private int fIncludeCacheSize = 0;
+    
+    // whether a recording of a file is only replayed if the
+    // file has not been modified since it was recorded
+    private boolean fCheckIncludeTimestamps = false;
+    
+    // the recordings of the included resources, kept by the root
+    // document across the documents parsed
+    private XIncludeCache fIncludeCache;
+    
+    // records the resource parsed by this handler, if set
+    private XIncludeRecording fRecording;
 
     // Constructors
 
@@ -394,6 +455,9 @@ public class XIncludeHandler
         fIsXML11 = false;
         fInDTD = false;
         fSeenRootElement = false;
+        shutdownPrefetcher();
+        fPrefetchHitCount = 0;
+        fPrefetchedByteCount = 0;
 
         fBaseURIScope.clear();
         fBaseURI.clear();
@@ -531,6 +595,19 @@ public class XIncludeHandler
             fSecurityManager = null;
         }
         
+        // Get entity content cache.
+        try {
+            fEntityContentCache =
+                (EntityContentCache)componentManager.getProperty(
+                    ENTITY_CONTENT_CACHE);
+            if (fChildConfig != null) {
+                fChildConfig.setProperty(ENTITY_CONTENT_CACHE, fEntityContentCache);
+            }
+        }
+        catch (XMLConfigurationException e) {
+            fEntityContentCache = null;
+        }
+        
         // Get buffer size.
         try {
             Integer value =
@@ -551,6 +628,36 @@ public class XIncludeHandler
         	fBufferSize = ((Integer)getPropertyDefault(BUFFER_SIZE)).intValue();
         }
         
+        // Get prefetch threads.
+        try {
+            Integer value =
+                (Integer)componentManager.getProperty(
+                    XINCLUDE_PREFETCH_THREADS);
+            fPrefetchThreads = (value != null) ? value.intValue() : 0;
+        }
+        catch (XMLConfigurationException e) {
+            fPrefetchThreads = 0;
+        }
+        
+        // Get cache size; the recordings may not match the new settings.
+        try {
+            Integer value =
+                (Integer)componentManager.getProperty(
+                    XINCLUDE_CACHE_SIZE);
+            fIncludeCacheSize = (value != null) ? value.intValue() : 0;
+        }
+        catch (XMLConfigurationException e) {
+            fIncludeCacheSize = 0;
+        }
+        try {
+            fCheckIncludeTimestamps =
+                componentManager.getFeature(XINCLUDE_CACHE_CHECK_TIMESTAMPS);
+        }
+        catch (XMLConfigurationException e) {
+            fCheckIncludeTimestamps = false;
+        }
+        fIncludeCache = null;
+        
         // Reset XML 1.0 text reader.
         if (fXInclude10TextReader != null) {
         	fXInclude10TextReader.setBufferSize(fBufferSize);
@@ -618,6 +725,10 @@ public class XIncludeHandler
         if (featureId.equals(ALLOW_UE_AND_NOTATION_EVENTS)) {
             fSendUEAndNotationEvents = state;
         }
+        if (featureId.equals(XINCLUDE_CACHE_CHECK_TIMESTAMPS)) {
+            fCheckIncludeTimestamps = state;
+            fIncludeCache = null;
+        }
         if (fSettings != null) {
             fNeedCopyFeatures = true;
             fSettings.setFeature(featureId, state);
@@ -678,6 +789,13 @@ public class XIncludeHandler
             }
             return;
         }
+        if (propertyId.equals(ENTITY_CONTENT_CACHE)) {
+            fEntityContentCache = (EntityContentCache)value;
+            if (fChildConfig != null) {
+                fChildConfig.setProperty(propertyId, value);
+            }
+            return;
+        }
         if (propertyId.equals(BUFFER_SIZE)) {
             Integer bufferSize = (Integer) value;
             if (fChildConfig != null) {
@@ -696,6 +814,17 @@ public class XIncludeHandler
             }
             return;
         }
+        if (propertyId.equals(XINCLUDE_PREFETCH_THREADS)) {
+            Integer prefetchThreads = (Integer) value;
+            fPrefetchThreads = (prefetchThreads != null) ? prefetchThreads.intValue() : 0;
+            return;
+        }
+        if (propertyId.equals(XINCLUDE_CACHE_SIZE)) {
+            Integer cacheSize = (Integer) value;
+            fIncludeCacheSize = (cacheSize != null) ? cacheSize.intValue() : 0;
+            fIncludeCache = null;
+            return;
+        }
 
     } // setProperty(String,Object)
 
@@ -768,6 +897,12 @@ public class XIncludeHandler
         Augmentations augs)
         throws XNIException {
 
+        // record the events of the resource as they are received
+        if (fRecording != null && fDocumentSource != null) {
+            fRecording.startRecording(fDocumentSource, this, locator,
+                encoding, namespaceContext, augs);
+        }
+
         // we do this to ensure that the proper location is reported in errors
         // otherwise, the locator from the root document would always be used
         fErrorReporter.setDocumentLocator(locator);
@@ -798,6 +933,15 @@ public class XIncludeHandler
             }
         }
 
+        // start reading the included resources ahead
+        if (isRootDocument() && fPrefetchThreads > 0 &&
+            !fRootDocumentStreamed &&
+            !resolvesEntities(fEntityResolver) &&
+            fCurrentBaseURI.getExpandedSystemId() != null) {
+            fPrefetcher = new XIncludePrefetcher(fPrefetchThreads, fSecurityManager);
+            fPrefetcher.prefetchIncludes(fCurrentBaseURI.getExpandedSystemId());
+        }
+
         // initialize the current language
         fCurrentLanguage = XMLSymbols.EMPTY_STRING;
         saveLanguage(fCurrentLanguage);
@@ -1142,6 +1286,7 @@ public class XIncludeHandler
 
     public void endDocument(Augmentations augs) throws XNIException {
         if (isRootDocument()) {
+            shutdownPrefetcher();
             if (!fSeenRootElement) {
                 reportFatalError("RootElementRequired");
             }
@@ -1582,6 +1727,66 @@ public class XIncludeHandler
             }
         }
         
+        // Look up the recording of the resource if it was included
+        // before in the same parse mode.
+        XIncludeCache cache = getIncludeCache();
+        String cacheKey = null;
+        String includedSystemId = null;
+        XIncludeRecording recording = null;
+        if (cache != null && href.length() != 0 && xpointer == null &&
+            accept == null && acceptLanguage == null &&
+            includedSource.getByteStream() == null &&
+            includedSource.getCharacterStream() == null) {
+            try {
+                includedSystemId = XMLEntityManager.expandSystemId(
+                    includedSource.getSystemId(), includedSource.getBaseSystemId(), false);
+                if (parse.equals(XINCLUDE_PARSE_XML)) {
+                    // the included documents are validated against schemas
+                    // as part of the including document
+                    if (!fSettings.getFeature(SCHEMA_VALIDATION)) {
+                        cacheKey = "xml " + includedSystemId;
+                    }
+                }
+                else if (parse.equals(XINCLUDE_PARSE_TEXT)) {
+                    cacheKey = "text " + (fIsXML11 ? "1.1 " : "1.0 ") +
+                        attributes.getValue(XINCLUDE_ATTR_ENCODING) + " " + includedSystemId;
+                }
+                if (cacheKey != null) {
+                    recording = cache.get(cacheKey, includedSystemId);
+                }
+            }
+            catch (MalformedURIException e) {
+                // reported when the resource is read
+            }
+        }
+        
+        // Take the resource from the prefetcher if a worker has read
+        // it from the same system id.
+        XIncludePrefetcher prefetcher = recording == null ? getPrefetcher() : null;
+        if (prefetcher != null && href.length() != 0 &&
+            accept == null && acceptLanguage == null &&
+            includedSource.getByteStream() == null &&
+            includedSource.getCharacterStream() == null &&
+            (parse.equals(XINCLUDE_PARSE_XML) || parse.equals(XINCLUDE_PARSE_TEXT))) {
+            try {
+                String expandedSystemId = XMLEntityManager.expandSystemId(
+                    includedSource.getSystemId(), includedSource.getBaseSystemId(), false);
+                XIncludePrefetcher.PrefetchedResource prefetched = prefetcher.take(expandedSystemId);
+                if (prefetched != null) {
+                    if (parse.equals(XINCLUDE_PARSE_XML)) {
+                        includedSource = prefetched.getXMLInputSource(
+                            includedSource.getSystemId(), includedSource.getBaseSystemId());
+                    }
+                    else {
+                        includedSource.setByteStream(prefetched.getTextStream());
+                    }
+                }
+            }
+            catch (MalformedURIException e) {
+                // reported when the resource is read
+            }
+        }
+        
         if (parse.equals(XINCLUDE_PARSE_XML)) {
             // Instead of always creating a new configuration, the first one can be reused
             if ((xpointer != null && fXPointerChildConfig == null) 
@@ -1597,11 +1802,13 @@ public class XIncludeHandler
                         ObjectFactory.findClassLoader(),
                         true);
 
-                // use the same symbol table, error reporter, entity resolver, security manager and buffer size.
+                // use the same symbol table, error reporter, entity resolver, security manager,
+                // entity content cache and buffer size.
                 if (fSymbolTable != null) fChildConfig.setProperty(SYMBOL_TABLE, fSymbolTable);
                 if (fErrorReporter != null) fChildConfig.setProperty(ERROR_REPORTER, fErrorReporter);
                 if (fEntityResolver != null) fChildConfig.setProperty(ENTITY_RESOLVER, fEntityResolver);
                 fChildConfig.setProperty(SECURITY_MANAGER, fSecurityManager);
+                if (fEntityContentCache != null) fChildConfig.setProperty(ENTITY_CONTENT_CACHE, fEntityContentCache);
                 fChildConfig.setProperty(BUFFER_SIZE, new Integer(fBufferSize));
                 
                 // features must be copied to child configuration
@@ -1697,7 +1904,15 @@ public class XIncludeHandler
                 fHasIncludeReportedContent = false;
                 fNamespaceContext.pushScope();
 
-                fChildConfig.parse(includedSource);
+                if (recording != null) {
+                    replayIncludedDocument(recording, includedSource);
+                }
+                else if (cacheKey != null) {
+                    recordIncludedDocument(cache, cacheKey, includedSystemId, includedSource);
+                }
+                else {
+                    fChildConfig.parse(includedSource);
+                }
                 // necessary to make sure proper location is reported to the application and in errors
                 fXIncludeLocator.setLocator(fDocLocation);
                 if (fErrorReporter != null) {
@@ -1755,6 +1970,11 @@ public class XIncludeHandler
             includedSource.setEncoding(encoding);
             XIncludeTextReader textReader = null;
             
+            if (recording != null) {
+                recording.replayText(this);
+                return true;
+            }
+            
             try {
                 fHasIncludeReportedContent = false;
                 
@@ -1778,7 +1998,25 @@ public class XIncludeHandler
                     textReader = fXInclude11TextReader;
                 }
                 textReader.setErrorReporter(fErrorReporter);
-                textReader.parse();
+                if (cacheKey != null) {
+                    recording = cache.newRecording(includedSystemId, false);
+                    textReader.setRecording(recording);
+                    recording.setErrorHandler(fErrorReporter.getErrorHandler());
+                    fErrorReporter.setProperty(ERROR_HANDLER, recording);
+                    try {
+                        textReader.parse();
+                    }
+                    finally {
+                        fErrorReporter.setProperty(ERROR_HANDLER, recording.getErrorHandler());
+                        textReader.setRecording(null);
+                    }
+                    recording.endText();
+                    recording.endRecording();
+                    cache.put(cacheKey, recording);
+                }
+                else {
+                    textReader.parse();
+                }
             }
             // encoding errors
             catch (MalformedByteSequenceException ex) {
@@ -1821,6 +2059,144 @@ public class XIncludeHandler
         return true;
     }
 
+    /**
+     * Sets the input source of the root document of the next parse. The
+     * resources included by a document read from a byte stream or a
+     * character stream are not read ahead, since the prefetcher would
+     * have to read the document a second time from its system id.
+     */
+    public void setRootInputSource(XMLInputSource inputSource) {
+        fRootDocumentStreamed = inputSource != null &&
+            (inputSource.getByteStream() != null || inputSource.getCharacterStream() != null);
+    }
+
+    /**
+     * Stops reading resources ahead and keeps the counters of the prefetcher.
+     * This is called by the parser configurations once a parse is over, since
+     * a parse which fails never reaches the end of the document.
+     */
+    public void shutdownPrefetcher() {
+        if (fPrefetcher != null) {
+            fPrefetcher.shutdown();
+            fPrefetchHitCount = fPrefetcher.getHitCount();
+            fPrefetchedByteCount = fPrefetcher.getBufferedByteCount();
+            fPrefetcher = null;
+        }
+    }
+
+    /**
+     * Returns the number of included resources which were taken from
+     * the buffers of the prefetcher, while or after the last document
+     * was parsed.
+     */
+    public int getPrefetchHitCount() {
+        return fPrefetcher != null ? fPrefetcher.getHitCount() : fPrefetchHitCount;
+    }
+
+    /**
+     * Returns the number of bytes of included resources buffered by
+     * the prefetcher, while or after the last document was parsed.
+     */
+    public long getPrefetchedByteCount() {
+        return fPrefetcher != null ? fPrefetcher.getBufferedByteCount() : fPrefetchedByteCount;
+    }
+
+    /**
+     * Returns the number of included resources which were replayed from
+     * the cache of the root document since the cache was created.
+     */
+    public int getIncludeCacheHitCount() {
+        return fIncludeCache != null ? fIncludeCache.getHitCount() : 0;
+    }
+
+    /**
+     * Returns the cache of the root document, or null if the included
+     * resources are not cached.
+     */
+    private XIncludeCache getIncludeCache() {
+        XIncludeHandler root = this;
+        while (root.fParentXIncludeHandler != null) {
+            root = root.fParentXIncludeHandler;
+        }
+        if (root.fIncludeCache == null && root.fIncludeCacheSize > 0) {
+            root.fIncludeCache = new XIncludeCache(root.fIncludeCacheSize,
+                root.fCheckIncludeTimestamps);
+        }
+        return root.fIncludeCache;
+    }
+
+    /** Sets the recording of the resource parsed by this handler. */
+    void setRecording(XIncludeRecording recording) {
+        fRecording = recording;
+    }
+
+    /**
+     * Parses an included document with the child configuration and
+     * records the events received by its handler. The recording is kept
+     * if the document was parsed without errors.
+     */
+    private void recordIncludedDocument(XIncludeCache cache, String cacheKey,
+        String expandedSystemId, XMLInputSource includedSource) throws IOException {
+        XIncludeHandler handler = (XIncludeHandler)fChildConfig.getProperty(
+            Constants.XERCES_PROPERTY_PREFIX + Constants.XINCLUDE_HANDLER_PROPERTY);
+        XIncludeRecording recording =
+            cache.newRecording(expandedSystemId, fChildConfig.getFeature(NAMESPACES));
+        recording.setErrorHandler(fErrorReporter.getErrorHandler());
+        fErrorReporter.setProperty(ERROR_HANDLER, recording);
+        handler.setRecording(recording);
+        try {
+            fChildConfig.parse(includedSource);
+        }
+        finally {
+            handler.setRecording(null);
+            fErrorReporter.setProperty(ERROR_HANDLER, recording.getErrorHandler());
+            recording.endRecording();
+        }
+        cache.put(cacheKey, recording);
+    }
+
+    /**
+     * Replays the recording of an included document to the handler of
+     * the child configuration, in place of parsing the document.
+     */
+    private void replayIncludedDocument(XIncludeRecording recording,
+        XMLInputSource includedSource) {
+        XIncludeHandler handler = (XIncludeHandler)fChildConfig.getProperty(
+            Constants.XERCES_PROPERTY_PREFIX + Constants.XINCLUDE_HANDLER_PROPERTY);
+        handler.reset(fChildConfig);
+        recording.replay(handler, includedSource, fNamespaceContext);
+    }
+
+    /**
+     * Returns the prefetcher of the root document, or null if the
+     * included resources are not read ahead.
+     */
+    private XIncludePrefetcher getPrefetcher() {
+        XIncludeHandler root = this;
+        while (root.fParentXIncludeHandler != null) {
+            root = root.fParentXIncludeHandler;
+        }
+        return root.fPrefetcher;
+    }
+
+    /**
+     * Returns true if the given entity resolver may resolve entities.
+     * An application resolver may not be thread safe and may map an
+     * identifier to other content, so resources are not read ahead.
+     */
+    private static boolean resolvesEntities(XMLEntityResolver resolver) {
+        if (resolver instanceof DOMEntityResolverWrapper) {
+            return ((DOMEntityResolverWrapper) resolver).getEntityResolver() != null;
+        }
+        if (resolver instanceof EntityResolver2Wrapper) {
+            return ((EntityResolver2Wrapper) resolver).getEntityResolver() != null;
+        }
+        if (resolver instanceof EntityResolverWrapper) {
+            return ((EntityResolverWrapper) resolver).getEntityResolver() != null;
+        }
+        return resolver != null;
+    }
+
     /**
      * Returns true if the element has the namespace "http://www.w3.org/2001/XInclude"
      * @param element the element to check
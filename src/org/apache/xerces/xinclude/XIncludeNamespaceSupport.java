@@ -31,6 +31,8 @@ import org.apache.xerces.xni.NamespaceContext;
  */
 public class XIncludeNamespaceSupport extends MultipleScopeNamespaceSupport {
 
+    private static final long serialVersionUID = 4380537542081668964L;
+
     /**
      * This stores whether or not the context at the matching depth was valid.
      */
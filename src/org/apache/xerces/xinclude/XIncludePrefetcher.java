@@ -0,0 +1,584 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.xerces.xinclude;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLConnection;
+import java.nio.ByteBuffer;
+import java.util.Enumeration;
+import java.util.Hashtable;
+import java.util.Stack;
+import java.util.Vector;
+
+import org.apache.xerces.impl.Constants;
+import org.apache.xerces.impl.XMLEntityManager;
+import org.apache.xerces.parsers.XML11NonValidatingConfiguration;
+import org.apache.xerces.parsers.XMLDocumentParser;
+import org.apache.xerces.util.ByteBufferInputSource;
+import org.apache.xerces.util.SecurityManager;
+import org.apache.xerces.util.URI.MalformedURIException;
+import org.apache.xerces.xni.Augmentations;
+import org.apache.xerces.xni.NamespaceContext;
+import org.apache.xerces.xni.QName;
+import org.apache.xerces.xni.XMLAttributes;
+import org.apache.xerces.xni.XNIException;
+import org.apache.xerces.xni.parser.XMLConfigurationException;
+import org.apache.xerces.xni.parser.XMLErrorHandler;
+import org.apache.xerces.xni.parser.XMLInputSource;
+import org.apache.xerces.xni.parser.XMLParseException;
+
+/**
+ * Reads the resources included by a document ahead of the XIncludeHandler,
+ * on a bounded number of worker threads, and buffers their bytes. The
+ * resources to read are found by scanning the document for include
+ * elements: the root document is read a second time from its system
+ * identifier for this purpose, and the included XML resources are scanned
+ * from their buffers, so the resources included by included resources are
+ * read ahead too. Nothing is read ahead for a root document read from a
+ * stream, which can't be read a second time.
+ * <p>
+ * The XIncludeHandler still includes the resources in document order: when
+ * it includes a resource it takes its bytes from the prefetcher, waiting for
+ * them if necessary, and reads the resource itself if it was never requested,
+ * has not been started yet, could not be read or was redirected, so that the
+ * result and the errors reported are the same as without prefetching. The
+ * bytes of a resource are only taken once.
+ *
+ * @xerces.internal
+ *
+ * @version $Id$
+ */
+final class XIncludePrefetcher {
+
+    //
+    // Constants
+    //
+
+    /** The number of bytes buffered above which no resource is started. */
+    private static final int MAX_BUFFERED_BYTES = 1 << 24;   // 16M
+
+    /** Feature identifier: load external DTD. */
+    private static final String LOAD_EXTERNAL_DTD =
+        Constants.XERCES_FEATURE_PREFIX + Constants.LOAD_EXTERNAL_DTD_FEATURE;
+
+    /** Feature identifier: external general entities. */
+    private static final String EXTERNAL_GENERAL_ENTITIES =
+        Constants.SAX_FEATURE_PREFIX + Constants.EXTERNAL_GENERAL_ENTITIES_FEATURE;
+
+    /** Property identifier: error handler. */
+    private static final String ERROR_HANDLER =
+        Constants.XERCES_PROPERTY_PREFIX + Constants.ERROR_HANDLER_PROPERTY;
+
+    /** Property identifier: security manager. */
+    private static final String SECURITY_MANAGER =
+        Constants.XERCES_PROPERTY_PREFIX + Constants.SECURITY_MANAGER_PROPERTY;
+
+    /** The resource requested in place of a resource which has been taken. */
+    private static final PrefetchedResource TAKEN = new PrefetchedResource(null, false, true);
+    static {
+        TAKEN.fTaken = true;
+    }
+
+    /** The local name of the xml:base attribute. */
+    private static final String XML_BASE = "base";
+
+    //
+    // Data
+    //
+
+    /** The maximum number of worker threads. */
+    private final int fMaxThreads;
+
+    /** The security manager of the scanners, if any. */
+    private final SecurityManager fSecurityManager;
+
+    /** The resources requested, by expanded system id. */
+    private final Hashtable fResources = new Hashtable();
+
+    /** The resources waiting for a worker. */
+    private final Vector fQueue = new Vector();
+
+    /** The number of worker threads started. */
+    private int fThreadCount = 0;
+
+    /** The number of worker threads waiting for a resource. */
+    private int fIdleCount = 0;
+
+    /** The number of bytes read and not taken yet. */
+    private int fBufferedBytes = 0;
+
+    /** True once the XIncludeHandler no longer needs any resource. */
+    private boolean fShutdown = false;
+
+    /** The number of resources taken from a buffer. */
+    private int fHitCount = 0;
+
+    /** The total number of bytes buffered. */
+    private long fBufferedByteCount = 0;
+
+    //
+    // Constructors
+    //
+
+    /**
+     * Constructs a prefetcher. No thread is started until a resource
+     * is requested.
+     */
+    XIncludePrefetcher(int maxThreads, SecurityManager securityManager) {
+        fMaxThreads = maxThreads;
+        fSecurityManager = securityManager;
+    } // <init>(int,SecurityManager)
+
+    //
+    // Public methods
+    //
+
+    /**
+     * Requests the resources included by the document with the given
+     * expanded system id, which is read again to be scanned.
+     */
+    public void prefetchIncludes(String systemId) {
+        prefetch(systemId, true, false);
+    } // prefetchIncludes(String)
+
+    /**
+     * Returns the resource with the given expanded system id once it has
+     * been read, or null if the caller should read it itself: when the
+     * resource was never requested, has already been taken, has not been
+     * started by a worker yet, could not be read or was redirected.
+     */
+    public synchronized PrefetchedResource take(String systemId) {
+        PrefetchedResource resource = (PrefetchedResource) fResources.get(systemId);
+        if (resource == null || resource.fTaken || resource.fScanOnly) {
+            return null;
+        }
+        resource.fTaken = true;
+        // the bytes are no longer referenced by the prefetcher once taken
+        fResources.put(systemId, TAKEN);
+        if (!resource.fStarted) {
+            fQueue.removeElement(resource);
+            return null;
+        }
+        while (!resource.fDone) {
+            try {
+                wait();
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return null;
+            }
+        }
+        if (resource.fBytes == null) {
+            return null;
+        }
+        fBufferedBytes -= resource.fLength;
+        ++fHitCount;
+        notifyAll();
+        return resource;
+    } // take(String):PrefetchedResource
+
+    /**
+     * Discards the resources not taken yet and lets the workers terminate
+     * once they have finished the resource they are reading.
+     */
+    public synchronized void shutdown() {
+        fShutdown = true;
+        fQueue.removeAllElements();
+        Enumeration resources = fResources.elements();
+        while (resources.hasMoreElements()) {
+            ((PrefetchedResource) resources.nextElement()).fBytes = null;
+        }
+        fResources.clear();
+        fBufferedBytes = 0;
+        notifyAll();
+    } // shutdown()
+
+    /** Returns the number of resources taken from a buffer. */
+    public synchronized int getHitCount() {
+        return fHitCount;
+    } // getHitCount():int
+
+    /** Returns the total number of bytes buffered. */
+    public synchronized long getBufferedByteCount() {
+        return fBufferedByteCount;
+    } // getBufferedByteCount():long
+
+    //
+    // Private methods
+    //
+
+    /**
+     * Requests the resource with the given expanded system id. The resource
+     * is scanned for include elements if it is included as XML. A resource
+     * only requested to be scanned is not buffered.
+     */
+    private synchronized void prefetch(String systemId, boolean scan, boolean buffer) {
+        if (fShutdown || systemId == null) {
+            return;
+        }
+        PrefetchedResource resource = (PrefetchedResource) fResources.get(systemId);
+        if (resource != null) {
+            if (!resource.fTaken) {
+                resource.fScan |= scan;
+            }
+            return;
+        }
+        resource = new PrefetchedResource(systemId, scan, !buffer);
+        fResources.put(systemId, resource);
+        fQueue.addElement(resource);
+        if (fIdleCount == 0 && fThreadCount < fMaxThreads) {
+            Worker worker = new Worker(fThreadCount++);
+            worker.start();
+        }
+        else {
+            notifyAll();
+        }
+    } // prefetch(String,boolean,boolean)
+
+    /** Reads the bytes of a resource. */
+    private static void read(PrefetchedResource resource) throws IOException {
+        URLConnection connect = new URL(resource.fSystemId).openConnection();
+        InputStream stream = connect.getInputStream();
+        try {
+            // the XIncludeHandler reports the redirected system id
+            if (connect instanceof HttpURLConnection &&
+                !connect.getURL().toString().equals(resource.fSystemId)) {
+                return;
+            }
+            // the text reader needs the content type
+            String contentType = connect.getContentType();
+            if (contentType == null) {
+                return;
+            }
+            byte[] bytes = new byte[Math.max(connect.getContentLength(), 0) + 1];
+            int length = 0;
+            int count;
+            while ((count = stream.read(bytes, length, bytes.length - length)) != -1) {
+                length += count;
+                if (length == bytes.length) {
+                    byte[] newBytes = new byte[bytes.length << 1];
+                    System.arraycopy(bytes, 0, newBytes, 0, length);
+                    bytes = newBytes;
+                }
+            }
+            resource.fBytes = bytes;
+            resource.fLength = length;
+            resource.fContentType = contentType;
+        }
+        finally {
+            stream.close();
+        }
+    } // read(PrefetchedResource)
+
+    //
+    // Classes
+    //
+
+    /**
+     * A resource requested from the prefetcher.
+     */
+    static final class PrefetchedResource {
+
+        /** The expanded system id of the resource. */
+        final String fSystemId;
+
+        /** True if the resource is only read to be scanned. */
+        final boolean fScanOnly;
+
+        /** True if the resource is included as XML. */
+        boolean fScan;
+
+        /** The bytes of the resource, or null if it could not be read. */
+        byte[] fBytes;
+        int fLength;
+
+        /** The content type reported by the connection. */
+        String fContentType;
+
+        boolean fStarted;
+        boolean fDone;
+        boolean fTaken;
+
+        PrefetchedResource(String systemId, boolean scan, boolean scanOnly) {
+            fSystemId = systemId;
+            fScan = scan;
+            fScanOnly = scanOnly;
+        }
+
+        /** Returns an input source for the bytes of the resource, parsed as XML. */
+        XMLInputSource getXMLInputSource(String systemId, String baseSystemId) {
+            return new ByteBufferInputSource(null, systemId, baseSystemId,
+                    ByteBuffer.wrap(fBytes, 0, fLength), null);
+        }
+
+        /** Returns a stream of the bytes of the resource, read as text. */
+        InputStream getTextStream() {
+            return new PrefetchedInputStream(fBytes, fLength, fContentType);
+        }
+
+    } // class PrefetchedResource
+
+    /**
+     * A stream of the bytes of a resource, which the text reader decodes
+     * as it would decode the resource read from its URL.
+     */
+    static final class PrefetchedInputStream extends ByteArrayInputStream {
+
+        /** The content type reported by the connection. */
+        final String fContentType;
+
+        PrefetchedInputStream(byte[] bytes, int length, String contentType) {
+            super(bytes, 0, length);
+            fContentType = contentType;
+        }
+
+    } // class PrefetchedInputStream
+
+    /**
+     * A worker thread, which reads the resources requested one at a time
+     * and scans the ones included as XML for include elements.
+     */
+    final class Worker extends Thread {
+
+        /** The scanner of this worker. */
+        private final IncludeScanner fScanner;
+
+        Worker(int index) {
+            super("XIncludePrefetcher-" + index);
+            setDaemon(true);
+            fScanner = new IncludeScanner();
+        }
+
+        public void run() {
+            PrefetchedResource resource = null;
+            try {
+                while (true) {
+                    synchronized (XIncludePrefetcher.this) {
+                        while ((fQueue.isEmpty() || fBufferedBytes >= MAX_BUFFERED_BYTES) && !fShutdown) {
+                            ++fIdleCount;
+                            try {
+                                XIncludePrefetcher.this.wait();
+                            }
+                            catch (InterruptedException e) {
+                                fShutdown = true;
+                            }
+                            --fIdleCount;
+                        }
+                        if (fShutdown) {
+                            return;
+                        }
+                        resource = (PrefetchedResource) fQueue.remove(0);
+                        resource.fStarted = true;
+                    }
+
+                    if (resource.fScanOnly) {
+                        fScanner.scan(new XMLInputSource(null, resource.fSystemId, null));
+                    }
+                    else {
+                        try {
+                            read(resource);
+                        }
+                        catch (Exception e) {
+                            resource.fBytes = null;
+                        }
+                    }
+
+                    // the bytes are released on shutdown, so the source to
+                    // scan is created while the lock is held
+                    XMLInputSource scanSource = null;
+                    synchronized (XIncludePrefetcher.this) {
+                        if (resource.fBytes != null && !fShutdown) {
+                            fBufferedBytes += resource.fLength;
+                            fBufferedByteCount += resource.fLength;
+                        }
+                        else {
+                            resource.fBytes = null;
+                        }
+                        resource.fDone = true;
+                        if (resource.fScan && resource.fBytes != null) {
+                            scanSource = resource.getXMLInputSource(resource.fSystemId, null);
+                        }
+                        XIncludePrefetcher.this.notifyAll();
+                    }
+                    resource = null;
+                    if (scanSource != null) {
+                        fScanner.scan(scanSource);
+                    }
+                }
+            }
+            finally {
+                // a worker which fails with an error marks the resource it
+                // was reading as done, so that the XIncludeHandler reads it
+                // itself instead of waiting for it
+                synchronized (XIncludePrefetcher.this) {
+                    --fThreadCount;
+                    if (resource != null && !resource.fDone) {
+                        resource.fBytes = null;
+                        resource.fDone = true;
+                    }
+                    XIncludePrefetcher.this.notifyAll();
+                }
+            }
+        } // run()
+
+    } // class Worker
+
+    /**
+     * Scans a document for include elements and requests the resources
+     * they include, resolving their href against the base URI of the
+     * element. Include elements inside a fallback are ignored. Any error
+     * stops the scan.
+     */
+    final class IncludeScanner extends XMLDocumentParser implements XMLErrorHandler {
+
+        /** The base URIs of the open elements. */
+        private final Stack fBaseURIs = new Stack();
+
+        /** The depth of the fallback element being ignored, or 0. */
+        private int fFallbackDepth;
+
+        IncludeScanner() {
+            super(new XML11NonValidatingConfiguration());
+            try {
+                fConfiguration.setFeature(LOAD_EXTERNAL_DTD, false);
+                fConfiguration.setFeature(EXTERNAL_GENERAL_ENTITIES, false);
+                fConfiguration.setProperty(ERROR_HANDLER, this);
+                if (fSecurityManager != null) {
+                    fConfiguration.setProperty(SECURITY_MANAGER, fSecurityManager);
+                }
+            }
+            catch (XMLConfigurationException e) {
+            }
+        }
+
+        /** Scans the given document. */
+        void scan(XMLInputSource source) {
+            fBaseURIs.removeAllElements();
+            fBaseURIs.push(source.getSystemId());
+            fFallbackDepth = 0;
+            try {
+                parse(source);
+            }
+            catch (Exception e) {
+                // the XIncludeHandler reports the error
+            }
+            finally {
+                fBaseURIs.removeAllElements();
+            }
+        } // scan(XMLInputSource)
+
+        //
+        // XMLDocumentHandler methods
+        //
+
+        public void startElement(QName element, XMLAttributes attributes, Augmentations augs)
+            throws XNIException {
+            fBaseURIs.push(getBaseURI(attributes));
+            if (fFallbackDepth == 0 && element.uri == XIncludeHandler.XINCLUDE_NS_URI &&
+                element.localpart == XIncludeHandler.XINCLUDE_FALLBACK) {
+                fFallbackDepth = fBaseURIs.size();
+            }
+            else {
+                checkInclude(element, attributes);
+            }
+        } // startElement(QName,XMLAttributes,Augmentations)
+
+        public void emptyElement(QName element, XMLAttributes attributes, Augmentations augs)
+            throws XNIException {
+            fBaseURIs.push(getBaseURI(attributes));
+            checkInclude(element, attributes);
+            fBaseURIs.pop();
+        } // emptyElement(QName,XMLAttributes,Augmentations)
+
+        public void endElement(QName element, Augmentations augs) throws XNIException {
+            if (fFallbackDepth == fBaseURIs.size()) {
+                fFallbackDepth = 0;
+            }
+            fBaseURIs.pop();
+        } // endElement(QName,Augmentations)
+
+        //
+        // XMLErrorHandler methods
+        //
+
+        public void warning(String domain, String key, XMLParseException exception)
+            throws XNIException {
+        } // warning(String,String,XMLParseException)
+
+        public void error(String domain, String key, XMLParseException exception)
+            throws XNIException {
+        } // error(String,String,XMLParseException)
+
+        public void fatalError(String domain, String key, XMLParseException exception)
+            throws XNIException {
+            throw exception;
+        } // fatalError(String,String,XMLParseException)
+
+        //
+        // Private methods
+        //
+
+        /** Returns the base URI of an element with the given attributes. */
+        private String getBaseURI(XMLAttributes attributes) {
+            String baseURI = (String) fBaseURIs.peek();
+            String xmlBase = attributes.getValue(NamespaceContext.XML_URI, XML_BASE);
+            if (xmlBase != null && baseURI != null) {
+                try {
+                    baseURI = XMLEntityManager.expandSystemId(xmlBase, baseURI, false);
+                }
+                catch (MalformedURIException e) {
+                }
+            }
+            return baseURI;
+        } // getBaseURI(XMLAttributes):String
+
+        /** Requests the resource of an include element. */
+        private void checkInclude(QName element, XMLAttributes attributes) {
+            if (fFallbackDepth != 0 || element.uri != XIncludeHandler.XINCLUDE_NS_URI ||
+                element.localpart != XIncludeHandler.XINCLUDE_INCLUDE) {
+                return;
+            }
+            // resources negotiated with accept headers are always read in place
+            String href = attributes.getValue(XIncludeHandler.XINCLUDE_ATTR_HREF);
+            if (href == null || href.length() == 0 ||
+                attributes.getValue(XIncludeHandler.XINCLUDE_ATTR_ACCEPT) != null ||
+                attributes.getValue(XIncludeHandler.XINCLUDE_ATTR_ACCEPT_LANGUAGE) != null) {
+                return;
+            }
+            String parse = attributes.getValue(XIncludeHandler.XINCLUDE_ATTR_PARSE);
+            if (parse != null && !parse.equals(XIncludeHandler.XINCLUDE_PARSE_XML) &&
+                !parse.equals(XIncludeHandler.XINCLUDE_PARSE_TEXT)) {
+                return;
+            }
+            try {
+                String baseURI = (String) fBaseURIs.peek();
+                prefetch(XMLEntityManager.expandSystemId(href, baseURI, false),
+                        !XIncludeHandler.XINCLUDE_PARSE_TEXT.equals(parse), true);
+            }
+            catch (MalformedURIException e) {
+                // the XIncludeHandler reports the error
+            }
+        } // checkInclude(QName,XMLAttributes)
+
+    } // class IncludeScanner
+
+} // class XIncludePrefetcher
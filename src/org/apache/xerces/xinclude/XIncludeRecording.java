@@ -0,0 +1,859 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.xerces.xinclude;
+
+import java.util.Enumeration;
+
+import org.apache.xerces.util.AugmentationsImpl;
+import org.apache.xerces.util.DefaultErrorHandler;
+import org.apache.xerces.util.XMLAttributesImpl;
+import org.apache.xerces.util.XMLResourceIdentifierImpl;
+import org.apache.xerces.xni.Augmentations;
+import org.apache.xerces.xni.NamespaceContext;
+import org.apache.xerces.xni.QName;
+import org.apache.xerces.xni.XMLAttributes;
+import org.apache.xerces.xni.XMLDocumentHandler;
+import org.apache.xerces.xni.XMLLocator;
+import org.apache.xerces.xni.XMLResourceIdentifier;
+import org.apache.xerces.xni.XMLString;
+import org.apache.xerces.xni.XNIException;
+import org.apache.xerces.xni.parser.XMLDocumentSource;
+import org.apache.xerces.xni.parser.XMLErrorHandler;
+import org.apache.xerces.xni.parser.XMLInputSource;
+import org.apache.xerces.xni.parser.XMLParseException;
+
+/**
+ * The XNI events of an included resource, recorded as the parser delivers
+ * them to the XIncludeHandler of the resource, so that the resource can be
+ * included again by replaying them to that handler instead of parsing it.
+ * The events are recorded before they are processed by the handler: the
+ * handler performs the base URI, language and namespace fixups and the
+ * includes of the resource each time the events are replayed, as it does
+ * when the resource is parsed. The namespace declarations and the location
+ * of each event are replayed too.
+ * <p>
+ * A recording is only complete if the resource was parsed without any
+ * error or warning and has no document type declaration, whose events are
+ * not recorded. The recording counts the errors as the error handler of the
+ * error reporter while the resource is parsed. A resource included as text
+ * is recorded as the characters delivered by the text reader.
+ *
+ * @xerces.internal
+ *
+ * @version $Id$
+ */
+final class XIncludeRecording implements XMLDocumentHandler, XMLErrorHandler {
+
+    //
+    // Constants
+    //
+
+    // event types
+
+    private static final byte START_DOCUMENT = 0;
+    private static final byte XML_DECL = 1;
+    private static final byte COMMENT = 2;
+    private static final byte PROCESSING_INSTRUCTION = 3;
+    private static final byte START_ELEMENT = 4;
+    private static final byte EMPTY_ELEMENT = 5;
+    private static final byte END_ELEMENT = 6;
+    private static final byte START_GENERAL_ENTITY = 7;
+    private static final byte TEXT_DECL = 8;
+    private static final byte END_GENERAL_ENTITY = 9;
+    private static final byte CHARACTERS = 10;
+    private static final byte IGNORABLE_WHITESPACE = 11;
+    private static final byte START_CDATA = 12;
+    private static final byte END_CDATA = 13;
+    private static final byte END_DOCUMENT = 14;
+
+    // approximate sizes, in bytes
+
+    private static final int EVENT_SIZE = 48;
+    private static final int ELEMENT_SIZE = 48;
+    private static final int ATTRIBUTE_SIZE = 64;
+    private static final int STRING_SIZE = 40;
+
+    //
+    // Data
+    //
+
+    /** The size above which the recording is discarded, in bytes. */
+    private final int fMaxSize;
+
+    /** True if the namespace contexts of the elements are replayed. */
+    private final boolean fBindNamespaces;
+
+    /** The last modification time of the recorded file, or 0. */
+    private final long fLastModified;
+
+    // events
+
+    private byte[] fTypes = new byte[32];
+    private Object[] fData = new Object[32];
+    private Object[] fAugs = new Object[32];
+    private int[] fTextOffsets = new int[32];
+    private int[] fTextLengths = new int[32];
+    private int fCount = 0;
+
+    // the characters of the events
+
+    private char[] fChars = new char[256];
+    private int fCharCount = 0;
+
+    // the location of the events
+
+    private int[] fLineNumbers = new int[32];
+    private int[] fColumnNumbers = new int[32];
+    private int[] fCharacterOffsets = new int[32];
+    private String[] fEncodings = new String[32];
+    private String[] fXMLVersions = new String[32];
+
+    /** The base and expanded system ids reported for the resource. */
+    private String fBaseSystemId;
+    private String fExpandedSystemId;
+
+    /** The approximate size of the recording, in bytes. */
+    private int fSize = 0;
+
+    /** True once the resource has been recorded completely. */
+    private boolean fComplete = false;
+
+    /** True if the recording has been discarded. */
+    private boolean fDiscarded = false;
+
+    // recording
+
+    /** The handler of the resource, to which the events are passed on. */
+    private XMLDocumentHandler fDocumentHandler;
+
+    /** The source of the events. */
+    private XMLDocumentSource fDocumentSource;
+
+    /** The locator of the resource. */
+    private XMLLocator fLocator;
+
+    /** The namespace context of the resource. */
+    private NamespaceContext fNamespaceContext;
+
+    /** The error handler to which the errors are passed on. */
+    private XMLErrorHandler fErrorHandler;
+
+    /** The handler of the errors if no error handler is set. */
+    private XMLErrorHandler fDefaultErrorHandler;
+
+    //
+    // Constructors
+    //
+
+    /** Constructs an empty recording. */
+    XIncludeRecording(int maxSize, boolean bindNamespaces, long lastModified) {
+        fMaxSize = maxSize;
+        fBindNamespaces = bindNamespaces;
+        fLastModified = lastModified;
+    } // <init>(int,boolean,long)
+
+    //
+    // Public methods
+    //
+
+    /**
+     * Starts recording the events of a document, on its start. The events
+     * which follow are passed on to the given handler through the recording.
+     */
+    public void startRecording(XMLDocumentSource source, XMLDocumentHandler handler,
+            XMLLocator locator, String encoding, NamespaceContext namespaceContext,
+            Augmentations augs) {
+        fDocumentSource = source;
+        fDocumentHandler = handler;
+        fLocator = locator;
+        fNamespaceContext = namespaceContext;
+        fBaseSystemId = locator.getBaseSystemId();
+        fExpandedSystemId = locator.getExpandedSystemId();
+        int event = addEvent(START_DOCUMENT, augs);
+        fData[event] = encoding;
+        source.setDocumentHandler(this);
+    } // startRecording(XMLDocumentSource,XMLDocumentHandler,XMLLocator,String,NamespaceContext,Augmentations)
+
+    /** Records the characters of a resource included as text. */
+    public void addText(XMLString text) {
+        addText(addEvent(CHARACTERS, null), text);
+    } // addText(XMLString)
+
+    /** Completes the recording of a resource included as text. */
+    public void endText() {
+        fComplete = true;
+    } // endText()
+
+    /** Stops recording and releases the objects of the parse. */
+    public void endRecording() {
+        if (fDocumentSource != null && fDocumentSource.getDocumentHandler() == this) {
+            fDocumentSource.setDocumentHandler(fDocumentHandler);
+        }
+        fDocumentSource = null;
+        fDocumentHandler = null;
+        fLocator = null;
+        fNamespaceContext = null;
+        fErrorHandler = null;
+        fDefaultErrorHandler = null;
+        if (fDiscarded || !fComplete) {
+            discard();
+        }
+        else {
+            trim();
+        }
+    } // endRecording()
+
+    /** Sets the error handler to which the errors are passed on. */
+    public void setErrorHandler(XMLErrorHandler errorHandler) {
+        fErrorHandler = errorHandler;
+    } // setErrorHandler(XMLErrorHandler)
+
+    /** Returns the error handler to which the errors are passed on. */
+    public XMLErrorHandler getErrorHandler() {
+        return fErrorHandler;
+    } // getErrorHandler():XMLErrorHandler
+
+    /** Returns true if the resource has been recorded completely. */
+    public boolean isComplete() {
+        return fComplete && !fDiscarded;
+    } // isComplete():boolean
+
+    /** Returns the approximate size of the recording, in bytes. */
+    public int getSize() {
+        return fSize;
+    } // getSize():int
+
+    /** Returns the last modification time of the recorded file, or 0. */
+    public long getLastModified() {
+        return fLastModified;
+    } // getLastModified():long
+
+    /**
+     * Replays the events of a document to its handler, for the given source
+     * and in the given namespace context, as the parser would deliver them.
+     */
+    public void replay(XMLDocumentHandler handler, XMLInputSource source,
+            NamespaceContext namespaceContext) throws XNIException {
+
+        ReplayLocator locator = new ReplayLocator(source.getPublicId(),
+                source.getSystemId(), fBaseSystemId, fExpandedSystemId);
+        QName element = new QName();
+        XMLAttributesImpl attributes = new XMLAttributesImpl();
+        XMLString text = new XMLString();
+        namespaceContext.reset();
+
+        for (int event = 0; event < fCount; ++event) {
+            locator.fLineNumber = fLineNumbers[event];
+            locator.fColumnNumber = fColumnNumbers[event];
+            locator.fCharacterOffset = fCharacterOffsets[event];
+            locator.fEncoding = fEncodings[event];
+            locator.fXMLVersion = fXMLVersions[event];
+            Augmentations augs = getAugmentations((Object[]) fAugs[event]);
+            switch (fTypes[event]) {
+                case START_DOCUMENT: {
+                    handler.startDocument(locator, (String) fData[event], namespaceContext, augs);
+                    break;
+                }
+                case XML_DECL: {
+                    String[] decl = (String[]) fData[event];
+                    handler.xmlDecl(decl[0], decl[1], decl[2], augs);
+                    break;
+                }
+                case COMMENT: {
+                    handler.comment(getText(event, text), augs);
+                    break;
+                }
+                case PROCESSING_INSTRUCTION: {
+                    handler.processingInstruction((String) fData[event], getText(event, text), augs);
+                    break;
+                }
+                case START_ELEMENT:
+                case EMPTY_ELEMENT: {
+                    ElementEvent data = (ElementEvent) fData[event];
+                    if (fBindNamespaces) {
+                        namespaceContext.pushContext();
+                        for (int i = 0; i < data.fNamespaces.length; i += 2) {
+                            namespaceContext.declarePrefix(data.fNamespaces[i], data.fNamespaces[i + 1]);
+                        }
+                    }
+                    element.setValues(data.fName);
+                    data.getAttributes(attributes);
+                    if (fTypes[event] == START_ELEMENT) {
+                        handler.startElement(element, attributes, augs);
+                    }
+                    else {
+                        handler.emptyElement(element, attributes, augs);
+                        if (fBindNamespaces) {
+                            namespaceContext.popContext();
+                        }
+                    }
+                    break;
+                }
+                case END_ELEMENT: {
+                    element.setValues((QName) fData[event]);
+                    handler.endElement(element, augs);
+                    if (fBindNamespaces) {
+                        namespaceContext.popContext();
+                    }
+                    break;
+                }
+                case START_GENERAL_ENTITY: {
+                    Object[] entity = (Object[]) fData[event];
+                    handler.startGeneralEntity((String) entity[0],
+                            (XMLResourceIdentifier) entity[1], (String) entity[2], augs);
+                    break;
+                }
+                case TEXT_DECL: {
+                    String[] decl = (String[]) fData[event];
+                    handler.textDecl(decl[0], decl[1], augs);
+                    break;
+                }
+                case END_GENERAL_ENTITY: {
+                    handler.endGeneralEntity((String) fData[event], augs);
+                    break;
+                }
+                case CHARACTERS: {
+                    handler.characters(getText(event, text), augs);
+                    break;
+                }
+                case IGNORABLE_WHITESPACE: {
+                    handler.ignorableWhitespace(getText(event, text), augs);
+                    break;
+                }
+                case START_CDATA: {
+                    handler.startCDATA(augs);
+                    break;
+                }
+                case END_CDATA: {
+                    handler.endCDATA(augs);
+                    break;
+                }
+                case END_DOCUMENT: {
+                    handler.endDocument(augs);
+                    break;
+                }
+            }
+        }
+
+    } // replay(XMLDocumentHandler,XMLInputSource,NamespaceContext)
+
+    /**
+     * Replays the characters of a resource included as text to the handler
+     * of the including document, as the text reader would deliver them.
+     */
+    public void replayText(XIncludeHandler handler) throws XNIException {
+        XMLString text = new XMLString();
+        handler.fHasIncludeReportedContent = true;
+        for (int event = 0; event < fCount; ++event) {
+            handler.characters(getText(event, text), handler.modifyAugmentations(null, true));
+        }
+    } // replayText(XIncludeHandler)
+
+    //
+    // XMLDocumentHandler methods
+    //
+
+    public void startDocument(XMLLocator locator, String encoding,
+            NamespaceContext namespaceContext, Augmentations augs) throws XNIException {
+        // the start of the document is recorded by startRecording
+        fDocumentHandler.startDocument(locator, encoding, namespaceContext, augs);
+    } // startDocument(XMLLocator,String,NamespaceContext,Augmentations)
+
+    public void xmlDecl(String version, String encoding, String standalone, Augmentations augs)
+        throws XNIException {
+        int event = addEvent(XML_DECL, augs);
+        if (event != -1) {
+            fData[event] = new String[] { version, encoding, standalone };
+            fSize += 3 * STRING_SIZE;
+        }
+        fDocumentHandler.xmlDecl(version, encoding, standalone, augs);
+    } // xmlDecl(String,String,String,Augmentations)
+
+    public void doctypeDecl(String rootElement, String publicId, String systemId,
+            Augmentations augs) throws XNIException {
+        // the declarations of the document type are not recorded
+        discard();
+        fDocumentHandler.doctypeDecl(rootElement, publicId, systemId, augs);
+    } // doctypeDecl(String,String,String,Augmentations)
+
+    public void comment(XMLString text, Augmentations augs) throws XNIException {
+        addText(addEvent(COMMENT, augs), text);
+        fDocumentHandler.comment(text, augs);
+    } // comment(XMLString,Augmentations)
+
+    public void processingInstruction(String target, XMLString data, Augmentations augs)
+        throws XNIException {
+        int event = addEvent(PROCESSING_INSTRUCTION, augs);
+        if (event != -1) {
+            fData[event] = target;
+            fSize += STRING_SIZE;
+        }
+        addText(event, data);
+        fDocumentHandler.processingInstruction(target, data, augs);
+    } // processingInstruction(String,XMLString,Augmentations)
+
+    public void startElement(QName element, XMLAttributes attributes, Augmentations augs)
+        throws XNIException {
+        addElement(addEvent(START_ELEMENT, augs), element, attributes);
+        fDocumentHandler.startElement(element, attributes, augs);
+    } // startElement(QName,XMLAttributes,Augmentations)
+
+    public void emptyElement(QName element, XMLAttributes attributes, Augmentations augs)
+        throws XNIException {
+        addElement(addEvent(EMPTY_ELEMENT, augs), element, attributes);
+        fDocumentHandler.emptyElement(element, attributes, augs);
+    } // emptyElement(QName,XMLAttributes,Augmentations)
+
+    public void startGeneralEntity(String name, XMLResourceIdentifier identifier,
+            String encoding, Augmentations augs) throws XNIException {
+        int event = addEvent(START_GENERAL_ENTITY, augs);
+        if (event != -1) {
+            XMLResourceIdentifier copy = null;
+            if (identifier != null) {
+                copy = new XMLResourceIdentifierImpl(identifier.getPublicId(),
+                        identifier.getLiteralSystemId(), identifier.getBaseSystemId(),
+                        identifier.getExpandedSystemId(), identifier.getNamespace());
+            }
+            fData[event] = new Object[] { name, copy, encoding };
+            fSize += 2 * STRING_SIZE + (copy != null ? 4 * STRING_SIZE : 0);
+        }
+        fDocumentHandler.startGeneralEntity(name, identifier, encoding, augs);
+    } // startGeneralEntity(String,XMLResourceIdentifier,String,Augmentations)
+
+    public void textDecl(String version, String encoding, Augmentations augs)
+        throws XNIException {
+        int event = addEvent(TEXT_DECL, augs);
+        if (event != -1) {
+            fData[event] = new String[] { version, encoding };
+            fSize += 2 * STRING_SIZE;
+        }
+        fDocumentHandler.textDecl(version, encoding, augs);
+    } // textDecl(String,String,Augmentations)
+
+    public void endGeneralEntity(String name, Augmentations augs) throws XNIException {
+        int event = addEvent(END_GENERAL_ENTITY, augs);
+        if (event != -1) {
+            fData[event] = name;
+        }
+        fDocumentHandler.endGeneralEntity(name, augs);
+    } // endGeneralEntity(String,Augmentations)
+
+    public void characters(XMLString text, Augmentations augs) throws XNIException {
+        addText(addEvent(CHARACTERS, augs), text);
+        fDocumentHandler.characters(text, augs);
+    } // characters(XMLString,Augmentations)
+
+    public void ignorableWhitespace(XMLString text, Augmentations augs) throws XNIException {
+        addText(addEvent(IGNORABLE_WHITESPACE, augs), text);
+        fDocumentHandler.ignorableWhitespace(text, augs);
+    } // ignorableWhitespace(XMLString,Augmentations)
+
+    public void endElement(QName element, Augmentations augs) throws XNIException {
+        int event = addEvent(END_ELEMENT, augs);
+        if (event != -1) {
+            fData[event] = new QName(element);
+            fSize += ELEMENT_SIZE;
+        }
+        fDocumentHandler.endElement(element, augs);
+    } // endElement(QName,Augmentations)
+
+    public void startCDATA(Augmentations augs) throws XNIException {
+        addEvent(START_CDATA, augs);
+        fDocumentHandler.startCDATA(augs);
+    } // startCDATA(Augmentations)
+
+    public void endCDATA(Augmentations augs) throws XNIException {
+        addEvent(END_CDATA, augs);
+        fDocumentHandler.endCDATA(augs);
+    } // endCDATA(Augmentations)
+
+    public void endDocument(Augmentations augs) throws XNIException {
+        addEvent(END_DOCUMENT, augs);
+        fComplete = true;
+        fDocumentHandler.endDocument(augs);
+    } // endDocument(Augmentations)
+
+    public void setDocumentSource(XMLDocumentSource source) {
+    } // setDocumentSource(XMLDocumentSource)
+
+    public XMLDocumentSource getDocumentSource() {
+        return fDocumentSource;
+    } // getDocumentSource():XMLDocumentSource
+
+    //
+    // XMLErrorHandler methods
+    //
+
+    public void warning(String domain, String key, XMLParseException exception)
+        throws XNIException {
+        discard();
+        getReportingErrorHandler().warning(domain, key, exception);
+    } // warning(String,String,XMLParseException)
+
+    public void error(String domain, String key, XMLParseException exception)
+        throws XNIException {
+        discard();
+        getReportingErrorHandler().error(domain, key, exception);
+    } // error(String,String,XMLParseException)
+
+    public void fatalError(String domain, String key, XMLParseException exception)
+        throws XNIException {
+        discard();
+        getReportingErrorHandler().fatalError(domain, key, exception);
+    } // fatalError(String,String,XMLParseException)
+
+    //
+    // Private methods
+    //
+
+    /**
+     * Returns the error handler to which the errors are passed on, or the
+     * default handler of the error reporter if none was set.
+     */
+    private XMLErrorHandler getReportingErrorHandler() {
+        if (fErrorHandler == null) {
+            if (fDefaultErrorHandler == null) {
+                fDefaultErrorHandler = new DefaultErrorHandler();
+            }
+            return fDefaultErrorHandler;
+        }
+        return fErrorHandler;
+    } // getReportingErrorHandler():XMLErrorHandler
+
+    /** Discards the events recorded and stops recording. */
+    private void discard() {
+        fDiscarded = true;
+        fTypes = null;
+        fData = null;
+        fAugs = null;
+        fTextOffsets = null;
+        fTextLengths = null;
+        fChars = null;
+        fLineNumbers = null;
+        fColumnNumbers = null;
+        fCharacterOffsets = null;
+        fEncodings = null;
+        fXMLVersions = null;
+        fCount = 0;
+        fCharCount = 0;
+    } // discard()
+
+    /** Trims the arrays of a complete recording to the events recorded. */
+    private void trim() {
+        fTypes = (byte[]) resize(fTypes, new byte[fCount], fCount);
+        fData = (Object[]) resize(fData, new Object[fCount], fCount);
+        fAugs = (Object[]) resize(fAugs, new Object[fCount], fCount);
+        fTextOffsets = (int[]) resize(fTextOffsets, new int[fCount], fCount);
+        fTextLengths = (int[]) resize(fTextLengths, new int[fCount], fCount);
+        fLineNumbers = (int[]) resize(fLineNumbers, new int[fCount], fCount);
+        fColumnNumbers = (int[]) resize(fColumnNumbers, new int[fCount], fCount);
+        fCharacterOffsets = (int[]) resize(fCharacterOffsets, new int[fCount], fCount);
+        fEncodings = (String[]) resize(fEncodings, new String[fCount], fCount);
+        fXMLVersions = (String[]) resize(fXMLVersions, new String[fCount], fCount);
+        fChars = (char[]) resize(fChars, new char[fCharCount], fCharCount);
+    } // trim()
+
+    /**
+     * Adds an event of the given type and returns its index, or -1 if the
+     * recording has been discarded.
+     */
+    private int addEvent(byte type, Augmentations augs) {
+        if (fDiscarded) {
+            return -1;
+        }
+        if (fCount == fTypes.length) {
+            int length = fCount << 1;
+            fTypes = (byte[]) resize(fTypes, new byte[length], fCount);
+            fData = (Object[]) resize(fData, new Object[length], fCount);
+            fAugs = (Object[]) resize(fAugs, new Object[length], fCount);
+            fTextOffsets = (int[]) resize(fTextOffsets, new int[length], fCount);
+            fTextLengths = (int[]) resize(fTextLengths, new int[length], fCount);
+            fLineNumbers = (int[]) resize(fLineNumbers, new int[length], fCount);
+            fColumnNumbers = (int[]) resize(fColumnNumbers, new int[length], fCount);
+            fCharacterOffsets = (int[]) resize(fCharacterOffsets, new int[length], fCount);
+            fEncodings = (String[]) resize(fEncodings, new String[length], fCount);
+            fXMLVersions = (String[]) resize(fXMLVersions, new String[length], fCount);
+        }
+        int event = fCount++;
+        fTypes[event] = type;
+        fTextOffsets[event] = -1;
+        if (fLocator != null) {
+            fLineNumbers[event] = fLocator.getLineNumber();
+            fColumnNumbers[event] = fLocator.getColumnNumber();
+            fCharacterOffsets[event] = fLocator.getCharacterOffset();
+            fEncodings[event] = fLocator.getEncoding();
+            fXMLVersions[event] = fLocator.getXMLVersion();
+        }
+        fAugs[event] = copyAugmentations(augs);
+        fSize += EVENT_SIZE;
+        if (fSize > fMaxSize) {
+            discard();
+            return -1;
+        }
+        return event;
+    } // addEvent(byte,Augmentations):int
+
+    /** Adds the characters of an event. */
+    private void addText(int event, XMLString text) {
+        if (event == -1 || text == null) {
+            return;
+        }
+        if (fCharCount + text.length > fChars.length) {
+            int length = Math.max(fChars.length << 1, fCharCount + text.length);
+            fChars = (char[]) resize(fChars, new char[length], fCharCount);
+        }
+        System.arraycopy(text.ch, text.offset, fChars, fCharCount, text.length);
+        fTextOffsets[event] = fCharCount;
+        fTextLengths[event] = text.length;
+        fCharCount += text.length;
+        fSize += text.length << 1;
+        if (fSize > fMaxSize) {
+            discard();
+        }
+    } // addText(int,XMLString)
+
+    /** Adds the name, the namespace declarations and the attributes of an element. */
+    private void addElement(int event, QName element, XMLAttributes attributes) {
+        if (event == -1) {
+            return;
+        }
+        ElementEvent data = new ElementEvent();
+        data.fName = new QName(element);
+        int size = ELEMENT_SIZE;
+
+        if (fBindNamespaces) {
+            int count = fNamespaceContext.getDeclaredPrefixCount();
+            data.fNamespaces = new String[count << 1];
+            for (int i = 0; i < count; ++i) {
+                String prefix = fNamespaceContext.getDeclaredPrefixAt(i);
+                data.fNamespaces[i << 1] = prefix;
+                data.fNamespaces[(i << 1) + 1] = fNamespaceContext.getURI(prefix);
+            }
+            size += count * STRING_SIZE;
+        }
+
+        int length = attributes != null ? attributes.getLength() : 0;
+        data.fAttributeNames = new QName[length];
+        data.fAttributeTypes = new String[length];
+        data.fAttributeValues = new String[length];
+        data.fNonNormalizedValues = new String[length];
+        data.fSpecified = new boolean[length];
+        data.fAttributeAugs = new Object[length][];
+        for (int i = 0; i < length; ++i) {
+            QName name = new QName();
+            attributes.getName(i, name);
+            data.fAttributeNames[i] = name;
+            data.fAttributeTypes[i] = attributes.getType(i);
+            String value = attributes.getValue(i);
+            String nonNormalizedValue = attributes.getNonNormalizedValue(i);
+            data.fAttributeValues[i] = value;
+            data.fNonNormalizedValues[i] = nonNormalizedValue;
+            data.fSpecified[i] = attributes.isSpecified(i);
+            data.fAttributeAugs[i] = copyAugmentations(attributes.getAugmentations(i));
+            size += ATTRIBUTE_SIZE + (value.length() << 1);
+            if (nonNormalizedValue != value) {
+                size += STRING_SIZE + (nonNormalizedValue.length() << 1);
+            }
+        }
+        if (!fDiscarded) {
+            fData[event] = data;
+            fSize += size;
+            if (fSize > fMaxSize) {
+                discard();
+            }
+        }
+    } // addElement(int,QName,XMLAttributes)
+
+    /**
+     * Returns a copy of the items of augmentations, or null if there are
+     * none. The recording is discarded if an item is not a string or a
+     * boolean, whose value could change.
+     */
+    private Object[] copyAugmentations(Augmentations augs) {
+        if (augs == null) {
+            return null;
+        }
+        Object[] items = null;
+        int count = 0;
+        Enumeration keys = augs.keys();
+        while (keys.hasMoreElements()) {
+            String key = (String) keys.nextElement();
+            Object item = augs.getItem(key);
+            if (!(item instanceof String) && !(item instanceof Boolean)) {
+                discard();
+                return null;
+            }
+            if (items == null) {
+                items = new Object[4];
+            }
+            else if (count == items.length) {
+                items = (Object[]) resize(items, new Object[count << 1], count);
+            }
+            items[count++] = key;
+            items[count++] = item;
+            fSize += STRING_SIZE;
+        }
+        return items == null || count == items.length ? items
+            : (Object[]) resize(items, new Object[count], count);
+    } // copyAugmentations(Augmentations):Object[]
+
+    /** Returns augmentations with the given items, or null if there are none. */
+    private static Augmentations getAugmentations(Object[] items) {
+        if (items == null) {
+            return null;
+        }
+        Augmentations augs = new AugmentationsImpl();
+        for (int i = 0; i < items.length; i += 2) {
+            augs.putItem((String) items[i], items[i + 1]);
+        }
+        return augs;
+    } // getAugmentations(Object[]):Augmentations
+
+    /**
+     * Returns the characters of an event, or null if it has none. The
+     * characters are copied, so that the handlers cannot modify the
+     * recording.
+     */
+    private XMLString getText(int event, XMLString text) {
+        int offset = fTextOffsets[event];
+        if (offset == -1) {
+            return null;
+        }
+        int length = fTextLengths[event];
+        if (text.ch == null || text.ch.length < length) {
+            text.ch = new char[Math.max(length, 64)];
+        }
+        System.arraycopy(fChars, offset, text.ch, 0, length);
+        text.offset = 0;
+        text.length = length;
+        return text;
+    } // getText(int,XMLString):XMLString
+
+    /** Copies the first elements of an array to another array. */
+    private static Object resize(Object array, Object newArray, int length) {
+        System.arraycopy(array, 0, newArray, 0, length);
+        return newArray;
+    } // resize(Object,Object,int):Object
+
+    //
+    // Classes
+    //
+
+    /**
+     * The name, the namespace declarations and the attributes of an element.
+     */
+    private static final class ElementEvent {
+
+        QName fName;
+
+        /** The prefixes declared by the element and their URIs. */
+        String[] fNamespaces;
+
+        // attributes
+
+        QName[] fAttributeNames;
+        String[] fAttributeTypes;
+        String[] fAttributeValues;
+        String[] fNonNormalizedValues;
+        boolean[] fSpecified;
+        Object[][] fAttributeAugs;
+
+        /** Sets the attributes of the element on the given attributes. */
+        void getAttributes(XMLAttributesImpl attributes) {
+            attributes.removeAllAttributes();
+            for (int i = 0; i < fAttributeNames.length; ++i) {
+                int index = attributes.addAttribute(fAttributeNames[i],
+                        fAttributeTypes[i], fAttributeValues[i]);
+                attributes.setNonNormalizedValue(index, fNonNormalizedValues[i]);
+                attributes.setSpecified(index, fSpecified[i]);
+                Object[] items = fAttributeAugs[i];
+                if (items != null) {
+                    Augmentations augs = attributes.getAugmentations(index);
+                    for (int j = 0; j < items.length; j += 2) {
+                        augs.putItem((String) items[j], items[j + 1]);
+                    }
+                }
+            }
+        } // getAttributes(XMLAttributesImpl)
+
+    } // class ElementEvent
+
+    /**
+     * The locator of a replayed document, set to the location recorded
+     * for each event.
+     */
+    private static final class ReplayLocator implements XMLLocator {
+
+        private final String fPublicId;
+        private final String fLiteralSystemId;
+        private final String fBaseSystemId;
+        private final String fExpandedSystemId;
+
+        int fLineNumber;
+        int fColumnNumber;
+        int fCharacterOffset;
+        String fEncoding;
+        String fXMLVersion;
+
+        ReplayLocator(String publicId, String literalSystemId,
+                String baseSystemId, String expandedSystemId) {
+            fPublicId = publicId;
+            fLiteralSystemId = literalSystemId;
+            fBaseSystemId = baseSystemId;
+            fExpandedSystemId = expandedSystemId;
+        }
+
+        public String getPublicId() {
+            return fPublicId;
+        }
+
+        public String getLiteralSystemId() {
+            return fLiteralSystemId;
+        }
+
+        public String getBaseSystemId() {
+            return fBaseSystemId;
+        }
+
+        public String getExpandedSystemId() {
+            return fExpandedSystemId;
+        }
+
+        public int getLineNumber() {
+            return fLineNumber;
+        }
+
+        public int getColumnNumber() {
+            return fColumnNumber;
+        }
+
+        public int getCharacterOffset() {
+            return fCharacterOffset;
+        }
+
+        public String getEncoding() {
+            return fEncoding;
+        }
+
+        public String getXMLVersion() {
+            return fXMLVersion;
+        }
+
+    } // class ReplayLocator
+
+} // class XIncludeRecording
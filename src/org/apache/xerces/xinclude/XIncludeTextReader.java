@@ -71,6 +71,7 @@ public class XIncludeTextReader {
     private XMLInputSource fSource;
     private XMLErrorReporter fErrorReporter;
     private XMLString fTempString = new XMLString();
+    private XIncludeRecording fRecording;
  
     /**
      * Construct the XIncludeReader using the XMLInputSource and XIncludeHandler.
@@ -96,6 +97,16 @@ public class XIncludeTextReader {
     public void setErrorReporter(XMLErrorReporter errorReporter) {
         fErrorReporter = errorReporter;
     }
+    
+    /**
+     * Sets the recording to which the characters read are added,
+     * or null if they are not recorded.
+     *
+     * @param recording the recording of the text include.
+     */
+    void setRecording(XIncludeRecording recording) {
+        fRecording = recording;
+    }
 
     /**
      * Return the Reader for given XMLInputSource.
@@ -113,8 +124,16 @@ public class XIncludeTextReader {
             if (encoding == null) {
                 encoding = "UTF-8";
             }
+            String rawContentType = null;
+            boolean hasContentType = false;
             if (source.getByteStream() != null) {
                 stream = source.getByteStream();
+                // A resource read ahead by the XIncludePrefetcher is decoded
+                // as it would be if it were read from its URL.
+                if (stream instanceof XIncludePrefetcher.PrefetchedInputStream) {
+                    rawContentType = ((XIncludePrefetcher.PrefetchedInputStream) stream).fContentType;
+                    hasContentType = true;
+                }
                 // Wrap the InputStream so that it is possible to rewind it.
                 if (!(stream instanceof BufferedInputStream)) {
                     stream = new BufferedInputStream(stream, fTempString.ch.length);
@@ -149,8 +168,11 @@ public class XIncludeTextReader {
                 stream = new BufferedInputStream(urlCon.getInputStream());
                 
                 // content type will be string like "text/xml; charset=UTF-8" or "text/xml"
-                String rawContentType = urlCon.getContentType();
-                
+                rawContentType = urlCon.getContentType();
+                hasContentType = true;
+            }
+            
+            if (hasContentType) {
                 // text/xml and application/xml offer only one optional parameter
                 int index = (rawContentType != null) ? rawContentType.indexOf(';') : -1;
 
@@ -492,6 +514,9 @@ public class XIncludeTextReader {
             if (fHandler != null && readSize > 0) {
                 fTempString.offset = 0;
                 fTempString.length = readSize;
+                if (fRecording != null) {
+                    fRecording.addText(fTempString);
+                }
                 fHandler.characters(
                     fTempString,
                     fHandler.modifyAugmentations(null, true));
@@ -17,6 +17,8 @@
 
 package org.apache.xerces.xni;
 
+import java.io.Serializable;
+
 /**
  * A structure that holds the components of an XML Namespaces qualified
  * name.
@@ -32,7 +34,9 @@ package org.apache.xerces.xni;
  * @version $Id$
  */
 public class QName 
-    implements Cloneable {
+    implements Cloneable, Serializable {
+
+    private static final long serialVersionUID = -2057334257497109519L;
 
     //
     // Data
@@ -0,0 +1,177 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dom.deferred;
+
+import java.io.StringReader;
+
+import junit.framework.TestCase;
+
+import org.apache.xerces.impl.Constants;
+import org.apache.xerces.parsers.DOMParser;
+import org.w3c.dom.Attr;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NamedNodeMap;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+import org.xml.sax.InputSource;
+
+/**
+ * Tests that a deferred DOM whose character data is kept in shared
+ * character arrays has the same nodes and values as one whose values
+ * are strings, and as a DOM which is not deferred.
+ *
+ * @version $Id$
+ */
+public class CompactDeferredDOMTest extends TestCase {
+
+    /** Feature identifier: defer node expansion. */
+    private static final String DEFER_NODE_EXPANSION =
+        Constants.XERCES_FEATURE_PREFIX + Constants.DEFER_NODE_EXPANSION_FEATURE;
+
+    /** Feature identifier: compact deferred DOM. */
+    private static final String COMPACT_DEFERRED_DOM =
+        Constants.XERCES_FEATURE_PREFIX + Constants.COMPACT_DEFERRED_DOM_FEATURE;
+
+    /** Feature identifier: defer attribute values. */
+    private static final String DEFER_ATTRIBUTE_VALUES =
+        Constants.XERCES_FEATURE_PREFIX + Constants.DEFER_ATTRIBUTE_VALUES_FEATURE;
+
+    /** Feature identifier: create entity reference nodes. */
+    private static final String CREATE_ENTITY_REF_NODES =
+        Constants.XERCES_FEATURE_PREFIX + Constants.CREATE_ENTITY_REF_NODES_FEATURE;
+
+    /** Feature identifier: include ignorable whitespace. */
+    private static final String INCLUDE_IGNORABLE_WHITESPACE =
+        Constants.XERCES_FEATURE_PREFIX + Constants.INCLUDE_IGNORABLE_WHITESPACE;
+
+    /** A document with all kinds of nodes. */
+    private static final String DOCUMENT =
+        "<!DOCTYPE doc [<!ELEMENT doc (#PCDATA|e|f)*><!ELEMENT e (#PCDATA)><!ELEMENT f EMPTY>"
+        + "<!ATTLIST e a CDATA 'default' b CDATA #IMPLIED><!ENTITY ent 'entity <f/> text'>"
+        + "<!ENTITY att 'attribute &#38;#38; value'>]>"
+        + "<doc>\n  text &amp; more<e b=''>element text</e><![CDATA[cdata <section>]]>"
+        + "<!--comment--><?pi data?><e a='&#xE9;t&#xE9;' b='&att;'/>&ent;"
+        + "<e></e><e b='tab\tnewline\n'>\u20ac\ud800\udc00</e>\n</doc>";
+
+    public CompactDeferredDOMTest(String name) {
+        super(name);
+    }
+
+    public void testNodes() throws Exception {
+        for (int i = 0; i < 4; ++i) {
+            boolean entityRefNodes = (i & 1) != 0;
+            boolean whitespace = (i & 2) != 0;
+            String expected = describe(parse(DOCUMENT, false, false, false, entityRefNodes, whitespace));
+            assertEquals(expected, describe(parse(DOCUMENT, true, false, false, entityRefNodes, whitespace)));
+            assertEquals(expected, describe(parse(DOCUMENT, true, true, false, entityRefNodes, whitespace)));
+            assertEquals(expected, describe(parse(DOCUMENT, true, true, true, entityRefNodes, whitespace)));
+        }
+    }
+
+    public void testLargeValues() throws Exception {
+        // values around the longest value kept in a shared array, and
+        // enough of them to fill several arrays
+        StringBuffer document = new StringBuffer("<doc>");
+        int[] lengths = { 1, 4095, 4096, 4097, 10000, 65535, 65536, 3 };
+        for (int round = 0; round < 3; ++round) {
+            for (int i = 0; i < lengths.length; ++i) {
+                String value = createValue(lengths[i], round + i);
+                document.append("<e a='").append(value).append("'>").append(value).append("</e>");
+            }
+        }
+        document.append("</doc>");
+        String expected = describe(parse(document.toString(), false, false, false, false, false));
+        assertEquals(expected, describe(parse(document.toString(), true, true, false, false, false)));
+        assertEquals(expected, describe(parse(document.toString(), true, true, true, false, false)));
+    }
+
+    public void testModifiedNodes() throws Exception {
+        Document document = parse(DOCUMENT, true, true, true, false, false);
+        NodeList elements = document.getElementsByTagName("e");
+        // read the nodes out of document order
+        Element last = (Element) elements.item(elements.getLength() - 1);
+        assertEquals("\u20ac\ud800\udc00", last.getFirstChild().getNodeValue());
+        assertEquals("tab newline ", last.getAttribute("b"));
+        Element first = (Element) elements.item(0);
+        Attr attr = first.getAttributeNode("b");
+        assertEquals("", attr.getValue());
+        attr.setValue("changed");
+        first.getFirstChild().setNodeValue("new text");
+        assertEquals("changed", first.getAttribute("b"));
+        assertEquals("new text", first.getTextContent());
+
+        Node clone = document.getDocumentElement().cloneNode(true);
+        assertEquals(document.getDocumentElement().getTextContent(), clone.getTextContent());
+        Node imported = parse("<r/>", false, false, false, false, false).importNode(first, true);
+        assertEquals("new text", imported.getTextContent());
+        assertEquals("changed", ((Element) imported).getAttribute("b"));
+    }
+
+    //
+    // Private methods
+    //
+
+    private static Document parse(String document, boolean defer, boolean compact, boolean deferValues,
+            boolean entityRefNodes, boolean whitespace) throws Exception {
+        DOMParser parser = new DOMParser();
+        parser.setFeature(DEFER_NODE_EXPANSION, defer);
+        parser.setFeature(COMPACT_DEFERRED_DOM, compact);
+        parser.setFeature(DEFER_ATTRIBUTE_VALUES, deferValues);
+        parser.setFeature(CREATE_ENTITY_REF_NODES, entityRefNodes);
+        parser.setFeature(INCLUDE_IGNORABLE_WHITESPACE, whitespace);
+        parser.parse(new InputSource(new StringReader(document)));
+        return parser.getDocument();
+    } // parse(String,boolean,boolean,boolean,boolean,boolean):Document
+
+    /** Returns a description of a node and its descendants. */
+    private static String describe(Node node) {
+        StringBuffer description = new StringBuffer();
+        describe(node, description, 0);
+        return description.toString();
+    } // describe(Node):String
+
+    private static void describe(Node node, StringBuffer description, int depth) {
+        for (int i = 0; i < depth; ++i) {
+            description.append(' ');
+        }
+        description.append(node.getNodeType()).append(' ').append(node.getNodeName())
+            .append(" [").append(node.getNodeValue()).append(']');
+        NamedNodeMap attributes = node.getAttributes();
+        if (attributes != null) {
+            for (int i = 0; i < attributes.getLength(); ++i) {
+                Attr attr = (Attr) attributes.item(i);
+                description.append(' ').append(attr.getName()).append("=[").append(attr.getValue())
+                    .append(attr.getSpecified() ? "]" : "] defaulted");
+            }
+        }
+        description.append('\n');
+        for (Node child = node.getFirstChild(); child != null; child = child.getNextSibling()) {
+            describe(child, description, depth + 1);
+        }
+    } // describe(Node,StringBuffer,int)
+
+    private static String createValue(int length, int seed) {
+        StringBuffer value = new StringBuffer(length);
+        for (int i = 0; i < length; ++i) {
+            value.append((char) ('a' + (i + seed) % 26));
+        }
+        return value.toString();
+    } // createValue(int,int):String
+
+} // class CompactDeferredDOMTest
@@ -0,0 +1,312 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+
+import junit.framework.TestCase;
+
+import org.apache.xerces.impl.XMLEntityManager;
+import org.apache.xerces.parsers.SAXParser;
+import org.apache.xerces.parsers.XIncludeAwareParserConfiguration;
+import org.apache.xerces.xni.XNIException;
+import org.apache.xerces.xni.parser.XMLInputSource;
+import org.xml.sax.Attributes;
+import org.xml.sax.Locator;
+import org.xml.sax.SAXParseException;
+import org.xml.sax.helpers.DefaultHandler;
+
+/**
+ * Tests that documents give the same events, locations and errors with
+ * adaptive input buffer sizes as without, for tiny entities and for huge
+ * ones whose buffers are grown while they're read, and that huge entities
+ * need fewer loads.
+ *
+ * @version $Id$
+ */
+public class AdaptiveBufferTest extends TestCase {
+
+    /** Feature identifier: adaptive input buffer size. */
+    private static final String ADAPTIVE_BUFFER_SIZE =
+        "http://apache.org/xml/features/adaptive-input-buffer-size";
+
+    /** Property identifier: input buffer size. */
+    private static final String BUFFER_SIZE =
+        "http://apache.org/xml/properties/input-buffer-size";
+
+    /** Property identifier: entity manager. */
+    private static final String ENTITY_MANAGER =
+        "http://apache.org/xml/properties/internal/entity-manager";
+
+    /** The text of the documents, with characters of each UTF-8 length. */
+    private static final String TEXT = "text, \u00e9t\u00e9, \u6f22\u5b57, \ud834\udd1e; ";
+
+    /** The directory of the external entities. */
+    private File fDirectory;
+
+    public AdaptiveBufferTest(String name) {
+        super(name);
+    }
+
+    protected void setUp() throws Exception {
+        super.setUp();
+        fDirectory = File.createTempFile("entities", "");
+        fDirectory.delete();
+        fDirectory.mkdir();
+    }
+
+    protected void tearDown() throws Exception {
+        File[] files = fDirectory.listFiles();
+        for (int i = 0; i < files.length; ++i) {
+            files[i].delete();
+        }
+        fDirectory.delete();
+        super.tearDown();
+    }
+
+    public void testTinyEntities() throws Exception {
+        StringBuffer document = new StringBuffer();
+        document.append("<?xml version='1.0' encoding='UTF-8'?>\n<!DOCTYPE doc [\n");
+        for (int i = 0; i < 40; ++i) {
+            document.append("<!ENTITY e").append(i).append(" SYSTEM 'e").append(i).append(".xml'>\n");
+            write("e" + i + ".xml", "<e n='" + i + "'>" + TEXT.substring(0, i % TEXT.length()) + "</e>", "UTF-8");
+        }
+        document.append("]>\n<doc>");
+        for (int i = 0; i < 40; ++i) {
+            document.append("&e").append(i).append(";\n");
+        }
+        document.append("</doc>\n");
+        write("doc.xml", document.toString(), "UTF-8");
+        String systemId = new File(fDirectory, "doc.xml").toURI().toString();
+
+        Parse fixed = new Parse(false, 0);
+        fixed.parse(new XMLInputSource(null, systemId, null));
+        Parse adaptive = new Parse(true, 0);
+        adaptive.parse(new XMLInputSource(null, systemId, null));
+        assertEquals(fixed.fEvents.toString(), adaptive.fEvents.toString());
+        assertEquals(0, adaptive.fGrowthCount);
+        assertTrue(adaptive.fLoadCount <= fixed.fLoadCount);
+    }
+
+    public void testHugeEntity() throws Exception {
+        byte[] document = createDocument("UTF-8", 20000).getBytes("UTF-8");
+
+        // of an unknown size, the buffers of the entity are grown
+        Parse fixed = new Parse(false, 0);
+        fixed.parse(new XMLInputSource(null, "doc.xml", null, new UnsizedStream(document, 0), null));
+        Parse grown = new Parse(true, 0);
+        grown.parse(new XMLInputSource(null, "doc.xml", null, new UnsizedStream(document, 0), null));
+        assertEquals(fixed.fEvents.toString(), grown.fEvents.toString());
+        assertEquals(0, fixed.fGrowthCount);
+        assertTrue(String.valueOf(grown.fGrowthCount), grown.fGrowthCount > 0 && grown.fGrowthCount <= 4);
+        assertTrue(grown.fLoadCount + " < " + fixed.fLoadCount, grown.fLoadCount < fixed.fLoadCount);
+
+        // of a known size, the entity starts with the biggest buffers
+        Parse sized = new Parse(true, 0);
+        sized.parse(new XMLInputSource(null, "doc.xml", null, new ByteArrayInputStream(document), null));
+        assertEquals(fixed.fEvents.toString(), sized.fEvents.toString());
+        assertEquals(0, sized.fGrowthCount);
+        assertTrue(sized.fLoadCount + " < " + grown.fLoadCount, sized.fLoadCount < grown.fLoadCount);
+    }
+
+    public void testEncodings() throws Exception {
+        String[] encodings = { "UTF-8", "UTF-16", "UTF-16LE", "US-ASCII", "ISO-8859-1", "windows-1252" };
+        for (int i = 0; i < encodings.length; ++i) {
+            String encoding = encodings[i];
+            byte[] document = createDocument(encoding, 3000).getBytes(encoding);
+            // small buffers, grown while the stream is read in short pieces
+            for (int piece = 0; piece < 10; piece += 3) {
+                Parse fixed = new Parse(false, 128);
+                fixed.parse(new XMLInputSource(null, "doc.xml", null, new UnsizedStream(document, piece), null));
+                Parse adaptive = new Parse(true, 128);
+                adaptive.parse(new XMLInputSource(null, "doc.xml", null, new UnsizedStream(document, piece), null));
+                assertEquals(encoding + ", pieces of " + piece, fixed.fEvents.toString(), adaptive.fEvents.toString());
+                assertEquals(encoding, -1, adaptive.fEvents.indexOf("\nfatal "));
+                assertTrue(encoding, adaptive.fGrowthCount > 0);
+            }
+        }
+    }
+
+    public void testErrorAfterGrowth() throws Exception {
+        String document = createDocument("UTF-8", 3000);
+        byte[] bytes = (document.substring(0, document.length() - 20) + "\u00e9<&>").getBytes("UTF-8");
+        Parse fixed = new Parse(false, 128);
+        fixed.parse(new XMLInputSource(null, "doc.xml", null, new UnsizedStream(bytes, 0), null));
+        Parse adaptive = new Parse(true, 128);
+        adaptive.parse(new XMLInputSource(null, "doc.xml", null, new UnsizedStream(bytes, 0), null));
+        assertEquals(fixed.fEvents.toString(), adaptive.fEvents.toString());
+        assertTrue(adaptive.fEvents.toString(), adaptive.fEvents.toString().indexOf("\nfatal ") != -1);
+        assertTrue(adaptive.fGrowthCount > 0);
+    }
+
+    public void testCountsReset() throws Exception {
+        byte[] huge = createDocument("UTF-8", 20000).getBytes("UTF-8");
+        byte[] tiny = "<doc/>".getBytes("UTF-8");
+        Parse parse = new Parse(true, 0);
+        parse.parse(new XMLInputSource(null, "doc.xml", null, new UnsizedStream(huge, 0), null));
+        assertTrue(parse.fGrowthCount > 0);
+        // the counts are of the last document
+        parse.parse(new XMLInputSource(null, "doc.xml", null, new UnsizedStream(tiny, 0), null));
+        assertEquals(0, parse.fGrowthCount);
+        assertTrue(String.valueOf(parse.fLoadCount), parse.fLoadCount > 0 && parse.fLoadCount < 5);
+    }
+
+    //
+    // Private methods
+    //
+
+    /** Writes a file of the given text to the directory of the entities. */
+    private void write(String name, String text, String encoding) throws IOException {
+        FileOutputStream out = new FileOutputStream(new File(fDirectory, name));
+        try {
+            out.write(text.getBytes(encoding));
+        }
+        finally {
+            out.close();
+        }
+    } // write(String,String,String)
+
+    /** Creates a document of the given encoding, with the given number of elements. */
+    private static String createDocument(String encoding, int count) {
+        String text = encoding.startsWith("UTF") ? TEXT : "text; ";
+        StringBuffer document = new StringBuffer();
+        document.append("<?xml version='1.0' encoding='").append(encoding).append("'?>\n");
+        document.append("<doc a='").append(text).append("'>\n");
+        for (int i = 0; i < count; ++i) {
+            document.append("<p n='").append(i).append("'>").append(text);
+            // lines of different lengths, and a long one now and then
+            for (int j = i % 7; j < (i % 500 == 0 ? 500 : 0); ++j) {
+                document.append(text);
+            }
+            document.append("</p>\n");
+        }
+        document.append("</doc>\n");
+        return document.toString();
+    } // createDocument(String,int):String
+
+    //
+    // Classes
+    //
+
+    /** A parse of documents, recording their events, locations and errors. */
+    private static final class Parse extends DefaultHandler {
+
+        final StringBuffer fEvents = new StringBuffer();
+        int fLoadCount;
+        int fGrowthCount;
+
+        private final XIncludeAwareParserConfiguration fConfiguration = new XIncludeAwareParserConfiguration();
+        private final SAXParser fParser = new SAXParser(fConfiguration);
+        private final StringBuffer fText = new StringBuffer();
+        private Locator fLocator;
+
+        Parse(boolean adaptive, int bufferSize) throws Exception {
+            fParser.setFeature(ADAPTIVE_BUFFER_SIZE, adaptive);
+            if (bufferSize != 0) {
+                fParser.setProperty(BUFFER_SIZE, new Integer(bufferSize));
+            }
+            fParser.setContentHandler(this);
+            fParser.setErrorHandler(this);
+        }
+
+        void parse(XMLInputSource source) throws Exception {
+            fEvents.setLength(0);
+            fText.setLength(0);
+            try {
+                fParser.parse(source);
+            }
+            catch (XNIException e) {
+                fEvents.append("exception ").append(e.getMessage());
+            }
+            XMLEntityManager entityManager = (XMLEntityManager) fConfiguration.getProperty(ENTITY_MANAGER);
+            fLoadCount = entityManager.getLoadCount();
+            fGrowthCount = entityManager.getBufferGrowthCount();
+        } // parse(XMLInputSource)
+
+        public void setDocumentLocator(Locator locator) {
+            fLocator = locator;
+        }
+
+        public void startElement(String uri, String localName, String qName, Attributes attributes) {
+            events().append('<').append(qName);
+            for (int i = 0; i < attributes.getLength(); ++i) {
+                fEvents.append(' ').append(attributes.getQName(i)).append("='").append(attributes.getValue(i)).append('\'');
+            }
+            fEvents.append('>');
+        }
+
+        public void endElement(String uri, String localName, String qName) {
+            events().append("</").append(qName).append('>');
+        }
+
+        public void characters(char[] ch, int start, int length) {
+            // the characters are split at the ends of the buffers
+            fText.append(ch, start, length);
+        }
+
+        public void error(SAXParseException e) {
+            report("error", e);
+        }
+
+        public void fatalError(SAXParseException e) {
+            report("fatal", e);
+        }
+
+        /** Returns the events, after the characters and the location of the next one. */
+        private StringBuffer events() {
+            fEvents.append(fText);
+            fText.setLength(0);
+            return fEvents.append('[').append(fLocator.getLineNumber()).append(':')
+                .append(fLocator.getColumnNumber()).append(']');
+        } // events():StringBuffer
+
+        private void report(String severity, SAXParseException e) {
+            events().append('\n').append(severity).append(' ').append(e.getLineNumber()).append(':')
+                .append(e.getColumnNumber()).append(' ').append(e.getMessage()).append('\n');
+        } // report(String,SAXParseException)
+
+    } // class Parse
+
+    /**
+     * A stream whose size isn't known, which returns its bytes in pieces
+     * of up to the given size, or as many as asked for if it's zero.
+     */
+    private static final class UnsizedStream extends FilterInputStream {
+
+        private final int fPiece;
+
+        UnsizedStream(byte[] bytes, int piece) {
+            super(new ByteArrayInputStream(bytes));
+            fPiece = piece;
+        }
+
+        public int available() {
+            return 0;
+        }
+
+        public int read(byte[] b, int off, int len) throws IOException {
+            return super.read(b, off, fPiece == 0 ? len : Math.min(len, fPiece));
+        }
+
+    } // class UnsizedStream
+
+} // class AdaptiveBufferTest
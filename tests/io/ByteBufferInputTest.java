@@ -0,0 +1,206 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+import junit.framework.TestCase;
+
+import org.apache.xerces.parsers.SAXParser;
+import org.apache.xerces.util.ByteBufferInputSource;
+import org.apache.xerces.xni.XNIException;
+import org.apache.xerces.xni.parser.XMLInputSource;
+import org.xml.sax.Attributes;
+import org.xml.sax.SAXParseException;
+import org.xml.sax.helpers.DefaultHandler;
+
+/**
+ * Tests that documents parsed from a <code>ByteBufferInputSource</code>
+ * give the same events and report the same errors as when they are
+ * parsed from a byte stream, in the encodings decoded directly from the
+ * buffer and in the others, and for malformed UTF-8 sequences.
+ *
+ * @version $Id$
+ */
+public class ByteBufferInputTest extends TestCase {
+
+    /** The text of the large documents, with characters of each UTF-8 length. */
+    private static final String TEXT = "text, \u00e9t\u00e9, \u6f22\u5b57, \ud834\udd1e; ";
+
+    /** Malformed UTF-8 sequences, each preceded and followed by text. */
+    private static final byte[][] MALFORMED = {
+        { (byte) 0x80 },
+        { (byte) 0xBF, 0x41 },
+        { (byte) 0xC3 },
+        { (byte) 0xC3, 0x41 },
+        { (byte) 0xC0, (byte) 0x80 },
+        { (byte) 0xE6, (byte) 0xBC },
+        { (byte) 0xE6, 0x41, (byte) 0xA2 },
+        { (byte) 0xED, (byte) 0xA0, (byte) 0x80 },
+        { (byte) 0xF0, (byte) 0x9D, (byte) 0x84 },
+        { (byte) 0xF0, (byte) 0x9D, 0x41, (byte) 0x9E },
+        { (byte) 0xF8, (byte) 0x88, (byte) 0x80, (byte) 0x80, (byte) 0x80 },
+        { (byte) 0xFF },
+    };
+
+    public ByteBufferInputTest(String name) {
+        super(name);
+    }
+
+    public void testEncodings() throws Exception {
+        String[] encodings = { "UTF-8", "US-ASCII", "ISO-8859-1", "UTF-16BE", "UTF-16LE", "UTF-16", "windows-1252" };
+        for (int i = 0; i < encodings.length; ++i) {
+            String encoding = encodings[i];
+            String text = encoding.startsWith("UTF") ? TEXT : "text; ";
+            byte[] bytes = createDocument(encoding, text, 5000).getBytes(encoding);
+            String events = assertSameParse(encoding, bytes, null);
+            assertEquals(encoding, -1, events.indexOf("\nfatal "));
+            assertSameParse(encoding, bytes, encoding);
+        }
+    }
+
+    public void testBufferViews() throws Exception {
+        byte[] document = createDocument("UTF-8", TEXT, 3000).getBytes("UTF-8");
+        String expected = parse(new XMLInputSource(null, "test.xml", null, new ByteArrayInputStream(document), null));
+
+        // only the bytes between the position and the limit are parsed
+        byte[] padded = new byte[document.length + 200];
+        System.arraycopy(document, 0, padded, 100, document.length);
+        ByteBuffer buffer = ByteBuffer.wrap(padded);
+        buffer.position(100);
+        buffer.limit(100 + document.length);
+        assertEquals(expected, parse(new ByteBufferInputSource(null, "test.xml", null, buffer, null)));
+        // the buffer is left as it was, and may be parsed again
+        assertEquals(100, buffer.position());
+        assertEquals(100 + document.length, buffer.limit());
+        assertEquals(expected, parse(new ByteBufferInputSource(null, "test.xml", null, buffer, null)));
+        assertEquals(expected, parse(new ByteBufferInputSource(null, "test.xml", null, buffer.slice(), null)));
+
+        ByteBuffer direct = ByteBuffer.allocateDirect(document.length);
+        direct.put(document).flip();
+        assertEquals(expected, parse(new ByteBufferInputSource(null, "test.xml", null, direct, null)));
+
+        File file = File.createTempFile("buffer", ".xml");
+        try {
+            FileOutputStream out = new FileOutputStream(file);
+            out.write(document);
+            out.close();
+            FileInputStream in = new FileInputStream(file);
+            try {
+                FileChannel channel = in.getChannel();
+                assertEquals(expected, parse(new ByteBufferInputSource(null, "test.xml", null, channel, null)));
+            }
+            finally {
+                in.close();
+            }
+        }
+        finally {
+            file.delete();
+        }
+    }
+
+    public void testMalformedUTF8() throws Exception {
+        for (int i = 0; i < MALFORMED.length; ++i) {
+            // at the start of the document content and far into it
+            for (int offset = 0; offset < 2; ++offset) {
+                ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+                bytes.write("<?xml version='1.0' encoding='UTF-8'?>\n<doc>".getBytes("UTF-8"));
+                for (int j = 0; j < offset * 1000; ++j) {
+                    bytes.write(TEXT.getBytes("UTF-8"));
+                }
+                bytes.write(MALFORMED[i]);
+                bytes.write("</doc>".getBytes("UTF-8"));
+                String errors = assertSameParse("sequence " + i, bytes.toByteArray(), null);
+                assertTrue("sequence " + i + ": " + errors, errors.indexOf("fatal ") != -1);
+            }
+        }
+    }
+
+    //
+    // Private methods
+    //
+
+    /**
+     * Asserts that the given document gives the same events and errors
+     * from a byte buffer and from a byte stream, and returns them.
+     */
+    private String assertSameParse(String message, byte[] document, String encoding) throws Exception {
+        String expected = parse(new XMLInputSource(null, "test.xml", null, new ByteArrayInputStream(document), encoding));
+        assertEquals(message, expected, parse(new ByteBufferInputSource(null, "test.xml", null, ByteBuffer.wrap(document), encoding)));
+        return expected;
+    } // assertSameParse(String,byte[],String):String
+
+    /** Parses the given input source and returns its events and errors. */
+    private static String parse(XMLInputSource source) throws Exception {
+        final StringBuffer events = new StringBuffer();
+        SAXParser parser = new SAXParser();
+        DefaultHandler handler = new DefaultHandler() {
+            public void startElement(String uri, String localName, String qName, Attributes attributes) {
+                events.append('<').append(qName);
+                for (int i = 0; i < attributes.getLength(); ++i) {
+                    events.append(' ').append(attributes.getQName(i)).append("='").append(attributes.getValue(i)).append('\'');
+                }
+                events.append('>');
+            }
+            public void endElement(String uri, String localName, String qName) {
+                events.append("</").append(qName).append('>');
+            }
+            public void characters(char[] ch, int start, int length) {
+                events.append(ch, start, length);
+            }
+            public void error(SAXParseException e) {
+                report("error", e);
+            }
+            public void fatalError(SAXParseException e) {
+                report("fatal", e);
+            }
+            private void report(String severity, SAXParseException e) {
+                events.append('\n').append(severity).append(' ').append(e.getLineNumber()).append(':')
+                    .append(e.getColumnNumber()).append(' ').append(e.getMessage()).append('\n');
+            }
+        };
+        parser.setContentHandler(handler);
+        parser.setErrorHandler(handler);
+        try {
+            parser.parse(source);
+        }
+        catch (XNIException e) {
+            events.append("exception ").append(e.getMessage());
+        }
+        return events.toString();
+    } // parse(XMLInputSource):String
+
+    /** Creates a document of the given encoding, repeating the given text. */
+    private static String createDocument(String encoding, String text, int count) {
+        StringBuffer document = new StringBuffer();
+        document.append("<?xml version='1.0' encoding='").append(encoding).append("'?>\n");
+        document.append("<doc a='").append(text).append("'>\n");
+        for (int i = 0; i < count; ++i) {
+            document.append("<p n='").append(i).append("'>").append(text).append("</p>\n");
+        }
+        document.append("</doc>\n");
+        return document.toString();
+    } // createDocument(String,String,int):String
+
+} // class ByteBufferInputTest
@@ -0,0 +1,199 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Locale;
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+import org.apache.xerces.impl.io.MalformedByteSequenceException;
+import org.apache.xerces.impl.io.UTF8Reader;
+import org.apache.xerces.impl.msg.XMLMessageFormatter;
+
+/**
+ * Tests that <code>UTF8Reader</code> decodes runs of ASCII which follow
+ * non-ASCII characters, with the non-ASCII bytes at and around the ends
+ * of its byte buffer and of the reads of the stream and of the caller,
+ * and that it still reports malformed sequences following them.
+ *
+ * @version $Id$
+ */
+public class UTF8ReaderTest extends TestCase {
+
+    /** The characters of the generated texts, encoded in 1 to 4 bytes. */
+    private static final String[] CHARACTERS = {
+        "a", "b", "<", " ", "\n", "\u007f", "\u00e9", "\u07ff", "\u0800", "\u6f22", "\uffe0",
+        "\ud834\udd1e", "\udbff\udfff"
+    };
+
+    /** The sizes of the byte buffers of the readers, down to the bytes of a partial sequence. */
+    private static final int[] BUFFER_SIZES = { 3, 4, 5, 6, 7, 8, 16, 61, 2048 };
+
+    /** The numbers of characters requested by each read. */
+    private static final int[] READ_SIZES = { 1, 2, 3, 5, 16, 100, 8192 };
+
+    public UTF8ReaderTest(String name) {
+        super(name);
+    }
+
+    public void testRandomTexts() throws Exception {
+        Random random = new Random(17);
+        for (int i = 0; i < 200; ++i) {
+            StringBuffer text = new StringBuffer();
+            int length = random.nextInt(300);
+            while (text.length() < length) {
+                // mostly runs of ASCII, with the occasional other character
+                if (random.nextInt(4) == 0) {
+                    text.append(CHARACTERS[6 + random.nextInt(CHARACTERS.length - 6)]);
+                }
+                else {
+                    int run = random.nextInt(40);
+                    for (int j = 0; j < run; ++j) {
+                        text.append(CHARACTERS[random.nextInt(6)]);
+                    }
+                }
+            }
+            assertDecoded(text.toString(), random);
+        }
+    }
+
+    public void testBufferBoundaries() throws Exception {
+        Random random = new Random(31);
+        for (int c = 6; c < CHARACTERS.length; ++c) {
+            // the non-ASCII character starts at each offset around the end
+            // of the first buffers, and is followed by a run of ASCII
+            for (int offset = 0; offset < 70; ++offset) {
+                StringBuffer text = new StringBuffer();
+                for (int i = 0; i < offset; ++i) {
+                    text.append((char) ('a' + i % 26));
+                }
+                text.append(CHARACTERS[c]).append("0123456789abcdefghijklmnopqrstuvwxyz");
+                text.append(CHARACTERS[c]).append(CHARACTERS[c]).append("z");
+                assertDecoded(text.toString(), random);
+            }
+        }
+    }
+
+    public void testMalformedAfterASCII() throws Exception {
+        byte[][] malformed = {
+            { (byte) 0x80 },
+            { (byte) 0xC3, 0x41 },
+            { (byte) 0xE6, 0x41, (byte) 0xA2 },
+            { (byte) 0xF0, (byte) 0x9D, 0x41, (byte) 0x9E },
+            { (byte) 0xFF },
+        };
+        String[] keys = { "InvalidByte", "InvalidByte", "InvalidByte", "InvalidByte", "InvalidByte" };
+        for (int i = 0; i < malformed.length; ++i) {
+            for (int offset = 0; offset < 20; ++offset) {
+                // a non-ASCII character, a run of ASCII and the malformed bytes
+                byte[] prefix = ("\u00e9" + "abcdefghijklmnopqrst".substring(0, offset)).getBytes("UTF-8");
+                byte[] bytes = new byte[prefix.length + malformed[i].length + 2];
+                System.arraycopy(prefix, 0, bytes, 0, prefix.length);
+                System.arraycopy(malformed[i], 0, bytes, prefix.length, malformed[i].length);
+                bytes[bytes.length - 2] = 'x';
+                bytes[bytes.length - 1] = 'y';
+                for (int b = 0; b < BUFFER_SIZES.length; ++b) {
+                    UTF8Reader reader = new UTF8Reader(new ByteArrayInputStream(bytes), BUFFER_SIZES[b],
+                            new XMLMessageFormatter(), Locale.ENGLISH);
+                    StringBuffer decoded = new StringBuffer();
+                    try {
+                        read(reader, 64, decoded);
+                        fail("sequence " + i + " after " + offset + " ASCII bytes: " + decoded);
+                    }
+                    catch (MalformedByteSequenceException e) {
+                        assertEquals("sequence " + i, keys[i], e.getKey());
+                    }
+                    // nothing is decoded past the malformed bytes
+                    assertTrue(decoded.toString(), ("\u00e9" + "abcdefghijklmnopqrst").startsWith(decoded.toString()));
+                }
+            }
+        }
+    }
+
+    //
+    // Private methods
+    //
+
+    /**
+     * Asserts that the given text is decoded by readers of each buffer
+     * size, with reads of each size from a stream returning the bytes in
+     * random pieces.
+     */
+    private void assertDecoded(String text, Random random) throws Exception {
+        byte[] bytes = text.getBytes("UTF-8");
+        for (int b = 0; b < BUFFER_SIZES.length; ++b) {
+            for (int r = 0; r < READ_SIZES.length; ++r) {
+                UTF8Reader reader = new UTF8Reader(new PieceStream(bytes, random), BUFFER_SIZES[b],
+                        new XMLMessageFormatter(), Locale.ENGLISH);
+                StringBuffer decoded = new StringBuffer();
+                read(reader, READ_SIZES[r], decoded);
+                assertEquals("buffer " + BUFFER_SIZES[b] + ", read " + READ_SIZES[r], text, decoded.toString());
+            }
+        }
+    } // assertDecoded(String,Random)
+
+    /** Reads all of the characters of the reader, with reads of the given size. */
+    private static void read(UTF8Reader reader, int size, StringBuffer decoded) throws IOException {
+        char[] ch = new char[size + 2];
+        ch[0] = ch[size + 1] = '\uffff';
+        int count;
+        // the characters are read at an offset, and nothing is written around them
+        while ((count = reader.read(ch, 1, size)) != -1) {
+            assertTrue(count >= 0 && count <= size);
+            assertTrue(ch[0] == '\uffff' && ch[size + 1] == '\uffff');
+            decoded.append(ch, 1, count);
+        }
+    } // read(UTF8Reader,int,StringBuffer)
+
+    //
+    // Classes
+    //
+
+    /** A stream which returns its bytes in pieces of random sizes. */
+    private static final class PieceStream extends InputStream {
+
+        private final byte[] fBytes;
+        private final Random fRandom;
+        private int fOffset;
+
+        PieceStream(byte[] bytes, Random random) {
+            fBytes = bytes;
+            fRandom = random;
+        }
+
+        public int read() {
+            return fOffset < fBytes.length ? fBytes[fOffset++] & 0xFF : -1;
+        }
+
+        public int read(byte[] b, int off, int len) {
+            if (fOffset == fBytes.length) {
+                return -1;
+            }
+            int count = Math.min(Math.min(len, 1 + fRandom.nextInt(8)), fBytes.length - fOffset);
+            System.arraycopy(fBytes, fOffset, b, off, count);
+            fOffset += count;
+            return count;
+        }
+
+    } // class PieceStream
+
+} // class UTF8ReaderTest
@@ -0,0 +1,212 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package parsers;
+
+import junit.framework.TestCase;
+
+import org.apache.xerces.util.SymbolTable;
+import org.apache.xerces.util.XMLAttributesImpl;
+import org.apache.xerces.xni.QName;
+
+/**
+ * Tests that the attribute lookups of XMLAttributesImpl, which go
+ * through its indexes once the list is large, find the same attributes
+ * as a linear scan of the list, below and above the indexing threshold
+ * and after the names in the list have been changed.
+ *
+ * @version $Id$
+ */
+public class AttributeIndexTest extends TestCase {
+
+    /** Namespace of the prefixed attributes. */
+    private static final String URI = "urn:u";
+
+    /** Sizes of the lists tested, around the indexing threshold. */
+    private static final int[] SIZES = { 1, 5, 19, 20, 21, 22, 25, 40, 100 };
+
+    private final SymbolTable fSymbolTable = new SymbolTable();
+
+    public AttributeIndexTest(String name) {
+        super(name);
+    }
+
+    public void testAdd() {
+        for (int i = 0; i < SIZES.length; ++i) {
+            XMLAttributesImpl attributes = createAttributes(SIZES[i]);
+            assertLookups(attributes, SIZES[i]);
+        }
+    }
+
+    public void testAddReplacingPrefix() {
+        for (int i = 0; i < SIZES.length; ++i) {
+            final int size = SIZES[i];
+            XMLAttributesImpl attributes = createAttributes(size);
+            // look up once so that the indexes are built before the replacement
+            assertLookups(attributes, size);
+            int index = attributes.addAttribute(
+                    name("q", "a" + (size / 2), URI), "CDATA", "w");
+            assertEquals(size / 2, index);
+            assertEquals(size, attributes.getLength());
+            assertEquals(index, attributes.getIndex("q:a" + (size / 2)));
+            assertEquals(-1, attributes.getIndex("p:a" + (size / 2)));
+            assertEquals("w", attributes.getValue("q:a" + (size / 2)));
+            assertLookups(attributes, size);
+        }
+    }
+
+    public void testAddReplacingUnqualified() {
+        for (int i = 0; i < SIZES.length; ++i) {
+            final int size = SIZES[i];
+            XMLAttributesImpl attributes = createAttributes(size);
+            attributes.addAttribute(name(null, "b", null), "CDATA", "v");
+            assertLookups(attributes, size + 1);
+            int index = attributes.addAttribute(name(null, "b", null), "CDATA", "w");
+            assertEquals(size, index);
+            assertEquals("w", attributes.getValue("b"));
+            assertLookups(attributes, size + 1);
+        }
+    }
+
+    public void testSetName() {
+        for (int i = 0; i < SIZES.length; ++i) {
+            final int size = SIZES[i];
+            XMLAttributesImpl attributes = createAttributes(size);
+            assertLookups(attributes, size);
+            attributes.setName(0, name("r", "renamed", "urn:r"));
+            assertEquals(0, attributes.getIndex("r:renamed"));
+            assertEquals(0, attributes.getIndex("urn:r", "renamed"));
+            assertEquals(-1, attributes.getIndex("p:a0"));
+            assertEquals(-1, attributes.getIndex(URI, "a0"));
+            assertLookups(attributes, size);
+        }
+    }
+
+    public void testSetURI() {
+        for (int i = 0; i < SIZES.length; ++i) {
+            final int size = SIZES[i];
+            XMLAttributesImpl attributes = createAttributes(size);
+            assertLookups(attributes, size);
+            attributes.setURI(size - 1, fSymbolTable.addSymbol("urn:other"));
+            assertEquals(size - 1, attributes.getIndex("urn:other", "a" + (size - 1)));
+            assertEquals(-1, attributes.getIndex(URI, "a" + (size - 1)));
+            assertEquals(size - 1, attributes.getIndex("p:a" + (size - 1)));
+            assertLookups(attributes, size);
+        }
+    }
+
+    public void testRemove() {
+        for (int i = 0; i < SIZES.length; ++i) {
+            final int size = SIZES[i];
+            XMLAttributesImpl attributes = createAttributes(size);
+            assertLookups(attributes, size);
+            attributes.removeAttributeAt(0);
+            assertEquals(size - 1, attributes.getLength());
+            assertEquals(-1, attributes.getIndex("p:a0"));
+            assertEquals(-1, attributes.getIndex(URI, "a0"));
+            assertLookups(attributes, size);
+            // re-adding the removed name appends it
+            assertEquals(size - 1, attributes.addAttribute(name("p", "a0", URI), "CDATA", "0"));
+            assertLookups(attributes, size);
+            attributes.removeAllAttributes();
+            assertEquals(-1, attributes.getIndex("p:a1"));
+            assertLookups(attributes, size);
+        }
+    }
+
+    //
+    // Private methods
+    //
+
+    /** Returns a list of the attributes p:a0 to p:aN in the same namespace. */
+    private XMLAttributesImpl createAttributes(int size) {
+        XMLAttributesImpl attributes = new XMLAttributesImpl();
+        for (int i = 0; i < size; ++i) {
+            attributes.addAttribute(name("p", "a" + i, URI), "CDATA", String.valueOf(i));
+        }
+        return attributes;
+    } // createAttributes(int):XMLAttributesImpl
+
+    /** Returns a qualified name made of symbols. */
+    private QName name(String prefix, String localpart, String uri) {
+        prefix = prefix != null ? fSymbolTable.addSymbol(prefix) : null;
+        localpart = fSymbolTable.addSymbol(localpart);
+        String rawname = prefix != null
+            ? fSymbolTable.addSymbol(prefix + ':' + localpart) : localpart;
+        uri = uri != null ? fSymbolTable.addSymbol(uri) : null;
+        return new QName(prefix, localpart, rawname, uri);
+    } // name(String,String,String):QName
+
+    /**
+     * Checks that every attribute in the list, and every name of the
+     * attributes p:a0 to p:aN, is found where a linear scan finds it.
+     */
+    private void assertLookups(XMLAttributesImpl attributes, int size) {
+        final int length = attributes.getLength();
+        for (int i = 0; i < length; ++i) {
+            final String rawname = attributes.getQName(i);
+            final String uri = attributes.getURI(i);
+            final String localpart = attributes.getLocalName(i);
+            assertLookup(attributes, rawname, uri, localpart);
+        }
+        for (int i = 0; i < size; ++i) {
+            QName name = name("p", "a" + i, URI);
+            assertLookup(attributes, name.rawname, name.uri, name.localpart);
+            name = name("q", "a" + i, URI);
+            assertLookup(attributes, name.rawname, name.uri, name.localpart);
+        }
+        assertEquals(-1, attributes.getIndex("missing"));
+        assertEquals(-1, attributes.getIndex(URI, "missing"));
+    } // assertLookups(XMLAttributesImpl,int)
+
+    private void assertLookup(XMLAttributesImpl attributes,
+            String rawname, String uri, String localpart) {
+        final int byQName = scanQName(attributes, rawname);
+        final int byName = scanName(attributes, uri, localpart);
+        assertEquals(rawname, byQName, attributes.getIndex(rawname));
+        assertEquals(rawname, byQName, attributes.getIndex(new String(rawname)));
+        assertEquals(rawname, byQName, attributes.getIndexFast(rawname));
+        assertEquals(rawname, byName, attributes.getIndex(uri, localpart));
+        assertEquals(rawname, byName, attributes.getIndex(
+                uri != null ? new String(uri) : null, new String(localpart)));
+        assertEquals(rawname, byName, attributes.getIndexFast(uri, localpart));
+        if (byQName != -1) {
+            assertEquals(rawname, attributes.getValue(byQName), attributes.getValue(rawname));
+        }
+    } // assertLookup(XMLAttributesImpl,String,String,String)
+
+    private static int scanQName(XMLAttributesImpl attributes, String rawname) {
+        for (int i = 0; i < attributes.getLength(); ++i) {
+            if (rawname.equals(attributes.getQName(i))) {
+                return i;
+            }
+        }
+        return -1;
+    } // scanQName(XMLAttributesImpl,String):int
+
+    private static int scanName(XMLAttributesImpl attributes, String uri, String localpart) {
+        for (int i = 0; i < attributes.getLength(); ++i) {
+            String attrURI = attributes.getURI(i);
+            if (localpart.equals(attributes.getLocalName(i)) &&
+                (uri == null ? attrURI == null : uri.equals(attrURI))) {
+                return i;
+            }
+        }
+        return -1;
+    } // scanName(XMLAttributesImpl,String,String):int
+
+} // class AttributeIndexTest
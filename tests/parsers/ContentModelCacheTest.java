@@ -0,0 +1,232 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package parsers;
+
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import org.apache.xerces.impl.dtd.DTDGrammar;
+import org.apache.xerces.impl.dtd.XMLContentSpec;
+import org.apache.xerces.impl.dtd.XMLDTDDescription;
+import org.apache.xerces.impl.dtd.XMLElementDecl;
+import org.apache.xerces.impl.dtd.models.ContentModelCache;
+import org.apache.xerces.impl.dtd.models.ContentModelValidator;
+import org.apache.xerces.parsers.SAXParser;
+import org.apache.xerces.parsers.XMLGrammarPreparser;
+import org.apache.xerces.util.SymbolTable;
+import org.apache.xerces.xni.grammars.XMLGrammarDescription;
+import org.apache.xerces.xni.parser.XMLInputSource;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXParseException;
+import org.xml.sax.helpers.DefaultHandler;
+
+/**
+ * Tests that the DTD grammars share the content models of structurally
+ * identical content specs, and only those, and that sharing content
+ * models doesn't change the results of validation.
+ *
+ * @version $Id$
+ */
+public class ContentModelCacheTest extends TestCase {
+
+    /** Feature identifier: validation. */
+    private static final String VALIDATION = "http://xml.org/sax/features/validation";
+
+    /** The declarations of the documents validated. */
+    private static final String DTD =
+        "<!ELEMENT doc (a|x|m|n|s)*>\n" +
+        "<!ELEMENT a (b,(c|d)*,e?)>\n" +
+        "<!ELEMENT x (b,(c|d)*,e?)>\n" +
+        "<!ELEMENT m (#PCDATA|b|c)*>\n" +
+        "<!ELEMENT n (#PCDATA|c|b)*>\n" +
+        "<!ELEMENT s (b)>\n" +
+        "<!ELEMENT b EMPTY>\n" +
+        "<!ELEMENT c EMPTY>\n" +
+        "<!ELEMENT d EMPTY>\n" +
+        "<!ELEMENT e EMPTY>\n";
+
+    /** The contents of the documents validated, valid and invalid. */
+    private static final String[] CONTENTS = {
+        "<a><b/><c/><d/><c/><e/></a><x><b/></x>",
+        "<a><c/></a><x><b/><e/><e/></x>",
+        "<m>t<b/>t<c/></m><n><c/>t<b/></n>",
+        "<m>t<d/></m><n><e/></n>",
+        "<s><b/></s><s/><s><b/><b/></s>",
+        "<a><b/><d/></a><s><c/></s><n/><x><b/><c/><d/><f/></x>",
+    };
+
+    public ContentModelCacheTest(String name) {
+        super(name);
+    }
+
+    protected void setUp() throws Exception {
+        ContentModelCache.clear();
+    }
+
+    protected void tearDown() throws Exception {
+        ContentModelCache.clear();
+    }
+
+    public void testIdenticalSpecs() throws Exception {
+        DTDGrammar g1 = preparse("<!ELEMENT a (b,(c|d)*,e?)><!ELEMENT m (#PCDATA|b)*>");
+        DTDGrammar g2 = preparse("<!ELEMENT x (b,(c|d)*,e?)><!ELEMENT n (#PCDATA|b)*>");
+        long misses = ContentModelCache.getMissCount();
+        long hits = ContentModelCache.getHitCount();
+        ContentModelValidator a = getContentModel(g1, "a");
+        ContentModelValidator m = getContentModel(g1, "m");
+        assertEquals(misses + 2, ContentModelCache.getMissCount());
+        assertSame(a, getContentModel(g2, "x"));
+        assertSame(m, getContentModel(g2, "n"));
+        assertEquals(misses + 2, ContentModelCache.getMissCount());
+        assertEquals(hits + 2, ContentModelCache.getHitCount());
+        assertNotSame(a, m);
+    }
+
+    public void testDifferentSpecs() throws Exception {
+        DTDGrammar g = preparse(
+            "<!ELEMENT a (b,c)><!ELEMENT x (c,b)><!ELEMENT y (b|c)>" +
+            "<!ELEMENT z (b,c)*><!ELEMENT m (#PCDATA|b)*><!ELEMENT n (b)*>");
+        String[] names = { "a", "x", "y", "z", "m", "n" };
+        ContentModelValidator[] models = new ContentModelValidator[names.length];
+        for (int i = 0; i < names.length; ++i) {
+            models[i] = getContentModel(g, names[i]);
+            assertNotNull(names[i], models[i]);
+            for (int j = 0; j < i; ++j) {
+                assertNotSame(names[j] + " and " + names[i], models[j], models[i]);
+            }
+        }
+    }
+
+    public void testMixedAndChildren() throws Exception {
+        TestGrammar g = new TestGrammar();
+        int mixed = g.declare("m", XMLElementDecl.TYPE_MIXED, "b", null);
+        int children = g.declare("c", XMLElementDecl.TYPE_CHILDREN, "b", null);
+        assertNotSame(g.getContentModel(mixed), g.getContentModel(children));
+        TestGrammar other = new TestGrammar();
+        assertSame(g.getContentModel(mixed), 
+                other.getContentModel(other.declare("n", XMLElementDecl.TYPE_MIXED, "b", null)));
+        assertSame(g.getContentModel(children), 
+                other.getContentModel(other.declare("d", XMLElementDecl.TYPE_CHILDREN, "b", null)));
+    }
+
+    public void testLeafURIs() throws Exception {
+        TestGrammar g = new TestGrammar();
+        ContentModelValidator none = g.getContentModel(g.declare("e0", XMLElementDecl.TYPE_CHILDREN, "b", null));
+        ContentModelValidator a = g.getContentModel(g.declare("e1", XMLElementDecl.TYPE_CHILDREN, "b", "urn:a"));
+        ContentModelValidator b = g.getContentModel(g.declare("e2", XMLElementDecl.TYPE_CHILDREN, "b", "urn:b"));
+        assertNotSame(none, a);
+        assertNotSame(none, b);
+        assertNotSame(a, b);
+        assertSame(a, g.getContentModel(g.declare("e3", XMLElementDecl.TYPE_CHILDREN, "b", "urn:a")));
+        assertSame(none, g.getContentModel(g.declare("e4", XMLElementDecl.TYPE_CHILDREN, "b", null)));
+    }
+
+    public void testValidation() throws Exception {
+        // compile every content model for each document
+        List[] expected = new List[CONTENTS.length];
+        for (int i = 0; i < CONTENTS.length; ++i) {
+            ContentModelCache.clear();
+            expected[i] = validate(CONTENTS[i]);
+        }
+        assertTrue(expected[0].isEmpty());
+        assertTrue(expected[2].isEmpty());
+        assertFalse(expected[1].isEmpty());
+        assertFalse(expected[5].isEmpty());
+        // and take them from the cache
+        long hits = ContentModelCache.getHitCount();
+        for (int i = 0; i < CONTENTS.length; ++i) {
+            assertEquals(CONTENTS[i], expected[i], validate(CONTENTS[i]));
+        }
+        assertTrue(ContentModelCache.getHitCount() > hits);
+    }
+
+    //
+    // Private methods
+    //
+
+    /** Preparses the given DTD. */
+    private DTDGrammar preparse(String dtd) throws Exception {
+        XMLGrammarPreparser preparser = new XMLGrammarPreparser();
+        preparser.registerPreparser(XMLGrammarDescription.XML_DTD, null);
+        return (DTDGrammar) preparser.preparseGrammar(XMLGrammarDescription.XML_DTD, 
+                new XMLInputSource(null, "test.dtd", null, new StringReader(dtd), null));
+    } // preparse(String):DTDGrammar
+
+    /** Returns the content model of the given element. */
+    private ContentModelValidator getContentModel(DTDGrammar grammar, String name) {
+        XMLElementDecl decl = new XMLElementDecl();
+        assertTrue(name, grammar.getElementDecl(grammar.getElementDeclIndex(name), decl));
+        return decl.contentModelValidator;
+    } // getContentModel(DTDGrammar,String):ContentModelValidator
+
+    /** Validates a document of the given content and returns the errors. */
+    private List validate(String content) throws Exception {
+        final List errors = new ArrayList();
+        SAXParser parser = new SAXParser();
+        parser.setFeature(VALIDATION, true);
+        parser.setErrorHandler(new DefaultHandler() {
+            public void error(SAXParseException e) {
+                errors.add(e.getLineNumber() + ":" + e.getColumnNumber() + ": " + e.getMessage());
+            }
+        });
+        String doc = "<!DOCTYPE doc [\n" + DTD + "]>\n<doc>" + content + "</doc>";
+        parser.parse(new InputSource(new StringReader(doc)));
+        return errors;
+    } // validate(String):List
+
+    //
+    // Classes
+    //
+
+    /** 
+     * A grammar whose elements have a single leaf, which may have a 
+     * namespace URI, as their content spec.
+     */
+    private static final class TestGrammar extends DTDGrammar {
+
+        private final XMLContentSpec fSpec = new XMLContentSpec();
+        private final XMLElementDecl fDecl = new XMLElementDecl();
+
+        TestGrammar() {
+            super(new SymbolTable(), new XMLDTDDescription(null, "test.dtd", null, null, null));
+        }
+
+        /** Declares an element of the given content and returns its index. */
+        int declare(String name, short type, String leaf, String uri) {
+            int contentSpecIndex = createContentSpec();
+            fSpec.setValues(XMLContentSpec.CONTENTSPECNODE_LEAF, leaf, uri);
+            setContentSpec(contentSpecIndex, fSpec);
+            int elementDeclIndex = createElementDecl();
+            fDecl.clear();
+            fDecl.name.setValues(null, name, name, null);
+            fDecl.type = type;
+            setElementDecl(elementDeclIndex, fDecl);
+            setContentSpecIndex(elementDeclIndex, contentSpecIndex);
+            return elementDeclIndex;
+        }
+
+        ContentModelValidator getContentModel(int elementDeclIndex) {
+            return getElementContentModelValidator(elementDeclIndex);
+        }
+
+    } // class TestGrammar
+
+} // class ContentModelCacheTest
@@ -0,0 +1,299 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package parsers;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStreamWriter;
+import java.io.StringReader;
+import java.io.Writer;
+
+import junit.framework.TestCase;
+
+import org.apache.xerces.parsers.DOMParser;
+import org.apache.xerces.parsers.SAXParser;
+import org.apache.xerces.util.XMLGrammarPoolImpl;
+import org.apache.xerces.xni.grammars.XMLGrammarPool;
+import org.apache.xerces.xni.parser.XMLErrorHandler;
+import org.apache.xerces.xni.parser.XMLParseException;
+import org.w3c.dom.Attr;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NamedNodeMap;
+import org.w3c.dom.Node;
+import org.xml.sax.Attributes;
+import org.xml.sax.InputSource;
+import org.xml.sax.ext.Attributes2;
+import org.xml.sax.helpers.DefaultHandler;
+
+/**
+ * Tests the attributes defaulted and checked with the declarations of
+ * a DTD, for elements with many declared attributes, with and without
+ * validation and with a grammar pool.
+ *
+ * @version $Id$
+ */
+public class DTDAttributeDefaultsTest extends TestCase {
+
+    /** Feature identifier: namespace prefixes. */
+    private static final String NAMESPACE_PREFIXES = "http://xml.org/sax/features/namespace-prefixes";
+
+    /** Feature identifier: xmlns URIs. */
+    private static final String XMLNS_URIS = "http://xml.org/sax/features/xmlns-uris";
+
+    /** Feature identifier: validation. */
+    private static final String VALIDATION = "http://xml.org/sax/features/validation";
+
+    /** Property identifier: error handler. */
+    private static final String ERROR_HANDLER = "http://apache.org/xml/properties/internal/error-handler";
+
+    /** The number of attributes declared for the element e. */
+    private static final int ATTRIBUTES = 300;
+
+    /** The external subset. */
+    private static final String DTD;
+    static {
+        StringBuffer dtd = new StringBuffer();
+        dtd.append("<!ELEMENT doc (e|n)*>\n");
+        dtd.append("<!ATTLIST doc xmlns:p CDATA #FIXED 'urn:p' version CDATA #FIXED '1.0'>\n");
+        dtd.append("<!ELEMENT e EMPTY>\n<!ATTLIST e");
+        for (int i = 0; i < ATTRIBUTES; ++i) {
+            dtd.append("\n  a").append(i);
+            switch (i % 5) {
+                case 0: dtd.append(" CDATA 'd").append(i).append("'"); break;
+                case 1: dtd.append(" CDATA #IMPLIED"); break;
+                case 2: dtd.append(" NMTOKEN #FIXED 'f").append(i).append("'"); break;
+                case 3: dtd.append(" (x|y|z) 'y'"); break;
+                default: dtd.append(" NMTOKENS #IMPLIED"); break;
+            }
+        }
+        dtd.append(">\n");
+        dtd.append("<!ELEMENT n EMPTY>\n");
+        dtd.append("<!ATTLIST n p:a CDATA 'pa' id ID #IMPLIED req CDATA #REQUIRED tokens NMTOKENS '  t1   t2 '>\n");
+        // the first declaration of an attribute is binding
+        dtd.append("<!ATTLIST n p:a CDATA 'ignored' extra CDATA 'second list'>\n");
+        DTD = dtd.toString();
+    }
+
+    /** A valid document. */
+    private static final String VALID =
+        "<doc><e a1='v1' a3=' x ' a4=' m  n '/><e a0='over' a2='f2' a299='z'/>"
+        + "<n req='r' id='i1'/><n req=' r2 ' p:a='own' tokens='t3'/></doc>";
+
+    /** An invalid document. */
+    private static final String INVALID =
+        "<doc version='2.0'><e a2='other' a3='w' zz='undeclared'/><n/></doc>";
+
+    private File fDTD;
+
+    public DTDAttributeDefaultsTest(String name) {
+        super(name);
+    }
+
+    protected void setUp() throws Exception {
+        super.setUp();
+        fDTD = File.createTempFile("attributes", ".dtd");
+        Writer out = new OutputStreamWriter(new FileOutputStream(fDTD), "UTF-8");
+        out.write(DTD);
+        out.close();
+    }
+
+    protected void tearDown() throws Exception {
+        fDTD.delete();
+        super.tearDown();
+    }
+
+    public void testDefaults() throws Exception {
+        String document = createDocument(VALID, "");
+        String attributes = parse(document, true, null);
+        assertEquals(attributes, parse(document, false, null));
+        assertEquals(-1, attributes.indexOf("error"));
+
+        // the specified and the defaulted attributes of the elements
+        String[] elements = split(attributes);
+        assertEquals(5, elements.length);
+        assertTrue(elements[0], elements[0].startsWith("<doc xmlns:p{http://www.w3.org/2000/xmlns/}p:CDATA:defaulted=[urn:p]"
+                + " version{}version:CDATA:defaulted=[1.0]"));
+        assertEquals(ATTRIBUTES - ATTRIBUTES / 5 * 2 + 2, count(elements[1]));
+        assertEquals(ATTRIBUTES - ATTRIBUTES / 5 * 2 + 1, count(elements[2]));
+        assertContains(elements[1], " a0{}a0:CDATA:defaulted=[d0]");
+        assertContains(elements[1], " a1{}a1:CDATA=[v1]");
+        assertContains(elements[1], " a3{}a3:NMTOKEN=[x]");
+        assertContains(elements[1], " a4{}a4:NMTOKENS=[m n]");
+        assertContains(elements[1], " a297{}a297:NMTOKEN:defaulted=[f297]");
+        assertContains(elements[1], " a298{}a298:NMTOKEN:defaulted=[y]");
+        assertEquals(-1, elements[1].indexOf(" a6{"));
+        assertContains(elements[2], " a0{}a0:CDATA=[over]");
+        assertContains(elements[2], " a2{}a2:NMTOKEN=[f2]");
+        assertContains(elements[2], " a299{}a299:NMTOKENS=[z]");
+        assertContains(elements[3], " p:a{urn:p}a:CDATA:defaulted=[pa]");
+        assertContains(elements[3], " tokens{}tokens:NMTOKENS:defaulted=[t1 t2]");
+        assertContains(elements[3], " extra{}extra:CDATA:defaulted=[second list]");
+        assertContains(elements[3], " id{}id:ID=[i1]");
+        assertContains(elements[4], " req{}req:CDATA=[ r2 ]");
+        assertContains(elements[4], " p:a{urn:p}a:CDATA=[own]");
+        assertContains(elements[4], " tokens{}tokens:NMTOKENS=[t3]");
+    }
+
+    public void testErrors() throws Exception {
+        String document = createDocument(INVALID, "");
+        String attributes = parse(document, true, null);
+        assertContains(attributes, "error MSG_FIXED_ATTVALUE_INVALID\n<doc");
+        assertContains(attributes, "error MSG_FIXED_ATTVALUE_INVALID\n"
+                + "error MSG_ATTRIBUTE_VALUE_NOT_IN_LIST\n"
+                + "error MSG_ATTRIBUTE_NOT_DECLARED\n<e");
+        assertContains(attributes, "error MSG_REQUIRED_ATTRIBUTE_NOT_SPECIFIED\n<n");
+        // the attributes are the same without validation
+        assertEquals(attributes.replaceAll("error .*\n", ""), parse(document, false, null));
+    }
+
+    public void testInternalSubset() throws Exception {
+        // the declarations of the internal subset are read first
+        String document = createDocument(VALID, "<!ATTLIST e a0 CDATA 'internal' a1 CDATA 'declared'>");
+        String attributes = parse(document, true, null);
+        assertEquals(attributes, parse(document, false, null));
+        String[] elements = split(attributes);
+        assertContains(elements[1], " a0{}a0:CDATA:defaulted=[internal]");
+        assertContains(elements[1], " a1{}a1:CDATA=[v1]");
+        assertContains(elements[2], " a0{}a0:CDATA=[over]");
+        assertContains(elements[2], " a1{}a1:CDATA:defaulted=[declared]");
+    }
+
+    public void testStandalone() throws Exception {
+        String document = "<?xml version='1.0' standalone='yes'?>" + createDocument("<doc><n req='r'/></doc>", "");
+        assertContains(parse(document, true, null), "error MSG_DEFAULTED_ATTRIBUTE_NOT_SPECIFIED\n");
+    }
+
+    public void testGrammarPool() throws Exception {
+        XMLGrammarPool pool = new XMLGrammarPoolImpl();
+        String[] documents = { createDocument(VALID, ""), createDocument(INVALID, "") };
+        for (int i = 0; i < documents.length; ++i) {
+            for (int j = 0; j < 2; ++j) {
+                boolean validation = j == 1;
+                String expected = parse(documents[i], validation, null);
+                // the grammar is read, then taken from the pool
+                assertEquals(expected, parse(documents[i], validation, pool));
+                assertEquals(expected, parse(documents[i], validation, pool));
+            }
+        }
+    }
+
+    public void testDOM() throws Exception {
+        String document = createDocument(VALID, "");
+        String[] elements = split(parse(document, true, null));
+        DOMParser parser = new DOMParser();
+        parser.setFeature(VALIDATION, true);
+        parser.parse(new InputSource(new StringReader(document)));
+        Document dom = parser.getDocument();
+        int i = 0;
+        for (Node node = dom.getDocumentElement(); node != null; node = next(node)) {
+            if (node.getNodeType() == Node.ELEMENT_NODE) {
+                NamedNodeMap attributes = ((Element) node).getAttributes();
+                assertEquals(elements[i], count(elements[i]), attributes.getLength());
+                for (int j = 0; j < attributes.getLength(); ++j) {
+                    Attr attr = (Attr) attributes.item(j);
+                    assertContains(elements[i], " " + attr.getName() + "{" + toString(attr.getNamespaceURI()) + "}"
+                            + toString(attr.getLocalName()) + ":" + attr.getSchemaTypeInfo().getTypeName()
+                            + (attr.getSpecified() ? "" : ":defaulted") + "=[" + attr.getValue() + "]");
+                }
+                ++i;
+            }
+        }
+        assertEquals(elements.length, i);
+    }
+
+    //
+    // Private methods
+    //
+
+    /** Creates a document with the external subset, and an internal subset. */
+    private String createDocument(String content, String internalSubset) {
+        return "<!DOCTYPE doc SYSTEM '" + fDTD.toURI() + "' [" + internalSubset + "]>" + content;
+    } // createDocument(String,String):String
+
+    /**
+     * Parses a document and returns a description of the attributes
+     * reported for its elements, preceded by the keys of the errors
+     * reported for them.
+     */
+    private static String parse(String document, boolean validation, XMLGrammarPool pool) throws Exception {
+        final StringBuffer description = new StringBuffer();
+        SAXParser parser = new SAXParser(null, pool);
+        parser.setFeature(NAMESPACE_PREFIXES, true);
+        parser.setFeature(XMLNS_URIS, true);
+        parser.setFeature(VALIDATION, validation);
+        parser.setContentHandler(new DefaultHandler() {
+            public void startElement(String uri, String localName, String qName, Attributes attributes) {
+                Attributes2 attributes2 = (Attributes2) attributes;
+                description.append('<').append(qName);
+                for (int i = 0; i < attributes.getLength(); ++i) {
+                    assertEquals(attributes.getValue(i), attributes.getValue(attributes.getQName(i)));
+                    assertTrue(attributes2.isDeclared(i) || attributes.getQName(i).equals("zz"));
+                    description.append(' ').append(attributes.getQName(i))
+                        .append('{').append(attributes.getURI(i)).append('}')
+                        .append(attributes.getLocalName(i))
+                        .append(':').append(attributes.getType(i))
+                        .append(attributes2.isSpecified(i) ? "" : ":defaulted")
+                        .append('=').append('[').append(attributes.getValue(i)).append(']');
+                }
+                description.append(">\n");
+            }
+        });
+        parser.setProperty(ERROR_HANDLER, new XMLErrorHandler() {
+            public void warning(String domain, String key, XMLParseException e) {
+            }
+            public void error(String domain, String key, XMLParseException e) {
+                description.append("error ").append(key).append('\n');
+            }
+            public void fatalError(String domain, String key, XMLParseException e) {
+                throw e;
+            }
+        });
+        parser.parse(new InputSource(new StringReader(document)));
+        return description.toString();
+    } // parse(String,boolean,XMLGrammarPool):String
+
+    /** Returns the description of each element. */
+    private static String[] split(String attributes) {
+        return attributes.split("\n");
+    } // split(String):String[]
+
+    /** Returns the number of attributes of the description of an element. */
+    private static int count(String element) {
+        return element.split("\\]").length - 1;
+    } // count(String):int
+
+    private static void assertContains(String string, String part) {
+        assertTrue(string + " does not contain " + part, string.indexOf(part) != -1);
+    } // assertContains(String,String)
+
+    private static Node next(Node node) {
+        if (node.getFirstChild() != null) {
+            return node.getFirstChild();
+        }
+        while (node != null && node.getNextSibling() == null) {
+            node = node.getParentNode();
+        }
+        return node != null ? node.getNextSibling() : null;
+    } // next(Node):Node
+
+    private static String toString(String string) {
+        return string != null ? string : "";
+    } // toString(String):String
+
+} // class DTDAttributeDefaultsTest
@@ -0,0 +1,202 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package parsers;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStreamWriter;
+import java.io.StringReader;
+import java.io.Writer;
+
+import junit.framework.TestCase;
+
+import org.apache.xerces.impl.Constants;
+import org.apache.xerces.parsers.CharArrayAttributes;
+import org.apache.xerces.parsers.SAXParser;
+import org.xml.sax.Attributes;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXParseException;
+import org.xml.sax.helpers.DefaultHandler;
+
+/**
+ * Tests that the attributes reported by a SAX parser are the same when
+ * their values are kept as characters until they are asked for, whether
+ * the values are read as strings or as characters.
+ *
+ * @version $Id$
+ */
+public class DeferredAttributeValuesTest extends TestCase {
+
+    /** Feature identifier: defer attribute values. */
+    private static final String DEFER_ATTRIBUTE_VALUES =
+        Constants.XERCES_FEATURE_PREFIX + Constants.DEFER_ATTRIBUTE_VALUES_FEATURE;
+
+    /** Feature identifier: namespace prefixes. */
+    private static final String NAMESPACE_PREFIXES = "http://xml.org/sax/features/namespace-prefixes";
+
+    /** Feature identifier: validation. */
+    private static final String VALIDATION = "http://xml.org/sax/features/validation";
+
+    /** Feature identifier: schema validation. */
+    private static final String SCHEMA_VALIDATION = "http://apache.org/xml/features/validation/schema";
+
+    /** A document with a DTD declaring and defaulting attributes. */
+    private static final String DTD_DOCUMENT =
+        "<!DOCTYPE doc [<!ELEMENT doc (e*)><!ELEMENT e EMPTY>"
+        + "<!ATTLIST doc xmlns:p CDATA #FIXED 'urn:p' version CDATA '1.0'>"
+        + "<!ATTLIST e id ID #IMPLIED tokens NMTOKENS #IMPLIED p:a CDATA 'default' b CDATA #IMPLIED>"
+        + "<!ENTITY ent 'entity &#38;#60; value'>]>"
+        + "<doc><e id='e1' tokens='  a   b  c ' b='&ent;'/>"
+        + "<e id='e2' p:a='&#x20AC;&#x10000;&lt;&amp;' b='tab&#9;and&#10;newline\tlast\n'/>"
+        + "<e b=\"'single' &quot;double&quot;\" p:a=''/></doc>";
+
+    /** A document with namespace declarations and long values. */
+    private static final String NAMESPACE_DOCUMENT;
+    static {
+        StringBuffer document = new StringBuffer("<r xmlns='urn:r' xmlns:q='urn:q'>");
+        StringBuffer value = new StringBuffer();
+        for (int i = 0; i < 3000; ++i) {
+            value.append((char) ('a' + i % 26));
+        }
+        document.append("<q:e q:long='").append(value).append("' plain='v'");
+        for (int i = 0; i < 40; ++i) {
+            document.append(" a").append(i).append("='").append(i).append("'");
+        }
+        document.append("><inner xmlns='' x='&#xD;'/></q:e></r>");
+        NAMESPACE_DOCUMENT = document.toString();
+    }
+
+    /** A schema which defaults and normalizes values. */
+    private static final String SCHEMA =
+        "<xs:schema xmlns:xs='http://www.w3.org/2001/XMLSchema'>"
+        + "<xs:element name='doc'><xs:complexType><xs:sequence><xs:element name='e'><xs:complexType>"
+        + "<xs:attribute name='t' type='xs:token'/><xs:attribute name='n' type='xs:int'/>"
+        + "<xs:attribute name='d' type='xs:string' default='defaulted'/>"
+        + "</xs:complexType></xs:element></xs:sequence></xs:complexType></xs:element></xs:schema>";
+
+    public DeferredAttributeValuesTest(String name) {
+        super(name);
+    }
+
+    public void testDTDAttributes() throws Exception {
+        assertSameAttributes(DTD_DOCUMENT, false);
+        assertSameAttributes(DTD_DOCUMENT, true);
+    }
+
+    public void testNamespaceAttributes() throws Exception {
+        assertSameAttributes(NAMESPACE_DOCUMENT, false);
+        assertSameAttributes("<?xml version='1.1'?>" + NAMESPACE_DOCUMENT, false);
+    }
+
+    public void testValues() throws Exception {
+        String attributes = parse(DTD_DOCUMENT, true, true, false);
+        assertTrue(attributes, attributes.indexOf("b{}b:CDATA=[entity < value]") != -1);
+        assertTrue(attributes, attributes.indexOf("tokens{}tokens:NMTOKENS=[a b c]") != -1);
+        assertTrue(attributes, attributes.indexOf("p:a{urn:p}a:CDATA=[\u20ac\ud800\udc00<&]") != -1);
+        assertTrue(attributes, attributes.indexOf("b{}b:CDATA=[tab\tand\nnewline last ]") != -1);
+        assertTrue(attributes, attributes.indexOf("p:a{urn:p}a:CDATA:defaulted=[default]") != -1);
+        assertTrue(attributes, attributes.indexOf("xmlns:p{}:CDATA:defaulted=[urn:p]") != -1);
+    }
+
+    public void testSchemaAttributes() throws Exception {
+        File schema = File.createTempFile("attributes", ".xsd");
+        try {
+            Writer out = new OutputStreamWriter(new FileOutputStream(schema), "UTF-8");
+            out.write(SCHEMA);
+            out.close();
+            String document = "<doc xmlns:xsi='http://www.w3.org/2001/XMLSchema-instance'"
+                + " xsi:noNamespaceSchemaLocation='" + schema.toURI() + "'><e t='  a  b ' n=' 12 '/></doc>";
+            String attributes = parse(document, false, false, true);
+            assertTrue(attributes, attributes.indexOf("d{}d:CDATA:defaulted=[defaulted]") != -1);
+            assertEquals(attributes, parse(document, true, false, true));
+            assertEquals(attributes, parse(document, true, true, true));
+        }
+        finally {
+            schema.delete();
+        }
+    }
+
+    //
+    // Private methods
+    //
+
+    /**
+     * Asserts that the attributes reported are the same with and without
+     * deferred values, read as strings or as characters.
+     */
+    private static void assertSameAttributes(String document, boolean validation) throws Exception {
+        String attributes = parse(document, false, false, validation);
+        assertEquals(attributes, parse(document, true, false, validation));
+        assertEquals(attributes, parse(document, true, true, validation));
+        assertEquals(attributes, parse(document, false, true, validation));
+    } // assertSameAttributes(String,boolean)
+
+    /**
+     * Parses a document and returns a description of the attributes
+     * reported for its elements.
+     */
+    private static String parse(String document, boolean defer, final boolean chars,
+            boolean validation) throws Exception {
+        final StringBuffer description = new StringBuffer();
+        SAXParser parser = new SAXParser();
+        parser.setFeature(DEFER_ATTRIBUTE_VALUES, defer);
+        parser.setFeature(NAMESPACE_PREFIXES, true);
+        parser.setFeature(VALIDATION, validation);
+        parser.setFeature(SCHEMA_VALIDATION, validation);
+        DefaultHandler handler = new DefaultHandler() {
+            public void startElement(String uri, String localName, String qName, Attributes attributes) {
+                CharArrayAttributes chararray = (CharArrayAttributes) attributes;
+                description.append('<').append(qName);
+                for (int i = 0; i < attributes.getLength(); ++i) {
+                    String value;
+                    if (chars) {
+                        // the characters first, so that no string has been created
+                        value = new String(chararray.getValueChars(i), 0, chararray.getValueLength(i));
+                        char[] copy = new char[chararray.getValueLength(i) + 2];
+                        assertEquals(copy.length - 2, chararray.getValueChars(i, copy, 1));
+                        assertEquals(value, new String(copy, 1, copy.length - 2));
+                        assertEquals(value, attributes.getValue(i));
+                    }
+                    else {
+                        value = attributes.getValue(i);
+                        assertEquals(value.length(), chararray.getValueLength(i));
+                    }
+                    assertEquals(value, attributes.getValue(attributes.getQName(i)));
+                    if (attributes.getLocalName(i).length() > 0) {
+                        assertEquals(value, attributes.getValue(attributes.getURI(i), attributes.getLocalName(i)));
+                    }
+                    description.append(' ').append(attributes.getQName(i))
+                        .append('{').append(attributes.getURI(i)).append('}')
+                        .append(attributes.getLocalName(i))
+                        .append(':').append(attributes.getType(i))
+                        .append(chararray.isSpecified(i) ? "" : ":defaulted")
+                        .append('=').append('[').append(value).append(']');
+                }
+                description.append(">\n");
+            }
+            public void error(SAXParseException e) {
+                description.append("error: ").append(e.getMessage()).append('\n');
+            }
+        };
+        parser.setContentHandler(handler);
+        parser.setErrorHandler(handler);
+        parser.parse(new InputSource(new StringReader(document)));
+        return description.toString();
+    } // parse(String,boolean,boolean,boolean):String
+
+} // class DeferredAttributeValuesTest
@@ -0,0 +1,159 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package schema.assertions;
+
+import java.io.StringReader;
+
+import javax.xml.transform.stream.StreamSource;
+import javax.xml.validation.Schema;
+import javax.xml.validation.SchemaFactory;
+import javax.xml.validation.Validator;
+
+import junit.framework.TestCase;
+
+import org.apache.xerces.impl.Constants;
+import org.apache.xerces.impl.xs.assertion.XSAssertStreamingPlan;
+import org.xml.sax.ErrorHandler;
+import org.xml.sax.SAXException;
+import org.xml.sax.SAXParseException;
+
+/**
+ * Tests that the assertions of an element are evaluated the same way
+ * whether the assertions of the enclosing element are streamed or
+ * evaluated on a tree of its content. The assertions of an element are
+ * evaluated on a tree rooted at the element, so that the parent and
+ * sibling axes are empty in both cases.
+ *
+ * @version $Id$
+ */
+public class AssertionStreamingTest extends TestCase {
+
+    /** An assertion of the parent which can be streamed. */
+    private static final String STREAMED = "count(c) ge 0";
+
+    /** The same assertion, which needs a tree of the content of the parent. */
+    private static final String MATERIALIZED = "count(c[true()]) ge 0";
+
+    /** The document validated, whose parents hold four children. */
+    private static final String DOCUMENT =
+        "<root><p k='1'><c v='1'><a/></c><c v='2'/><c v='3'><a/></c><c v='4'/></p>"
+        + "<p><c v='5'><a/><a/></c></p><p k='2'/></root>";
+
+    public AssertionStreamingTest(String name) {
+        super(name);
+    }
+
+    protected void setUp() throws Exception {
+        super.setUp();
+        assertNotNull(XSAssertStreamingPlan.newPlan(STREAMED));
+        assertNull(XSAssertStreamingPlan.newPlan(MATERIALIZED));
+    }
+
+    public void testParentAxis() throws Exception {
+        // the children with an "a" fail, since the parent is not in the tree
+        assertSameErrors("empty(a) or ../@k", 3);
+        assertSameErrors("exists(..)", 5);
+        assertSameErrors("empty(ancestor::*)", 0);
+    }
+
+    public void testSiblingAxis() throws Exception {
+        assertSameErrors("empty(preceding-sibling::c)", 0);
+        assertSameErrors("empty(following-sibling::*)", 0);
+        assertSameErrors("count(preceding-sibling::* | following-sibling::*) eq 0", 0);
+    }
+
+    public void testOwnContent() throws Exception {
+        assertSameErrors("count(a) le 1", 1);
+        assertSameErrors("@v mod 2 eq 1 or empty(a)", 0);
+        assertSameErrors("@v lt 5", 1);
+        // a child assertion which can be streamed too
+        assertSameErrors("exists(a)", 2);
+    }
+
+    public void testRootFunction() throws Exception {
+        assertSameErrors("root(.) is .", 0);
+        assertSameErrors("count(root(.)//a) eq count(a)", 0);
+    }
+
+    //
+    // Private methods
+    //
+
+    /**
+     * Checks that an assertion of the children fails as many times when
+     * the assertion of the parent is streamed as when it is not.
+     */
+    private void assertSameErrors(String childTest, int failures) throws Exception {
+        String streamed = validate(newSchema(STREAMED, childTest), DOCUMENT);
+        String materialized = validate(newSchema(MATERIALIZED, childTest), DOCUMENT);
+        assertEquals(childTest, materialized, streamed);
+        assertEquals(childTest, failures, count(streamed, "cvc-assertion"));
+    } // assertSameErrors(String,int)
+
+    /** Creates a schema whose parents and children have the given assertions. */
+    private static Schema newSchema(String parentTest, String childTest) throws Exception {
+        String schema =
+            "<xs:schema xmlns:xs='http://www.w3.org/2001/XMLSchema'>"
+            + "<xs:element name='root'><xs:complexType><xs:sequence>"
+            + "<xs:element name='p' maxOccurs='unbounded'><xs:complexType><xs:sequence>"
+            + "<xs:element name='c' minOccurs='0' maxOccurs='unbounded'><xs:complexType><xs:sequence>"
+            + "<xs:element name='a' minOccurs='0' maxOccurs='unbounded'/>"
+            + "</xs:sequence><xs:attribute name='v' type='xs:int'/>"
+            + "<xs:assert test=\"" + childTest + "\"/>"
+            + "</xs:complexType></xs:element>"
+            + "</xs:sequence><xs:attribute name='k' type='xs:int'/>"
+            + "<xs:assert test=\"" + parentTest + "\"/>"
+            + "</xs:complexType></xs:element>"
+            + "</xs:sequence></xs:complexType></xs:element>"
+            + "</xs:schema>";
+        SchemaFactory factory = SchemaFactory.newInstance(Constants.W3C_XML_SCHEMA11_NS_URI);
+        return factory.newSchema(new StreamSource(new StringReader(schema)));
+    } // newSchema(String,String):Schema
+
+    /**
+     * Validates a document and returns the keys of the errors reported,
+     * each followed by a space.
+     */
+    private static String validate(Schema schema, String document) throws Exception {
+        final StringBuffer errors = new StringBuffer();
+        Validator validator = schema.newValidator();
+        validator.setErrorHandler(new ErrorHandler() {
+            public void warning(SAXParseException e) {
+            }
+            public void error(SAXParseException e) {
+                String message = e.getMessage();
+                int colon = message.indexOf(':');
+                errors.append(colon != -1 ? message.substring(0, colon) : message).append(' ');
+            }
+            public void fatalError(SAXParseException e) throws SAXException {
+                throw e;
+            }
+        });
+        validator.validate(new StreamSource(new StringReader(document)));
+        return errors.toString();
+    } // validate(Schema,String):String
+
+    private static int count(String errors, String key) {
+        int count = 0;
+        for (int i = errors.indexOf(key); i != -1; i = errors.indexOf(key, i + 1)) {
+            ++count;
+        }
+        return count;
+    } // count(String,String):int
+
+} // class AssertionStreamingTest
@@ -0,0 +1,199 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package schema.assertions;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStreamWriter;
+import java.io.StringReader;
+import java.io.Writer;
+
+import javax.xml.transform.stream.StreamSource;
+import javax.xml.validation.Schema;
+import javax.xml.validation.SchemaFactory;
+import javax.xml.validation.Validator;
+
+import junit.framework.TestCase;
+
+import org.apache.xerces.impl.Constants;
+import org.xml.sax.ErrorHandler;
+import org.xml.sax.SAXException;
+import org.xml.sax.SAXParseException;
+
+/**
+ * Tests that the compiled expression of an assertion, which is shared by
+ * the validations with its grammar, gives the same verdicts when it is
+ * evaluated concurrently by validations whose schemas are made of other
+ * grammars too.
+ *
+ * @version $Id$
+ */
+public class SharedExpressionTest extends TestCase {
+
+    /** The number of threads validating documents. */
+    private static final int THREADS = 8;
+
+    /** The number of documents validated by each thread. */
+    private static final int DOCUMENTS = 200;
+
+    /** The grammar of the assertion, shared by the documents. */
+    private static final String SCHEMA_A =
+        "<xs:schema xmlns:xs='http://www.w3.org/2001/XMLSchema' xmlns:a='urn:a'"
+        + " targetNamespace='urn:a' elementFormDefault='qualified'>"
+        + "<xs:simpleType name='count'><xs:restriction base='xs:int'/></xs:simpleType>"
+        + "<xs:element name='root'><xs:complexType><xs:sequence>"
+        + "<xs:element name='item' minOccurs='0' maxOccurs='unbounded'/>"
+        + "<xs:any namespace='##other' processContents='lax' minOccurs='0'/>"
+        + "</xs:sequence><xs:attribute name='n' type='a:count'/>"
+        + "<xs:assert test=\"count(a:item) eq xs:int(@n) and (@n castable as a:count) and (every $i in a:item satisfies empty($i/*))\"/>"
+        + "</xs:complexType></xs:element>"
+        + "</xs:schema>";
+
+    /** A grammar which only some of the documents load. */
+    private static final String SCHEMA_B =
+        "<xs:schema xmlns:xs='http://www.w3.org/2001/XMLSchema'"
+        + " targetNamespace='urn:b' elementFormDefault='qualified'>"
+        + "<xs:element name='extra' type='xs:string'/>"
+        + "</xs:schema>";
+
+    /** The directory of the schema documents. */
+    private File fDirectory;
+
+    public SharedExpressionTest(String name) {
+        super(name);
+    }
+
+    protected void setUp() throws Exception {
+        super.setUp();
+        fDirectory = File.createTempFile("assertions", "");
+        fDirectory.delete();
+        fDirectory.mkdir();
+        write("a.xsd", SCHEMA_A);
+        write("b.xsd", SCHEMA_B);
+    }
+
+    protected void tearDown() throws Exception {
+        new File(fDirectory, "a.xsd").delete();
+        new File(fDirectory, "b.xsd").delete();
+        fDirectory.delete();
+        super.tearDown();
+    }
+
+    public void testConcurrentValidation() throws Exception {
+        // the grammars are loaded from the schema locations of the documents, and shared
+        // by all of the validations of the schema
+        SchemaFactory factory = SchemaFactory.newInstance(Constants.W3C_XML_SCHEMA11_NS_URI);
+        final Schema schema = factory.newSchema();
+        final String a = new File(fDirectory, "a.xsd").toURI().toString();
+        final String b = new File(fDirectory, "b.xsd").toURI().toString();
+        final String[] documents = {
+            createDocument("urn:a " + a, 2, 2, false),
+            createDocument("urn:a " + a, 3, 2, false),
+            createDocument("urn:a " + a + " urn:b " + b, 2, 2, true),
+            createDocument("urn:a " + a + " urn:b " + b, 1, 2, true),
+        };
+        final String[] expected = { "", "cvc-assertion ", "", "cvc-assertion " };
+        // the verdicts of one thread, before the expression is shared
+        for (int i = 0; i < documents.length; ++i) {
+            assertEquals(documents[i], expected[i], validate(schema.newValidator(), documents[i]));
+        }
+
+        final Throwable[] failures = new Throwable[THREADS];
+        Thread[] threads = new Thread[THREADS];
+        for (int i = 0; i < THREADS; ++i) {
+            final int thread = i;
+            threads[i] = new Thread() {
+                public void run() {
+                    try {
+                        Validator validator = schema.newValidator();
+                        for (int j = 0; j < DOCUMENTS; ++j) {
+                            // the threads alternate between the validations with and without the second grammar
+                            int document = (j + thread) % documents.length;
+                            String errors = validate(j % 10 == 0 ? schema.newValidator() : validator,
+                                    documents[document]);
+                            assertEquals(documents[document], expected[document], errors);
+                        }
+                    }
+                    catch (Throwable e) {
+                        failures[thread] = e;
+                    }
+                }
+            };
+            threads[i].start();
+        }
+        for (int i = 0; i < THREADS; ++i) {
+            threads[i].join();
+            if (failures[i] instanceof Error) {
+                throw (Error) failures[i];
+            }
+            if (failures[i] != null) {
+                throw (Exception) failures[i];
+            }
+        }
+    }
+
+    //
+    // Private methods
+    //
+
+    /**
+     * Returns a document with the given schema locations, holding the given
+     * number of items, and an element of the second grammar if asked for.
+     */
+    private static String createDocument(String schemaLocation, int n, int items, boolean extra) {
+        StringBuffer document = new StringBuffer();
+        document.append("<p:root xmlns:p='urn:a' xmlns:xsi='http://www.w3.org/2001/XMLSchema-instance'")
+            .append(" xsi:schemaLocation='").append(schemaLocation).append("' n='").append(n).append("'>");
+        for (int i = 0; i < items; ++i) {
+            document.append("<p:item/>");
+        }
+        if (extra) {
+            document.append("<extra xmlns='urn:b'>text</extra>");
+        }
+        return document.append("</p:root>").toString();
+    } // createDocument(String,int,int,boolean):String
+
+    /**
+     * Validates a document and returns the keys of the errors reported,
+     * each followed by a space.
+     */
+    private static String validate(Validator validator, String document) throws Exception {
+        final StringBuffer errors = new StringBuffer();
+        validator.setErrorHandler(new ErrorHandler() {
+            public void warning(SAXParseException e) {
+            }
+            public void error(SAXParseException e) {
+                String message = e.getMessage();
+                int colon = message.indexOf(':');
+                errors.append(colon != -1 ? message.substring(0, colon) : message).append(' ');
+            }
+            public void fatalError(SAXParseException e) throws SAXException {
+                throw e;
+            }
+        });
+        validator.validate(new StreamSource(new StringReader(document)));
+        return errors.toString();
+    } // validate(Validator,String):String
+
+    private void write(String name, String content) throws Exception {
+        Writer out = new OutputStreamWriter(new FileOutputStream(new File(fDirectory, name)), "UTF-8");
+        out.write(content);
+        out.close();
+    } // write(String,String)
+
+} // class SharedExpressionTest
@@ -0,0 +1,77 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package schema.datatypes;
+
+import java.io.StringReader;
+
+import javax.xml.XMLConstants;
+import javax.xml.transform.stream.StreamSource;
+import javax.xml.validation.Schema;
+import javax.xml.validation.SchemaFactory;
+import javax.xml.validation.Validator;
+
+import junit.framework.TestCase;
+
+import org.apache.xerces.impl.Constants;
+import org.xml.sax.ErrorHandler;
+import org.xml.sax.SAXException;
+import org.xml.sax.SAXParseException;
+
+/**
+ * Validates documents against schemas given as strings and collects
+ * the keys of the errors reported.
+ *
+ * @version $Id$
+ */
+public abstract class BaseValueTest extends TestCase {
+
+    public BaseValueTest(String name) {
+        super(name);
+    }
+
+    /** Creates a schema from a schema document, in XML Schema 1.0 or 1.1. */
+    protected Schema newSchema(String schema, boolean xsd11) throws Exception {
+        SchemaFactory factory = SchemaFactory.newInstance(xsd11
+                ? Constants.W3C_XML_SCHEMA11_NS_URI : XMLConstants.W3C_XML_SCHEMA_NS_URI);
+        return factory.newSchema(new StreamSource(new StringReader(schema)));
+    }
+
+    /**
+     * Validates a document and returns the keys of the errors reported,
+     * each followed by a space.
+     */
+    protected String validate(Schema schema, String document) throws Exception {
+        final StringBuffer errors = new StringBuffer();
+        Validator validator = schema.newValidator();
+        validator.setErrorHandler(new ErrorHandler() {
+            public void warning(SAXParseException e) {
+            }
+            public void error(SAXParseException e) {
+                String message = e.getMessage();
+                int colon = message.indexOf(':');
+                errors.append(colon != -1 ? message.substring(0, colon) : message).append(' ');
+            }
+            public void fatalError(SAXParseException e) throws SAXException {
+                throw e;
+            }
+        });
+        validator.validate(new StreamSource(new StringReader(document)));
+        return errors.toString();
+    }
+
+}
@@ -0,0 +1,128 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package schema.datatypes;
+
+import javax.xml.validation.Schema;
+
+/**
+ * Tests that the values of an enumeration facet are compared by their
+ * actual values, so that equal values written differently are accepted.
+ *
+ * @version $Id$
+ */
+public class EnumerationValueTest extends BaseValueTest {
+
+    private static final String NOT_ENUMERATED = "cvc-enumeration-valid";
+
+    private static final String TYPES =
+        "<xs:simpleType name='decimal'><xs:restriction base='xs:decimal'>"
+        + "<xs:enumeration value='1.0'/><xs:enumeration value='2.50'/><xs:enumeration value='-0'/>"
+        + "</xs:restriction></xs:simpleType>"
+        + "<xs:simpleType name='double'><xs:restriction base='xs:double'>"
+        + "<xs:enumeration value='1e1'/><xs:enumeration value='INF'/><xs:enumeration value='0.25'/>"
+        + "</xs:restriction></xs:simpleType>"
+        + "<xs:simpleType name='dateTime'><xs:restriction base='xs:dateTime'>"
+        + "<xs:enumeration value='2000-01-01T12:00:00Z'/><xs:enumeration value='2000-01-01T24:00:00'/>"
+        + "</xs:restriction></xs:simpleType>"
+        + "<xs:simpleType name='qname'><xs:restriction base='xs:QName'>"
+        + "<xs:enumeration value='p:a'/>"
+        + "</xs:restriction></xs:simpleType>"
+        + "<xs:simpleType name='intList'><xs:restriction><xs:simpleType><xs:list itemType='xs:int'/></xs:simpleType>"
+        + "<xs:enumeration value='1 2'/><xs:enumeration value='3'/>"
+        + "</xs:restriction></xs:simpleType>"
+        + "<xs:simpleType name='intOrToken'><xs:restriction><xs:simpleType><xs:union memberTypes='xs:int xs:NMTOKEN'/></xs:simpleType>"
+        + "<xs:enumeration value='1'/><xs:enumeration value='x'/>"
+        + "</xs:restriction></xs:simpleType>";
+
+    public EnumerationValueTest(String name) {
+        super(name);
+    }
+
+    public void testEnumerations() throws Exception {
+        for (int i = 0; i < 2; ++i) {
+            Schema schema = newSchema(createSchema(TYPES, new String[] {
+                "decimal", "double", "dateTime", "qname", "intList", "intOrToken"
+            }), i == 1);
+            assertEnumerated(schema, "decimal", "1", true);
+            assertEnumerated(schema, "decimal", "2.5", true);
+            assertEnumerated(schema, "decimal", "+0.000", true);
+            assertEnumerated(schema, "decimal", "1.01", false);
+            assertEnumerated(schema, "double", "10", true);
+            assertEnumerated(schema, "double", "1.0E1", true);
+            assertEnumerated(schema, "double", "25E-2", true);
+            assertEnumerated(schema, "double", "INF", true);
+            assertEnumerated(schema, "double", "-INF", false);
+            assertEnumerated(schema, "double", "NaN", false);
+            assertEnumerated(schema, "dateTime", "2000-01-01T13:00:00+01:00", true);
+            assertEnumerated(schema, "dateTime", "2000-01-02T00:00:00", true);
+            assertEnumerated(schema, "dateTime", "2000-01-01T12:00:00", false);
+            assertEnumerated(schema, "qname", "q:a", true);
+            assertEnumerated(schema, "qname", "a", false);
+            assertEnumerated(schema, "intList", "01 +2", true);
+            assertEnumerated(schema, "intList", "03", true);
+            assertEnumerated(schema, "intList", "2 1", false);
+            assertEnumerated(schema, "intOrToken", "01", true);
+            assertEnumerated(schema, "intOrToken", "x", true);
+            assertEnumerated(schema, "intOrToken", "y", false);
+        }
+    }
+
+    public void testLargeEnumeration() throws Exception {
+        StringBuffer type = new StringBuffer("<xs:simpleType name='code'><xs:restriction base='xs:decimal'>");
+        for (int i = 0; i < 5000; ++i) {
+            type.append("<xs:enumeration value='").append(i).append(".0'/>");
+        }
+        type.append("</xs:restriction></xs:simpleType>");
+        Schema schema = newSchema(createSchema(type.toString(), new String[] { "code" }), false);
+        for (int i = 0; i < 5000; i += 13) {
+            assertEnumerated(schema, "code", "0" + i, true);
+            assertEnumerated(schema, "code", i + ".5", false);
+        }
+        assertEnumerated(schema, "code", "5000", false);
+    }
+
+    //
+    // Private methods
+    //
+
+    private void assertEnumerated(Schema schema, String type, String value, boolean enumerated) throws Exception {
+        String errors = validate(schema, "<root xmlns:p='urn:p' xmlns:q='urn:p'><" + type + ">"
+                + value + "</" + type + "></root>");
+        if (enumerated) {
+            assertEquals(type + " '" + value + "'", "", errors);
+        }
+        else {
+            assertTrue(type + " '" + value + "': " + errors, errors.startsWith(NOT_ENUMERATED + " "));
+        }
+    } // assertEnumerated(Schema,String,String,boolean)
+
+    /**
+     * Creates a schema with the given simple types, and an element of each
+     * type, named after it, which may be a child of the root element.
+     */
+    private static String createSchema(String types, String[] names) {
+        StringBuffer schema = new StringBuffer("<xs:schema xmlns:xs='http://www.w3.org/2001/XMLSchema' xmlns:p='urn:p'>"
+                + "<xs:element name='root'><xs:complexType><xs:choice>");
+        for (int i = 0; i < names.length; ++i) {
+            schema.append("<xs:element name='").append(names[i]).append("' type='").append(names[i]).append("'/>");
+        }
+        schema.append("</xs:choice></xs:complexType></xs:element>").append(types).append("</xs:schema>");
+        return schema.toString();
+    } // createSchema(String,String[]):String
+
+} // class EnumerationValueTest
@@ -0,0 +1,148 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package schema.datatypes;
+
+import javax.xml.validation.Schema;
+
+/**
+ * Tests that the values of keys and key references are compared by their
+ * actual values, so that equal values written differently are found in
+ * the value stores of identity constraints.
+ *
+ * @version $Id$
+ */
+public class KeyValueTest extends BaseValueTest {
+
+    private static final String DUPLICATE_KEY = "cvc-identity-constraint.4.2.2";
+
+    private static final String KEY_NOT_FOUND = "cvc-identity-constraint.4.3";
+
+    public KeyValueTest(String name) {
+        super(name);
+    }
+
+    public void testNumbers() throws Exception {
+        assertKeyed("xs:decimal", "1.0", "1.00", true);
+        assertKeyed("xs:decimal", "-0", "0.0", true);
+        assertKeyed("xs:decimal", "1.5", "1.05", false);
+        assertKeyed("xs:integer", "01", "+1", true);
+        assertKeyed("xs:int", "10", "100", false);
+        assertKeyed("xs:double", "1e0", "1.0", true);
+        assertKeyed("xs:double", "1E2", "100", true);
+        assertKeyed("xs:double", "INF", "INF", true);
+        assertKeyed("xs:float", "0.5", "5E-1", true);
+        assertKeyed("xs:float", "1", "1.1", false);
+        // values of different primitive types are never equal
+        assertKeyed("decimalOrDouble", "1", "1.0E0", false);
+        assertKeyed("decimalOrDouble", "1.0", "1", true);
+    }
+
+    public void testDatesAndTimes() throws Exception {
+        assertKeyed("xs:dateTime", "2000-01-01T12:00:00Z", "2000-01-01T13:00:00+01:00", true);
+        assertKeyed("xs:dateTime", "2000-01-01T24:00:00Z", "2000-01-02T00:00:00Z", true);
+        assertKeyed("xs:dateTime", "2000-01-01T12:00:00.50Z", "2000-01-01T12:00:00.5Z", true);
+        assertKeyed("xs:dateTime", "2000-01-01T12:00:00Z", "2000-01-01T12:00:00", false);
+        assertKeyed("xs:time", "12:00:00-02:00", "14:00:00Z", true);
+        assertKeyed("xs:date", "2000-01-01", "2000-01-02", false);
+        assertKeyed("xs:gYearMonth", "2000-01", "2000-01", true);
+        assertKeyed("xs:duration", "PT60S", "PT1M", true);
+        assertKeyed("xs:duration", "P1M", "P30D", false);
+    }
+
+    public void testOtherTypes() throws Exception {
+        assertKeyed("xs:boolean", "true", "1", true);
+        assertKeyed("xs:boolean", "false", "1", false);
+        assertKeyed("xs:hexBinary", "0a1B", "0A1b", true);
+        assertKeyed("xs:base64Binary", "AQID", "AQID", true);
+        assertKeyed("xs:string", "a", "A", false);
+        assertKeyed("xs:token", " a  b ", "a b", true);
+        assertKeyed("xs:QName", "p:a", "q:a", true);
+        assertKeyed("xs:QName", "p:a", "a", false);
+        assertKeyed("intList", "1 2", "01  +2", true);
+        assertKeyed("intList", "1 2", "2 1", false);
+    }
+
+    public void testPrecisionDecimal() throws Exception {
+        Schema schema = newSchema(createSchema("xs:precisionDecimal"), true);
+        assertEquals(DUPLICATE_KEY + " ", validate(schema, createDocument("1.0", "1.00", null)));
+        assertEquals(DUPLICATE_KEY + " ", validate(schema, createDocument("1E1", "10", null)));
+        assertEquals("", validate(schema, createDocument("1.0", "1.01", "1.010")));
+    }
+
+    public void testKeyReferences() throws Exception {
+        Schema schema = newSchema(createSchema("xs:decimal"), false);
+        assertEquals("", validate(schema, createDocument("1.0", "2", "01")));
+        assertEquals("", validate(schema, createDocument("1.0", "2", "2.000")));
+        assertEquals(KEY_NOT_FOUND + " ", validate(schema, createDocument("1.0", "2", "1.5")));
+
+        // many values, so that each is looked up among many others
+        StringBuffer document = new StringBuffer("<root>");
+        for (int i = 0; i < 2000; ++i) {
+            document.append("<item v='").append(i).append(".0'/>");
+        }
+        for (int i = 0; i < 2000; i += 7) {
+            document.append("<ref r='00").append(i).append("'/>");
+        }
+        StringBuffer duplicate = new StringBuffer(document.toString());
+        document.append("</root>");
+        assertEquals("", validate(schema, document.toString()));
+        duplicate.insert(duplicate.indexOf("<ref"), "<item v='1999.000'/>").append("</root>");
+        assertEquals(DUPLICATE_KEY + " ", validate(schema, duplicate.toString()));
+    }
+
+    //
+    // Private methods
+    //
+
+    /**
+     * Asserts whether two values of a type are duplicates of a key, in
+     * XML Schema 1.0 and 1.1.
+     */
+    private void assertKeyed(String type, String value1, String value2, boolean duplicate) throws Exception {
+        for (int i = 0; i < 2; ++i) {
+            Schema schema = newSchema(createSchema(type), i == 1);
+            String errors = validate(schema, createDocument(value1, value2, null));
+            assertEquals(type + " '" + value1 + "' '" + value2 + "'",
+                    duplicate ? DUPLICATE_KEY + " " : "", errors);
+        }
+    } // assertKeyed(String,String,String,boolean)
+
+    private static String createSchema(String type) {
+        return "<xs:schema xmlns:xs='http://www.w3.org/2001/XMLSchema'>"
+            + "<xs:element name='root'><xs:complexType><xs:sequence>"
+            + "<xs:element name='item' maxOccurs='unbounded'><xs:complexType>"
+            + "<xs:attribute name='v' type='" + type + "'/></xs:complexType></xs:element>"
+            + "<xs:element name='ref' minOccurs='0' maxOccurs='unbounded'><xs:complexType>"
+            + "<xs:attribute name='r' type='" + type + "'/></xs:complexType></xs:element>"
+            + "</xs:sequence></xs:complexType>"
+            + "<xs:key name='key'><xs:selector xpath='item'/><xs:field xpath='@v'/></xs:key>"
+            + "<xs:keyref name='keyref' refer='key'><xs:selector xpath='ref'/><xs:field xpath='@r'/></xs:keyref>"
+            + "</xs:element>"
+            + "<xs:simpleType name='intList'><xs:list itemType='xs:int'/></xs:simpleType>"
+            + "<xs:simpleType name='decimalOrDouble'><xs:union memberTypes='xs:decimal xs:double'/></xs:simpleType>"
+            + "</xs:schema>";
+    } // createSchema(String):String
+
+    private static String createDocument(String value1, String value2, String reference) {
+        return "<root xmlns:p='urn:p' xmlns:q='urn:p'>"
+            + "<item v='" + value1 + "'/><item v='" + value2 + "'/>"
+            + (reference != null ? "<ref r='" + reference + "'/>" : "")
+            + "</root>";
+    } // createDocument(String,String,String):String
+
+} // class KeyValueTest
@@ -0,0 +1,152 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package schema.datatypes;
+
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+import org.apache.xerces.impl.xpath.regex.Match;
+import org.apache.xerces.impl.xpath.regex.ParseException;
+import org.apache.xerces.impl.xpath.regex.RegularExpression;
+
+/**
+ * Tests that the automaton matching the regular expressions of pattern
+ * facets agrees with the backtracking interpreter. A regular expression
+ * in the XML Schema mode is matched by its automaton when no
+ * <code>Match</code> is given, and by the interpreter when one is.
+ *
+ * @version $Id$
+ */
+public class PatternMatchingTest extends TestCase {
+
+    /** The atoms of the generated expressions. */
+    private static final String[] ATOMS = {
+        "a", "b", "c", "\u00e9", "\\.", "\\-", ".", "\\d", "\\D", "\\s", "\\S", "\\w",
+        "\\i", "\\c", "\\p{L}", "\\p{Lu}", "\\P{Nd}", "\\p{IsBasicLatin}", "[a-c]",
+        "[^b]", "[ab\\d]", "[a-z-[aeiou]]", "[\\s\\S]", "\ud834\udd1e", "[\ud834\udd1e-\ud834\udd22]"
+    };
+
+    /** The quantifiers of the generated expressions. */
+    private static final String[] QUANTIFIERS = {
+        "", "", "", "*", "+", "?", "{2}", "{0,2}", "{1,}", "{2,3}"
+    };
+
+    /** The characters of the generated texts. */
+    private static final String[] CHARACTERS = {
+        "a", "b", "c", "z", "A", "1", "7", " ", "\n", ".", "-", "\u00e9", "\u0660",
+        "\ud834\udd1e", "\ud834", "\udd1e"
+    };
+
+    public PatternMatchingTest(String name) {
+        super(name);
+    }
+
+    public void testExpressions() {
+        assertMatches("[A-Z]{2}\\d{4}", "AB1234", true);
+        assertMatches("[A-Z]{2}\\d{4}", "AB123", false);
+        assertMatches("(ab|a)(bc|c)", "abc", true);
+        assertMatches("(a|b)*abb", "babaabb", true);
+        assertMatches("(a|b)*abb", "babaab", false);
+        assertMatches("\\d{3}-\\d{2}-\\d{4}", "123-45-6789", true);
+        assertMatches("[\\i-[:]][\\c-[:]]*", "name.1", true);
+        assertMatches("[\\i-[:]][\\c-[:]]*", "1name", false);
+        assertMatches(".", "\ud834\udd1e", true);
+        assertMatches("..", "\ud834\udd1e", false);
+        assertMatches("\ud834\udd1e+", "\ud834\udd1e\ud834\udd1e", true);
+        assertMatches("a{0}", "", true);
+        assertMatches("(a?){3}b", "aab", true);
+        // an expression whose automaton would be too large
+        assertMatches("(a|b)*a(a|b){12}", "bbabbbbbbbbbbbb", true);
+        assertMatches("(a|b)*a(a|b){12}", "bbbabbbbbbbbbbb", false);
+        // a case insensitive expression, which the automaton does not match
+        RegularExpression regex = new RegularExpression("[a-c]+x", "Xi");
+        assertTrue(regex.matches("aBCX"));
+        assertTrue(regex.matches("aBCX", new Match()));
+    }
+
+    public void testGeneratedExpressions() {
+        Random random = new Random(20101);
+        int compared = 0;
+        for (int i = 0; i < 500; ++i) {
+            String pattern = createPattern(random, 2);
+            RegularExpression regex;
+            try {
+                regex = new RegularExpression(pattern, "X");
+            }
+            catch (ParseException e) {
+                continue;
+            }
+            for (int j = 0; j < 30; ++j) {
+                String text = createText(random);
+                boolean expected = regex.matches(text, new Match());
+                assertEquals("/" + pattern + "/ on \"" + text + "\"", expected, regex.matches(text));
+                char[] chars = ("<" + text + ">").toCharArray();
+                assertEquals("/" + pattern + "/ on \"" + text + "\"", expected,
+                        regex.matches(chars, 1, chars.length - 1));
+                ++compared;
+            }
+        }
+        assertTrue(compared > 10000);
+    }
+
+    //
+    // Private methods
+    //
+
+    /**
+     * Asserts the result of matching an expression, by the automaton and
+     * by the interpreter.
+     */
+    private static void assertMatches(String pattern, String text, boolean expected) {
+        RegularExpression regex = new RegularExpression(pattern, "X");
+        assertEquals("/" + pattern + "/ on \"" + text + "\"", expected, regex.matches(text));
+        assertEquals("/" + pattern + "/ on \"" + text + "\"", expected, regex.matches(text, new Match()));
+    } // assertMatches(String,String,boolean)
+
+    private static String createPattern(Random random, int depth) {
+        StringBuffer pattern = new StringBuffer();
+        int branches = random.nextInt(4) == 0 ? 2 : 1;
+        for (int b = 0; b < branches; ++b) {
+            if (b > 0) {
+                pattern.append('|');
+            }
+            int pieces = 1 + random.nextInt(4);
+            for (int p = 0; p < pieces; ++p) {
+                if (depth > 0 && random.nextInt(5) == 0) {
+                    pattern.append('(').append(createPattern(random, depth - 1)).append(')');
+                }
+                else {
+                    pattern.append(ATOMS[random.nextInt(ATOMS.length)]);
+                }
+                pattern.append(QUANTIFIERS[random.nextInt(QUANTIFIERS.length)]);
+            }
+        }
+        return pattern.toString();
+    } // createPattern(Random,int):String
+
+    private static String createText(Random random) {
+        StringBuffer text = new StringBuffer();
+        int length = random.nextInt(8);
+        for (int i = 0; i < length; ++i) {
+            text.append(CHARACTERS[random.nextInt(CHARACTERS.length)]);
+        }
+        return text.toString();
+    } // createText(Random):String
+
+} // class PatternMatchingTest
@@ -0,0 +1,276 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package schema.datatypes;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.Hashtable;
+import java.util.Vector;
+
+import junit.framework.TestCase;
+
+import org.apache.xerces.impl.Constants;
+import org.apache.xerces.impl.dv.InvalidDatatypeValueException;
+import org.apache.xerces.impl.dv.SchemaDVFactory;
+import org.apache.xerces.impl.dv.ValidatedInfo;
+import org.apache.xerces.impl.dv.XSFacets;
+import org.apache.xerces.impl.dv.XSSimpleType;
+import org.apache.xerces.impl.dv.xs.SchemaDVFactoryImpl;
+import org.apache.xerces.impl.dv.xs.TypeValidatorHelper;
+import org.apache.xerces.impl.dv.xs.XSSimpleTypeDecl;
+import org.apache.xerces.impl.validation.ValidationState;
+import org.apache.xerces.impl.xs.XSDeclarationPool;
+
+/**
+ * Tests the validation of values by the checks compiled from the facets
+ * of simple types derived in several steps, after the types are reset
+ * and rebuilt by a declaration pool and after they are serialized. The
+ * expected verdicts are those of the walk over the defined facets which
+ * the compiled checks replaced, including which facet fails first.
+ *
+ * @version $Id$
+ */
+public class ValidationPlanTest extends TestCase {
+
+    private static final String PATTERN = "cvc-pattern-valid";
+    private static final String MIN_LENGTH = "cvc-minLength-valid";
+    private static final String MAX_LENGTH = "cvc-maxLength-valid";
+    private static final String ENUMERATION = "cvc-enumeration-valid";
+    private static final String TOTAL_DIGITS = "cvc-totalDigits-valid";
+    private static final String FRACTION_DIGITS = "cvc-fractionDigits-valid";
+    private static final String MIN_INCLUSIVE = "cvc-minInclusive-valid";
+    private static final String MAX_EXCLUSIVE = "cvc-maxExclusive-valid";
+    private static final String UNION = "cvc-datatype-valid.1.2.3";
+
+    /** The values of each type, and the key of the error reported or null. */
+    private static final String[][] VERDICTS = {
+        // a pattern at each of three levels
+        { "code", "AB12", null },
+        { "code", "ab12", PATTERN },
+        { "code", "ABCDEFG12", MAX_LENGTH },
+        { "code", "abcdefg12", PATTERN },
+        { "shortCode", "AB12", null },
+        { "shortCode", "A12", PATTERN },
+        { "shortCode", "AB", MIN_LENGTH },
+        { "shortCode", "ABCDEFG12", MAX_LENGTH },
+        { "shortCode", "Ab12", PATTERN },
+        { "fixedCode", "ABC12", null },
+        { "fixedCode", "ABC", PATTERN },
+        { "fixedCode", "ABD12", ENUMERATION },
+        { "fixedCode", "AB", PATTERN },
+        { "fixedCode", "A1234", PATTERN },
+        // whiteSpace and a pattern
+        { "name", "  Ab   cd ", null },
+        { "name", "ab cd", PATTERN },
+        { "name", "Ab  cd  ef gh", MAX_LENGTH },
+        // digits and bounds at two levels
+        { "price", "12.50", null },
+        { "price", "012.500", null },
+        { "price", "-1", MIN_INCLUSIVE },
+        { "price", "1.255", FRACTION_DIGITS },
+        { "price", "123456.7", TOTAL_DIGITS },
+        { "price", "-12345.678", FRACTION_DIGITS },
+        { "smallPrice", "99.99", null },
+        { "smallPrice", "100", MAX_EXCLUSIVE },
+        { "smallPrice", "100.5", MAX_EXCLUSIVE },
+        { "smallPrice", "1.005", FRACTION_DIGITS },
+        { "smallPrice", "1e2", PATTERN },
+        { "smallPrice", "-1", PATTERN },
+        // lists and unions of the derived types
+        { "codes", "AB12 CD34", null },
+        { "codes", "", MIN_LENGTH },
+        { "codes", "AB1 CD2 EF3 GH4", MAX_LENGTH },
+        { "codes", "AB1 c", PATTERN },
+        { "codeOrPrice", "AB12", null },
+        { "codeOrPrice", "12.5", null },
+        { "codeOrPrice", "100.5", UNION },
+        { "codeOrPrice", "100", PATTERN },
+        { "codeOrPrice", "1.5", PATTERN },
+    };
+
+    /** The validation context. */
+    private ValidationState fContext;
+
+    public ValidationPlanTest(String name) {
+        super(name);
+    }
+
+    protected void setUp() throws Exception {
+        super.setUp();
+        fContext = new ValidationState();
+        fContext.setExtraChecking(false);
+        fContext.setFacetChecking(true);
+        fContext.setTypeValidatorHelper(TypeValidatorHelper.getInstance(Constants.SCHEMA_VERSION_1_0));
+    }
+
+    public void testDerivedTypes() throws Exception {
+        assertVerdicts(createTypes(SchemaDVFactory.getInstance()));
+    }
+
+    public void testReset() throws Exception {
+        XSDeclarationPool pool = new XSDeclarationPool();
+        SchemaDVFactoryImpl factory = new SchemaDVFactoryImpl();
+        pool.setDVFactory(factory);
+        factory.setDeclPool(pool);
+        Hashtable types = createTypes(factory);
+        assertVerdicts(types);
+
+        // the same declarations are reset and built with other facets
+        pool.reset();
+        XSSimpleType code = createType(factory, "code", factory.getBuiltInType("string"),
+                XSSimpleType.FACET_MINLENGTH, 0, 5, null, null);
+        XSSimpleType shortCode = createType(factory, "shortCode", code, 0, 0, 0, null, null);
+        assertSame(types.get("code"), code);
+        assertSame(types.get("shortCode"), shortCode);
+        assertValid(code, "ab cd");
+        assertInvalid(code, "abcd", MIN_LENGTH);
+        assertValid(shortCode, "abcdefghijkl");
+        assertInvalid(shortCode, "abcd", MIN_LENGTH);
+
+        // and built again with the facets of the first types
+        pool.reset();
+        assertVerdicts(createTypes(factory));
+
+        // the built-in types are never reset
+        XSSimpleType decimal = factory.getBuiltInType("decimal");
+        ((XSSimpleTypeDecl) decimal).reset();
+        assertValid(decimal, "1.5");
+        assertInvalid(decimal, "x", "cvc-datatype-valid.1.2.1");
+    }
+
+    public void testSerialization() throws Exception {
+        Hashtable types = createTypes(SchemaDVFactory.getInstance());
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ObjectOutputStream out = new ObjectOutputStream(bytes);
+        out.writeObject(types);
+        out.close();
+        ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+        Hashtable copies = (Hashtable) in.readObject();
+        in.close();
+        assertNotSame(types.get("smallPrice"), copies.get("smallPrice"));
+        assertVerdicts(copies);
+    }
+
+    //
+    // Private methods
+    //
+
+    /** Creates the types of the verdicts, by name. */
+    private static Hashtable createTypes(SchemaDVFactory factory) throws Exception {
+        Hashtable types = new Hashtable();
+        XSSimpleType code = createType(factory, "code", factory.getBuiltInType("string"),
+                XSSimpleType.FACET_PATTERN | XSSimpleType.FACET_MAXLENGTH, 8, 0, "[A-Z]+[0-9]*", null);
+        XSSimpleType shortCode = createType(factory, "shortCode", code,
+                XSSimpleType.FACET_PATTERN | XSSimpleType.FACET_MINLENGTH, 0, 3, "[A-Z]{2}.*", null);
+        XSSimpleType fixedCode = createType(factory, "fixedCode", shortCode,
+                XSSimpleType.FACET_PATTERN | XSSimpleType.FACET_ENUMERATION, 0, 0, ".*[0-9]",
+                new String[] { "AB12", "ABC12", "ABCD9" });
+        XSSimpleType name = createType(factory, "name", factory.getBuiltInType("token"),
+                XSSimpleType.FACET_PATTERN | XSSimpleType.FACET_MAXLENGTH, 10, 0, "[A-Z].*", null);
+
+        XSFacets facets = new XSFacets();
+        facets.totalDigits = 6;
+        facets.fractionDigits = 2;
+        facets.minInclusive = "0";
+        XSSimpleType price = factory.createTypeRestriction("price", null, (short) 0,
+                factory.getBuiltInType("decimal"), null);
+        price.applyFacets(facets, XSSimpleType.FACET_TOTALDIGITS | XSSimpleType.FACET_FRACTIONDIGITS |
+                XSSimpleType.FACET_MININCLUSIVE, 0, newContext());
+        facets = new XSFacets();
+        facets.maxExclusive = "100";
+        facets.pattern = "[0-9.]+";
+        XSSimpleType smallPrice = factory.createTypeRestriction("smallPrice", null, (short) 0, price, null);
+        smallPrice.applyFacets(facets, XSSimpleType.FACET_MAXEXCLUSIVE | XSSimpleType.FACET_PATTERN,
+                0, newContext());
+
+        XSSimpleType codes = createType(factory, "codes",
+                factory.createTypeList(null, null, (short) 0, shortCode, null),
+                XSSimpleType.FACET_MINLENGTH | XSSimpleType.FACET_MAXLENGTH, 3, 1, null, null);
+        XSSimpleType codeOrPrice = createType(factory, "codeOrPrice",
+                factory.createTypeUnion(null, null, (short) 0, new XSSimpleType[] { shortCode, smallPrice }, null),
+                XSSimpleType.FACET_PATTERN, 0, 0, "[A-Z0-9.]{4,}", null);
+
+        types.put("code", code);
+        types.put("shortCode", shortCode);
+        types.put("fixedCode", fixedCode);
+        types.put("name", name);
+        types.put("price", price);
+        types.put("smallPrice", smallPrice);
+        types.put("codes", codes);
+        types.put("codeOrPrice", codeOrPrice);
+        return types;
+    } // createTypes(SchemaDVFactory):Hashtable
+
+    /** Creates a restriction of the given type with the given facets. */
+    private static XSSimpleType createType(SchemaDVFactory factory, String name, XSSimpleType base,
+            int present, int maxLength, int minLength, String pattern, String[] enumeration) throws Exception {
+        XSSimpleType type = factory.createTypeRestriction(name, null, (short) 0, base, null);
+        XSFacets facets = new XSFacets();
+        facets.maxLength = maxLength;
+        facets.minLength = minLength;
+        facets.pattern = pattern;
+        if (enumeration != null) {
+            facets.enumeration = new Vector();
+            for (int i = 0; i < enumeration.length; ++i) {
+                facets.enumeration.addElement(enumeration[i]);
+            }
+        }
+        type.applyFacets(facets, present, 0, newContext());
+        return type;
+    } // createType(SchemaDVFactory,String,XSSimpleType,int,int,int,String,String[]):XSSimpleType
+
+    private static ValidationState newContext() {
+        ValidationState context = new ValidationState();
+        context.setTypeValidatorHelper(TypeValidatorHelper.getInstance(Constants.SCHEMA_VERSION_1_0));
+        return context;
+    } // newContext():ValidationState
+
+    private void assertVerdicts(Hashtable types) {
+        for (int i = 0; i < VERDICTS.length; ++i) {
+            XSSimpleType type = (XSSimpleType) types.get(VERDICTS[i][0]);
+            if (VERDICTS[i][2] == null) {
+                assertValid(type, VERDICTS[i][1]);
+            }
+            else {
+                assertInvalid(type, VERDICTS[i][1], VERDICTS[i][2]);
+            }
+        }
+    } // assertVerdicts(Hashtable)
+
+    private void assertValid(XSSimpleType type, String value) {
+        try {
+            type.validate(value, fContext, new ValidatedInfo());
+        }
+        catch (InvalidDatatypeValueException e) {
+            fail(type.getName() + " '" + value + "': " + e.getKey());
+        }
+    } // assertValid(XSSimpleType,String)
+
+    private void assertInvalid(XSSimpleType type, String value, String key) {
+        try {
+            type.validate(value, fContext, new ValidatedInfo());
+            fail(type.getName() + " '" + value + "' is valid");
+        }
+        catch (InvalidDatatypeValueException e) {
+            assertEquals(type.getName() + " '" + value + "'", key, e.getKey());
+        }
+    } // assertInvalid(XSSimpleType,String,String)
+
+} // class ValidationPlanTest
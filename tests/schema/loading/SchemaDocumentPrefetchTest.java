@@ -0,0 +1,393 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package schema.loading;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import org.apache.xerces.impl.Constants;
+import org.apache.xerces.impl.xs.XMLSchemaLoader;
+import org.apache.xerces.xni.XNIException;
+import org.apache.xerces.xni.grammars.XSGrammar;
+import org.apache.xerces.xni.parser.XMLErrorHandler;
+import org.apache.xerces.xni.parser.XMLInputSource;
+import org.apache.xerces.xni.parser.XMLParseException;
+import org.apache.xerces.xs.StringList;
+import org.apache.xerces.xs.XSAttributeUse;
+import org.apache.xerces.xs.XSComplexTypeDefinition;
+import org.apache.xerces.xs.XSConstants;
+import org.apache.xerces.xs.XSElementDeclaration;
+import org.apache.xerces.xs.XSModel;
+import org.apache.xerces.xs.XSModelGroup;
+import org.apache.xerces.xs.XSNamedMap;
+import org.apache.xerces.xs.XSNamespaceItem;
+import org.apache.xerces.xs.XSNamespaceItemList;
+import org.apache.xerces.xs.XSObject;
+import org.apache.xerces.xs.XSObjectList;
+import org.apache.xerces.xs.XSParticle;
+import org.apache.xerces.xs.XSSimpleTypeDefinition;
+import org.apache.xerces.xs.XSTerm;
+import org.apache.xerces.xs.XSTypeDefinition;
+
+/**
+ * Tests that the schema documents fetched ahead by loading threads give
+ * the same grammars and report the same warnings and errors as the
+ * documents fetched by the XSDHandler itself, for schemas made of
+ * included, imported, redefined and overridden documents and for
+ * documents which are missing or can't be read.
+ *
+ * @version $Id$
+ */
+public class SchemaDocumentPrefetchTest extends TestCase {
+
+    /** Property identifier: schema loading threads. */
+    private static final String SCHEMA_LOADING_THREADS =
+        Constants.XERCES_PROPERTY_PREFIX + Constants.SCHEMA_LOADING_THREADS_PROPERTY;
+
+    /** Property identifier: XML Schema version. */
+    private static final String XML_SCHEMA_VERSION =
+        Constants.XERCES_PROPERTY_PREFIX + Constants.XML_SCHEMA_VERSION_PROPERTY;
+
+    /** The numbers of loading threads compared with none. */
+    private static final int[] THREADS = { 1, 2, 8 };
+
+    /** The number of times a schema is loaded with each number of threads. */
+    private static final int REPEAT = 3;
+
+    private static final String HEADER =
+        "<xs:schema xmlns:xs='http://www.w3.org/2001/XMLSchema' xmlns:m='urn:main'" +
+        " xmlns:i='urn:imp' xmlns:j='urn:imp2' elementFormDefault='qualified'";
+
+    /** The documents of the schemas, by file name. */
+    private static final String[][] DOCUMENTS = {
+        // include, import and redefine
+        { "main.xsd", HEADER + " targetNamespace='urn:main'>" +
+            "<xs:include schemaLocation='inc.xsd'/>" +
+            "<xs:redefine schemaLocation='red.xsd'><xs:complexType name='redType'>" +
+            "<xs:complexContent><xs:extension base='m:redType'><xs:sequence>" +
+            "<xs:element name='b' type='xs:int'/></xs:sequence></xs:extension>" +
+            "</xs:complexContent></xs:complexType></xs:redefine>" +
+            "<xs:import namespace='urn:imp' schemaLocation='imp.xsd'/>" +
+            "<xs:import namespace='urn:imp2' schemaLocation='imp2.xsd'/>" +
+            "<xs:element name='root'><xs:complexType><xs:sequence>" +
+            "<xs:element ref='m:inc'/><xs:element name='red' type='m:redType'/>" +
+            "<xs:element ref='i:imp'/><xs:element ref='j:x' maxOccurs='unbounded'/>" +
+            "</xs:sequence><xs:attribute name='code' type='m:code'/></xs:complexType></xs:element>" +
+            "</xs:schema>" },
+        { "inc.xsd", HEADER + " targetNamespace='urn:main'>" +
+            "<xs:include schemaLocation='inc2.xsd'/>" +
+            "<xs:element name='inc' type='m:code'/></xs:schema>" },
+        { "inc2.xsd", HEADER + " targetNamespace='urn:main'>" +
+            "<xs:simpleType name='code'><xs:restriction base='xs:string'>" +
+            "<xs:pattern value='[A-Z]{3}'/></xs:restriction></xs:simpleType></xs:schema>" },
+        { "red.xsd", HEADER + " targetNamespace='urn:main'>" +
+            "<xs:complexType name='redType'><xs:sequence><xs:element name='a' type='xs:string'/>" +
+            "</xs:sequence></xs:complexType></xs:schema>" },
+        { "imp.xsd", HEADER + " targetNamespace='urn:imp'>" +
+            "<xs:import namespace='urn:imp2' schemaLocation='imp2.xsd'/>" +
+            "<xs:include schemaLocation='imp-inc.xsd'/>" +
+            "<xs:element name='imp' type='i:impType'/></xs:schema>" },
+        { "imp-inc.xsd", HEADER + " targetNamespace='urn:imp'>" +
+            "<xs:import namespace='urn:imp2' schemaLocation='imp2.xsd'/>" +
+            "<xs:complexType name='impType'><xs:choice><xs:element ref='j:x'/>" +
+            "<xs:any namespace='##other' processContents='lax'/></xs:choice>" +
+            "<xs:attribute name='id' type='xs:ID'/></xs:complexType></xs:schema>" },
+        { "imp2.xsd", HEADER + " targetNamespace='urn:imp2'>" +
+            "<xs:element name='x' type='xs:string'/></xs:schema>" },
+        // override
+        { "ovr-main.xsd", HEADER + " targetNamespace='urn:main'>" +
+            "<xs:override schemaLocation='ovr.xsd'><xs:simpleType name='code'>" +
+            "<xs:restriction base='xs:int'/></xs:simpleType></xs:override>" +
+            "<xs:element name='root' type='m:ovrType'/></xs:schema>" },
+        { "ovr.xsd", HEADER + " targetNamespace='urn:main'>" +
+            "<xs:include schemaLocation='inc2.xsd'/>" +
+            "<xs:import namespace='urn:imp2' schemaLocation='imp2.xsd'/>" +
+            "<xs:complexType name='ovrType'><xs:sequence><xs:element name='c' type='m:code'/>" +
+            "<xs:element ref='j:x'/></xs:sequence></xs:complexType></xs:schema>" },
+        // missing documents
+        { "missing-main.xsd", HEADER + " targetNamespace='urn:main'>" +
+            "<xs:include schemaLocation='inc.xsd'/>" +
+            "<xs:include schemaLocation='missing.xsd'/>" +
+            "<xs:import namespace='urn:imp' schemaLocation='missing-imp.xsd'/>" +
+            "<xs:import namespace='urn:imp2' schemaLocation='imp2.xsd'/>" +
+            "<xs:element name='root' type='m:fromMissing'/>" +
+            "<xs:element name='other' type='i:impType'/></xs:schema>" },
+        // unreadable documents
+        { "dir-main.xsd", HEADER + " targetNamespace='urn:main'>" +
+            "<xs:include schemaLocation='inc.xsd'/>" +
+            "<xs:include schemaLocation='dir'/>" +
+            "<xs:import namespace='urn:imp2' schemaLocation='imp2.xsd'/>" +
+            "<xs:element name='root' type='m:code'/></xs:schema>" },
+        { "bad-main.xsd", HEADER + " targetNamespace='urn:main'>" +
+            "<xs:include schemaLocation='inc.xsd'/>" +
+            "<xs:import namespace='urn:imp2' schemaLocation='imp2.xsd'/>" +
+            "<xs:include schemaLocation='bad.xsd'/>" +
+            "<xs:element name='root' type='m:code'/></xs:schema>" },
+        { "bad.xsd", HEADER + " targetNamespace='urn:main'>" +
+            "<xs:element name='a'></xs:schema>" },
+    };
+
+    /** The directory of the schema documents. */
+    private File fDirectory;
+
+    public SchemaDocumentPrefetchTest(String name) {
+        super(name);
+    }
+
+    protected void setUp() throws Exception {
+        super.setUp();
+        fDirectory = File.createTempFile("loading", "");
+        fDirectory.delete();
+        fDirectory.mkdir();
+        for (int i = 0; i < DOCUMENTS.length; ++i) {
+            write(new File(fDirectory, DOCUMENTS[i][0]), DOCUMENTS[i][1]);
+        }
+        new File(fDirectory, "dir").mkdir();
+    }
+
+    protected void tearDown() throws Exception {
+        for (int i = 0; i < DOCUMENTS.length; ++i) {
+            new File(fDirectory, DOCUMENTS[i][0]).delete();
+        }
+        new File(fDirectory, "dir").delete();
+        fDirectory.delete();
+        super.tearDown();
+    }
+
+    public void testIncludeImportRedefine() throws Exception {
+        String expected = assertSameLoading("main.xsd", null);
+        assertTrue(expected, expected.indexOf("urn:imp2") != -1);
+        assertTrue(expected, expected.indexOf("element b") != -1);
+    }
+
+    public void testOverride() throws Exception {
+        String expected = assertSameLoading("ovr-main.xsd", Constants.W3C_XML_SCHEMA11_NS_URI);
+        assertTrue(expected, expected.indexOf("simple code xs:int") != -1);
+    }
+
+    public void testMissingDocument() throws Exception {
+        String expected = assertSameLoading("missing-main.xsd", null);
+        assertTrue(expected, expected.indexOf("schema_reference.4") != -1);
+        assertTrue(expected, expected.indexOf("src-resolve") != -1);
+    }
+
+    public void testUnreadableDocument() throws Exception {
+        String expected = assertSameLoading("dir-main.xsd", null);
+        assertTrue(expected, expected.indexOf("fatal") != -1);
+        expected = assertSameLoading("bad-main.xsd", null);
+        assertTrue(expected, expected.indexOf("fatal") != -1 || expected.indexOf("exception") != -1);
+    }
+
+    //
+    // Private methods
+    //
+
+    /**
+     * Asserts that the given schema document loads the same grammars and
+     * reports the same warnings and errors with and without loading
+     * threads, and returns the result of the loading.
+     */
+    private String assertSameLoading(String document, String version) {
+        String expected = load(document, version, 0);
+        for (int i = 0; i < THREADS.length; ++i) {
+            for (int j = 0; j < REPEAT; ++j) {
+                assertEquals(THREADS[i] + " threads", expected, load(document, version, THREADS[i]));
+            }
+        }
+        return expected;
+    } // assertSameLoading(String,String):String
+
+    /**
+     * Loads the given schema document with the given number of loading
+     * threads and returns a description of the grammars loaded and of
+     * the warnings and errors reported.
+     */
+    private String load(String document, String version, int threads) {
+        final StringBuffer result = new StringBuffer();
+        XMLSchemaLoader loader = new XMLSchemaLoader();
+        if (version != null) {
+            loader.setProperty(XML_SCHEMA_VERSION, version);
+        }
+        if (threads > 0) {
+            loader.setProperty(SCHEMA_LOADING_THREADS, new Integer(threads));
+        }
+        loader.setErrorHandler(new XMLErrorHandler() {
+            public void warning(String domain, String key, XMLParseException e) {
+                report("warning", key, e);
+            }
+            public void error(String domain, String key, XMLParseException e) {
+                report("error", key, e);
+            }
+            public void fatalError(String domain, String key, XMLParseException e) {
+                report("fatal", key, e);
+            }
+            private void report(String severity, String key, XMLParseException e) {
+                String systemId = e.getExpandedSystemId();
+                result.append(severity).append(' ').append(key).append(' ')
+                    .append(systemId != null ? systemId.substring(systemId.lastIndexOf('/') + 1) : null)
+                    .append(':').append(e.getLineNumber()).append(':').append(e.getColumnNumber())
+                    .append(' ').append(e.getMessage()).append('\n');
+            }
+        });
+        String systemId = new File(fDirectory, document).toURI().toString();
+        try {
+            XSGrammar grammar = (XSGrammar) loader.loadGrammar(new XMLInputSource(null, systemId, null));
+            if (grammar != null) {
+                describe(grammar.toXSModel(), result);
+            }
+        }
+        catch (XNIException e) {
+            result.append("exception ").append(e.getMessage()).append('\n');
+        }
+        catch (Exception e) {
+            result.append("exception ").append(e).append('\n');
+        }
+        return result.toString();
+    } // load(String,String,int):String
+
+    /** Writes a description of the components of the given model. */
+    private static void describe(XSModel model, StringBuffer result) {
+        XSNamespaceItemList namespaces = model.getNamespaceItems();
+        List lines = new ArrayList();
+        for (int i = 0; i < namespaces.getLength(); ++i) {
+            XSNamespaceItem namespace = namespaces.item(i);
+            if (Constants.NS_XMLSCHEMA.equals(namespace.getSchemaNamespace())) {
+                continue;
+            }
+            String prefix = namespace.getSchemaNamespace() + " ";
+            describe(namespace.getComponents(XSConstants.TYPE_DEFINITION), prefix, lines);
+            describe(namespace.getComponents(XSConstants.ELEMENT_DECLARATION), prefix, lines);
+            describe(namespace.getComponents(XSConstants.ATTRIBUTE_DECLARATION), prefix, lines);
+            describe(namespace.getComponents(XSConstants.MODEL_GROUP_DEFINITION), prefix, lines);
+            describe(namespace.getComponents(XSConstants.ATTRIBUTE_GROUP), prefix, lines);
+        }
+        Collections.sort(lines);
+        for (int i = 0; i < lines.size(); ++i) {
+            result.append(lines.get(i)).append('\n');
+        }
+    } // describe(XSModel,StringBuffer)
+
+    /** Adds a line describing each of the given components. */
+    private static void describe(XSNamedMap components, String prefix, List lines) {
+        for (int i = 0; i < components.getLength(); ++i) {
+            StringBuffer line = new StringBuffer(prefix);
+            describe(components.item(i), line);
+            lines.add(line.toString());
+        }
+    } // describe(XSNamedMap,String,List)
+
+    /** Describes the given component. */
+    private static void describe(XSObject component, StringBuffer line) {
+        switch (component.getType()) {
+            case XSConstants.TYPE_DEFINITION: {
+                XSTypeDefinition type = (XSTypeDefinition) component;
+                if (type.getTypeCategory() == XSTypeDefinition.SIMPLE_TYPE) {
+                    XSSimpleTypeDefinition simpleType = (XSSimpleTypeDefinition) type;
+                    line.append("simple ").append(type.getName()).append(' ');
+                    appendName(type.getBaseType(), line);
+                    StringList patterns = simpleType.getLexicalPattern();
+                    for (int i = 0; i < patterns.getLength(); ++i) {
+                        line.append(' ').append(patterns.item(i));
+                    }
+                }
+                else {
+                    XSComplexTypeDefinition complexType = (XSComplexTypeDefinition) type;
+                    line.append("complex ").append(type.getName()).append(' ');
+                    appendName(type.getBaseType(), line);
+                    line.append(' ').append(complexType.getDerivationMethod())
+                        .append(' ').append(complexType.getContentType()).append(' ');
+                    if (complexType.getParticle() != null) {
+                        describe(complexType.getParticle(), line);
+                    }
+                    XSObjectList uses = complexType.getAttributeUses();
+                    for (int i = 0; i < uses.getLength(); ++i) {
+                        line.append(" @").append(((XSAttributeUse) uses.item(i)).getAttrDeclaration().getName());
+                    }
+                }
+                break;
+            }
+            case XSConstants.ELEMENT_DECLARATION: {
+                XSElementDeclaration element = (XSElementDeclaration) component;
+                line.append("element ").append(element.getName()).append(' ');
+                if (element.getTypeDefinition().getAnonymous()) {
+                    describe(element.getTypeDefinition(), line);
+                }
+                else {
+                    appendName(element.getTypeDefinition(), line);
+                }
+                break;
+            }
+            case XSConstants.PARTICLE: {
+                XSParticle particle = (XSParticle) component;
+                XSTerm term = particle.getTerm();
+                if (term.getType() == XSConstants.MODEL_GROUP) {
+                    XSObjectList particles = ((XSModelGroup) term).getParticles();
+                    line.append(((XSModelGroup) term).getCompositor()).append('(');
+                    for (int i = 0; i < particles.getLength(); ++i) {
+                        line.append(i > 0 ? "," : "");
+                        describe(particles.item(i), line);
+                    }
+                    line.append(')');
+                }
+                else if (term.getType() == XSConstants.ELEMENT_DECLARATION) {
+                    describe(term, line);
+                }
+                else {
+                    line.append("any");
+                }
+                line.append('{').append(particle.getMinOccurs()).append(',')
+                    .append(particle.getMaxOccursUnbounded() ? "*" : String.valueOf(particle.getMaxOccurs()))
+                    .append('}');
+                break;
+            }
+            default:
+                line.append(component.getType()).append(' ').append(component.getName());
+        }
+    } // describe(XSObject,StringBuffer)
+
+    /** Appends the qualified name of the given type. */
+    private static void appendName(XSTypeDefinition type, StringBuffer line) {
+        if (type == null) {
+            line.append("null");
+        }
+        else if (Constants.NS_XMLSCHEMA.equals(type.getNamespace())) {
+            line.append("xs:").append(type.getName());
+        }
+        else {
+            line.append('{').append(type.getNamespace()).append('}').append(type.getName());
+        }
+    } // appendName(XSTypeDefinition,StringBuffer)
+
+    private static void write(File file, String content) throws Exception {
+        Writer writer = new OutputStreamWriter(new FileOutputStream(file), "UTF-8");
+        try {
+            writer.write(content);
+        }
+        finally {
+            writer.close();
+        }
+    } // write(File,String)
+
+} // class SchemaDocumentPrefetchTest
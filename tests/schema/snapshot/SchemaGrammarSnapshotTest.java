@@ -0,0 +1,243 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package schema.snapshot;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.InvalidClassException;
+import java.io.ObjectOutputStream;
+import java.io.OutputStreamWriter;
+import java.io.StreamCorruptedException;
+import java.io.StringReader;
+import java.io.Writer;
+import java.util.HashMap;
+import java.util.zip.DeflaterOutputStream;
+
+import junit.framework.TestCase;
+
+import org.apache.xerces.impl.Constants;
+import org.apache.xerces.impl.Version;
+import org.apache.xerces.impl.xs.SchemaGrammar;
+import org.apache.xerces.impl.xs.SchemaGrammarSnapshot;
+import org.apache.xerces.parsers.SAXParser;
+import org.apache.xerces.parsers.XMLGrammarPreparser;
+import org.apache.xerces.util.XMLGrammarPoolImpl;
+import org.apache.xerces.xni.grammars.Grammar;
+import org.apache.xerces.xni.grammars.XMLGrammarDescription;
+import org.apache.xerces.xni.grammars.XMLGrammarPool;
+import org.apache.xerces.xni.parser.XMLInputSource;
+import org.apache.xerces.xs.XSElementDeclaration;
+import org.apache.xerces.xs.XSSimpleTypeDefinition;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXParseException;
+import org.xml.sax.helpers.DefaultHandler;
+
+/**
+ * Tests that the schema grammars read from a snapshot validate documents
+ * as the grammars written to it, and that only the classes of schema
+ * grammars are read from a snapshot.
+ *
+ * @version $Id$
+ */
+public class SchemaGrammarSnapshotTest extends TestCase {
+
+    /** Feature identifier: validation. */
+    private static final String VALIDATION = "http://xml.org/sax/features/validation";
+
+    /** Feature identifier: schema validation. */
+    private static final String SCHEMA_VALIDATION = "http://apache.org/xml/features/validation/schema";
+
+    /** Feature identifier: use grammar pool only. */
+    private static final String USE_GRAMMAR_POOL_ONLY =
+        Constants.XERCES_FEATURE_PREFIX + Constants.USE_GRAMMAR_POOL_ONLY_FEATURE;
+
+    /** The schema of the namespace urn:order, which imports the schema of urn:types. */
+    private static final String ORDER_SCHEMA =
+        "<xs:schema xmlns:xs='http://www.w3.org/2001/XMLSchema' xmlns:t='urn:types'"
+        + " targetNamespace='urn:order' xmlns='urn:order' xmlns:o='urn:order' elementFormDefault='qualified'>"
+        + "<xs:import namespace='urn:types' schemaLocation='types.xsd'/>"
+        + "<xs:element name='order'><xs:complexType><xs:sequence>"
+        + "<xs:element ref='line' maxOccurs='unbounded'/>"
+        + "<xs:element name='note' type='xs:string' minOccurs='0'/>"
+        + "</xs:sequence><xs:attribute name='date' type='xs:date' use='required'/></xs:complexType>"
+        + "<xs:key name='lineKey'><xs:selector xpath='o:line|o:special'/><xs:field xpath='@code'/></xs:key>"
+        + "</xs:element>"
+        + "<xs:element name='line' type='lineType'/>"
+        + "<xs:element name='special' substitutionGroup='line'/>"
+        + "<xs:complexType name='lineType'><xs:choice minOccurs='0'>"
+        + "<xs:element name='quantity' type='xs:positiveInteger'/>"
+        + "<xs:element name='weight' type='t:weight'/>"
+        + "</xs:choice><xs:attribute name='code' type='t:code' use='required'/>"
+        + "<xs:anyAttribute namespace='##other' processContents='lax'/></xs:complexType>"
+        + "</xs:schema>";
+
+    /** The schema of the namespace urn:types. */
+    private static final String TYPES_SCHEMA =
+        "<xs:schema xmlns:xs='http://www.w3.org/2001/XMLSchema' targetNamespace='urn:types'>"
+        + "<xs:simpleType name='code'><xs:restriction base='xs:token'>"
+        + "<xs:pattern value='[A-Z]{2}-\\d{3}'/></xs:restriction></xs:simpleType>"
+        + "<xs:simpleType name='weight'><xs:restriction base='xs:decimal'>"
+        + "<xs:minExclusive value='0'/><xs:fractionDigits value='2'/></xs:restriction></xs:simpleType>"
+        + "<xs:simpleType name='unit'><xs:restriction base='xs:string'>"
+        + "<xs:enumeration value='kg'/><xs:enumeration value='lb'/></xs:restriction></xs:simpleType>"
+        + "</xs:schema>";
+
+    /** Valid and invalid documents. */
+    private static final String[] DOCUMENTS = {
+        "<order xmlns='urn:order' date='2010-01-01'><line code='AB-123'><quantity>2</quantity></line>"
+            + "<special code='AB-124'><weight>1.25</weight></special><note>n</note></order>",
+        "<order xmlns='urn:order' date='2010-01-01'><line code='AB-123'/><line code='AB-123'/></order>",
+        "<order xmlns='urn:order' date='2010-1-1'><line code='A-1'><weight>1.255</weight></line></order>",
+        "<order xmlns='urn:order' date='2010-01-01'><line code='AB-123'><quantity>0</quantity></line>"
+            + "<other/></order>",
+        "<order xmlns='urn:order' xmlns:x='urn:x' date='2010-01-01'><line code='AB-123' x:y='z'/></order>"
+    };
+
+    private File fDirectory;
+
+    public SchemaGrammarSnapshotTest(String name) {
+        super(name);
+    }
+
+    protected void setUp() throws Exception {
+        super.setUp();
+        fDirectory = File.createTempFile("snapshot", "");
+        fDirectory.delete();
+        fDirectory.mkdir();
+        write(new File(fDirectory, "order.xsd"), ORDER_SCHEMA);
+        write(new File(fDirectory, "types.xsd"), TYPES_SCHEMA);
+    }
+
+    protected void tearDown() throws Exception {
+        File[] files = fDirectory.listFiles();
+        for (int i = 0; i < files.length; ++i) {
+            files[i].delete();
+        }
+        fDirectory.delete();
+        super.tearDown();
+    }
+
+    public void testRoundTrip() throws Exception {
+        XMLGrammarPool pool = loadGrammars();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        SchemaGrammarSnapshot.exportGrammars(pool, out);
+
+        XMLGrammarPool imported = new XMLGrammarPoolImpl();
+        assertEquals(2, SchemaGrammarSnapshot.importGrammars(new ByteArrayInputStream(out.toByteArray()), imported));
+        for (int i = 0; i < DOCUMENTS.length; ++i) {
+            assertEquals(DOCUMENTS[i], validate(pool, DOCUMENTS[i]), validate(imported, DOCUMENTS[i]));
+        }
+        assertEquals("", validate(imported, DOCUMENTS[0]));
+        assertEquals("cvc-identity-constraint.4.2.2 ", validate(imported, DOCUMENTS[1]));
+
+        // names are interned, and the built-in types are the same objects
+        SchemaGrammar order = findGrammar(imported, "urn:order");
+        XSElementDeclaration line = order.getElementDeclaration("line");
+        assertSame("line", line.getName());
+        assertSame("urn:order", line.getNamespace());
+        SchemaGrammar types = findGrammar(imported, "urn:types");
+        XSSimpleTypeDefinition weight = (XSSimpleTypeDefinition) types.getTypeDefinition("weight");
+        assertSame(SchemaGrammar.getS4SGrammar(Constants.SCHEMA_VERSION_1_0).getGlobalTypeDecl("decimal"),
+                weight.getBaseType());
+    }
+
+    public void testRejectedClasses() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        DataOutputStream header = new DataOutputStream(out);
+        header.writeInt(0x58534753);
+        header.writeInt(1);
+        header.writeUTF(Version.getVersion());
+        header.flush();
+        DeflaterOutputStream body = new DeflaterOutputStream(out);
+        ObjectOutputStream objects = new ObjectOutputStream(body);
+        objects.writeObject(new HashMap());
+        objects.flush();
+        body.finish();
+        try {
+            SchemaGrammarSnapshot.readGrammars(new ByteArrayInputStream(out.toByteArray()));
+            fail("a snapshot holding a HashMap was read");
+        }
+        catch (InvalidClassException e) {
+            assertEquals(HashMap.class.getName(), e.classname);
+        }
+
+        try {
+            SchemaGrammarSnapshot.readGrammars(new ByteArrayInputStream("<xs:schema/>".getBytes("UTF-8")));
+            fail("a schema document was read as a snapshot");
+        }
+        catch (StreamCorruptedException e) {
+        }
+    }
+
+    //
+    // Private methods
+    //
+
+    /** Loads the schema grammars into a new grammar pool. */
+    private XMLGrammarPool loadGrammars() throws Exception {
+        XMLGrammarPool pool = new XMLGrammarPoolImpl();
+        XMLGrammarPreparser preparser = new XMLGrammarPreparser();
+        preparser.registerPreparser(XMLGrammarDescription.XML_SCHEMA, null);
+        preparser.setGrammarPool(pool);
+        preparser.setFeature("http://xml.org/sax/features/namespaces", true);
+        String systemId = new File(fDirectory, "order.xsd").toURI().toString();
+        preparser.preparseGrammar(XMLGrammarDescription.XML_SCHEMA, new XMLInputSource(null, systemId, null));
+        return pool;
+    } // loadGrammars():XMLGrammarPool
+
+    private static SchemaGrammar findGrammar(XMLGrammarPool pool, String namespace) {
+        Grammar[] grammars = pool.retrieveInitialGrammarSet(XMLGrammarDescription.XML_SCHEMA);
+        for (int i = 0; i < grammars.length; ++i) {
+            if (namespace.equals(((SchemaGrammar) grammars[i]).getTargetNamespace())) {
+                return (SchemaGrammar) grammars[i];
+            }
+        }
+        fail("no grammar for " + namespace);
+        return null;
+    } // findGrammar(XMLGrammarPool,String):SchemaGrammar
+
+    /**
+     * Validates a document with the grammars of a pool only, and returns
+     * the keys of the errors reported, each followed by a space.
+     */
+    private static String validate(XMLGrammarPool pool, String document) throws Exception {
+        final StringBuffer errors = new StringBuffer();
+        SAXParser parser = new SAXParser(null, pool);
+        parser.setFeature(VALIDATION, true);
+        parser.setFeature(SCHEMA_VALIDATION, true);
+        parser.setFeature(USE_GRAMMAR_POOL_ONLY, true);
+        parser.setErrorHandler(new DefaultHandler() {
+            public void error(SAXParseException e) {
+                String message = e.getMessage();
+                errors.append(message.substring(0, message.indexOf(':'))).append(' ');
+            }
+        });
+        parser.parse(new InputSource(new StringReader(document)));
+        return errors.toString();
+    } // validate(XMLGrammarPool,String):String
+
+    private static void write(File file, String content) throws Exception {
+        Writer out = new OutputStreamWriter(new FileOutputStream(file), "UTF-8");
+        out.write(content);
+        out.close();
+    } // write(File,String)
+
+} // class SchemaGrammarSnapshotTest
@@ -0,0 +1,201 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package thread;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.lang.ref.WeakReference;
+import java.text.StringCharacterIterator;
+
+import junit.framework.TestCase;
+
+import org.apache.xerces.impl.xpath.regex.Match;
+import org.apache.xerces.impl.xpath.regex.RegularExpression;
+
+/**
+ * Tests that regular expressions shared by many threads give the same
+ * results as when they are matched by one thread, including after they
+ * are deserialized, and that the context each thread keeps for an
+ * expression doesn't keep its last target and match alive.
+ *
+ * @version $Id$
+ */
+public class ConcurrentRegularExpressionTest extends TestCase {
+
+    /** The number of threads matching the expressions. */
+    private static final int THREADS = 8;
+
+    /** The number of matches of each thread. */
+    private static final int MATCHES = 20000;
+
+    /** The expressions, and their options. */
+    private static final String[][] EXPRESSIONS = {
+        { "[A-Z]{2}[0-9]{3}", "X" },
+        { "\\d+(\\.\\d+)?", "X" },
+        { "\\p{Lu}\\c*", "X" },
+        { "([a-z]+)@([a-z]+)\\.com", "" },
+        { "(a|b)*c", "" },
+    };
+
+    /** The texts matched by each expression. */
+    private static final String[] TEXTS = {
+        "AB123", "ab123", "AB1234", "12", "12.5", "12.", ".5", "Name", "name", "N-a.m_e",
+        "x@y.com", "mail me at abc@def.com", "abc@def.org", "ababc", "abd", "c", "",
+    };
+
+    /** The expressions, shared by the threads. */
+    private RegularExpression[] fExpressions;
+
+    /** The results of the expressions for each text, matched by one thread. */
+    private String[][] fResults;
+
+    public ConcurrentRegularExpressionTest(String name) {
+        super(name);
+    }
+
+    protected void setUp() throws Exception {
+        super.setUp();
+        fExpressions = new RegularExpression[EXPRESSIONS.length];
+        fResults = new String[EXPRESSIONS.length][TEXTS.length];
+        for (int i = 0; i < EXPRESSIONS.length; ++i) {
+            fExpressions[i] = new RegularExpression(EXPRESSIONS[i][0], EXPRESSIONS[i][1]);
+            for (int j = 0; j < TEXTS.length; ++j) {
+                fResults[i][j] = match(fExpressions[i], TEXTS[j], 0);
+            }
+        }
+    }
+
+    public void testConcurrentMatches() throws Exception {
+        assertConcurrentMatches(fExpressions);
+    }
+
+    public void testDeserializedExpressions() throws Exception {
+        // a deserialized expression is prepared by the first thread matching it
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ObjectOutputStream out = new ObjectOutputStream(bytes);
+        out.writeObject(fExpressions);
+        out.close();
+        ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+        RegularExpression[] expressions = (RegularExpression[]) in.readObject();
+        in.close();
+        assertConcurrentMatches(expressions);
+    }
+
+    public void testTargetReleased() throws Exception {
+        ConcurrentSymbolTableTest.runThreads(THREADS, new ConcurrentSymbolTableTest.Task() {
+            public void run(int thread) {
+                // the threads are still alive, and so are their contexts
+                WeakReference[] references = matchTargets(thread);
+                for (int i = 0; i < 100 && !isCleared(references); ++i) {
+                    System.gc();
+                    try {
+                        Thread.sleep(10);
+                    }
+                    catch (InterruptedException e) {
+                    }
+                }
+                for (int i = 0; i < references.length; ++i) {
+                    assertNull("target " + i + " of thread " + thread, references[i].get());
+                }
+            }
+        });
+    }
+
+    //
+    // Private methods
+    //
+
+    /**
+     * Asserts that the given expressions give the results matched by one
+     * thread when they are matched by many threads.
+     */
+    private void assertConcurrentMatches(final RegularExpression[] expressions) throws Exception {
+        ConcurrentSymbolTableTest.runThreads(THREADS, new ConcurrentSymbolTableTest.Task() {
+            public void run(int thread) {
+                for (int i = 0; i < MATCHES; ++i) {
+                    int expression = (i + thread) % expressions.length;
+                    int text = (i * 7 + thread) % TEXTS.length;
+                    assertEquals(EXPRESSIONS[expression][0] + " '" + TEXTS[text] + "'",
+                            fResults[expression][text], match(expressions[expression], TEXTS[text], i));
+                }
+            }
+        });
+    } // assertConcurrentMatches(RegularExpression[])
+
+    /**
+     * Matches the given text with each kind of target and returns the
+     * result, with the text of the first group if it matched.
+     */
+    private static String match(RegularExpression expression, String text, int i) {
+        Match match = new Match();
+        boolean matched;
+        switch (i % 3) {
+            case 0:
+                matched = expression.matches(text, match);
+                break;
+            case 1:
+                matched = expression.matches(text.toCharArray(), match);
+                break;
+            default:
+                matched = expression.matches(new StringCharacterIterator(text), match);
+        }
+        if (!matched) {
+            return "false";
+        }
+        return match.getNumberOfGroups() > 1 ? "true " + match.getCapturedText(1) : "true";
+    } // match(RegularExpression,String,int):String
+
+    /**
+     * Matches new targets with each expression and returns references to
+     * the targets and matches, which are no longer reachable from here.
+     */
+    private WeakReference[] matchTargets(int thread) {
+        WeakReference[] references = new WeakReference[EXPRESSIONS.length * 8];
+        int count = 0;
+        for (int i = 0; i < fExpressions.length; ++i) {
+            // a text which matches, and one which doesn't
+            String[] texts = { "AB123", "mail x" + thread + "@y.org" };
+            for (int j = 0; j < texts.length; ++j) {
+                String string = new String(texts[j]);
+                char[] chars = texts[j].toCharArray();
+                StringCharacterIterator iterator = new StringCharacterIterator(texts[j]);
+                Match match = new Match();
+                fExpressions[i].matches(string);
+                fExpressions[i].matches(chars, match);
+                fExpressions[i].matches(iterator);
+                references[count++] = new WeakReference(string);
+                references[count++] = new WeakReference(chars);
+                references[count++] = new WeakReference(iterator);
+                references[count++] = new WeakReference(match);
+            }
+        }
+        return references;
+    } // matchTargets(int):WeakReference[]
+
+    private static boolean isCleared(WeakReference[] references) {
+        for (int i = 0; i < references.length; ++i) {
+            if (references[i].get() != null) {
+                return false;
+            }
+        }
+        return true;
+    } // isCleared(WeakReference[]):boolean
+
+} // class ConcurrentRegularExpressionTest
@@ -0,0 +1,172 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package thread;
+
+import junit.framework.TestCase;
+
+import org.apache.xerces.util.ConcurrentSymbolTable;
+import org.apache.xerces.util.SymbolTable;
+
+/**
+ * Tests that the symbols of a <code>ConcurrentSymbolTable</code> shared
+ * by many threads are the interned strings, whichever thread added them
+ * and while the segments of the table grow and are rehashed.
+ *
+ * @version $Id$
+ */
+public class ConcurrentSymbolTableTest extends TestCase {
+
+    /** The number of threads adding symbols. */
+    private static final int THREADS = 8;
+
+    /** The number of symbols added by each thread. */
+    private static final int SYMBOLS = 5000;
+
+    public ConcurrentSymbolTableTest(String name) {
+        super(name);
+    }
+
+    public void testSymbolIdentity() throws Exception {
+        // a small table, so that its segments are resized while the
+        // threads are adding symbols
+        final SymbolTable table = new ConcurrentSymbolTable(16, 0.75f, 4);
+        final String[][] symbols = new String[THREADS][];
+        runThreads(new Task() {
+            public void run(int thread) {
+                String[] added = new String[SYMBOLS];
+                for (int i = 0; i < SYMBOLS; ++i) {
+                    // each thread adds the same names, in a different order
+                    // and alternately from strings and from characters
+                    String name = "name" + ((i + thread * 997) % SYMBOLS);
+                    if ((i & 1) == 0) {
+                        added[i] = table.addSymbol(new String(name));
+                    }
+                    else {
+                        char[] buffer = ("<" + name + ">").toCharArray();
+                        added[i] = table.addSymbol(buffer, 1, name.length());
+                    }
+                }
+                symbols[thread] = added;
+            }
+        });
+        for (int thread = 0; thread < THREADS; ++thread) {
+            for (int i = 0; i < SYMBOLS; ++i) {
+                String name = "name" + ((i + thread * 997) % SYMBOLS);
+                assertSame(name, name.intern(), symbols[thread][i]);
+                assertTrue(name, table.containsSymbol(name));
+            }
+        }
+        assertFalse(table.containsSymbol("name" + SYMBOLS));
+    }
+
+    public void testCollidingSymbols() throws Exception {
+        // all strings made of the blocks "Aa" and "BB" have the same hash
+        // code, so they collide in the table until it rehashes them
+        final String[] names = new String[1 << 9];
+        for (int i = 0; i < names.length; ++i) {
+            StringBuffer name = new StringBuffer();
+            for (int bit = 0; bit < 9; ++bit) {
+                name.append((i & (1 << bit)) != 0 ? "BB" : "Aa");
+            }
+            names[i] = name.toString();
+        }
+        final SymbolTable table = new ConcurrentSymbolTable();
+        final String[][] symbols = new String[THREADS][names.length];
+        runThreads(new Task() {
+            public void run(int thread) {
+                for (int i = 0; i < names.length; ++i) {
+                    int index = (i * 7 + thread) % names.length;
+                    symbols[thread][index] = table.addSymbol(new String(names[index]));
+                }
+            }
+        });
+        for (int i = 0; i < names.length; ++i) {
+            char[] buffer = names[i].toCharArray();
+            assertEquals(table.hash(names[i]), table.hash(buffer, 0, buffer.length));
+            assertTrue(table.containsSymbol(buffer, 0, buffer.length));
+            for (int thread = 0; thread < THREADS; ++thread) {
+                assertSame(names[i].intern(), symbols[thread][i]);
+            }
+        }
+    }
+
+    //
+    // Package methods
+    //
+
+    /** A task run by each of the threads of a test. */
+    interface Task {
+        void run(int thread) throws Exception;
+    }
+
+    /**
+     * Runs a task on the given number of threads, started together, and
+     * rethrows the first failure of a task.
+     */
+    static void runThreads(int count, final Task task) throws Exception {
+        final Object start = new Object();
+        final boolean[] started = new boolean[1];
+        final Throwable[] failure = new Throwable[1];
+        Thread[] threads = new Thread[count];
+        for (int i = 0; i < count; ++i) {
+            final int thread = i;
+            threads[i] = new Thread() {
+                public void run() {
+                    try {
+                        synchronized (start) {
+                            while (!started[0]) {
+                                start.wait();
+                            }
+                        }
+                        task.run(thread);
+                    }
+                    catch (Throwable e) {
+                        synchronized (failure) {
+                            if (failure[0] == null) {
+                                failure[0] = e;
+                            }
+                        }
+                    }
+                }
+            };
+            threads[i].start();
+        }
+        synchronized (start) {
+            started[0] = true;
+            start.notifyAll();
+        }
+        for (int i = 0; i < count; ++i) {
+            threads[i].join();
+        }
+        if (failure[0] instanceof Exception) {
+            throw (Exception) failure[0];
+        }
+        if (failure[0] instanceof Error) {
+            throw (Error) failure[0];
+        }
+    } // runThreads(int,Task)
+
+    //
+    // Private methods
+    //
+
+    private void runThreads(Task task) throws Exception {
+        runThreads(THREADS, task);
+    }
+
+} // class ConcurrentSymbolTableTest
@@ -0,0 +1,225 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package thread;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStreamWriter;
+import java.io.StringReader;
+import java.io.Writer;
+
+import junit.framework.TestCase;
+
+import org.apache.xerces.impl.xs.XSDDescription;
+import org.apache.xerces.parsers.SAXParser;
+import org.apache.xerces.util.ConcurrentSymbolTable;
+import org.apache.xerces.util.ConcurrentXMLGrammarPool;
+import org.apache.xerces.util.SymbolTable;
+import org.apache.xerces.xni.grammars.Grammar;
+import org.apache.xerces.xni.grammars.XMLGrammarDescription;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXParseException;
+import org.xml.sax.helpers.DefaultHandler;
+
+/**
+ * Tests a <code>ConcurrentXMLGrammarPool</code> read and updated by many
+ * threads, and shared with a <code>ConcurrentSymbolTable</code> by
+ * parsers validating documents concurrently.
+ *
+ * @version $Id$
+ */
+public class ConcurrentXMLGrammarPoolTest extends TestCase {
+
+    /** The number of threads. */
+    private static final int THREADS = 8;
+
+    /** The number of grammars put by each thread. */
+    private static final int GRAMMARS = 200;
+
+    /** The number of schemas of the validated documents. */
+    private static final int SCHEMAS = 6;
+
+    /** Feature identifier: validation. */
+    private static final String VALIDATION = "http://xml.org/sax/features/validation";
+
+    /** Feature identifier: schema validation. */
+    private static final String SCHEMA_VALIDATION = "http://apache.org/xml/features/validation/schema";
+
+    private File fDirectory;
+
+    public ConcurrentXMLGrammarPoolTest(String name) {
+        super(name);
+    }
+
+    protected void setUp() throws Exception {
+        super.setUp();
+        fDirectory = File.createTempFile("pool", "");
+        fDirectory.delete();
+        fDirectory.mkdir();
+    }
+
+    protected void tearDown() throws Exception {
+        File[] files = fDirectory.listFiles();
+        for (int i = 0; i < files.length; ++i) {
+            files[i].delete();
+        }
+        fDirectory.delete();
+        super.tearDown();
+    }
+
+    public void testConcurrentUpdates() throws Exception {
+        final ConcurrentXMLGrammarPool pool = new ConcurrentXMLGrammarPool(4);
+        ConcurrentSymbolTableTest.runThreads(THREADS, new ConcurrentSymbolTableTest.Task() {
+            public void run(int thread) {
+                for (int i = 0; i < GRAMMARS; ++i) {
+                    pool.putGrammar(new TestGrammar("urn:" + thread + ":" + i));
+                    // a grammar put by any thread is found with its own description
+                    String namespace = "urn:" + ((thread + i) % THREADS) + ":" + (i / 2);
+                    Grammar grammar = pool.retrieveGrammar(new TestGrammar(namespace).getGrammarDescription());
+                    if (grammar != null) {
+                        assertEquals(namespace, grammar.getGrammarDescription().getNamespace());
+                    }
+                    // a grammar put twice replaces the first, a grammar removed is gone
+                    if (i % 10 == 0) {
+                        TestGrammar twice = new TestGrammar("urn:" + thread + ":" + i);
+                        pool.putGrammar(twice);
+                        assertSame(twice, pool.getGrammar(twice.getGrammarDescription()));
+                        assertSame(twice, pool.removeGrammar(twice.getGrammarDescription()));
+                        assertFalse(pool.containsGrammar(twice.getGrammarDescription()));
+                        pool.putGrammar(twice);
+                    }
+                }
+            }
+        });
+        Grammar[] grammars = pool.retrieveInitialGrammarSet(XMLGrammarDescription.XML_SCHEMA);
+        assertEquals(THREADS * GRAMMARS, grammars.length);
+        for (int thread = 0; thread < THREADS; ++thread) {
+            for (int i = 0; i < GRAMMARS; ++i) {
+                String namespace = "urn:" + thread + ":" + i;
+                Grammar grammar = pool.retrieveGrammar(new TestGrammar(namespace).getGrammarDescription());
+                assertNotNull(namespace, grammar);
+                assertEquals(namespace, grammar.getGrammarDescription().getNamespace());
+            }
+        }
+    }
+
+    public void testLockedPool() throws Exception {
+        final ConcurrentXMLGrammarPool pool = new ConcurrentXMLGrammarPool();
+        pool.putGrammar(new TestGrammar("urn:kept"));
+        pool.lockPool();
+        ConcurrentSymbolTableTest.runThreads(THREADS, new ConcurrentSymbolTableTest.Task() {
+            public void run(int thread) {
+                pool.cacheGrammars(XMLGrammarDescription.XML_SCHEMA,
+                        new Grammar[] { new TestGrammar("urn:" + thread) });
+                pool.putGrammar(new TestGrammar("urn:put:" + thread));
+            }
+        });
+        assertEquals(1, pool.retrieveInitialGrammarSet(XMLGrammarDescription.XML_SCHEMA).length);
+        pool.unlockPool();
+        pool.putGrammar(new TestGrammar("urn:put"));
+        assertEquals(2, pool.retrieveInitialGrammarSet(XMLGrammarDescription.XML_SCHEMA).length);
+    }
+
+    public void testSharedValidation() throws Exception {
+        final String[] valid = new String[SCHEMAS];
+        final String[] invalid = new String[SCHEMAS];
+        for (int i = 0; i < SCHEMAS; ++i) {
+            File schema = new File(fDirectory, "schema" + i + ".xsd");
+            write(schema, createSchema(i));
+            valid[i] = createDocument(i, schema, "<item>1</item><item>2</item>");
+            invalid[i] = createDocument(i, schema, "<item>1</item><other/>");
+        }
+
+        final SymbolTable symbolTable = new ConcurrentSymbolTable();
+        final ConcurrentXMLGrammarPool pool = new ConcurrentXMLGrammarPool();
+        ConcurrentSymbolTableTest.runThreads(THREADS, new ConcurrentSymbolTableTest.Task() {
+            public void run(int thread) throws Exception {
+                for (int round = 0; round < 5; ++round) {
+                    for (int i = 0; i < SCHEMAS; ++i) {
+                        int schema = (i + thread) % SCHEMAS;
+                        assertEquals("document " + schema, 0, validate(symbolTable, pool, valid[schema]));
+                        assertTrue("document " + schema, validate(symbolTable, pool, invalid[schema]) > 0);
+                    }
+                }
+            }
+        });
+        assertEquals(SCHEMAS, pool.retrieveInitialGrammarSet(XMLGrammarDescription.XML_SCHEMA).length);
+    }
+
+    //
+    // Private methods
+    //
+
+    /** Validates a document and returns the number of errors reported. */
+    private static int validate(SymbolTable symbolTable, ConcurrentXMLGrammarPool pool,
+            String document) throws Exception {
+        final int[] errors = new int[1];
+        SAXParser parser = new SAXParser(symbolTable, pool);
+        parser.setFeature(VALIDATION, true);
+        parser.setFeature(SCHEMA_VALIDATION, true);
+        parser.setErrorHandler(new DefaultHandler() {
+            public void error(SAXParseException e) {
+                ++errors[0];
+            }
+        });
+        parser.parse(new InputSource(new StringReader(document)));
+        return errors[0];
+    } // validate(SymbolTable,ConcurrentXMLGrammarPool,String):int
+
+    private static String createSchema(int i) {
+        return "<xs:schema xmlns:xs='http://www.w3.org/2001/XMLSchema' targetNamespace='urn:schema" + i + "'"
+            + " xmlns='urn:schema" + i + "' elementFormDefault='qualified'>"
+            + "<xs:element name='root'><xs:complexType><xs:sequence>"
+            + "<xs:element name='item' type='xs:int' maxOccurs='unbounded'/>"
+            + "</xs:sequence><xs:attribute name='id' type='xs:ID'/></xs:complexType></xs:element>"
+            + "</xs:schema>";
+    } // createSchema(int):String
+
+    private static String createDocument(int i, File schema, String content) {
+        return "<root xmlns='urn:schema" + i + "' id='r" + i + "'"
+            + " xmlns:xsi='http://www.w3.org/2001/XMLSchema-instance'"
+            + " xsi:schemaLocation='urn:schema" + i + " " + schema.toURI() + "'>"
+            + content + "</root>";
+    } // createDocument(int,File,String):String
+
+    private static void write(File file, String content) throws Exception {
+        Writer out = new OutputStreamWriter(new FileOutputStream(file), "UTF-8");
+        out.write(content);
+        out.close();
+    } // write(File,String)
+
+    //
+    // Classes
+    //
+
+    /** A schema grammar with no components. */
+    private static final class TestGrammar implements Grammar {
+
+        private final XSDDescription fDescription = new XSDDescription();
+
+        TestGrammar(String namespace) {
+            fDescription.setNamespace(namespace);
+        }
+
+        public XMLGrammarDescription getGrammarDescription() {
+            return fDescription;
+        }
+
+    } // class TestGrammar
+
+} // class ConcurrentXMLGrammarPoolTest
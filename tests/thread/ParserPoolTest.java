@@ -0,0 +1,231 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package thread;
+
+import java.io.StringReader;
+
+import javax.xml.XMLConstants;
+import javax.xml.transform.stream.StreamSource;
+import javax.xml.validation.SchemaFactory;
+import javax.xml.validation.Validator;
+
+import junit.framework.TestCase;
+
+import org.apache.xerces.parsers.DOMParser;
+import org.apache.xerces.parsers.ParserPool;
+import org.apache.xerces.parsers.SAXParser;
+import org.w3c.dom.Document;
+import org.xml.sax.Attributes;
+import org.xml.sax.ErrorHandler;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.SAXParseException;
+import org.xml.sax.helpers.DefaultHandler;
+
+/**
+ * Tests that the parsers and validators returned to a
+ * <code>ParserPool</code> are reset, so that a borrower sees neither
+ * the settings nor the state left by the previous borrower.
+ *
+ * @version $Id$
+ */
+public class ParserPoolTest extends TestCase {
+
+    /** Feature identifier: validation. */
+    private static final String VALIDATION = "http://xml.org/sax/features/validation";
+
+    /** Feature identifier: namespaces. */
+    private static final String NAMESPACES = "http://xml.org/sax/features/namespaces";
+
+    /** A document with an internal DTD and an entity. */
+    private static final String DOCUMENT =
+        "<!DOCTYPE doc [<!ELEMENT doc (item*)><!ELEMENT item (#PCDATA)>"
+        + "<!ATTLIST item n CDATA #REQUIRED><!ENTITY e 'entity'>]>"
+        + "<doc><item n='1'>one</item><item n='2'>&e;</item></doc>";
+
+    private static final String SCHEMA =
+        "<xs:schema xmlns:xs='http://www.w3.org/2001/XMLSchema'>"
+        + "<xs:element name='doc'><xs:complexType><xs:sequence>"
+        + "<xs:element name='item' type='xs:int' maxOccurs='unbounded'/>"
+        + "</xs:sequence></xs:complexType></xs:element></xs:schema>";
+
+    public ParserPoolTest(String name) {
+        super(name);
+    }
+
+    public void testSAXParserReset() throws Exception {
+        ParserPool pool = new ParserPool();
+        SAXParser parser = pool.borrowSAXParser();
+        assertTrue(parser.getFeature(NAMESPACES));
+        assertFalse(parser.getFeature(VALIDATION));
+        parser.setFeature(VALIDATION, true);
+        parser.setFeature(NAMESPACES, false);
+        CountingHandler handler = new CountingHandler();
+        parser.setContentHandler(handler);
+        parser.setErrorHandler(handler);
+        parser.parse(new InputSource(new StringReader(DOCUMENT)));
+        assertEquals("doc,item(1),item(2),", handler.fElements.toString());
+        pool.returnParser(parser);
+
+        SAXParser reused = pool.borrowSAXParser();
+        assertSame(parser, reused);
+        assertEquals(1, pool.getHitCount());
+        assertEquals(1, pool.getResetCount());
+        assertTrue(reused.getFeature(NAMESPACES));
+        assertFalse(reused.getFeature(VALIDATION));
+        assertNull(reused.getContentHandler());
+        assertNull(reused.getErrorHandler());
+        pool.returnParser(reused);
+    }
+
+    public void testSAXParserResetAfterError() throws Exception {
+        ParserPool pool = new ParserPool();
+        SAXParser parser = pool.borrowSAXParser();
+        parser.setContentHandler(new CountingHandler());
+        parser.setErrorHandler(new CountingHandler());
+        try {
+            // stops within the internal entity
+            parser.parse(new InputSource(new StringReader(
+                "<!DOCTYPE doc [<!ENTITY e '<a>&#0;</a>'>]><doc>&e;</doc>")));
+            fail("the document is not well-formed");
+        }
+        catch (SAXParseException e) {
+        }
+        pool.returnParser(parser);
+
+        SAXParser reused = pool.borrowSAXParser();
+        assertSame(parser, reused);
+        CountingHandler handler = new CountingHandler();
+        reused.setContentHandler(handler);
+        reused.parse(new InputSource(new StringReader(DOCUMENT)));
+        assertEquals("doc,item(1),item(2),", handler.fElements.toString());
+        assertEquals("oneentity", handler.fText.toString());
+        pool.returnParser(reused);
+    }
+
+    public void testDOMParserReset() throws Exception {
+        ParserPool pool = new ParserPool();
+        DOMParser parser = pool.borrowDOMParser();
+        parser.setFeature(VALIDATION, true);
+        parser.parse(new InputSource(new StringReader(DOCUMENT)));
+        Document document = parser.getDocument();
+        assertEquals(2, document.getElementsByTagName("item").getLength());
+        pool.returnParser(parser);
+
+        DOMParser reused = pool.borrowDOMParser();
+        assertSame(parser, reused);
+        assertNull(reused.getDocument());
+        assertFalse(reused.getFeature(VALIDATION));
+        reused.parse(new InputSource(new StringReader("<doc><item n='3'/></doc>")));
+        assertNotSame(document, reused.getDocument());
+        assertEquals(1, reused.getDocument().getElementsByTagName("item").getLength());
+        pool.returnParser(reused);
+    }
+
+    public void testValidatorReset() throws Exception {
+        ParserPool pool = new ParserPool();
+        SchemaFactory factory = SchemaFactory.newInstance(XMLConstants.W3C_XML_SCHEMA_NS_URI);
+        pool.setSchema(factory.newSchema(new StreamSource(new StringReader(SCHEMA))));
+        Validator validator = pool.borrowValidator();
+        CountingHandler handler = new CountingHandler();
+        validator.setErrorHandler(handler);
+        validator.validate(new StreamSource(new StringReader("<doc><item>x</item></doc>")));
+        assertTrue(handler.fErrors > 0);
+        pool.returnValidator(validator);
+
+        Validator reused = pool.borrowValidator();
+        assertSame(validator, reused);
+        assertNull(reused.getErrorHandler());
+        reused.validate(new StreamSource(new StringReader("<doc><item>1</item></doc>")));
+        pool.returnValidator(reused);
+
+        // validators of a previous schema are not kept
+        pool.setSchema(factory.newSchema(new StreamSource(new StringReader(SCHEMA))));
+        assertNotSame(reused, pool.borrowValidator());
+    }
+
+    public void testMaxIdle() throws Exception {
+        ParserPool pool = new ParserPool(1, 0);
+        SAXParser first = pool.borrowSAXParser();
+        SAXParser second = pool.borrowSAXParser();
+        assertNotSame(first, second);
+        pool.returnParser(first);
+        pool.returnParser(second);
+        assertEquals(1, pool.getIdleCount());
+        assertEquals(1, pool.getDiscardCount());
+        try {
+            pool.returnParser(new SAXParser());
+            fail("the parser was not borrowed from the pool");
+        }
+        catch (IllegalArgumentException e) {
+        }
+    }
+
+    public void testConcurrentBorrowers() throws Exception {
+        final ParserPool pool = new ParserPool(4, 0);
+        ConcurrentSymbolTableTest.runThreads(8, new ConcurrentSymbolTableTest.Task() {
+            public void run(int thread) throws Exception {
+                for (int i = 0; i < 50; ++i) {
+                    SAXParser parser = pool.borrowSAXParser();
+                    CountingHandler handler = new CountingHandler();
+                    parser.setContentHandler(handler);
+                    if ((i + thread) % 3 == 0) {
+                        parser.setFeature(VALIDATION, true);
+                        parser.setErrorHandler(handler);
+                    }
+                    parser.parse(new InputSource(new StringReader(DOCUMENT)));
+                    assertEquals("doc,item(1),item(2),", handler.fElements.toString());
+                    assertEquals(0, handler.fErrors);
+                    pool.returnParser(parser);
+                }
+            }
+        });
+        assertEquals(8 * 50, pool.getHitCount() + pool.getMissCount());
+        assertTrue(pool.getIdleCount() <= 4);
+    }
+
+    //
+    // Classes
+    //
+
+    /** Records the elements and text of a document and counts its errors. */
+    private static final class CountingHandler extends DefaultHandler implements ErrorHandler {
+
+        final StringBuffer fElements = new StringBuffer();
+        final StringBuffer fText = new StringBuffer();
+        int fErrors;
+
+        public void startElement(String uri, String localName, String qName, Attributes attributes) {
+            fElements.append(qName);
+            if (attributes.getValue("n") != null) {
+                fElements.append('(').append(attributes.getValue("n")).append(')');
+            }
+            fElements.append(',');
+        }
+
+        public void characters(char[] ch, int start, int length) {
+            fText.append(ch, start, length);
+        }
+
+        public void error(SAXParseException e) throws SAXException {
+            ++fErrors;
+        }
+
+    } // class CountingHandler
+
+} // class ParserPoolTest
@@ -0,0 +1,189 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package xinclude;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStreamWriter;
+import java.io.StringWriter;
+
+import junit.framework.TestCase;
+
+import org.apache.xerces.parsers.XIncludeParserConfiguration;
+import org.apache.xerces.xni.XNIException;
+import org.apache.xerces.xni.parser.XMLErrorHandler;
+import org.apache.xerces.xni.parser.XMLInputSource;
+import org.apache.xerces.xni.parser.XMLParseException;
+import org.apache.xerces.xni.parser.XMLParserConfiguration;
+
+import xni.Writer;
+
+/**
+ * Base class of the tests which compare the results of XInclude
+ * processing with and without an optional feature.
+ *
+ * @version $Id$
+ */
+public abstract class BaseXIncludeTest extends TestCase {
+
+    /** Feature identifier: namespaces. */
+    protected static final String NAMESPACES = "http://xml.org/sax/features/namespaces";
+
+    /** Feature identifier: schema validation. */
+    protected static final String SCHEMA_VALIDATION = "http://apache.org/xml/features/validation/schema";
+
+    /** The number of documents in tests/xinclude/tests. */
+    protected static final int NUM_TESTS = 41;
+
+    /** A temporary directory for the documents created by a test. */
+    protected File fDirectory;
+
+    protected BaseXIncludeTest(String name) {
+        super(name);
+    }
+
+    protected void tearDown() throws Exception {
+        if (fDirectory != null) {
+            delete(fDirectory);
+            fDirectory = null;
+        }
+        super.tearDown();
+    }
+
+    //
+    // Protected methods
+    //
+
+    /**
+     * Creates a configuration processing XInclude, as the configuration
+     * of xinclude.Test.
+     */
+    protected static XMLParserConfiguration newConfiguration(boolean schemaValidation) {
+        XMLParserConfiguration configuration = new XIncludeParserConfiguration();
+        configuration.setFeature(NAMESPACES, true);
+        configuration.setFeature(SCHEMA_VALIDATION, schemaValidation);
+        return configuration;
+    } // newConfiguration(boolean):XMLParserConfiguration
+
+    /** Returns the system identifier of the document of a test. */
+    protected static String getTestDocument(int test) {
+        return "tests/xinclude/tests/test" + (test < 10 ? "0" : "") + test + ".xml";
+    } // getTestDocument(int):String
+
+    /**
+     * Parses a document and returns the document written by xni.Writer,
+     * followed by the errors and warnings reported and whether the parse
+     * failed.
+     */
+    protected static String parse(XMLParserConfiguration configuration, String systemId) throws Exception {
+        return parse(configuration, new XMLInputSource(null, systemId, null));
+    } // parse(XMLParserConfiguration,String):String
+
+    /**
+     * Parses a document from an input source and returns the document
+     * written by xni.Writer, followed by the errors and warnings reported
+     * and whether the parse failed.
+     */
+    protected static String parse(XMLParserConfiguration configuration, XMLInputSource source) throws Exception {
+        // the writer and the error handler of a configuration are kept, since
+        // setting them again resets the caches of the XInclude handler
+        Writer writer;
+        ErrorLog errors;
+        if (configuration.getDocumentHandler() instanceof Writer
+                && configuration.getErrorHandler() instanceof ErrorLog) {
+            writer = (Writer) configuration.getDocumentHandler();
+            errors = (ErrorLog) configuration.getErrorHandler();
+        }
+        else {
+            writer = new Writer(configuration);
+            errors = new ErrorLog();
+            configuration.setErrorHandler(errors);
+        }
+        StringWriter output = new StringWriter();
+        writer.setOutput(output);
+        errors.fErrors.setLength(0);
+        try {
+            writer.parse(source);
+        }
+        catch (XNIException e) {
+            errors.fErrors.append("failed\n");
+        }
+        return output.toString() + '\n' + errors.fErrors;
+    } // parse(XMLParserConfiguration,XMLInputSource):String
+
+    /** Writes a document in the temporary directory of the test. */
+    protected File write(String name, String content) throws Exception {
+        if (fDirectory == null) {
+            fDirectory = File.createTempFile("xinclude", "");
+            fDirectory.delete();
+            fDirectory.mkdir();
+        }
+        File file = new File(fDirectory, name);
+        java.io.Writer out = new OutputStreamWriter(new FileOutputStream(file), "UTF-8");
+        out.write(content);
+        out.close();
+        return file;
+    } // write(String,String):File
+
+    //
+    // Private methods
+    //
+
+    private static void delete(File file) {
+        File[] files = file.listFiles();
+        if (files != null) {
+            for (int i = 0; i < files.length; ++i) {
+                delete(files[i]);
+            }
+        }
+        file.delete();
+    } // delete(File)
+
+    //
+    // Classes
+    //
+
+    /** Writes the key and the location of the errors reported. */
+    private static final class ErrorLog implements XMLErrorHandler {
+
+        final StringBuffer fErrors = new StringBuffer();
+
+        public void warning(String domain, String key, XMLParseException e) {
+            report("Warning", key, e);
+        }
+
+        public void error(String domain, String key, XMLParseException e) {
+            report("Error", key, e);
+        }
+
+        public void fatalError(String domain, String key, XMLParseException e) {
+            report("Fatal Error", key, e);
+        }
+
+        private void report(String type, String key, XMLParseException e) {
+            String location = e.getExpandedSystemId();
+            if (location != null) {
+                location = location.substring(location.lastIndexOf('/') + 1);
+            }
+            fErrors.append('[').append(type).append("] ").append(key).append(' ').append(location)
+                .append(':').append(e.getLineNumber()).append(':').append(e.getColumnNumber()).append('\n');
+        }
+
+    } // class ErrorLog
+
+} // class BaseXIncludeTest
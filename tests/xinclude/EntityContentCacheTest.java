@@ -0,0 +1,223 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package xinclude;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStream;
+
+import org.apache.xerces.impl.Constants;
+import org.apache.xerces.impl.XMLEntityManager;
+import org.apache.xerces.util.EntityContentCache;
+import org.apache.xerces.xni.parser.XMLParserConfiguration;
+
+/**
+ * Tests that the entities read from a shared entity content cache are
+ * parsed as when they are read from their resources, by the parsers of
+ * the root documents and of the documents they include.
+ *
+ * @version $Id$
+ */
+public class EntityContentCacheTest extends BaseXIncludeTest {
+
+    /** Property identifier: entity content cache. */
+    private static final String ENTITY_CONTENT_CACHE =
+        Constants.XERCES_PROPERTY_PREFIX + Constants.ENTITY_CONTENT_CACHE_PROPERTY;
+
+    /** The maximum number of bytes held by the cache of testEntities. */
+    private static final int CACHE_SIZE = 4096;
+
+    /** A document with an external subset and external entities. */
+    private static final String DOCUMENT =
+        "<?xml version='1.0'?>\n"
+        + "<!DOCTYPE doc SYSTEM 'doc.dtd'>\n"
+        + "<doc>&latin;|&utf16;|&big;|&nested;</doc>";
+
+    /** The external subset, with a parameter entity and general entities. */
+    private static final String DTD =
+        "<!ENTITY % module SYSTEM 'module.ent'>%module;"
+        + "<!ENTITY latin SYSTEM 'latin.ent'><!ENTITY utf16 SYSTEM 'utf16.ent'>"
+        + "<!ENTITY big SYSTEM 'big.ent'><!ENTITY nested SYSTEM 'sub/nested.ent'>";
+
+    public EntityContentCacheTest(String name) {
+        super(name);
+    }
+
+    public void testDocuments() throws Exception {
+        EntityContentCache cache = new EntityContentCache();
+        XMLParserConfiguration configuration = newConfiguration(true);
+        // the cache is shared by the parsers
+        XMLParserConfiguration[] caching = { newConfiguration(true), newConfiguration(true) };
+        for (int i = 0; i < caching.length; ++i) {
+            caching[i].setProperty(ENTITY_CONTENT_CACHE, cache);
+        }
+        for (int i = 0; i < caching.length; ++i) {
+            for (int test = 1; test <= NUM_TESTS; ++test) {
+                String document = getTestDocument(test);
+                assertEquals(document, parse(configuration, document), parse(caching[i], document));
+            }
+        }
+        assertTrue(cache.getHitCount() > 0);
+    }
+
+    public void testIncludedDocuments() throws Exception {
+        // test27.xml and the document it includes have the same external subset
+        EntityContentCache cache = new EntityContentCache();
+        XMLParserConfiguration configuration = newConfiguration(true);
+        configuration.setProperty(ENTITY_CONTENT_CACHE, cache);
+        assertEquals(parse(newConfiguration(true), getTestDocument(27)), parse(configuration, getTestDocument(27)));
+        assertEquals(1, cache.getMissCount());
+        assertEquals(1, cache.getHitCount());
+    }
+
+    public void testEntities() throws Exception {
+        writeEntities();
+        String systemId = write("doc.xml", DOCUMENT).toURI().toString();
+        String expected = parse(newConfiguration(false), systemId);
+        assertTrue(expected, expected.indexOf("caf\u00e9|\u00e9t\u00e9|") != -1);
+        assertTrue(expected, expected.indexOf("[Error]") == -1);
+
+        EntityContentCache cache = new EntityContentCache(CACHE_SIZE);
+        for (int i = 0; i < 2; ++i) {
+            XMLParserConfiguration caching = newConfiguration(false);
+            caching.setProperty(ENTITY_CONTENT_CACHE, cache);
+            assertEquals(expected, parse(caching, systemId));
+            assertEquals(expected, parse(caching, systemId));
+        }
+        // the entity bigger than the cache is read each time
+        assertEquals(5 * 3, cache.getHitCount());
+        assertEquals(5 + 4, cache.getMissCount());
+        assertTrue(cache.getSize() <= CACHE_SIZE);
+    }
+
+    public void testChangedEntities() throws Exception {
+        writeEntities();
+        String systemId = write("doc.xml", DOCUMENT).toURI().toString();
+        XMLParserConfiguration caching = newConfiguration(false);
+        EntityContentCache cache = new EntityContentCache();
+        caching.setProperty(ENTITY_CONTENT_CACHE, cache);
+        String old = parse(caching, systemId);
+
+        writeBytes("latin.ent", "<?xml encoding='ISO-8859-1'?>new".getBytes("ISO-8859-1"));
+        String current = parse(newConfiguration(false), systemId);
+        assertTrue(current, current.indexOf(">new|") != -1);
+        // the cached entity is used until it is removed
+        assertEquals(old, parse(caching, systemId));
+        cache.removeContent(XMLEntityManager.expandSystemId("latin.ent", systemId, false));
+        assertEquals(current, parse(caching, systemId));
+        cache.clear();
+        assertEquals(0, cache.getSize());
+        assertEquals(current, parse(caching, systemId));
+    }
+
+    public void testEviction() throws Exception {
+        // an entry holds its bytes, the characters of its system id and
+        // about 96 bytes more
+        byte[] content = new byte[100];
+        int size = 100 + 2 + 96;
+        EntityContentCache cache = new EntityContentCache(2 * size);
+        cache.putContent("a", content);
+        cache.putContent("b", content);
+        assertEquals(2 * size, cache.getSize());
+        assertSame(content, cache.getContent("a"));
+        // b is now the entity read least recently
+        cache.putContent("c", content);
+        assertNull(cache.getContent("b"));
+        assertSame(content, cache.getContent("a"));
+        assertSame(content, cache.getContent("c"));
+        assertEquals(2 * size, cache.getSize());
+
+        // an entity replaced, and an entity which can't be held
+        cache.putContent("a", new byte[50]);
+        assertEquals(size - 50 + size, cache.getSize());
+        cache.putContent("d", new byte[2 * size]);
+        assertNull(cache.getContent("d"));
+        assertSame(content, cache.getContent("c"));
+        assertFalse(cache.isCacheable("d", 2 * size));
+        assertFalse(cache.isCacheable(null, 0));
+        cache.removeContent("c");
+        assertNull(cache.getContent("c"));
+        assertEquals(size - 50, cache.getSize());
+    }
+
+    public void testConcurrentParsers() throws Exception {
+        writeEntities();
+        final String systemId = write("doc.xml", DOCUMENT).toURI().toString();
+        final String expected = parse(newConfiguration(false), systemId);
+        final EntityContentCache cache = new EntityContentCache(CACHE_SIZE);
+        final Exception[] failures = new Exception[4];
+        Thread[] threads = new Thread[failures.length];
+        for (int i = 0; i < threads.length; ++i) {
+            final int thread = i;
+            threads[i] = new Thread() {
+                public void run() {
+                    try {
+                        XMLParserConfiguration caching = newConfiguration(false);
+                        caching.setProperty(ENTITY_CONTENT_CACHE, cache);
+                        for (int j = 0; j < 50; ++j) {
+                            assertEquals(expected, parse(caching, systemId));
+                        }
+                    }
+                    catch (Exception e) {
+                        failures[thread] = e;
+                    }
+                    catch (Error e) {
+                        failures[thread] = new Exception(e.toString());
+                    }
+                }
+            };
+            threads[i].start();
+        }
+        for (int i = 0; i < threads.length; ++i) {
+            threads[i].join();
+            if (failures[i] != null) {
+                throw failures[i];
+            }
+        }
+        assertTrue(cache.getSize() <= CACHE_SIZE);
+    }
+
+    //
+    // Private methods
+    //
+
+    /**
+     * Writes the entities of the document, in different encodings, one of
+     * them too big for the cache of testEntities.
+     */
+    private void writeEntities() throws Exception {
+        write("doc.dtd", DTD);
+        write("module.ent", "<?xml encoding='UTF-8'?><!ELEMENT doc ANY>");
+        writeBytes("latin.ent", "<?xml encoding='ISO-8859-1'?>caf\u00e9".getBytes("ISO-8859-1"));
+        writeBytes("utf16.ent", "\ufeff\u00e9t\u00e9".getBytes("UTF-16BE"));
+        StringBuffer big = new StringBuffer();
+        for (int i = 0; i < 2 * CACHE_SIZE; ++i) {
+            big.append((char) ('a' + i % 26));
+        }
+        write("big.ent", big.toString());
+        new File(fDirectory, "sub").mkdir();
+        write("sub/nested.ent", "nested");
+    } // writeEntities()
+
+    private void writeBytes(String name, byte[] content) throws Exception {
+        OutputStream out = new FileOutputStream(new File(fDirectory, name));
+        out.write(content);
+        out.close();
+    } // writeBytes(String,byte[])
+
+} // class EntityContentCacheTest
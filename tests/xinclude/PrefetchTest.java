@@ -0,0 +1,219 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package xinclude;
+
+import java.io.File;
+import java.io.FileInputStream;
+
+import org.apache.xerces.impl.Constants;
+import org.apache.xerces.parsers.SAXParser;
+import org.apache.xerces.parsers.XIncludeAwareParserConfiguration;
+import org.apache.xerces.xinclude.XIncludeHandler;
+import org.apache.xerces.xni.parser.XMLInputSource;
+import org.apache.xerces.xni.parser.XMLParserConfiguration;
+import org.xml.sax.Attributes;
+import org.xml.sax.SAXException;
+import org.xml.sax.helpers.DefaultHandler;
+
+/**
+ * Tests that the documents included are the same, with the same errors,
+ * when the included resources are read ahead on prefetch threads.
+ *
+ * @version $Id$
+ */
+public class PrefetchTest extends BaseXIncludeTest {
+
+    /** Property identifier: XInclude prefetch threads. */
+    private static final String PREFETCH_THREADS =
+        Constants.XERCES_PROPERTY_PREFIX + Constants.XINCLUDE_PREFETCH_THREADS_PROPERTY;
+
+    /** Property identifier: XInclude handler. */
+    private static final String XINCLUDE_HANDLER =
+        Constants.XERCES_PROPERTY_PREFIX + Constants.XINCLUDE_HANDLER_PROPERTY;
+
+    /** Feature identifier: XInclude processing. */
+    private static final String XINCLUDE =
+        Constants.XERCES_FEATURE_PREFIX + Constants.XINCLUDE_FEATURE;
+
+    /** The number of documents included by the root document of testManyIncludes. */
+    private static final int INCLUDES = 100;
+
+    /** The prefix of the names of the prefetch threads. */
+    private static final String THREAD_NAME = "XIncludePrefetcher-";
+
+    public PrefetchTest(String name) {
+        super(name);
+    }
+
+    public void testDocuments() throws Exception {
+        XMLParserConfiguration configuration = newConfiguration(true);
+        XMLParserConfiguration prefetching = newConfiguration(true);
+        prefetching.setProperty(PREFETCH_THREADS, new Integer(4));
+        int hits = 0;
+        for (int i = 1; i <= NUM_TESTS; ++i) {
+            String document = getTestDocument(i);
+            assertEquals(document, parse(configuration, document), parse(prefetching, document));
+            hits += getHandler(prefetching).getPrefetchHitCount();
+        }
+        assertTrue("no resource was read ahead", hits > 0);
+    }
+
+    public void testManyIncludes() throws Exception {
+        StringBuffer root = new StringBuffer("<root xmlns:xi='http://www.w3.org/2001/XInclude'>");
+        for (int i = 0; i < INCLUDES; ++i) {
+            root.append("<xi:include href='doc").append(i).append(".xml'/>");
+            write("doc" + i + ".xml", "<doc n='" + i + "' xmlns:xi='http://www.w3.org/2001/XInclude'>"
+                    + "<xi:include href='nested" + (i % 10) + ".xml'/>"
+                    + "<xi:include href='text" + (i % 7) + ".txt' parse='text'/>"
+                    + "<xi:include href='missing" + i + ".xml'><xi:fallback>missing " + i + "</xi:fallback></xi:include>"
+                    + "</doc>");
+        }
+        for (int i = 0; i < 10; ++i) {
+            write("nested" + i + ".xml", "<nested xml:lang='en'>nested " + i + "</nested>");
+        }
+        for (int i = 0; i < 7; ++i) {
+            write("text" + i + ".txt", "text <" + i + "> & more");
+        }
+        // a resource included twice, and a resource which is not well-formed
+        root.append("<xi:include href='doc0.xml'/>");
+        root.append("<xi:include href='broken.xml'><xi:fallback/></xi:include>");
+        write("broken.xml", "<broken>");
+        root.append("</root>");
+        String systemId = write("root.xml", root.toString()).toURI().toString();
+
+        String expected = parse(newConfiguration(false), systemId);
+        assertTrue(expected, expected.indexOf("missing 99") != -1);
+        int[] threads = { 1, 8 };
+        for (int i = 0; i < threads.length; ++i) {
+            XMLParserConfiguration prefetching = newConfiguration(false);
+            prefetching.setProperty(PREFETCH_THREADS, new Integer(threads[i]));
+            assertEquals(expected, parse(prefetching, systemId));
+            // which resources are taken from the prefetcher depends on the
+            // timing of the threads, but some are out of so many
+            assertTrue(getHandler(prefetching).getPrefetchHitCount() > 0);
+            // and again with the same parser
+            assertEquals(expected, parse(prefetching, systemId));
+        }
+    }
+
+    public void testStreamedDocument() throws Exception {
+        StringBuffer content = new StringBuffer("<root xmlns:xi='http://www.w3.org/2001/XInclude'>");
+        // the prefetcher scans the root document faster than it is parsed,
+        // so the resources included at its end are read ahead
+        for (int i = 0; i < 20000; ++i) {
+            content.append("<p a='").append(i).append("'>paragraph</p>");
+        }
+        for (int i = 0; i < INCLUDES; ++i) {
+            content.append("<xi:include href='doc").append(i).append(".xml'/>");
+            write("doc" + i + ".xml", "<doc>text " + i + "</doc>");
+        }
+        content.append("</root>");
+        File root = write("root.xml", content.toString());
+        String systemId = root.toURI().toString();
+        String expected = parse(newConfiguration(false), systemId);
+
+        // the root document can't be read a second time from a stream
+        XMLParserConfiguration prefetching = newConfiguration(false);
+        prefetching.setProperty(PREFETCH_THREADS, new Integer(2));
+        FileInputStream stream = new FileInputStream(root);
+        try {
+            assertEquals(expected, parse(prefetching, new XMLInputSource(null, systemId, null, stream, null)));
+        }
+        finally {
+            stream.close();
+        }
+        assertEquals(0, getHandler(prefetching).getPrefetchHitCount());
+        assertEquals(expected, parse(prefetching, systemId));
+        assertTrue(getHandler(prefetching).getPrefetchHitCount() > 0);
+    }
+
+    public void testFailedParse() throws Exception {
+        String systemId = writeIncludes("</wrong>");
+        for (int i = 0; i < 5; ++i) {
+            XMLParserConfiguration prefetching = newConfiguration(false);
+            prefetching.setProperty(PREFETCH_THREADS, new Integer(4));
+            String result = parse(prefetching, systemId);
+            assertTrue(result, result.endsWith("failed\n"));
+        }
+        assertNoPrefetchThreads();
+    }
+
+    public void testHandlerException() throws Exception {
+        String systemId = writeIncludes("<stop/></root>");
+        for (int i = 0; i < 5; ++i) {
+            SAXParser parser = new SAXParser(new XIncludeAwareParserConfiguration());
+            parser.setFeature(XINCLUDE, true);
+            parser.setProperty(PREFETCH_THREADS, new Integer(4));
+            // the application stops the parse after the included documents
+            parser.setContentHandler(new DefaultHandler() {
+                public void startElement(String uri, String localName, String qName,
+                        Attributes attributes) throws SAXException {
+                    if (localName.equals("stop")) {
+                        throw new SAXException("stop");
+                    }
+                }
+            });
+            try {
+                parser.parse(systemId);
+                fail("the handler did not stop the parse");
+            }
+            catch (SAXException e) {
+                assertEquals("stop", e.getMessage());
+            }
+        }
+        assertNoPrefetchThreads();
+    }
+
+    //
+    // Private methods
+    //
+
+    /**
+     * Writes a root document including many documents, which ends with
+     * the given end tag, and returns its system id.
+     */
+    private String writeIncludes(String endTag) throws Exception {
+        StringBuffer root = new StringBuffer("<root xmlns:xi='http://www.w3.org/2001/XInclude'>");
+        for (int i = 0; i < INCLUDES; ++i) {
+            root.append("<xi:include href='doc").append(i).append(".xml'/>");
+            write("doc" + i + ".xml", "<doc>text " + i + "</doc>");
+        }
+        root.append(endTag);
+        return write("root.xml", root.toString()).toURI().toString();
+    } // writeIncludes(String):String
+
+    /**
+     * Checks that the prefetch threads of the parses terminate, once they
+     * have finished the resource they were reading.
+     */
+    private static void assertNoPrefetchThreads() throws InterruptedException {
+        Thread[] threads = new Thread[Thread.activeCount() + 16];
+        int count = Thread.enumerate(threads);
+        for (int i = 0; i < count; ++i) {
+            if (threads[i].getName().startsWith(THREAD_NAME)) {
+                threads[i].join(10000);
+                assertFalse(threads[i].getName(), threads[i].isAlive());
+            }
+        }
+    } // assertNoPrefetchThreads()
+
+    private static XIncludeHandler getHandler(XMLParserConfiguration configuration) {
+        return (XIncludeHandler) configuration.getProperty(XINCLUDE_HANDLER);
+    } // getHandler(XMLParserConfiguration):XIncludeHandler
+
+} // class PrefetchTest
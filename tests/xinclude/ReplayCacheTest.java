@@ -0,0 +1,148 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package xinclude;
+
+import java.io.File;
+
+import org.apache.xerces.impl.Constants;
+import org.apache.xerces.xinclude.XIncludeHandler;
+import org.apache.xerces.xni.parser.XMLParserConfiguration;
+
+/**
+ * Tests that the resources replayed from the cache of recorded includes
+ * are included as when they are parsed, in the context of each include.
+ *
+ * @version $Id$
+ */
+public class ReplayCacheTest extends BaseXIncludeTest {
+
+    /** Property identifier: XInclude cache size. */
+    private static final String CACHE_SIZE =
+        Constants.XERCES_PROPERTY_PREFIX + Constants.XINCLUDE_CACHE_SIZE_PROPERTY;
+
+    /** Feature identifier: XInclude cache check timestamps. */
+    private static final String CACHE_CHECK_TIMESTAMPS =
+        Constants.XERCES_FEATURE_PREFIX + Constants.XINCLUDE_CACHE_CHECK_TIMESTAMPS_FEATURE;
+
+    /** Property identifier: XInclude handler. */
+    private static final String XINCLUDE_HANDLER =
+        Constants.XERCES_PROPERTY_PREFIX + Constants.XINCLUDE_HANDLER_PROPERTY;
+
+    /** A resource with nested includes, base URIs, languages and namespaces. */
+    private static final String FRAGMENT =
+        "<?xml version='1.0' encoding='UTF-8'?>\n"
+        + "<!-- legal notice -->\n"
+        + "<f:notice xmlns:f='urn:f' xmlns:xi='http://www.w3.org/2001/XInclude' xml:lang='en'>\n"
+        + "  <f:p xmlns:g='urn:g' g:a='1'>Notice &amp; text \u00e9<![CDATA[<cdata>]]><?pi data?></f:p>\n"
+        + "  <xi:include href='sub/nested.xml'/>\n"
+        + "  <xi:include href='text.txt' parse='text'/>\n"
+        + "</f:notice>\n";
+
+    public ReplayCacheTest(String name) {
+        super(name);
+    }
+
+    public void testDocuments() throws Exception {
+        for (int i = 0; i < 2; ++i) {
+            boolean schemaValidation = i == 1;
+            XMLParserConfiguration configuration = newConfiguration(schemaValidation);
+            XMLParserConfiguration caching = newConfiguration(schemaValidation);
+            caching.setProperty(CACHE_SIZE, new Integer(1 << 20));
+            // the second time, the resources included are replayed
+            for (int pass = 0; pass < 2; ++pass) {
+                for (int test = 1; test <= NUM_TESTS; ++test) {
+                    String document = getTestDocument(test);
+                    assertEquals(document, parse(configuration, document), parse(caching, document));
+                }
+            }
+            assertTrue(getHandler(caching).getIncludeCacheHitCount() > 0);
+        }
+    }
+
+    public void testRepeatedIncludes() throws Exception {
+        write("fragment.xml", FRAGMENT);
+        write("text.txt", "text <&> \u00e9\n");
+        new File(fDirectory, "sub").mkdir();
+        new File(fDirectory, "other").mkdir();
+        write("sub/nested.xml", "<nested xml:base='base/'><x xml:lang='fr'>nested</x></nested>");
+        write("sub/missing.xml", "<found/>");
+        write("other/doc.xml", "<doc xmlns:xi='http://www.w3.org/2001/XInclude'>"
+                + "<xi:include href='../fragment.xml'/><xi:include href='../fragment.xml'/></doc>");
+        String root = "<root xmlns:xi='http://www.w3.org/2001/XInclude' xmlns:f='urn:other' xml:lang='de'>"
+            + "<xi:include href='fragment.xml'/>"
+            + "<a xml:lang='en'><xi:include href='fragment.xml'/></a>"
+            + "<b xml:base='sub/' xmlns='urn:default'><xi:include href='../fragment.xml'/></b>"
+            + "<xi:include href='other/doc.xml'/>"
+            + "<xi:include href='missing.xml'><xi:fallback><xi:include href='fragment.xml'/></xi:fallback></xi:include>"
+            + "<c xml:base='sub/'><xi:include href='missing.xml'><xi:fallback/></xi:include></c>"
+            + "<xi:include href='text.txt' parse='text'/>"
+            + "<xi:include href='text.txt' parse='text' encoding='ISO-8859-1'/>"
+            + "<xi:include href='fragment.xml' parse='text'/>"
+            + "<xi:include href='fragment.xml' xpointer='element(/1/1)'/>"
+            + "</root>";
+        String systemId = write("root.xml", root).toURI().toString();
+
+        String expected = parse(newConfiguration(false), systemId);
+        assertTrue(expected, expected.indexOf("<found") != -1);
+        XMLParserConfiguration caching = newConfiguration(false);
+        caching.setProperty(CACHE_SIZE, new Integer(1 << 20));
+        assertEquals(expected, parse(caching, systemId));
+        int hits = getHandler(caching).getIncludeCacheHitCount();
+        assertTrue(hits > 0);
+        assertEquals(expected, parse(caching, systemId));
+        assertTrue(getHandler(caching).getIncludeCacheHitCount() > hits);
+
+        // a cache too small for most recordings
+        caching.setProperty(CACHE_SIZE, new Integer(300));
+        assertEquals(expected, parse(caching, systemId));
+        assertEquals(expected, parse(caching, systemId));
+    }
+
+    public void testModifiedResource() throws Exception {
+        File fragment = write("fragment.xml", "<fragment>old</fragment>");
+        String systemId = write("root.xml", "<root xmlns:xi='http://www.w3.org/2001/XInclude'>"
+                + "<xi:include href='fragment.xml'/><xi:include href='fragment.xml' parse='text'/></root>")
+                .toURI().toString();
+        long modified = fragment.lastModified();
+
+        XMLParserConfiguration checking = newConfiguration(false);
+        checking.setProperty(CACHE_SIZE, new Integer(1 << 20));
+        checking.setFeature(CACHE_CHECK_TIMESTAMPS, true);
+        XMLParserConfiguration notChecking = newConfiguration(false);
+        notChecking.setProperty(CACHE_SIZE, new Integer(1 << 20));
+        String old = parse(checking, systemId);
+        assertEquals(old, parse(notChecking, systemId));
+
+        write("fragment.xml", "<fragment>new</fragment>");
+        fragment.setLastModified(modified + 10000);
+        String current = parse(newConfiguration(false), systemId);
+        assertTrue(current, current.indexOf("new") != -1);
+        assertEquals(current, parse(checking, systemId));
+        // without the check, the recordings are replayed until they are evicted
+        assertEquals(old, parse(notChecking, systemId));
+    }
+
+    //
+    // Private methods
+    //
+
+    private static XIncludeHandler getHandler(XMLParserConfiguration configuration) {
+        return (XIncludeHandler) configuration.getProperty(XINCLUDE_HANDLER);
+    } // getHandler(XMLParserConfiguration):XIncludeHandler
+
+} // class ReplayCacheTest